@@ -0,0 +1,250 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class sends requests to a {@link CMTDaemon} from the command line.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * cmtclient [-port &lt;port&gt;] [-tokenfile &lt;token filename&gt;] plan -planfile &lt;plan filename&gt;
+ *     -patternfile &lt;pattern filename&gt; [-patternfile &lt;pattern filename&gt; [ ... ]]
+ *     [&lt;java filename&gt; [ ... ]]
+ * cmtclient [-port &lt;port&gt;] [-tokenfile &lt;token filename&gt;] extract -version &lt;version&gt;
+ * cmtclient [-port &lt;port&gt;] [-tokenfile &lt;token filename&gt;] stop
+ * </pre>
+ * 
+ * @author Trent Hoeppner
+ */
+public class CMTClient {
+
+	/**
+	 * The exit code when the daemon executed the request.
+	 */
+	private static final int EXIT_OK = 0;
+
+	/**
+	 * The exit code when the arguments are wrong or the request failed.
+	 */
+	private static final int EXIT_ERROR = 1;
+
+	/**
+	 * Sends a request to the daemon on the local machine and waits for the
+	 * response.
+	 * 
+	 * @param port
+	 *            The port that the daemon listens on.
+	 * @param token
+	 *            The token that the daemon wrote to its token file. This
+	 *            value cannot be null or empty.
+	 * @param request
+	 *            The fields of the request. This value cannot be null or
+	 *            empty, and the fields cannot contain tabs or line breaks.
+	 * 
+	 * @return The response, which starts with "OK" or "ERROR". This value will
+	 *         not be null.
+	 * 
+	 * @throws IOException
+	 *             If the daemon could not be reached.
+	 */
+	public static String send(int port, String token, List<String> request) throws IOException {
+		Check.notNullOrEmpty(token, "token");
+		Check.notNullOrEmpty(request, "request");
+
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try {
+			BufferedWriter writer = new BufferedWriter(
+					new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			writer.write(token);
+			writer.write('\t');
+			writer.write(String.join("\t", request));
+			writer.newLine();
+			writer.flush();
+
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			String response = reader.readLine();
+			if (response == null) {
+				throw new IOException("The daemon closed the connection without a response.");
+			}
+
+			return response;
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Reads the token that a daemon wrote when it started.
+	 * 
+	 * @param tokenFile
+	 *            The token file of the daemon. This value cannot be null.
+	 * 
+	 * @return The token. This value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If the file could not be read.
+	 */
+	public static String readToken(File tokenFile) throws IOException {
+		Check.notNull(tokenFile, "tokenFile");
+
+		return new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8).trim();
+	}
+
+	/**
+	 * Sends the request given on the command line and prints the response.
+	 * 
+	 * @param args
+	 *            The command line arguments. This value cannot be null.
+	 */
+	public static void main(String[] args) {
+		int port = CMTDaemon.DEFAULT_PORT;
+		String tokenFilename = null;
+		String command = null;
+		String planFilename = null;
+		String version = null;
+		List<String> patternFilenames = new ArrayList<>();
+		List<String> javaFilenames = new ArrayList<>();
+
+		Iterator<String> argIterator = Arrays.asList(args).iterator();
+		try {
+			while (argIterator.hasNext()) {
+				String arg = argIterator.next();
+				if (arg.equals("-port")) {
+					port = Integer.parseInt(getNext(argIterator));
+				} else if (arg.equals("-tokenfile")) {
+					tokenFilename = getNext(argIterator);
+				} else if (arg.equals("-planfile")) {
+					planFilename = getNext(argIterator);
+				} else if (arg.equals("-patternfile")) {
+					patternFilenames.add(getNext(argIterator));
+				} else if (arg.equals("-version")) {
+					version = getNext(argIterator);
+				} else if (command == null) {
+					command = arg;
+				} else {
+					javaFilenames.add(new File(arg).getAbsolutePath());
+				}
+			}
+		} catch (NumberFormatException e) {
+			command = null;
+		}
+
+		List<String> request = new ArrayList<>();
+		if ("plan".equals(command) && planFilename != null && !patternFilenames.isEmpty()) {
+			request.add("PLAN");
+			request.add(new File(planFilename).getAbsolutePath());
+			List<String> absolutePatternFilenames = new ArrayList<>();
+			for (String patternFilename : patternFilenames) {
+				absolutePatternFilenames.add(new File(patternFilename).getAbsolutePath());
+			}
+			request.add(String.join(File.pathSeparator, absolutePatternFilenames));
+			request.addAll(javaFilenames);
+		} else if ("extract".equals(command) && version != null) {
+			request.add("EXTRACT");
+			request.add(version);
+		} else if ("stop".equals(command)) {
+			request.add("STOP");
+		} else {
+			printUsage();
+			System.exit(EXIT_ERROR);
+		}
+
+		File tokenFile = CMTDaemon.getDefaultTokenFile(port);
+		if (tokenFilename != null) {
+			tokenFile = new File(tokenFilename);
+		}
+
+		String token;
+		try {
+			token = readToken(tokenFile);
+		} catch (IOException e) {
+			System.out.println("Could not read the token of the daemon from " + tokenFile + ": " + e.getMessage());
+			System.exit(EXIT_ERROR);
+			return;
+		}
+
+		try {
+			String response = send(port, token, request);
+			System.out.println(response.replace('\t', ' '));
+			System.exit(response.startsWith("OK") ? EXIT_OK : EXIT_ERROR);
+		} catch (IOException e) {
+			System.out.println("Could not reach the daemon on port " + port + ": " + e.getMessage());
+			System.exit(EXIT_ERROR);
+		}
+	}
+
+	/**
+	 * Gets an argument after a command-line argument identifier. This avoids
+	 * an exception if there is no next argument.
+	 * 
+	 * @param argIterator
+	 *            The iterator that contains the command line arguments. This
+	 *            value cannot be null.
+	 * 
+	 * @return Returns the next argument, or null if there is no argument.
+	 */
+	private static String getNext(Iterator<String> argIterator) {
+		String value = null;
+		if (argIterator.hasNext()) {
+			value = argIterator.next();
+		}
+
+		return value;
+	}
+
+	/**
+	 * Prints the instructions to use this client on the command line.
+	 */
+	private static void printUsage() {
+		System.out.println("Usage:");
+		System.out.println("cmtclient [-port <port>] [-tokenfile <token filename>] plan -planfile <plan filename>");
+		System.out.println("   -patternfile <pattern filename> [-patternfile <pattern filename> [ ... ]]");
+		System.out.println("   [<java filename> [ ... ]]");
+		System.out.println("cmtclient [-port <port>] [-tokenfile <token filename>] extract -version <version>");
+		System.out.println("cmtclient [-port <port>] [-tokenfile <token filename>] stop");
+		System.out.println();
+		System.out.println("-port         optional   The port that the daemon listens on. The default is "
+				+ CMTDaemon.DEFAULT_PORT + ".");
+		System.out.println("-tokenfile    optional   The file that the daemon wrote its token to. The default is");
+		System.out.println("                         " + CMTDaemon.getDefaultTokenFile(CMTDaemon.DEFAULT_PORT) + ".");
+		System.out.println("-planfile     required   The file where the plan will be written to, which must be");
+		System.out.println("                         in the workspace or the directory of the daemon's plan file.");
+		System.out.println("-patternfile  required   The file that contains the search and action patterns.");
+		System.out.println("                         Multiple -patternfile options may be specified.");
+		System.out.println("-version      required   The version to save the API as.");
+		System.out.println("If no java files are given, the whole workspace is analyzed.");
+	}
+}
@@ -0,0 +1,538 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import com.ibm.commerce.cmt.plan.Issue;
+import com.ibm.commerce.cmt.plan.Plan;
+import com.ibm.commerce.cmt.plan.PlanWriter;
+
+/**
+ * This class keeps a {@link CodeMigrationTool} with the API and workspace
+ * loaded, and takes plan and extract requests from other processes on a local
+ * port, so that each request does not have to load the API and the workspace
+ * again. Files in plan requests are loaded again into the index with the same
+ * incremental loading that the QCheck plugin uses, and pattern files which
+ * have not changed are not parsed again.
+ * <p>
+ * Each request is one line of tab-separated fields sent on a new connection,
+ * and the response is one line which starts with "OK" or "ERROR". The first
+ * field is the token that the daemon wrote to its token file when it started,
+ * which only the user who started the daemon can read, and the rest is one of
+ * the following requests:
+ * <ul>
+ * <li>PLAN &lt;plan file&gt; &lt;pattern files&gt; [&lt;java file&gt; ...]
+ * - writes a plan for the given files, or all files if none are given. The
+ * pattern files are separated by {@link File#pathSeparator}. The plan file
+ * must be in the workspace or the output directory. The response is "OK" and
+ * the number of issues.</li>
+ * <li>EXTRACT &lt;version&gt; - extracts the API of the workspace to
+ * "api-v&lt;version&gt;.zip". The loaded API is not changed.</li>
+ * <li>STOP - stops the daemon.</li>
+ * </ul>
+ * Requests are executed one at a time, since they share the index. Only
+ * connections from the local machine are accepted, and requests with the
+ * wrong token are rejected.
+ * 
+ * @author Trent Hoeppner
+ */
+public class CMTDaemon {
+
+	/**
+	 * The port that the daemon listens on by default.
+	 */
+	public static final int DEFAULT_PORT = 7474;
+
+	/**
+	 * The number of random bytes in a token.
+	 */
+	private static final int TOKEN_LENGTH = 32;
+
+	/**
+	 * The tool which has the API and workspace loaded.
+	 */
+	private CodeMigrationTool tool;
+
+	/**
+	 * The root directory of the workspace that was loaded.
+	 */
+	private File workspaceDir;
+
+	/**
+	 * The directory that plan files may be written to, besides the workspace.
+	 */
+	private File outputDir;
+
+	/**
+	 * The directory that the token file is written to.
+	 */
+	private File tokenDir = new File(System.getProperty("user.home"), ".cmt");
+
+	/**
+	 * The token that requests must start with, or null if the daemon is not
+	 * started.
+	 */
+	private String token;
+
+	/**
+	 * The file that the token was written to, or null if the daemon is not
+	 * started.
+	 */
+	private File tokenFile;
+
+	/**
+	 * The socket that requests are accepted on, or null if the daemon is not
+	 * started.
+	 */
+	private ServerSocket serverSocket;
+
+	/**
+	 * The latch which is released when the daemon stops.
+	 */
+	private CountDownLatch stopped = new CountDownLatch(1);
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param tool
+	 *            The tool which has the API and workspace loaded, with
+	 *            {@link CodeMigrationTool#loadWorkspace(File, java.io.FileFilter)}.
+	 *            This value cannot be null.
+	 * @param workspaceDir
+	 *            The root directory of the workspace that was loaded. This
+	 *            value cannot be null.
+	 * @param outputDir
+	 *            The directory that plan files may be written to, besides the
+	 *            workspace. This value cannot be null.
+	 */
+	public CMTDaemon(CodeMigrationTool tool, File workspaceDir, File outputDir) {
+		Check.notNull(tool, "tool");
+		Check.notNull(workspaceDir, "workspaceDir");
+		Check.notNull(outputDir, "outputDir");
+
+		this.tool = tool;
+		this.workspaceDir = workspaceDir;
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * Sets the directory that the token file is written to when the daemon
+	 * starts. The default is the ".cmt" directory in the home directory of the
+	 * user.
+	 * 
+	 * @param tokenDir
+	 *            The directory for the token file. This value cannot be null.
+	 */
+	public synchronized void setTokenDir(File tokenDir) {
+		Check.notNull(tokenDir, "tokenDir");
+
+		this.tokenDir = tokenDir;
+	}
+
+	/**
+	 * Returns the file that the token of a daemon on the given port is written
+	 * to by default, which {@link CMTClient} reads the token from.
+	 * 
+	 * @param port
+	 *            The port that the daemon listens on.
+	 * 
+	 * @return The token file. This value will not be null.
+	 */
+	public static File getDefaultTokenFile(int port) {
+		return getTokenFile(new File(System.getProperty("user.home"), ".cmt"), port);
+	}
+
+	/**
+	 * Returns the file that the token was written to when the daemon started.
+	 * 
+	 * @return The token file, or null if the daemon is not started.
+	 */
+	public synchronized File getTokenFile() {
+		return tokenFile;
+	}
+
+	/**
+	 * Starts accepting requests in another thread, after writing a new random
+	 * token to a file that only the current user can read.
+	 * 
+	 * @param port
+	 *            The local port to listen on. If 0, any free port is used.
+	 * 
+	 * @return The port that the daemon is listening on. This value will be
+	 *         &gt; 0.
+	 * 
+	 * @throws IOException
+	 *             If the port could not be opened or the token file could not
+	 *             be written.
+	 */
+	public synchronized int start(int port) throws IOException {
+		if (serverSocket != null) {
+			throw new IllegalStateException("The daemon is already started.");
+		}
+
+		ServerSocket newSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		try {
+			String newToken = createToken();
+			File newTokenFile = getTokenFile(tokenDir, newSocket.getLocalPort());
+			writeOwnerOnly(newTokenFile, newToken);
+			token = newToken;
+			tokenFile = newTokenFile;
+		} catch (IOException | RuntimeException e) {
+			newSocket.close();
+			throw e;
+		}
+
+		serverSocket = newSocket;
+		final ServerSocket acceptSocket = serverSocket;
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				acceptRequests(acceptSocket);
+			}
+
+		}, "CMTDaemon");
+		thread.setDaemon(true);
+		thread.start();
+
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting requests. A request that is being executed is finished
+	 * first.
+	 */
+	public void stop() {
+		ServerSocket socket;
+		synchronized (this) {
+			socket = serverSocket;
+		}
+
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// the accept thread stops anyway
+			}
+		}
+	}
+
+	/**
+	 * Waits until the daemon stops, either from {@link #stop()} or a STOP
+	 * request.
+	 * 
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting.
+	 */
+	public void waitForStop() throws InterruptedException {
+		stopped.await();
+	}
+
+	/**
+	 * Executes one request.
+	 * 
+	 * @param request
+	 *            The fields of the request, starting with the token. This
+	 *            value cannot be null.
+	 * 
+	 * @return The response, starting with "OK" or "ERROR". This value will not
+	 *         be null.
+	 */
+	String execute(List<String> request) {
+		if (request.isEmpty() || !isTokenValid(request.get(0))) {
+			return "ERROR\tThe token is wrong.";
+		}
+
+		request = request.subList(1, request.size());
+		if (request.isEmpty()) {
+			return "ERROR\tThe request is empty.";
+		}
+
+		String command = request.get(0);
+		try {
+			if (command.equals("PLAN")) {
+				return plan(request);
+			} else if (command.equals("EXTRACT")) {
+				if (request.size() != 2) {
+					return "ERROR\tUsage: EXTRACT <version>";
+				}
+
+				tool.extractAPI(workspaceDir, request.get(1), tool.createJARFilter());
+				return "OK";
+			} else if (command.equals("STOP")) {
+				stop();
+				return "OK";
+			} else {
+				return "ERROR\tUnknown request: " + command;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return "ERROR\t" + String.valueOf(e).replace('\n', ' ');
+		}
+	}
+
+	/**
+	 * Creates a plan for a PLAN request and writes it to the plan file.
+	 * 
+	 * @param request
+	 *            The fields of the request, starting with "PLAN". This value
+	 *            cannot be null.
+	 * 
+	 * @return The response. This value will not be null.
+	 * 
+	 * @throws Exception
+	 *             If there was an error creating or writing the plan.
+	 */
+	private String plan(List<String> request) throws Exception {
+		if (request.size() < 3) {
+			return "ERROR\tUsage: PLAN <plan file> <pattern files> [<java file> ...]";
+		}
+
+		File planFile = new File(request.get(1));
+		if (!isInside(planFile, workspaceDir) && !isInside(planFile, outputDir)) {
+			return "ERROR\tThe plan file must be in the workspace or " + outputDir.getAbsolutePath();
+		}
+
+		List<String> patternFilenames = Arrays.asList(request.get(2).split(File.pathSeparator));
+		Set<File> javaFiles = null;
+		if (request.size() > 3) {
+			javaFiles = new HashSet<>();
+			for (String javaFilename : request.subList(3, request.size())) {
+				javaFiles.add(new File(javaFilename));
+			}
+		}
+
+		Plan plan = tool.createPlan(workspaceDir, patternFilenames, javaFiles);
+
+		PlanWriter writer = new PlanWriter(new BufferedOutputStream(new FileOutputStream(planFile)));
+		try {
+			for (Issue issue : plan.getIssues()) {
+				writer.write(issue);
+			}
+		} finally {
+			writer.close();
+		}
+
+		return "OK\t" + writer.getIssueCount();
+	}
+
+	/**
+	 * Accepts and executes requests until the socket is closed.
+	 * 
+	 * @param acceptSocket
+	 *            The socket to accept connections on. This value cannot be
+	 *            null.
+	 */
+	private void acceptRequests(ServerSocket acceptSocket) {
+		try {
+			while (!acceptSocket.isClosed()) {
+				Socket socket;
+				try {
+					socket = acceptSocket.accept();
+				} catch (SocketException e) {
+					// the socket was closed by stop()
+					break;
+				}
+
+				try {
+					handle(socket);
+				} catch (IOException e) {
+					System.out.println("Could not handle request: " + e.getMessage());
+				} finally {
+					try {
+						socket.close();
+					} catch (IOException e) {
+						// swallow to allow the next request
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Stopped accepting requests: " + e.getMessage());
+		} finally {
+			synchronized (this) {
+				serverSocket = null;
+				token = null;
+				if (tokenFile != null && !tokenFile.delete() && tokenFile.exists()) {
+					System.out.println("Could not delete the token file " + tokenFile);
+				}
+				tokenFile = null;
+			}
+			stopped.countDown();
+		}
+	}
+
+	/**
+	 * Reads one request from the given connection and writes the response.
+	 * 
+	 * @param socket
+	 *            The connection. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the request or writing the
+	 *             response.
+	 */
+	private void handle(Socket socket) throws IOException {
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		String line = reader.readLine();
+
+		List<String> request = new ArrayList<>();
+		if (line != null && !line.isEmpty()) {
+			request.addAll(Arrays.asList(line.split("\t")));
+		}
+
+		String response = execute(request);
+
+		BufferedWriter writer = new BufferedWriter(
+				new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+		writer.write(response);
+		writer.newLine();
+		writer.flush();
+	}
+
+	/**
+	 * Returns whether the given token is the token of this daemon. The time
+	 * taken does not depend on how much of the token is right.
+	 * 
+	 * @param requestToken
+	 *            The token sent with a request. This value cannot be null.
+	 * 
+	 * @return True if the token is right, false otherwise.
+	 */
+	private synchronized boolean isTokenValid(String requestToken) {
+		return token != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+				requestToken.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns whether the given file is in the given directory, or one of its
+	 * subdirectories, after resolving links and ".." in both.
+	 * 
+	 * @param file
+	 *            The file to check. This value cannot be null.
+	 * @param dir
+	 *            The directory that the file should be in. This value cannot
+	 *            be null.
+	 * 
+	 * @return True if the file is in the directory, false otherwise.
+	 * 
+	 * @throws IOException
+	 *             If there was an error resolving the paths.
+	 */
+	private static boolean isInside(File file, File dir) throws IOException {
+		return file.getCanonicalFile().toPath().startsWith(dir.getCanonicalFile().toPath());
+	}
+
+	/**
+	 * Returns the token file for a daemon on the given port.
+	 * 
+	 * @param tokenDir
+	 *            The directory of the token file. This value cannot be null.
+	 * @param port
+	 *            The port that the daemon listens on.
+	 * 
+	 * @return The token file. This value will not be null.
+	 */
+	private static File getTokenFile(File tokenDir, int port) {
+		return new File(tokenDir, "daemon-" + port + ".token");
+	}
+
+	/**
+	 * Creates a random token.
+	 * 
+	 * @return The token in hexadecimal. This value will not be null or empty.
+	 */
+	private static String createToken() {
+		byte[] bytes = new byte[TOKEN_LENGTH];
+		new SecureRandom().nextBytes(bytes);
+
+		StringBuilder b = new StringBuilder();
+		for (byte value : bytes) {
+			b.append(String.format("%02x", value));
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * Writes the given token to a new file which only the current user can
+	 * read and write. A file that already exists is replaced, since it may be
+	 * left from a daemon that was killed.
+	 * 
+	 * @param file
+	 *            The file to write. This value cannot be null.
+	 * @param contents
+	 *            The token to write. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing the file.
+	 */
+	private static void writeOwnerOnly(File file, String contents) throws IOException {
+		Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+		Files.deleteIfExists(file.toPath());
+		try {
+			Files.createFile(file.toPath(),
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			// not a POSIX file system, so replace the inherited access with
+			// access for the owner only before writing the token
+			Files.createFile(file.toPath());
+			AclFileAttributeView view = Files.getFileAttributeView(file.toPath(), AclFileAttributeView.class);
+			if (view == null) {
+				Files.deleteIfExists(file.toPath());
+				throw new IOException("Could not restrict access to " + file);
+			}
+
+			AclEntry ownerEntry = AclEntry.newBuilder().setType(AclEntryType.ALLOW).setPrincipal(view.getOwner())
+					.setPermissions(EnumSet.allOf(AclEntryPermission.class)).build();
+			view.setAcl(Collections.singletonList(ownerEntry));
+		}
+
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
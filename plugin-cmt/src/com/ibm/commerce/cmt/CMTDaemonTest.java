@@ -0,0 +1,310 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.cmt.plan.Issue;
+import com.ibm.commerce.cmt.plan.Plan;
+import com.ibm.commerce.cmt.plan.PlanReader;
+import com.ibm.commerce.cmt.plan.PlanWriter;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link CMTDaemon} and {@link CMTClient} classes.
+ * 
+ * @author Trent Hoeppner
+ */
+public class CMTDaemonTest extends TestCase {
+
+	/**
+	 * The name of the project in the test workspace.
+	 */
+	private static final String PROJECT_NAME = "TestProject";
+
+	/**
+	 * The directory of the test workspace.
+	 */
+	private File workspaceDir;
+
+	/**
+	 * The file that the tools log to.
+	 */
+	private File logFile;
+
+	/**
+	 * The daemon being tested, or null if it was not started.
+	 */
+	private CMTDaemon daemon;
+
+	protected void setUp() throws Exception {
+		workspaceDir = Files.createTempDirectory("CMTDaemonTest").toFile();
+		logFile = new File(workspaceDir, "cmt.log");
+
+		new File(workspaceDir, ".metadata\\.plugins\\org.eclipse.core.resources\\.projects\\" + PROJECT_NAME)
+				.mkdirs();
+		File projectDir = new File(workspaceDir, PROJECT_NAME);
+		new File(projectDir, "src\\com\\test").mkdirs();
+		new File(projectDir, "META-INF").mkdirs();
+		write(new File(projectDir, ".project"), "<projectDescription><name>" + PROJECT_NAME
+				+ "</name></projectDescription>");
+		write(new File(projectDir, "META-INF\\MANIFEST.MF"), "Manifest-Version: 1.0\n");
+		write(getJavaFile("A"), "package com.test;\n\nimport javax.ejb.FinderException;\n\npublic class A {\n}\n");
+		write(getJavaFile("B"), "package com.test;\n\npublic class B {\n\tjavax.ejb.FinderException e = null;\n}\n");
+	}
+
+	protected void tearDown() throws Exception {
+		if (daemon != null) {
+			daemon.stop();
+		}
+
+		try (Stream<Path> paths = Files.walk(workspaceDir.toPath())) {
+			List<Path> sortedPaths = new ArrayList<>();
+			paths.forEach(sortedPaths::add);
+			Collections.sort(sortedPaths, Comparator.reverseOrder());
+			for (Path path : sortedPaths) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * Tests that if a file is changed after the daemon created a plan, the
+	 * plan that the daemon creates for the file is the same as a plan created
+	 * by loading everything again.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testPlanIfFileChangedExpectSameAsColdPlan() throws Exception {
+		String patterns = new File("testData\\commandClassRef.txt").getAbsolutePath();
+		File planFile = new File(workspaceDir, "cmtplan.xml");
+
+		CodeMigrationTool tool = createLoadedTool();
+		int port = startDaemon(tool);
+
+		String response = send(port, Arrays.asList("PLAN", planFile.getAbsolutePath(), patterns));
+		assertTrue("First plan failed: " + response, response.startsWith("OK"));
+		int firstIssueCount = countIssues(readPlan(planFile), getJavaFile("A"));
+
+		write(getJavaFile("A"), "package com.test;\n\nimport javax.ejb.FinderException;\n\npublic class A {\n"
+				+ "\tpublic void run() throws javax.ejb.FinderException {\n\t}\n}\n");
+
+		response = send(port,
+				Arrays.asList("PLAN", planFile.getAbsolutePath(), patterns, getJavaFile("A").getAbsolutePath()));
+		assertTrue("Incremental plan failed: " + response, response.startsWith("OK"));
+		List<Issue> incrementalIssues = readPlan(planFile);
+
+		CodeMigrationTool coldTool = createLoadedTool();
+		Plan coldPlan = coldTool.createPlan(workspaceDir, Arrays.asList(patterns),
+				Collections.singleton(getJavaFile("A")));
+		List<Issue> coldIssues = new ArrayList<>(coldPlan.getIssues());
+		for (Issue issue : coldIssues) {
+			issue.setPattern(null);
+		}
+
+		assertTrue("No new issues were found.", countIssues(incrementalIssues, getJavaFile("A")) > firstIssueCount);
+		assertEquals("Plans are different.", toXMLString(coldIssues), toXMLString(incrementalIssues));
+	}
+
+	/**
+	 * Tests that if the daemon receives a STOP request, it stops.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testSendIfStopExpectDaemonStopped() throws Exception {
+		int port = startDaemon(createLoadedTool());
+		String token = CMTClient.readToken(daemon.getTokenFile());
+		File tokenFile = daemon.getTokenFile();
+
+		String response = CMTClient.send(port, token, Arrays.asList("STOP"));
+		daemon.waitForStop();
+
+		assertEquals("Wrong response.", "OK", response);
+		assertFalse("Token file was not deleted.", tokenFile.exists());
+		try {
+			CMTClient.send(port, token, Arrays.asList("STOP"));
+			fail("IOException was not thrown.");
+		} catch (IOException e) {
+			// success
+		}
+	}
+
+	/**
+	 * Tests that if the daemon receives an unknown request, it responds with
+	 * an error and keeps running.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testSendIfUnknownRequestExpectError() throws Exception {
+		int port = startDaemon(createLoadedTool());
+
+		String response = send(port, Arrays.asList("HELLO"));
+		String secondResponse = send(port, Arrays.asList("PLAN"));
+
+		assertTrue("Wrong response: " + response, response.startsWith("ERROR"));
+		assertTrue("Wrong second response: " + secondResponse, secondResponse.startsWith("ERROR"));
+	}
+
+	/**
+	 * Tests that if a request has the wrong token, it is rejected and the
+	 * daemon keeps running.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testSendIfWrongTokenExpectRejected() throws Exception {
+		int port = startDaemon(createLoadedTool());
+
+		String response = CMTClient.send(port, "0123456789abcdef", Arrays.asList("STOP"));
+		String secondResponse = send(port, Arrays.asList("HELLO"));
+
+		assertTrue("Wrong response: " + response, response.startsWith("ERROR"));
+		assertTrue("Daemon did not keep running: " + secondResponse, secondResponse.startsWith("ERROR\tUnknown"));
+	}
+
+	/**
+	 * Tests that the token file can only be read by the user who started the
+	 * daemon.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testStartIfStartedExpectTokenFileOwnerOnly() throws Exception {
+		startDaemon(createLoadedTool());
+		Path tokenPath = daemon.getTokenFile().toPath();
+
+		assertTrue("Token file is empty.", CMTClient.readToken(daemon.getTokenFile()).length() > 0);
+		if (tokenPath.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			assertEquals("Wrong permissions.", "rw-------",
+					PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenPath)));
+		}
+	}
+
+	/**
+	 * Tests that if a plan file is outside the workspace and the output
+	 * directory, the request is rejected and the file is not written.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testPlanIfPlanFileOutsideWorkspaceExpectRejected() throws Exception {
+		String patterns = new File("testData\\commandClassRef.txt").getAbsolutePath();
+		File outsideDir = Files.createTempDirectory("CMTDaemonTestOutside").toFile();
+		File planFile = new File(outsideDir, "cmtplan.xml");
+		File escapingPlanFile = new File(workspaceDir, ".." + File.separator + outsideDir.getName() + File.separator
+				+ "cmtplan.xml");
+		try {
+			int port = startDaemon(createLoadedTool());
+
+			String response = send(port, Arrays.asList("PLAN", planFile.getAbsolutePath(), patterns));
+			String escapingResponse = send(port, Arrays.asList("PLAN", escapingPlanFile.getPath(), patterns));
+
+			assertTrue("Wrong response: " + response, response.startsWith("ERROR"));
+			assertTrue("Wrong response for ..: " + escapingResponse, escapingResponse.startsWith("ERROR"));
+			assertFalse("Plan file was written.", planFile.exists());
+		} finally {
+			Files.deleteIfExists(planFile.toPath());
+			Files.deleteIfExists(outsideDir.toPath());
+		}
+	}
+
+	private int startDaemon(CodeMigrationTool tool) throws IOException {
+		daemon = new CMTDaemon(tool, workspaceDir, workspaceDir);
+		daemon.setTokenDir(new File(workspaceDir, "token"));
+		return daemon.start(0);
+	}
+
+	private String send(int port, List<String> request) throws IOException {
+		return CMTClient.send(port, CMTClient.readToken(daemon.getTokenFile()), request);
+	}
+
+	private CodeMigrationTool createLoadedTool() {
+		CodeMigrationTool tool = new CodeMigrationTool(logFile.getAbsolutePath());
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+		tool.initialize(index);
+		tool.loadWorkspace(workspaceDir, null);
+		return tool;
+	}
+
+	private File getJavaFile(String className) {
+		return new File(workspaceDir, PROJECT_NAME + "\\src\\com\\test\\" + className + ".java");
+	}
+
+	private List<Issue> readPlan(File planFile) throws IOException {
+		List<Issue> issues = new ArrayList<>();
+		PlanReader reader = new PlanReader(new BufferedInputStream(new FileInputStream(planFile)));
+		try {
+			Issue issue = reader.next();
+			while (issue != null) {
+				issues.add(issue);
+				issue = reader.next();
+			}
+		} finally {
+			reader.close();
+		}
+
+		return issues;
+	}
+
+	private int countIssues(List<Issue> issues, File file) {
+		int count = 0;
+		for (Issue issue : issues) {
+			if (new File(issue.getLocation().getFile()).getAbsoluteFile().equals(file.getAbsoluteFile())) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private String toXMLString(List<Issue> issues) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PlanWriter writer = new PlanWriter(out);
+		for (Issue issue : issues) {
+			writer.write(issue);
+		}
+		writer.close();
+		return out.toString("UTF-8");
+	}
+
+	private void write(File file, String contents) throws IOException {
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -18,11 +18,12 @@
  *-----------------------------------------------------------------
  */
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -44,7 +45,13 @@
 
 import com.ibm.commerce.cmt.plan.IDGenerator;
 import com.ibm.commerce.cmt.plan.Plan;
+import com.ibm.commerce.cmt.plan.PlanExecutor;
+import com.ibm.commerce.cmt.plan.PlanJournal;
+import com.ibm.commerce.cmt.plan.PlanReader;
+import com.ibm.commerce.cmt.plan.PlanWriter;
 import com.ibm.commerce.dependency.load.APIFileManager;
+import com.ibm.commerce.dependency.load.BinaryAPIFileManager;
+import com.ibm.commerce.dependency.load.CompilationUnitCache;
 import com.ibm.commerce.dependency.load.LoadingManager;
 import com.ibm.commerce.dependency.load.Priority;
 import com.ibm.commerce.dependency.model.EclipseWorkspace;
@@ -52,7 +59,6 @@
 import com.ibm.commerce.dependency.model.JavaItemFactory;
 import com.ibm.commerce.dependency.model.JavaItemIndex;
 import com.ibm.commerce.dependency.model.JavaItemType;
-import com.ibm.commerce.dependency.model.JavaItemUtil2;
 import com.ibm.commerce.dependency.model.ProjectLoader;
 import com.ibm.commerce.dependency.model.Workspace;
 import com.ibm.commerce.dependency.model.eclipse.IJavaProjectWrapper;
@@ -91,7 +97,8 @@ public class CodeMigrationTool implements IApplication {
 
 	/**
 	 * The mode that this tool is run under from the command line, default value
-	 * is "plan". Valid values are "plan", "migrate", "extract", and "dumpapi".
+	 * is "plan". Valid values are "plan", "migrate", "rollback", "extract", and
+	 * "dumpapi".
 	 */
 	private String mode = "plan";
 
@@ -108,6 +115,38 @@ public class CodeMigrationTool implements IApplication {
 
 	private List<String> filteredProjectNames = new ArrayList<>();
 
+	/**
+	 * The number of files to analyze at the same time when creating a plan.
+	 */
+	private int planThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The maximum number of parsed source files that are kept in memory while
+	 * the workspace is loaded. Files beyond this are parsed again for each
+	 * kind of item loaded from them.
+	 */
+	private int keptUnits = CompilationUnitCache.DEFAULT_MAX_RETAINED;
+
+	/**
+	 * The file which stores the issues found in each file, so that files which
+	 * have not changed are not analyzed again when the plan is written to a
+	 * file.
+	 */
+	private String cacheFilename = "cmtplan.cache";
+
+	/**
+	 * The directory which records the progress of "migrate" mode and the
+	 * backups of the files it changes, so that a migration which was stopped
+	 * can be resumed or rolled back.
+	 */
+	private String journalDirname = "cmtjournal";
+
+	/**
+	 * The local port that "daemon" mode listens for requests on. If 0, any
+	 * free port is used, and the port is written to the log.
+	 */
+	private int port = CMTDaemon.DEFAULT_PORT;
+
 	private BufferedWriter writer;
 
 	private JavaItemIndex index;
@@ -131,6 +170,15 @@ public class CodeMigrationTool implements IApplication {
 	 */
 	private TaskContext nextTaskContext;
 
+	/**
+	 * The configuration that was loaded most recently, which is reused by
+	 * later plans if the pattern files are the same and have not changed, so
+	 * that the pattern files are not parsed and their regular expressions are
+	 * not compiled for each incremental build. This value is null if no
+	 * configuration has been loaded yet.
+	 */
+	private Configuration loadedConfiguration;
+
 	/**
 	 * Constructor for this with a default log filename.
 	 */
@@ -186,45 +234,35 @@ public Object start(IApplicationContext applicationContext) throws Exception {
 				return EXIT_OK;
 			}
 
+			if (mode.equals("rollback")) {
+				PlanJournal journal = new PlanJournal(new File(journalDirname));
+				journal.load();
+				int restoredCount = journal.rollback();
+				log("Rolled back " + restoredCount + " files");
+				return EXIT_OK;
+			}
+
 			FileFilter dataJARFilter = createJARFilter();
 
 			IWorkspace w = ResourcesPlugin.getWorkspace();
 
 			JavaItemFactory factory = initialize();
 
-			File serializedFile = new File("api-v" + version + ".zip");
 			File workspaceDir = w.getRoot().getLocation().toFile();
 			// List<JavaItem> projectList = null;
 			if (mode.equals("extract")) {
-				Set<File> thirdPartyDirs = new HashSet<>();
-				thirdPartyDirs.add(new File(workspaceDir, "WC/lib"));
-
-				if (version.equals("7")) {
-					thirdPartyDirs.add(new File(workspaceDir, "../../SDP/runtimes/base_v7"));
-				} else if (version.equals("8")) {
-					thirdPartyDirs.add(new File(workspaceDir, "../../SDP/runtimes/base_v85_stub"));
-				} else if (version.equals("9")) {
-					thirdPartyDirs.add(new File(workspaceDir, "../../IBM/WebSphere/AppServer/lib"));
-				}
-
-				LoadingManager loadingManager = new LoadingManager();
-				factory = loadingManager.loadProjects(factory, workspaceDir, thirdPartyDirs, dataJARFilter, true);
+				index = extractAPI(workspaceDir, version, dataJARFilter);
+				factory = new JavaItemFactory(index);
 				this.factory = factory;
-				index = factory.getIndex();
-				// extractFromWorkspace(workspaceDir, factory, true, true,
-				// dataJARFilter);
-
-				APIFileManager apiFileManager = new APIFileManager();
-				apiFileManager.writeAPI(index, serializedFile);
 			} else {
-				serializedFile = new File("api-v" + "8" + ".zip");
+				File serializedFile = new File("api-v" + "8" + ".zip");
 				if (!serializedFile.exists()) {
 					log("File does not exist: " + serializedFile.getAbsolutePath());
 					return EXIT_OK;
 				}
 
-				APIFileManager apiFileManager = new APIFileManager();
-				index = apiFileManager.loadAPI(serializedFile);
+				BinaryAPIFileManager binaryAPIFileManager = new BinaryAPIFileManager();
+				index = binaryAPIFileManager.loadAPIPreferBinary(serializedFile);
 				factory = new JavaItemFactory(index);
 				this.factory = factory;
 
@@ -232,57 +270,53 @@ public Object start(IApplicationContext applicationContext) throws Exception {
 				if (mode.equals("dumpapi")) {
 					dumpAPI();
 				} else if (mode.equals("plan")) {
-					JavaItemIndex workspaceIndex = new JavaItemIndex("workspace", index);
-					JavaItemFactory workspaceFactory = new JavaItemFactory(workspaceIndex);
-
-					LoadingManager loadingManager = new LoadingManager();
-					factory = loadingManager.loadProjects(workspaceFactory, workspaceDir, Collections.emptySet(),
-							dataJARFilter, false);
-					this.factory = factory;
-					index = factory.getIndex();
-
-					workspace = new EclipseWorkspace(new IWorkspaceWrapperExternal(workspaceDir, false, false, null),
-							new ProjectLoader(factory), factory, true);
+					loadWorkspace(workspaceDir, dataJARFilter);
 
 					context.set(Context.Prop.JAVA_ITEM_INDEX, index);
 					context.set(Context.Prop.DEPENDENCY_WORKSPACE, workspace);
 
 					Configuration configuration = createConfiguration(workspace, patternFilenames, null);
-					createPlan(configuration, context, true);
+					writePlan(configuration, context);
 				} else if (mode.equals("migrate")) {
 					// parseWorkspace(workspaceDir, factory, dataJARFilter);
 
-					JavaItemIndex workspaceIndex = new JavaItemIndex("workspace", index);
-					JavaItemFactory workspaceFactory = new JavaItemFactory(workspaceIndex);
-
-					LoadingManager loadingManager = new LoadingManager();
-					factory = loadingManager.loadProjects(workspaceFactory, workspaceDir, Collections.emptySet(),
-							dataJARFilter, false);
-					this.factory = factory;
-					index = factory.getIndex();
-
-					workspace = new EclipseWorkspace(new IWorkspaceWrapperExternal(workspaceDir, false, false, null),
-							new ProjectLoader(factory), factory, true);
+					loadWorkspace(workspaceDir, dataJARFilter);
 
 					context.set(Context.Prop.JAVA_ITEM_INDEX, index);
 					context.set(Context.Prop.DEPENDENCY_WORKSPACE, workspace);
 
 					Configuration configuration = createConfiguration(workspace, patternFilenames, null);
-					// File planFile = new File(planFilename);
-					Plan plan;
-					// if (planFile.exists()) {
-					// log("Loading plan");
-					// // TODO
-					// log("NEED TO IMPLEMENT LOADING OF AN EXISTING PLAN
-					// FILE.");
-					// return EXIT_OK;
-					// } else {
-					// log("Plan file does not exist, creating plan");
-					plan = createPlan(configuration, context, true);
-					// }
 
+					// files that were already migrated would give a different
+					// plan, so resume with the plan that was being executed
+					PlanJournal journal = new PlanJournal(new File(journalDirname));
+					if (journal.exists() && new File(planFilename).exists()) {
+						log("Resuming plan " + planFilename);
+					} else {
+						writePlan(configuration, context);
+					}
+
+					// the plan is read back one file at a time, so it is never
+					// in memory
 					log("Executing plan");
-					plan.execute(configuration, context);
+					PlanReader planReader = new PlanReader(
+							new BufferedInputStream(new FileInputStream(planFilename)));
+					try {
+						PlanExecutor executor = new PlanExecutor(writer, planThreads, journal);
+						int executedCount = executor.execute(planReader, configuration);
+						log("Executed " + executedCount + " issues, skipped " + executor.getSkippedCount()
+								+ " files that were already migrated");
+					} finally {
+						planReader.close();
+					}
+				} else if (mode.equals("daemon")) {
+					loadWorkspace(workspaceDir, dataJARFilter);
+
+					File outputDir = new File(planFilename).getAbsoluteFile().getParentFile();
+					CMTDaemon daemon = new CMTDaemon(this, workspaceDir, outputDir);
+					int boundPort = daemon.start(port);
+					log("Listening for requests on port " + boundPort + ", token in " + daemon.getTokenFile());
+					daemon.waitForStop();
 				} else {
 					// something wrong, this shouldn't happen
 					printUsage();
@@ -366,7 +400,7 @@ private void dumpAPI() throws IOException {
 		}
 	}
 
-	private FileFilter createJARFilter() {
+	FileFilter createJARFilter() {
 		FileFilter dataJARFilter;
 		if (filteredProjectNames.isEmpty()) {
 			dataJARFilter = null;
@@ -414,6 +448,39 @@ public boolean accept(File pathname) {
 	 *             file.
 	 */
 	public Plan createPlan(List<String> patternFilenames, Set<File> javaFiles) throws Exception {
+		IWorkspace w = ResourcesPlugin.getWorkspace();
+		File workspaceDir = w.getRoot().getLocation().toFile();
+
+		return createPlan(workspaceDir, patternFilenames, javaFiles);
+	}
+
+	/**
+	 * Creates a plan based on the given pattern files for the workspace in the
+	 * given directory. Only the given files are loaded again into the index,
+	 * so the workspace must have been loaded before, with
+	 * {@link #loadWorkspace(File, FileFilter)} or an earlier call to this
+	 * method.
+	 * 
+	 * @param workspaceDir
+	 *            The root directory of the workspace. This value cannot be
+	 *            null.
+	 * @param patternFilenames
+	 *            The names of XML files that contain patterns. This value
+	 *            cannot be null, but may be empty.
+	 * @param javaFiles
+	 *            The files to parse and generate a plan for. If null, all files
+	 *            found will be analyzed.
+	 * 
+	 * @return The plan which describes what errors and in some cases, how to
+	 *         fix them. This value will not be null.
+	 * 
+	 * @throws Exception
+	 *             If an exception occurs when opening the log file, parsing the
+	 *             patterns or input files, or creating the plan.
+	 */
+	public Plan createPlan(File workspaceDir, List<String> patternFilenames, Set<File> javaFiles) throws Exception {
+		Check.notNull(workspaceDir, "workspaceDir");
+
 		if (nextTaskList == null) {
 			startNextIncrementalIndex();
 		}
@@ -435,14 +502,11 @@ public Plan createPlan(List<String> patternFilenames, Set<File> javaFiles) throw
 			writer = new BufferedWriter(new FileWriter(logFile, true));
 			context.set(Context.Prop.LOG_WRITER, writer);
 
-			IWorkspace w = ResourcesPlugin.getWorkspace();
-			File workspaceDir = w.getRoot().getLocation().toFile();
-
 			// JavaItemIndex incrementalIndex = new JavaItemIndex("incremental",
 			// index);
 			JavaItemFactory incrementalFactory = new JavaItemFactory(nextIncrementalIndex);
 
-			LoadingManager loadingManager = new LoadingManager();
+			LoadingManager loadingManager = new LoadingManager(keptUnits);
 			loadingManager.loadFiles(incrementalFactory, workspaceDir, javaFiles);
 			this.factory = incrementalFactory;
 			index = incrementalFactory.getIndex();
@@ -455,7 +519,7 @@ public Plan createPlan(List<String> patternFilenames, Set<File> javaFiles) throw
 
 			Configuration configuration = createConfiguration(workspace, patternFilenames, javaFiles);
 
-			plan = createPlan(configuration, context, false);
+			plan = createPlan(configuration, context);
 		} finally {
 			if (writer != null) {
 				try {
@@ -471,6 +535,88 @@ public Plan createPlan(List<String> patternFilenames, Set<File> javaFiles) throw
 		return plan;
 	}
 
+	/**
+	 * Loads the projects in the given workspace into a new index on top of the
+	 * current index, which then becomes the current index.
+	 * 
+	 * @param workspaceDir
+	 *            The root directory of the workspace. This value cannot be
+	 *            null.
+	 * @param jarFilter
+	 *            The filter that chooses which projects to load. If null, all
+	 *            projects will be loaded.
+	 */
+	public void loadWorkspace(File workspaceDir, FileFilter jarFilter) {
+		Check.notNull(workspaceDir, "workspaceDir");
+
+		JavaItemIndex workspaceIndex = new JavaItemIndex("workspace", index);
+		JavaItemFactory workspaceFactory = new JavaItemFactory(workspaceIndex);
+
+		LoadingManager loadingManager = new LoadingManager(keptUnits);
+		factory = loadingManager.loadProjects(workspaceFactory, workspaceDir, Collections.emptySet(), jarFilter,
+				false);
+		index = factory.getIndex();
+
+		workspace = new EclipseWorkspace(new IWorkspaceWrapperExternal(workspaceDir, false, false, null),
+				new ProjectLoader(factory), factory, true);
+	}
+
+	/**
+	 * Extracts the API of the given workspace and its third party JARs, and
+	 * writes it to "api-v&lt;version&gt;.zip" and its binary form. The API is
+	 * loaded into a new index, so the current index is not changed.
+	 * 
+	 * @param workspaceDir
+	 *            The root directory of the workspace. This value cannot be
+	 *            null.
+	 * @param version
+	 *            The version to save the API as. This value cannot be null or
+	 *            empty.
+	 * @param jarFilter
+	 *            The filter that chooses which projects to load. If null, all
+	 *            projects will be loaded.
+	 * 
+	 * @return The index with the API that was written. This value will not be
+	 *         null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing the API files.
+	 */
+	public JavaItemIndex extractAPI(File workspaceDir, String version, FileFilter jarFilter) throws IOException {
+		Check.notNull(workspaceDir, "workspaceDir");
+		Check.notNullOrEmpty(version, "version");
+
+		Set<File> thirdPartyDirs = new HashSet<>();
+		thirdPartyDirs.add(new File(workspaceDir, "WC/lib"));
+
+		if (version.equals("7")) {
+			thirdPartyDirs.add(new File(workspaceDir, "../../SDP/runtimes/base_v7"));
+		} else if (version.equals("8")) {
+			thirdPartyDirs.add(new File(workspaceDir, "../../SDP/runtimes/base_v85_stub"));
+		} else if (version.equals("9")) {
+			thirdPartyDirs.add(new File(workspaceDir, "../../IBM/WebSphere/AppServer/lib"));
+		}
+
+		JavaItemIndex extractIndex = new JavaItemIndex("v8");
+		extractIndex.setIDGenerator(new IDGenerator(0));
+		JavaItemFactory extractFactory = new JavaItemFactory(extractIndex);
+
+		LoadingManager loadingManager = new LoadingManager(keptUnits);
+		extractFactory = loadingManager.loadProjects(extractFactory, workspaceDir, thirdPartyDirs, jarFilter, true);
+		extractIndex = extractFactory.getIndex();
+		// extractFromWorkspace(workspaceDir, factory, true, true,
+		// dataJARFilter);
+
+		File serializedFile = new File("api-v" + version + ".zip");
+		APIFileManager apiFileManager = new APIFileManager();
+		apiFileManager.writeAPI(extractIndex, serializedFile);
+
+		BinaryAPIFileManager binaryAPIFileManager = new BinaryAPIFileManager();
+		binaryAPIFileManager.writeAPI(extractIndex, BinaryAPIFileManager.getBinaryFile(serializedFile));
+
+		return extractIndex;
+	}
+
 	/**
 	 * Starts creating the next delta JavaItemIndex for an incremental build in
 	 * another thread (this can take 3-5 seconds), to avoid delays in the UI.
@@ -711,7 +857,8 @@ private void removeFromIndex(JavaItemIndex index, List<JavaItem> itemsToRemove)
 
 	/**
 	 * Loads the configuration including the patterns in the files with the
-	 * given names.
+	 * given names. If the same pattern files were loaded before and have not
+	 * changed, the patterns that were loaded before are reused.
 	 * 
 	 * @param w
 	 *            The workspace to use to get the projects, which are used to
@@ -760,8 +907,16 @@ private Configuration createConfiguration(Workspace w, List<String> patternFilen
 			}
 		}
 
-		Configuration configuration = new Configuration(patternFiles, sourceDirs, javaFiles);
-		configuration.load();
+		Configuration configuration;
+		if (loadedConfiguration != null && loadedConfiguration.getCommandFileList().equals(patternFiles)
+				&& loadedConfiguration.isUpToDate()) {
+			configuration = loadedConfiguration.forFiles(sourceDirs, javaFiles);
+		} else {
+			configuration = new Configuration(patternFiles, sourceDirs, javaFiles);
+			configuration.load();
+			loadedConfiguration = configuration;
+		}
+
 		return configuration;
 	}
 
@@ -775,64 +930,90 @@ private Configuration createConfiguration(Workspace w, List<String> patternFilen
 	 * @param context
 	 *            The context which defines the workspace with source files and
 	 *            other variables. This value cannot be null.
-	 * @param writeToFile
-	 *            True to write the plan file to disk, false otherwise.
 	 * 
 	 * @return The plan which can be executed to make changes. This value will
 	 *         not be null.
 	 * 
 	 * @throws IOException
+	 *             If there was an error reading the source files.
+	 */
+	private Plan createPlan(Configuration configuration, Context context) throws IOException {
+		PlanCreator creator = createPlanCreator(configuration, context);
+		Plan plan = creator.createPlan(configuration.getFiles(), context.getIssueIDGenerator());
+
+		log("Found a total of " + plan.getIssues().size() + " issues");
+
+		return plan;
+	}
+
+	/**
+	 * Creates an execution plan by analyzing the source files in the context,
+	 * using the patterns in the configuration, and writes it to the plan file.
+	 * Issues are written as they are found, so the plan is never in memory.
+	 * The issues of files which have not changed since the last plan are taken
+	 * from the cache file.
+	 * 
+	 * @param configuration
+	 *            The configuration which defines the patterns to use in the
+	 *            analysis. This value cannot be null.
+	 * @param context
+	 *            The context which defines the workspace with source files and
+	 *            other variables. This value cannot be null.
+	 * 
+	 * @throws IOException
 	 *             If there was an error reading the source files or writing the
 	 *             plan to disk.
 	 */
-	private Plan createPlan(Configuration configuration, Context context, boolean writeToFile) throws IOException {
-		Plan plan = new Plan();
-		List<File> allFilesFound = configuration.getFiles();
-		// TODO load seed number for generator from other files found
-		JavaItemUtil2 util = new JavaItemUtil2();
-		util.initialize(factory);
-		for (File source : allFilesFound) {
-			context.reset();
-			context.set(Context.Prop.LOG_WRITER, writer);
-			context.set(Context.Prop.JAVA_ITEM_INDEX, index);
-			context.set(Context.Prop.JAVA_ITEM_UTIL, util);
-			context.set(Context.Prop.DEPENDENCY_WORKSPACE, workspace);
+	private void writePlan(Configuration configuration, Context context) throws IOException {
+		PlanCreator creator = createPlanCreator(configuration, context);
 
-			int beforeIssues = plan.getIssues().size();
-			long beforeTime = System.currentTimeMillis();
-			context.set(Context.Prop.FILE, source);
-			for (Pattern pattern : configuration.getPatterns()) {
-				try {
-					pattern.findInCurrentFileForPlan(context, plan);
-				} catch (RuntimeException e) {
-					ByteArrayOutputStream out = new ByteArrayOutputStream();
-					XMLUtil.writeXML(pattern, out);
-					out.flush();
-					out.close();
-					String patternText = out.toString();
-					log("Error occurred while analyzing file " + source.getAbsolutePath() + " with pattern "
-							+ patternText);
-					log(e);
-				}
-			}
+		PlanCache cache = new PlanCache(new File(cacheFilename));
+		try {
+			cache.load();
+		} catch (IOException e) {
+			log("Could not load the plan cache, all files will be analyzed: " + e.getMessage());
+		}
+		creator.setCache(cache);
 
-			int afterIssues = plan.getIssues().size();
-			long afterTime = System.currentTimeMillis();
+		log("Writing plan to " + planFilename);
+		int issueCount;
+		PlanWriter planWriter = new PlanWriter(new BufferedOutputStream(new FileOutputStream(planFilename)));
+		try {
+			issueCount = creator.createPlan(configuration.getFiles(), context.getIssueIDGenerator(), planWriter);
+		} finally {
+			planWriter.close();
+		}
 
-			log("Found " + (afterIssues - beforeIssues) + " issues (" + (afterTime - beforeTime) + " ms) in "
-					+ source.getAbsolutePath());
+		try {
+			cache.save();
+		} catch (IOException e) {
+			log("Could not save the plan cache: " + e.getMessage());
 		}
 
-		log("Found a total of " + plan.getIssues().size() + " issues");
+		log("Found a total of " + issueCount + " issues");
+	}
 
-		if (writeToFile) {
-			// write plan to file
-			log("Converting plan to XML and writing to " + planFilename);
-			BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(new File(planFilename)));
-			XMLUtil.writeXML(plan, out);
-		}
+	/**
+	 * Prepares the context for analysis and creates the plan creator for the
+	 * patterns in the configuration.
+	 * 
+	 * @param configuration
+	 *            The configuration which defines the patterns to use in the
+	 *            analysis. This value cannot be null.
+	 * @param context
+	 *            The context which defines the workspace with source files and
+	 *            other variables. This value cannot be null.
+	 * 
+	 * @return The plan creator. This value will not be null.
+	 */
+	private PlanCreator createPlanCreator(Configuration configuration, Context context) {
+		// TODO load seed number for generator from other files found
+		context.reset();
+		context.set(Context.Prop.LOG_WRITER, writer);
+		context.set(Context.Prop.JAVA_ITEM_INDEX, index);
+		context.set(Context.Prop.DEPENDENCY_WORKSPACE, workspace);
 
-		return plan;
+		return new PlanCreator(configuration.getPatterns(), index, workspace, writer, planThreads);
 	}
 
 	/**
@@ -846,8 +1027,8 @@ private Plan createPlan(Configuration configuration, Context context, boolean wr
 	 *             If an error occurs while writing a message to the log file.
 	 */
 	private boolean validateArguments() throws IOException {
-		if (mode == null || !mode.equals("plan") && !mode.equals("migrate") && !mode.equals("extract")
-				&& !mode.equals("dumpapi")) {
+		if (mode == null || !mode.equals("plan") && !mode.equals("migrate") && !mode.equals("rollback")
+				&& !mode.equals("daemon") && !mode.equals("extract") && !mode.equals("dumpapi")) {
 			log("-mode is wrong: " + mode);
 			return false;
 		}
@@ -857,11 +1038,36 @@ private boolean validateArguments() throws IOException {
 			return false;
 		}
 
-		if (patternFilenames.isEmpty()) {
+		if (!mode.equals("rollback") && !mode.equals("daemon") && patternFilenames.isEmpty()) {
 			log("no -patternfile arguments specified");
 			return false;
 		}
 
+		if (planThreads <= 0) {
+			log("-threads must be a number greater than 0");
+			return false;
+		}
+
+		if (keptUnits < 0) {
+			log("-keptunits must be a number greater than or equal to 0");
+			return false;
+		}
+
+		if (cacheFilename == null || cacheFilename.isEmpty()) {
+			log("-cachefile is missing the cache filename");
+			return false;
+		}
+
+		if (journalDirname == null || journalDirname.isEmpty()) {
+			log("-journaldir is missing the journal directory");
+			return false;
+		}
+
+		if (port < 0 || port > 65535) {
+			log("-port must be a number from 0 to 65535");
+			return false;
+		}
+
 		return true;
 	}
 
@@ -923,6 +1129,31 @@ private void extractArguments(String[] args) {
 			} else if (arg.equals("-project")) {
 				String patternFilename = getNext(argIterator);
 				filteredProjectNames.add(patternFilename);
+			} else if (arg.equals("-cachefile")) {
+				cacheFilename = getNext(argIterator);
+			} else if (arg.equals("-journaldir")) {
+				journalDirname = getNext(argIterator);
+			} else if (arg.equals("-port")) {
+				String portString = getNext(argIterator);
+				try {
+					port = Integer.parseInt(portString);
+				} catch (NumberFormatException e) {
+					port = -1;
+				}
+			} else if (arg.equals("-threads")) {
+				String threadsString = getNext(argIterator);
+				try {
+					planThreads = Integer.parseInt(threadsString);
+				} catch (NumberFormatException e) {
+					planThreads = 0;
+				}
+			} else if (arg.equals("-keptunits")) {
+				String keptUnitsString = getNext(argIterator);
+				try {
+					keptUnits = Integer.parseInt(keptUnitsString);
+				} catch (NumberFormatException e) {
+					keptUnits = -1;
+				}
 			}
 		}
 	}
@@ -960,7 +1191,10 @@ private void printUsage() {
 		// <pattern filename> [ ... ]]");
 		// System.out.println(" [-backupdir <backup directory>]");
 		System.out.println("cmt.bat -patternfile <pattern filename> [-patternfile <pattern filename> [ ... ]]");
-		System.out.println("   [-logfile <log filename>]");
+		System.out.println("   [-logfile <log filename>] [-threads <number of threads>]");
+		System.out.println("   [-cachefile <cache filename>] [-mode <execution mode>]");
+		System.out.println("   [-journaldir <journal directory>] [-port <port>]");
+		System.out.println("   [-keptunits <number of parsed files>]");
 
 		// System.out.println("-mode optional Valid values are \"plan\" or
 		// \"migrate\".");
@@ -971,6 +1205,25 @@ private void printUsage() {
 		System.out.println("-logfile      optional   The file which records progress of the tool.");
 		System.out.println("-patternfile  optional   The file that contains the search and action patterns.");
 		System.out.println("                         Multiple -patternfile options may be specified.");
+		System.out.println("-threads      optional   The number of files to analyze at the same time. The default");
+		System.out.println("                         is the number of processors.");
+		System.out.println("-keptunits    optional   The number of parsed files to keep in memory while loading");
+		System.out.println("                         the workspace. More uses more memory, fewer parses some");
+		System.out.println("                         files several times. The default is "
+				+ CompilationUnitCache.DEFAULT_MAX_RETAINED + ".");
+		System.out.println("-cachefile    optional   The file which stores the issues found in each file, so");
+		System.out.println("                         that unchanged files are not analyzed again. The default");
+		System.out.println("                         is cmtplan.cache.");
+		System.out.println("-mode         optional   Valid values are \"plan\", \"migrate\", \"rollback\" or");
+		System.out.println("                         \"daemon\". The default is plan. \"migrate\" changes the");
+		System.out.println("                         files, and resumes a migration that was stopped.");
+		System.out.println("                         \"rollback\" restores the files changed by a migration that");
+		System.out.println("                         was stopped. \"daemon\" keeps the API and workspace loaded");
+		System.out.println("                         and takes requests from cmtclient.");
+		System.out.println("-journaldir   optional   The directory which records the progress of a migration and");
+		System.out.println("                         the original files. The default is cmtjournal.");
+		System.out.println("-port         optional   The local port that daemon mode listens on. The default is");
+		System.out.println("                         " + CMTDaemon.DEFAULT_PORT + ".");
 		// System.out.println("-backupdir required The directory to backup files
 		// before migrating, only");
 		// System.out.println(" required if -mode is set to \"migrate\".");
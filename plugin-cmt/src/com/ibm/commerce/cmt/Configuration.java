@@ -25,6 +25,7 @@
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -95,9 +96,19 @@ public class Configuration {
 	private Set<String> javaFilePaths;
 
 	/**
-	 * The patterns that are loaded from the pattern files.
+	 * The patterns that are loaded from the pattern files. The regular
+	 * expressions in the patterns are compiled when they are loaded, and the
+	 * list cannot be changed after loading, so the patterns can be shared by
+	 * configurations that analyze different files.
 	 */
-	private List<Pattern> patterns = new ArrayList<>();
+	private List<Pattern> patterns = Collections.emptyList();
+
+	/**
+	 * The last modified times of the pattern files when they were loaded, in
+	 * the same order as {@link #patternFiles}. This value is null if the
+	 * pattern files have not been loaded.
+	 */
+	private List<Long> patternFileTimes;
 
 	/**
 	 * A file filter that accepts files that can be analyzed by at least one
@@ -196,15 +207,77 @@ public List<File> getSourceDirList() {
 	 *             If an error occurs while reading the pattern files.
 	 */
 	public void load() throws IOException {
+		List<Long> loadedTimes = getPatternFileTimes();
+
 		// tokenize the patterns in the pattern files
+		List<Pattern> loadedPatterns = new ArrayList<>();
 		for (File patternFile : patternFiles) {
-			loadPatternFile(patternFile);
+			loadPatternFile(patternFile, loadedPatterns);
 		}
 
+		patterns = Collections.unmodifiableList(loadedPatterns);
+		patternFileTimes = loadedTimes;
+
 		// TODO load other files to get the last issue id
 		issueIDGenerator = new IDGenerator(1);
 	}
 
+	/**
+	 * Returns whether the pattern files were loaded and have not changed
+	 * since.
+	 * 
+	 * @return True if {@link #load()} was called and the pattern files have
+	 *         not been modified since, false otherwise.
+	 */
+	public boolean isUpToDate() {
+		return patternFileTimes != null && patternFileTimes.equals(getPatternFileTimes());
+	}
+
+	/**
+	 * Returns a loaded configuration with the same patterns as this, which
+	 * analyzes the given files. The pattern files are not read again, so this
+	 * is much faster than creating a new configuration and loading it.
+	 * 
+	 * @param newSourceDirs
+	 *            The directories that contain the source files to change. This
+	 *            value cannot be null or empty.
+	 * @param javaFiles
+	 *            The files to parse and generate a plan for. If null, all files
+	 *            found will be analyzed.
+	 * 
+	 * @return The new configuration. This value will not be null.
+	 * 
+	 * @throws IllegalStateException
+	 *             If {@link #load()} has not been called.
+	 */
+	public Configuration forFiles(List<File> newSourceDirs, Set<File> javaFiles) {
+		if (patternFileTimes == null) {
+			throw new IllegalStateException("Pattern files have not been loaded.");
+		}
+
+		Configuration configuration = new Configuration(patternFiles, newSourceDirs, javaFiles);
+		configuration.patterns = patterns;
+		configuration.patternFileTimes = patternFileTimes;
+		configuration.issueIDGenerator = new IDGenerator(1);
+
+		return configuration;
+	}
+
+	/**
+	 * Returns the last modified times of the pattern files.
+	 * 
+	 * @return The last modified times, in the same order as
+	 *         {@link #patternFiles}. This value will not be null.
+	 */
+	private List<Long> getPatternFileTimes() {
+		List<Long> times = new ArrayList<>();
+		for (File patternFile : patternFiles) {
+			times.add(patternFile.lastModified());
+		}
+
+		return times;
+	}
+
 	/**
 	 * Returns the ID generator that is used for new issues.
 	 * 
@@ -220,11 +293,14 @@ public IDGenerator getIssueIDGenerator() {
 	 * 
 	 * @param commandFile
 	 *            The pattern file to parse. This value cannot be null.
+	 * @param loadedPatterns
+	 *            The list to add the parsed patterns to. This value cannot be
+	 *            null.
 	 * 
 	 * @throws IOException
 	 *             If an error occurs loading or parsing the pattern file.
 	 */
-	private void loadPatternFile(File commandFile) throws IOException {
+	private void loadPatternFile(File commandFile, List<Pattern> loadedPatterns) throws IOException {
 		StringBuilder b = new StringBuilder();
 		BufferedReader reader = null;
 		try {
@@ -271,7 +347,7 @@ private void loadPatternFile(File commandFile) throws IOException {
 				Node actiohNode = searchAndActionNodes.get(1);
 
 				Pattern pattern = getPatternForTokens(searchNode, actiohNode);
-				patterns.add(pattern);
+				loadedPatterns.add(pattern);
 			}
 		} catch (ParserConfigurationException e) {
 			// TODO Auto-generated catch block
@@ -526,8 +602,8 @@ private List<Param> convertChildrenToParams(Node token, SearchParam searchParam)
 	/**
 	 * Returns the patterns that were parsed by the {@link #load()} method.
 	 * 
-	 * @return The patterns that were parsed. This value will not be null, but
-	 *         may be empty.
+	 * @return The patterns that were parsed, which cannot be changed. This
+	 *         value will not be null, but may be empty.
 	 */
 	public List<Pattern> getPatterns() {
 		return patterns;
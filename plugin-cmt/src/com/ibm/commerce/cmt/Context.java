@@ -33,6 +33,7 @@
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
+import com.ibm.commerce.cmt.plan.EditBuffer;
 import com.ibm.commerce.cmt.plan.IDGenerator;
 import com.ibm.commerce.cmt.plan.Issue;
 
@@ -90,9 +91,7 @@ public Object createValueForDependency(Context context, ContextKey dependency) t
 					o = compUnit;
 				} else if (dependency == FILE_WRITE_BUFFER) {
 					FileContents contents = context.get(Context.Prop.FILE_CONTENTS);
-					StringBuilder b = new StringBuilder();
-					b.append(contents.getContents());
-					o = b;
+					o = new EditBuffer(contents.getContents());
 				} else {
 					throw new IllegalArgumentException("Cannot generate " + dependency + " from " + this);
 				}
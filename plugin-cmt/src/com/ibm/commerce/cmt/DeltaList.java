@@ -21,12 +21,18 @@
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class records adds, updates, and removes compared to a base list. The
  * base list can also be a delta list. It is assumed that the base list does not
  * change.
+ * <p>
+ * Updates and appends are kept in a small overlay on top of the base list, so
+ * creating a delta and reading from it costs nothing per base item. Only an
+ * insert or remove in the middle of the list causes the base list to be copied.
  * 
  * @param <T>
  *            The type of items in the list.
@@ -41,6 +47,18 @@
 
 	private List<E> cache;
 
+	/**
+	 * The replaced values for indexes within the base list, used until the
+	 * cache is created. A key mapped to null means the item was set to null.
+	 */
+	private Map<Integer, E> updated = new HashMap<>();
+
+	/**
+	 * The items added after the end of the base list, used until the cache is
+	 * created.
+	 */
+	private List<E> appended = new ArrayList<>();
+
 	/**
 	 * Constructor for this.
 	 * 
@@ -58,7 +76,23 @@ public DeltaList(List<E> base) {
 	 */
 	@Override
 	public E get(int index) {
-		return getFinalList().get(index);
+		if (cache != null) {
+			return cache.get(index);
+		}
+
+		int baseSize = base.size();
+		if (index < 0) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		} else if (index < baseSize) {
+			Integer key = index;
+			if (updated.containsKey(key)) {
+				return updated.get(key);
+			}
+
+			return base.get(index);
+		} else {
+			return appended.get(index - baseSize);
+		}
 	}
 
 	/**
@@ -66,7 +100,11 @@ public E get(int index) {
 	 */
 	@Override
 	public int size() {
-		return getFinalList().size();
+		if (cache != null) {
+			return cache.size();
+		}
+
+		return base.size() + appended.size();
 	}
 
 	/**
@@ -74,23 +112,20 @@ public int size() {
 	 */
 	@Override
 	public E set(int index, E element) {
-		E old;
-		if (cache == null) {
-			if (changes == null) {
-				old = base.get(index);
-			} else {
-				getFinalList();
-				old = cache.get(index);
-			}
-		} else {
-			old = cache.get(index);
-		}
+		E old = get(index);
 
 		Change<E> change = new Change<E>(ChangeType.UPDATE, index, element);
 		addChange(change);
 
 		if (cache != null) {
 			change.apply(cache);
+		} else {
+			int baseSize = base.size();
+			if (index < baseSize) {
+				updated.put(index, element);
+			} else {
+				appended.set(index - baseSize, element);
+			}
 		}
 
 		return old;
@@ -101,12 +136,20 @@ public E set(int index, E element) {
 	 */
 	@Override
 	public void add(int index, E element) {
+		if (cache == null && index != size()) {
+			createCache();
+		}
+
 		Change<E> change = new Change<E>(ChangeType.ADD, index, element);
 		addChange(change);
 
 		if (cache != null) {
 			change.apply(cache);
+		} else {
+			appended.add(element);
 		}
+
+		modCount++;
 	}
 
 	/**
@@ -114,25 +157,17 @@ public void add(int index, E element) {
 	 */
 	@Override
 	public E remove(int index) {
-		E old;
 		if (cache == null) {
-			if (changes == null) {
-				old = base.get(index);
-			} else {
-				getFinalList();
-				old = cache.get(index);
-			}
-		} else {
-			old = cache.get(index);
+			createCache();
 		}
 
+		E old = cache.get(index);
+
 		Change<E> change = new Change<E>(ChangeType.REMOVE, index, null);
 		addChange(change);
+		change.apply(cache);
 
-		if (cache != null) {
-			change.apply(cache);
-		}
-
+		modCount++;
 		return old;
 	}
 
@@ -154,21 +189,20 @@ private void addChange(Change<E> change) {
 	}
 
 	/**
-	 * Returns the list that contains the base plus all modifications in this.
-	 * 
-	 * @return The base list plus modifications. This value will not be null.
+	 * Copies the base list plus the overlay of updated and appended items into
+	 * the cache. After this is called, all reads and writes go to the cache.
 	 */
-	private List<E> getFinalList() {
-		if (changes == null) {
-			return base;
-		} else if (cache == null) {
-			cache = new ArrayList<E>(base);
-			for (Change<E> change : changes) {
-				change.apply(cache);
-			}
+	private void createCache() {
+		List<E> newCache = new ArrayList<E>(base);
+		for (Map.Entry<Integer, E> entry : updated.entrySet()) {
+			newCache.set(entry.getKey(), entry.getValue());
 		}
 
-		return cache;
+		newCache.addAll(appended);
+
+		cache = newCache;
+		updated = null;
+		appended = null;
 	}
 
 	/**
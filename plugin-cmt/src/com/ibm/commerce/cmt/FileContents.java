@@ -18,11 +18,15 @@
  *-----------------------------------------------------------------
  */
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -41,6 +45,8 @@ public class FileContents {
 
 	private String contents;
 
+	private Charset charset;
+
 	private List<Integer> lineNumIndexes;
 
 	public FileContents(File file) {
@@ -65,30 +71,95 @@ public String getContents() {
 		return contents;
 	}
 
+	/**
+	 * Returns the character encoding of the file, which was detected by
+	 * {@link #load()}.
+	 * 
+	 * @return The encoding, or null if the file has not been loaded.
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
 	public void load() throws IOException {
-		String stringDoc = null;
-		BufferedReader reader = null;
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		charset = detectCharset(bytes);
+		contents = new String(bytes, charset);
+	}
+
+	/**
+	 * Detects the character encoding of the given file contents. A byte order
+	 * mark decides the encoding if there is one. Otherwise, UTF-8 is used if
+	 * the contents are valid UTF-8, then the platform default if the contents
+	 * are valid in it, and ISO-8859-1 if not, so that every byte is kept when
+	 * the contents are written again.
+	 * 
+	 * @param bytes
+	 *            The contents of the file. This value cannot be null.
+	 * 
+	 * @return The encoding of the contents. This value will not be null.
+	 */
+	static Charset detectCharset(byte[] bytes) {
+		if (startsWith(bytes, 0xEF, 0xBB, 0xBF)) {
+			return StandardCharsets.UTF_8;
+		} else if (startsWith(bytes, 0xFF, 0xFE)) {
+			return StandardCharsets.UTF_16LE;
+		} else if (startsWith(bytes, 0xFE, 0xFF)) {
+			return StandardCharsets.UTF_16BE;
+		} else if (canDecode(bytes, StandardCharsets.UTF_8)) {
+			return StandardCharsets.UTF_8;
+		} else if (canDecode(bytes, Charset.defaultCharset())) {
+			return Charset.defaultCharset();
+		}
+
+		return StandardCharsets.ISO_8859_1;
+	}
+
+	/**
+	 * Returns whether the given bytes are valid in the given encoding.
+	 * 
+	 * @param bytes
+	 *            The bytes to check. This value cannot be null.
+	 * @param charset
+	 *            The encoding to check. This value cannot be null.
+	 * 
+	 * @return True if every byte can be decoded, false otherwise.
+	 */
+	private static boolean canDecode(byte[] bytes, Charset charset) {
+		CharsetDecoder decoder = charset.newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.REPORT);
+		decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
 		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-			StringBuffer data = new StringBuffer();
-			char[] buf = new char[2048];
-			int charsRead = reader.read(buf);
-			while (charsRead >= 0) {
-				data.append(buf, 0, charsRead);
-				charsRead = reader.read(buf);
-			}
-			stringDoc = data.toString();
-		} finally {
-			if (reader != null) {
-				try {
-					reader.close();
-				} catch (IOException e) {
-					// swallow to allow the exception to escape
-				}
+			decoder.decode(ByteBuffer.wrap(bytes));
+			return true;
+		} catch (CharacterCodingException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns whether the given bytes start with the given values.
+	 * 
+	 * @param bytes
+	 *            The bytes to check. This value cannot be null.
+	 * @param prefix
+	 *            The unsigned values of the first bytes. This value cannot be
+	 *            null.
+	 * 
+	 * @return True if the bytes start with the prefix, false otherwise.
+	 */
+	private static boolean startsWith(byte[] bytes, int... prefix) {
+		if (bytes.length < prefix.length) {
+			return false;
+		}
+
+		for (int i = 0; i < prefix.length; i++) {
+			if ((bytes[i] & 0xFF) != prefix[i]) {
+				return false;
 			}
 		}
 
-		contents = stringDoc;
+		return true;
 	}
 
 	public Position toPosition(int contentIndex) {
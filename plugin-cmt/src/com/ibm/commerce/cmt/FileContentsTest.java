@@ -19,6 +19,10 @@
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import com.ibm.commerce.cmt.plan.Position;
 import com.ibm.commerce.cmt.plan.Range;
@@ -222,6 +226,42 @@ public void testGetSubstringIfRangeLargerExpectCorrectSubstring() throws Excepti
 		assertEquals("substring is wrong.", "<patterns>", substring);
 	}
 
+	public void testLoadIfUTF16WithByteOrderMarkExpectUTF16() throws Exception {
+		byte[] bytes = "\ufeffclass \u00c4 {}".getBytes(StandardCharsets.UTF_16LE);
+		FileContents fc = new FileContents(createTempFile(bytes));
+		fc.load();
+
+		assertEquals("Charset is wrong.", StandardCharsets.UTF_16LE, fc.getCharset());
+		assertEquals("Contents are wrong.", "\ufeffclass \u00c4 {}", fc.getContents());
+	}
+
+	public void testLoadIfUTF8NonASCIIExpectUTF8() throws Exception {
+		byte[] bytes = "String s = \"\u00e9\u4e2d\";".getBytes(StandardCharsets.UTF_8);
+		FileContents fc = new FileContents(createTempFile(bytes));
+		fc.load();
+
+		assertEquals("Charset is wrong.", StandardCharsets.UTF_8, fc.getCharset());
+		assertEquals("Contents are wrong.", "String s = \"\u00e9\u4e2d\";", fc.getContents());
+	}
+
+	public void testLoadIfNotValidUTF8ExpectEveryByteKept() throws Exception {
+		byte[] bytes = "String s = \"\u00e9\u00fc\";".getBytes(StandardCharsets.ISO_8859_1);
+		FileContents fc = new FileContents(createTempFile(bytes));
+		fc.load();
+
+		assertFalse("Charset is wrong.", StandardCharsets.UTF_8.equals(fc.getCharset()));
+		assertEquals("Contents are wrong.", 16, fc.getContents().length());
+		assertTrue("Bytes are not kept.",
+				Arrays.equals(bytes, fc.getContents().getBytes(fc.getCharset())));
+	}
+
+	private File createTempFile(byte[] bytes) throws IOException {
+		File file = File.createTempFile("FileContentsTest", ".java");
+		file.deleteOnExit();
+		Files.write(file.toPath(), bytes);
+		return file;
+	}
+
 	private String lineSep() {
 		return System.getProperty("line.separator");
 	}
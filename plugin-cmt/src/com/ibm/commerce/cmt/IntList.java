@@ -0,0 +1,746 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * This class is a thread-safe list of ints which stores the values in a
+ * growable int array instead of boxing each one. Once the list becomes large,
+ * a hash of the values is built the first time {@link #contains(Object)} or
+ * {@link #indexOf(Object)} is called, so that checking for a value before
+ * adding it does not scan the whole list.
+ * <p>
+ * Iterators work on a snapshot of the list in the same way as
+ * {@link java.util.concurrent.CopyOnWriteArrayList}, so that the list can be
+ * changed by other threads while it is being iterated. Unlike that class, the
+ * array is only copied when an element that an iterator may still see is
+ * changed or removed, so adding to the end of the list does not copy it.
+ * 
+ * @author Trent Hoeppner
+ */
+public class IntList extends AbstractList<Integer> implements RandomAccess {
+
+	/**
+	 * The size above which a hash of the values is kept for membership checks.
+	 */
+	static final int INDEX_THRESHOLD = 256;
+
+	/**
+	 * The array used by empty lists, to avoid allocating an array for lists
+	 * which never have any elements.
+	 */
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * The values in this. Only the first {@link #size} elements are used.
+	 */
+	private int[] elements = EMPTY;
+
+	/**
+	 * The number of values in this.
+	 */
+	private int size;
+
+	/**
+	 * True indicates that an iterator may be reading from {@link #elements},
+	 * so the used part of the array must be copied before it is changed.
+	 */
+	private boolean shared;
+
+	/**
+	 * The number of times that each value appears in this, or null if the hash
+	 * has not been built.
+	 */
+	private IntCounts counts;
+
+	/**
+	 * Constructor for this.
+	 */
+	public IntList() {
+		// do nothing
+	}
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param values
+	 *            The values to initially put in this. This value cannot be
+	 *            null, and cannot contain null elements.
+	 */
+	public IntList(Collection<Integer> values) {
+		Check.notNull(values, "values");
+
+		addAll(values);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Integer get(int index) {
+		return getInt(index);
+	}
+
+	/**
+	 * Returns the value at the given index without boxing it.
+	 * 
+	 * @param index
+	 *            The index of the value to get. This value must be &gt;= 0 and
+	 *            &lt; {@link #size()}.
+	 * 
+	 * @return The value at the given index.
+	 */
+	public synchronized int getInt(int index) {
+		checkIndex(index, size);
+		return elements[index];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Integer set(int index, Integer element) {
+		Check.notNull(element, "element");
+
+		return setInt(index, element);
+	}
+
+	/**
+	 * Replaces the value at the given index without boxing it.
+	 * 
+	 * @param index
+	 *            The index of the value to replace. This value must be &gt;=
+	 *            0 and &lt; {@link #size()}.
+	 * @param value
+	 *            The new value.
+	 * 
+	 * @return The value that was replaced.
+	 */
+	public synchronized int setInt(int index, int value) {
+		checkIndex(index, size);
+		unshare();
+
+		int old = elements[index];
+		elements[index] = value;
+		if (counts != null) {
+			counts.remove(old);
+			counts.add(value);
+		}
+
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(Integer element) {
+		Check.notNull(element, "element");
+
+		addInt(element);
+		return true;
+	}
+
+	/**
+	 * Adds the given value to the end of this without boxing it.
+	 * 
+	 * @param value
+	 *            The value to add.
+	 */
+	public synchronized void addInt(int value) {
+		// values past the end are never seen by an iterator, so the array
+		// does not need to be copied even if it is shared
+		ensureCapacity(size + 1);
+		elements[size] = value;
+		size++;
+		modCount++;
+		if (counts != null) {
+			counts.add(value);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void add(int index, Integer element) {
+		Check.notNull(element, "element");
+		checkIndex(index, size + 1);
+
+		if (index == size) {
+			addInt(element);
+			return;
+		}
+
+		unshare();
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		elements[index] = element;
+		size++;
+		modCount++;
+		if (counts != null) {
+			counts.add(element);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean addAll(Collection<? extends Integer> values) {
+		// copy first, in case the collection is this
+		Object[] array = values.toArray();
+		for (Object value : array) {
+			Check.notNull(value, "value");
+		}
+
+		synchronized (this) {
+			ensureCapacity(size + array.length);
+			for (Object value : array) {
+				addInt((Integer) value);
+			}
+		}
+
+		return array.length > 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Integer remove(int index) {
+		return removeIntAt(index);
+	}
+
+	/**
+	 * Removes the value at the given index without boxing it.
+	 * 
+	 * @param index
+	 *            The index of the value to remove. This value must be &gt;= 0
+	 *            and &lt; {@link #size()}.
+	 * 
+	 * @return The value that was removed.
+	 */
+	public synchronized int removeIntAt(int index) {
+		checkIndex(index, size);
+		unshare();
+
+		int old = elements[index];
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+		modCount++;
+		if (counts != null) {
+			counts.remove(old);
+		}
+
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean remove(Object o) {
+		if (!(o instanceof Integer)) {
+			return false;
+		}
+
+		int index = indexOfInt((Integer) o);
+		if (index < 0) {
+			return false;
+		}
+
+		removeIntAt(index);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void clear() {
+		if (shared) {
+			elements = EMPTY;
+			shared = false;
+		}
+
+		size = 0;
+		modCount++;
+		counts = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && containsInt((Integer) o);
+	}
+
+	/**
+	 * Returns whether the given value is in this without boxing it.
+	 * 
+	 * @param value
+	 *            The value to check for.
+	 * 
+	 * @return True if the value is in this, false otherwise.
+	 */
+	public synchronized boolean containsInt(int value) {
+		if (size > INDEX_THRESHOLD) {
+			return getCounts().get(value) > 0;
+		}
+
+		return indexOfInt(value) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int indexOf(Object o) {
+		if (!(o instanceof Integer)) {
+			return -1;
+		}
+
+		return indexOfInt((Integer) o);
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the given value in this
+	 * without boxing it.
+	 * 
+	 * @param value
+	 *            The value to find.
+	 * 
+	 * @return The index of the value, or -1 if it is not in this.
+	 */
+	public synchronized int indexOfInt(int value) {
+		if (size > INDEX_THRESHOLD && getCounts().get(value) == 0) {
+			return -1;
+		}
+
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int lastIndexOf(Object o) {
+		if (!(o instanceof Integer)) {
+			return -1;
+		}
+
+		int value = (Integer) o;
+		if (size > INDEX_THRESHOLD && getCounts().get(value) == 0) {
+			return -1;
+		}
+
+		for (int i = size - 1; i >= 0; i--) {
+			if (elements[i] == value) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns a copy of the values in this.
+	 * 
+	 * @return A new array with the values in this, in order. This value will
+	 *         not be null, but may be empty.
+	 */
+	public synchronized int[] toIntArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The iterator reads from a snapshot of this, and does not support
+	 * changing this.
+	 */
+	@Override
+	public Iterator<Integer> iterator() {
+		return listIterator(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The iterator reads from a snapshot of this, and does not support
+	 * changing this.
+	 */
+	@Override
+	public synchronized ListIterator<Integer> listIterator(int index) {
+		checkIndex(index, size + 1);
+		shared = true;
+		return new SnapshotIterator(elements, size, index);
+	}
+
+	/**
+	 * Makes sure that the array can hold the given number of values, growing
+	 * it if necessary.
+	 * 
+	 * @param capacity
+	 *            The number of values that the array must be able to hold.
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > elements.length) {
+			int newCapacity = Math.max(capacity, Math.max(4, elements.length + (elements.length >> 1)));
+			elements = Arrays.copyOf(elements, newCapacity);
+
+			// the new array has not been given to any iterator
+			shared = false;
+		}
+	}
+
+	/**
+	 * Copies the array if an iterator may be reading from it, so that a value
+	 * in the used part of the array can be changed.
+	 */
+	private void unshare() {
+		if (shared) {
+			elements = elements.clone();
+			shared = false;
+		}
+	}
+
+	/**
+	 * Returns the counts of the values in this, building them if they have
+	 * not been built yet.
+	 * 
+	 * @return The counts of the values in this. This value will not be null.
+	 */
+	private IntCounts getCounts() {
+		if (counts == null) {
+			counts = new IntCounts(size);
+			for (int i = 0; i < size; i++) {
+				counts.add(elements[i]);
+			}
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Checks that the given index is in the range [0, limit).
+	 * 
+	 * @param index
+	 *            The index to check.
+	 * @param limit
+	 *            The exclusive upper bound for the index.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             If the index is out of range.
+	 */
+	private static void checkIndex(int index, int limit) {
+		if (index < 0 || index >= limit) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (limit - 1));
+		}
+	}
+
+	/**
+	 * This class iterates over a snapshot of the values of an {@link IntList}.
+	 */
+	private static class SnapshotIterator implements ListIterator<Integer> {
+
+		/**
+		 * The array of values, which is not changed while this uses it.
+		 */
+		private int[] snapshot;
+
+		/**
+		 * The number of values in the snapshot.
+		 */
+		private int size;
+
+		/**
+		 * The index of the next value to return.
+		 */
+		private int cursor;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param snapshot
+		 *            The array of values. This value cannot be null.
+		 * @param size
+		 *            The number of values in the snapshot.
+		 * @param cursor
+		 *            The index of the first value to return.
+		 */
+		private SnapshotIterator(int[] snapshot, int size, int cursor) {
+			this.snapshot = snapshot;
+			this.size = size;
+			this.cursor = cursor;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Integer next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return snapshot[cursor++];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Integer previous() {
+			if (!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+
+			return snapshot[--cursor];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+
+		/**
+		 * Not supported.
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Not supported.
+		 */
+		@Override
+		public void set(Integer e) {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Not supported.
+		 */
+		@Override
+		public void add(Integer e) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * This class counts how many times each int value appears, using open
+	 * addressing so that the values are not boxed. A value whose count drops
+	 * to 0 keeps its slot, so that the probe sequences of other values are not
+	 * broken.
+	 */
+	private static class IntCounts {
+
+		/**
+		 * The value in each slot.
+		 */
+		private int[] keys;
+
+		/**
+		 * The count for each slot, or -1 if the slot has never been used.
+		 */
+		private int[] counts;
+
+		/**
+		 * The number of slots that have been used.
+		 */
+		private int used;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param expected
+		 *            The number of values that are expected to be added.
+		 */
+		private IntCounts(int expected) {
+			int capacity = 16;
+			while (capacity < expected * 2) {
+				capacity <<= 1;
+			}
+
+			init(capacity);
+		}
+
+		/**
+		 * Returns the number of times the given value was added and not
+		 * removed.
+		 * 
+		 * @param value
+		 *            The value to get the count for.
+		 * 
+		 * @return The count. This value will be &gt;= 0.
+		 */
+		private int get(int value) {
+			int slot = find(value);
+			return counts[slot] < 0 ? 0 : counts[slot];
+		}
+
+		/**
+		 * Increments the count for the given value.
+		 * 
+		 * @param value
+		 *            The value to increment the count for.
+		 */
+		private void add(int value) {
+			int slot = find(value);
+			if (counts[slot] < 0) {
+				keys[slot] = value;
+				counts[slot] = 1;
+				used++;
+				if (used * 2 > keys.length) {
+					rehash();
+				}
+			} else {
+				counts[slot]++;
+			}
+		}
+
+		/**
+		 * Decrements the count for the given value.
+		 * 
+		 * @param value
+		 *            The value to decrement the count for.
+		 */
+		private void remove(int value) {
+			int slot = find(value);
+			if (counts[slot] > 0) {
+				counts[slot]--;
+			}
+		}
+
+		/**
+		 * Returns the slot that contains the given value, or the unused slot
+		 * where it would be put.
+		 * 
+		 * @param value
+		 *            The value to find.
+		 * 
+		 * @return The index of the slot.
+		 */
+		private int find(int value) {
+			int mask = keys.length - 1;
+			int h = value * 0x9E3779B9;
+			int slot = (h ^ (h >>> 16)) & mask;
+			while (counts[slot] >= 0 && keys[slot] != value) {
+				slot = (slot + 1) & mask;
+			}
+
+			return slot;
+		}
+
+		/**
+		 * Moves the values with a count &gt; 0 to new arrays, dropping the
+		 * slots of values which were removed.
+		 */
+		private void rehash() {
+			int[] oldKeys = keys;
+			int[] oldCounts = counts;
+			int live = 0;
+			for (int count : oldCounts) {
+				if (count > 0) {
+					live++;
+				}
+			}
+
+			int capacity = 16;
+			while (capacity < live * 4) {
+				capacity <<= 1;
+			}
+
+			init(capacity);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldCounts[i] > 0) {
+					int slot = find(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					counts[slot] = oldCounts[i];
+					used++;
+				}
+			}
+		}
+
+		/**
+		 * Creates empty arrays with the given number of slots.
+		 * 
+		 * @param capacity
+		 *            The number of slots, which must be a power of 2.
+		 */
+		private void init(int capacity) {
+			keys = new int[capacity];
+			counts = new int[capacity];
+			Arrays.fill(counts, -1);
+			used = 0;
+		}
+	}
+}
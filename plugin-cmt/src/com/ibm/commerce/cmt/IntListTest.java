@@ -0,0 +1,270 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link IntList} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class IntListTest extends TestCase {
+
+	/**
+	 * The number of lists in the generated relationships for the benchmark.
+	 */
+	private static final int BENCHMARK_LISTS = 40000;
+
+	/**
+	 * The number of IDs in each list of the generated relationships for the
+	 * benchmark.
+	 */
+	private static final int BENCHMARK_IDS_PER_LIST = 75;
+
+	/**
+	 * The number of large lists in the generated relationships for the
+	 * benchmark, which are like the children of large packages.
+	 */
+	private static final int BENCHMARK_LARGE_LISTS = 20;
+
+	/**
+	 * The number of IDs in each large list of the generated relationships for
+	 * the benchmark.
+	 */
+	private static final int BENCHMARK_IDS_PER_LARGE_LIST = 5000;
+
+	public void testAddIfManyValuesExpectSameAsArrayList() {
+		IntList list = new IntList();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			list.add(i * 7);
+			expected.add(i * 7);
+		}
+
+		assertEquals("Wrong list.", expected, list);
+		assertEquals("Wrong size.", 1000, list.size());
+		assertEquals("Wrong value.", 7 * 500, list.getInt(500));
+	}
+
+	public void testContainsIfLargeListExpectSameAsLinearSearch() {
+		Random random = new Random(3);
+		IntList list = new IntList();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			int operation = random.nextInt(10);
+			int value = random.nextInt(500);
+			if (operation < 6) {
+				list.add(value);
+				expected.add(value);
+			} else if (operation < 8) {
+				assertEquals("Wrong remove result for " + value, expected.remove((Integer) value),
+						list.remove((Integer) value));
+			} else if (!expected.isEmpty()) {
+				int index = random.nextInt(expected.size());
+				assertEquals("Wrong set result.", expected.set(index, value), list.set(index, value));
+			}
+
+			int check = random.nextInt(500);
+			assertEquals("Wrong contains for " + check, expected.contains(check), list.contains(check));
+			assertEquals("Wrong indexOf for " + check, expected.indexOf(check), list.indexOf(check));
+			assertEquals("Wrong lastIndexOf for " + check, expected.lastIndexOf(check), list.lastIndexOf(check));
+		}
+
+		assertEquals("Wrong list.", expected, list);
+	}
+
+	public void testContainsIfNotIntegerExpectFalse() {
+		IntList list = new IntList(Arrays.asList(1, 2, 3));
+
+		assertFalse("Contains a string.", list.contains("1"));
+		assertFalse("Contains null.", list.contains(null));
+		assertEquals("Wrong index.", -1, list.indexOf(1L));
+	}
+
+	public void testAddIfNullExpectException() {
+		IntList list = new IntList();
+		try {
+			list.add(null);
+			fail("NullPointerException was not thrown.");
+		} catch (NullPointerException e) {
+			// success
+		}
+	}
+
+	public void testGetIfIndexOutOfRangeExpectException() {
+		IntList list = new IntList(Arrays.asList(1, 2, 3));
+		try {
+			list.get(3);
+			fail("IndexOutOfBoundsException was not thrown.");
+		} catch (IndexOutOfBoundsException e) {
+			// success
+		}
+	}
+
+	public void testIteratorIfListChangedExpectSnapshot() {
+		IntList list = new IntList(Arrays.asList(1, 2, 3));
+
+		Iterator<Integer> iterator = list.iterator();
+		list.add(4);
+		list.remove(0);
+		list.set(0, 20);
+
+		List<Integer> seen = new ArrayList<>();
+		while (iterator.hasNext()) {
+			seen.add(iterator.next());
+		}
+
+		assertEquals("Iterator did not use a snapshot.", Arrays.asList(1, 2, 3), seen);
+		assertEquals("Wrong list.", Arrays.asList(20, 3, 4), list);
+	}
+
+	public void testIteratorIfListClearedAndRefilledExpectSnapshot() {
+		IntList list = new IntList(Arrays.asList(1, 2, 3));
+
+		Iterator<Integer> iterator = list.iterator();
+		list.clear();
+		list.add(9);
+
+		List<Integer> seen = new ArrayList<>();
+		while (iterator.hasNext()) {
+			seen.add(iterator.next());
+		}
+
+		assertEquals("Iterator did not use a snapshot.", Arrays.asList(1, 2, 3), seen);
+		assertEquals("Wrong list.", Arrays.asList(9), list);
+	}
+
+	public void testAddIfManyThreadsExpectAllValuesAdded() throws Exception {
+		IntList list = new IntList();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int start = t * 10000;
+			Thread thread = new Thread(() -> {
+				for (int i = start; i < start + 10000; i++) {
+					if (!list.containsInt(i)) {
+						list.addInt(i);
+					}
+
+					// iterating while others add must not fail
+					if (i % 1000 == 0) {
+						for (Integer value : list) {
+							assertNotNull(value);
+						}
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals("Wrong size.", 40000, list.size());
+		int[] values = list.toIntArray();
+		Arrays.sort(values);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals("Wrong value.", i, values[i]);
+		}
+	}
+
+	/**
+	 * Tests that if relationships are built in the way that the loaders do,
+	 * checking whether each ID is present before adding it, the lists will
+	 * have the same IDs as the boxed lists that were used before.
+	 */
+	public void testBuildIfRelationshipsExpectSameAsBoxedLists() {
+		List<List<Integer>> boxed = buildRelationships(() -> new CopyOnWriteArrayList<>(), 1000,
+				BENCHMARK_IDS_PER_LIST);
+		List<List<Integer>> primitive = buildRelationships(() -> new IntList(), 1000, BENCHMARK_IDS_PER_LIST);
+
+		assertEquals("Lists are different.", boxed, primitive);
+	}
+
+	/**
+	 * Builds a few million relationships in the way that the loaders do, and
+	 * compares the heap used by this with the boxed lists that were used
+	 * before. The heap used depends on the garbage collector, so it is only
+	 * measured when the <code>benchmark</code> system property is true.
+	 */
+	public void testBenchmarkIfMillionsOfRelationshipsExpectLessHeapThanBoxedLists() {
+		if (!Boolean.getBoolean("benchmark")) {
+			return;
+		}
+
+		// warm up
+		buildRelationships(() -> new IntList(), 1000, BENCHMARK_IDS_PER_LIST);
+		buildRelationships(() -> new CopyOnWriteArrayList<>(), 1000, BENCHMARK_IDS_PER_LIST);
+
+		long boxedBytes = measureHeap(() -> new CopyOnWriteArrayList<>());
+		long primitiveBytes = measureHeap(() -> new IntList());
+
+		assertTrue("IntList used more heap than boxed lists.", primitiveBytes < boxedBytes);
+	}
+
+	private long measureHeap(Supplier<List<Integer>> listFactory) {
+		long beforeBytes = usedHeap();
+		List<List<Integer>> lists = buildRelationships(listFactory, BENCHMARK_LISTS, BENCHMARK_IDS_PER_LIST);
+		lists.addAll(buildRelationships(listFactory, BENCHMARK_LARGE_LISTS, BENCHMARK_IDS_PER_LARGE_LIST));
+		long bytes = usedHeap() - beforeBytes;
+
+		// keep the lists reachable until they have been measured
+		assertEquals("Wrong number of lists.", BENCHMARK_LISTS + BENCHMARK_LARGE_LISTS, lists.size());
+
+		return bytes;
+	}
+
+	private List<List<Integer>> buildRelationships(Supplier<List<Integer>> listFactory, int listCount,
+			int idsPerList) {
+		Random random = new Random(11);
+		List<List<Integer>> lists = new ArrayList<>(listCount);
+		for (int i = 0; i < listCount; i++) {
+			List<Integer> list = listFactory.get();
+			for (int j = 0; j < idsPerList; j++) {
+				// IDs above the Integer cache, as in a large index
+				Integer id = 1000 + random.nextInt(10000000);
+				if (!list.contains(id)) {
+					list.add(id);
+				}
+			}
+			lists.add(list);
+		}
+
+		return lists;
+	}
+
+	private long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
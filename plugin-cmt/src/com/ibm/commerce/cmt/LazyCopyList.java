@@ -0,0 +1,198 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class reads through to a base list until the first modification, at
+ * which point the base list is copied and all further reads and writes go to
+ * the copy. A listener is notified of every modification, in the same way as
+ * {@link NotifierList}. It is assumed that the base list does not change while
+ * this has not yet been copied.
+ * 
+ * @param <E>
+ *            The type of elements in the list.
+ * 
+ * @author Trent Hoeppner
+ */
+public class LazyCopyList<E> extends AbstractList<E> {
+
+	/**
+	 * The list to read from until this is modified.
+	 */
+	private List<E> base;
+
+	/**
+	 * The private copy of the base list, or null if this has not been
+	 * modified yet.
+	 */
+	private volatile List<E> copy;
+
+	/**
+	 * The listener to notify when the list changes.
+	 */
+	private ChangeListener listener;
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param base
+	 *            The list to read from until this is modified. This value
+	 *            cannot be null.
+	 * @param listener
+	 *            The listener to notify when the list changes. This value
+	 *            cannot be null.
+	 */
+	public LazyCopyList(List<E> base, ChangeListener listener) {
+		Check.notNull(base, "base");
+		Check.notNull(listener, "listener");
+
+		this.base = base;
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns whether the base list has been copied into this.
+	 * 
+	 * @return True if this has its own copy of the elements, false if it still
+	 *         reads from the base list.
+	 */
+	public boolean isCopied() {
+		return copy != null;
+	}
+
+	/**
+	 * Copies the base list into this if it has not been copied yet, without
+	 * notifying the listener. After this call, this no longer depends on the
+	 * base list.
+	 */
+	public synchronized void ensureCopied() {
+		if (copy == null) {
+			copy = new ArrayList<>(base);
+			base = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E get(int index) {
+		return current().get(index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return current().size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Object o) {
+		return current().contains(o);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int indexOf(Object o) {
+		return current().indexOf(o);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E set(int index, E element) {
+		ensureCopied();
+		listener.changed();
+		return copy.set(index, element);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, E element) {
+		ensureCopied();
+		listener.changed();
+		modCount++;
+		copy.add(index, element);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E remove(int index) {
+		ensureCopied();
+		listener.changed();
+		modCount++;
+		return copy.remove(index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		ensureCopied();
+		listener.changed();
+		modCount++;
+		return copy.addAll(c);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		ensureCopied();
+		listener.changed();
+		modCount++;
+		copy.clear();
+	}
+
+	/**
+	 * Returns the list that currently holds the elements of this.
+	 * 
+	 * @return The copy if this has been modified, otherwise the base list.
+	 *         This value will not be null.
+	 */
+	private List<E> current() {
+		List<E> current = copy;
+		if (current == null) {
+			synchronized (this) {
+				current = copy != null ? copy : base;
+			}
+		}
+
+		return current;
+	}
+}
@@ -252,4 +252,24 @@ public List<E> subList(int fromIndex, int toIndex) {
 		return new NotifierList<>(wrappedList.subList(fromIndex, toIndex), listener);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+
+		return wrappedList.equals(o);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return wrappedList.hashCode();
+	}
+
 }
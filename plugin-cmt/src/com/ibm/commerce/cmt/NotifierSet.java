@@ -167,4 +167,24 @@ public void clear() {
 		wrappedSet.clear();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+
+		return wrappedSet.equals(o);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return wrappedSet.hashCode();
+	}
+
 }
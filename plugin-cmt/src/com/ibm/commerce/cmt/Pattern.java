@@ -62,14 +62,33 @@ public void setAction(Action action) {
 	}
 
 	public void findInCurrentFileForPlan(Context context, Plan plan) {
-		FileContents fileContents = context.get(Context.Prop.FILE_CONTENTS);
 		File file = context.get(Context.Prop.FILE);
 		if (!searchParam.allowFile(file)) {
 			return;
 		}
 
 		List<? extends SearchResult<?>> results = searchParam.findAll(context);
+		addIssuesForPlan(context, plan, results);
+	}
+
+	/**
+	 * Creates an issue for each of the given search results in the current
+	 * file, and adds them to the given plan.
+	 * 
+	 * @param context
+	 *            The context which contains the current file. This value
+	 *            cannot be null.
+	 * @param plan
+	 *            The plan to add the issues to. This value cannot be null.
+	 * @param results
+	 *            The results of searching the current file with the search
+	 *            parameter of this. This value cannot be null.
+	 */
+	public void addIssuesForPlan(Context context, Plan plan, List<? extends SearchResult<?>> results) {
 		Check.notNull(results, "results");
+
+		FileContents fileContents = context.get(Context.Prop.FILE_CONTENTS);
+		File file = context.get(Context.Prop.FILE);
 		for (SearchResult<?> current : results) {
 			// create an issue
 			Range range = current.getRange();
@@ -0,0 +1,202 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import com.ibm.commerce.cmt.search.NodeMatcher;
+import com.ibm.commerce.cmt.search.NodeMatcherVisitor;
+import com.ibm.commerce.cmt.search.NodeSearchParam;
+import com.ibm.commerce.cmt.search.SearchParam;
+import com.ibm.commerce.cmt.search.SearchResult;
+
+/**
+ * This class finds the matches for all patterns in the current file. The
+ * patterns whose search parameters work on the AST are matched together in a
+ * single walk of the compilation unit, so that the cost of walking does not
+ * grow with the number of patterns. The results for each pattern are the same
+ * as calling {@link SearchParam#findAll(Context)} for each pattern in turn.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PatternMatcher {
+
+	/**
+	 * The patterns to match, in the order that their results will be
+	 * returned.
+	 */
+	private List<Pattern> patterns;
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param patterns
+	 *            The patterns to match, in the order that their results will
+	 *            be returned. This value cannot be null.
+	 */
+	public PatternMatcher(List<Pattern> patterns) {
+		Check.notNull(patterns, "patterns");
+
+		this.patterns = new ArrayList<>(patterns);
+	}
+
+	/**
+	 * Finds the matches for each pattern in the current file of the given
+	 * context. Patterns that do not allow the current file are skipped.
+	 * 
+	 * @param context
+	 *            The context which contains the current file. This value
+	 *            cannot be null.
+	 * 
+	 * @return The matches of each pattern that allows the current file, in the
+	 *         same order as the patterns. This value will not be null, but may
+	 *         be empty.
+	 */
+	public List<PatternMatch> findAll(Context context) {
+		Check.notNull(context, "context");
+
+		File file = context.get(Context.Prop.FILE);
+
+		List<PatternMatch> matches = new ArrayList<>();
+		List<NodeMatcher> nodeMatchers = new ArrayList<>();
+		for (Pattern pattern : patterns) {
+			SearchParam searchParam = pattern.getSearchParam();
+			if (!searchParam.allowFile(file)) {
+				continue;
+			}
+
+			PatternMatch match = new PatternMatch(pattern);
+			try {
+				if (searchParam instanceof NodeSearchParam) {
+					match.matcher = ((NodeSearchParam) searchParam).createMatcher(context);
+					if (match.matcher != null) {
+						nodeMatchers.add(match.matcher);
+					} else {
+						match.results = Collections.emptyList();
+					}
+				} else {
+					match.results = searchParam.findAll(context);
+				}
+			} catch (RuntimeException e) {
+				match.failure = e;
+			}
+
+			matches.add(match);
+		}
+
+		if (!nodeMatchers.isEmpty()) {
+			try {
+				NodeMatcherVisitor v = new NodeMatcherVisitor(nodeMatchers, context.get(Context.Prop.JAVA_ITEM_UTIL));
+				CompilationUnit compUnit = context.get(Context.Prop.COMP_UNIT);
+				compUnit.accept(v);
+			} catch (RuntimeException e) {
+				// the walk itself failed, so none of the AST patterns have
+				// results
+				for (PatternMatch match : matches) {
+					if (match.matcher != null) {
+						match.failure = e;
+					}
+				}
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * This class holds the results of matching one pattern in the current
+	 * file.
+	 */
+	public static class PatternMatch {
+
+		/**
+		 * The pattern that was matched.
+		 */
+		private Pattern pattern;
+
+		/**
+		 * The matcher that collected the results during the shared walk, or
+		 * null if the pattern is not matched on the AST.
+		 */
+		private NodeMatcher matcher;
+
+		/**
+		 * The results that were found without the shared walk, or null if the
+		 * matcher holds the results.
+		 */
+		private List<? extends SearchResult<?>> results;
+
+		/**
+		 * The exception that was thrown while finding the results, or null if
+		 * no exception was thrown.
+		 */
+		private RuntimeException failure;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param pattern
+		 *            The pattern that was matched. This value cannot be null.
+		 */
+		private PatternMatch(Pattern pattern) {
+			this.pattern = pattern;
+		}
+
+		/**
+		 * Returns the pattern that was matched.
+		 * 
+		 * @return The pattern. This value will not be null.
+		 */
+		public Pattern getPattern() {
+			return pattern;
+		}
+
+		/**
+		 * Returns the results of the search parameter of the pattern in the
+		 * current file.
+		 * 
+		 * @return The results that were found. This value will not be null,
+		 *         but may be empty.
+		 * 
+		 * @throws RuntimeException
+		 *             If the search failed, which is the same exception that
+		 *             {@link SearchParam#findAll(Context)} would have thrown.
+		 */
+		public List<? extends SearchResult<?>> getResults() {
+			if (failure != null) {
+				throw failure;
+			}
+
+			if (matcher != null) {
+				if (matcher.getFailure() != null) {
+					throw matcher.getFailure();
+				}
+
+				return matcher.getAllFound();
+			}
+
+			return results;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import com.ibm.commerce.cmt.PatternMatcher.PatternMatch;
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.cmt.plan.Plan;
+import com.ibm.commerce.dependency.model.JavaItemFactory;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+import com.ibm.commerce.dependency.model.JavaItemUtil2;
+
+/**
+ * This class tests the {@link PatternMatcher} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PatternMatcherTest extends MigrationTestCase {
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		parentDir = new File("testData\\classRefCmd");
+	}
+
+	/**
+	 * Tests that if all the test patterns are matched together on each test
+	 * file, the plan is exactly the same as when each pattern searches the
+	 * file separately.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testFindAllIfAllTestPatternsExpectSamePlanAsEachPatternSeparately() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\v8-v9-wc-patterns.xml"), new File("testData\\v8-v9-customer-patterns.xml"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+		JavaItemUtil2 util = new JavaItemUtil2();
+		util.initialize(new JavaItemFactory(index));
+
+		PatternMatcher matcher = new PatternMatcher(config.getPatterns());
+		for (int i = 1; i <= 21; i++) {
+			File file = prepareTestFile("Test" + i + "Java.txt");
+
+			Context separateContext = createContext(file, index, util);
+			Plan separatePlan = new Plan();
+			for (Pattern pattern : config.getPatterns()) {
+				try {
+					pattern.findInCurrentFileForPlan(separateContext, separatePlan);
+				} catch (RuntimeException e) {
+					// the same pattern must fail below
+				}
+			}
+
+			Context matcherContext = createContext(file, index, util);
+			Plan matcherPlan = new Plan();
+			for (PatternMatch match : matcher.findAll(matcherContext)) {
+				try {
+					match.getPattern().addIssuesForPlan(matcherContext, matcherPlan, match.getResults());
+				} catch (RuntimeException e) {
+					// the same pattern must have failed above
+				}
+			}
+
+			assertEquals("Plan is different for " + file.getName(), toXMLString(separatePlan),
+					toXMLString(matcherPlan));
+		}
+	}
+
+	private Context createContext(File file, JavaItemIndex index, JavaItemUtil2 util) {
+		Context context = new Context(new IDGenerator(1));
+		context.set(Context.Prop.LOG_WRITER, logWriter);
+		context.set(Context.Prop.JAVA_ITEM_INDEX, index);
+		context.set(Context.Prop.JAVA_ITEM_UTIL, util);
+		context.set(Context.Prop.FILE, file);
+		return context;
+	}
+
+	private String toXMLString(Plan plan) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XMLUtil.writeXML(plan, out);
+		out.close();
+		return out.toString();
+	}
+}
@@ -0,0 +1,261 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.commerce.cmt.search.NodeSearchParam;
+import com.ibm.commerce.cmt.search.SearchParam;
+
+/**
+ * This class decides whether any pattern can find something in a file, by
+ * searching the text of the file for the names that the patterns look for.
+ * This is much faster than parsing the file, and most files do not refer to
+ * any of the names, so they do not need to be parsed at all.
+ * <p>
+ * Every AST node that a {@link NodeSearchParam} finds has a simple name which
+ * is an identifier in the source text, and which must end with one of the
+ * suffixes from {@link NodeSearchParam#getNameSuffixes()}. The suffixes of all
+ * patterns are kept in a tree of reversed suffixes, so each identifier in the
+ * file is checked against all suffixes by walking back from its last
+ * character. The check is conservative: a pattern which is not a
+ * {@link NodeSearchParam}, or which does not have name suffixes, may match any
+ * file, and files with unicode escapes or ignorable characters, which may
+ * hide an identifier from the text search, are never skipped.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PatternPrefilter {
+
+	/**
+	 * The patterns to check for, in the order they were given.
+	 */
+	private List<Pattern> patterns;
+
+	/**
+	 * The indexes in {@link #patterns} of the patterns that may match any file
+	 * that they allow.
+	 */
+	private List<Integer> unfilteredIndexes = new ArrayList<>();
+
+	/**
+	 * The root of the tree of reversed suffixes. The children of the root are
+	 * keyed by the last character of each suffix.
+	 */
+	private SuffixNode root = new SuffixNode();
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param patterns
+	 *            The patterns to check for. This value cannot be null.
+	 */
+	public PatternPrefilter(List<Pattern> patterns) {
+		Check.notNull(patterns, "patterns");
+
+		this.patterns = new ArrayList<>(patterns);
+		for (int i = 0; i < this.patterns.size(); i++) {
+			SearchParam searchParam = this.patterns.get(i).getSearchParam();
+			Set<String> suffixes = null;
+			if (searchParam instanceof NodeSearchParam) {
+				suffixes = ((NodeSearchParam) searchParam).getNameSuffixes();
+			}
+
+			if (suffixes == null) {
+				unfilteredIndexes.add(i);
+			} else {
+				for (String suffix : suffixes) {
+					root.add(suffix, i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether any pattern may find something in the given file.
+	 * 
+	 * @param file
+	 *            The file to check, which is used to find the patterns that
+	 *            allow it. This value cannot be null.
+	 * @param contents
+	 *            The text of the file. This value cannot be null.
+	 * 
+	 * @return True if at least one pattern may find something in the file,
+	 *         false if no pattern can find anything, so the file does not need
+	 *         to be parsed.
+	 */
+	public boolean mayMatch(File file, String contents) {
+		Check.notNull(file, "file");
+		Check.notNull(contents, "contents");
+
+		Boolean[] allowed = new Boolean[patterns.size()];
+		for (int index : unfilteredIndexes) {
+			if (isAllowed(index, file, allowed)) {
+				return true;
+			}
+		}
+
+		if (root.children.isEmpty()) {
+			return false;
+		}
+
+		if (contents.indexOf("\\u") >= 0) {
+			// an identifier may be written with unicode escapes
+			return true;
+		}
+
+		int length = contents.length();
+		int i = 0;
+		while (i < length) {
+			int c = contents.codePointAt(i);
+			if (!Character.isJavaIdentifierStart(c)) {
+				i += Character.charCount(c);
+				continue;
+			}
+
+			int start = i;
+			while (i < length) {
+				c = contents.codePointAt(i);
+				if (Character.isIdentifierIgnorable(c)) {
+					// the compiler removes these, so the text is not the name
+					return true;
+				}
+
+				if (!Character.isJavaIdentifierPart(c)) {
+					break;
+				}
+
+				i += Character.charCount(c);
+			}
+
+			if (hasAllowedSuffix(contents, start, i, file, allowed)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether the identifier at the given range of the text ends with
+	 * a suffix of a pattern that allows the given file.
+	 * 
+	 * @param contents
+	 *            The text of the file. This value cannot be null.
+	 * @param start
+	 *            The index of the first character of the identifier.
+	 * @param end
+	 *            The index after the last character of the identifier.
+	 * @param file
+	 *            The file to check. This value cannot be null.
+	 * @param allowed
+	 *            Whether each pattern allows the file, or null for patterns
+	 *            that have not been checked yet. This value cannot be null.
+	 * 
+	 * @return True if the identifier ends with the suffix of a pattern which
+	 *         allows the file, false otherwise.
+	 */
+	private boolean hasAllowedSuffix(String contents, int start, int end, File file, Boolean[] allowed) {
+		SuffixNode node = root;
+		for (int i = end - 1; i >= start; i--) {
+			node = node.children.get(contents.charAt(i));
+			if (node == null) {
+				return false;
+			}
+
+			for (int index : node.patternIndexes) {
+				if (isAllowed(index, file, allowed)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether the pattern at the given index allows the given file,
+	 * remembering the result for the file.
+	 * 
+	 * @param index
+	 *            The index of the pattern in {@link #patterns}.
+	 * @param file
+	 *            The file to check. This value cannot be null.
+	 * @param allowed
+	 *            Whether each pattern allows the file, or null for patterns
+	 *            that have not been checked yet. This value cannot be null.
+	 * 
+	 * @return True if the pattern allows the file, false otherwise.
+	 */
+	private boolean isAllowed(int index, File file, Boolean[] allowed) {
+		if (allowed[index] == null) {
+			allowed[index] = patterns.get(index).getSearchParam().allowFile(file);
+		}
+
+		return allowed[index];
+	}
+
+	/**
+	 * This class is a node in the tree of reversed suffixes. The path from
+	 * the root to a node spells a suffix backwards.
+	 */
+	private static class SuffixNode {
+
+		/**
+		 * The next nodes, keyed by the character before the text of this
+		 * node.
+		 */
+		private Map<Character, SuffixNode> children = new HashMap<>();
+
+		/**
+		 * The indexes of the patterns which have the text of this node as a
+		 * suffix.
+		 */
+		private List<Integer> patternIndexes = new ArrayList<>();
+
+		/**
+		 * Adds the given suffix to the tree starting at this.
+		 * 
+		 * @param suffix
+		 *            The suffix to add. This value cannot be null or empty.
+		 * @param patternIndex
+		 *            The index of the pattern which has the suffix.
+		 */
+		private void add(String suffix, int patternIndex) {
+			SuffixNode node = this;
+			for (int i = suffix.length() - 1; i >= 0; i--) {
+				char c = suffix.charAt(i);
+				SuffixNode child = node.children.get(c);
+				if (child == null) {
+					child = new SuffixNode();
+					node.children.put(c, child);
+				}
+
+				node = child;
+			}
+
+			node.patternIndexes.add(patternIndex);
+		}
+	}
+}
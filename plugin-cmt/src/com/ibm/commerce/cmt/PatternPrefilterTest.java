@@ -0,0 +1,96 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link PatternPrefilter} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PatternPrefilterTest extends TestCase {
+
+	private static final File JAVA_FILE = new File("Test.java");
+
+	private PatternPrefilter prefilter;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		// finds javax.ejb.FinderException
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		prefilter = new PatternPrefilter(config.getPatterns());
+	}
+
+	public void testMayMatchIfNameInFileExpectTrue() {
+		assertTrue("Rejected.", prefilter.mayMatch(JAVA_FILE, "class A { FinderException e; }"));
+	}
+
+	public void testMayMatchIfQualifiedNameInFileExpectTrue() {
+		assertTrue("Rejected.", prefilter.mayMatch(JAVA_FILE, "class A { javax.ejb.FinderException e; }"));
+	}
+
+	public void testMayMatchIfNameOnlyInCommentExpectTrue() {
+		assertTrue("Rejected.", prefilter.mayMatch(JAVA_FILE, "// FinderException\nclass A { }"));
+	}
+
+	public void testMayMatchIfNameNotInFileExpectFalse() {
+		assertFalse("Accepted.", prefilter.mayMatch(JAVA_FILE, "class A { Finder e; Exception f; }"));
+	}
+
+	public void testMayMatchIfNameIsPrefixOfIdentifierExpectFalse() {
+		assertFalse("Accepted.", prefilter.mayMatch(JAVA_FILE, "class A { FinderExceptions e; }"));
+	}
+
+	public void testMayMatchIfUnicodeEscapeInFileExpectTrue() {
+		assertTrue("Rejected.", prefilter.mayMatch(JAVA_FILE, "class A { \\u0046inderException e; }"));
+	}
+
+	public void testMayMatchIfFileNotAllowedExpectFalse() {
+		assertFalse("Accepted.", prefilter.mayMatch(new File("Test.txt"), "class A { FinderException e; }"));
+	}
+
+	public void testMayMatchIfNoPatternsExpectFalse() {
+		PatternPrefilter emptyPrefilter = new PatternPrefilter(Collections.emptyList());
+
+		assertFalse("Accepted.", emptyPrefilter.mayMatch(JAVA_FILE, "class A { FinderException e; }"));
+	}
+
+	public void testMayMatchIfPatternHasNoSuffixExpectTrue() throws Exception {
+		// the methodref for setInitKey_ only has a prefix, so it may match
+		// any Java file
+		List<File> commandFileList = Arrays.asList(new File("testData\\v8-v9-wc-patterns.xml"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+		PatternPrefilter allPrefilter = new PatternPrefilter(config.getPatterns());
+
+		assertTrue("Rejected.", allPrefilter.mayMatch(JAVA_FILE, "class A { }"));
+	}
+}
@@ -0,0 +1,1003 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.commerce.cmt.plan.DeleteFileStep;
+import com.ibm.commerce.cmt.plan.Issue;
+import com.ibm.commerce.cmt.plan.Location;
+import com.ibm.commerce.cmt.plan.LogStep;
+import com.ibm.commerce.cmt.plan.Range;
+import com.ibm.commerce.cmt.plan.RenameFileStep;
+import com.ibm.commerce.cmt.plan.ReplaceInFileStep;
+import com.ibm.commerce.cmt.plan.Step;
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+import com.ibm.commerce.dependency.model.JavaItemType;
+
+/**
+ * This class stores the issues found in each file on disk, so that a file
+ * does not need to be analyzed again if nothing that affects its issues has
+ * changed since the last plan was created.
+ * <p>
+ * The issues of a file are stored with a key, which is a hash of:
+ * <ul>
+ * <li>The patterns, so that changing the configuration analyzes every file
+ * again.</li>
+ * <li>The contents of the file.</li>
+ * <li>The version of the index, and the classes in the index that the file
+ * may refer to. These are the classes whose simple name is an identifier in
+ * the file, with every class they reach through their superclasses,
+ * interfaces and the types of their members. If one of them changes, the
+ * file is analyzed again.</li>
+ * </ul>
+ * The issues are only reused if the key for the file is the same as the
+ * stored key.
+ * <p>
+ * All values in the file are written with {@link DataOutputStream}. The file
+ * starts with a magic number and the format version, followed by the number
+ * of files. Each file has its path, its key and its issues.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanCache {
+
+	/**
+	 * The first value in every cache file, "CMTP" in ASCII.
+	 */
+	private static final int MAGIC = 0x434D5450;
+
+	/**
+	 * The version of the layout described in the class comment.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The step type for a {@link ReplaceInFileStep}.
+	 */
+	private static final int STEP_REPLACE_IN_FILE = 1;
+
+	/**
+	 * The step type for a {@link LogStep}.
+	 */
+	private static final int STEP_LOG = 2;
+
+	/**
+	 * The step type for a {@link DeleteFileStep}.
+	 */
+	private static final int STEP_DELETE_FILE = 3;
+
+	/**
+	 * The step type for a {@link RenameFileStep}.
+	 */
+	private static final int STEP_RENAME_FILE = 4;
+
+	/**
+	 * The file that the cache is loaded from and saved to.
+	 */
+	private File cacheFile;
+
+	/**
+	 * The stored issues, keyed by the absolute path of the file they were
+	 * found in.
+	 */
+	private Map<String, FileEntry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param cacheFile
+	 *            The file that the cache is loaded from and saved to. This
+	 *            value cannot be null, but the file does not need to exist.
+	 */
+	public PlanCache(File cacheFile) {
+		Check.notNull(cacheFile, "cacheFile");
+
+		this.cacheFile = cacheFile;
+	}
+
+	/**
+	 * Returns the file that the cache is loaded from and saved to.
+	 * 
+	 * @return The cache file. This value will not be null.
+	 */
+	public File getCacheFile() {
+		return cacheFile;
+	}
+
+	/**
+	 * Returns the number of files that have stored issues.
+	 * 
+	 * @return The number of files. This value will be &gt;= 0.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Loads the stored issues from the cache file. If the file does not exist,
+	 * or was written by a different version of this class, the cache will be
+	 * empty.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the file, or the file is not
+	 *             a valid cache file.
+	 */
+	public void load() throws IOException {
+		entries.clear();
+		if (!cacheFile.exists()) {
+			return;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a plan cache file: " + cacheFile.getAbsolutePath());
+			}
+
+			if (in.readInt() != FORMAT_VERSION) {
+				// written by another version, start again
+				return;
+			}
+
+			int fileCount = in.readInt();
+			for (int i = 0; i < fileCount; i++) {
+				String path = readString(in);
+				FileEntry entry = new FileEntry();
+				entry.key = readString(in);
+				int issueCount = in.readInt();
+				for (int j = 0; j < issueCount; j++) {
+					entry.issues.add(readIssue(in));
+				}
+				entries.put(path, entry);
+			}
+		} catch (EOFException e) {
+			entries.clear();
+			throw new IOException("Plan cache file is truncated: " + cacheFile.getAbsolutePath(), e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Saves the stored issues to the cache file. The issues of files that no
+	 * longer exist are not saved. The file is replaced only after all the
+	 * issues are written, so an error will not leave a partial cache file.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing the file.
+	 */
+	public void save() throws IOException {
+		File parent = cacheFile.getAbsoluteFile().getParentFile();
+		File tempFile = new File(parent, cacheFile.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			List<String> paths = new ArrayList<>();
+			for (String path : entries.keySet()) {
+				if (new File(path).exists()) {
+					paths.add(path);
+				}
+			}
+			Collections.sort(paths);
+
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(paths.size());
+			for (String path : paths) {
+				FileEntry entry = entries.get(path);
+				writeString(out, path);
+				writeString(out, entry.key);
+				out.writeInt(entry.issues.size());
+				for (IssueRecord issue : entry.issues) {
+					writeIssue(out, issue);
+				}
+			}
+		} finally {
+			out.close();
+		}
+
+		Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Returns the stored issues for the given file, if they were stored with
+	 * the given key.
+	 * 
+	 * @param file
+	 *            The file to get the issues for. This value cannot be null.
+	 * @param key
+	 *            The key for the current state of the file, from
+	 *            {@link #createKey(String, String, JavaItemIndex, Map)}. This
+	 *            value cannot be null.
+	 * @param patterns
+	 *            The patterns that were used to find the issues, in the same
+	 *            order. This value cannot be null.
+	 * 
+	 * @return New issues that are the same as the ones that were stored, in
+	 *         the same order, or null if there are no stored issues for the
+	 *         file or the key is different. The issues have an ID of 0.
+	 */
+	public List<Issue> getIssues(File file, String key, List<Pattern> patterns) {
+		Check.notNull(file, "file");
+		Check.notNull(key, "key");
+		Check.notNull(patterns, "patterns");
+
+		FileEntry entry = entries.get(file.getAbsolutePath());
+		if (entry == null || !entry.key.equals(key)) {
+			return null;
+		}
+
+		List<Issue> issues = new ArrayList<>();
+		for (IssueRecord record : entry.issues) {
+			if (record.patternIndex < 0 || record.patternIndex >= patterns.size()) {
+				return null;
+			}
+
+			issues.add(record.toIssue(file, patterns.get(record.patternIndex)));
+		}
+
+		return issues;
+	}
+
+	/**
+	 * Stores the issues for the given file with the given key, replacing any
+	 * issues that were stored before. If an issue has a step or pattern that
+	 * cannot be stored, nothing is stored for the file, so it will be
+	 * analyzed again next time.
+	 * 
+	 * @param file
+	 *            The file that the issues were found in. This value cannot be
+	 *            null.
+	 * @param key
+	 *            The key for the current state of the file, from
+	 *            {@link #createKey(String, String, JavaItemIndex, Map)}. This
+	 *            value cannot be null.
+	 * @param issues
+	 *            The issues found in the file, in order. This value cannot be
+	 *            null, but may be empty.
+	 * @param patterns
+	 *            The patterns that were used to find the issues. This value
+	 *            cannot be null.
+	 */
+	public void putIssues(File file, String key, List<Issue> issues, List<Pattern> patterns) {
+		Check.notNull(file, "file");
+		Check.notNull(key, "key");
+		Check.notNull(issues, "issues");
+		Check.notNull(patterns, "patterns");
+
+		String path = file.getAbsolutePath();
+		FileEntry entry = new FileEntry();
+		entry.key = key;
+		for (Issue issue : issues) {
+			IssueRecord record = IssueRecord.fromIssue(issue, patterns);
+			if (record == null) {
+				entries.remove(path);
+				return;
+			}
+			entry.issues.add(record);
+		}
+
+		entries.put(path, entry);
+	}
+
+	/**
+	 * Returns a hash of the given patterns, which changes if any part of any
+	 * pattern changes, or the order of the patterns changes.
+	 * 
+	 * @param patterns
+	 *            The patterns to hash. This value cannot be null.
+	 * 
+	 * @return The hash of the patterns. This value will not be null or empty.
+	 */
+	public static String hashPatterns(List<Pattern> patterns) {
+		Check.notNull(patterns, "patterns");
+
+		MessageDigest digest = createDigest();
+		for (Pattern pattern : patterns) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			XMLUtil.writeXML(pattern, out);
+			update(digest, out.toString());
+		}
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Creates the key for the given contents of a file. The key will be
+	 * different if the patterns, the contents, or the classes that the file
+	 * may refer to are different.
+	 * 
+	 * @param patternsHash
+	 *            The hash of the patterns, from {@link #hashPatterns(List)}.
+	 *            This value cannot be null.
+	 * @param contents
+	 *            The contents of the file. This value cannot be null.
+	 * @param index
+	 *            The index with the classes that the file may refer to. This
+	 *            value cannot be null.
+	 * @param classSignatures
+	 *            The signatures of classes that were already created, keyed by
+	 *            the class item ID, which is used to avoid creating the
+	 *            signature of the same class for each file. The signatures of
+	 *            new classes will be added. This value cannot be null.
+	 * 
+	 * @return The key. This value will not be null or empty.
+	 */
+	public static String createKey(String patternsHash, String contents, JavaItemIndex index,
+			Map<Integer, String> classSignatures) {
+		Check.notNull(patternsHash, "patternsHash");
+		Check.notNull(contents, "contents");
+		Check.notNull(index, "index");
+		Check.notNull(classSignatures, "classSignatures");
+
+		MessageDigest digest = createDigest();
+		update(digest, patternsHash);
+		update(digest, contents);
+		update(digest, index.getVersion());
+
+		Set<String> signatures = new TreeSet<>();
+		for (String identifier : findIdentifiers(contents)) {
+			for (JavaItem classItem : index.findClasses(identifier)) {
+				addSignatures(classItem, index, classSignatures, signatures, new HashSet<>());
+			}
+		}
+
+		for (String signature : signatures) {
+			update(digest, signature);
+		}
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Adds the signature of the given class and every class it can reach to
+	 * the given set. A class reaches its supertypes and the return, parameter
+	 * and field types of its members, so that a file which only uses a class
+	 * through a chain of calls, such as <code>a.getB().foo()</code>, is
+	 * analyzed again if that class changes.
+	 * 
+	 * @param classItem
+	 *            The class to add the signature for. This value cannot be
+	 *            null.
+	 * @param index
+	 *            The index which contains the class. This value cannot be
+	 *            null.
+	 * @param classSignatures
+	 *            The signatures that were already created, keyed by class item
+	 *            ID. This value cannot be null.
+	 * @param signatures
+	 *            The set to add the signatures to. This value cannot be null.
+	 * @param visitedIDs
+	 *            The IDs of the classes that were already added, which avoids
+	 *            cycles. This value cannot be null.
+	 */
+	private static void addSignatures(JavaItem classItem, JavaItemIndex index, Map<Integer, String> classSignatures,
+			Set<String> signatures, Set<Integer> visitedIDs) {
+		Deque<JavaItem> toVisit = new ArrayDeque<>();
+		toVisit.add(classItem);
+		while (!toVisit.isEmpty()) {
+			JavaItem current = toVisit.removeFirst();
+			if (!visitedIDs.add(current.getID())) {
+				continue;
+			}
+
+			String signature = classSignatures.get(current.getID());
+			if (signature == null) {
+				signature = createSignature(current, index);
+				classSignatures.put(current.getID(), signature);
+			}
+			signatures.add(signature);
+
+			for (Integer reachedID : getReachedClassIDs(current)) {
+				JavaItem reached = index.getItem(reachedID);
+				if (reached != null && reached.getType() == JavaItemType.CLASS
+						&& !visitedIDs.contains(reached.getID())) {
+					toVisit.add(reached);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the IDs of the types that the given class refers to in its
+	 * signature, which are its supertypes, the base class if it is an array,
+	 * and the return, parameter and field types of its members.
+	 * 
+	 * @param classItem
+	 *            The class to get the types for. This value cannot be null.
+	 * 
+	 * @return The IDs of the types. This value will not be null, but may be
+	 *         empty.
+	 */
+	private static List<Integer> getReachedClassIDs(JavaItem classItem) {
+		List<Integer> ids = new ArrayList<>();
+		addIfNotNull(ids, classItem.<Integer> getAttribute(JavaItem.ATTR_SUPERCLASS));
+		addAllIfNotNull(ids, classItem.<Set<Integer>> getAttribute(JavaItem.ATTR_SUPERINTERFACES));
+		addIfNotNull(ids, classItem.<Integer> getAttribute(JavaItem.ATTR_ARRAY_BASE_CLASS));
+
+		for (JavaItem child : classItem.getChildren()) {
+			if (child == null) {
+				continue;
+			}
+
+			addIfNotNull(ids, child.<Integer> getAttribute(JavaItem.ATTR_RETURN_TYPE));
+			addAllIfNotNull(ids, child.<List<Integer>> getAttribute(JavaItem.ATTR_METHOD_PARAM_TYPES));
+			addIfNotNull(ids, child.<Integer> getAttribute(JavaItem.ATTR_FIELD_TYPE));
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Adds the given ID to the given list if the ID is not null.
+	 * 
+	 * @param ids
+	 *            The list to add to. This value cannot be null.
+	 * @param id
+	 *            The ID to add. This value may be null.
+	 */
+	private static void addIfNotNull(List<Integer> ids, Integer id) {
+		if (id != null) {
+			ids.add(id);
+		}
+	}
+
+	/**
+	 * Adds the given IDs to the given list if the collection is not null.
+	 * 
+	 * @param ids
+	 *            The list to add to. This value cannot be null.
+	 * @param more
+	 *            The IDs to add. This value may be null.
+	 */
+	private static void addAllIfNotNull(List<Integer> ids, Collection<Integer> more) {
+		if (more != null) {
+			ids.addAll(more);
+		}
+	}
+
+	/**
+	 * Creates a string which describes the given class, its supertypes and its
+	 * members. If any of these change, the string will be different.
+	 * 
+	 * @param classItem
+	 *            The class to describe. This value cannot be null.
+	 * @param index
+	 *            The index which contains the class. This value cannot be
+	 *            null.
+	 * 
+	 * @return The signature of the class. This value will not be null.
+	 */
+	private static String createSignature(JavaItem classItem, JavaItemIndex index) {
+		StringBuilder b = new StringBuilder();
+		b.append(getQualifiedName(classItem));
+
+		b.append(" extends ");
+		b.append(getName(index, classItem.getAttribute(JavaItem.ATTR_SUPERCLASS)));
+
+		Set<Integer> superInterfaceIDs = classItem.getAttribute(JavaItem.ATTR_SUPERINTERFACES);
+		if (superInterfaceIDs != null) {
+			b.append(" implements");
+			for (Integer superInterfaceID : superInterfaceIDs) {
+				b.append(' ');
+				b.append(getName(index, superInterfaceID));
+			}
+		}
+
+		List<String> members = new ArrayList<>();
+		for (JavaItem child : classItem.getChildren()) {
+			if (child == null) {
+				continue;
+			}
+
+			StringBuilder member = new StringBuilder();
+			member.append(child.getType());
+			member.append(' ');
+			member.append(child.getName());
+
+			List<Integer> parameterTypeIDs = child.getAttribute(JavaItem.ATTR_METHOD_PARAM_TYPES);
+			if (parameterTypeIDs != null) {
+				member.append('(');
+				for (Integer parameterTypeID : parameterTypeIDs) {
+					member.append(getName(index, parameterTypeID));
+					member.append(',');
+				}
+				member.append(')');
+			}
+
+			member.append(':');
+			member.append(getName(index, child.getAttribute(JavaItem.ATTR_RETURN_TYPE)));
+			member.append(':');
+			member.append(getName(index, child.getAttribute(JavaItem.ATTR_FIELD_TYPE)));
+			members.add(member.toString());
+		}
+
+		Collections.sort(members);
+		for (String member : members) {
+			b.append('\n');
+			b.append(member);
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * Returns the qualified name of the item with the given ID.
+	 * 
+	 * @param index
+	 *            The index which contains the item. This value cannot be null.
+	 * @param id
+	 *            The ID of the item. This value may be null.
+	 * 
+	 * @return The qualified name of the item, or an empty string if the ID is
+	 *         null or there is no item with the ID. This value will not be
+	 *         null.
+	 */
+	private static String getName(JavaItemIndex index, Integer id) {
+		if (id == null) {
+			return "";
+		}
+
+		JavaItem item = index.getItem(id);
+		if (item == null) {
+			return "";
+		}
+
+		return getQualifiedName(item);
+	}
+
+	/**
+	 * Returns the names of the given item and its ancestors, separated by
+	 * dots.
+	 * 
+	 * @param item
+	 *            The item to get the name of. This value cannot be null.
+	 * 
+	 * @return The qualified name. This value will not be null.
+	 */
+	private static String getQualifiedName(JavaItem item) {
+		StringBuilder b = new StringBuilder(item.getName());
+		JavaItem parent = item.getParent();
+		while (parent != null) {
+			b.insert(0, '.');
+			b.insert(0, parent.getName());
+			parent = parent.getParent();
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * Returns the distinct Java identifiers in the given text.
+	 * 
+	 * @param contents
+	 *            The text to search. This value cannot be null.
+	 * 
+	 * @return The identifiers. This value will not be null, but may be empty.
+	 */
+	static Set<String> findIdentifiers(String contents) {
+		Set<String> identifiers = new HashSet<>();
+		int length = contents.length();
+		int i = 0;
+		while (i < length) {
+			int c = contents.codePointAt(i);
+			if (!Character.isJavaIdentifierStart(c)) {
+				i += Character.charCount(c);
+				continue;
+			}
+
+			int start = i;
+			while (i < length && Character.isJavaIdentifierPart(c = contents.codePointAt(i))) {
+				i += Character.charCount(c);
+			}
+
+			identifiers.add(contents.substring(start, i));
+		}
+
+		return identifiers;
+	}
+
+	/**
+	 * Creates the digest which is used for all hashes.
+	 * 
+	 * @return A new digest. This value will not be null.
+	 */
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+	}
+
+	/**
+	 * Adds the given string to the given digest, followed by a separator so
+	 * that the boundaries between strings affect the hash.
+	 * 
+	 * @param digest
+	 *            The digest to update. This value cannot be null.
+	 * @param value
+	 *            The string to add. This value cannot be null.
+	 */
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Converts the given bytes to a hexadecimal string.
+	 * 
+	 * @param bytes
+	 *            The bytes to convert. This value cannot be null.
+	 * 
+	 * @return The hexadecimal string. This value will not be null.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder b = new StringBuilder();
+		for (byte value : bytes) {
+			b.append(String.format("%02x", value));
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * Writes the given issue to the given stream.
+	 * 
+	 * @param out
+	 *            The stream to write to. This value cannot be null.
+	 * @param issue
+	 *            The issue to write. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing to the stream.
+	 */
+	private static void writeIssue(DataOutputStream out, IssueRecord issue) throws IOException {
+		out.writeInt(issue.patternIndex);
+		out.writeInt(issue.start);
+		out.writeInt(issue.end);
+		writeString(out, issue.formattedRange);
+		writeString(out, issue.description);
+		writeString(out, issue.source);
+		out.writeInt(issue.steps.size());
+		for (StepRecord step : issue.steps) {
+			out.writeInt(step.type);
+			writeString(out, step.value);
+			writeString(out, step.otherValue);
+		}
+	}
+
+	/**
+	 * Reads an issue from the given stream.
+	 * 
+	 * @param in
+	 *            The stream to read from. This value cannot be null.
+	 * 
+	 * @return The issue that was read. This value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading from the stream.
+	 */
+	private static IssueRecord readIssue(DataInputStream in) throws IOException {
+		IssueRecord issue = new IssueRecord();
+		issue.patternIndex = in.readInt();
+		issue.start = in.readInt();
+		issue.end = in.readInt();
+		issue.formattedRange = readString(in);
+		issue.description = readString(in);
+		issue.source = readString(in);
+		int stepCount = in.readInt();
+		for (int i = 0; i < stepCount; i++) {
+			StepRecord step = new StepRecord();
+			step.type = in.readInt();
+			step.value = readString(in);
+			step.otherValue = readString(in);
+			issue.steps.add(step);
+		}
+
+		return issue;
+	}
+
+	/**
+	 * Writes the given string to the given stream. Unlike
+	 * {@link DataOutputStream#writeUTF(String)}, the string may be null and
+	 * may be longer than 64K.
+	 * 
+	 * @param out
+	 *            The stream to write to. This value cannot be null.
+	 * @param value
+	 *            The string to write. This value may be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing to the stream.
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string that was written by
+	 * {@link #writeString(DataOutputStream, String)}.
+	 * 
+	 * @param in
+	 *            The stream to read from. This value cannot be null.
+	 * 
+	 * @return The string that was read. This value may be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading from the stream.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * This class holds the stored issues for one file.
+	 */
+	private static class FileEntry {
+
+		/**
+		 * The key of the file when the issues were found.
+		 */
+		private String key;
+
+		/**
+		 * The issues that were found, in order.
+		 */
+		private List<IssueRecord> issues = new ArrayList<>();
+	}
+
+	/**
+	 * This class holds the parts of an issue that are stored. The file,
+	 * timestamp and ID are not stored, since they are set when the issue is
+	 * reused.
+	 */
+	private static class IssueRecord {
+
+		/**
+		 * The index of the pattern that found the issue.
+		 */
+		private int patternIndex;
+
+		/**
+		 * The start of the range of the issue.
+		 */
+		private int start;
+
+		/**
+		 * The end of the range of the issue.
+		 */
+		private int end;
+
+		/**
+		 * The range formatted for humans.
+		 */
+		private String formattedRange;
+
+		/**
+		 * The description of the issue.
+		 */
+		private String description;
+
+		/**
+		 * The source text in the range.
+		 */
+		private String source;
+
+		/**
+		 * The steps to fix the issue.
+		 */
+		private List<StepRecord> steps = new ArrayList<>();
+
+		/**
+		 * Creates a record for the given issue.
+		 * 
+		 * @param issue
+		 *            The issue to store. This value cannot be null.
+		 * @param patterns
+		 *            The patterns, one of which found the issue. This value
+		 *            cannot be null.
+		 * 
+		 * @return The record, or null if the issue cannot be stored.
+		 */
+		private static IssueRecord fromIssue(Issue issue, List<Pattern> patterns) {
+			IssueRecord record = new IssueRecord();
+			record.patternIndex = patterns.indexOf(issue.getPattern());
+			if (record.patternIndex < 0) {
+				return null;
+			}
+
+			Location location = issue.getLocation();
+			record.start = location.getRange().getStart();
+			record.end = location.getRange().getEnd();
+			record.formattedRange = location.getFormattedRange();
+			record.description = issue.getDescription();
+			record.source = issue.getSource();
+
+			List<Step> steps = issue.getSteps();
+			if (steps != null) {
+				for (Step step : steps) {
+					StepRecord stepRecord = StepRecord.fromStep(step);
+					if (stepRecord == null) {
+						return null;
+					}
+					record.steps.add(stepRecord);
+				}
+			}
+
+			return record;
+		}
+
+		/**
+		 * Creates a new issue from this.
+		 * 
+		 * @param file
+		 *            The file that the issue is in. This value cannot be null.
+		 * @param pattern
+		 *            The pattern that found the issue. This value cannot be
+		 *            null.
+		 * 
+		 * @return The issue, with an ID of 0. This value will not be null.
+		 */
+		private Issue toIssue(File file, Pattern pattern) {
+			Range range = new Range();
+			range.setStart(start);
+			range.setEnd(end);
+
+			Location location = new Location();
+			location.setFile(file.getAbsolutePath());
+			location.setTimestamp(file.lastModified());
+			location.setRange(range);
+			location.setFormattedRange(formattedRange);
+
+			Issue issue = new Issue(0);
+			issue.setPattern(pattern);
+			issue.setLocation(location);
+			issue.setDescription(description);
+			issue.setSource(source);
+
+			List<Step> issueSteps = new ArrayList<>();
+			for (StepRecord step : steps) {
+				issueSteps.add(step.toStep());
+			}
+			issue.setSteps(issueSteps);
+
+			return issue;
+		}
+	}
+
+	/**
+	 * This class holds the parts of a step that are stored.
+	 */
+	private static class StepRecord {
+
+		/**
+		 * The type of the step, one of the STEP_ constants.
+		 */
+		private int type;
+
+		/**
+		 * The replacement, message or file of the step.
+		 */
+		private String value;
+
+		/**
+		 * The file to rename to, for {@link RenameFileStep}, null otherwise.
+		 */
+		private String otherValue;
+
+		/**
+		 * Creates a record for the given step.
+		 * 
+		 * @param step
+		 *            The step to store. This value cannot be null.
+		 * 
+		 * @return The record, or null if the type of step cannot be stored.
+		 */
+		private static StepRecord fromStep(Step step) {
+			StepRecord record = new StepRecord();
+			if (step instanceof ReplaceInFileStep) {
+				record.type = STEP_REPLACE_IN_FILE;
+				record.value = ((ReplaceInFileStep) step).getReplacement();
+			} else if (step instanceof LogStep) {
+				record.type = STEP_LOG;
+				record.value = ((LogStep) step).getMessage();
+			} else if (step instanceof DeleteFileStep) {
+				record.type = STEP_DELETE_FILE;
+				record.value = ((DeleteFileStep) step).getFile().getPath();
+			} else if (step instanceof RenameFileStep) {
+				record.type = STEP_RENAME_FILE;
+				record.value = ((RenameFileStep) step).getFile().getPath();
+				record.otherValue = ((RenameFileStep) step).getToFile().getPath();
+			} else {
+				return null;
+			}
+
+			return record;
+		}
+
+		/**
+		 * Creates a new step from this.
+		 * 
+		 * @return The step. This value will not be null.
+		 */
+		private Step toStep() {
+			Step step;
+			switch (type) {
+			case STEP_REPLACE_IN_FILE:
+				step = new ReplaceInFileStep(value);
+				break;
+			case STEP_LOG:
+				step = new LogStep(value);
+				break;
+			case STEP_DELETE_FILE:
+				step = new DeleteFileStep(new File(value));
+				break;
+			case STEP_RENAME_FILE:
+				step = new RenameFileStep(new File(value), new File(otherValue));
+				break;
+			default:
+				throw new IllegalStateException("Unknown step type: " + type);
+			}
+
+			return step;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.model.JavaItemFactory;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link PlanCache} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanCacheTest extends TestCase {
+
+	/**
+	 * The contents of a file which refers to <code>Order</code> by name, but
+	 * only reaches <code>Address</code> through a chained call.
+	 */
+	private static final String CHAINED_CALL_CONTENTS = "class Test {\n" //
+			+ "  void run(Order order) {\n" //
+			+ "    order.getAddress().format();\n" //
+			+ "  }\n" //
+			+ "}\n";
+
+	/**
+	 * Tests that if a class which a file only reaches through the return type
+	 * of a method changes, the key for the file is different.
+	 */
+	public void testCreateKeyIfTypeReachedThroughChainedCallChangedExpectDifferentKey() {
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+		JavaItemFactory factory = new JavaItemFactory(index);
+		JavaItem pkg = factory.createPackage(null, "com.example");
+		JavaItem address = factory.createClass(pkg, "Address");
+		JavaItem format = factory.createMethod(address, "format", Collections.<Integer> emptyList());
+		JavaItem order = factory.createClass(pkg, "Order");
+		JavaItem getAddress = factory.createMethod(order, "getAddress", Collections.<Integer> emptyList());
+		getAddress.setAttribute(JavaItem.ATTR_RETURN_TYPE, address.getID());
+
+		String before = PlanCache.createKey("patterns", CHAINED_CALL_CONTENTS, index,
+				new HashMap<Integer, String>());
+
+		format.setAttribute(JavaItem.ATTR_RETURN_TYPE, order.getID());
+
+		String after = PlanCache.createKey("patterns", CHAINED_CALL_CONTENTS, index,
+				new HashMap<Integer, String>());
+
+		assertFalse("Key did not change.", before.equals(after));
+	}
+
+	/**
+	 * Tests that if nothing that a file reaches changes, the key for the file
+	 * is the same.
+	 */
+	public void testCreateKeyIfNothingChangedExpectSameKey() {
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+		JavaItemFactory factory = new JavaItemFactory(index);
+		JavaItem pkg = factory.createPackage(null, "com.example");
+		JavaItem address = factory.createClass(pkg, "Address");
+		JavaItem order = factory.createClass(pkg, "Order");
+		JavaItem getAddress = factory.createMethod(order, "getAddress", Collections.<Integer> emptyList());
+		getAddress.setAttribute(JavaItem.ATTR_RETURN_TYPE, address.getID());
+
+		String first = PlanCache.createKey("patterns", CHAINED_CALL_CONTENTS, index, new HashMap<Integer, String>());
+		String second = PlanCache.createKey("patterns", CHAINED_CALL_CONTENTS, index,
+				new HashMap<Integer, String>());
+
+		assertEquals("Key changed.", first, second);
+	}
+}
@@ -0,0 +1,630 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ibm.commerce.cmt.PatternMatcher.PatternMatch;
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.cmt.plan.Issue;
+import com.ibm.commerce.cmt.plan.Plan;
+import com.ibm.commerce.cmt.plan.PlanWriter;
+import com.ibm.commerce.dependency.model.JavaItemFactory;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+import com.ibm.commerce.dependency.model.JavaItemUtil2;
+import com.ibm.commerce.dependency.model.Workspace;
+
+/**
+ * This class creates a plan for a list of files, analyzing several files at
+ * the same time.
+ * <p>
+ * Each file is analyzed with its own {@link Context}, and with its own delta
+ * {@link JavaItemIndex} on top of the shared index, so that items that are
+ * created while searching do not change the shared index, and the result for
+ * a file does not depend on which files were analyzed before it. The issues
+ * for each file are merged into the plan in the order of the files, and issue
+ * IDs are assigned during the merge, so the plan is the same no matter how
+ * many threads are used.
+ * <p>
+ * Before a file is parsed, a {@link PatternPrefilter} checks whether any
+ * pattern can find something in it. Files that cannot match are skipped
+ * without parsing them.
+ * <p>
+ * If a {@link PlanCache} is set, the issues that were stored for a file are
+ * reused when the file, the patterns and the classes that the file may refer
+ * to have not changed, and the issues found in the other files are stored.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanCreator {
+
+	/**
+	 * The patterns to search for in each file.
+	 */
+	private List<Pattern> patterns;
+
+	/**
+	 * The matcher for the patterns.
+	 */
+	private PatternMatcher matcher;
+
+	/**
+	 * The filter which finds the files that no pattern can find anything in.
+	 */
+	private PatternPrefilter prefilter;
+
+	/**
+	 * True to skip the files that the prefilter rejects, false to analyze all
+	 * files.
+	 */
+	private boolean prefilterEnabled = true;
+
+	/**
+	 * The number of files that were skipped by the prefilter during the last
+	 * call to {@link #createPlan(List, IDGenerator)}.
+	 */
+	private int skippedFileCount;
+
+	/**
+	 * The cache with the issues found in each file during previous runs, or
+	 * null if issues are not cached.
+	 */
+	private PlanCache cache;
+
+	/**
+	 * The hash of the patterns, which is part of the cache key for each file.
+	 * This value is null until a cache is set.
+	 */
+	private String patternsHash;
+
+	/**
+	 * The signatures of the classes that were used to create cache keys during
+	 * the current call to {@link #createPlan(List, IDGenerator)}, keyed by
+	 * class item ID.
+	 */
+	private Map<Integer, String> classSignatures = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of files that were parsed during the last call to
+	 * {@link #createPlan(List, IDGenerator)}.
+	 */
+	private int parsedFileCount;
+
+	/**
+	 * The number of files whose issues were taken from the cache during the
+	 * last call to {@link #createPlan(List, IDGenerator)}.
+	 */
+	private int cachedFileCount;
+
+	/**
+	 * The index which contains the items for all files. This index is only
+	 * read while creating the plan.
+	 */
+	private JavaItemIndex index;
+
+	/**
+	 * The workspace which contains the files, or null if there is none.
+	 */
+	private Workspace workspace;
+
+	/**
+	 * The writer for the log file.
+	 */
+	private BufferedWriter logWriter;
+
+	/**
+	 * The number of files to analyze at the same time.
+	 */
+	private int threads;
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param patterns
+	 *            The patterns to search for in each file. This value cannot be
+	 *            null.
+	 * @param index
+	 *            The index which contains the items for all files. This value
+	 *            cannot be null.
+	 * @param workspace
+	 *            The workspace which contains the files. This value may be
+	 *            null.
+	 * @param logWriter
+	 *            The writer for the log file. This value cannot be null.
+	 * @param threads
+	 *            The number of files to analyze at the same time. This value
+	 *            must be &gt; 0.
+	 */
+	public PlanCreator(List<Pattern> patterns, JavaItemIndex index, Workspace workspace, BufferedWriter logWriter,
+			int threads) {
+		Check.notNull(patterns, "patterns");
+		Check.notNull(index, "index");
+		Check.notNull(logWriter, "logWriter");
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be > 0, but was " + threads);
+		}
+
+		this.patterns = patterns;
+		this.matcher = new PatternMatcher(patterns);
+		this.prefilter = new PatternPrefilter(patterns);
+		this.index = index;
+		this.workspace = workspace;
+		this.logWriter = logWriter;
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets whether files that no pattern can find anything in are skipped
+	 * without parsing them. By default they are skipped.
+	 * 
+	 * @param prefilterEnabled
+	 *            True to skip the files, false to analyze all files.
+	 */
+	public void setPrefilterEnabled(boolean prefilterEnabled) {
+		this.prefilterEnabled = prefilterEnabled;
+	}
+
+	/**
+	 * Returns the number of files that were skipped because no pattern could
+	 * find anything in them, during the last call to
+	 * {@link #createPlan(List, IDGenerator)}.
+	 * 
+	 * @return The number of skipped files. This value will be &gt;= 0.
+	 */
+	public int getSkippedFileCount() {
+		return skippedFileCount;
+	}
+
+	/**
+	 * Sets the cache which stores the issues found in each file, so that files
+	 * which have not changed are not analyzed again. The cache is not loaded
+	 * or saved by this.
+	 * 
+	 * @param cache
+	 *            The cache to use. If null, all files will be analyzed.
+	 */
+	public void setCache(PlanCache cache) {
+		this.cache = cache;
+		if (cache != null && patternsHash == null) {
+			patternsHash = PlanCache.hashPatterns(patterns);
+		}
+	}
+
+	/**
+	 * Returns the number of files that were parsed during the last call to
+	 * {@link #createPlan(List, IDGenerator)}. Files that were skipped or whose
+	 * issues were taken from the cache are not included.
+	 * 
+	 * @return The number of parsed files. This value will be &gt;= 0.
+	 */
+	public int getParsedFileCount() {
+		return parsedFileCount;
+	}
+
+	/**
+	 * Returns the number of files whose issues were taken from the cache
+	 * during the last call to {@link #createPlan(List, IDGenerator)}.
+	 * 
+	 * @return The number of cached files. This value will be &gt;= 0.
+	 */
+	public int getCachedFileCount() {
+		return cachedFileCount;
+	}
+
+	/**
+	 * Creates a plan with the issues found in the given files.
+	 * 
+	 * @param files
+	 *            The files to analyze. This value cannot be null, but may be
+	 *            empty.
+	 * @param issueIDGenerator
+	 *            The generator for the IDs of the issues in the plan. IDs are
+	 *            assigned in the order of the files, and in the order the
+	 *            issues were found in each file. This value cannot be null.
+	 * 
+	 * @return The plan which contains all the issues that were found. This
+	 *         value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the files or writing to the
+	 *             log.
+	 */
+	public Plan createPlan(List<File> files, IDGenerator issueIDGenerator) throws IOException {
+		Check.notNull(files, "files");
+		Check.notNull(issueIDGenerator, "issueIDGenerator");
+
+		Plan plan = new Plan();
+		createPlan(files, issueIDGenerator, fileIssues -> {
+			for (Issue issue : fileIssues) {
+				plan.addIssue(issue);
+			}
+		});
+
+		return plan;
+	}
+
+	/**
+	 * Creates a plan with the issues found in the given files, and writes the
+	 * issues for each file as soon as they are merged, so that the plan is
+	 * never in memory. The issues of each file are written together, in the
+	 * order they must be executed in.
+	 * 
+	 * @param files
+	 *            The files to analyze. This value cannot be null, but may be
+	 *            empty.
+	 * @param issueIDGenerator
+	 *            The generator for the IDs of the issues in the plan. IDs are
+	 *            assigned in the order of the files, and in the order the
+	 *            issues were found in each file. This value cannot be null.
+	 * @param planWriter
+	 *            The writer to write the issues to. This value cannot be null.
+	 *            It is not closed by this.
+	 * 
+	 * @return The number of issues that were written. This value will be &gt;=
+	 *         0.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the files, writing to the log
+	 *             or writing the plan.
+	 */
+	public int createPlan(List<File> files, IDGenerator issueIDGenerator, PlanWriter planWriter)
+			throws IOException {
+		Check.notNull(files, "files");
+		Check.notNull(issueIDGenerator, "issueIDGenerator");
+		Check.notNull(planWriter, "planWriter");
+
+		int beforeCount = planWriter.getIssueCount();
+		Plan.IssueComparator comparator = new Plan.IssueComparator();
+		createPlan(files, issueIDGenerator, fileIssues -> {
+			List<Issue> sortedIssues = new ArrayList<>(fileIssues);
+			Collections.sort(sortedIssues, comparator);
+			for (Issue issue : sortedIssues) {
+				planWriter.write(issue);
+			}
+		});
+
+		return planWriter.getIssueCount() - beforeCount;
+	}
+
+	/**
+	 * Finds the issues in the given files, and passes the issues of each file
+	 * to the given handler in the order of the files.
+	 * 
+	 * @param files
+	 *            The files to analyze. This value cannot be null, but may be
+	 *            empty.
+	 * @param issueIDGenerator
+	 *            The generator for the IDs of the issues. This value cannot be
+	 *            null.
+	 * @param handler
+	 *            The handler for the issues of each file. This value cannot be
+	 *            null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the files, writing to the log
+	 *             or handling the issues.
+	 */
+	private void createPlan(List<File> files, IDGenerator issueIDGenerator, FileIssuesHandler handler)
+			throws IOException {
+		int skipped = 0;
+		int parsed = 0;
+		int cached = 0;
+		classSignatures.clear();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<FileResult>> futures = new ArrayList<>();
+			for (File source : files) {
+				futures.add(executor.submit(() -> createPlanForFile(source)));
+			}
+
+			for (Future<FileResult> future : futures) {
+				FileResult result = getResult(future);
+				if (result.skipped) {
+					skipped++;
+					continue;
+				}
+
+				if (result.cached) {
+					cached++;
+				} else {
+					parsed++;
+				}
+
+				for (String message : result.messages) {
+					log(message);
+				}
+
+				for (Issue issue : result.issues) {
+					issue.setID(issueIDGenerator.nextID());
+				}
+				handler.handle(result.issues);
+
+				String found = result.cached ? "Reused " : "Found ";
+				log(found + result.issues.size() + " issues (" + result.time + " ms) in "
+						+ result.file.getAbsolutePath());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		skippedFileCount = skipped;
+		parsedFileCount = parsed;
+		cachedFileCount = cached;
+		log("Skipped " + skipped + " of " + files.size() + " files that no pattern can match");
+		if (cache != null) {
+			log("Reused the issues of " + cached + " of " + files.size() + " files from the cache");
+		}
+	}
+
+	/**
+	 * Finds the issues in one file.
+	 * 
+	 * @param source
+	 *            The file to analyze. This value cannot be null.
+	 * 
+	 * @return The issues and log messages for the file. This value will not be
+	 *         null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the file.
+	 */
+	private FileResult createPlanForFile(File source) throws IOException {
+		long beforeTime = System.currentTimeMillis();
+
+		FileResult result = new FileResult(source);
+		FileContents contents = null;
+		if (prefilterEnabled || cache != null) {
+			contents = new FileContents(source);
+			try {
+				contents.load();
+			} catch (IOException e) {
+				// let the patterns report the problem as before
+				contents = null;
+			}
+		}
+
+		String cacheKey = null;
+		if (cache != null && contents != null) {
+			cacheKey = PlanCache.createKey(patternsHash, contents.getContents(), index, classSignatures);
+			List<Issue> cachedIssues = cache.getIssues(source, cacheKey, patterns);
+			if (cachedIssues != null) {
+				result.issues.addAll(cachedIssues);
+				result.cached = true;
+				result.time = System.currentTimeMillis() - beforeTime;
+				return result;
+			}
+		}
+
+		if (prefilterEnabled && contents != null && !prefilter.mayMatch(source, contents.getContents())) {
+			if (cacheKey != null) {
+				cache.putIssues(source, cacheKey, result.issues, patterns);
+			}
+			result.skipped = true;
+			return result;
+		}
+
+		JavaItemIndex fileIndex = new JavaItemIndex(index.getVersion(), index);
+		JavaItemUtil2 util = new JavaItemUtil2();
+		util.initialize(new JavaItemFactory(fileIndex));
+
+		// IDs are only used to keep the order the issues were found in, the
+		// final IDs are assigned when merging
+		Context context = new Context(new IDGenerator(0));
+		context.set(Context.Prop.LOG_WRITER, logWriter);
+		context.set(Context.Prop.JAVA_ITEM_INDEX, fileIndex);
+		context.set(Context.Prop.JAVA_ITEM_UTIL, util);
+		context.set(Context.Prop.DEPENDENCY_WORKSPACE, workspace);
+		context.set(Context.Prop.FILE, source);
+		if (contents != null) {
+			context.set(Context.Prop.FILE_CONTENTS, contents);
+		}
+
+		Plan filePlan = new Plan();
+		for (PatternMatch match : matcher.findAll(context)) {
+			Pattern pattern = match.getPattern();
+			try {
+				pattern.addIssuesForPlan(context, filePlan, match.getResults());
+			} catch (RuntimeException e) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				XMLUtil.writeXML(pattern, out);
+				out.flush();
+				out.close();
+				String patternText = out.toString();
+				result.messages.add("Error occurred while analyzing file " + source.getAbsolutePath()
+						+ " with pattern " + patternText);
+				result.messages.add(getStackTrace(e));
+			}
+		}
+
+		for (Plan.Conflict conflict : filePlan.getConflicts()) {
+			result.messages.add("Issue at " + conflict.getIssue().getLocation().getFormattedRange() + " in "
+					+ source.getAbsolutePath() + " replaces text which overlaps with the issue at "
+					+ conflict.getExistingIssue().getLocation().getFormattedRange()
+					+ ", only one of them can be executed");
+		}
+
+		result.issues.addAll(filePlan.getIssues());
+		Collections.sort(result.issues, new Comparator<Issue>() {
+
+			@Override
+			public int compare(Issue o1, Issue o2) {
+				return Integer.compare(o1.getID(), o2.getID());
+			}
+
+		});
+
+		// issues are not stored if a pattern failed or issues conflict, so the
+		// problem is reported again next time
+		if (cacheKey != null && result.messages.isEmpty()) {
+			cache.putIssues(source, cacheKey, result.issues, patterns);
+		}
+
+		result.time = System.currentTimeMillis() - beforeTime;
+
+		return result;
+	}
+
+	/**
+	 * Waits for the result of one file and returns it.
+	 * 
+	 * @param future
+	 *            The future result of analyzing a file. This value cannot be
+	 *            null.
+	 * 
+	 * @return The result for the file. This value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If the file could not be read.
+	 */
+	private FileResult getResult(Future<FileResult> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while creating the plan.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Returns the stack trace of the given exception as a string.
+	 * 
+	 * @param t
+	 *            The exception to get the stack trace of. This value cannot be
+	 *            null.
+	 * 
+	 * @return The stack trace. This value will not be null.
+	 */
+	private String getStackTrace(Throwable t) {
+		StringWriter stringWriter = new StringWriter();
+		PrintWriter printWriter = new PrintWriter(new BufferedWriter(stringWriter));
+		t.printStackTrace(printWriter);
+		printWriter.flush();
+		return stringWriter.toString();
+	}
+
+	/**
+	 * Logs the given string to the log file and the console.
+	 * 
+	 * @param string
+	 *            The message to write. If null, the message will be "null".
+	 * 
+	 * @throws IOException
+	 *             If an error occurs while writing to the log file.
+	 */
+	private void log(String string) throws IOException {
+		System.out.println(string);
+		logWriter.append(string);
+		logWriter.append(System.getProperty("line.separator"));
+		logWriter.flush();
+	}
+
+	/**
+	 * This interface receives the issues found in each file.
+	 */
+	private interface FileIssuesHandler {
+
+		/**
+		 * Handles the issues found in one file.
+		 * 
+		 * @param fileIssues
+		 *            The issues found in the file, with their final IDs, in the
+		 *            order they were found. This value cannot be null, but may
+		 *            be empty.
+		 * 
+		 * @throws IOException
+		 *             If there was an error handling the issues.
+		 */
+		void handle(List<Issue> fileIssues) throws IOException;
+	}
+
+	/**
+	 * This class holds the issues found in one file, and the messages to log
+	 * for the file.
+	 */
+	private static class FileResult {
+
+		/**
+		 * The file that was analyzed.
+		 */
+		private File file;
+
+		/**
+		 * The issues found in the file, in the order they were found.
+		 */
+		private List<Issue> issues = new ArrayList<>();
+
+		/**
+		 * The messages to log for the file, in order.
+		 */
+		private List<String> messages = new ArrayList<>();
+
+		/**
+		 * The time it took to analyze the file, in milliseconds.
+		 */
+		private long time;
+
+		/**
+		 * True if the file was skipped because no pattern can find anything
+		 * in it, false otherwise.
+		 */
+		private boolean skipped;
+
+		/**
+		 * True if the issues were taken from the cache, false if the file was
+		 * analyzed.
+		 */
+		private boolean cached;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param file
+		 *            The file that was analyzed. This value cannot be null.
+		 */
+		private FileResult(File file) {
+			this.file = file;
+		}
+	}
+}
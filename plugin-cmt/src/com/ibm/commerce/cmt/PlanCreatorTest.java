@@ -0,0 +1,294 @@
+package com.ibm.commerce.cmt;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.cmt.plan.Plan;
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.model.JavaItemFactory;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+
+/**
+ * This class tests the {@link PlanCreator} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanCreatorTest extends MigrationTestCase {
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		parentDir = new File("testData\\classRefCmd");
+	}
+
+	/**
+	 * Tests that if a plan is created with many threads, it is exactly the
+	 * same as the plan created with one thread, including the issue IDs.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCreatePlanIfManyThreadsExpectSamePlanAsOneThread() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\v8-v9-wc-patterns.xml"), new File("testData\\v8-v9-customer-patterns.xml"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		List<File> files = new ArrayList<>();
+		for (int i = 1; i <= 21; i++) {
+			files.add(prepareTestFile("Test" + i + "Java.txt"));
+		}
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		PlanCreator oneThreadCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 1);
+		Plan oneThreadPlan = oneThreadCreator.createPlan(files, new IDGenerator(1));
+
+		PlanCreator manyThreadCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 8);
+		Plan manyThreadPlan = manyThreadCreator.createPlan(files, new IDGenerator(1));
+
+		assertTrue("No issues were found.", oneThreadPlan.getIssues().size() > 0);
+		assertEquals("Plans are different.", toXMLString(oneThreadPlan), toXMLString(manyThreadPlan));
+	}
+
+	/**
+	 * Tests that if a plan is created with an ID generator, the issue IDs
+	 * continue from the generator.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCreatePlanIfGeneratorSeededExpectIDsContinueFromSeed() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		List<File> files = Arrays.asList(prepareTestFile("Test1Java.txt"), prepareTestFile("Test2Java.txt"));
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		IDGenerator issueIDGenerator = new IDGenerator(100);
+		PlanCreator creator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		Plan plan = creator.createPlan(files, issueIDGenerator);
+
+		int issueCount = plan.getIssues().size();
+		assertTrue("No issues were found.", issueCount > 0);
+		assertEquals("Next ID is wrong.", 100 + issueCount, issueIDGenerator.nextID());
+	}
+
+	/**
+	 * Tests that if the prefilter skips files, the plan is exactly the same as
+	 * the plan created by parsing every file, for all the test patterns and
+	 * test files.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCreatePlanIfPrefilterEnabledExpectNoIssueLost() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\v8-v9-wc-patterns.xml"), new File("testData\\v8-v9-customer-patterns.xml"),
+				new File("testData\\realWorkspacePatterns.txt"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		List<File> files = new ArrayList<>();
+		for (int i = 1; i <= 22; i++) {
+			files.add(prepareTestFile("Test" + i + "Java.txt"));
+		}
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		PlanCreator allFilesCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 1);
+		allFilesCreator.setPrefilterEnabled(false);
+		Plan allFilesPlan = allFilesCreator.createPlan(files, new IDGenerator(1));
+
+		PlanCreator prefilterCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 1);
+		Plan prefilterPlan = prefilterCreator.createPlan(files, new IDGenerator(1));
+
+		assertTrue("No issues were found.", allFilesPlan.getIssues().size() > 0);
+		assertEquals("Plans are different.", toXMLString(allFilesPlan), toXMLString(prefilterPlan));
+		assertEquals("Files were skipped without the prefilter.", 0, allFilesCreator.getSkippedFileCount());
+	}
+
+	/**
+	 * Tests that if a file does not contain any name from the patterns, it is
+	 * skipped and the skipped files are counted.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCreatePlanIfFileHasNoPatternNamesExpectSkipped() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\realWorkspacePatterns.txt"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		List<File> files = Arrays.asList(prepareTestFile("Test1Java.txt"), prepareTestFile("Test22Java.txt"),
+				prepareTestFile("Test2Java.txt"));
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		PlanCreator creator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		Plan plan = creator.createPlan(files, new IDGenerator(1));
+
+		assertTrue("No issues were found.", plan.getIssues().size() > 0);
+		assertEquals("Wrong number of skipped files.", 1, creator.getSkippedFileCount());
+	}
+
+	/**
+	 * Tests that if a plan is created twice with the same cache, the second
+	 * time no files are parsed and the plan is exactly the same.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCreatePlanIfCachedAndNothingChangedExpectNoFilesParsed() throws Exception {
+		Configuration config = loadCacheConfiguration();
+		List<File> files = prepareCacheTestFiles();
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		PlanCache cache = new PlanCache(getCacheFile());
+		PlanCreator firstCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		firstCreator.setCache(cache);
+		Plan firstPlan = firstCreator.createPlan(files, new IDGenerator(1));
+
+		PlanCreator secondCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		secondCreator.setCache(cache);
+		Plan secondPlan = secondCreator.createPlan(files, new IDGenerator(1));
+
+		assertTrue("No files were parsed the first time.", firstCreator.getParsedFileCount() > 0);
+		assertTrue("No issues were found.", firstPlan.getIssues().size() > 0);
+		assertEquals("Files were parsed the second time.", 0, secondCreator.getParsedFileCount());
+		assertEquals("Wrong number of cached files.", files.size(), secondCreator.getCachedFileCount());
+		assertEquals("Plans are different.", toXMLString(firstPlan), toXMLString(secondPlan));
+	}
+
+	/**
+	 * Tests that if the cache is saved and loaded again, no files are parsed
+	 * and the plan is exactly the same.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCreatePlanIfCacheSavedAndLoadedExpectNoFilesParsed() throws Exception {
+		Configuration config = loadCacheConfiguration();
+		List<File> files = prepareCacheTestFiles();
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		File cacheFile = getCacheFile();
+		PlanCache savedCache = new PlanCache(cacheFile);
+		PlanCreator firstCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		firstCreator.setCache(savedCache);
+		Plan firstPlan = firstCreator.createPlan(files, new IDGenerator(1));
+		savedCache.save();
+
+		PlanCache loadedCache = new PlanCache(cacheFile);
+		loadedCache.load();
+		PlanCreator secondCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		secondCreator.setCache(loadedCache);
+		Plan secondPlan = secondCreator.createPlan(files, new IDGenerator(1));
+
+		assertEquals("Wrong number of loaded files.", files.size(), loadedCache.size());
+		assertEquals("Files were parsed the second time.", 0, secondCreator.getParsedFileCount());
+		assertEquals("Plans are different.", toXMLString(firstPlan), toXMLString(secondPlan));
+	}
+
+	/**
+	 * Tests that if a class that some files refer to is added to the index,
+	 * only those files are analyzed again, and the plan is the same as the
+	 * plan created without a cache.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCreatePlanIfReferencedClassChangedExpectOnlyReferringFilesAnalyzed() throws Exception {
+		Configuration config = loadCacheConfiguration();
+		List<File> files = prepareCacheTestFiles();
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		PlanCache cache = new PlanCache(getCacheFile());
+		PlanCreator firstCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		firstCreator.setCache(cache);
+		firstCreator.createPlan(files, new IDGenerator(1));
+
+		// Test1 and Test2 refer to FinderException, Test22 does not
+		JavaItemFactory factory = new JavaItemFactory(index);
+		JavaItem javaxEJB = factory.createPackage(null, "javax.ejb");
+		factory.createClass(javaxEJB, "FinderException");
+
+		PlanCreator secondCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		secondCreator.setCache(cache);
+		Plan secondPlan = secondCreator.createPlan(files, new IDGenerator(1));
+
+		PlanCreator uncachedCreator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		Plan uncachedPlan = uncachedCreator.createPlan(files, new IDGenerator(1));
+
+		assertEquals("Wrong number of cached files.", 1, secondCreator.getCachedFileCount());
+		assertEquals("Wrong number of analyzed files.", 2,
+				secondCreator.getParsedFileCount() + secondCreator.getSkippedFileCount());
+		assertEquals("Plans are different.", toXMLString(uncachedPlan), toXMLString(secondPlan));
+	}
+
+	private Configuration loadCacheConfiguration() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\realWorkspacePatterns.txt"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+		return config;
+	}
+
+	private List<File> prepareCacheTestFiles() throws Exception {
+		return Arrays.asList(prepareTestFile("Test1Java.txt"), prepareTestFile("Test2Java.txt"),
+				prepareTestFile("Test22Java.txt"));
+	}
+
+	private File getCacheFile() throws Exception {
+		File cacheFile = File.createTempFile("cmtplan", ".cache");
+		cacheFile.delete();
+		cacheFile.deleteOnExit();
+		return cacheFile;
+	}
+
+	private String toXMLString(Plan plan) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XMLUtil.writeXML(plan, out);
+		out.close();
+		return out.toString();
+	}
+}
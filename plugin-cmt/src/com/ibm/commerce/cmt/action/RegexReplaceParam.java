@@ -19,6 +19,7 @@
  */
 
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -35,15 +36,41 @@
 /**
  * This class is used to replace some text in a string using a regular
  * expression.
+ * <p>
+ * The replacement text may refer to the groups matched during the search
+ * phase with <code>$N</code>, where N is a single digit, and may call a
+ * function with <code>$name{parameter}</code>, where the parameter may refer
+ * to groups too. The only function is <code>tolower</code>. The replacement
+ * text is parsed once when this is created, and only the groups are filled in
+ * for each replacement. Errors in the replacement text are reported when it is
+ * used, as they would be if it was parsed for each replacement.
  * 
  * @author Trent Hoeppner
  */
 public class RegexReplaceParam implements ReplaceParam<String> {
 
+	/**
+	 * The pattern to find the start of a group reference or function call,
+	 * which is a dollar sign that is not escaped with a backslash.
+	 */
+	private static final Pattern REPLACE_START_PATTERN = Pattern.compile("(?<!\\\\)\\$");
+
+	/**
+	 * The pattern to find a function call, where group 1 is the function name
+	 * and group 2 is the parameter.
+	 */
+	private static final Pattern FUNCTION_PATTERN = Pattern.compile("(\\w+)\\{([^}]*)\\}");
+
 	private String regex;
 
+	/**
+	 * The parsed form of {@link #regex}.
+	 */
+	private Template template;
+
 	public RegexReplaceParam(String regex) {
 		this.regex = regex;
+		this.template = new Template(regex);
 	}
 
 	@Override
@@ -71,80 +98,270 @@ public Node toXML(Document doc) {
 
 	@Override
 	public String findReplacement(Context context, String source) {
-		return findReplacementInternal(context, regex);
+		StringBuilder b = new StringBuilder();
+		template.append(context, b);
+
+		String replacement = b.toString();
+
+		return replacement;
 	}
 
-	private String findReplacementInternal(Context context, String regex) {
-		List<String> groups = context.get(Context.Prop.ALL_GROUPS);
-		Pattern replaceStartPattern = Pattern.compile("(?<!\\\\)\\$");
-		Matcher replaceStartMatcher = replaceStartPattern.matcher(regex);
-		Pattern functionPattern = Pattern.compile("(\\w+)\\{([^}]*)\\}");
+	/**
+	 * This class is a parsed replacement text, which is a sequence of parts
+	 * that are plain text, group references and function calls.
+	 */
+	private static class Template {
 
-		StringBuilder b = new StringBuilder();
-		int lastEndMatchIndex = 0;
-		while (replaceStartMatcher.find(lastEndMatchIndex)) {
-			int startIndex = replaceStartMatcher.start();
-			int endIndex;
-			String group;
-
-			// determine if it's a single digit next, or something else
-			char nextChar = regex.charAt(startIndex + 1);
-			if (!Character.isDigit(nextChar)) {
-				Matcher functionMatcher = functionPattern.matcher(regex);
-				functionMatcher.region(startIndex + 1, regex.length());
-				if (!functionMatcher.find()) {
-					throw new IllegalStateException("regular expression does not define a group or a function at "
-							+ (startIndex + 1) + ": " + regex);
-				}
+		/**
+		 * The parts of the replacement text, in order.
+		 */
+		private List<Part> parts = new ArrayList<>();
 
-				endIndex = functionMatcher.end();
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param regex
+		 *            The replacement text to parse. This value cannot be null.
+		 */
+		private Template(String regex) {
+			Matcher replaceStartMatcher = REPLACE_START_PATTERN.matcher(regex);
 
-				String functionName = functionMatcher.group(1);
-				String functionParameter = functionMatcher.group(2);
-				String evaluatedParameter = null;
-				if (functionParameter != null) {
-					evaluatedParameter = findReplacementInternal(context, functionParameter);
+			int lastEndMatchIndex = 0;
+			while (replaceStartMatcher.find(lastEndMatchIndex)) {
+				int startIndex = replaceStartMatcher.start();
+				parts.add(new TextPart(regex.substring(lastEndMatchIndex, startIndex)));
+
+				int endIndex;
+				if (startIndex + 1 >= regex.length()) {
+					// nothing can follow, so the rest cannot be evaluated
+					parts.add(new ErrorPart("regular expression does not define a group or a function at "
+							+ (startIndex + 1) + ": " + regex));
+					return;
 				}
 
-				if ("tolower".equals(functionName)) {
-					group = evaluatedParameter.toLowerCase();
+				// determine if it's a single digit next, or something else
+				char nextChar = regex.charAt(startIndex + 1);
+				if (!Character.isDigit(nextChar)) {
+					Matcher functionMatcher = FUNCTION_PATTERN.matcher(regex);
+					functionMatcher.region(startIndex + 1, regex.length());
+					if (!functionMatcher.find()) {
+						parts.add(new ErrorPart("regular expression does not define a group or a function at "
+								+ (startIndex + 1) + ": " + regex));
+						return;
+					}
+
+					endIndex = functionMatcher.end();
+
+					String functionName = functionMatcher.group(1);
+					Template parameter = new Template(functionMatcher.group(2));
+					parts.add(new FunctionPart(functionName, parameter,
+							"regular expression specifies an undefined function name at " + (startIndex + 1) + ": "
+									+ regex));
 				} else {
-					throw new IllegalStateException("regular expression specifies an undefined function name at "
-							+ (startIndex + 1) + ": " + regex);
-				}
-			} else {
-				endIndex = replaceStartMatcher.end() + 1;
-				int groupIndex = Integer.parseInt("" + nextChar);
-				if (groupIndex >= groups.size()) {
-					Issue issue = context.get(Context.Prop.ISSUE);
-					ByteArrayOutputStream out = new ByteArrayOutputStream();
-					XMLUtil.writeXML(issue.getPattern(), out);
-					String patternXML = out.toString();
-					throw new IllegalStateException(
-							"No such group index: " + groupIndex + " for pattern\n" + patternXML);
+					endIndex = replaceStartMatcher.end() + 1;
+					parts.add(new GroupPart(Character.digit(nextChar, 10)));
 				}
 
-				group = groups.get(groupIndex);
+				lastEndMatchIndex = endIndex;
 			}
 
-			try {
-				String lastNormalText = regex.substring(lastEndMatchIndex, startIndex);
-				b.append(lastNormalText);
-			} catch (StringIndexOutOfBoundsException e) {
-				e.printStackTrace();
+			parts.add(new TextPart(regex.substring(lastEndMatchIndex, regex.length())));
+		}
+
+		/**
+		 * Appends the replacement text to the given builder, filling in the
+		 * groups from the given context.
+		 * 
+		 * @param context
+		 *            The context which contains the groups that were matched.
+		 *            This value cannot be null.
+		 * @param b
+		 *            The builder to append to. This value cannot be null.
+		 * 
+		 * @throws IllegalStateException
+		 *             If the replacement text refers to a group that was not
+		 *             matched, or is not valid.
+		 */
+		private void append(Context context, StringBuilder b) {
+			for (Part part : parts) {
+				part.append(context, b);
 			}
+		}
+	}
 
-			b.append(group);
+	/**
+	 * This class is one part of a {@link Template}.
+	 */
+	private static abstract class Part {
 
-			lastEndMatchIndex = endIndex;
+		/**
+		 * Appends the text for this part to the given builder.
+		 * 
+		 * @param context
+		 *            The context which contains the groups that were matched.
+		 *            This value cannot be null.
+		 * @param b
+		 *            The builder to append to. This value cannot be null.
+		 * 
+		 * @throws IllegalStateException
+		 *             If the text for this part cannot be determined.
+		 */
+		protected abstract void append(Context context, StringBuilder b);
+	}
+
+	/**
+	 * This class is plain text that is copied to the replacement.
+	 */
+	private static class TextPart extends Part {
+
+		/**
+		 * The text to copy.
+		 */
+		private String text;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param text
+		 *            The text to copy. This value cannot be null.
+		 */
+		private TextPart(String text) {
+			this.text = text;
 		}
 
-		String lastNormalText = regex.substring(lastEndMatchIndex, regex.length());
-		b.append(lastNormalText);
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void append(Context context, StringBuilder b) {
+			b.append(text);
+		}
+	}
 
-		String replacement = b.toString();
+	/**
+	 * This class is a reference to a group that was matched during the search
+	 * phase.
+	 */
+	private static class GroupPart extends Part {
 
-		return replacement;
+		/**
+		 * The index of the group in {@link Context.Prop#ALL_GROUPS}.
+		 */
+		private int groupIndex;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param groupIndex
+		 *            The index of the group in {@link Context.Prop#ALL_GROUPS}.
+		 *            This value must be &gt;= 0.
+		 */
+		private GroupPart(int groupIndex) {
+			this.groupIndex = groupIndex;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void append(Context context, StringBuilder b) {
+			List<String> groups = context.get(Context.Prop.ALL_GROUPS);
+			if (groupIndex >= groups.size()) {
+				Issue issue = context.get(Context.Prop.ISSUE);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				XMLUtil.writeXML(issue.getPattern(), out);
+				String patternXML = out.toString();
+				throw new IllegalStateException("No such group index: " + groupIndex + " for pattern\n" + patternXML);
+			}
+
+			b.append(groups.get(groupIndex));
+		}
+	}
+
+	/**
+	 * This class is a call to a function with the replacement text of its
+	 * parameter.
+	 */
+	private static class FunctionPart extends Part {
+
+		/**
+		 * The name of the function to call.
+		 */
+		private String functionName;
+
+		/**
+		 * The parameter of the function.
+		 */
+		private Template parameter;
+
+		/**
+		 * The message for the exception that is thrown if the function is not
+		 * defined.
+		 */
+		private String undefinedMessage;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param functionName
+		 *            The name of the function to call. This value cannot be
+		 *            null.
+		 * @param parameter
+		 *            The parameter of the function. This value cannot be null.
+		 * @param undefinedMessage
+		 *            The message for the exception that is thrown if the
+		 *            function is not defined. This value cannot be null.
+		 */
+		private FunctionPart(String functionName, Template parameter, String undefinedMessage) {
+			this.functionName = functionName;
+			this.parameter = parameter;
+			this.undefinedMessage = undefinedMessage;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void append(Context context, StringBuilder b) {
+			StringBuilder evaluatedParameter = new StringBuilder();
+			parameter.append(context, evaluatedParameter);
+
+			if ("tolower".equals(functionName)) {
+				b.append(evaluatedParameter.toString().toLowerCase());
+			} else {
+				throw new IllegalStateException(undefinedMessage);
+			}
+		}
+	}
+
+	/**
+	 * This class is a part of the replacement text that is not valid, which
+	 * causes an exception when the replacement is used.
+	 */
+	private static class ErrorPart extends Part {
+
+		/**
+		 * The message for the exception.
+		 */
+		private String message;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param message
+		 *            The message for the exception. This value cannot be null.
+		 */
+		private ErrorPart(String message) {
+			this.message = message;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void append(Context context, StringBuilder b) {
+			throw new IllegalStateException(message);
+		}
 	}
 
 }
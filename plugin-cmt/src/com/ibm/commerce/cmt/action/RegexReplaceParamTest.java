@@ -0,0 +1,210 @@
+package com.ibm.commerce.cmt.action;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import com.ibm.commerce.cmt.Configuration;
+import com.ibm.commerce.cmt.Context;
+import com.ibm.commerce.cmt.Param;
+import com.ibm.commerce.cmt.Pattern;
+import com.ibm.commerce.cmt.plan.IDGenerator;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link RegexReplaceParam} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class RegexReplaceParamTest extends TestCase {
+
+	public void testFindReplacementIfGroupsExpectGroupsReplaced() {
+		RegexReplaceParam param = new RegexReplaceParam("com.ibm.commerce.$1.objsrc.$2AccessHelper");
+
+		assertEquals("Wrong replacement.", "com.ibm.commerce.catalog.objsrc.CatalogAccessHelper",
+				param.findReplacement(createContext("all", "catalog", "Catalog"), "ignored"));
+	}
+
+	public void testFindReplacementIfToLowerExpectGroupInLowerCase() {
+		RegexReplaceParam param = new RegexReplaceParam("setInitKey_$tolower{$1}$2");
+
+		assertEquals("Wrong replacement.", "setInitKey_catalogId",
+				param.findReplacement(createContext("all", "CATALOG", "Id"), "ignored"));
+	}
+
+	public void testFindReplacementIfDollarEscapedExpectNotReplaced() {
+		RegexReplaceParam param = new RegexReplaceParam("a\\$1b$1");
+
+		assertEquals("Wrong replacement.", "a\\$1bfirst",
+				param.findReplacement(createContext("all", "first"), "ignored"));
+	}
+
+	public void testFindReplacementIfUndefinedFunctionExpectExceptionWhenUsed() {
+		// the error is reported when the replacement is used, not when parsed
+		RegexReplaceParam param = new RegexReplaceParam("get$beanify{$1}()");
+
+		try {
+			param.findReplacement(createContext("all", "name"), "ignored");
+			fail("IllegalStateException was not thrown.");
+		} catch (IllegalStateException e) {
+			// success
+		}
+	}
+
+	public void testFindReplacementIfDollarAtEndExpectException() {
+		RegexReplaceParam param = new RegexReplaceParam("name$");
+
+		try {
+			param.findReplacement(createContext("all"), "ignored");
+			fail("IllegalStateException was not thrown.");
+		} catch (IllegalStateException e) {
+			// success
+		}
+	}
+
+	/**
+	 * Tests that for every replacement in the test pattern files, the
+	 * replacement parsed once when loading is the same as the replacement
+	 * parsed every time it is used.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testFindReplacementIfAllTestPatternsExpectSameAsParsingEachTime() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\v8-v9-wc-patterns.xml"), new File("testData\\v8-v9-customer-patterns.xml"),
+				new File("testData\\realWorkspacePatterns.txt"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		List<RegexReplaceParam> params = new ArrayList<>();
+		for (Pattern pattern : config.getPatterns()) {
+			addRegexReplaceParams(pattern.getAction(), params);
+		}
+
+		assertTrue("No replacements were found.", params.size() > 0);
+
+		Context context = createContext("com.ibm.commerce.catalog.objects.CatalogAccessBean", "catalog", "Catalog",
+				"Id", "MIXED_Case", "five", "six", "seven", "eight", "nine");
+		for (RegexReplaceParam param : params) {
+			String expected;
+			try {
+				expected = findReplacementByParsing(context, param.getData());
+			} catch (IllegalStateException e) {
+				expected = e.getMessage();
+			}
+
+			String actual;
+			try {
+				actual = param.findReplacement(context, "ignored");
+			} catch (IllegalStateException e) {
+				actual = e.getMessage();
+			}
+
+			assertEquals("Wrong replacement for " + param.getData(), expected, actual);
+		}
+	}
+
+	private Context createContext(String... groups) {
+		Context context = new Context(new IDGenerator(1));
+		context.set(Context.Prop.ALL_MATCHERS, new ArrayList<Matcher>());
+		context.set(Context.Prop.ALL_GROUPS, new ArrayList<>(Arrays.asList(groups)));
+		return context;
+	}
+
+	private void addRegexReplaceParams(Param param, List<RegexReplaceParam> params) {
+		if (param instanceof RegexReplaceParam) {
+			params.add((RegexReplaceParam) param);
+		}
+
+		List<? extends Param> subParams = param.getSubParams();
+		if (subParams != null) {
+			for (Param subParam : subParams) {
+				addRegexReplaceParams(subParam, params);
+			}
+		}
+	}
+
+	/**
+	 * Finds the replacement by parsing the given replacement text, the way it
+	 * was done before the replacement text was parsed only once. All groups
+	 * referred to must be in the context.
+	 * 
+	 * @param context
+	 *            The context which contains the groups. This value cannot be
+	 *            null.
+	 * @param regex
+	 *            The replacement text. This value cannot be null.
+	 * 
+	 * @return The replacement. This value will not be null.
+	 */
+	private String findReplacementByParsing(Context context, String regex) {
+		List<String> groups = context.get(Context.Prop.ALL_GROUPS);
+		java.util.regex.Pattern replaceStartPattern = java.util.regex.Pattern.compile("(?<!\\\\)\\$");
+		Matcher replaceStartMatcher = replaceStartPattern.matcher(regex);
+		java.util.regex.Pattern functionPattern = java.util.regex.Pattern.compile("(\\w+)\\{([^}]*)\\}");
+
+		StringBuilder b = new StringBuilder();
+		int lastEndMatchIndex = 0;
+		while (replaceStartMatcher.find(lastEndMatchIndex)) {
+			int startIndex = replaceStartMatcher.start();
+			int endIndex;
+			String group;
+
+			char nextChar = regex.charAt(startIndex + 1);
+			if (!Character.isDigit(nextChar)) {
+				Matcher functionMatcher = functionPattern.matcher(regex);
+				functionMatcher.region(startIndex + 1, regex.length());
+				if (!functionMatcher.find()) {
+					throw new IllegalStateException("regular expression does not define a group or a function at "
+							+ (startIndex + 1) + ": " + regex);
+				}
+
+				endIndex = functionMatcher.end();
+
+				String functionName = functionMatcher.group(1);
+				String evaluatedParameter = findReplacementByParsing(context, functionMatcher.group(2));
+				if ("tolower".equals(functionName)) {
+					group = evaluatedParameter.toLowerCase();
+				} else {
+					throw new IllegalStateException("regular expression specifies an undefined function name at "
+							+ (startIndex + 1) + ": " + regex);
+				}
+			} else {
+				endIndex = replaceStartMatcher.end() + 1;
+				group = groups.get(Integer.parseInt("" + nextChar));
+			}
+
+			b.append(regex.substring(lastEndMatchIndex, startIndex));
+			b.append(group);
+
+			lastEndMatchIndex = endIndex;
+		}
+
+		b.append(regex.substring(lastEndMatchIndex, regex.length()));
+
+		return b.toString();
+	}
+}
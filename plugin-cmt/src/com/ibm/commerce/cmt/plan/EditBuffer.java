@@ -0,0 +1,250 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.commerce.cmt.Check;
+
+/**
+ * This class holds the contents of a file while replacements are made to it.
+ * It is a piece table: the text is kept as pieces of the original contents
+ * and of the replacements, and is only copied into one string by
+ * {@link #toString()}.
+ * <p>
+ * A {@link Plan} executes the issues for a file from the end of the file to
+ * the beginning, so each replacement is before all the replacements made
+ * before it. In that case, the start of the contents up to the earliest
+ * replacement is still the original, and a replacement only splits that
+ * original piece, so k replacements to n characters take O(n + k) time in
+ * total. A replacement which ends after the earliest replacement first copies
+ * the pieces into a new original, which takes O(n) time like
+ * {@link StringBuilder#replace(int, int, String)}.
+ * 
+ * @author Trent Hoeppner
+ */
+public class EditBuffer {
+
+	/**
+	 * The text which the start of the contents comes from.
+	 */
+	private String original;
+
+	/**
+	 * The number of characters at the start of the contents which are the
+	 * same as the start of {@link #original}. Every replacement so far was
+	 * made at or after this index.
+	 */
+	private int originalEnd;
+
+	/**
+	 * The pieces after {@link #originalEnd}, from the last piece to the
+	 * first.
+	 */
+	private List<Piece> pieces = new ArrayList<>();
+
+	/**
+	 * The total number of characters in {@link #pieces}.
+	 */
+	private int piecesLength;
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param contents
+	 *            The original contents. This value cannot be null.
+	 */
+	public EditBuffer(String contents) {
+		Check.notNull(contents, "contents");
+
+		this.original = contents;
+		this.originalEnd = contents.length();
+	}
+
+	/**
+	 * Returns the number of characters in the current contents.
+	 * 
+	 * @return The number of characters. This value will be &gt;= 0.
+	 */
+	public int length() {
+		return originalEnd + piecesLength;
+	}
+
+	/**
+	 * Returns part of the current contents.
+	 * 
+	 * @param start
+	 *            The index of the first character, inclusive. This value must
+	 *            be &gt;= 0 and &lt;= end.
+	 * @param end
+	 *            The index after the last character. This value must be
+	 *            &lt;= {@link #length()}.
+	 * 
+	 * @return The characters between start and end. This value will not be
+	 *         null.
+	 * 
+	 * @throws StringIndexOutOfBoundsException
+	 *             If start or end are not valid.
+	 */
+	public String substring(int start, int end) {
+		checkRange(start, end);
+		if (end > originalEnd) {
+			flatten();
+		}
+
+		return original.substring(start, end);
+	}
+
+	/**
+	 * Replaces part of the current contents.
+	 * 
+	 * @param start
+	 *            The index of the first character to replace, inclusive. This
+	 *            value must be &gt;= 0 and &lt;= end.
+	 * @param end
+	 *            The index after the last character to replace. This value
+	 *            must be &lt;= {@link #length()}.
+	 * @param replacement
+	 *            The text to put in place of the characters between start and
+	 *            end. This value cannot be null, but may be empty.
+	 * 
+	 * @throws StringIndexOutOfBoundsException
+	 *             If start or end are not valid.
+	 */
+	public void replace(int start, int end, String replacement) {
+		Check.notNull(replacement, "replacement");
+		checkRange(start, end);
+		if (end > originalEnd) {
+			flatten();
+		}
+
+		if (end < originalEnd) {
+			addPiece(original, end, originalEnd);
+		}
+		if (!replacement.isEmpty()) {
+			addPiece(replacement, 0, replacement.length());
+		}
+		originalEnd = start;
+	}
+
+	/**
+	 * Returns the current contents.
+	 * 
+	 * @return The contents with all replacements made. This value will not be
+	 *         null.
+	 */
+	@Override
+	public String toString() {
+		if (pieces.isEmpty()) {
+			return original.substring(0, originalEnd);
+		}
+
+		StringBuilder b = new StringBuilder(length());
+		b.append(original, 0, originalEnd);
+		for (int i = pieces.size() - 1; i >= 0; i--) {
+			Piece piece = pieces.get(i);
+			b.append(piece.text, piece.start, piece.end);
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * Checks that the given range is in the current contents.
+	 * 
+	 * @param start
+	 *            The index of the first character, inclusive.
+	 * @param end
+	 *            The index after the last character.
+	 * 
+	 * @throws StringIndexOutOfBoundsException
+	 *             If start or end are not valid.
+	 */
+	private void checkRange(int start, int end) {
+		if (start < 0 || start > end || end > length()) {
+			throw new StringIndexOutOfBoundsException(
+					"start " + start + ", end " + end + ", length " + length());
+		}
+	}
+
+	/**
+	 * Adds a piece before all the pieces so far.
+	 * 
+	 * @param text
+	 *            The text which contains the piece. This value cannot be null.
+	 * @param start
+	 *            The index of the first character of the piece in the text.
+	 * @param end
+	 *            The index after the last character of the piece in the text.
+	 */
+	private void addPiece(String text, int start, int end) {
+		pieces.add(new Piece(text, start, end));
+		piecesLength += end - start;
+	}
+
+	/**
+	 * Copies the current contents into a new original, so that any range can
+	 * be read or replaced.
+	 */
+	private void flatten() {
+		original = toString();
+		originalEnd = original.length();
+		pieces.clear();
+		piecesLength = 0;
+	}
+
+	/**
+	 * This class is a range of characters in a string.
+	 */
+	private static class Piece {
+
+		/**
+		 * The string which contains the characters.
+		 */
+		private String text;
+
+		/**
+		 * The index of the first character, inclusive.
+		 */
+		private int start;
+
+		/**
+		 * The index after the last character.
+		 */
+		private int end;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param text
+		 *            The string which contains the characters. This value
+		 *            cannot be null.
+		 * @param start
+		 *            The index of the first character, inclusive.
+		 * @param end
+		 *            The index after the last character.
+		 */
+		private Piece(String text, int start, int end) {
+			this.text = text;
+			this.start = start;
+			this.end = end;
+		}
+	}
+}
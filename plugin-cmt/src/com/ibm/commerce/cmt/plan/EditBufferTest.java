@@ -0,0 +1,244 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link EditBuffer} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class EditBufferTest extends TestCase {
+
+	/**
+	 * True if the benchmark should compare the speed of the buffer with a
+	 * StringBuilder, which is only reliable on an idle machine. This is set
+	 * with the <code>benchmark</code> system property.
+	 */
+	private static final boolean COMPARE_SPEED = Boolean.getBoolean("benchmark");
+
+	/**
+	 * The number of characters in the file for the benchmark, about 2 MB.
+	 */
+	private static final int LARGE_FILE_LENGTH = 2 * 1024 * 1024;
+
+	/**
+	 * The number of replacements for the benchmark.
+	 */
+	private static final int LARGE_FILE_EDITS = 5000;
+
+	public void testToStringIfNoReplacementsExpectOriginal() {
+		EditBuffer b = new EditBuffer("Hello World");
+
+		assertEquals("Contents are wrong.", "Hello World", b.toString());
+		assertEquals("Length is wrong.", 11, b.length());
+	}
+
+	public void testReplaceIfFromEndToStartExpectAllReplaced() {
+		EditBuffer b = new EditBuffer("Hello World");
+		b.replace(6, 11, "There");
+		b.replace(5, 6, "");
+		b.replace(0, 5, "Hi, ");
+
+		assertEquals("Contents are wrong.", "Hi, There", b.toString());
+		assertEquals("Length is wrong.", 9, b.length());
+	}
+
+	public void testReplaceIfFromStartToEndExpectAllReplaced() {
+		EditBuffer b = new EditBuffer("Hello World");
+		b.replace(0, 5, "Hi");
+		b.replace(3, 8, "Earth");
+
+		assertEquals("Contents are wrong.", "Hi Earth", b.toString());
+	}
+
+	public void testSubstringIfAfterReplacementExpectCurrentContents() {
+		EditBuffer b = new EditBuffer("one two three");
+		b.replace(8, 13, "3");
+		b.replace(4, 7, "2");
+
+		assertEquals("Substring before replacements is wrong.", "one", b.substring(0, 3));
+		assertEquals("Substring over replacements is wrong.", "2 3", b.substring(4, 7));
+	}
+
+	public void testSubstringIfEndAfterLengthExpectException() {
+		EditBuffer b = new EditBuffer("Hello");
+		try {
+			b.substring(2, 6);
+			fail("StringIndexOutOfBoundsException was not thrown.");
+		} catch (StringIndexOutOfBoundsException e) {
+			// success
+		}
+	}
+
+	public void testReplaceIfStartAfterEndExpectException() {
+		EditBuffer b = new EditBuffer("Hello");
+		try {
+			b.replace(3, 2, "x");
+			fail("StringIndexOutOfBoundsException was not thrown.");
+		} catch (StringIndexOutOfBoundsException e) {
+			// success
+		}
+	}
+
+	/**
+	 * Tests that if random non-overlapping replacements are made from the end
+	 * of the contents to the start, as a plan makes them, the contents are
+	 * the same as a StringBuilder.
+	 */
+	public void testReplaceIfRandomEditsFromEndExpectSameAsStringBuilder() {
+		Random random = new Random(12345);
+		for (int run = 0; run < 200; run++) {
+			String contents = randomText(random, random.nextInt(500));
+			List<int[]> edits = randomEdits(random, contents.length(), random.nextInt(50));
+			Collections.reverse(edits);
+
+			checkSameAsStringBuilder(random, contents, edits);
+		}
+	}
+
+	/**
+	 * Tests that if random replacements are made in any order, including
+	 * ranges which contain earlier replacements, the contents are the same as
+	 * a StringBuilder.
+	 */
+	public void testReplaceIfRandomEditsInAnyOrderExpectSameAsStringBuilder() {
+		Random random = new Random(54321);
+		for (int run = 0; run < 200; run++) {
+			String contents = randomText(random, random.nextInt(500));
+			EditBuffer b = new EditBuffer(contents);
+			StringBuilder expected = new StringBuilder(contents);
+			for (int i = 0; i < 30; i++) {
+				int start = random.nextInt(expected.length() + 1);
+				int end = start + random.nextInt(expected.length() - start + 1);
+				String replacement = randomText(random, random.nextInt(8));
+
+				assertEquals("Substring is wrong.", expected.substring(start, end), b.substring(start, end));
+				expected.replace(start, end, replacement);
+				b.replace(start, end, replacement);
+				assertEquals("Length is wrong.", expected.length(), b.length());
+			}
+
+			assertEquals("Contents are wrong.", expected.toString(), b.toString());
+		}
+	}
+
+	/**
+	 * Tests that if a 2 MB file has 5,000 replacements made from the end to
+	 * the start, the buffer gives the same contents as a StringBuilder. When
+	 * benchmarking, also tests that the buffer is faster.
+	 */
+	public void testReplaceIfLargeFileWithManyEditsExpectSameAsStringBuilder() {
+		Random random = new Random(2018);
+		String contents = randomText(random, LARGE_FILE_LENGTH);
+		List<int[]> edits = randomEdits(random, contents.length(), LARGE_FILE_EDITS);
+		Collections.reverse(edits);
+
+		String expected = applyToStringBuilder(contents, edits);
+		String actual = applyToEditBuffer(contents, edits);
+		assertEquals("Contents are wrong.", expected, actual);
+
+		if (COMPARE_SPEED) {
+			long beforeStringBuilder = System.nanoTime();
+			applyToStringBuilder(contents, edits);
+			long stringBuilderTime = System.nanoTime() - beforeStringBuilder;
+
+			long beforeEditBuffer = System.nanoTime();
+			applyToEditBuffer(contents, edits);
+			long editBufferTime = System.nanoTime() - beforeEditBuffer;
+
+			assertTrue("EditBuffer took " + editBufferTime + " ns, StringBuilder took " + stringBuilderTime
+					+ " ns.", editBufferTime < stringBuilderTime);
+		}
+	}
+
+	private void checkSameAsStringBuilder(Random random, String contents, List<int[]> edits) {
+		EditBuffer b = new EditBuffer(contents);
+		StringBuilder expected = new StringBuilder(contents);
+		for (int[] edit : edits) {
+			String replacement = randomText(random, random.nextInt(8));
+
+			assertEquals("Substring is wrong.", expected.substring(edit[0], edit[1]), b.substring(edit[0], edit[1]));
+			expected.replace(edit[0], edit[1], replacement);
+			b.replace(edit[0], edit[1], replacement);
+		}
+
+		assertEquals("Contents are wrong.", expected.toString(), b.toString());
+	}
+
+	private String applyToStringBuilder(String contents, List<int[]> edits) {
+		StringBuilder b = new StringBuilder(contents);
+		for (int[] edit : edits) {
+			b.substring(edit[0], edit[1]);
+			b.replace(edit[0], edit[1], "replacement" + edit[0]);
+		}
+
+		return b.toString();
+	}
+
+	private String applyToEditBuffer(String contents, List<int[]> edits) {
+		EditBuffer b = new EditBuffer(contents);
+		for (int[] edit : edits) {
+			b.substring(edit[0], edit[1]);
+			b.replace(edit[0], edit[1], "replacement" + edit[0]);
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * Creates random non-overlapping ranges in text of the given length,
+	 * ordered from the start of the text to the end.
+	 */
+	private List<int[]> randomEdits(Random random, int length, int count) {
+		TreeSet<Integer> bounds = new TreeSet<>();
+		for (int i = 0; i < count * 2 && length > 0; i++) {
+			bounds.add(random.nextInt(length + 1));
+		}
+
+		List<int[]> edits = new ArrayList<>();
+		Integer start = null;
+		for (Integer bound : bounds) {
+			if (start == null) {
+				start = bound;
+			} else {
+				edits.add(new int[] { start, bound });
+				start = null;
+			}
+		}
+
+		return edits;
+	}
+
+	private String randomText(Random random, int length) {
+		StringBuilder b = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			b.append((char) ('a' + random.nextInt(26)));
+		}
+
+		return b.toString();
+	}
+}
@@ -50,6 +50,14 @@ public Issue(int id) {
 		this.id = id;
 	}
 
+	public int getID() {
+		return id;
+	}
+
+	public void setID(int id) {
+		this.id = id;
+	}
+
 	public Pattern getPattern() {
 		return pattern;
 	}
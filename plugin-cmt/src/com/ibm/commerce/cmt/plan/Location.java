@@ -85,6 +85,10 @@ public Node toXML(Document doc) {
 		location.setAttribute("location", formattedRange);
 		String value = TIMESTAMP_FORMAT.format(new Date(timestamp));
 		location.setAttribute("timestamp", value);
+		if (range != null) {
+			location.setAttribute("start", String.valueOf(range.getStart()));
+			location.setAttribute("end", String.valueOf(range.getEnd()));
+		}
 		return location;
 	}
 
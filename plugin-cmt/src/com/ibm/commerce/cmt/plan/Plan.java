@@ -18,16 +18,21 @@
  *-----------------------------------------------------------------
  */
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -35,6 +40,7 @@
 
 import com.ibm.commerce.cmt.Configuration;
 import com.ibm.commerce.cmt.Context;
+import com.ibm.commerce.cmt.FileContents;
 import com.ibm.commerce.cmt.XMLConvertable;
 
 /**
@@ -42,21 +48,105 @@
  * plan. If a file changes after the plan is formed, the steps may not work as
  * the locations will be different. In that case, a new plan should be created
  * to ensure it is current with the files to change.
+ * <p>
+ * The issues for each file are kept separately, ordered from the end of the
+ * file to the beginning, which is the order they are executed in. Adding an
+ * issue takes O(log n) time, and the list of all issues is only created when
+ * it is needed. When an issue that replaces text overlaps with another issue
+ * in the same file that replaces text, both issues are kept, and the conflict
+ * is recorded.
  * 
  * @author Trent Hoeppner
  */
 public class Plan implements XMLConvertable {
 
-	private List<Issue> issues = new ArrayList<>();
+	/**
+	 * The issues for each file, keyed by the filename of the issue location.
+	 */
+	private Map<String, FileIssues> fileIssues = new HashMap<>();
+
+	/**
+	 * All issues in the order of {@link IssueComparator}. This value is null
+	 * if an issue was added since the list was created.
+	 */
+	private List<Issue> issues;
+
+	/**
+	 * The number of issues that were added, which is used to keep issues with
+	 * the same range in the order they were added.
+	 */
+	private long addedCount;
+
+	/**
+	 * The conflicts that were found while adding issues, in the order they
+	 * were found.
+	 */
+	private List<Conflict> conflicts = new ArrayList<>();
 
 	public void addIssue(Issue issue) {
-		issues.add(issue);
-		Collections.sort(issues, new IssueComparator());
+		String filename = issue.getLocation().getFile();
+		FileIssues issuesForFile = fileIssues.get(filename);
+		if (issuesForFile == null) {
+			issuesForFile = new FileIssues();
+			fileIssues.put(filename, issuesForFile);
+		}
+
+		Issue conflictingIssue = issuesForFile.add(issue, addedCount);
+		if (conflictingIssue != null) {
+			conflicts.add(new Conflict(issue, conflictingIssue));
+		}
+
+		addedCount++;
+		issues = null;
+	}
+
+	/**
+	 * Returns the issues for the given file, in the order they must be
+	 * executed in.
+	 * 
+	 * @param filename
+	 *            The name of the file, as in the locations of the issues.
+	 *            This value cannot be null.
+	 * 
+	 * @return The issues for the file. This value will not be null, but will
+	 *         be empty if there are no issues for the file.
+	 */
+	public Collection<Issue> getIssues(String filename) {
+		FileIssues issuesForFile = fileIssues.get(filename);
+		if (issuesForFile == null) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableCollection(issuesForFile.issues.values());
+	}
+
+	/**
+	 * Returns the names of the files that have issues, in the order they are
+	 * executed in.
+	 * 
+	 * @return The names of the files. This value will not be null.
+	 */
+	public List<String> getFilenames() {
+		List<String> filenames = new ArrayList<>(fileIssues.keySet());
+		Collections.sort(filenames);
+		return filenames;
+	}
+
+	/**
+	 * Returns the conflicts that were found while adding issues. A conflict is
+	 * found when an issue which replaces text overlaps with an issue which was
+	 * already added for the same file and also replaces text.
+	 * 
+	 * @return The conflicts in the order they were found. This value will not
+	 *         be null.
+	 */
+	public List<Conflict> getConflicts() {
+		return Collections.unmodifiableList(conflicts);
 	}
 
 	public void execute(Configuration config, Context context) throws Exception {
 		File currentFile = null;
-		for (Issue issue : issues) {
+		for (Issue issue : getIssues()) {
 			File newFile = new File(issue.getLocation().getFile());
 			if (!newFile.equals(currentFile)) {
 				// write the current contents to disk
@@ -81,43 +171,52 @@ public void execute(Configuration config, Context context) throws Exception {
 		}
 	}
 
+	/**
+	 * Writes the write buffer to the current file, in the encoding that the
+	 * file was read with. The contents are written to a temporary file in the
+	 * same directory first, which then replaces the file, so the file is never
+	 * left partly written.
+	 * 
+	 * @param context
+	 *            The context with the current file and its write buffer. This
+	 *            value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing the file.
+	 */
 	private void writeToDisk(Context context) throws IOException {
 		File file = context.get(Context.Prop.FILE);
-		StringBuilder b = context.get(Context.Prop.FILE_WRITE_BUFFER);
-		BufferedInputStream in = null;
-		BufferedOutputStream out = null;
+		EditBuffer b = context.get(Context.Prop.FILE_WRITE_BUFFER);
+		FileContents contents = context.get(Context.Prop.FILE_CONTENTS);
+		Charset charset = contents.getCharset();
+		if (charset == null) {
+			charset = Charset.defaultCharset();
+		}
+
+		File absoluteFile = file.getAbsoluteFile();
+		File tempFile = File.createTempFile(absoluteFile.getName(), ".tmp", absoluteFile.getParentFile());
 		try {
-			byte[] buf = new byte[4096];
-			in = new BufferedInputStream(new ByteArrayInputStream(b.toString().getBytes()));
-			out = new BufferedOutputStream(new FileOutputStream(file));
-			int length = in.read(buf);
-			while (length >= 0) {
-				out.write(buf, 0, length);
-				length = in.read(buf);
-			}
-		} finally {
-			if (in != null) {
-				try {
-					in.close();
-				} catch (IOException e) {
-					// swallow to allow main exception to escape
-				}
+			try (FileOutputStream out = new FileOutputStream(tempFile)) {
+				out.write(b.toString().getBytes(charset));
+				out.flush();
+				// the rename must not reach the disk before the contents do
+				out.getFD().sync();
 			}
-
-			if (out != null) {
-				try {
-					out.close();
-				} catch (IOException e) {
-					// swallow to allow main exception to escape
-				}
+			try {
+				Files.move(tempFile.toPath(), absoluteFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), absoluteFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 			}
+		} finally {
+			Files.deleteIfExists(tempFile.toPath());
 		}
 	}
 
 	@Override
 	public Node toXML(Document doc) {
 		Element plan = doc.createElement("plan");
-		for (Issue issue : issues) {
+		for (Issue issue : getIssues()) {
 			Node issueNode = issue.toXML(doc);
 			plan.appendChild(issueNode);
 		}
@@ -125,7 +224,11 @@ public Node toXML(Document doc) {
 		return plan;
 	}
 
-	private static class IssueComparator implements Comparator<Issue> {
+	/**
+	 * This class orders issues by file, and from the end of each file to the
+	 * beginning, which is the order they must be executed in.
+	 */
+	public static class IssueComparator implements Comparator<Issue> {
 
 		@Override
 		public int compare(Issue o1, Issue o2) {
@@ -157,7 +260,212 @@ public int compare(Issue o1, Issue o2) {
 
 	}
 
+	/**
+	 * Returns all issues, ordered by file and from the end of each file to the
+	 * beginning.
+	 * 
+	 * @return The issues. This value will not be null.
+	 */
 	public List<Issue> getIssues() {
+		if (issues == null) {
+			List<Issue> allIssues = new ArrayList<>();
+			for (String filename : getFilenames()) {
+				allIssues.addAll(fileIssues.get(filename).issues.values());
+			}
+			issues = Collections.unmodifiableList(allIssues);
+		}
+
 		return issues;
 	}
+
+	/**
+	 * Returns whether the given issue replaces text in its file.
+	 * 
+	 * @param issue
+	 *            The issue to check. This value cannot be null.
+	 * 
+	 * @return True if the issue has a step that replaces text, false
+	 *         otherwise.
+	 */
+	private static boolean replacesText(Issue issue) {
+		if (issue.getSteps() != null) {
+			for (Step step : issue.getSteps()) {
+				if (step instanceof ReplaceInFileStep) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether the given ranges overlap. An empty range overlaps a
+	 * range that it is strictly inside of.
+	 * 
+	 * @param range1
+	 *            The first range. This value cannot be null.
+	 * @param range2
+	 *            The second range. This value cannot be null.
+	 * 
+	 * @return True if the ranges overlap, false otherwise.
+	 */
+	private static boolean overlaps(Range range1, Range range2) {
+		return range1.getStart() < range2.getEnd() && range2.getStart() < range1.getEnd();
+	}
+
+	/**
+	 * This class holds the issues for one file.
+	 */
+	private static class FileIssues {
+
+		/**
+		 * The issues in the order they are executed in.
+		 */
+		private TreeMap<IssueKey, Issue> issues = new TreeMap<>();
+
+		/**
+		 * The issues that replace text and do not overlap each other, keyed by
+		 * their range and ordered from the beginning of the file to the end.
+		 * Since they do not overlap, only the issues before and after a new
+		 * range need to be checked for conflicts.
+		 */
+		private TreeMap<IssueKey, Issue> replacements = new TreeMap<>();
+
+		/**
+		 * Adds the given issue.
+		 * 
+		 * @param issue
+		 *            The issue to add. This value cannot be null.
+		 * @param sequence
+		 *            The number of issues added to the plan before this one.
+		 * 
+		 * @return An issue that was already added which conflicts with the
+		 *         given issue, or null if there is no conflict.
+		 */
+		private Issue add(Issue issue, long sequence) {
+			Range range = issue.getLocation().getRange();
+			issues.put(new IssueKey(-range.getStart(), -range.getEnd(), sequence), issue);
+
+			if (!replacesText(issue)) {
+				return null;
+			}
+
+			IssueKey key = new IssueKey(range.getStart(), range.getEnd(), sequence);
+			Map.Entry<IssueKey, Issue> before = replacements.lowerEntry(key);
+			if (before != null && overlaps(before.getValue().getLocation().getRange(), range)) {
+				return before.getValue();
+			}
+
+			Map.Entry<IssueKey, Issue> after = replacements.higherEntry(key);
+			if (after != null && overlaps(after.getValue().getLocation().getRange(), range)) {
+				return after.getValue();
+			}
+
+			replacements.put(key, issue);
+			return null;
+		}
+	}
+
+	/**
+	 * This class orders issues by a start and end value, and then by the
+	 * order they were added.
+	 */
+	private static class IssueKey implements Comparable<IssueKey> {
+
+		/**
+		 * The first value to order by.
+		 */
+		private int start;
+
+		/**
+		 * The second value to order by.
+		 */
+		private int end;
+
+		/**
+		 * The order the issue was added in.
+		 */
+		private long sequence;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param start
+		 *            The first value to order by.
+		 * @param end
+		 *            The second value to order by.
+		 * @param sequence
+		 *            The order the issue was added in.
+		 */
+		private IssueKey(int start, int end, long sequence) {
+			this.start = start;
+			this.end = end;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(IssueKey other) {
+			int result = Integer.compare(start, other.start);
+			if (result != 0) {
+				return result;
+			}
+
+			result = Integer.compare(end, other.end);
+			if (result != 0) {
+				return result;
+			}
+
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * This class describes two issues which replace overlapping text in the
+	 * same file. Only one of them can be executed.
+	 */
+	public static class Conflict {
+
+		/**
+		 * The issue that was added last.
+		 */
+		private Issue issue;
+
+		/**
+		 * The issue that was already in the plan.
+		 */
+		private Issue existingIssue;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param issue
+		 *            The issue that was added last. This value cannot be null.
+		 * @param existingIssue
+		 *            The issue that was already in the plan. This value cannot
+		 *            be null.
+		 */
+		private Conflict(Issue issue, Issue existingIssue) {
+			this.issue = issue;
+			this.existingIssue = existingIssue;
+		}
+
+		/**
+		 * Returns the issue that was added last.
+		 * 
+		 * @return The issue. This value will not be null.
+		 */
+		public Issue getIssue() {
+			return issue;
+		}
+
+		/**
+		 * Returns the issue that was already in the plan.
+		 * 
+		 * @return The existing issue. This value will not be null.
+		 */
+		public Issue getExistingIssue() {
+			return existingIssue;
+		}
+	}
 }
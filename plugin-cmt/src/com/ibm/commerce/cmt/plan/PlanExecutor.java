@@ -0,0 +1,360 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.cmt.Configuration;
+import com.ibm.commerce.cmt.Context;
+
+/**
+ * This class executes a plan with several files being changed at the same
+ * time.
+ * <p>
+ * The issues are executed in groups, one group for each file, and each group
+ * is executed in its own {@link Context} by a {@link Plan} with only the
+ * issues for that file. Groups which only change their own file are executed
+ * at the same time. Groups which rename or delete files, or have steps which
+ * this class does not know, are executed one at a time after the other
+ * groups, in the order they were in the plan.
+ * <p>
+ * If a {@link PlanJournal} is given, each group is recorded in it, so that an
+ * execution which stops part way can be resumed by executing the same plan
+ * again. Groups that were done are skipped, and groups that were started are
+ * restored first and executed again. When the whole plan is executed the
+ * journal is deleted.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanExecutor {
+
+	/**
+	 * The writer which steps log to. This value will not be null.
+	 */
+	private BufferedWriter logWriter;
+
+	/**
+	 * The number of groups to execute at the same time.
+	 */
+	private int threads;
+
+	/**
+	 * The journal which records the progress of the execution. This value may
+	 * be null.
+	 */
+	private PlanJournal journal;
+
+	/**
+	 * The number of groups that were skipped because the journal has them as
+	 * done.
+	 */
+	private AtomicInteger skippedCount = new AtomicInteger();
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param logWriter
+	 *            The writer which steps log to. This value cannot be null, and
+	 *            will be used by more than one thread.
+	 * @param threads
+	 *            The number of groups to execute at the same time. This value
+	 *            must be &gt; 0.
+	 * @param journal
+	 *            The journal which records the progress of the execution. If
+	 *            null, an execution which stops part way cannot be resumed or
+	 *            rolled back.
+	 */
+	public PlanExecutor(BufferedWriter logWriter, int threads, PlanJournal journal) {
+		Check.notNull(logWriter, "logWriter");
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be > 0, but was " + threads);
+		}
+
+		this.logWriter = logWriter;
+		this.threads = threads;
+		this.journal = journal;
+	}
+
+	/**
+	 * Executes all the issues in the given plan.
+	 * 
+	 * @param plan
+	 *            The plan to execute. This value cannot be null.
+	 * @param config
+	 *            The configuration that the plan was created with. This value
+	 *            cannot be null.
+	 * 
+	 * @return The number of issues that were executed, not including issues in
+	 *         groups that were skipped. This value will be &gt;= 0.
+	 * 
+	 * @throws Exception
+	 *             If there was an error executing an issue.
+	 */
+	public int execute(Plan plan, Configuration config) throws Exception {
+		Check.notNull(plan, "plan");
+
+		List<List<Issue>> groups = new ArrayList<>();
+		for (String filename : plan.getFilenames()) {
+			groups.add(new ArrayList<>(plan.getIssues(filename)));
+		}
+
+		Iterator<List<Issue>> iterator = groups.iterator();
+		return execute(() -> iterator.hasNext() ? iterator.next() : null, config);
+	}
+
+	/**
+	 * Executes the remaining issues in the given plan. Only the issues for the
+	 * groups being executed are in memory at one time.
+	 * 
+	 * @param reader
+	 *            The reader to get the issues from. This value cannot be null.
+	 * @param config
+	 *            The configuration that the plan was created with. This value
+	 *            cannot be null.
+	 * 
+	 * @return The number of issues that were executed, not including issues in
+	 *         groups that were skipped. This value will be &gt;= 0.
+	 * 
+	 * @throws Exception
+	 *             If there was an error reading the plan or executing an
+	 *             issue.
+	 */
+	public int execute(PlanReader reader, Configuration config) throws Exception {
+		Check.notNull(reader, "reader");
+
+		return execute(reader::nextFile, config);
+	}
+
+	/**
+	 * Returns the number of groups that were skipped because the journal has
+	 * them as done.
+	 * 
+	 * @return The number of skipped groups. This value will be &gt;= 0.
+	 */
+	public int getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	/**
+	 * Executes the groups from the given source, and deletes the journal if
+	 * they were all executed.
+	 * 
+	 * @param source
+	 *            The source of the groups. This value cannot be null.
+	 * @param config
+	 *            The configuration that the plan was created with. This value
+	 *            cannot be null.
+	 * 
+	 * @return The number of issues that were executed. This value will be
+	 *         &gt;= 0.
+	 * 
+	 * @throws Exception
+	 *             If there was an error reading a group or executing an issue.
+	 */
+	private int execute(GroupSource source, Configuration config) throws Exception {
+		Check.notNull(config, "config");
+
+		skippedCount.set(0);
+		if (journal != null) {
+			journal.load();
+			journal.recover();
+		}
+
+		AtomicInteger executedCount = new AtomicInteger();
+		AtomicReference<Exception> error = new AtomicReference<>();
+		List<List<Issue>> serialGroups = new ArrayList<>();
+
+		// limit the groups in memory for plans that are read from a stream
+		Semaphore available = new Semaphore(threads * 2);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Issue> group = source.nextGroup();
+			while (group != null && error.get() == null) {
+				if (canExecuteInParallel(group)) {
+					List<Issue> parallelGroup = group;
+					available.acquire();
+					executor.execute(() -> {
+						try {
+							if (error.get() == null) {
+								executedCount.addAndGet(executeGroup(parallelGroup, config));
+							}
+						} catch (Exception e) {
+							error.compareAndSet(null, e);
+						} finally {
+							available.release();
+						}
+					});
+				} else {
+					serialGroups.add(group);
+				}
+
+				group = source.nextGroup();
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+
+		if (error.get() != null) {
+			throw error.get();
+		}
+
+		for (List<Issue> group : serialGroups) {
+			executedCount.addAndGet(executeGroup(group, config));
+		}
+
+		if (journal != null) {
+			journal.delete();
+		}
+
+		return executedCount.get();
+	}
+
+	/**
+	 * Executes the issues of one group in a new context, and records it in the
+	 * journal.
+	 * 
+	 * @param group
+	 *            The issues to execute, which are all for the same file. This
+	 *            value cannot be null or empty.
+	 * @param config
+	 *            The configuration that the plan was created with. This value
+	 *            cannot be null.
+	 * 
+	 * @return The number of issues that were executed, which is 0 if the group
+	 *         was skipped. This value will be &gt;= 0.
+	 * 
+	 * @throws Exception
+	 *             If there was an error executing an issue.
+	 */
+	private int executeGroup(List<Issue> group, Configuration config) throws Exception {
+		String name = group.get(0).getLocation().getFile();
+		if (journal != null) {
+			if (journal.isDone(name)) {
+				skippedCount.incrementAndGet();
+				return 0;
+			}
+
+			journal.begin(name, getTouchedFiles(group));
+		}
+
+		Plan plan = new Plan();
+		for (Issue issue : group) {
+			plan.addIssue(issue);
+		}
+
+		Context context = new Context(new IDGenerator(0));
+		context.set(Context.Prop.LOG_WRITER, logWriter);
+		plan.execute(config, context);
+
+		if (journal != null) {
+			journal.done(name);
+		}
+
+		return group.size();
+	}
+
+	/**
+	 * Returns whether the given group only changes its own file, so that it
+	 * can be executed at the same time as other groups.
+	 * 
+	 * @param group
+	 *            The issues to check. This value cannot be null.
+	 * 
+	 * @return True if the steps only replace text in the group's file or log
+	 *         messages, false otherwise.
+	 */
+	private boolean canExecuteInParallel(List<Issue> group) {
+		for (Issue issue : group) {
+			if (issue.getSteps() == null) {
+				continue;
+			}
+
+			for (Step step : issue.getSteps()) {
+				if (!(step instanceof ReplaceInFileStep) && !(step instanceof LogStep)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the files that the given group may change, create or delete.
+	 * 
+	 * @param group
+	 *            The issues to check. This value cannot be null or empty.
+	 * 
+	 * @return The files, starting with the group's file. This value will not
+	 *         be null or empty.
+	 */
+	private Collection<File> getTouchedFiles(List<Issue> group) {
+		Set<File> files = new LinkedHashSet<>();
+		files.add(new File(group.get(0).getLocation().getFile()));
+		for (Issue issue : group) {
+			if (issue.getSteps() == null) {
+				continue;
+			}
+
+			for (Step step : issue.getSteps()) {
+				if (step instanceof RenameFileStep) {
+					files.add(((RenameFileStep) step).getFile());
+					files.add(((RenameFileStep) step).getToFile());
+				} else if (step instanceof DeleteFileStep) {
+					files.add(((DeleteFileStep) step).getFile());
+				}
+			}
+		}
+
+		return files;
+	}
+
+	/**
+	 * This interface provides the groups of issues to execute.
+	 */
+	private interface GroupSource {
+
+		/**
+		 * Returns the issues for the next file.
+		 * 
+		 * @return The issues for the next file, or null if there are no more
+		 *         groups.
+		 * 
+		 * @throws IOException
+		 *             If there was an error reading the issues.
+		 */
+		List<Issue> nextGroup() throws IOException;
+	}
+}
@@ -0,0 +1,309 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.ibm.commerce.cmt.Configuration;
+import com.ibm.commerce.cmt.Context;
+import com.ibm.commerce.cmt.MigrationTestCase;
+
+/**
+ * This class tests the {@link PlanExecutor} and {@link PlanJournal} classes.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanExecutorTest extends MigrationTestCase {
+
+	/**
+	 * The directory for the journal of each test.
+	 */
+	private File journalDir;
+
+	/**
+	 * The configuration to execute plans with.
+	 */
+	private Configuration config;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		parentDir = new File("testData\\classRefCmd");
+		journalDir = Files.createTempDirectory("PlanExecutorTest").toFile();
+		config = new Configuration(Arrays.asList(new File("testData\\commandClassRef.txt")),
+				Arrays.asList(new File("testData\\classRefCmd")), null);
+	}
+
+	protected void tearDown() throws Exception {
+		new PlanJournal(journalDir).delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Tests that if a plan for many files is executed with several threads,
+	 * every file is changed and the journal is deleted.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testExecuteIfManyFilesExpectAllChanged() throws Exception {
+		List<File> files = new ArrayList<>();
+		Plan plan = new Plan();
+		for (int i = 0; i < 200; i++) {
+			File file = createTempFile("Hello World " + i, StandardCharsets.UTF_8);
+			files.add(file);
+			plan.addIssue(createIssue(i * 2 + 1, file, 6, 11, "World", new ReplaceInFileStep("There")));
+			plan.addIssue(createIssue(i * 2 + 2, file, 0, 5, "Hello", new ReplaceInFileStep("Hi")));
+		}
+
+		PlanExecutor executor = new PlanExecutor(logWriter, 8, new PlanJournal(journalDir));
+		int executedCount = executor.execute(plan, config);
+
+		assertEquals("Wrong number of executed issues.", 400, executedCount);
+		for (int i = 0; i < files.size(); i++) {
+			assertEquals("Wrong contents in file " + i + ".", "Hi There " + i,
+					read(files.get(i), StandardCharsets.UTF_8));
+		}
+		assertFalse("Journal was not deleted.", new PlanJournal(journalDir).exists());
+	}
+
+	/**
+	 * Tests that if files with different encodings are changed, each file is
+	 * written in the encoding that it was read with.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testExecuteIfDifferentEncodingsExpectEncodingsKept() throws Exception {
+		File utf16File = createTempFile("\ufeffclass \u00c4 { int x; }", StandardCharsets.UTF_16LE);
+		File latin1File = createTempFile("class \u00e9 { int x; }", StandardCharsets.ISO_8859_1);
+		File utf8File = createTempFile("class \u4e2d { int x; }", StandardCharsets.UTF_8);
+
+		Plan plan = new Plan();
+		plan.addIssue(createIssue(1, utf16File, 15, 16, "x", new ReplaceInFileStep("\u00fc")));
+		plan.addIssue(createIssue(2, latin1File, 14, 15, "x", new ReplaceInFileStep("\u00fc")));
+		plan.addIssue(createIssue(3, utf8File, 14, 15, "x", new ReplaceInFileStep("\u00fc")));
+
+		new PlanExecutor(logWriter, 3, new PlanJournal(journalDir)).execute(plan, config);
+
+		assertTrue("UTF-16 file is wrong.", Arrays.equals("\ufeffclass \u00c4 { int \u00fc; }".getBytes(
+				StandardCharsets.UTF_16LE), Files.readAllBytes(utf16File.toPath())));
+		assertTrue("ISO-8859-1 file is wrong.", Arrays.equals(
+				"class \u00e9 { int \u00fc; }".getBytes(StandardCharsets.ISO_8859_1),
+				Files.readAllBytes(latin1File.toPath())));
+		assertTrue("UTF-8 file is wrong.",
+				Arrays.equals("class \u4e2d { int \u00fc; }".getBytes(StandardCharsets.UTF_8),
+						Files.readAllBytes(utf8File.toPath())));
+	}
+
+	/**
+	 * Tests that if an execution is stopped part way and a file is left partly
+	 * written, executing the plan again restores that file and changes every
+	 * file exactly once.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testExecuteIfStoppedAndResumedExpectEachFileChangedOnce() throws Exception {
+		File file1 = createTempFile("Hello World", StandardCharsets.UTF_8);
+		File file2 = createTempFile("one two three", StandardCharsets.UTF_8);
+		File file3 = createTempFile("red green blue", StandardCharsets.UTF_8);
+
+		Plan stoppedPlan = createThreeFilePlan(file1, file2, file3, true);
+		try {
+			new PlanExecutor(logWriter, 2, new PlanJournal(journalDir)).execute(stoppedPlan, config);
+			fail("Exception was not thrown.");
+		} catch (StopException e) {
+			// success
+		}
+
+		// simulate the process being killed while writing file 2
+		Files.write(file2.toPath(), "one 2".getBytes(StandardCharsets.UTF_8));
+		assertTrue("Journal was deleted.", new PlanJournal(journalDir).exists());
+
+		Plan plan = createThreeFilePlan(file1, file2, file3, false);
+		PlanExecutor executor = new PlanExecutor(logWriter, 2, new PlanJournal(journalDir));
+		int executedCount = executor.execute(plan, config);
+
+		assertEquals("Wrong number of executed issues.", 1, executedCount);
+		assertEquals("Wrong number of skipped files.", 2, executor.getSkippedCount());
+		assertEquals("Wrong contents in file 1.", "Hi World", read(file1, StandardCharsets.UTF_8));
+		assertEquals("Wrong contents in file 2.", "one 2 three", read(file2, StandardCharsets.UTF_8));
+		assertEquals("Wrong contents in file 3.", "red green sky", read(file3, StandardCharsets.UTF_8));
+		assertFalse("Journal was not deleted.", new PlanJournal(journalDir).exists());
+	}
+
+	/**
+	 * Tests that if an execution is stopped part way and then rolled back,
+	 * every file has its original contents.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRollbackIfStoppedExpectOriginalContents() throws Exception {
+		File file1 = createTempFile("Hello World", StandardCharsets.UTF_8);
+		File file2 = createTempFile("one two three", StandardCharsets.UTF_8);
+		File file3 = createTempFile("red green blue", StandardCharsets.UTF_8);
+
+		Plan stoppedPlan = createThreeFilePlan(file1, file2, file3, true);
+		try {
+			new PlanExecutor(logWriter, 2, new PlanJournal(journalDir)).execute(stoppedPlan, config);
+			fail("Exception was not thrown.");
+		} catch (StopException e) {
+			// success
+		}
+		Files.write(file2.toPath(), "one 2".getBytes(StandardCharsets.UTF_8));
+
+		PlanJournal journal = new PlanJournal(journalDir);
+		journal.load();
+		int restoredCount = journal.rollback();
+
+		assertEquals("Wrong number of restored groups.", 3, restoredCount);
+		assertEquals("Wrong contents in file 1.", "Hello World", read(file1, StandardCharsets.UTF_8));
+		assertEquals("Wrong contents in file 2.", "one two three", read(file2, StandardCharsets.UTF_8));
+		assertEquals("Wrong contents in file 3.", "red green blue", read(file3, StandardCharsets.UTF_8));
+		assertFalse("Journal was not deleted.", journal.exists());
+	}
+
+	/**
+	 * Tests that if a journal file ends with a partly written record, the
+	 * record is ignored when it is loaded.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testLoadIfLastRecordPartlyWrittenExpectIgnored() throws Exception {
+		File file = createTempFile("Hello", StandardCharsets.UTF_8);
+		PlanJournal journal = new PlanJournal(journalDir);
+		journal.begin(file.getAbsolutePath(), Arrays.asList(file));
+		journal.close();
+		Files.write(new File(journalDir, "journal.txt").toPath(), "DONE".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+
+		PlanJournal loaded = new PlanJournal(journalDir);
+		loaded.load();
+
+		assertFalse("Group is done.", loaded.isDone(file.getAbsolutePath()));
+	}
+
+	/**
+	 * Tests that if a journal file ends with a partly written backup record,
+	 * recovering does not try to restore the file from that backup.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRecoverIfLastBackupRecordPartlyWrittenExpectFileKept() throws Exception {
+		File file = createTempFile("Hello", StandardCharsets.UTF_8);
+		PlanJournal journal = new PlanJournal(journalDir);
+		journal.begin("g1", Arrays.asList(file));
+		journal.done("g1");
+		journal.close();
+		String tornRecords = "BEGIN\tg2\nFILE\tg2\t" + file.getAbsolutePath() + "\t";
+		Files.write(new File(journalDir, "journal.txt").toPath(), tornRecords.getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+
+		PlanJournal loaded = new PlanJournal(journalDir);
+		loaded.load();
+		int recoveredCount = loaded.recover();
+
+		assertEquals("Wrong number of recovered groups.", 1, recoveredCount);
+		assertEquals("Wrong contents.", "Hello", read(file, StandardCharsets.UTF_8));
+		assertFalse("Restore file was left.", new File(file.getParentFile(), file.getName() + ".restore").exists());
+	}
+
+	private Plan createThreeFilePlan(File file1, File file2, File file3, boolean stopInFile2) {
+		Plan plan = new Plan();
+		plan.addIssue(createIssue(1, file1, 0, 5, "Hello", new ReplaceInFileStep("Hi")));
+		if (stopInFile2) {
+			plan.addIssue(createIssue(2, file2, 4, 7, "two", new ReplaceInFileStep("2"), new StopStep()));
+		} else {
+			plan.addIssue(createIssue(2, file2, 4, 7, "two", new ReplaceInFileStep("2")));
+		}
+		plan.addIssue(createIssue(3, file3, 10, 14, "blue", new ReplaceInFileStep("sky")));
+
+		return plan;
+	}
+
+	private Issue createIssue(int id, File file, int start, int end, String source, Step... steps) {
+		Range range = new Range();
+		range.setStart(start);
+		range.setEnd(end);
+
+		Location location = new Location();
+		location.setFile(file.getAbsolutePath());
+		location.setRange(range);
+		location.setFormattedRange("index " + start);
+
+		Issue issue = new Issue(id);
+		issue.setLocation(location);
+		issue.setSource(source);
+		issue.setSteps(new ArrayList<>(Arrays.asList(steps)));
+
+		return issue;
+	}
+
+	private File createTempFile(String contents, Charset charset) throws IOException {
+		File file = File.createTempFile("PlanExecutorTest", ".java");
+		file.deleteOnExit();
+		filesToDelete.add(file);
+		Files.write(file.toPath(), contents.getBytes(charset));
+
+		return file;
+	}
+
+	private String read(File file, Charset charset) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), charset);
+	}
+
+	/**
+	 * This class is a step which stops the execution, as if the process was
+	 * killed.
+	 */
+	private static class StopStep implements Step {
+
+		@Override
+		public void execute(Context context) throws Exception {
+			throw new StopException();
+		}
+
+		@Override
+		public Node toXML(Document doc) {
+			return doc.createElement("stop");
+		}
+	}
+
+	/**
+	 * This class is thrown by {@link StopStep}.
+	 */
+	private static class StopException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,522 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.commerce.cmt.Check;
+
+/**
+ * This class records the progress of executing a plan, so that an execution
+ * which was interrupted can be resumed or rolled back.
+ * <p>
+ * The issues of a plan are executed in groups, usually one group for each
+ * file. Before a group changes any file, {@link #begin(String, Collection)}
+ * copies each file that the group may change to a backup, waits until the
+ * backups are on disk, and records where the backup is. After the group is finished, {@link #done(String)} records
+ * that. Each record is a line in the journal file, which is flushed to disk
+ * before the method returns.
+ * <p>
+ * When the journal is loaded again, groups that were done can be skipped.
+ * Groups that were started but not done are restored from their backups by
+ * {@link #recover()}, so they can be executed again from the start.
+ * {@link #rollback()} restores every group that was started.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanJournal {
+
+	/**
+	 * The name of the journal file in the journal directory.
+	 */
+	private static final String JOURNAL_FILENAME = "journal.txt";
+
+	/**
+	 * The name of the directory with the backups in the journal directory.
+	 */
+	private static final String BACKUP_DIRNAME = "backup";
+
+	/**
+	 * The value recorded instead of a backup name for a file which did not
+	 * exist before the group started.
+	 */
+	private static final String NO_BACKUP = "-";
+
+	/**
+	 * The directory which contains the journal file and the backups.
+	 */
+	private File dir;
+
+	/**
+	 * The files that were backed up for each group that was started, in the
+	 * order the groups were started. Only the first backups for a group are
+	 * kept, since they have the contents from before the plan was executed.
+	 */
+	private Map<String, List<BackupRecord>> startedGroups = new LinkedHashMap<>();
+
+	/**
+	 * The groups that were done.
+	 */
+	private Set<String> doneGroups = new HashSet<>();
+
+	/**
+	 * The number used for the name of the next backup.
+	 */
+	private AtomicInteger nextBackupNumber = new AtomicInteger();
+
+	/**
+	 * The stream to append records to, or null if it has not been opened yet.
+	 */
+	private FileOutputStream out;
+
+	/**
+	 * Constructor for this. The journal is not loaded until {@link #load()} is
+	 * called.
+	 * 
+	 * @param dir
+	 *            The directory which contains the journal file and the backups.
+	 *            This value cannot be null, but the directory does not need to
+	 *            exist.
+	 */
+	public PlanJournal(File dir) {
+		Check.notNull(dir, "dir");
+
+		this.dir = dir;
+	}
+
+	/**
+	 * Returns whether there is a journal from an execution that did not
+	 * finish.
+	 * 
+	 * @return True if the journal file exists, false otherwise.
+	 */
+	public boolean exists() {
+		return new File(dir, JOURNAL_FILENAME).exists();
+	}
+
+	/**
+	 * Loads the records from the journal file, if it exists. A record which
+	 * was only partly written, so that it does not end with a new line, is
+	 * ignored.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the journal file.
+	 */
+	public synchronized void load() throws IOException {
+		startedGroups.clear();
+		doneGroups.clear();
+		nextBackupNumber.set(0);
+
+		File journalFile = new File(dir, JOURNAL_FILENAME);
+		if (!journalFile.exists()) {
+			return;
+		}
+
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8));
+		try {
+			Set<String> groupsWithNewBackups = new HashSet<>();
+			String line = readRecord(reader);
+			while (line != null) {
+				String[] parts = line.split("\t", -1);
+				if (parts.length == 2 && parts[0].equals("BEGIN")) {
+					if (!startedGroups.containsKey(parts[1])) {
+						startedGroups.put(parts[1], new ArrayList<>());
+						groupsWithNewBackups.add(parts[1]);
+					}
+				} else if (parts.length == 4 && parts[0].equals("FILE") && !parts[3].isEmpty()) {
+					if (groupsWithNewBackups.contains(parts[1])) {
+						startedGroups.get(parts[1]).add(new BackupRecord(parts[2], parts[3]));
+					}
+					updateNextBackupNumber(parts[3]);
+				} else if (parts.length == 2 && parts[0].equals("DONE")) {
+					doneGroups.add(parts[1]);
+					groupsWithNewBackups.remove(parts[1]);
+				}
+
+				line = readRecord(reader);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads the next record from the given reader. Unlike
+	 * {@link BufferedReader#readLine()}, a line which does not end with a new
+	 * line is not returned, since it was only partly written.
+	 * 
+	 * @param reader
+	 *            The reader to read the record from. This value cannot be null.
+	 * 
+	 * @return The record without the new line, or null if there are no more
+	 *         complete records.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the journal file.
+	 */
+	private static String readRecord(BufferedReader reader) throws IOException {
+		StringBuilder b = new StringBuilder();
+		int c = reader.read();
+		while (c != -1) {
+			if (c == '\n') {
+				return b.toString();
+			}
+
+			b.append((char) c);
+			c = reader.read();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns whether the given group was done.
+	 * 
+	 * @param group
+	 *            The name of the group. This value cannot be null.
+	 * 
+	 * @return True if the group was done, false otherwise.
+	 */
+	public synchronized boolean isDone(String group) {
+		return doneGroups.contains(group);
+	}
+
+	/**
+	 * Restores the files of the groups which were started but not done, so
+	 * that they can be executed again.
+	 * 
+	 * @return The number of groups that were restored. This value will be
+	 *         &gt;= 0.
+	 * 
+	 * @throws IOException
+	 *             If there was an error restoring a file.
+	 */
+	public synchronized int recover() throws IOException {
+		int count = 0;
+		for (Map.Entry<String, List<BackupRecord>> entry : startedGroups.entrySet()) {
+			if (!doneGroups.contains(entry.getKey())) {
+				restore(entry.getValue());
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Restores the files of every group that was started, from the last group
+	 * to the first, and then deletes the journal.
+	 * 
+	 * @return The number of groups that were restored. This value will be
+	 *         &gt;= 0.
+	 * 
+	 * @throws IOException
+	 *             If there was an error restoring a file or deleting the
+	 *             journal.
+	 */
+	public synchronized int rollback() throws IOException {
+		List<List<BackupRecord>> groups = new ArrayList<>(startedGroups.values());
+		Collections.reverse(groups);
+		for (List<BackupRecord> backups : groups) {
+			restore(backups);
+		}
+
+		int count = groups.size();
+		delete();
+
+		return count;
+	}
+
+	/**
+	 * Records that the given group is starting, after copying each of the
+	 * given files to a backup.
+	 * 
+	 * @param group
+	 *            The name of the group. This value cannot be null or empty, and
+	 *            cannot contain tabs or line breaks.
+	 * @param files
+	 *            The files that the group may change, create or delete. This
+	 *            value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error copying a file or writing the journal.
+	 */
+	public void begin(String group, Collection<File> files) throws IOException {
+		Check.notNullOrEmpty(group, "group");
+		Check.notNull(files, "files");
+
+		File backupDir = new File(dir, BACKUP_DIRNAME);
+		Files.createDirectories(backupDir.toPath());
+
+		// copy outside the lock so that groups can be backed up at the same
+		// time
+		List<BackupRecord> backups = new ArrayList<>();
+		for (File file : files) {
+			String backupName = NO_BACKUP;
+			if (file.exists()) {
+				backupName = nextBackupNumber.getAndIncrement() + ".bak";
+				File backupFile = new File(backupDir, backupName);
+				Files.copy(file.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				syncFile(backupFile);
+			}
+			backups.add(new BackupRecord(file.getAbsolutePath(), backupName));
+		}
+
+		// the journal must not refer to a backup that a crash could lose
+		syncDirectory(backupDir);
+
+		synchronized (this) {
+			StringBuilder b = new StringBuilder();
+			b.append("BEGIN\t").append(group).append('\n');
+			for (BackupRecord backup : backups) {
+				b.append("FILE\t").append(group).append('\t').append(backup.path).append('\t')
+						.append(backup.backupName).append('\n');
+			}
+			append(b.toString());
+
+			if (!startedGroups.containsKey(group)) {
+				startedGroups.put(group, backups);
+			}
+		}
+	}
+
+	/**
+	 * Records that the given group is done.
+	 * 
+	 * @param group
+	 *            The name of the group. This value cannot be null or empty.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing the journal.
+	 */
+	public synchronized void done(String group) throws IOException {
+		Check.notNullOrEmpty(group, "group");
+
+		append("DONE\t" + group + "\n");
+		doneGroups.add(group);
+	}
+
+	/**
+	 * Deletes the journal file and the backups. This should be called after
+	 * the whole plan was executed.
+	 * 
+	 * @throws IOException
+	 *             If there was an error deleting a file.
+	 */
+	public synchronized void delete() throws IOException {
+		close();
+
+		File backupDir = new File(dir, BACKUP_DIRNAME);
+		File[] backupFiles = backupDir.listFiles();
+		if (backupFiles != null) {
+			for (File backupFile : backupFiles) {
+				Files.deleteIfExists(backupFile.toPath());
+			}
+		}
+		Files.deleteIfExists(backupDir.toPath());
+		Files.deleteIfExists(new File(dir, JOURNAL_FILENAME).toPath());
+		if (dir.exists() && dir.list().length == 0) {
+			Files.deleteIfExists(dir.toPath());
+		}
+
+		startedGroups.clear();
+		doneGroups.clear();
+	}
+
+	/**
+	 * Closes the journal file. Records can still be added after this, which
+	 * will open the file again.
+	 * 
+	 * @throws IOException
+	 *             If there was an error closing the file.
+	 */
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+	/**
+	 * Appends the given records to the journal file, and waits until they are
+	 * on disk.
+	 * 
+	 * @param records
+	 *            The records to append, each ending with a new line. This
+	 *            value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing the file.
+	 */
+	private void append(String records) throws IOException {
+		if (out == null) {
+			Files.createDirectories(dir.toPath());
+			out = new FileOutputStream(new File(dir, JOURNAL_FILENAME), true);
+		}
+
+		out.write(records.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+		out.getFD().sync();
+	}
+
+	/**
+	 * Restores the given files from their backups. Files which did not exist
+	 * when they were backed up are deleted.
+	 * 
+	 * @param backups
+	 *            The backups to restore. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If a backup is missing or is not a file, or there was an
+	 *             error restoring a file.
+	 */
+	private void restore(List<BackupRecord> backups) throws IOException {
+		File backupDir = new File(dir, BACKUP_DIRNAME);
+		for (BackupRecord backup : backups) {
+			File file = new File(backup.path);
+			if (backup.backupName.equals(NO_BACKUP)) {
+				Files.deleteIfExists(file.toPath());
+				continue;
+			}
+
+			File backupFile = new File(backupDir, backup.backupName);
+			if (!backupFile.isFile()) {
+				throw new IOException("The backup " + backupFile + " of " + file + " is not a file.");
+			}
+
+			// copy next to the file first so that it is replaced in one step
+			File tempFile = new File(file.getParentFile(), file.getName() + ".restore");
+			Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+			Files.copy(backupFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			syncFile(tempFile);
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the contents of the given file are on disk.
+	 * 
+	 * @param file
+	 *            The file to write to disk. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing the file to disk.
+	 */
+	private static void syncFile(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Waits until the entries of the given directory are on disk, so that
+	 * files which were just created in it are not lost if the system stops.
+	 * Some platforms, such as Windows, cannot open a directory, in which case
+	 * this does nothing.
+	 * 
+	 * @param directory
+	 *            The directory to write to disk. This value cannot be null.
+	 */
+	private static void syncDirectory(File directory) {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// the platform does not support it, the file system will write
+			// the entries on its own
+		}
+	}
+
+	/**
+	 * Makes sure that the next backup name is after the given backup name.
+	 * 
+	 * @param backupName
+	 *            A backup name that was loaded from the journal. This value
+	 *            cannot be null.
+	 */
+	private void updateNextBackupNumber(String backupName) {
+		if (backupName.equals(NO_BACKUP) || !backupName.endsWith(".bak")) {
+			return;
+		}
+
+		try {
+			int number = Integer.parseInt(backupName.substring(0, backupName.length() - ".bak".length()));
+			if (number >= nextBackupNumber.get()) {
+				nextBackupNumber.set(number + 1);
+			}
+		} catch (NumberFormatException e) {
+			// not one of ours, ignore it
+		}
+	}
+
+	/**
+	 * This class holds the backup of one file.
+	 */
+	private static class BackupRecord {
+
+		/**
+		 * The absolute path of the file.
+		 */
+		private String path;
+
+		/**
+		 * The name of the backup in the backup directory, or
+		 * {@link PlanJournal#NO_BACKUP} if the file did not exist.
+		 */
+		private String backupName;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param path
+		 *            The absolute path of the file. This value cannot be null.
+		 * @param backupName
+		 *            The name of the backup. This value cannot be null.
+		 */
+		private BackupRecord(String path, String backupName) {
+			this.path = path;
+			this.backupName = backupName;
+		}
+	}
+}
@@ -0,0 +1,432 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.cmt.Configuration;
+import com.ibm.commerce.cmt.Context;
+
+/**
+ * This class reads a plan from a stream one issue at a time, so that a plan
+ * can be executed without reading the whole plan into memory. It reads the
+ * XML written by {@link PlanWriter} or {@link Plan#toXML(org.w3c.dom.Document)}.
+ * <p>
+ * The patterns in the plan are not read, so the issues that are returned do
+ * not have a pattern. Everything needed to execute the issues is read.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanReader implements Closeable {
+
+	/**
+	 * The format of the timestamp of each location, which must be the same
+	 * format that {@link Location} uses.
+	 */
+	private final DateFormat timestampFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSS Z");
+
+	/**
+	 * The stream to read from.
+	 */
+	private InputStream in;
+
+	/**
+	 * The reader which reads the XML from the stream.
+	 */
+	private XMLStreamReader reader;
+
+	/**
+	 * The next issue, which was read to find the end of the issues for a file
+	 * but was not returned yet. This value is null if the next issue has not
+	 * been read yet.
+	 */
+	private Issue nextIssue;
+
+	/**
+	 * Constructor for this. The start of the plan is read immediately.
+	 * 
+	 * @param in
+	 *            The stream to read from. This value cannot be null. It will
+	 *            be closed when this is closed.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading from the stream, or the stream
+	 *             does not contain a plan.
+	 */
+	public PlanReader(InputStream in) throws IOException {
+		Check.notNull(in, "in");
+
+		this.in = in;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+			reader = factory.createXMLStreamReader(in);
+
+			reader.nextTag();
+			if (!reader.getLocalName().equals("plan")) {
+				throw new IOException("Expected a plan, but found " + reader.getLocalName());
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not read the start of the plan.", e);
+		}
+	}
+
+	/**
+	 * Reads the next issue in the plan.
+	 * 
+	 * @return The next issue, or null if there are no more issues.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading from the stream, or the issue
+	 *             is not valid.
+	 */
+	public Issue next() throws IOException {
+		if (nextIssue != null) {
+			Issue issue = nextIssue;
+			nextIssue = null;
+			return issue;
+		}
+
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					if (!reader.getLocalName().equals("issue")) {
+						throw new IOException("Expected an issue, but found " + reader.getLocalName());
+					}
+
+					return readIssue();
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					// the end of the plan
+					return null;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not read the next issue.", e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads the issues for the next file in the plan. These are the next
+	 * issues that have the same file, in the order they are in the plan.
+	 * 
+	 * @return The issues for the next file, or null if there are no more
+	 *         issues. If not null, the list will not be empty.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading from the stream, or an issue
+	 *             is not valid.
+	 */
+	public List<Issue> nextFile() throws IOException {
+		Issue first = next();
+		if (first == null) {
+			return null;
+		}
+
+		List<Issue> issues = new ArrayList<>();
+		issues.add(first);
+		String file = first.getLocation().getFile();
+		Issue issue = next();
+		while (issue != null && issue.getLocation().getFile().equals(file)) {
+			issues.add(issue);
+			issue = next();
+		}
+
+		nextIssue = issue;
+
+		return issues;
+	}
+
+	/**
+	 * Executes the remaining issues in the plan, one file at a time. Only the
+	 * issues for one file are in memory at a time.
+	 * 
+	 * @param config
+	 *            The configuration that the plan was created with. This value
+	 *            cannot be null.
+	 * @param context
+	 *            The context to execute the issues in. This value cannot be
+	 *            null.
+	 * 
+	 * @return The number of issues that were executed. This value will be
+	 *         &gt;= 0.
+	 * 
+	 * @throws Exception
+	 *             If there was an error reading the plan or executing an
+	 *             issue.
+	 */
+	public int execute(Configuration config, Context context) throws Exception {
+		Check.notNull(config, "config");
+		Check.notNull(context, "context");
+
+		int count = 0;
+		List<Issue> issues = nextFile();
+		while (issues != null) {
+			Plan filePlan = new Plan();
+			for (Issue issue : issues) {
+				filePlan.addIssue(issue);
+			}
+			filePlan.execute(config, context);
+
+			count += issues.size();
+			issues = nextFile();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Closes the stream.
+	 * 
+	 * @throws IOException
+	 *             If there was an error closing the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not close the plan.", e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the issue that the reader is at the start of.
+	 * 
+	 * @return The issue. This value will not be null.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error reading from the stream.
+	 * @throws IOException
+	 *             If the issue is not valid.
+	 */
+	private Issue readIssue() throws XMLStreamException, IOException {
+		Issue issue = new Issue(parseInt(reader.getAttributeValue(null, "id"), "id"));
+		issue.setSteps(new ArrayList<>());
+
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = reader.getLocalName();
+			if (name.equals("pattern")) {
+				skipElement();
+			} else if (name.equals("location")) {
+				issue.setLocation(readLocation());
+			} else if (name.equals("description")) {
+				issue.setDescription(reader.getElementText());
+			} else if (name.equals("source")) {
+				issue.setSource(reader.getElementText());
+			} else if (name.equals("steps")) {
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					issue.getSteps().add(readStep());
+				}
+			} else {
+				throw new IOException("Unknown element in issue " + issue.getID() + ": " + name);
+			}
+		}
+
+		if (issue.getLocation() == null) {
+			throw new IOException("Issue " + issue.getID() + " has no location.");
+		}
+
+		return issue;
+	}
+
+	/**
+	 * Reads the location that the reader is at the start of.
+	 * 
+	 * @return The location. This value will not be null.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error reading from the stream.
+	 * @throws IOException
+	 *             If the location is not valid.
+	 */
+	private Location readLocation() throws XMLStreamException, IOException {
+		String file = reader.getAttributeValue(null, "file");
+		if (file == null) {
+			throw new IOException("Location has no file.");
+		}
+
+		Range range = new Range();
+		range.setStart(parseInt(reader.getAttributeValue(null, "start"), "start"));
+		range.setEnd(parseInt(reader.getAttributeValue(null, "end"), "end"));
+
+		Location location = new Location();
+		location.setFile(file);
+		location.setRange(range);
+		location.setFormattedRange(reader.getAttributeValue(null, "location"));
+
+		String timestamp = reader.getAttributeValue(null, "timestamp");
+		if (timestamp != null) {
+			try {
+				location.setTimestamp(timestampFormat.parse(timestamp).getTime());
+			} catch (ParseException e) {
+				throw new IOException("Location in " + file + " has an invalid timestamp: " + timestamp, e);
+			}
+		}
+
+		skipElement();
+
+		return location;
+	}
+
+	/**
+	 * Reads the step that the reader is at the start of.
+	 * 
+	 * @return The step. This value will not be null.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error reading from the stream.
+	 * @throws IOException
+	 *             If the step is not valid.
+	 */
+	private Step readStep() throws XMLStreamException, IOException {
+		String name = reader.getLocalName();
+		Step step;
+		if (name.equals("log")) {
+			step = new LogStep(reader.getElementText());
+		} else if (name.equals("replaceinfile")) {
+			Map<String, String> values = readChildValues();
+			step = new ReplaceInFileStep(getValue(values, name, "replacement"));
+		} else if (name.equals("deletefile")) {
+			Map<String, String> values = readChildValues();
+			step = new DeleteFileStep(new File(getValue(values, name, "file")));
+		} else if (name.equals("renamefile")) {
+			Map<String, String> values = readChildValues();
+			step = new RenameFileStep(new File(getValue(values, name, "file")),
+					new File(getValue(values, name, "tofile")));
+		} else {
+			throw new IOException("Unknown step: " + name);
+		}
+
+		return step;
+	}
+
+	/**
+	 * Reads the children of the element that the reader is at the start of,
+	 * which must only contain text.
+	 * 
+	 * @return The text of each child, keyed by the name of the child. This
+	 *         value will not be null.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error reading from the stream.
+	 */
+	private Map<String, String> readChildValues() throws XMLStreamException {
+		Map<String, String> values = new HashMap<>();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = reader.getLocalName();
+			values.put(name, reader.getElementText());
+		}
+
+		return values;
+	}
+
+	/**
+	 * Returns the value of a child of a step.
+	 * 
+	 * @param values
+	 *            The values of the children of the step. This value cannot be
+	 *            null.
+	 * @param stepName
+	 *            The name of the step, used for the error message. This value
+	 *            cannot be null.
+	 * @param name
+	 *            The name of the child. This value cannot be null.
+	 * 
+	 * @return The value of the child. This value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If the step does not have the child.
+	 */
+	private String getValue(Map<String, String> values, String stepName, String name) throws IOException {
+		String value = values.get(name);
+		if (value == null) {
+			throw new IOException("The " + stepName + " step has no " + name + ".");
+		}
+
+		return value;
+	}
+
+	/**
+	 * Skips the element that the reader is at the start of, including all of
+	 * its children. After this, the reader is at the end of the element.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error reading from the stream.
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Parses an integer attribute.
+	 * 
+	 * @param value
+	 *            The value of the attribute. This value may be null.
+	 * @param name
+	 *            The name of the attribute, used for the error message. This
+	 *            value cannot be null.
+	 * 
+	 * @return The integer value.
+	 * 
+	 * @throws IOException
+	 *             If the value is null or not an integer.
+	 */
+	private int parseInt(String value, String name) throws IOException {
+		if (value == null) {
+			throw new IOException("Missing attribute " + name + ".");
+		}
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("Attribute " + name + " is not a number: " + value, e);
+		}
+	}
+}
@@ -0,0 +1,389 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.ibm.commerce.cmt.Configuration;
+import com.ibm.commerce.cmt.Context;
+import com.ibm.commerce.cmt.MigrationTestCase;
+import com.ibm.commerce.cmt.PlanCreator;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+
+/**
+ * This class tests the {@link PlanReader} and {@link PlanWriter} classes.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanReaderTest extends MigrationTestCase {
+
+	/**
+	 * True indicates that the heap test is run, false indicates that it is
+	 * skipped because it writes a large file and takes a long time. Set the
+	 * "benchmark" system property to true to run it.
+	 */
+	private static final boolean MEASURE_HEAP = Boolean.getBoolean("benchmark");
+
+	/**
+	 * The number of issues in the plan for the round-trip test.
+	 */
+	private static final int SMALL_PLAN_ISSUES = 1000;
+
+	/**
+	 * The number of issues in the plan for the heap test.
+	 */
+	private static final int LARGE_PLAN_ISSUES = 500000;
+
+	/**
+	 * The most that the heap may grow while writing or reading the plan for
+	 * the heap test. The same plan as a DOM takes several hundred MB.
+	 */
+	private static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+	/**
+	 * The number of issues written or read between measurements of the heap.
+	 */
+	private static final int HEAP_CHECK_INTERVAL = 100000;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		parentDir = new File("testData\\classRefCmd");
+	}
+
+	/**
+	 * Tests that if issues with every type of step are written and read, the
+	 * issues that are read are the same.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testReadIfWrittenExpectSameIssues() throws Exception {
+		List<Issue> issues = new ArrayList<>();
+		issues.add(createIssue(3, "C:\\src\\A.java", 20, 25, "Hello",
+				new ReplaceInFileStep("Goodbye <&> \u00e9\u4e2d"), new LogStep("Replaced \"Hello\"")));
+		issues.add(createIssue(4, "C:\\src\\A.java", 5, 10, "World", new DeleteFileStep(new File("C:\\src\\A.java"))));
+		issues.add(createIssue(1, "C:\\src\\B.java", 0, 0, "",
+				new RenameFileStep(new File("C:\\src\\B.java"), new File("C:\\src\\C.java"))));
+		issues.add(createIssue(2, "C:\\src\\D.java", 7, 9, "x\ny"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PlanWriter writer = new PlanWriter(out);
+		for (Issue issue : issues) {
+			writer.write(issue);
+		}
+		writer.close();
+
+		PlanReader reader = new PlanReader(new ByteArrayInputStream(out.toByteArray()));
+		List<Issue> readIssues = new ArrayList<>();
+		Issue issue = reader.next();
+		while (issue != null) {
+			readIssues.add(issue);
+			issue = reader.next();
+		}
+		reader.close();
+
+		assertEquals("Wrong number of issues.", issues.size(), readIssues.size());
+		for (int i = 0; i < issues.size(); i++) {
+			assertEquals("Issue " + i + " is different.", toXMLString(issues.get(i)), toXMLString(readIssues.get(i)));
+		}
+	}
+
+	/**
+	 * Tests that if a plan is read by file, the issues are grouped by file in
+	 * the order they were written.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testNextFileIfIssuesForManyFilesExpectGroupedByFile() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PlanWriter writer = new PlanWriter(out);
+		writer.write(createIssue(1, "A.java", 10, 12, "ab"));
+		writer.write(createIssue(2, "A.java", 1, 3, "cd"));
+		writer.write(createIssue(3, "B.java", 4, 6, "ef"));
+		writer.close();
+
+		PlanReader reader = new PlanReader(new ByteArrayInputStream(out.toByteArray()));
+		List<Issue> firstFile = reader.nextFile();
+		List<Issue> secondFile = reader.nextFile();
+		List<Issue> noFile = reader.nextFile();
+		reader.close();
+
+		assertEquals("Wrong number of issues in A.java.", 2, firstFile.size());
+		assertEquals("Wrong first issue.", 1, firstFile.get(0).getID());
+		assertEquals("Wrong second issue.", 2, firstFile.get(1).getID());
+		assertEquals("Wrong number of issues in B.java.", 1, secondFile.size());
+		assertEquals("Wrong file.", "B.java", secondFile.get(0).getLocation().getFile());
+		assertNull("Found issues after the end.", noFile);
+	}
+
+	/**
+	 * Tests that if a plan is created with a writer and read again, the issues
+	 * are the same as the plan created in memory, except for the patterns.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testReadIfWrittenByPlanCreatorExpectSameIssuesAsPlan() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\v8-v9-wc-patterns.xml"), new File("testData\\v8-v9-customer-patterns.xml"));
+		List<File> sourceDirList = Arrays.asList(new File("testData\\classRefCmd"));
+		Configuration config = new Configuration(commandFileList, sourceDirList, null);
+		config.load();
+
+		List<File> files = new ArrayList<>();
+		for (int i = 1; i <= 21; i++) {
+			files.add(prepareTestFile("Test" + i + "Java.txt"));
+		}
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+
+		PlanCreator creator = new PlanCreator(config.getPatterns(), index, null, logWriter, 2);
+		Plan plan = creator.createPlan(files, new IDGenerator(1));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PlanWriter writer = new PlanWriter(out);
+		int writtenCount = creator.createPlan(files, new IDGenerator(1), writer);
+		writer.close();
+
+		PlanReader reader = new PlanReader(new ByteArrayInputStream(out.toByteArray()));
+		Plan readPlan = new Plan();
+		Issue issue = reader.next();
+		while (issue != null) {
+			readPlan.addIssue(issue);
+			issue = reader.next();
+		}
+		reader.close();
+
+		assertTrue("No issues were found.", plan.getIssues().size() > 0);
+		assertEquals("Wrong number of written issues.", plan.getIssues().size(), writtenCount);
+		for (Issue planIssue : plan.getIssues()) {
+			planIssue.setPattern(null);
+		}
+		assertEquals("Plans are different.", toXMLString(plan), toXMLString(readPlan));
+	}
+
+	/**
+	 * Tests that if a plan is executed from a reader, every file is changed.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testExecuteIfIssuesForTwoFilesExpectBothChanged() throws Exception {
+		File file1 = createTempFile("Hello World");
+		File file2 = createTempFile("one two three");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PlanWriter writer = new PlanWriter(out);
+		writer.write(createIssue(1, file1.getAbsolutePath(), 6, 11, "World", new ReplaceInFileStep("There")));
+		writer.write(createIssue(2, file1.getAbsolutePath(), 0, 5, "Hello", new ReplaceInFileStep("Hi")));
+		writer.write(createIssue(3, file2.getAbsolutePath(), 4, 7, "two", new ReplaceInFileStep("2")));
+		writer.close();
+
+		Context context = new Context(new IDGenerator(1));
+		context.set(Context.Prop.LOG_WRITER, logWriter);
+		PlanReader reader = new PlanReader(new ByteArrayInputStream(out.toByteArray()));
+		Configuration config = new Configuration(Arrays.asList(new File("testData\\commandClassRef.txt")),
+				Arrays.asList(new File("testData\\classRefCmd")), null);
+		int executedCount = reader.execute(config, context);
+		reader.close();
+
+		assertEquals("Wrong number of executed issues.", 3, executedCount);
+		assertEquals("Wrong contents in file 1.", "Hi There", new String(Files.readAllBytes(file1.toPath())));
+		assertEquals("Wrong contents in file 2.", "one 2 three", new String(Files.readAllBytes(file2.toPath())));
+	}
+
+	/**
+	 * Tests that if the stream does not contain a plan, an exception is thrown.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testReadIfNotPlanExpectException() throws Exception {
+		try {
+			new PlanReader(new ByteArrayInputStream("<issues></issues>".getBytes("UTF-8")));
+			fail("IOException was not thrown.");
+		} catch (IOException e) {
+			// success
+		}
+	}
+
+	/**
+	 * Tests that if a plan is written to a file and read by file, all issues
+	 * are read in the order they were written.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testWriteAndReadIfPlanFileExpectAllIssuesInOrder() throws Exception {
+		writeAndReadPlanFile(SMALL_PLAN_ISSUES, false);
+	}
+
+	/**
+	 * Tests that if a plan with 500,000 issues is written and read, the heap
+	 * does not grow with the number of issues. This is only run when
+	 * benchmarking.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testWriteAndReadIfLargePlanExpectHeapBounded() throws Exception {
+		if (!MEASURE_HEAP) {
+			return;
+		}
+
+		writeAndReadPlanFile(LARGE_PLAN_ISSUES, true);
+	}
+
+	/**
+	 * Writes a plan with the given number of issues to a temporary file, reads
+	 * it back by file, and checks that all the issues were read in order.
+	 * 
+	 * @param issueCount
+	 *            The number of issues to write. This value must be &gt; 0.
+	 * @param checkHeap
+	 *            True indicates that the heap must not grow by more than
+	 *            {@link #MAX_HEAP_GROWTH} while writing or reading, false
+	 *            indicates that the heap is not measured.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs while writing or reading.
+	 */
+	private void writeAndReadPlanFile(int issueCount, boolean checkHeap) throws Exception {
+		File planFile = File.createTempFile("cmtplan", ".xml");
+		planFile.deleteOnExit();
+		try {
+			long beforeWrite = checkHeap ? getUsedMemory() : 0;
+			long maxWrite = 0;
+			PlanWriter writer = new PlanWriter(new BufferedOutputStream(new FileOutputStream(planFile)));
+			for (int i = 1; i <= issueCount; i++) {
+				String filename = "C:\\src\\File" + (i / 100) + ".java";
+				int start = 10000 - (i % 100) * 10;
+				writer.write(createIssue(i, filename, start, start + 5, "Hello",
+						new ReplaceInFileStep("Goodbye" + i)));
+				if (checkHeap && i % HEAP_CHECK_INTERVAL == 0) {
+					maxWrite = Math.max(maxWrite, getUsedMemory() - beforeWrite);
+				}
+			}
+			writer.close();
+
+			long beforeRead = checkHeap ? getUsedMemory() : 0;
+			long maxRead = 0;
+			int readCount = 0;
+			int nextHeapCheck = HEAP_CHECK_INTERVAL;
+			PlanReader reader = new PlanReader(new BufferedInputStream(new FileInputStream(planFile)));
+			try {
+				List<Issue> fileIssues = reader.nextFile();
+				while (fileIssues != null) {
+					String filename = fileIssues.get(0).getLocation().getFile();
+					for (Issue issue : fileIssues) {
+						readCount++;
+						assertEquals("Wrong issue ID.", readCount, issue.getID());
+						assertEquals("Issue " + readCount + " is in the wrong file.", filename,
+								issue.getLocation().getFile());
+					}
+					if (checkHeap && readCount >= nextHeapCheck) {
+						maxRead = Math.max(maxRead, getUsedMemory() - beforeRead);
+						nextHeapCheck += HEAP_CHECK_INTERVAL;
+					}
+					fileIssues = reader.nextFile();
+				}
+			} finally {
+				reader.close();
+			}
+
+			assertEquals("Wrong number of issues read.", issueCount, readCount);
+			assertTrue("Heap grew by " + maxWrite + " bytes while writing.", maxWrite < MAX_HEAP_GROWTH);
+			assertTrue("Heap grew by " + maxRead + " bytes while reading.", maxRead < MAX_HEAP_GROWTH);
+		} finally {
+			planFile.delete();
+		}
+	}
+
+	private Issue createIssue(int id, String filename, int start, int end, String source, Step... steps) {
+		Range range = new Range();
+		range.setStart(start);
+		range.setEnd(end);
+
+		Location location = new Location();
+		location.setFile(filename);
+		location.setRange(range);
+		location.setFormattedRange("line " + start);
+		location.setTimestamp(1500000000123L);
+
+		Issue issue = new Issue(id);
+		issue.setLocation(location);
+		issue.setDescription("Issue " + id);
+		issue.setSource(source);
+		issue.setSteps(new ArrayList<>(Arrays.asList(steps)));
+
+		return issue;
+	}
+
+	private File createTempFile(String contents) throws IOException {
+		File file = File.createTempFile("PlanReaderTest", ".java");
+		file.deleteOnExit();
+		filesToDelete.add(file);
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(contents);
+		} finally {
+			writer.close();
+		}
+
+		return file;
+	}
+
+	private long getUsedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private String toXMLString(Issue issue) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PlanWriter writer = new PlanWriter(out);
+		writer.write(issue);
+		writer.close();
+		return out.toString("UTF-8");
+	}
+
+	private String toXMLString(Plan plan) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PlanWriter writer = new PlanWriter(out);
+		for (Issue issue : plan.getIssues()) {
+			writer.write(issue);
+		}
+		writer.close();
+		return out.toString("UTF-8");
+	}
+}
@@ -19,7 +19,9 @@
  */
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.core.dom.CompilationUnit;
@@ -36,6 +38,13 @@
  */
 public class PlanTest extends MigrationTestCase {
 
+	/**
+	 * True if the scaling of {@link Plan#addIssue(Issue)} should be measured.
+	 * This is off unless the <code>benchmark</code> system property is true,
+	 * since a busy build machine can make any run slow.
+	 */
+	private static final boolean MEASURE_SCALING = Boolean.getBoolean("benchmark");
+
 	protected void setUp() throws Exception {
 		super.setUp();
 		parentDir = new File("testData\\classRefCmd");
@@ -819,4 +828,145 @@ public void testExecuteIfPartialClassInTypeCastFoundExpectReplacedWithPartial()
 		checkTypeCast(afterCompUnit, "run", "FinderException", false);
 		checkTypeCast(afterCompUnit, "run", "HelloException", true);
 	}
+
+	/**
+	 * Tests that if issues are added in any order, they are ordered by file
+	 * and from the end of each file to the beginning, and issues with the same
+	 * range stay in the order they were added.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testGetIssuesIfAddedOutOfOrderExpectOrderedByFileAndDescendingRange() throws Exception {
+		Plan plan = new Plan();
+		plan.addIssue(createIssue(1, "B.java", 5, 10));
+		plan.addIssue(createIssue(2, "A.java", 5, 10));
+		plan.addIssue(createIssue(3, "B.java", 20, 30));
+		plan.addIssue(createIssue(4, "A.java", 5, 12));
+		plan.addIssue(createIssue(5, "A.java", 5, 10));
+		plan.addIssue(createIssue(6, "A.java", 0, 2));
+
+		assertEquals("Wrong order.", Arrays.asList(4, 2, 5, 6, 3, 1), getIDs(plan.getIssues()));
+		assertEquals("Wrong files.", Arrays.asList("A.java", "B.java"), plan.getFilenames());
+		assertEquals("Wrong issues for B.java.", Arrays.asList(3, 1), getIDs(plan.getIssues("B.java")));
+		assertTrue("Found issues for C.java.", plan.getIssues("C.java").isEmpty());
+	}
+
+	/**
+	 * Tests that if two issues replace overlapping text in the same file, a
+	 * conflict is recorded and both issues are kept.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testAddIssueIfReplacementsOverlapExpectConflict() throws Exception {
+		Plan plan = new Plan();
+		Issue first = createIssue(1, "A.java", 10, 20, new ReplaceInFileStep("x"));
+		Issue second = createIssue(2, "A.java", 15, 25, new ReplaceInFileStep("y"));
+		plan.addIssue(first);
+		plan.addIssue(second);
+
+		assertEquals("Wrong number of issues.", 2, plan.getIssues().size());
+		assertEquals("Wrong number of conflicts.", 1, plan.getConflicts().size());
+		assertSame("Wrong issue.", second, plan.getConflicts().get(0).getIssue());
+		assertSame("Wrong existing issue.", first, plan.getConflicts().get(0).getExistingIssue());
+	}
+
+	/**
+	 * Tests that if a replacement is inside a large replacement that was added
+	 * before other replacements, a conflict is recorded.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testAddIssueIfReplacementInsideEarlierLargeReplacementExpectConflict() throws Exception {
+		Plan plan = new Plan();
+		Issue large = createIssue(1, "A.java", 0, 100, new ReplaceInFileStep("x"));
+		plan.addIssue(large);
+		plan.addIssue(createIssue(2, "A.java", 200, 210, new ReplaceInFileStep("y")));
+		plan.addIssue(createIssue(3, "A.java", 50, 60, new ReplaceInFileStep("z")));
+
+		assertEquals("Wrong number of conflicts.", 1, plan.getConflicts().size());
+		assertSame("Wrong existing issue.", large, plan.getConflicts().get(0).getExistingIssue());
+	}
+
+	/**
+	 * Tests that if issues are next to each other, in different files, or do
+	 * not replace text, no conflict is recorded.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testAddIssueIfNoOverlappingReplacementsExpectNoConflict() throws Exception {
+		Plan plan = new Plan();
+		plan.addIssue(createIssue(1, "A.java", 10, 20, new ReplaceInFileStep("x")));
+		plan.addIssue(createIssue(2, "A.java", 20, 30, new ReplaceInFileStep("y")));
+		plan.addIssue(createIssue(3, "A.java", 0, 10, new ReplaceInFileStep("z")));
+		plan.addIssue(createIssue(4, "B.java", 15, 25, new ReplaceInFileStep("x")));
+		plan.addIssue(createIssue(5, "A.java", 15, 25, new LogStep("found")));
+
+		assertEquals("Wrong number of issues.", 5, plan.getIssues().size());
+		assertTrue("Found conflicts.", plan.getConflicts().isEmpty());
+	}
+
+	/**
+	 * Tests that if 100,000 issues are added, they are all kept without
+	 * conflicts. When benchmarking, also tests that this takes close to 10
+	 * times as long as adding 10,000 issues, rather than 100 times or more.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testAddIssueIfManyIssuesExpectAllAdded() throws Exception {
+		// warm up the JIT
+		addIssues(10000);
+
+		long smallTime = addIssues(10000);
+		long largeTime = addIssues(100000);
+
+		if (MEASURE_SCALING) {
+			assertTrue("Adding 100,000 issues took " + largeTime / Math.max(smallTime, 1)
+					+ " times as long as adding 10,000.", largeTime < smallTime * 30);
+		}
+	}
+
+	private long addIssues(int count) {
+		long beforeTime = System.nanoTime();
+		Plan plan = new Plan();
+		for (int i = 0; i < count; i++) {
+			// spread the issues over files, and add them in ascending order,
+			// which is the reverse of the order they are kept in
+			int start = (i / 100) * 10;
+			plan.addIssue(createIssue(i, "File" + (i % 100) + ".java", start, start + 5, new ReplaceInFileStep("x")));
+		}
+		assertEquals("Wrong number of issues.", count, plan.getIssues().size());
+		assertTrue("Found conflicts.", plan.getConflicts().isEmpty());
+
+		return System.nanoTime() - beforeTime;
+	}
+
+	private Issue createIssue(int id, String filename, int start, int end, Step... steps) {
+		Range range = new Range();
+		range.setStart(start);
+		range.setEnd(end);
+
+		Location location = new Location();
+		location.setFile(filename);
+		location.setRange(range);
+
+		Issue issue = new Issue(id);
+		issue.setLocation(location);
+		issue.setSteps(new ArrayList<>(Arrays.asList(steps)));
+
+		return issue;
+	}
+
+	private List<Integer> getIDs(Collection<Issue> issues) {
+		List<Integer> ids = new ArrayList<>();
+		for (Issue issue : issues) {
+			ids.add(issue.getID());
+		}
+
+		return ids;
+	}
 }
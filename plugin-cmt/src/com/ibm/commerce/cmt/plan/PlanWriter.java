@@ -0,0 +1,274 @@
+package com.ibm.commerce.cmt.plan;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.cmt.Configuration;
+import com.ibm.commerce.cmt.Context;
+
+/**
+ * This class writes a plan to a stream one issue at a time, so that issues can
+ * be written as soon as they are found, and the whole plan never needs to be
+ * in memory. The XML is the same as {@link Plan#toXML(Document)}, and can be
+ * read with {@link PlanReader}.
+ * <p>
+ * {@link PlanReader#execute(Configuration, Context)} executes the issues of
+ * each file together, so the issues for a file should be written one after
+ * the other, ordered with {@link Plan.IssueComparator}.
+ * 
+ * @author Trent Hoeppner
+ */
+public class PlanWriter implements Closeable {
+
+	/**
+	 * The string used to indent each level of elements.
+	 */
+	private static final String INDENT = "    ";
+
+	/**
+	 * The stream to write to.
+	 */
+	private OutputStream out;
+
+	/**
+	 * The writer which writes the XML to the stream.
+	 */
+	private XMLStreamWriter writer;
+
+	/**
+	 * The document used to create the XML for patterns, locations and steps.
+	 * Nodes are created but never added to it, so it does not grow.
+	 */
+	private Document doc;
+
+	/**
+	 * The number of issues written so far.
+	 */
+	private int issueCount;
+
+	/**
+	 * Constructor for this. The start of the plan is written immediately.
+	 * 
+	 * @param out
+	 *            The stream to write to. This value cannot be null. It will be
+	 *            closed when this is closed.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing to the stream.
+	 */
+	public PlanWriter(OutputStream out) throws IOException {
+		Check.notNull(out, "out");
+
+		this.out = out;
+		try {
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw new IllegalArgumentException("Could not configure parser for XML Document", e);
+		}
+
+		try {
+			writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+			writer.writeStartDocument("UTF-8", "1.0");
+			writer.writeCharacters("\n");
+			writer.writeStartElement("plan");
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not write the start of the plan.", e);
+		}
+	}
+
+	/**
+	 * Writes the given issue to the stream.
+	 * 
+	 * @param issue
+	 *            The issue to write. This value cannot be null. If the issue
+	 *            does not have a pattern, the pattern is not written.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing to the stream.
+	 */
+	public void write(Issue issue) throws IOException {
+		Check.notNull(issue, "issue");
+
+		try {
+			indent(1);
+			writer.writeStartElement("issue");
+			writer.writeAttribute("id", String.valueOf(issue.getID()));
+
+			if (issue.getPattern() != null) {
+				writeNode(issue.getPattern().toXML(doc), 2);
+			}
+
+			writeNode(issue.getLocation().toXML(doc), 2);
+			writeTextElement("description", issue.getDescription(), 2);
+			writeTextElement("source", issue.getSource(), 2);
+
+			indent(2);
+			writer.writeStartElement("steps");
+			boolean hasSteps = false;
+			if (issue.getSteps() != null) {
+				for (Step step : issue.getSteps()) {
+					writeNode(step.toXML(doc), 3);
+					hasSteps = true;
+				}
+			}
+			if (hasSteps) {
+				indent(2);
+			}
+			writer.writeEndElement();
+
+			indent(1);
+			writer.writeEndElement();
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not write issue " + issue.getID(), e);
+		}
+
+		issueCount++;
+	}
+
+	/**
+	 * Returns the number of issues that were written.
+	 * 
+	 * @return The number of issues. This value will be &gt;= 0.
+	 */
+	public int getIssueCount() {
+		return issueCount;
+	}
+
+	/**
+	 * Writes the end of the plan and closes the stream.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing to or closing the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (issueCount > 0) {
+				writer.writeCharacters("\n");
+			}
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.writeCharacters("\n");
+			writer.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not write the end of the plan.", e);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes an element which only contains text.
+	 * 
+	 * @param name
+	 *            The name of the element. This value cannot be null or empty.
+	 * @param text
+	 *            The text in the element. If null, the element will be empty.
+	 * @param depth
+	 *            The number of levels to indent the element. This value must
+	 *            be &gt;= 0.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error writing to the stream.
+	 */
+	private void writeTextElement(String name, String text, int depth) throws XMLStreamException {
+		indent(depth);
+		writer.writeStartElement(name);
+		if (text != null) {
+			writer.writeCharacters(text);
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes the given DOM node and its children.
+	 * 
+	 * @param node
+	 *            The node to write. This value cannot be null.
+	 * @param depth
+	 *            The number of levels to indent the node. This value must be
+	 *            &gt;= 0.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error writing to the stream.
+	 */
+	private void writeNode(Node node, int depth) throws XMLStreamException {
+		if (node.getNodeType() != Node.ELEMENT_NODE) {
+			writer.writeCharacters(node.getTextContent());
+			return;
+		}
+
+		indent(depth);
+		writer.writeStartElement(node.getNodeName());
+
+		NamedNodeMap attributes = node.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++) {
+			Attr attribute = (Attr) attributes.item(i);
+			writer.writeAttribute(attribute.getName(), attribute.getValue());
+		}
+
+		boolean hasChildElements = false;
+		NodeList children = node.getChildNodes();
+		for (int i = 0; i < children.getLength(); i++) {
+			Node child = children.item(i);
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				hasChildElements = true;
+			}
+			writeNode(child, depth + 1);
+		}
+
+		if (hasChildElements) {
+			indent(depth);
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes a new line and indents it.
+	 * 
+	 * @param depth
+	 *            The number of levels to indent. This value must be &gt;= 0.
+	 * 
+	 * @throws XMLStreamException
+	 *             If there was an error writing to the stream.
+	 */
+	private void indent(int depth) throws XMLStreamException {
+		StringBuilder b = new StringBuilder("\n");
+		for (int i = 0; i < depth; i++) {
+			b.append(INDENT);
+		}
+		writer.writeCharacters(b.toString());
+	}
+}
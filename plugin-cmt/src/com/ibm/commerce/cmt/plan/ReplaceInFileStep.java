@@ -41,7 +41,7 @@ public ReplaceInFileStep(String replacement) {
 
 	@Override
 	public void execute(Context context) throws Exception {
-		StringBuilder b = context.get(Context.Prop.FILE_WRITE_BUFFER);
+		EditBuffer b = context.get(Context.Prop.FILE_WRITE_BUFFER);
 		Range range = context.get(Context.Prop.RANGE);
 		String originalSource = context.get(Context.Prop.ORIGINAL_SOURCE);
 
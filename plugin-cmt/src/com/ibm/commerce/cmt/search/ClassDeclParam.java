@@ -21,10 +21,10 @@
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 
-import org.eclipse.jdt.core.dom.ASTVisitor;
-import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -35,6 +35,7 @@
 import com.ibm.commerce.cmt.Param;
 import com.ibm.commerce.dependency.model.JavaItem;
 import com.ibm.commerce.dependency.model.JavaItemUtil;
+import com.ibm.commerce.dependency.model.Scope;
 
 /**
  * This class represents a search parameter that can find Java class
@@ -42,7 +43,7 @@
  * 
  * @author Trent Hoeppner
  */
-public class ClassDeclParam implements SearchParam {
+public class ClassDeclParam implements NodeSearchParam {
 
 	private List<Param> params;
 
@@ -71,7 +72,7 @@ public boolean allowFile(File file) {
 		boolean allow;
 		if (file.getName().toLowerCase().endsWith(".java")) {
 			// probably yes, but check subparams
-			allow = SearchParam.super.allowFile(file);
+			allow = NodeSearchParam.super.allowFile(file);
 		} else {
 			// this search param cannot work if it's not a java file
 			allow = false;
@@ -81,7 +82,7 @@ public boolean allowFile(File file) {
 	}
 
 	@Override
-	public List<ASTNodeIssueData> findAll(Context context) {
+	public NodeMatcher createMatcher(Context context) {
 		NameParam nameParam = null;
 		for (Param param : params) {
 			if (param instanceof NameParam) {
@@ -89,12 +90,19 @@ public List<ASTNodeIssueData> findAll(Context context) {
 			}
 		}
 
-		ClassDeclVisitor v = new ClassDeclVisitor(context, nameParam);
-		CompilationUnit compUnit = context.get(Context.Prop.COMP_UNIT);
-		compUnit.accept(v);
-		List<ASTNodeIssueData> found = v.allFound;
+		return new ClassDeclMatcher(context, nameParam);
+	}
+
+	@Override
+	public Set<String> getNameSuffixes() {
+		NameParam nameParam = null;
+		for (Param param : params) {
+			if (param instanceof NameParam) {
+				nameParam = (NameParam) param;
+			}
+		}
 
-		return found;
+		return NodeMatcher.getNameSuffixes(nameParam);
 	}
 
 	@Override
@@ -108,34 +116,40 @@ public Node toXML(Document doc) {
 		return searchParam;
 	}
 
-	private final class ClassDeclVisitor extends ASTVisitor {
+	private final class ClassDeclMatcher extends NodeMatcher {
 		private NameParam nameParam;
 
-		private List<ASTNodeIssueData> allFound = new ArrayList<>();
-
 		private Context context;
 
-		public ClassDeclVisitor(Context context, NameParam nameParam) {
+		public ClassDeclMatcher(Context context, NameParam nameParam) {
 			this.context = context;
 			this.nameParam = nameParam;
 		}
 
 		@Override
-		public boolean visit(TypeDeclaration node) {
+		public int[] getNodeTypes() {
+			return new int[] { ASTNode.TYPE_DECLARATION };
+		}
+
+		@Override
+		public Set<String> getSimpleNames() {
+			return getSimpleNames(nameParam);
+		}
+
+		@Override
+		public void match(ASTNode node, Scope scope) {
 			JavaItem javaClass = JavaItemUtil.findJavaClass(context, node);
 			if (javaClass == null) {
 				// TODO find out why some JSP files are not found
-				return super.visit(node);
+				return;
 			}
 
 			String fullName = JavaItemUtil.getFullClassNameForType(javaClass);
 			List<Matcher> matchers = new ArrayList<>();
 			context.set(Context.Prop.ALL_MATCHERS, matchers);
 			if (nameParam.accept(context, fullName)) {
-				allFound.add(new ASTNodeIssueData(node.getName(), matchers));
+				addFound(new ASTNodeIssueData(((TypeDeclaration) node).getName(), matchers));
 			}
-
-			return super.visit(node);
 		}
 
 	}
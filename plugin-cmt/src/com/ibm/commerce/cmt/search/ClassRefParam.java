@@ -23,10 +23,10 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 
-import org.eclipse.jdt.core.dom.ASTVisitor;
-import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ImportDeclaration;
 import org.eclipse.jdt.core.dom.SimpleType;
 import org.w3c.dom.Document;
@@ -36,6 +36,7 @@
 import com.ibm.commerce.cmt.Check;
 import com.ibm.commerce.cmt.Context;
 import com.ibm.commerce.cmt.Param;
+import com.ibm.commerce.dependency.model.Scope;
 
 /**
  * This class represents a search parameter that can find class references (but
@@ -43,7 +44,7 @@
  * 
  * @author Trent Hoeppner
  */
-public class ClassRefParam implements SearchParam {
+public class ClassRefParam implements NodeSearchParam {
 
 	private List<Param> params;
 
@@ -72,7 +73,7 @@ public boolean allowFile(File file) {
 		boolean allow;
 		if (file.getName().toLowerCase().endsWith(".java")) {
 			// probably yes, but check subparams
-			allow = SearchParam.super.allowFile(file);
+			allow = NodeSearchParam.super.allowFile(file);
 		} else {
 			// this search param cannot work if it's not a java file
 			allow = false;
@@ -82,7 +83,7 @@ public boolean allowFile(File file) {
 	}
 
 	@Override
-	public List<ASTNodeIssueData> findAll(Context context) {
+	public NodeMatcher createMatcher(Context context) {
 		NameParam nameParam = null;
 		IsSupertypeParam isSupertypeParam = null;
 		HasSupertypeParam hasSupertypeParam = null;
@@ -96,18 +97,19 @@ public List<ASTNodeIssueData> findAll(Context context) {
 			}
 		}
 
-		ClassRefVisitor v = new ClassRefVisitor(context, nameParam, isSupertypeParam, hasSupertypeParam);
-		CompilationUnit compUnit = context.get(Context.Prop.COMP_UNIT);
-		compUnit.accept(v);
-		List<ASTNodeIssueData> found = v.allFound;
-		//
-		// List<ASTNodeIssueData> list = new ArrayList<>();
-		// for (ASTNode node : found) {
-		// ASTNodeIssueData data = new ASTNodeIssueData(node);
-		// list.add(data);
-		// }
-
-		return found;
+		return new ClassRefMatcher(context, nameParam, isSupertypeParam, hasSupertypeParam);
+	}
+
+	@Override
+	public Set<String> getNameSuffixes() {
+		NameParam nameParam = null;
+		for (Param param : params) {
+			if (param instanceof NameParam) {
+				nameParam = (NameParam) param;
+			}
+		}
+
+		return NodeMatcher.getNameSuffixes(nameParam);
 	}
 
 	@Override
@@ -121,20 +123,18 @@ public Node toXML(Document doc) {
 		return searchParam;
 	}
 
-	private final class ClassRefVisitor extends ASTVisitor {
+	private final class ClassRefMatcher extends NodeMatcher {
 		private NameParam nameParam;
 
 		private IsSupertypeParam isSupertypeParam;
 
-		private List<ASTNodeIssueData> allFound = new ArrayList<>();
-
 		private Context context;
 
 		private Map<String, String> shortNameToImportedMap = new HashMap<>();
 
 		private HasSupertypeParam hasSupertypeParam;
 
-		public ClassRefVisitor(Context context, NameParam nameParam, IsSupertypeParam isSupertypeParam,
+		public ClassRefMatcher(Context context, NameParam nameParam, IsSupertypeParam isSupertypeParam,
 				HasSupertypeParam hasSupertypeParam) {
 			this.context = context;
 			this.nameParam = nameParam;
@@ -143,29 +143,43 @@ public ClassRefVisitor(Context context, NameParam nameParam, IsSupertypeParam is
 		}
 
 		@Override
-		public boolean visit(ImportDeclaration node) {
+		public int[] getNodeTypes() {
+			return new int[] { ASTNode.IMPORT_DECLARATION, ASTNode.SIMPLE_TYPE };
+		}
+
+		@Override
+		public Set<String> getSimpleNames() {
+			return getSimpleNames(nameParam);
+		}
+
+		@Override
+		public void match(ASTNode node, Scope scope) {
+			if (node instanceof ImportDeclaration) {
+				matchImport((ImportDeclaration) node);
+			} else {
+				matchType((SimpleType) node);
+			}
+		}
+
+		private void matchImport(ImportDeclaration node) {
 			String imported = node.getName().getFullyQualifiedName();
 			List<Matcher> matchers = new ArrayList<>();
 			context.set(Context.Prop.ALL_MATCHERS, matchers);
 			if (isSupertypeParam == null && nameParam.accept(context, imported)) {
 				if (hasSupertypeParam == null || hasSupertypeParam.accept(context, node)) {
-					allFound.add(new ASTNodeIssueData(node, matchers));
+					addFound(new ASTNodeIssueData(node, matchers));
 					String shortName = getSimpleClassName(imported);
 					shortNameToImportedMap.put(shortName, imported);
 				}
 			}
-
-			return super.visit(node);
 		}
 
-		@Override
-		public boolean visit(SimpleType node) {
+		private void matchType(SimpleType node) {
 			List<Matcher> matchers = new ArrayList<>();
 			context.set(Context.Prop.ALL_MATCHERS, matchers);
 			if (matches(node)) {
-				allFound.add(new ASTNodeIssueData(node, matchers));
+				addFound(new ASTNodeIssueData(node, matchers));
 			}
-			return super.visit(node);
 		}
 
 		private boolean matches(SimpleType node) {
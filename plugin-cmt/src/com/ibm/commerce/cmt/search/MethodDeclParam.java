@@ -20,12 +20,11 @@
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 
 import org.eclipse.jdt.core.dom.ASTNode;
-import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.w3c.dom.Document;
@@ -37,13 +36,14 @@
 import com.ibm.commerce.cmt.Param;
 import com.ibm.commerce.dependency.model.JavaItem;
 import com.ibm.commerce.dependency.model.JavaItemUtil;
+import com.ibm.commerce.dependency.model.Scope;
 
 /**
  * This class is used to find method declarations.
  * 
  * @author Trent Hoeppner
  */
-public class MethodDeclParam implements SearchParam {
+public class MethodDeclParam implements NodeSearchParam {
 
 	private List<Param> params;
 
@@ -72,7 +72,7 @@ public boolean allowFile(File file) {
 		boolean allow;
 		if (file.getName().toLowerCase().endsWith(".java")) {
 			// probably yes, but check subparams
-			allow = SearchParam.super.allowFile(file);
+			allow = NodeSearchParam.super.allowFile(file);
 		} else {
 			// this search param cannot work if it's not a java file
 			allow = false;
@@ -82,7 +82,7 @@ public boolean allowFile(File file) {
 	}
 
 	@Override
-	public List<ASTNodeIssueData> findAll(Context context) {
+	public NodeMatcher createMatcher(Context context) {
 		NameParam nameParam = null;
 		NameParam classNameParam = null;
 		HasParamParam hasParamParam = null;
@@ -111,16 +111,25 @@ public List<ASTNodeIssueData> findAll(Context context) {
 		CompilationUnit compUnit = context.get(Context.Prop.COMP_UNIT);
 		JavaItem javaClass = JavaItemUtil.findJavaClass(context, (ASTNode) compUnit.types().get(0));
 
-		List<ASTNodeIssueData> found = Collections.emptyList();
+		NodeMatcher matcher = null;
 		if (javaClass != null) {
-			MethodDeclVisitor v = new MethodDeclVisitor(context, nameParam, classNameParam, hasParamParam,
-					hasMethodParam, notParam, andParam);
-			compUnit.accept(v);
-			found = v.allFound;
+			matcher = new MethodDeclMatcher(context, nameParam, classNameParam, hasParamParam, hasMethodParam,
+					notParam, andParam);
 		}
 
-		return found;
+		return matcher;
+	}
+
+	@Override
+	public Set<String> getNameSuffixes() {
+		NameParam nameParam = null;
+		for (Param param : params) {
+			if (param instanceof NameParam && ((NameParam) param).getPurpose().equals("name")) {
+				nameParam = (NameParam) param;
+			}
+		}
 
+		return NodeMatcher.getNameSuffixes(nameParam);
 	}
 
 	@Override
@@ -134,11 +143,9 @@ public Node toXML(Document doc) {
 		return searchParam;
 	}
 
-	private final class MethodDeclVisitor extends ASTVisitor {
+	private final class MethodDeclMatcher extends NodeMatcher {
 		private NameParam nameParam;
 
-		private List<ASTNodeIssueData> allFound = new ArrayList<>();
-
 		private Context context;
 
 		private NameParam classNameParam;
@@ -151,7 +158,7 @@ private final class MethodDeclVisitor extends ASTVisitor {
 
 		private AndParam andParam;
 
-		public MethodDeclVisitor(Context context, NameParam nameParam, NameParam classNameParam,
+		public MethodDeclMatcher(Context context, NameParam nameParam, NameParam classNameParam,
 				HasParamParam hasParamParam, HasMethodParam hasMethodParam, NotParam notParam, AndParam andParam) {
 			this.context = context;
 			this.nameParam = nameParam;
@@ -163,7 +170,18 @@ public MethodDeclVisitor(Context context, NameParam nameParam, NameParam classNa
 		}
 
 		@Override
-		public boolean visit(MethodDeclaration node) {
+		public int[] getNodeTypes() {
+			return new int[] { ASTNode.METHOD_DECLARATION };
+		}
+
+		@Override
+		public Set<String> getSimpleNames() {
+			return getSimpleNames(nameParam);
+		}
+
+		@Override
+		public void match(ASTNode astNode, Scope scope) {
+			MethodDeclaration node = (MethodDeclaration) astNode;
 			List<Matcher> matchers = new ArrayList<>();
 			context.set(Context.Prop.ALL_MATCHERS, matchers);
 			boolean found = SearchUtil.matchMethodDeclaration(node, context, nameParam, classNameParam, hasParamParam);
@@ -178,11 +196,9 @@ public boolean visit(MethodDeclaration node) {
 				}
 
 				if (containedMethodOK) {
-					allFound.add(new ASTNodeIssueData(node.getName(), matchers));
+					addFound(new ASTNodeIssueData(node.getName(), matchers));
 				}
 			}
-
-			return super.visit(node);
 		}
 
 	}
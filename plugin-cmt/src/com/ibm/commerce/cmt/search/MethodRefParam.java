@@ -20,8 +20,8 @@
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 
 import org.eclipse.jdt.core.dom.ASTNode;
@@ -37,14 +37,14 @@
 import com.ibm.commerce.cmt.Param;
 import com.ibm.commerce.dependency.model.JavaItem;
 import com.ibm.commerce.dependency.model.JavaItemUtil;
-import com.ibm.commerce.dependency.model.VariableVisitor;
+import com.ibm.commerce.dependency.model.Scope;
 
 /**
  * This class is used to find method references.
  * 
  * @author Trent Hoeppner
  */
-public class MethodRefParam implements SearchParam {
+public class MethodRefParam implements NodeSearchParam {
 
 	private List<Param> params;
 
@@ -73,7 +73,7 @@ public boolean allowFile(File file) {
 		boolean allow;
 		if (file.getName().toLowerCase().endsWith(".java")) {
 			// probably yes, but check subparams
-			allow = SearchParam.super.allowFile(file);
+			allow = NodeSearchParam.super.allowFile(file);
 		} else {
 			// this search param cannot work if it's not a java file
 			allow = false;
@@ -83,7 +83,7 @@ public boolean allowFile(File file) {
 	}
 
 	@Override
-	public List<ASTNodeIssueData> findAll(Context context) {
+	public NodeMatcher createMatcher(Context context) {
 		NameParam nameParam = null;
 		NameParam classNameParam = null;
 		HasSupertypeParam hasSupertypeParam = null;
@@ -112,15 +112,25 @@ public List<ASTNodeIssueData> findAll(Context context) {
 		CompilationUnit compUnit = context.get(Context.Prop.COMP_UNIT);
 		JavaItem javaClass = JavaItemUtil.findJavaClass(context, (ASTNode) compUnit.types().get(0));
 
-		List<ASTNodeIssueData> found = Collections.emptyList();
+		NodeMatcher matcher = null;
 		if (javaClass != null) {
-			MethodRefVisitor v = new MethodRefVisitor(context, nameParam, classNameParam, hasSupertypeParam,
-					hasParamParam, isInMethodParam, notParam, javaClass);
-			compUnit.accept(v);
-			found = v.allFound;
+			matcher = new MethodRefMatcher(context, nameParam, classNameParam, hasSupertypeParam, hasParamParam,
+					isInMethodParam, notParam, javaClass);
 		}
 
-		return found;
+		return matcher;
+	}
+
+	@Override
+	public Set<String> getNameSuffixes() {
+		NameParam nameParam = null;
+		for (Param param : params) {
+			if (param instanceof NameParam && ((NameParam) param).getPurpose().equals("name")) {
+				nameParam = (NameParam) param;
+			}
+		}
+
+		return NodeMatcher.getNameSuffixes(nameParam);
 	}
 
 	@Override
@@ -134,11 +144,9 @@ public Node toXML(Document doc) {
 		return searchParam;
 	}
 
-	private final class MethodRefVisitor extends VariableVisitor {
+	private final class MethodRefMatcher extends NodeMatcher {
 		private NameParam nameParam;
 
-		private List<ASTNodeIssueData> allFound = new ArrayList<>();
-
 		private Context context;
 
 		private NameParam classNameParam;
@@ -151,10 +159,12 @@ private final class MethodRefVisitor extends VariableVisitor {
 
 		private NotParam notParam;
 
-		public MethodRefVisitor(Context context, NameParam nameParam, NameParam classNameParam,
+		private JavaItem javaClass;
+
+		public MethodRefMatcher(Context context, NameParam nameParam, NameParam classNameParam,
 				HasSupertypeParam hasSupertypeParam, HasParamParam hasParamParam, IsInMethodParam isInMethodParam,
 				NotParam notParam, JavaItem javaClass) {
-			super(context.get(Context.Prop.JAVA_ITEM_UTIL), javaClass, null, null);
+			this.javaClass = javaClass;
 			this.context = context;
 			this.nameParam = nameParam;
 			this.classNameParam = classNameParam;
@@ -165,7 +175,30 @@ public MethodRefVisitor(Context context, NameParam nameParam, NameParam classNam
 		}
 
 		@Override
-		public boolean visit(MethodInvocation node) {
+		public int[] getNodeTypes() {
+			return new int[] { ASTNode.METHOD_INVOCATION, ASTNode.CLASS_INSTANCE_CREATION };
+		}
+
+		@Override
+		public Set<String> getSimpleNames() {
+			return getSimpleNames(nameParam);
+		}
+
+		@Override
+		public JavaItem getScopeClass() {
+			return javaClass;
+		}
+
+		@Override
+		public void match(ASTNode node, Scope scope) {
+			if (node instanceof MethodInvocation) {
+				matchInvocation((MethodInvocation) node, scope);
+			} else {
+				matchCreation((ClassInstanceCreation) node, scope);
+			}
+		}
+
+		private void matchInvocation(MethodInvocation node, Scope scope) {
 			List<Matcher> matchers = new ArrayList<>();
 			context.set(Context.Prop.ALL_MATCHERS, matchers);
 
@@ -183,17 +216,14 @@ public boolean visit(MethodInvocation node) {
 				}
 
 				if (containerMethodOK) {
-					allFound.add(new ASTNodeIssueData(node.getName(), matchers));
+					addFound(new ASTNodeIssueData(node.getName(), matchers));
 				}
 			}
 
 			// TODO need to check the parameters
-
-			return super.visit(node);
 		}
 
-		@Override
-		public boolean visit(ClassInstanceCreation node) {
+		private void matchCreation(ClassInstanceCreation node, Scope scope) {
 			List<Matcher> matchers = new ArrayList<>();
 			context.set(Context.Prop.ALL_MATCHERS, matchers);
 
@@ -211,13 +241,11 @@ public boolean visit(ClassInstanceCreation node) {
 				}
 
 				if (containerMethodOK) {
-					allFound.add(new ASTNodeIssueData(node, matchers));
+					addFound(new ASTNodeIssueData(node, matchers));
 				}
 			}
 
 			// TODO need to check the parameters
-
-			return super.visit(node);
 		}
 
 	}
@@ -71,6 +71,54 @@ public String getPurpose() {
 		return purpose;
 	}
 
+	/**
+	 * Returns the text that every name accepted by this must end with. Only
+	 * letters, digits and underscores are included, so the suffix is always
+	 * the end of the last identifier in the name.
+	 * 
+	 * @return The suffix that accepted names end with, or null if it cannot be
+	 *         determined without checking a name.
+	 */
+	public String getRequiredSuffix() {
+		String suffix = null;
+		if (params.isEmpty()) {
+			int start = data.length();
+			while (start > 0 && isIdentifierChar(data.charAt(start - 1))) {
+				start--;
+			}
+
+			if (start < data.length()) {
+				suffix = data.substring(start);
+			}
+		} else {
+			// every sub-param must accept the name, so any suffix will do
+			for (Param param : params) {
+				if (param instanceof RegexSearchParam) {
+					suffix = ((RegexSearchParam) param).getRequiredSuffix();
+					if (suffix != null) {
+						break;
+					}
+				}
+			}
+		}
+
+		return suffix;
+	}
+
+	/**
+	 * Returns whether the given character can be part of a suffix returned by
+	 * {@link #getRequiredSuffix()}.
+	 * 
+	 * @param c
+	 *            The character to check.
+	 * 
+	 * @return True if the character is a letter, digit or underscore, false
+	 *         otherwise.
+	 */
+	static boolean isIdentifierChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
 	@Override
 	public Node toXML(Document doc) {
 		Element nameParam = doc.createElement(purpose);
@@ -0,0 +1,199 @@
+package com.ibm.commerce.cmt.search;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.model.Scope;
+
+/**
+ * This class finds the matches for one {@link NodeSearchParam} in one
+ * compilation unit, one AST node at a time. Because a matcher does not walk the
+ * tree itself, the matchers for many search parameters can share a single walk
+ * of the compilation unit with {@link NodeMatcherVisitor}.
+ * 
+ * @author Trent Hoeppner
+ */
+public abstract class NodeMatcher {
+
+	/**
+	 * The results that were found so far, in the order that the nodes were
+	 * visited.
+	 */
+	private List<ASTNodeIssueData> allFound = new ArrayList<>();
+
+	/**
+	 * The exception that was thrown by {@link #match(ASTNode, Scope)}, or null
+	 * if no exception has been thrown.
+	 */
+	private RuntimeException failure;
+
+	/**
+	 * Returns the kinds of nodes that this matcher examines. Other nodes will
+	 * not be passed to {@link #match(ASTNode, Scope)}.
+	 * 
+	 * @return The node types, as defined by the constants in {@link ASTNode},
+	 *         such as {@link ASTNode#METHOD_INVOCATION}. This value will not be
+	 *         null or empty.
+	 */
+	public abstract int[] getNodeTypes();
+
+	/**
+	 * Returns the simple names that a node must have for this to match it. The
+	 * simple name of a node is found with
+	 * {@link NodeMatcherVisitor#getSimpleName(ASTNode)}.
+	 * 
+	 * @return The simple names that this can match, or null if this may match
+	 *         a node with any name.
+	 */
+	public abstract Set<String> getSimpleNames();
+
+	/**
+	 * Returns the class that is used to track the variables in scope while
+	 * visiting, if this matcher needs a scope.
+	 * 
+	 * @return The class in the compilation unit to track the scope for, or
+	 *         null if this does not use the scope.
+	 */
+	public JavaItem getScopeClass() {
+		return null;
+	}
+
+	/**
+	 * Checks whether the given node matches, and if so adds it to the results
+	 * of this.
+	 * 
+	 * @param node
+	 *            The node to check. This value cannot be null.
+	 * @param scope
+	 *            The variables in scope at the given node. This value will be
+	 *            null if {@link #getScopeClass()} returns null.
+	 */
+	public abstract void match(ASTNode node, Scope scope);
+
+	/**
+	 * Calls {@link #match(ASTNode, Scope)} unless a previous call failed. If
+	 * the call fails, the exception is kept so that one failing matcher does
+	 * not stop the other matchers in the same walk.
+	 * 
+	 * @param node
+	 *            The node to check. This value cannot be null.
+	 * @param scope
+	 *            The variables in scope at the given node, or null if the
+	 *            scope is not tracked.
+	 */
+	void matchIfNotFailed(ASTNode node, Scope scope) {
+		if (failure != null) {
+			return;
+		}
+
+		try {
+			match(node, scope);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Returns the exception that was thrown while matching.
+	 * 
+	 * @return The first exception thrown by {@link #match(ASTNode, Scope)}, or
+	 *         null if no exception was thrown.
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Adds the given result to the results of this.
+	 * 
+	 * @param found
+	 *            The result to add. This value cannot be null.
+	 */
+	protected void addFound(ASTNodeIssueData found) {
+		allFound.add(found);
+	}
+
+	/**
+	 * Returns the results that were found so far.
+	 * 
+	 * @return The results that were found, in the order that the nodes were
+	 *         visited. This value will not be null, but may be empty.
+	 */
+	public List<ASTNodeIssueData> getAllFound() {
+		return allFound;
+	}
+
+	/**
+	 * Returns the simple names that the given name parameter can accept, for
+	 * use by {@link #getSimpleNames()}. If the name parameter compares with a
+	 * fixed string, only the part after the last dot can be the simple name.
+	 * 
+	 * @param nameParam
+	 *            The parameter which decides whether names are accepted. This
+	 *            value may be null.
+	 * 
+	 * @return The simple names that the parameter can accept, or null if any
+	 *         name may be accepted.
+	 */
+	protected static Set<String> getSimpleNames(NameParam nameParam) {
+		if (nameParam == null || nameParam.getSubParams() == null || !nameParam.getSubParams().isEmpty()) {
+			return null;
+		}
+
+		String name = nameParam.getData();
+		int lastDot = name.lastIndexOf('.');
+		if (lastDot >= 0) {
+			name = name.substring(lastDot + 1);
+		}
+
+		return Collections.singleton(name);
+	}
+
+	/**
+	 * Returns the suffixes that the simple name of a node must end with for
+	 * the given name parameter to accept the name of the node, for use by
+	 * {@link NodeSearchParam#getNameSuffixes()}.
+	 * 
+	 * @param nameParam
+	 *            The parameter which decides whether names are accepted. This
+	 *            value may be null.
+	 * 
+	 * @return The suffixes that the simple name must end with one of, or null
+	 *         if any name may be accepted.
+	 */
+	static Set<String> getNameSuffixes(NameParam nameParam) {
+		if (nameParam == null) {
+			return null;
+		}
+
+		String suffix = nameParam.getRequiredSuffix();
+		if (suffix == null) {
+			return null;
+		}
+
+		return Collections.singleton(suffix);
+	}
+}
@@ -0,0 +1,428 @@
+package com.ibm.commerce.cmt.search;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+
+import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.cmt.Context;
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.model.JavaItemUtil2;
+import com.ibm.commerce.dependency.model.Scope;
+import com.ibm.commerce.dependency.model.VariableVisitor;
+
+/**
+ * This class walks a compilation unit once and passes each node only to the
+ * {@link NodeMatcher NodeMatchers} that can match it. Matchers are grouped
+ * first by the kind of node they examine, and then by the simple name that the
+ * node must have, so that most nodes are only given to a few matchers, or none
+ * at all.
+ * <p>
+ * If any matcher needs the variables in scope, the scope is tracked in the same
+ * way as {@link VariableVisitor} and shared by all matchers.
+ * 
+ * @author Trent Hoeppner
+ */
+public class NodeMatcherVisitor extends ASTVisitor {
+
+	/**
+	 * The matchers for each kind of node, indexed by the node type. An entry
+	 * is null if no matcher examines that kind of node.
+	 */
+	private NodeTypeMatchers[] nodeTypeToMatchers = new NodeTypeMatchers[0];
+
+	/**
+	 * The visitor which tracks the variables in scope, or null if no matcher
+	 * needs the scope.
+	 */
+	private VariableVisitor scopeTracker;
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param matchers
+	 *            The matchers to pass nodes to. This value cannot be null, but
+	 *            may be empty.
+	 * @param util
+	 *            The utility used to track the variables in scope. This value
+	 *            can only be null if no matcher needs the scope.
+	 */
+	public NodeMatcherVisitor(List<NodeMatcher> matchers, JavaItemUtil2 util) {
+		Check.notNull(matchers, "matchers");
+
+		JavaItem scopeClass = null;
+		for (NodeMatcher matcher : matchers) {
+			Set<String> names = matcher.getSimpleNames();
+			for (int nodeType : matcher.getNodeTypes()) {
+				getOrCreateMatchers(nodeType).add(matcher, names);
+			}
+
+			if (scopeClass == null) {
+				scopeClass = matcher.getScopeClass();
+			}
+		}
+
+		if (scopeClass != null) {
+			scopeTracker = new VariableVisitor(util, scopeClass, null, null);
+		}
+	}
+
+	/**
+	 * Finds all the matches for the given search parameter in the compilation
+	 * unit of the given context, by walking it with only the matcher for that
+	 * parameter.
+	 * 
+	 * @param context
+	 *            The data which defines the search space. This value cannot be
+	 *            null.
+	 * @param param
+	 *            The search parameter to find the matches of. This value
+	 *            cannot be null.
+	 * 
+	 * @return The matches that were found, in the order that they appear in
+	 *         the compilation unit. This value will not be null, but may be
+	 *         empty.
+	 * 
+	 * @throws RuntimeException
+	 *             If the matcher failed on any node.
+	 */
+	public static List<ASTNodeIssueData> findAll(Context context, NodeSearchParam param) {
+		NodeMatcher matcher = param.createMatcher(context);
+		if (matcher == null) {
+			return Collections.emptyList();
+		}
+
+		NodeMatcherVisitor v = new NodeMatcherVisitor(Collections.singletonList(matcher),
+				context.get(Context.Prop.JAVA_ITEM_UTIL));
+		CompilationUnit compUnit = context.get(Context.Prop.COMP_UNIT);
+		compUnit.accept(v);
+
+		if (matcher.getFailure() != null) {
+			throw matcher.getFailure();
+		}
+
+		return matcher.getAllFound();
+	}
+
+	/**
+	 * Returns the simple name of the given node, which is the name that
+	 * matchers are grouped by. The simple name of a type or import is the part
+	 * of the name after the last dot, and the simple name of a method is the
+	 * method name.
+	 * 
+	 * @param node
+	 *            The node to get the name of. This value cannot be null.
+	 * 
+	 * @return The simple name of the node, or null if the node kind does not
+	 *         have a name that can be used to choose matchers.
+	 */
+	public static String getSimpleName(ASTNode node) {
+		String simpleName;
+		switch (node.getNodeType()) {
+		case ASTNode.IMPORT_DECLARATION:
+			simpleName = getLastIdentifier(((ImportDeclaration) node).getName());
+			break;
+		case ASTNode.SIMPLE_TYPE:
+			simpleName = getLastIdentifier(((SimpleType) node).getName());
+			break;
+		case ASTNode.METHOD_INVOCATION:
+			simpleName = ((MethodInvocation) node).getName().getIdentifier();
+			break;
+		case ASTNode.METHOD_DECLARATION:
+			simpleName = ((MethodDeclaration) node).getName().getIdentifier();
+			break;
+		case ASTNode.TYPE_DECLARATION:
+			simpleName = ((TypeDeclaration) node).getName().getIdentifier();
+			break;
+		default:
+			simpleName = null;
+			break;
+		}
+
+		return simpleName;
+	}
+
+	/**
+	 * Returns the last identifier in the given name.
+	 * 
+	 * @param name
+	 *            The name to get the last identifier of. This value cannot be
+	 *            null.
+	 * 
+	 * @return The last identifier. This value will not be null.
+	 */
+	private static String getLastIdentifier(Name name) {
+		String identifier;
+		if (name.isQualifiedName()) {
+			identifier = ((QualifiedName) name).getName().getIdentifier();
+		} else {
+			identifier = ((SimpleName) name).getIdentifier();
+		}
+
+		return identifier;
+	}
+
+	/**
+	 * Returns the matchers for the given kind of node, creating them if they
+	 * do not exist yet.
+	 * 
+	 * @param nodeType
+	 *            The kind of node, as defined by the constants in
+	 *            {@link ASTNode}.
+	 * 
+	 * @return The matchers for the kind of node. This value will not be null.
+	 */
+	private NodeTypeMatchers getOrCreateMatchers(int nodeType) {
+		if (nodeType >= nodeTypeToMatchers.length) {
+			NodeTypeMatchers[] newArray = new NodeTypeMatchers[nodeType + 1];
+			System.arraycopy(nodeTypeToMatchers, 0, newArray, 0, nodeTypeToMatchers.length);
+			nodeTypeToMatchers = newArray;
+		}
+
+		NodeTypeMatchers matchers = nodeTypeToMatchers[nodeType];
+		if (matchers == null) {
+			matchers = new NodeTypeMatchers();
+			nodeTypeToMatchers[nodeType] = matchers;
+		}
+
+		return matchers;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean preVisit2(ASTNode node) {
+		int nodeType = node.getNodeType();
+		if (nodeType < nodeTypeToMatchers.length) {
+			NodeTypeMatchers matchers = nodeTypeToMatchers[nodeType];
+			if (matchers != null) {
+				Scope scope = scopeTracker != null ? scopeTracker.getScope() : null;
+				matchers.match(node, scope);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean visit(ImportDeclaration node) {
+		if (scopeTracker != null) {
+			scopeTracker.visit(node);
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean visit(ForStatement node) {
+		if (scopeTracker != null) {
+			scopeTracker.visit(node);
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endVisit(ForStatement node) {
+		if (scopeTracker != null) {
+			scopeTracker.endVisit(node);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean visit(Block node) {
+		if (scopeTracker != null) {
+			scopeTracker.visit(node);
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endVisit(Block node) {
+		if (scopeTracker != null) {
+			scopeTracker.endVisit(node);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean visit(SingleVariableDeclaration node) {
+		if (scopeTracker != null) {
+			scopeTracker.visit(node);
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean visit(VariableDeclarationExpression node) {
+		if (scopeTracker != null) {
+			scopeTracker.visit(node);
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean visit(VariableDeclarationStatement node) {
+		if (scopeTracker != null) {
+			scopeTracker.visit(node);
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean visit(FieldDeclaration node) {
+		if (scopeTracker != null) {
+			scopeTracker.visit(node);
+		}
+
+		return true;
+	}
+
+	/**
+	 * This class holds the matchers for one kind of node, grouped by the simple
+	 * name that the node must have.
+	 */
+	private static class NodeTypeMatchers {
+
+		/**
+		 * All matchers for the kind of node, in the order they were added.
+		 */
+		private List<NodeMatcher> all = new ArrayList<>();
+
+		/**
+		 * The matchers that can only match nodes with a certain simple name,
+		 * keyed by that name.
+		 */
+		private Map<String, List<NodeMatcher>> nameToMatchersMap = new HashMap<>();
+
+		/**
+		 * The matchers that can match nodes with any simple name.
+		 */
+		private List<NodeMatcher> anyName = new ArrayList<>();
+
+		/**
+		 * Adds the given matcher to this.
+		 * 
+		 * @param matcher
+		 *            The matcher to add. This value cannot be null.
+		 * @param names
+		 *            The simple names that the matcher can match, or null if
+		 *            it can match any name.
+		 */
+		public void add(NodeMatcher matcher, Set<String> names) {
+			all.add(matcher);
+			if (names == null) {
+				anyName.add(matcher);
+			} else {
+				for (String name : names) {
+					List<NodeMatcher> matchers = nameToMatchersMap.get(name);
+					if (matchers == null) {
+						matchers = new ArrayList<>();
+						nameToMatchersMap.put(name, matchers);
+					}
+
+					matchers.add(matcher);
+				}
+			}
+		}
+
+		/**
+		 * Passes the given node to every matcher that can match it.
+		 * 
+		 * @param node
+		 *            The node to match. This value cannot be null.
+		 * @param scope
+		 *            The variables in scope at the node, or null if the scope
+		 *            is not tracked.
+		 */
+		public void match(ASTNode node, Scope scope) {
+			String simpleName = getSimpleName(node);
+			if (simpleName == null) {
+				for (NodeMatcher matcher : all) {
+					matcher.matchIfNotFailed(node, scope);
+				}
+			} else {
+				List<NodeMatcher> named = nameToMatchersMap.get(simpleName);
+				if (named != null) {
+					for (NodeMatcher matcher : named) {
+						matcher.matchIfNotFailed(node, scope);
+					}
+				}
+
+				for (NodeMatcher matcher : anyName) {
+					matcher.matchIfNotFailed(node, scope);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.ibm.commerce.cmt.search;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.List;
+import java.util.Set;
+
+import com.ibm.commerce.cmt.Context;
+
+/**
+ * This interface represents a search parameter that finds AST nodes in a
+ * compilation unit, and which can do so without walking the compilation unit
+ * itself. This allows the search parameters of many patterns to be checked in
+ * a single walk of each file.
+ * 
+ * @author Trent Hoeppner
+ */
+public interface NodeSearchParam extends SearchParam {
+
+	/**
+	 * Creates a matcher that finds the matches for this in the compilation unit
+	 * of the given context.
+	 * 
+	 * @param context
+	 *            The data which defines the search space. This value cannot be
+	 *            null.
+	 * 
+	 * @return The matcher for the current compilation unit, or null if nothing
+	 *         can match in the current compilation unit.
+	 */
+	NodeMatcher createMatcher(Context context);
+
+	/**
+	 * Returns the text that the simple name of a node must end with for this
+	 * to find the node. The simple name of every node is an identifier in the
+	 * source text, so if no identifier in a file ends with one of these
+	 * suffixes, this cannot find anything in the file, and the file does not
+	 * need to be parsed.
+	 * 
+	 * @return The suffixes that the simple name of a found node must end with
+	 *         one of, or null if a node with any name may be found. This value
+	 *         will not be empty.
+	 */
+	Set<String> getNameSuffixes();
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This walks the compilation unit with only the matcher for this.
+	 */
+	@Override
+	default List<ASTNodeIssueData> findAll(Context context) {
+		return NodeMatcherVisitor.findAll(context, this);
+	}
+}
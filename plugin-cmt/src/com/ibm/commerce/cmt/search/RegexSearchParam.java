@@ -21,6 +21,7 @@
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -42,15 +43,25 @@ public class RegexSearchParam implements FilterResultParam<String> {
 	 */
 	private String regex;
 
+	/**
+	 * The compiled form of {@link #regex}, which is compiled once when the
+	 * pattern file is parsed instead of for every text that is matched.
+	 */
+	private Pattern pattern;
+
 	/**
 	 * Constructor for this.
 	 * 
 	 * @param regex
 	 *            The regular expression to match text against. This value
 	 *            cannot be null or empty.
+	 * 
+	 * @throws PatternSyntaxException
+	 *             If the regular expression is not valid.
 	 */
 	public RegexSearchParam(String regex) {
 		this.regex = regex;
+		this.pattern = Pattern.compile(regex);
 	}
 
 	/**
@@ -77,6 +88,60 @@ public List<? extends Param> getSubParams() {
 		return null;
 	}
 
+	/**
+	 * Returns the text that every string accepted by this must end with, which
+	 * is the plain text at the end of the regular expression. Only letters,
+	 * digits and underscores are considered plain text.
+	 * 
+	 * @return The suffix that accepted strings end with, or null if the
+	 *         regular expression does not end with plain text, or uses
+	 *         alternatives, flags or quoting that could change what is at the
+	 *         end.
+	 */
+	public String getRequiredSuffix() {
+		if (regex.indexOf('|') >= 0 || regex.contains("(?") || regex.contains("\\Q")) {
+			return null;
+		}
+
+		// group ends and the end anchor do not match any text
+		int end = regex.length();
+		while (end > 0 && (regex.charAt(end - 1) == ')' || regex.charAt(end - 1) == '$') && !isEscaped(end - 1)) {
+			end--;
+		}
+
+		int start = end;
+		while (start > 0 && NameParam.isIdentifierChar(regex.charAt(start - 1))) {
+			start--;
+		}
+
+		if (start == end || isEscaped(start)) {
+			// an escape such as \w or \u0041 is not plain text
+			return null;
+		}
+
+		return regex.substring(start, end);
+	}
+
+	/**
+	 * Returns whether the character at the given index of the regular
+	 * expression is escaped by a backslash.
+	 * 
+	 * @param index
+	 *            The index of the character in the regular expression. This
+	 *            value must be &gt;= 0.
+	 * 
+	 * @return True if the character is preceded by an odd number of
+	 *         backslashes, false otherwise.
+	 */
+	private boolean isEscaped(int index) {
+		int backslashes = 0;
+		for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+			backslashes++;
+		}
+
+		return backslashes % 2 == 1;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -93,7 +158,6 @@ public Node toXML(Document doc) {
 	 */
 	@Override
 	public boolean accept(Context context, String result) {
-		Pattern pattern = Pattern.compile(regex);
 		Matcher matcher = pattern.matcher(result);
 		boolean accept = matcher.matches();
 
@@ -0,0 +1,186 @@
+package com.ibm.commerce.cmt.search;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.PatternSyntaxException;
+
+import com.ibm.commerce.cmt.Configuration;
+import com.ibm.commerce.cmt.Context;
+import com.ibm.commerce.cmt.Param;
+import com.ibm.commerce.cmt.Pattern;
+import com.ibm.commerce.cmt.plan.IDGenerator;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link RegexSearchParam} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class RegexSearchParamTest extends TestCase {
+
+	public void testConstructorIfRegexInvalidExpectException() {
+		try {
+			new RegexSearchParam("com\\.ibm\\.(.*");
+			fail("PatternSyntaxException was not thrown.");
+		} catch (PatternSyntaxException e) {
+			// success
+		}
+	}
+
+	public void testAcceptIfMatchesExpectMatcherAdded() {
+		RegexSearchParam param = new RegexSearchParam("(com\\.ibm\\.commerce\\.(.*))");
+		Context context = createContext();
+
+		assertTrue("Not accepted.", param.accept(context, "com.ibm.commerce.Catalog"));
+		assertFalse("Accepted.", param.accept(context, "org.example.Catalog"));
+
+		List<Matcher> matchers = context.get(Context.Prop.ALL_MATCHERS);
+		assertEquals("Wrong number of matchers.", 1, matchers.size());
+		assertEquals("Wrong group.", "Catalog", matchers.get(0).group(2));
+	}
+
+	public void testGetRequiredSuffixIfPlainEndExpectSuffix() {
+		RegexSearchParam param = new RegexSearchParam("(com\\.ibm\\.commerce\\.(.*)\\.([^.]+)AccessBean$)");
+
+		assertEquals("Wrong suffix.", "AccessBean", param.getRequiredSuffix());
+	}
+
+	public void testGetRequiredSuffixIfEndsWithWildcardExpectNull() {
+		RegexSearchParam param = new RegexSearchParam("(com\\.ibm\\.commerce\\.(.*))");
+
+		assertNull("Suffix was found.", param.getRequiredSuffix());
+	}
+
+	public void testGetRequiredSuffixIfEndsWithQuantifierExpectNull() {
+		RegexSearchParam param = new RegexSearchParam("FinderExceptions?");
+
+		assertNull("Suffix was found.", param.getRequiredSuffix());
+	}
+
+	public void testGetRequiredSuffixIfEndsWithEscapeExpectNull() {
+		RegexSearchParam param = new RegexSearchParam("Finder\\u0041");
+
+		assertNull("Suffix was found.", param.getRequiredSuffix());
+	}
+
+	public void testGetRequiredSuffixIfAlternativesExpectNull() {
+		RegexSearchParam param = new RegexSearchParam("AccessBean|Home");
+
+		assertNull("Suffix was found.", param.getRequiredSuffix());
+	}
+
+	public void testGetRequiredSuffixIfFlagsExpectNull() {
+		RegexSearchParam param = new RegexSearchParam("(?i)accessbean");
+
+		assertNull("Suffix was found.", param.getRequiredSuffix());
+	}
+
+	/**
+	 * Tests that for every search regular expression in the test pattern
+	 * files, the expression compiled once when loading matches the same names
+	 * with the same groups as the expression compiled every time it is used.
+	 * The names are taken from the test source files and the pattern files.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testAcceptIfAllTestPatternsExpectSameAsCompilingEachTime() throws Exception {
+		List<File> commandFileList = Arrays.asList(new File("testData\\commandClassRef.txt"),
+				new File("testData\\v8-v9-wc-patterns.xml"), new File("testData\\v8-v9-customer-patterns.xml"),
+				new File("testData\\realWorkspacePatterns.txt"));
+		File sourceDir = new File("testData\\classRefCmd");
+		Configuration config = new Configuration(commandFileList, Arrays.asList(sourceDir), null);
+		config.load();
+
+		List<RegexSearchParam> params = new ArrayList<>();
+		for (Pattern pattern : config.getPatterns()) {
+			addRegexSearchParams(pattern.getSearchParam(), params);
+		}
+
+		assertTrue("No regular expressions were found.", params.size() > 0);
+
+		List<File> nameFiles = new ArrayList<>(Arrays.asList(sourceDir.listFiles()));
+		nameFiles.addAll(commandFileList);
+		Set<String> names = new LinkedHashSet<>();
+		for (File file : nameFiles) {
+			String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			Matcher nameMatcher = java.util.regex.Pattern.compile("[\\w.]+").matcher(contents);
+			while (nameMatcher.find()) {
+				names.add(nameMatcher.group());
+			}
+		}
+
+		assertTrue("No names were found.", names.size() > 0);
+
+		int matches = 0;
+		for (RegexSearchParam param : params) {
+			java.util.regex.Pattern regex = java.util.regex.Pattern.compile(param.getData());
+			for (String name : names) {
+				Context context = createContext();
+				Matcher expected = regex.matcher(name);
+				boolean expectedAccept = expected.matches();
+
+				assertEquals("Wrong result for " + param.getData() + " with " + name, expectedAccept,
+						param.accept(context, name));
+				if (expectedAccept) {
+					matches++;
+					List<Matcher> matchers = context.get(Context.Prop.ALL_MATCHERS);
+					Matcher actual = matchers.get(0);
+					assertEquals("Wrong group count for " + param.getData(), expected.groupCount(),
+							actual.groupCount());
+					for (int i = 0; i <= expected.groupCount(); i++) {
+						assertEquals("Wrong group " + i + " for " + param.getData() + " with " + name,
+								expected.group(i), actual.group(i));
+					}
+				}
+			}
+		}
+
+		assertTrue("Nothing matched.", matches > 0);
+	}
+
+	private Context createContext() {
+		Context context = new Context(new IDGenerator(1));
+		context.set(Context.Prop.ALL_MATCHERS, new ArrayList<Matcher>());
+		return context;
+	}
+
+	private void addRegexSearchParams(Param param, List<RegexSearchParam> params) {
+		if (param instanceof RegexSearchParam) {
+			params.add((RegexSearchParam) param);
+		}
+
+		List<? extends Param> subParams = param.getSubParams();
+		if (subParams != null) {
+			for (Param subParam : subParams) {
+				addRegexSearchParams(subParam, params);
+			}
+		}
+	}
+}
@@ -472,7 +472,7 @@ private List<?> readPart(JavaItemIndex index, InputStream in) throws IOException
 	 * @return The relationships that the item has with other items. This value
 	 *         will not be null but may be empty.
 	 */
-	private List<Relationship> convertToRelationships(JavaItem item) {
+	List<Relationship> convertToRelationships(JavaItem item) {
 		List<Relationship> relationships = new ArrayList<>();
 
 		Relationship r;
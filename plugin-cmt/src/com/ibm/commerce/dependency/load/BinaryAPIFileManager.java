@@ -0,0 +1,542 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.cmt.IntList;
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.dependency.model.BaseJavaItem;
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+import com.ibm.commerce.dependency.model.JavaItemType;
+import com.ibm.commerce.dependency.model.Relationship;
+import com.ibm.commerce.dependency.model.RelationshipType;
+
+/**
+ * This class loads/writes an API from a binary file into a JavaIndex. The
+ * binary file holds the same information as the ZIP file used by
+ * {@link APIFileManager}, but it is laid out so that it can be memory-mapped
+ * and converted to items without parsing any text.
+ * <p>
+ * All values are big-endian 4-byte integers, except for the string data. The
+ * layout is:
+ * <ol>
+ * <li>A header, with the magic number, the format version, the number of
+ * items, and the number of strings.</li>
+ * <li>A string table, with the end offset of each string followed by the UTF-8
+ * bytes of all the strings, padded to a multiple of 4 bytes. Every name is
+ * stored once, no matter how many items have that name.</li>
+ * <li>The {@link JavaItemType} names, as indexes into the string table.</li>
+ * <li>The item records, one per item ID, each with the string index of the
+ * name and the index of the type.</li>
+ * <li>For each {@link RelationshipType}, the string index of its name, then a
+ * compressed sparse row structure: the start offset of each item's targets
+ * (with one extra offset for the end), followed by the target IDs.</li>
+ * </ol>
+ * 
+ * @author Trent Hoeppner
+ */
+public class BinaryAPIFileManager {
+
+	private static final Pattern API_BINARY_NAME_PATTERN = Pattern.compile("api-v([\\d]+)\\.bin");
+
+	/**
+	 * The first value in every binary API file, "CMTA" in ASCII.
+	 */
+	private static final int MAGIC = 0x434D5441;
+
+	/**
+	 * The version of the layout described in the class comment.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Constructor for this.
+	 */
+	public BinaryAPIFileManager() {
+		// do nothing
+	}
+
+	/**
+	 * Returns the binary file that corresponds to the given ZIP file. For
+	 * <code>api-vX.zip</code> it is <code>api-vX.bin</code> in the same
+	 * directory.
+	 * 
+	 * @param zipFile
+	 *            The ZIP file to get the binary file for. This value cannot be
+	 *            null.
+	 * 
+	 * @return The binary file. This value will not be null, but the file may
+	 *         not exist.
+	 */
+	public static File getBinaryFile(File zipFile) {
+		Check.notNull(zipFile, "zipFile");
+
+		String name = zipFile.getName();
+		if (name.endsWith(".zip")) {
+			name = name.substring(0, name.length() - ".zip".length());
+		}
+
+		return new File(zipFile.getParentFile(), name + ".bin");
+	}
+
+	/**
+	 * Loads the APIs for the given ZIP file. If the corresponding
+	 * {@link #getBinaryFile(File) binary file} exists and is not older than the
+	 * ZIP file, it will be loaded instead. Otherwise the ZIP file is loaded and
+	 * the binary file is written so that the next load will be faster. If the
+	 * binary file cannot be read, it is deleted and the ZIP file is loaded
+	 * instead.
+	 * 
+	 * @param zipFile
+	 *            The ZIP file to load, named <code>api-vX.zip</code>. This
+	 *            value cannot be null.
+	 * 
+	 * @return The index that contains the JavaItems. This value will not be
+	 *         null.
+	 * 
+	 * @throws IOException
+	 *             If an error occurs while reading the ZIP file or the binary
+	 *             file.
+	 */
+	public JavaItemIndex loadAPIPreferBinary(File zipFile) throws IOException {
+		File binaryFile = getBinaryFile(zipFile);
+		if (binaryFile.exists() && (!zipFile.exists() || binaryFile.lastModified() >= zipFile.lastModified())) {
+			try {
+				return loadAPI(binaryFile);
+			} catch (IOException | RuntimeException e) {
+				if (!zipFile.exists()) {
+					throw new IOException("Could not read " + binaryFile.getAbsolutePath(), e);
+				}
+
+				// the binary file was not written completely, or is damaged
+				System.out.println("Could not read " + binaryFile.getAbsolutePath() + ", loading "
+						+ zipFile.getName() + " instead: " + e);
+				Files.deleteIfExists(binaryFile.toPath());
+			}
+		}
+
+		JavaItemIndex index = new APIFileManager().loadAPI(zipFile);
+		try {
+			writeAPI(index, binaryFile);
+		} catch (IOException e) {
+			// the binary file is only to speed up later runs
+			System.out.println("Could not write " + binaryFile.getAbsolutePath() + ": " + e.getMessage());
+			binaryFile.delete();
+		}
+
+		return index;
+	}
+
+	/**
+	 * Converts the given ZIP file, previously written by
+	 * {@link APIFileManager#writeAPI(JavaItemIndex, File)}, to the binary
+	 * format.
+	 * 
+	 * @param zipFile
+	 *            The ZIP file to read, named <code>api-vX.zip</code>. This
+	 *            value cannot be null.
+	 * @param binaryFile
+	 *            The binary file to write. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If an error occurs while reading the ZIP file or writing the
+	 *             binary file.
+	 */
+	public void convert(File zipFile, File binaryFile) throws IOException {
+		JavaItemIndex index = new APIFileManager().loadAPI(zipFile);
+		writeAPI(index, binaryFile);
+	}
+
+	/**
+	 * Loads the APIs stored in the given binary file into a JavaItemIndex, and
+	 * returns it.
+	 * <p>
+	 * The name of the file contains the version information, and must be of the
+	 * form:
+	 * <p>
+	 * <code>api-vX.bin</code>
+	 * <p>
+	 * where X is the version number. If it does not match an exception will be
+	 * thrown.
+	 * 
+	 * @param binaryFile
+	 *            The binary file to load. This value cannot be null.
+	 * 
+	 * @return The index that contains the JavaItems. This value will not be
+	 *         null.
+	 * 
+	 * @throws IOException
+	 *             If an error occurs while reading the file, or the file is
+	 *             not in the expected format.
+	 */
+	public JavaItemIndex loadAPI(File binaryFile) throws IOException {
+		Matcher matcher = API_BINARY_NAME_PATTERN.matcher(binaryFile.getName());
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException(
+					"binaryFile's name must be of the form api-vX.bin, was " + binaryFile.getName());
+		}
+
+		String version = matcher.group(1);
+
+		long startTime = System.currentTimeMillis();
+		JavaItemIndex index = new JavaItemIndex(version);
+		try (RandomAccessFile file = new RandomAccessFile(binaryFile, "r");
+				FileChannel channel = file.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			readIndex(buffer, index);
+		}
+
+		IDGenerator idGenerator = new IDGenerator(index.getItems().size());
+		index.setIDGenerator(idGenerator);
+
+		System.out.println("Loaded " + index.size() + " items from " + binaryFile.getName() + " in "
+				+ (System.currentTimeMillis() - startTime) + " ms");
+
+		return index;
+	}
+
+	/**
+	 * Writes the data in the given index into the given binary file. The data
+	 * is written to a temporary file in the same directory, which then
+	 * replaces the binary file, so that a partly written file is never loaded.
+	 * 
+	 * @param index
+	 *            The index to write. The IDs of the items must be consecutive,
+	 *            starting at 0. This value cannot be null.
+	 * @param binaryFile
+	 *            The file to write to. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing to the file.
+	 */
+	public void writeAPI(JavaItemIndex index, File binaryFile) throws IOException {
+		Check.notNull(index, "index");
+		Check.notNull(binaryFile, "binaryFile");
+
+		List<JavaItem> allItems = index.getItems();
+		int itemCount = allItems.size();
+
+		StringTable strings = new StringTable();
+		JavaItemType[] itemTypes = JavaItemType.values();
+		int[] itemTypeNames = new int[itemTypes.length];
+		for (int i = 0; i < itemTypes.length; i++) {
+			itemTypeNames[i] = strings.add(itemTypes[i].name());
+		}
+
+		RelationshipType[] relTypes = RelationshipType.values();
+		int[] relTypeNames = new int[relTypes.length];
+		for (int i = 0; i < relTypes.length; i++) {
+			relTypeNames[i] = strings.add(relTypes[i].name());
+		}
+
+		// items and relationships, grouped by relationship type so that each
+		// type forms a compressed sparse row structure
+		int[] itemNames = new int[itemCount];
+		int[] itemTypeIndexes = new int[itemCount];
+		int[][] relOffsets = new int[relTypes.length][itemCount + 1];
+		IntList[] relTargets = new IntList[relTypes.length];
+		for (int i = 0; i < relTypes.length; i++) {
+			relTargets[i] = new IntList();
+		}
+
+		APIFileManager apiFileManager = new APIFileManager();
+		for (int id = 0; id < itemCount; id++) {
+			JavaItem item = allItems.get(id);
+			if (item == null || item.getID() != id) {
+				throw new IllegalStateException("item " + item + " is out of order. Expected id " + id + ", but was "
+						+ (item == null ? null : item.getID()));
+			}
+
+			itemNames[id] = strings.add(item.getName());
+			itemTypeIndexes[id] = item.getType().ordinal();
+
+			for (int i = 0; i < relTypes.length; i++) {
+				relOffsets[i][id] = relTargets[i].size();
+			}
+
+			for (Relationship rel : apiFileManager.convertToRelationships(item)) {
+				relTargets[rel.getType().ordinal()].addInt(rel.getTargetID());
+			}
+		}
+
+		for (int i = 0; i < relTypes.length; i++) {
+			relOffsets[i][itemCount] = relTargets[i].size();
+		}
+
+		File tempFile = new File(binaryFile.getAbsoluteFile().getParentFile(), binaryFile.getName() + ".tmp");
+		try (FileOutputStream fileOut = new FileOutputStream(tempFile);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(itemCount);
+			strings.write(out);
+
+			out.writeInt(itemTypes.length);
+			writeInts(out, itemTypeNames, itemTypeNames.length);
+
+			for (int id = 0; id < itemCount; id++) {
+				out.writeInt(itemNames[id]);
+				out.writeInt(itemTypeIndexes[id]);
+			}
+
+			out.writeInt(relTypes.length);
+			for (int i = 0; i < relTypes.length; i++) {
+				out.writeInt(relTypeNames[i]);
+				writeInts(out, relOffsets[i], relOffsets[i].length);
+				int[] targets = relTargets[i].toIntArray();
+				writeInts(out, targets, targets.length);
+			}
+
+			out.flush();
+			fileOut.getFD().sync();
+		} catch (IOException | RuntimeException e) {
+			tempFile.delete();
+			throw e;
+		}
+
+		try {
+			Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads the items and relationships from the given buffer into the given
+	 * index.
+	 * 
+	 * @param buffer
+	 *            The buffer which contains the whole binary file. This value
+	 *            cannot be null.
+	 * @param index
+	 *            The index to add the items to. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If the buffer does not contain a binary API file.
+	 */
+	private void readIndex(ByteBuffer buffer, JavaItemIndex index) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a binary API file.");
+		}
+
+		int formatVersion = buffer.getInt();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IOException("Unsupported binary API format version " + formatVersion);
+		}
+
+		int itemCount = buffer.getInt();
+		String[] strings = readStrings(buffer);
+
+		int itemTypeCount = buffer.getInt();
+		JavaItemType[] itemTypes = new JavaItemType[itemTypeCount];
+		for (int i = 0; i < itemTypeCount; i++) {
+			itemTypes[i] = JavaItemType.valueOf(strings[buffer.getInt()]);
+		}
+
+		IntBuffer itemRecords = slice(buffer, itemCount * 2);
+		for (int id = 0; id < itemCount; id++) {
+			String name = strings[itemRecords.get()];
+			JavaItemType type = itemTypes[itemRecords.get()];
+
+			JavaItem item = new BaseJavaItem(name, index);
+			item.setID(id);
+			item.setType(type);
+			item.setAttribute(JavaItem.ATTR_BINARY, true);
+			index.addItemPreserveID(item);
+		}
+
+		int relTypeCount = buffer.getInt();
+		Relationship rel = new Relationship();
+		for (int i = 0; i < relTypeCount; i++) {
+			RelationshipType relType = RelationshipType.valueOf(strings[buffer.getInt()]);
+			IntBuffer offsets = slice(buffer, itemCount + 1);
+			int targetCount = offsets.get(itemCount);
+			IntBuffer targets = slice(buffer, targetCount);
+
+			rel.setType(relType);
+			for (int source = 0; source < itemCount; source++) {
+				int end = offsets.get(source + 1);
+				for (int t = offsets.get(source); t < end; t++) {
+					rel.setSourceID(source);
+					rel.setTargetID(targets.get(t));
+					relType.setRelationshipOnObjects(index, rel);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the string table from the given buffer.
+	 * 
+	 * @param buffer
+	 *            The buffer, positioned at the start of the string table. This
+	 *            value cannot be null.
+	 * 
+	 * @return The strings in the table. This value will not be null.
+	 */
+	private String[] readStrings(ByteBuffer buffer) {
+		int stringCount = buffer.getInt();
+		IntBuffer ends = slice(buffer, stringCount);
+		int dataLength = stringCount == 0 ? 0 : ends.get(stringCount - 1);
+
+		byte[] data = new byte[dataLength];
+		buffer.get(data);
+		buffer.position(buffer.position() + padding(dataLength));
+
+		String[] strings = new String[stringCount];
+		int start = 0;
+		for (int i = 0; i < stringCount; i++) {
+			int end = ends.get(i);
+			strings[i] = new String(data, start, end - start, StandardCharsets.UTF_8);
+			start = end;
+		}
+
+		return strings;
+	}
+
+	/**
+	 * Returns a view of the next given number of integers in the given buffer,
+	 * and moves the buffer's position past them.
+	 * 
+	 * @param buffer
+	 *            The buffer to get the integers from. This value cannot be
+	 *            null.
+	 * @param count
+	 *            The number of integers. Must be &gt;= 0.
+	 * 
+	 * @return A view of the integers. This value will not be null.
+	 */
+	private IntBuffer slice(ByteBuffer buffer, int count) {
+		ByteBuffer view = buffer.slice();
+		view.limit(count * 4);
+		buffer.position(buffer.position() + count * 4);
+		return view.asIntBuffer();
+	}
+
+	/**
+	 * Writes the first given number of values in the given array.
+	 * 
+	 * @param out
+	 *            The stream to write to. This value cannot be null.
+	 * @param values
+	 *            The values to write. This value cannot be null.
+	 * @param count
+	 *            The number of values to write. Must be &gt;= 0.
+	 * 
+	 * @throws IOException
+	 *             If there was an error writing to the stream.
+	 */
+	private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			out.writeInt(values[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes needed after the given length to align to a
+	 * multiple of 4 bytes.
+	 * 
+	 * @param length
+	 *            The length to align. Must be &gt;= 0.
+	 * 
+	 * @return The number of padding bytes, from 0 to 3.
+	 */
+	private static int padding(int length) {
+		return (4 - (length & 3)) & 3;
+	}
+
+	/**
+	 * This class collects unique strings and assigns each one an index.
+	 */
+	private static class StringTable {
+
+		private Map<String, Integer> stringToIndexMap = new HashMap<>();
+
+		private List<byte[]> encoded = new ArrayList<>();
+
+		/**
+		 * Adds the given string to this if it was not already added.
+		 * 
+		 * @param string
+		 *            The string to add. This value cannot be null.
+		 * 
+		 * @return The index of the string. This value will be &gt;= 0.
+		 */
+		public int add(String string) {
+			Integer index = stringToIndexMap.get(string);
+			if (index == null) {
+				index = encoded.size();
+				stringToIndexMap.put(string, index);
+				encoded.add(string.getBytes(StandardCharsets.UTF_8));
+			}
+
+			return index;
+		}
+
+		/**
+		 * Writes the number of strings, the end offset of each string, and
+		 * the padded string data to the given stream.
+		 * 
+		 * @param out
+		 *            The stream to write to. This value cannot be null.
+		 * 
+		 * @throws IOException
+		 *             If there was an error writing to the stream.
+		 */
+		public void write(DataOutputStream out) throws IOException {
+			out.writeInt(encoded.size());
+			int end = 0;
+			for (byte[] bytes : encoded) {
+				end += bytes.length;
+				out.writeInt(end);
+			}
+
+			for (byte[] bytes : encoded) {
+				out.write(bytes);
+			}
+
+			for (int i = padding(end); i > 0; i--) {
+				out.write(0);
+			}
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.model.JavaItemFactory;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link BinaryAPIFileManager} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class BinaryAPIFileManagerTest extends TestCase {
+
+	private File tempDir;
+
+	private File zipFile;
+
+	private File binaryFile;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		tempDir = Files.createTempDirectory("cmtapi").toFile();
+		zipFile = new File(tempDir, "api-v8.zip");
+		binaryFile = BinaryAPIFileManager.getBinaryFile(zipFile);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		zipFile.delete();
+		binaryFile.delete();
+		tempDir.delete();
+	}
+
+	public void testGetBinaryFileIfZipExpectSameDirectoryAndVersion() {
+		assertEquals("Name is wrong.", "api-v8.bin", binaryFile.getName());
+		assertEquals("Directory is wrong.", tempDir, binaryFile.getParentFile());
+	}
+
+	public void testConvertIfSampleIndexExpectSameAsZip() throws Exception {
+		new APIFileManager().writeAPI(createSampleIndex(), zipFile);
+
+		new BinaryAPIFileManager().convert(zipFile, binaryFile);
+
+		JavaItemIndex fromZip = new APIFileManager().loadAPI(zipFile);
+		JavaItemIndex fromBinary = new BinaryAPIFileManager().loadAPI(binaryFile);
+		assertIndexesEqual(fromZip, fromBinary);
+	}
+
+	public void testLoadAPIPreferBinaryIfNoBinaryExpectBinaryWrittenAndUsedNextTime() throws Exception {
+		new APIFileManager().writeAPI(createSampleIndex(), zipFile);
+		assertFalse("Binary file should not exist yet.", binaryFile.exists());
+
+		BinaryAPIFileManager manager = new BinaryAPIFileManager();
+		JavaItemIndex first = manager.loadAPIPreferBinary(zipFile);
+		assertTrue("Binary file was not written.", binaryFile.exists());
+
+		JavaItemIndex second = manager.loadAPIPreferBinary(zipFile);
+		assertIndexesEqual(first, second);
+	}
+
+	public void testLoadAPIPreferBinaryIfBinaryTruncatedExpectZipLoadedAndBinaryRewritten() throws Exception {
+		new APIFileManager().writeAPI(createSampleIndex(), zipFile);
+		JavaItemIndex fromZip = new APIFileManager().loadAPI(zipFile);
+		new BinaryAPIFileManager().writeAPI(fromZip, binaryFile);
+
+		byte[] bytes = Files.readAllBytes(binaryFile.toPath());
+		Files.write(binaryFile.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+		binaryFile.setLastModified(zipFile.lastModified() + 1000);
+
+		BinaryAPIFileManager manager = new BinaryAPIFileManager();
+		JavaItemIndex loaded = manager.loadAPIPreferBinary(zipFile);
+		assertIndexesEqual(fromZip, loaded);
+		assertEquals("Binary file was not rewritten.", bytes.length, binaryFile.length());
+
+		assertIndexesEqual(fromZip, manager.loadAPI(binaryFile));
+	}
+
+	public void testWriteAPIIfWrittenExpectNoTemporaryFileLeft() throws Exception {
+		new BinaryAPIFileManager().writeAPI(createSampleIndex(), binaryFile);
+
+		assertTrue("Binary file was not written.", binaryFile.exists());
+		assertEquals("Wrong files in directory.", Arrays.asList(binaryFile.getName()),
+				Arrays.asList(tempDir.list()));
+	}
+
+	public void testLoadAPIIfNotBinaryFileExpectException() throws Exception {
+		Files.write(binaryFile.toPath(), "i n \"Project\" id 0 t PROJECT".getBytes("UTF8"));
+		try {
+			new BinaryAPIFileManager().loadAPI(binaryFile);
+			fail("IOException was not thrown.");
+		} catch (IOException e) {
+			// success
+		}
+	}
+
+	public void testLoadAPIIfWrongNameExpectException() throws Exception {
+		try {
+			new BinaryAPIFileManager().loadAPI(new File(tempDir, "api.bin"));
+			fail("IllegalArgumentException was not thrown.");
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+
+	/**
+	 * Creates an index with every kind of relationship that is written to an
+	 * API file.
+	 * 
+	 * @return The new index. This value will not be null.
+	 */
+	private JavaItemIndex createSampleIndex() {
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+		JavaItemFactory factory = new JavaItemFactory(index);
+
+		JavaItem project = factory.createProject("Project");
+		JavaItem otherProject = factory.createProject("Other");
+		project.getDependenciesIDs().add(otherProject.getID());
+		otherProject.getIncomingIDs().add(project.getID());
+
+		JavaItem pkg = factory.createPackage(project, "com.ibm.commerce.café");
+		JavaItem stringClass = factory.createClass(pkg, "String");
+		JavaItem superClass = factory.createClass(pkg, "Base");
+		JavaItem interface1 = factory.createClass(pkg, "Runnable");
+		JavaItem interface2 = factory.createClass(pkg, "Serializable");
+		JavaItem classItem = factory.createClass(pkg, "Command");
+		JavaItem arrayClass = factory.createClass(pkg, "Command[]");
+
+		classItem.setAttribute(JavaItem.ATTR_SUPERCLASS, superClass.getID());
+		Set<Integer> superInterfaces = new LinkedHashSet<>();
+		superInterfaces.add(interface2.getID());
+		superInterfaces.add(interface1.getID());
+		classItem.setAttribute(JavaItem.ATTR_SUPERINTERFACES, superInterfaces);
+		classItem.getDependenciesIDs().add(stringClass.getID());
+		stringClass.getIncomingIDs().add(classItem.getID());
+		arrayClass.setAttribute(JavaItem.ATTR_ARRAY_BASE_CLASS, classItem.getID());
+
+		List<Integer> paramTypes = Arrays.asList(stringClass.getID(), stringClass.getID(), classItem.getID());
+		JavaItem method = factory.createMethod(classItem, "execute", paramTypes);
+		method.setAttribute(JavaItem.ATTR_RETURN_TYPE, stringClass.getID());
+		method.getDependenciesIDs().add(superClass.getID());
+		superClass.getIncomingIDs().add(method.getID());
+
+		JavaItem field = factory.createField(classItem, "name");
+		field.setAttribute(JavaItem.ATTR_FIELD_TYPE, stringClass.getID());
+
+		return index;
+	}
+
+	/**
+	 * Checks that the given indexes have the same items, with the same
+	 * relationships and attributes.
+	 * 
+	 * @param expected
+	 *            The expected index. This value cannot be null.
+	 * @param actual
+	 *            The actual index. This value cannot be null.
+	 */
+	private void assertIndexesEqual(JavaItemIndex expected, JavaItemIndex actual) {
+		assertEquals("Version is wrong.", expected.getVersion(), actual.getVersion());
+		assertEquals("Size is wrong.", expected.size(), actual.size());
+
+		List<JavaItem> expectedItems = expected.getItems();
+		List<JavaItem> actualItems = actual.getItems();
+		assertEquals("Number of items is wrong.", expectedItems.size(), actualItems.size());
+		for (int i = 0; i < expectedItems.size(); i++) {
+			JavaItem e = expectedItems.get(i);
+			JavaItem a = actualItems.get(i);
+			String prefix = "Item " + i + " (" + e.getName() + ") ";
+			assertEquals(prefix + "ID is wrong.", e.getID(), a.getID());
+			assertEquals(prefix + "name is wrong.", e.getName(), a.getName());
+			assertEquals(prefix + "type is wrong.", e.getType(), a.getType());
+			assertEquals(prefix + "parent is wrong.", e.getParentID(), a.getParentID());
+			assertEquals(prefix + "children are wrong.", e.getChildrenIDs(), a.getChildrenIDs());
+			assertEquals(prefix + "dependencies are wrong.", e.getDependenciesIDs(), a.getDependenciesIDs());
+			assertEquals(prefix + "incoming are wrong.", e.getIncomingIDs(), a.getIncomingIDs());
+			assertEquals(prefix + "attributes are wrong.", e.getAttributes(), a.getAttributes());
+			Set<Integer> superInterfaces = a.getAttribute(JavaItem.ATTR_SUPERINTERFACES);
+			if (superInterfaces != null) {
+				Set<Integer> expectedSuperInterfaces = e.getAttribute(JavaItem.ATTR_SUPERINTERFACES);
+				assertEquals(prefix + "superinterface order is wrong.", expectedSuperInterfaces.toString(),
+						superInterfaces.toString());
+			}
+		}
+	}
+}
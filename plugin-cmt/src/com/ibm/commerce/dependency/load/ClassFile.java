@@ -0,0 +1,842 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.commerce.cmt.Check;
+
+/**
+ * This class reads the parts of a .class file that are needed to create the
+ * items for a binary class: the name, the superclass and interfaces, and the
+ * signatures and thrown types of the methods. The class is read directly from
+ * its bytes, so it does not need to be loaded by a ClassLoader, and the
+ * classes that it depends on do not need to be available.
+ * <p>
+ * Class names are returned in the form used by Class.getName(), such as
+ * <code>java.util.Map$Entry</code>. Types in method signatures are returned
+ * in the form used by Class.getCanonicalName(), such as
+ * <code>java.util.Map.Entry[]</code>, so that they can be resolved in the
+ * same way as the names from source code.
+ * 
+ * @author Trent Hoeppner
+ */
+public class ClassFile {
+
+	/**
+	 * The magic number at the start of every .class file.
+	 */
+	private static final int MAGIC = 0xCAFEBABE;
+
+	/**
+	 * The name of the special method for constructors.
+	 */
+	private static final String CONSTRUCTOR_NAME = "<init>";
+
+	/**
+	 * The name of the special method for static initializers.
+	 */
+	private static final String STATIC_INITIALIZER_NAME = "<clinit>";
+
+	/**
+	 * The primitive type names, keyed by their descriptor characters.
+	 */
+	private static final Map<Character, String> PRIMITIVE_NAMES = new HashMap<>();
+
+	static {
+		PRIMITIVE_NAMES.put('Z', "boolean");
+		PRIMITIVE_NAMES.put('C', "char");
+		PRIMITIVE_NAMES.put('B', "byte");
+		PRIMITIVE_NAMES.put('S', "short");
+		PRIMITIVE_NAMES.put('I', "int");
+		PRIMITIVE_NAMES.put('J', "long");
+		PRIMITIVE_NAMES.put('F', "float");
+		PRIMITIVE_NAMES.put('D', "double");
+		PRIMITIVE_NAMES.put('V', "void");
+	}
+
+	/**
+	 * The name of this class.
+	 */
+	private String name;
+
+	/**
+	 * The access flags of this class, as defined by {@link Modifier} and the
+	 * class file format.
+	 */
+	private int accessFlags;
+
+	/**
+	 * The name of the superclass, or null if this is java.lang.Object.
+	 */
+	private String superclassName;
+
+	/**
+	 * The names of the interfaces that this class directly implements.
+	 */
+	private List<String> interfaceNames = new ArrayList<>();
+
+	/**
+	 * The methods and constructors that are declared in this class, in the
+	 * order they appear in the class file.
+	 */
+	private List<MethodInfo> methods = new ArrayList<>();
+
+	/**
+	 * The entries in the InnerClasses attribute, keyed by the name of the
+	 * nested class.
+	 */
+	private Map<String, InnerClassInfo> innerClasses = new HashMap<>();
+
+	/**
+	 * Constructor for this. Use {@link #read(InputStream)} to create
+	 * instances.
+	 */
+	private ClassFile() {
+		// do nothing
+	}
+
+	/**
+	 * Reads a class from the given stream. The stream will not be closed.
+	 * 
+	 * @param in
+	 *            The stream with the contents of a .class file. This value
+	 *            cannot be null.
+	 * 
+	 * @return The class that was read. This value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the stream, or the stream does
+	 *             not contain a valid .class file.
+	 */
+	public static ClassFile read(InputStream in) throws IOException {
+		Check.notNull(in, "in");
+
+		ClassFile classFile = new ClassFile();
+		classFile.parse(new DataInputStream(in));
+		return classFile;
+	}
+
+	/**
+	 * Reads a class from the given bytes.
+	 * 
+	 * @param content
+	 *            The contents of a .class file. This value cannot be null.
+	 * 
+	 * @return The class that was read. This value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If the bytes are not a valid .class file.
+	 */
+	public static ClassFile read(byte[] content) throws IOException {
+		Check.notNull(content, "content");
+
+		return read(new ByteArrayInputStream(content));
+	}
+
+	/**
+	 * Returns the name of this class, in the form used by Class.getName().
+	 * 
+	 * @return The name of this class. This value will not be null or empty.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the access flags of this class. The flags for public, final,
+	 * interface and abstract have the same values as in {@link Modifier}.
+	 * 
+	 * @return The access flags of this class.
+	 */
+	public int getAccessFlags() {
+		return accessFlags;
+	}
+
+	/**
+	 * Returns the name of the superclass of this class, in the form used by
+	 * Class.getName().
+	 * 
+	 * @return The name of the superclass, or null if this is java.lang.Object
+	 *         or a module descriptor.
+	 */
+	public String getSuperclassName() {
+		return superclassName;
+	}
+
+	/**
+	 * Returns the names of the interfaces that this class directly
+	 * implements, or that this interface directly extends, in the form used
+	 * by Class.getName().
+	 * 
+	 * @return The names of the interfaces. This value will not be null, but
+	 *         may be empty.
+	 */
+	public List<String> getInterfaceNames() {
+		return Collections.unmodifiableList(interfaceNames);
+	}
+
+	/**
+	 * Returns the methods and constructors that are declared in this class.
+	 * Static initializers are not included.
+	 * 
+	 * @return The methods and constructors of this class. This value will not
+	 *         be null, but may be empty.
+	 */
+	public List<MethodInfo> getMethods() {
+		return Collections.unmodifiableList(methods);
+	}
+
+	/**
+	 * Returns the name of the class which declares the given class as a
+	 * member. The given class must be this class or a class that this class
+	 * refers to.
+	 * 
+	 * @param className
+	 *            The name of the class to check, in the form used by
+	 *            Class.getName(). This value cannot be null.
+	 * 
+	 * @return The name of the declaring class, in the form used by
+	 *         Class.getName(), or null if the given class is a top level,
+	 *         local or anonymous class.
+	 */
+	public String getDeclaringClassName(String className) {
+		Check.notNull(className, "className");
+
+		InnerClassInfo info = innerClasses.get(className);
+		if (info == null) {
+			return null;
+		}
+
+		return info.outerName;
+	}
+
+	/**
+	 * Returns whether the given class is nested inside another class. The
+	 * given class must be this class or a class that this class refers to.
+	 * 
+	 * @param className
+	 *            The name of the class to check, in the form used by
+	 *            Class.getName(). This value cannot be null.
+	 * 
+	 * @return True if the class is a member, local or anonymous class, false
+	 *         if it is a top level class.
+	 */
+	public boolean isNested(String className) {
+		Check.notNull(className, "className");
+
+		return innerClasses.containsKey(className);
+	}
+
+	/**
+	 * Returns the canonical name of the given class, which is the name that
+	 * would be used to refer to it in source code. The given class must be
+	 * this class or a class that this class refers to.
+	 * 
+	 * @param className
+	 *            The name of the class, in the form used by Class.getName().
+	 *            This value cannot be null.
+	 * 
+	 * @return The canonical name of the class, or null if the class is local
+	 *         or anonymous, or is nested inside a local or anonymous class.
+	 */
+	public String getCanonicalName(String className) {
+		Check.notNull(className, "className");
+
+		InnerClassInfo info = innerClasses.get(className);
+		if (info == null) {
+			return className;
+		}
+
+		if (info.outerName == null || info.simpleName == null) {
+			return null;
+		}
+
+		String outerCanonicalName = getCanonicalName(info.outerName);
+		if (outerCanonicalName == null) {
+			return null;
+		}
+
+		return outerCanonicalName + "." + info.simpleName;
+	}
+
+	/**
+	 * Reads all the parts of the class file from the given stream.
+	 * 
+	 * @param in
+	 *            The stream to read from. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the stream, or the stream does
+	 *             not contain a valid .class file.
+	 */
+	private void parse(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a class file.");
+		}
+
+		// minor and major versions
+		in.readUnsignedShort();
+		in.readUnsignedShort();
+
+		ConstantPool pool = new ConstantPool(in);
+
+		accessFlags = in.readUnsignedShort();
+		name = pool.getClassName(in.readUnsignedShort());
+
+		int superclassIndex = in.readUnsignedShort();
+		if (superclassIndex != 0) {
+			superclassName = pool.getClassName(superclassIndex);
+		}
+
+		int interfaceCount = in.readUnsignedShort();
+		for (int i = 0; i < interfaceCount; i++) {
+			interfaceNames.add(pool.getClassName(in.readUnsignedShort()));
+		}
+
+		int fieldCount = in.readUnsignedShort();
+		for (int i = 0; i < fieldCount; i++) {
+			// access flags, name and descriptor
+			skipFully(in, 6);
+			skipAttributes(in);
+		}
+
+		List<RawMethod> rawMethods = new ArrayList<>();
+		int methodCount = in.readUnsignedShort();
+		for (int i = 0; i < methodCount; i++) {
+			RawMethod rawMethod = new RawMethod();
+			rawMethod.accessFlags = in.readUnsignedShort();
+			rawMethod.name = pool.getUTF8(in.readUnsignedShort());
+			rawMethod.descriptor = pool.getUTF8(in.readUnsignedShort());
+
+			int attributeCount = in.readUnsignedShort();
+			for (int j = 0; j < attributeCount; j++) {
+				String attributeName = pool.getUTF8(in.readUnsignedShort());
+				int length = in.readInt();
+				if (attributeName.equals("Exceptions")) {
+					int exceptionCount = in.readUnsignedShort();
+					for (int k = 0; k < exceptionCount; k++) {
+						rawMethod.exceptionNames.add(pool.getClassName(in.readUnsignedShort()));
+					}
+				} else {
+					skipFully(in, length);
+				}
+			}
+
+			rawMethods.add(rawMethod);
+		}
+
+		int attributeCount = in.readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			String attributeName = pool.getUTF8(in.readUnsignedShort());
+			int length = in.readInt();
+			if (attributeName.equals("InnerClasses")) {
+				int classCount = in.readUnsignedShort();
+				for (int j = 0; j < classCount; j++) {
+					InnerClassInfo info = new InnerClassInfo();
+					String innerName = pool.getClassName(in.readUnsignedShort());
+					int outerIndex = in.readUnsignedShort();
+					if (outerIndex != 0) {
+						info.outerName = pool.getClassName(outerIndex);
+					}
+					int simpleNameIndex = in.readUnsignedShort();
+					if (simpleNameIndex != 0) {
+						info.simpleName = pool.getUTF8(simpleNameIndex);
+					}
+					// access flags
+					in.readUnsignedShort();
+					innerClasses.put(innerName, info);
+				}
+			} else {
+				skipFully(in, length);
+			}
+		}
+
+		// the types can only be named after all nested classes are known
+		for (RawMethod rawMethod : rawMethods) {
+			if (!rawMethod.name.equals(STATIC_INITIALIZER_NAME)) {
+				methods.add(createMethod(rawMethod));
+			}
+		}
+	}
+
+	/**
+	 * Creates the method information for a method that was read from the
+	 * class file.
+	 * 
+	 * @param rawMethod
+	 *            The method as it was read from the class file. This value
+	 *            cannot be null.
+	 * 
+	 * @return The method information. This value will not be null.
+	 * 
+	 * @throws IOException
+	 *             If the descriptor of the method is not valid.
+	 */
+	private MethodInfo createMethod(RawMethod rawMethod) throws IOException {
+		String descriptor = rawMethod.descriptor;
+		if (descriptor.isEmpty() || descriptor.charAt(0) != '(') {
+			throw new IOException("Invalid method descriptor: " + descriptor);
+		}
+
+		List<String> parameterTypeNames = new ArrayList<>();
+		int[] position = new int[] { 1 };
+		while (position[0] < descriptor.length() && descriptor.charAt(position[0]) != ')') {
+			parameterTypeNames.add(readTypeName(descriptor, position));
+		}
+
+		if (position[0] >= descriptor.length()) {
+			throw new IOException("Invalid method descriptor: " + descriptor);
+		}
+
+		position[0]++;
+		String returnTypeName = readTypeName(descriptor, position);
+		if ("void".equals(returnTypeName)) {
+			returnTypeName = null;
+		}
+
+		List<String> exceptionTypeNames = new ArrayList<>();
+		for (String exceptionName : rawMethod.exceptionNames) {
+			exceptionTypeNames.add(getCanonicalName(exceptionName));
+		}
+
+		boolean constructor = rawMethod.name.equals(CONSTRUCTOR_NAME);
+		return new MethodInfo(rawMethod.name, constructor, rawMethod.accessFlags, parameterTypeNames,
+				returnTypeName, exceptionTypeNames);
+	}
+
+	/**
+	 * Reads one type from the given descriptor and returns its canonical
+	 * name.
+	 * 
+	 * @param descriptor
+	 *            The method descriptor to read from. This value cannot be
+	 *            null.
+	 * @param position
+	 *            A single element array with the index in the descriptor to
+	 *            start reading from. After this method returns, the element
+	 *            will be the index after the type. This value cannot be null.
+	 * 
+	 * @return The canonical name of the type, or null if the type is a local
+	 *         or anonymous class, or an array of one.
+	 * 
+	 * @throws IOException
+	 *             If the descriptor is not valid.
+	 */
+	private String readTypeName(String descriptor, int[] position) throws IOException {
+		int dimensions = 0;
+		while (position[0] < descriptor.length() && descriptor.charAt(position[0]) == '[') {
+			dimensions++;
+			position[0]++;
+		}
+
+		if (position[0] >= descriptor.length()) {
+			throw new IOException("Invalid method descriptor: " + descriptor);
+		}
+
+		String typeName;
+		char c = descriptor.charAt(position[0]);
+		if (c == 'L') {
+			int end = descriptor.indexOf(';', position[0]);
+			if (end < 0) {
+				throw new IOException("Invalid method descriptor: " + descriptor);
+			}
+
+			String className = descriptor.substring(position[0] + 1, end).replace('/', '.');
+			typeName = getCanonicalName(className);
+			position[0] = end + 1;
+		} else {
+			typeName = PRIMITIVE_NAMES.get(c);
+			if (typeName == null) {
+				throw new IOException("Invalid method descriptor: " + descriptor);
+			}
+			position[0]++;
+		}
+
+		if (typeName == null) {
+			return null;
+		}
+
+		StringBuilder b = new StringBuilder(typeName);
+		for (int i = 0; i < dimensions; i++) {
+			b.append("[]");
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * Skips the attributes at the current position of the given stream.
+	 * 
+	 * @param in
+	 *            The stream to read from. This value cannot be null.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the stream.
+	 */
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int attributeCount = in.readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			// name
+			in.readUnsignedShort();
+			int length = in.readInt();
+			skipFully(in, length);
+		}
+	}
+
+	/**
+	 * Skips the given number of bytes in the given stream.
+	 * 
+	 * @param in
+	 *            The stream to read from. This value cannot be null.
+	 * @param length
+	 *            The number of bytes to skip. This value must be &gt;= 0.
+	 * 
+	 * @throws IOException
+	 *             If there was an error reading the stream, or the stream ends
+	 *             before all the bytes were skipped.
+	 */
+	private static void skipFully(DataInputStream in, int length) throws IOException {
+		if (length < 0) {
+			throw new IOException("Invalid length: " + length);
+		}
+
+		int remaining = length;
+		while (remaining > 0) {
+			int skipped = in.skipBytes(remaining);
+			if (skipped <= 0) {
+				// skipBytes() may stop early, read to find out if it ended
+				in.readByte();
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	/**
+	 * This class holds the information about a method or constructor in a
+	 * class file.
+	 */
+	public static class MethodInfo {
+
+		/**
+		 * The name of the method, which is &lt;init&gt; for constructors.
+		 */
+		private String name;
+
+		/**
+		 * True if this is a constructor, false otherwise.
+		 */
+		private boolean constructor;
+
+		/**
+		 * The access flags of the method.
+		 */
+		private int accessFlags;
+
+		/**
+		 * The canonical names of the parameter types.
+		 */
+		private List<String> parameterTypeNames;
+
+		/**
+		 * The canonical name of the return type, or null if it is void.
+		 */
+		private String returnTypeName;
+
+		/**
+		 * The canonical names of the types in the throws clause.
+		 */
+		private List<String> exceptionTypeNames;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param name
+		 *            The name of the method. This value cannot be null or
+		 *            empty.
+		 * @param constructor
+		 *            True if this is a constructor, false otherwise.
+		 * @param accessFlags
+		 *            The access flags of the method.
+		 * @param parameterTypeNames
+		 *            The canonical names of the parameter types. This value
+		 *            cannot be null, but may contain null elements.
+		 * @param returnTypeName
+		 *            The canonical name of the return type, or null if it is
+		 *            void.
+		 * @param exceptionTypeNames
+		 *            The canonical names of the types in the throws clause.
+		 *            This value cannot be null, but may contain null elements.
+		 */
+		private MethodInfo(String name, boolean constructor, int accessFlags, List<String> parameterTypeNames,
+				String returnTypeName, List<String> exceptionTypeNames) {
+			this.name = name;
+			this.constructor = constructor;
+			this.accessFlags = accessFlags;
+			this.parameterTypeNames = Collections.unmodifiableList(parameterTypeNames);
+			this.returnTypeName = returnTypeName;
+			this.exceptionTypeNames = Collections.unmodifiableList(exceptionTypeNames);
+		}
+
+		/**
+		 * Returns the name of this method, which is &lt;init&gt; for
+		 * constructors.
+		 * 
+		 * @return The name of this method. This value will not be null or
+		 *         empty.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns whether this is a constructor.
+		 * 
+		 * @return True if this is a constructor, false otherwise.
+		 */
+		public boolean isConstructor() {
+			return constructor;
+		}
+
+		/**
+		 * Returns the access flags of this method. The flags for public,
+		 * protected, private, static and abstract have the same values as in
+		 * {@link Modifier}.
+		 * 
+		 * @return The access flags of this method.
+		 */
+		public int getAccessFlags() {
+			return accessFlags;
+		}
+
+		/**
+		 * Returns the canonical names of the parameter types of this method.
+		 * For the constructors of inner classes, the first parameter is the
+		 * enclosing instance.
+		 * 
+		 * @return The canonical names of the parameter types. This value will
+		 *         not be null, but may be empty. An element will be null if the
+		 *         type is a local or anonymous class.
+		 */
+		public List<String> getParameterTypeNames() {
+			return parameterTypeNames;
+		}
+
+		/**
+		 * Returns the canonical name of the return type of this method.
+		 * 
+		 * @return The canonical name of the return type, or null if the method
+		 *         returns void or the type is a local or anonymous class.
+		 */
+		public String getReturnTypeName() {
+			return returnTypeName;
+		}
+
+		/**
+		 * Returns the canonical names of the types in the throws clause of
+		 * this method.
+		 * 
+		 * @return The canonical names of the thrown types. This value will not
+		 *         be null, but may be empty. An element will be null if the
+		 *         type is a local or anonymous class.
+		 */
+		public List<String> getExceptionTypeNames() {
+			return exceptionTypeNames;
+		}
+	}
+
+	/**
+	 * This class holds a method as it was read from the class file, before the
+	 * nested classes are known.
+	 */
+	private static class RawMethod {
+
+		/**
+		 * The access flags of the method.
+		 */
+		private int accessFlags;
+
+		/**
+		 * The name of the method.
+		 */
+		private String name;
+
+		/**
+		 * The descriptor of the method.
+		 */
+		private String descriptor;
+
+		/**
+		 * The names of the types in the throws clause, in the form used by
+		 * Class.getName().
+		 */
+		private List<String> exceptionNames = new ArrayList<>();
+	}
+
+	/**
+	 * This class holds an entry from the InnerClasses attribute.
+	 */
+	private static class InnerClassInfo {
+
+		/**
+		 * The name of the class which declares the nested class as a member,
+		 * or null if it is a local or anonymous class.
+		 */
+		private String outerName;
+
+		/**
+		 * The simple name of the nested class, or null if it is anonymous.
+		 */
+		private String simpleName;
+	}
+
+	/**
+	 * This class holds the constant pool of a class file. Only the UTF8 and
+	 * class entries are kept, since the others are not needed to find the
+	 * names of classes and methods.
+	 */
+	private static class ConstantPool {
+
+		/**
+		 * The tag for UTF8 entries.
+		 */
+		private static final int UTF8 = 1;
+
+		/**
+		 * The tag for class entries.
+		 */
+		private static final int CLASS = 7;
+
+		/**
+		 * The UTF8 values, indexed by their constant pool index.
+		 */
+		private String[] utf8s;
+
+		/**
+		 * The indexes of the UTF8 entries with the names of classes, indexed
+		 * by the constant pool index of the class entries.
+		 */
+		private int[] classNameIndexes;
+
+		/**
+		 * Constructor for this, which reads the constant pool from the given
+		 * stream.
+		 * 
+		 * @param in
+		 *            The stream to read from, which is positioned at the
+		 *            constant pool count. This value cannot be null.
+		 * 
+		 * @throws IOException
+		 *             If there was an error reading the stream, or the
+		 *             constant pool is not valid.
+		 */
+		private ConstantPool(DataInputStream in) throws IOException {
+			int count = in.readUnsignedShort();
+			utf8s = new String[count];
+			classNameIndexes = new int[count];
+			for (int i = 1; i < count; i++) {
+				int tag = in.readUnsignedByte();
+				switch (tag) {
+				case UTF8:
+					utf8s[i] = in.readUTF();
+					break;
+				case CLASS:
+					classNameIndexes[i] = in.readUnsignedShort();
+					break;
+				case 8: // String
+				case 16: // MethodType
+				case 19: // Module
+				case 20: // Package
+					skipFully(in, 2);
+					break;
+				case 15: // MethodHandle
+					skipFully(in, 3);
+					break;
+				case 3: // Integer
+				case 4: // Float
+				case 9: // Fieldref
+				case 10: // Methodref
+				case 11: // InterfaceMethodref
+				case 12: // NameAndType
+				case 17: // Dynamic
+				case 18: // InvokeDynamic
+					skipFully(in, 4);
+					break;
+				case 5: // Long
+				case 6: // Double
+					skipFully(in, 8);
+					// these take two entries
+					i++;
+					break;
+				default:
+					throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+				}
+			}
+		}
+
+		/**
+		 * Returns the UTF8 value at the given index.
+		 * 
+		 * @param index
+		 *            The index in the constant pool.
+		 * 
+		 * @return The value. This value will not be null.
+		 * 
+		 * @throws IOException
+		 *             If there is no UTF8 entry at the index.
+		 */
+		private String getUTF8(int index) throws IOException {
+			if (index <= 0 || index >= utf8s.length || utf8s[index] == null) {
+				throw new IOException("No UTF8 constant at index " + index);
+			}
+
+			return utf8s[index];
+		}
+
+		/**
+		 * Returns the name of the class at the given index, in the form used
+		 * by Class.getName().
+		 * 
+		 * @param index
+		 *            The index in the constant pool.
+		 * 
+		 * @return The class name. This value will not be null.
+		 * 
+		 * @throws IOException
+		 *             If there is no class entry at the index.
+		 */
+		private String getClassName(int index) throws IOException {
+			if (index <= 0 || index >= classNameIndexes.length || classNameIndexes[index] == 0) {
+				throw new IOException("No class constant at index " + index);
+			}
+
+			return getUTF8(classNameIndexes[index]).replace('/', '.');
+		}
+	}
+}
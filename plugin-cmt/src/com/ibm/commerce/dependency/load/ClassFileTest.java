@@ -0,0 +1,262 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.commerce.dependency.load.ClassFile.MethodInfo;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link ClassFile} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class ClassFileTest extends TestCase {
+
+	public void testReadIfJDKClassesExpectSameMethodsAsReflection() throws Exception {
+		List<Class<?>> types = Arrays.asList(String.class, HashMap.class, ConcurrentHashMap.class, Thread.class,
+				Map.Entry.class, Thread.State.class);
+		for (Class<?> type : types) {
+			ClassFile classFile = readClass(type);
+
+			assertEquals("Wrong methods for " + type, getReflectionSignatures(type), getSignatures(classFile));
+		}
+	}
+
+	public void testReadIfNestedClassesExpectSameMethodsAsReflection() throws Exception {
+		List<Class<?>> types = Arrays.asList(Fixture.class, Inner.class, ClassFileTest.class);
+		for (Class<?> type : types) {
+			ClassFile classFile = readClass(type);
+
+			assertEquals("Wrong methods for " + type, getReflectionSignatures(type), getSignatures(classFile));
+		}
+	}
+
+	public void testReadIfClassExpectSuperTypes() throws Exception {
+		ClassFile classFile = readClass(Fixture.class);
+
+		assertEquals("Wrong name.", Fixture.class.getName(), classFile.getName());
+		assertEquals("Wrong superclass.", "java.lang.Object", classFile.getSuperclassName());
+		assertEquals("Wrong interfaces.", Arrays.asList("java.io.Serializable", "java.lang.Runnable"),
+				classFile.getInterfaceNames());
+		assertTrue("Not public.", (classFile.getAccessFlags() & Modifier.PUBLIC) > 0);
+	}
+
+	public void testReadIfObjectExpectNoSuperclass() throws Exception {
+		ClassFile classFile = readClass(Object.class);
+
+		assertNull("Object has a superclass.", classFile.getSuperclassName());
+	}
+
+	public void testReadIfMemberClassExpectDeclaringClass() throws Exception {
+		ClassFile classFile = readClass(Map.Entry.class);
+
+		assertTrue("Entry is not nested.", classFile.isNested("java.util.Map$Entry"));
+		assertFalse("Map is nested.", classFile.isNested("java.util.Map"));
+		assertEquals("Wrong declaring class.", "java.util.Map",
+				classFile.getDeclaringClassName("java.util.Map$Entry"));
+		assertEquals("Wrong canonical name.", "java.util.Map.Entry",
+				classFile.getCanonicalName("java.util.Map$Entry"));
+	}
+
+	public void testReadIfAnonymousClassExpectNoCanonicalName() throws Exception {
+		Runnable anonymous = new Runnable() {
+
+			@Override
+			public void run() {
+				// do nothing
+			}
+		};
+		ClassFile classFile = readClass(ClassFileTest.class);
+		String anonymousName = anonymous.getClass().getName();
+
+		assertTrue("Anonymous class is not nested.", classFile.isNested(anonymousName));
+		assertNull("Wrong declaring class.", classFile.getDeclaringClassName(anonymousName));
+		assertNull("Wrong canonical name.", classFile.getCanonicalName(anonymousName));
+	}
+
+	public void testReadIfNotClassFileExpectException() throws Exception {
+		try {
+			ClassFile.read(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+			fail("IOException was not thrown.");
+		} catch (IOException e) {
+			// success
+		}
+	}
+
+	public void testReadIfTruncatedExpectException() throws Exception {
+		byte[] content = readBytes(Fixture.class);
+		try {
+			ClassFile.read(Arrays.copyOf(content, content.length / 2));
+			fail("IOException was not thrown.");
+		} catch (IOException e) {
+			// success
+		}
+	}
+
+	private ClassFile readClass(Class<?> type) throws IOException {
+		return ClassFile.read(readBytes(type));
+	}
+
+	private byte[] readBytes(Class<?> type) throws IOException {
+		String resourceName = type.getName().replace('.', '/') + ".class";
+		InputStream in = ClassLoader.getSystemResourceAsStream(resourceName);
+		assertNotNull("Could not find " + resourceName, in);
+		try {
+			List<Byte> bytes = new ArrayList<>();
+			int next = in.read();
+			while (next >= 0) {
+				bytes.add((byte) next);
+				next = in.read();
+			}
+
+			byte[] content = new byte[bytes.size()];
+			for (int i = 0; i < content.length; i++) {
+				content[i] = bytes.get(i);
+			}
+			return content;
+		} finally {
+			in.close();
+		}
+	}
+
+	private Set<String> getReflectionSignatures(Class<?> type) {
+		Set<String> signatures = new TreeSet<>();
+		for (Method method : type.getDeclaredMethods()) {
+			if ((method.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED)) > 0) {
+				String returnTypeName = null;
+				if (!method.getReturnType().equals(Void.TYPE)) {
+					returnTypeName = method.getReturnType().getCanonicalName();
+				}
+				signatures.add(toSignature(method.getName(), getCanonicalNames(method.getParameterTypes()),
+						returnTypeName, getCanonicalNames(method.getExceptionTypes())));
+			}
+		}
+
+		for (Constructor<?> constructor : type.getConstructors()) {
+			signatures.add(toSignature("<init>", getCanonicalNames(constructor.getParameterTypes()), null,
+					getCanonicalNames(constructor.getExceptionTypes())));
+		}
+
+		return signatures;
+	}
+
+	private Set<String> getSignatures(ClassFile classFile) {
+		Set<String> signatures = new TreeSet<>();
+		for (MethodInfo method : classFile.getMethods()) {
+			int modifiers = method.getAccessFlags();
+			if (method.isConstructor() && (modifiers & Modifier.PUBLIC) > 0 || !method.isConstructor()
+					&& (modifiers & (Modifier.PUBLIC | Modifier.PROTECTED)) > 0) {
+				signatures.add(toSignature(method.getName(), method.getParameterTypeNames(),
+						method.getReturnTypeName(), method.getExceptionTypeNames()));
+			}
+		}
+
+		return signatures;
+	}
+
+	private List<String> getCanonicalNames(Class<?>[] types) {
+		List<String> names = new ArrayList<>();
+		for (Class<?> type : types) {
+			names.add(type.getCanonicalName());
+		}
+
+		return names;
+	}
+
+	private String toSignature(String name, List<String> parameterTypeNames, String returnTypeName,
+			List<String> exceptionTypeNames) {
+		return name + parameterTypeNames + " returns " + returnTypeName + " throws " + exceptionTypeNames;
+	}
+
+	/**
+	 * A class with methods that use arrays, nested classes and exceptions.
+	 */
+	public static class Fixture implements Serializable, Runnable {
+
+		private static final long serialVersionUID = 1L;
+
+		public Fixture() {
+			// do nothing
+		}
+
+		public Fixture(Map.Entry<String, Integer>[] entries, long size) throws IOException {
+			// do nothing
+		}
+
+		protected Fixture(String name) {
+			// do nothing
+		}
+
+		@Override
+		public void run() {
+			// do nothing
+		}
+
+		public int[][] toMatrix(Thread.State state, double[] values) {
+			return null;
+		}
+
+		protected Inner createInner(ClassFileTest parent) throws IOException, InterruptedException {
+			return null;
+		}
+
+		public static <T extends Comparable<T>> T max(List<T> values) {
+			return null;
+		}
+
+		void packageMethod() {
+			// do nothing
+		}
+
+		private void privateMethod() {
+			// do nothing
+		}
+	}
+
+	/**
+	 * A class whose constructors have the enclosing instance as the first
+	 * parameter.
+	 */
+	public class Inner {
+
+		public Inner(boolean flag, char c, byte b, short s, float f) {
+			// do nothing
+		}
+
+		public Inner[] getChildren() {
+			return null;
+		}
+	}
+}
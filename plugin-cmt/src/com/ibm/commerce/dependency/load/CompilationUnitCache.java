@@ -0,0 +1,342 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import com.ibm.commerce.cmt.Check;
+
+/**
+ * This class shares the parsed compilation unit of a Java source file between
+ * the task chains that need it, so that each file is read and parsed only
+ * once. The number of chains that will use a file is registered with
+ * {@link #addUsers(File, int)} before the chains run, and each chain calls
+ * {@link #release(File)} when it is done. The compilation unit is dropped when
+ * the last chain releases it.
+ * <p>
+ * The chains for a file run in different phases, and each phase goes through
+ * every file in the workspace before the next phase starts, because later
+ * phases look up items that earlier phases created from other files. So a
+ * compilation unit would be kept from the first phase to the last. To bound
+ * the memory used, at most a configurable number of compilation units are
+ * kept between uses. For files that are parsed while that many are kept, only
+ * the source text is kept, which is much smaller than the compilation unit. So
+ * every file is read once, but those files are parsed again by each chain that
+ * needs them.
+ * 
+ * @author Trent Hoeppner
+ */
+public class CompilationUnitCache {
+
+	/**
+	 * The default maximum number of compilation units that are kept between
+	 * uses.
+	 */
+	public static final int DEFAULT_MAX_RETAINED = 500;
+
+	/**
+	 * A mapping from source files to the parsed compilation unit for each,
+	 * which only contains files that still have users.
+	 */
+	private ConcurrentHashMap<File, Entry> fileToEntryMap = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of times a file has been read by this.
+	 */
+	private AtomicInteger readCount = new AtomicInteger();
+
+	/**
+	 * The number of times a file has been parsed by this.
+	 */
+	private AtomicInteger parseCount = new AtomicInteger();
+
+	/**
+	 * The maximum number of compilation units that are kept between uses.
+	 */
+	private int maxRetained;
+
+	/**
+	 * The number of compilation units that are currently kept between uses.
+	 */
+	private AtomicInteger retainedCount = new AtomicInteger();
+
+	/**
+	 * Constructor for this, which keeps at most
+	 * {@link #DEFAULT_MAX_RETAINED} compilation units between uses.
+	 */
+	public CompilationUnitCache() {
+		this(DEFAULT_MAX_RETAINED);
+	}
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param maxRetained
+	 *            The maximum number of compilation units that are kept between
+	 *            uses. This value must be &gt;= 0.
+	 */
+	public CompilationUnitCache(int maxRetained) {
+		if (maxRetained < 0) {
+			throw new IllegalArgumentException("maxRetained must be >= 0, was " + maxRetained);
+		}
+
+		this.maxRetained = maxRetained;
+	}
+
+	/**
+	 * Registers the given number of users for the given file. The file will be
+	 * kept in this until {@link #release(File)} has been called the same
+	 * number of times.
+	 * 
+	 * @param file
+	 *            The source file that will be used. This value cannot be null.
+	 * @param users
+	 *            The number of users to add. This value must be &gt; 0.
+	 */
+	public void addUsers(File file, int users) {
+		Check.notNull(file, "file");
+
+		fileToEntryMap.compute(file, (key, entry) -> {
+			if (entry == null) {
+				entry = new Entry();
+			}
+
+			entry.users += users;
+			return entry;
+		});
+	}
+
+	/**
+	 * Returns the compilation unit for the given file, reading and parsing it
+	 * if this is the first time it is requested. If the compilation unit was
+	 * not kept because too many other files were kept, it is parsed again from
+	 * the kept source text. The file must have been registered with
+	 * {@link #addUsers(File, int)} and not yet be fully released.
+	 * 
+	 * @param file
+	 *            The source file to get the compilation unit for. This value
+	 *            cannot be null.
+	 * 
+	 * @return The compilation unit for the file, or null if the file has
+	 *         compile errors.
+	 * 
+	 * @throws Exception
+	 *             If the file could not be read or parsed. The same exception
+	 *             is thrown to every user of the file.
+	 */
+	public CompilationUnit get(File file) throws Exception {
+		Check.notNull(file, "file");
+
+		Entry entry = fileToEntryMap.get(file);
+		if (entry == null) {
+			throw new IllegalStateException("File " + file + " has no users registered.");
+		}
+
+		String content;
+		synchronized (entry) {
+			if (!entry.loaded) {
+				CompilationUnit compUnit;
+				try {
+					readCount.incrementAndGet();
+					content = read(file);
+					parseCount.incrementAndGet();
+					compUnit = parse(content, file);
+				} catch (Exception e) {
+					// failures are small, so they are always kept
+					entry.failure = e;
+					entry.loaded = true;
+					throw e;
+				}
+
+				if (retainedCount.incrementAndGet() <= maxRetained) {
+					entry.compUnit = compUnit;
+					entry.retained = true;
+				} else {
+					retainedCount.decrementAndGet();
+					entry.content = content;
+				}
+				entry.loaded = true;
+
+				return compUnit;
+			}
+
+			if (entry.failure != null) {
+				throw entry.failure;
+			}
+
+			if (entry.retained) {
+				return entry.compUnit;
+			}
+
+			content = entry.content;
+		}
+
+		// the file was read and parsed without errors before, so the users can
+		// parse the text at the same time
+		parseCount.incrementAndGet();
+		return parse(content, file);
+	}
+
+	/**
+	 * Indicates that one user of the given file is done with it. When all the
+	 * users are done, the compilation unit is removed from this.
+	 * 
+	 * @param file
+	 *            The source file that is no longer needed by one user. This
+	 *            value cannot be null.
+	 */
+	public void release(File file) {
+		Check.notNull(file, "file");
+
+		fileToEntryMap.computeIfPresent(file, (key, entry) -> {
+			entry.users--;
+			if (entry.users > 0) {
+				return entry;
+			}
+
+			if (entry.retained) {
+				retainedCount.decrementAndGet();
+			}
+
+			return null;
+		});
+	}
+
+	/**
+	 * Returns the number of files that have users and are kept in this.
+	 * 
+	 * @return The number of files with users. This value will be &gt;= 0.
+	 */
+	public int size() {
+		return fileToEntryMap.size();
+	}
+
+	/**
+	 * Returns the number of compilation units that are kept between uses.
+	 * 
+	 * @return The number of kept compilation units. This value will be &gt;=
+	 *         0.
+	 */
+	public int getRetainedCount() {
+		return retainedCount.get();
+	}
+
+	/**
+	 * Returns the number of times that a file was read by this. Each file is
+	 * read once while it has users.
+	 * 
+	 * @return The number of reads. This value will be &gt;= 0.
+	 */
+	public int getReadCount() {
+		return readCount.get();
+	}
+
+	/**
+	 * Returns the number of times that a file was parsed by this. A file whose
+	 * compilation unit is kept is parsed once while it has users. Other files
+	 * are parsed each time they are requested.
+	 * 
+	 * @return The number of parses. This value will be &gt;= 0.
+	 */
+	public int getParseCount() {
+		return parseCount.get();
+	}
+
+	/**
+	 * Reads the source text of the given file.
+	 * 
+	 * @param file
+	 *            The source file to read. This value cannot be null.
+	 * 
+	 * @return The source text of the file. This value will not be null.
+	 * 
+	 * @throws Exception
+	 *             If the file could not be read.
+	 */
+	protected String read(File file) throws Exception {
+		return LoadFromInputStreamTask.loadContent(new FileInputStream(file));
+	}
+
+	/**
+	 * Parses the given source text of a file.
+	 * 
+	 * @param content
+	 *            The source text to parse. This value cannot be null.
+	 * @param file
+	 *            The source file that the text was read from. This value
+	 *            cannot be null.
+	 * 
+	 * @return The compilation unit for the file, or null if the file has
+	 *         compile errors.
+	 * 
+	 * @throws Exception
+	 *             If the text could not be parsed.
+	 */
+	protected CompilationUnit parse(String content, File file) throws Exception {
+		return LoadJavaCompilationUnitTask.parseCompilationUnit(content, file.getPath());
+	}
+
+	/**
+	 * This class holds the compilation unit or the source text of one file
+	 * and the number of users who still need it.
+	 */
+	private static class Entry {
+
+		/**
+		 * The number of users who have not yet released the file.
+		 */
+		private int users;
+
+		/**
+		 * True indicates that the file has been read and parsed, false
+		 * indicates that it has not been requested yet.
+		 */
+		private boolean loaded;
+
+		/**
+		 * True indicates that the compilation unit is kept and counted in
+		 * {@link CompilationUnitCache#retainedCount}, false indicates that it
+		 * is not.
+		 */
+		private boolean retained;
+
+		/**
+		 * The parsed file, or null if it has not been parsed or it has compile
+		 * errors.
+		 */
+		private CompilationUnit compUnit;
+
+		/**
+		 * The source text of the file, or null if it has not been read, or the
+		 * compilation unit is kept instead.
+		 */
+		private String content;
+
+		/**
+		 * The exception that was thrown while parsing, or null if there was no
+		 * exception.
+		 */
+		private Exception failure;
+	}
+}
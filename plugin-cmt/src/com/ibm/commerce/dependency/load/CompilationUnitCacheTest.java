@@ -0,0 +1,340 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import com.ibm.commerce.cmt.plan.IDGenerator;
+import com.ibm.commerce.dependency.model.JavaItemFactory;
+import com.ibm.commerce.dependency.model.JavaItemIndex;
+import com.ibm.commerce.dependency.model.JavaItemUtil2;
+import com.ibm.commerce.dependency.task.ChainTask;
+import com.ibm.commerce.dependency.task.Task;
+import com.ibm.commerce.dependency.task.TaskList;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link CompilationUnitCache} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class CompilationUnitCacheTest extends TestCase {
+
+	/**
+	 * Tests that if five chains use the same file at the same time, the file
+	 * is parsed once and is removed after the last chain releases it.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testGetIfFiveUsersInParallelExpectParsedOnceAndReleased() throws Exception {
+		CountingCache cache = new CountingCache(null);
+		File file = new File("Test1.java");
+		File otherFile = new File("Test2.java");
+		cache.addUsers(file, 5);
+		cache.addUsers(otherFile, 5);
+
+		List<Thread> threads = new ArrayList<>();
+		List<Exception> failures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			File fileToUse = i % 2 == 0 ? file : otherFile;
+			Thread thread = new Thread(() -> {
+				try {
+					cache.get(fileToUse);
+					cache.release(fileToUse);
+				} catch (Exception e) {
+					synchronized (failures) {
+						failures.add(e);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals("Wrong failures.", 0, failures.size());
+		assertEquals("Files were not parsed exactly once.", 2, cache.getParseCount());
+		assertEquals("Files were not released.", 0, cache.size());
+	}
+
+	/**
+	 * Tests that if a file is used again after all users released it, it is
+	 * parsed again, because the compilation unit was not kept.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testGetIfAllUsersReleasedExpectParsedAgain() throws Exception {
+		CountingCache cache = new CountingCache(null);
+		File file = new File("Test1.java");
+
+		cache.addUsers(file, 2);
+		cache.get(file);
+		cache.release(file);
+		assertEquals("File was released too early.", 1, cache.size());
+		cache.get(file);
+		cache.release(file);
+		assertEquals("File was not released.", 0, cache.size());
+
+		cache.addUsers(file, 1);
+		cache.get(file);
+		cache.release(file);
+
+		assertEquals("Wrong number of parses.", 2, cache.getParseCount());
+	}
+
+	/**
+	 * Tests that if reading fails, every user gets the same exception and the
+	 * file is not read again.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testGetIfReadFailsExpectSameExceptionForAllUsers() throws Exception {
+		IOException failure = new IOException("Cannot read");
+		CountingCache cache = new CountingCache(failure);
+		File file = new File("Test1.java");
+		cache.addUsers(file, 2);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.get(file);
+				fail("Exception was not thrown.");
+			} catch (IOException e) {
+				assertSame("Wrong exception.", failure, e);
+			}
+			cache.release(file);
+		}
+
+		assertEquals("Wrong number of reads.", 1, cache.getReadCount());
+		assertEquals("Wrong number of parses.", 0, cache.getParseCount());
+		assertEquals("File was not released.", 0, cache.size());
+	}
+
+	/**
+	 * Tests that if more files are in use than can be kept, the files that
+	 * could not be kept are read once and parsed by every user, and the kept
+	 * files are parsed once.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testGetIfMoreFilesThanMaxRetainedExpectOthersParsedByEachUser() throws Exception {
+		CountingCache cache = new CountingCache(null, 1);
+		File file = new File("Test1.java");
+		File otherFile = new File("Test2.java");
+		cache.addUsers(file, 2);
+		cache.addUsers(otherFile, 2);
+
+		for (int i = 0; i < 2; i++) {
+			cache.get(file);
+			cache.get(otherFile);
+		}
+		assertEquals("Wrong number of reads.", 2, cache.getReadCount());
+		assertEquals("Wrong number of parses.", 3, cache.getParseCount());
+		assertEquals("Wrong number of kept files.", 1, cache.getRetainedCount());
+
+		for (int i = 0; i < 2; i++) {
+			cache.release(file);
+			cache.release(otherFile);
+		}
+		assertEquals("Files were not released.", 0, cache.size());
+		assertEquals("Kept files were not released.", 0, cache.getRetainedCount());
+	}
+
+	/**
+	 * Tests that if many more files are in use than can be kept, and each file
+	 * is used by every chain of the load in turn, each file is read once, the
+	 * kept files are parsed once, and the other files are parsed once for each
+	 * chain.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testGetIfChainsUseFilesInTurnExpectEachFileReadOnce() throws Exception {
+		int maxRetained = 2;
+		int chains = 5;
+		CountingCache cache = new CountingCache(null, maxRetained);
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			File file = new File("Test" + i + ".java");
+			files.add(file);
+			cache.addUsers(file, chains);
+		}
+
+		for (int i = 0; i < chains; i++) {
+			for (File file : files) {
+				cache.get(file);
+			}
+		}
+
+		int notRetained = files.size() - maxRetained;
+		assertEquals("Wrong number of reads.", files.size(), cache.getReadCount());
+		assertEquals("Wrong number of parses.", maxRetained + notRetained * chains, cache.getParseCount());
+		assertEquals("Wrong number of kept files.", maxRetained, cache.getRetainedCount());
+
+		for (int i = 0; i < chains; i++) {
+			for (File file : files) {
+				cache.release(file);
+			}
+		}
+		assertEquals("Files were not released.", 0, cache.size());
+		assertEquals("Kept files were not released.", 0, cache.getRetainedCount());
+	}
+
+	/**
+	 * Tests that if a task in a chain throws an error before the chain
+	 * releases its file, the file is still released.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testExecuteIfChainFailsExpectFileReleased() throws Exception {
+		CountingCache cache = new CountingCache(null);
+		File file = new File("Test1.java");
+		cache.addUsers(file, 1);
+
+		JavaItemIndex index = new JavaItemIndex("v8");
+		index.setIDGenerator(new IDGenerator(0));
+		LoadingContext context = new LoadingContext(new TaskList(), new JavaItemFactory(index), new JavaItemUtil2(),
+				cache);
+		context.put(Name.FILE, file);
+
+		ChainTask<LoadingContext> chain = new ChainTask<>("LoadClasses", context);
+		chain.addTask(new LoadCachedJavaCompilationUnitTask("LoadCachedJavaCompilationUnit", context));
+		chain.addTask(new Task<LoadingContext>("Fail", context) {
+
+			@Override
+			public Set<String> getInputConstraints() {
+				return Collections.emptySet();
+			}
+
+			@Override
+			public Set<String> getOutputConstraints() {
+				return Collections.emptySet();
+			}
+
+			@Override
+			public void execute(LoadingContext context) throws Exception {
+				throw new AssertionError("The visitor failed.");
+			}
+		});
+		chain.addFinallyTask(new ReleaseJavaCompilationUnitTask("ReleaseJavaCompilationUnit", context));
+
+		try {
+			chain.execute(context);
+			fail("Error was not thrown.");
+		} catch (AssertionError e) {
+			assertEquals("Wrong error.", "The visitor failed.", e.getMessage());
+		}
+
+		assertEquals("File was not parsed.", 1, cache.getParseCount());
+		assertEquals("File was not released.", 0, cache.size());
+		assertEquals("Kept file was not released.", 0, cache.getRetainedCount());
+	}
+
+	/**
+	 * Tests that if a file was not registered, an exception is thrown.
+	 * 
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testGetIfNoUsersExpectException() throws Exception {
+		CountingCache cache = new CountingCache(null);
+		try {
+			cache.get(new File("Test1.java"));
+			fail("Exception was not thrown.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * This class pretends to read and parse files, so that the cache can count
+	 * them without real files.
+	 */
+	private static class CountingCache extends CompilationUnitCache {
+
+		/**
+		 * The exception to throw when reading, or null to not throw one.
+		 */
+		private Exception failure;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param failure
+		 *            The exception to throw when reading, or null to not throw
+		 *            one.
+		 */
+		public CountingCache(Exception failure) {
+			this(failure, DEFAULT_MAX_RETAINED);
+		}
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param failure
+		 *            The exception to throw when reading, or null to not throw
+		 *            one.
+		 * @param maxRetained
+		 *            The maximum number of compilation units that are kept
+		 *            between uses. This value must be &gt;= 0.
+		 */
+		public CountingCache(Exception failure, int maxRetained) {
+			super(maxRetained);
+			this.failure = failure;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected String read(File file) throws Exception {
+			// make overlapping requests likely
+			Thread.sleep(20);
+
+			if (failure != null) {
+				throw failure;
+			}
+
+			return "";
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected CompilationUnit parse(String content, File file) throws Exception {
+			return null;
+		}
+	}
+}
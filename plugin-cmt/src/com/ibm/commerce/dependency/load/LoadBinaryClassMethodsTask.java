@@ -0,0 +1,210 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.dependency.load.ClassFile.MethodInfo;
+import com.ibm.commerce.dependency.model.JavaItem;
+import com.ibm.commerce.dependency.task.Task;
+
+/**
+ * This class adds the methods and constructors of a binary class to its class
+ * item, using the contents of the .class file instead of loading the class.
+ * The superclass and superinterfaces of the class are also added, and the
+ * types thrown by each method. Only public and protected methods and public
+ * constructors are added.
+ * 
+ * @author Trent Hoeppner
+ */
+public class LoadBinaryClassMethodsTask extends Task<LoadingContext> {
+
+	/**
+	 * The required inputs for this task.
+	 */
+	private static final Set<String> INPUTS = new HashSet<>(Arrays.asList(Name.CLASS_JAVAITEM, Name.CLASS_FILE));
+
+	/**
+	 * The expected outputs for this task.
+	 */
+	private static final Set<String> OUTPUTS = new HashSet<>(Arrays.asList(Name.METHODS_LOADED));
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param name
+	 *            The name of this task. This value cannot be null or empty.
+	 * @param context
+	 *            The context used for input and output during execution. This
+	 *            value cannot be null.
+	 */
+	public LoadBinaryClassMethodsTask(String name, LoadingContext context) {
+		super(name, context);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getInputConstraints() {
+		return INPUTS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getOutputConstraints() {
+		return OUTPUTS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(LoadingContext context) throws Exception {
+		JavaItem classItem = context.get(Name.CLASS_JAVAITEM);
+		ClassFile classFile = context.get(Name.CLASS_FILE);
+
+		addSuperTypes(classItem, classFile);
+
+		for (MethodInfo method : classFile.getMethods()) {
+			int modifiers = method.getAccessFlags();
+			if (method.isConstructor()) {
+				if ((modifiers & Modifier.PUBLIC) > 0) {
+					addMethod(classItem, classItem.getName(), method);
+				}
+			} else if ((modifiers & Modifier.PUBLIC) > 0 || (modifiers & Modifier.PROTECTED) > 0) {
+				addMethod(classItem, method.getName(), method);
+			}
+		}
+
+		context.put(Name.METHODS_LOADED, true);
+	}
+
+	/**
+	 * Sets the superclass and superinterfaces of the given class item. Types
+	 * that cannot be found are ignored.
+	 * 
+	 * @param classItem
+	 *            The class item to set the types for. This value cannot be
+	 *            null.
+	 * @param classFile
+	 *            The contents of the .class file for the class item. This
+	 *            value cannot be null.
+	 */
+	private void addSuperTypes(JavaItem classItem, ClassFile classFile) {
+		Integer superClassID = null;
+		if (classFile.getSuperclassName() != null) {
+			JavaItem superClass = findClass(classItem, classFile.getCanonicalName(classFile.getSuperclassName()));
+			if (superClass != null) {
+				superClassID = superClass.getID();
+			}
+		}
+		classItem.setAttribute(JavaItem.ATTR_SUPERCLASS, superClassID);
+
+		Set<Integer> superInterfaceIDs = classItem.getAttribute(JavaItem.ATTR_SUPERINTERFACES);
+		if (superInterfaceIDs == null) {
+			superInterfaceIDs = new LinkedHashSet<>();
+			classItem.setAttribute(JavaItem.ATTR_SUPERINTERFACES, superInterfaceIDs);
+		}
+		for (String interfaceName : classFile.getInterfaceNames()) {
+			JavaItem interfaceType = findClass(classItem, classFile.getCanonicalName(interfaceName));
+			if (interfaceType != null) {
+				superInterfaceIDs.add(interfaceType.getID());
+			}
+		}
+	}
+
+	/**
+	 * Adds a method in the given class with the given name and types.
+	 * 
+	 * @param javaClass
+	 *            The class item which will contain the method. This value
+	 *            cannot be null.
+	 * @param name
+	 *            The name of the method. This value cannot be null or empty.
+	 * @param method
+	 *            The method from the .class file, which has the types of the
+	 *            parameters, return value and thrown exceptions. This value
+	 *            cannot be null.
+	 */
+	private void addMethod(JavaItem javaClass, String name, MethodInfo method) {
+		List<Integer> parameterIDs = new ArrayList<>();
+		for (String parameterTypeName : method.getParameterTypeNames()) {
+			JavaItem parameterTypeItem = findClass(javaClass, parameterTypeName);
+			if (parameterTypeItem == null) {
+				parameterTypeItem = getContext().getUtil().getWildcardType();
+			}
+			Check.notNull(parameterTypeItem, "paramTypeItem");
+			parameterIDs.add(parameterTypeItem.getID());
+		}
+
+		Integer returnTypeID = null;
+		if (method.getReturnTypeName() != null) {
+			JavaItem returnTypeItem = findClass(javaClass, method.getReturnTypeName());
+			if (returnTypeItem == null) {
+				returnTypeItem = getContext().getUtil().getWildcardType();
+			}
+			returnTypeID = returnTypeItem.getID();
+		}
+
+		List<Integer> exceptionTypeIDs = new ArrayList<>();
+		for (String exceptionTypeName : method.getExceptionTypeNames()) {
+			JavaItem exceptionType = findClass(javaClass, exceptionTypeName);
+			if (exceptionType != null) {
+				exceptionTypeIDs.add(exceptionType.getID());
+			}
+		}
+
+		JavaItem javaMethod = getContext().getFactory().createMethod(javaClass, name, parameterIDs);
+		javaMethod.setAttribute(JavaItem.ATTR_RETURN_TYPE, returnTypeID);
+		javaMethod.setAttribute(JavaItem.ATTR_METHOD_THROWS_TYPES, exceptionTypeIDs);
+		javaClass.getChildrenIDs().add(javaMethod.getID());
+	}
+
+	/**
+	 * Finds a class item for the given canonical class name.
+	 * 
+	 * @param javaClass
+	 *            The class which refers to the name. This value cannot be
+	 *            null.
+	 * @param canonicalName
+	 *            The canonical name of the class to find. This value may be
+	 *            null.
+	 * 
+	 * @return The matching class item. This value will be null if the name is
+	 *         null or a class item could not be found.
+	 */
+	private JavaItem findClass(JavaItem javaClass, String canonicalName) {
+		if (canonicalName == null) {
+			return null;
+		}
+
+		return getContext().getUtil().findClassForName(canonicalName, javaClass);
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.ibm.commerce.dependency.load;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import com.ibm.commerce.dependency.task.ChainTask;
+import com.ibm.commerce.dependency.task.Task;
+
+/**
+ * This class gets the compilation unit of a Java source file from the
+ * {@link CompilationUnitCache} of the context, so that the file is parsed only
+ * once no matter how many task chains need it. The chain must have a
+ * {@link ReleaseJavaCompilationUnitTask} for the same file as a
+ * {@link ChainTask#addFinallyTask(Task) finally task}, so that the file is
+ * released even if the chain fails.
+ * 
+ * @author Trent Hoeppner
+ */
+public class LoadCachedJavaCompilationUnitTask extends Task<LoadingContext> {
+
+	/**
+	 * The required inputs for this task.
+	 */
+	private static final Set<String> INPUTS = new HashSet<>(Arrays.asList(Name.FILE));
+
+	/**
+	 * The expected outputs for this task.
+	 */
+	private static final Set<String> OUTPUTS = new HashSet<>(Arrays.asList(Name.JAVA_COMPILATION_UNIT));
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param name
+	 *            The name of this task. This value cannot be null or empty.
+	 * @param context
+	 *            The context used for input and output during execution. This
+	 *            value cannot be null.
+	 */
+	public LoadCachedJavaCompilationUnitTask(String name, LoadingContext context) {
+		super(name, context);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getInputConstraints() {
+		return INPUTS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getOutputConstraints() {
+		return OUTPUTS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(LoadingContext context) throws Exception {
+		File file = context.get(Name.FILE);
+
+		CompilationUnit compUnit = context.getCompilationUnitCache().get(file);
+
+		context.put(Name.JAVA_COMPILATION_UNIT, compUnit);
+	}
+
+}
@@ -51,6 +51,12 @@ public class LoadEclipseProjectPackagesAndClassesTask extends Task<LoadingContex
 	private static final Set<String> OUTPUTS = new HashSet<>(
 			Arrays.asList(Name.ECLIPSE_PACKAGE_CLASS_LOADER_TASKS_ADDED));
 
+	/**
+	 * The number of task chains created for each Java file, which all share
+	 * the parsed compilation unit of the file.
+	 */
+	private static final int CHAINS_PER_FILE = 5;
+
 	/**
 	 * Constructor for this.
 	 * 
@@ -134,15 +140,20 @@ public boolean accept(File pathname) {
 					}
 				}
 
+				// each of the chains below parses the same file, so they share
+				// it through the cache and the last one to finish releases it
+				context.getCompilationUnitCache().addUsers(javaFile, CHAINS_PER_FILE);
+
 				// create the classes
 				LoadingContext loadClassContext = context.forNewTaskGroup();
 				loadClassContext.put(Name.PACKAGE_ITEM, packageItem);
 				loadClassContext.put(Name.FILE, javaFile);
 				ChainTask<LoadingContext> loadClassesChain = new ChainTask<>("LoadClasses", loadClassContext);
-				loadClassesChain.addTask(new FileToInputStreamTask("FileToInputStream", loadClassContext));
-				loadClassesChain.addTask(new LoadFromInputStreamTask("LoadFromInputStream", loadClassContext));
-				loadClassesChain.addTask(new LoadJavaCompilationUnitTask("LoadJavaCompilationUnit", loadClassContext));
+				loadClassesChain.addTask(
+						new LoadCachedJavaCompilationUnitTask("LoadCachedJavaCompilationUnit", loadClassContext));
 				loadClassesChain.addTask(new LoadJavaSourceClassesTask("LoadJavaSourceClasses", loadClassContext));
+				loadClassesChain.addFinallyTask(
+						new ReleaseJavaCompilationUnitTask("ReleaseJavaCompilationUnit", loadClassContext));
 				loadClassContext.addTask(loadClassesChain, Priority.LOADING_CLASSES);
 
 				// create the class dependencies
@@ -151,14 +162,12 @@ public boolean accept(File pathname) {
 				loadClassDependenciesContext.put(Name.FILE, javaFile);
 				ChainTask<LoadingContext> loadClassDependenciesChain = new ChainTask<>("LoadClassDependencies",
 						loadClassDependenciesContext);
-				loadClassDependenciesChain
-						.addTask(new FileToInputStreamTask("FileToInputStream", loadClassDependenciesContext));
-				loadClassDependenciesChain
-						.addTask(new LoadFromInputStreamTask("LoadFromInputStream", loadClassDependenciesContext));
-				loadClassDependenciesChain.addTask(
-						new LoadJavaCompilationUnitTask("LoadJavaCompilationUnit", loadClassDependenciesContext));
+				loadClassDependenciesChain.addTask(new LoadCachedJavaCompilationUnitTask(
+						"LoadCachedJavaCompilationUnit", loadClassDependenciesContext));
 				loadClassDependenciesChain.addTask(new LoadJavaSourceClassDependenciesTask(
 						"LoadJavaSourceClassDependencies", loadClassDependenciesContext));
+				loadClassDependenciesChain.addFinallyTask(
+						new ReleaseJavaCompilationUnitTask("ReleaseJavaCompilationUnit", loadClassDependenciesContext));
 				context.addTask(loadClassDependenciesChain, Priority.LOADING_CLASS_DEPENDENCIES);
 
 				// create the methods
@@ -166,11 +175,11 @@ public boolean accept(File pathname) {
 				loadMethodsContext.put(Name.PACKAGE_ITEM, packageItem);
 				loadMethodsContext.put(Name.FILE, javaFile);
 				ChainTask<LoadingContext> loadMethodsChain = new ChainTask<>("LoadMethods", loadMethodsContext);
-				loadMethodsChain.addTask(new FileToInputStreamTask("FileToInputStream", loadMethodsContext));
-				loadMethodsChain.addTask(new LoadFromInputStreamTask("LoadFromInputStream", loadMethodsContext));
-				loadMethodsChain
-						.addTask(new LoadJavaCompilationUnitTask("LoadJavaCompilationUnit", loadMethodsContext));
+				loadMethodsChain.addTask(
+						new LoadCachedJavaCompilationUnitTask("LoadCachedJavaCompilationUnit", loadMethodsContext));
 				loadMethodsChain.addTask(new LoadJavaSourceMethodsTask("LoadJavaSourceMethods", loadMethodsContext));
+				loadMethodsChain.addFinallyTask(
+						new ReleaseJavaCompilationUnitTask("ReleaseJavaCompilationUnit", loadMethodsContext));
 				context.addTask(loadMethodsChain, Priority.LOADING_METHODS);
 
 				// create the pseudo methods - can only be found by looking at
@@ -181,14 +190,12 @@ public boolean accept(File pathname) {
 				loadPseudoMethodsContext.put(Name.CREATE_DEPENDENT_METHOD_ITEMS, true);
 				ChainTask<LoadingContext> loadPseudoMethodsChain = new ChainTask<>("LoadPseudoMethods",
 						loadPseudoMethodsContext);
-				loadPseudoMethodsChain
-						.addTask(new FileToInputStreamTask("FileToInputStream", loadPseudoMethodsContext));
-				loadPseudoMethodsChain
-						.addTask(new LoadFromInputStreamTask("LoadFromInputStream", loadPseudoMethodsContext));
-				loadPseudoMethodsChain
-						.addTask(new LoadJavaCompilationUnitTask("LoadJavaCompilationUnit", loadPseudoMethodsContext));
+				loadPseudoMethodsChain.addTask(new LoadCachedJavaCompilationUnitTask(
+						"LoadCachedJavaCompilationUnit", loadPseudoMethodsContext));
 				loadPseudoMethodsChain.addTask(new LoadJavaSourceMethodDependenciesTask(
 						"LoadJavaSourceMethodDependencies", loadPseudoMethodsContext));
+				loadPseudoMethodsChain.addFinallyTask(new ReleaseJavaCompilationUnitTask(
+						"ReleaseJavaCompilationUnit", loadPseudoMethodsContext));
 				context.addTask(loadPseudoMethodsChain, Priority.LOADING_PSEUDO_METHODS);
 
 				// create the method dependencies
@@ -198,14 +205,12 @@ public boolean accept(File pathname) {
 				loadMethodDependenciesContext.put(Name.CREATE_DEPENDENT_METHOD_ITEMS, false);
 				ChainTask<LoadingContext> loadMethodDependenciesChain = new ChainTask<>("LoadMethodDependencies",
 						loadMethodDependenciesContext);
-				loadMethodDependenciesChain
-						.addTask(new FileToInputStreamTask("FileToInputStream", loadMethodDependenciesContext));
-				loadMethodDependenciesChain
-						.addTask(new LoadFromInputStreamTask("LoadFromInputStream", loadMethodDependenciesContext));
-				loadMethodDependenciesChain.addTask(
-						new LoadJavaCompilationUnitTask("LoadJavaCompilationUnit", loadMethodDependenciesContext));
+				loadMethodDependenciesChain.addTask(new LoadCachedJavaCompilationUnitTask(
+						"LoadCachedJavaCompilationUnit", loadMethodDependenciesContext));
 				loadMethodDependenciesChain.addTask(new LoadJavaSourceMethodDependenciesTask(
 						"LoadJavaSourceMethodDependencies", loadMethodDependenciesContext));
+				loadMethodDependenciesChain.addFinallyTask(new ReleaseJavaCompilationUnitTask(
+						"ReleaseJavaCompilationUnit", loadMethodDependenciesContext));
 				context.addTask(loadMethodDependenciesChain, Priority.LOADING_METHOD_DEPENDENCIES);
 			}
 		}
@@ -101,7 +101,7 @@ public void execute(LoadingContext context) throws Exception {
 	 * @throws IOException
 	 *             If there was an error reading the stream.
 	 */
-	private String loadContent(InputStream in) throws IOException {
+	static String loadContent(InputStream in) throws IOException {
 		StringBuffer buf = new StringBuffer();
 
 		BufferedReader reader = null;
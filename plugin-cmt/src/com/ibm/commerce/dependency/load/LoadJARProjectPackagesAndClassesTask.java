@@ -18,20 +18,15 @@
  *-----------------------------------------------------------------
  */
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.Parameter;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -41,7 +36,6 @@
 
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
-import com.ibm.commerce.cmt.Check;
 import com.ibm.commerce.dependency.model.JavaItem;
 import com.ibm.commerce.dependency.model.JavaItemType;
 import com.ibm.commerce.dependency.task.ChainTask;
@@ -135,13 +129,8 @@ public void execute(LoadingContext context) throws Exception {
 
 		Boolean binary = (Boolean) project.getAttribute(JavaItem.ATTR_BINARY);
 		if (binary) {
-			LoadingContext addToClassLoaderContext = context.forNewTaskGroup();
-			addToClassLoaderContext.put(Name.FILE, jarFile);
-			AddJARToClassLoaderTask addToClassLoaderTask = new AddJARToClassLoaderTask("AddJARToClassLoader",
-					addToClassLoaderContext);
-			addToClassLoaderContext.addTask(addToClassLoaderTask, Priority.PREPARE_FOR_CLASSLOADING);
-
-			// skip class dependencies for binary files
+			// skip class dependencies for binary files, the superclasses are
+			// loaded with the methods
 
 			// load methods
 			LoadingContext loadMethodsContext = context.forNewTaskGroup();
@@ -287,82 +276,6 @@ private String getClassName(String zipEntryName, boolean binary) {
 		return className;
 	}
 
-	/**
-	 * Adds a method in the given class with the given name and parameters.
-	 * 
-	 * @param javaClass
-	 *            The class item which will contain the method. This value
-	 *            cannot be null.
-	 * @param name
-	 *            The name of the method. This value cannot be null or empty.
-	 * @param methodParameters
-	 *            The parameters of the method, which will be converted to
-	 *            JavaItems. This value cannot be null, but may be empty.
-	 * @param returnType
-	 *            The type of the return value, null if it is void.
-	 * @param modifiers
-	 *            The modifiers from the Eclipse method node. If the modifiers
-	 *            indicate a private or default method, the method will not be
-	 *            created.
-	 */
-	private void addMethod(JavaItem javaClass, String name, Parameter[] methodParameters, Class<?> returnType,
-			int modifiers) {
-		if ((modifiers & Modifier.PUBLIC) > 0 || (modifiers & Modifier.PROTECTED) > 0) {
-			List<Integer> parameterIDs = new ArrayList<>();
-			for (Parameter parameter : methodParameters) {
-				Class<?> parameterType = parameter.getType();
-				JavaItem parameterTypeItem = findClassForParameter(javaClass, parameterType);
-				if (parameterTypeItem == null) {
-					parameterTypeItem = getContext().getUtil().getWildcardType();
-				}
-				Check.notNull(parameterTypeItem, "paramTypeItem");
-				parameterIDs.add(parameterTypeItem.getID());
-			}
-
-			JavaItem returnTypeItem = null;
-			if (returnType != null) {
-				returnTypeItem = findClassForParameter(javaClass, returnType);
-				if (returnTypeItem == null) {
-					returnTypeItem = getContext().getUtil().getWildcardType();
-				}
-			}
-
-			Integer returnTypeID = null;
-			if (returnTypeItem != null) {
-				returnTypeID = returnTypeItem.getID();
-			}
-
-			JavaItem javaMethod = getContext().getFactory().createMethod(javaClass, name, parameterIDs);
-			javaMethod.setAttribute(JavaItem.ATTR_RETURN_TYPE, returnTypeID);
-			javaClass.getChildrenIDs().add(javaMethod.getID());
-		}
-	}
-
-	/**
-	 * Finds a class item for the given Class object.
-	 * 
-	 * @param javaClass
-	 *            The class which has dependencies to search. This value cannot
-	 *            be null.
-	 * @param parameterType
-	 *            The Class object to find the matching class item for. This
-	 *            value cannot be null.
-	 * 
-	 * @return The matching class item. This value will be null if a class item
-	 *         could not be found.
-	 */
-	private JavaItem findClassForParameter(JavaItem javaClass, Class<?> parameterType) {
-		String fullName = parameterType.getCanonicalName();
-
-		JavaItem parameterTypeItem;
-		if (fullName != null) {
-			parameterTypeItem = getContext().getUtil().findClassForName(fullName, javaClass);
-		} else {
-			parameterTypeItem = null;
-		}
-		return parameterTypeItem;
-	}
-
 	/**
 	 * Loads from the given stream and returns its contents as a string. The
 	 * input stream will be closed after this method exits.
@@ -515,7 +428,10 @@ public void addProperties(LoadingContext context) {
 	}
 
 	/**
-	 * This class loads methods from .class ZipEntries in a ZipFile.
+	 * This class loads methods from .class ZipEntries in a ZipFile. Each class
+	 * is read from its bytes with {@link ClassFile}, without loading it, and
+	 * the items for the class are created by a separate task, so that many
+	 * classes are processed at the same time.
 	 */
 	public class LoadBinaryMethods implements ZipEntryRunnable {
 
@@ -539,7 +455,7 @@ public LoadBinaryMethods(JavaItem project) {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public boolean run(ZipFile zipFile, ZipEntry entry) {
+		public boolean run(ZipFile zipFile, ZipEntry entry) throws IOException {
 			String entryName = entry.getName();
 			if (isFileForPackage(entryName, true)) {
 				String packageName = getPackageName(entryName);
@@ -547,37 +463,30 @@ public boolean run(ZipFile zipFile, ZipEntry entry) {
 
 				String className = getClassName(entryName, true);
 				JavaItem classItem = getContext().getIndex().findItem(packageItem, className, JavaItemType.CLASS);
+				if (classItem == null) {
+					return false;
+				}
 
-				String fullClassName = packageName + "." + className;
+				ClassFile classFile;
+				InputStream in = zipFile.getInputStream(entry);
 				try {
-					Class<?> type = getContext().getUtil().classForName(fullClassName);
-					addBinaryMethods(classItem, type);
-					for (Class<?> nested : type.getDeclaredClasses()) {
-						if (!nested.isAnonymousClass()) {
-							String nestedClassName = className + "$" + nested.getSimpleName();
-							JavaItem nestedClassItem = getContext().getIndex().findItem(packageItem, nestedClassName,
-									JavaItemType.CLASS);
-							if (nestedClassItem != null) {
-								addBinaryMethods(nestedClassItem, nested);
-							}
-						}
-					}
-				} catch (ClassNotFoundException e) {
-					System.out.println("Could not classload " + fullClassName + " to get methods");
-				} catch (NoClassDefFoundError e) {
-					// System.out.println("Could not classload methods for " +
-					// fullClassName + " due to missing library");
-				} catch (IncompatibleClassChangeError e) {
-					System.out.println(
-							"Could not classload methods for " + fullClassName + " due to class incompatibilty");
-				} catch (VerifyError e) {
-					System.out.println(
-							"Could not classload methods for " + fullClassName + " due to class verified incorrectly");
-				} catch (IllegalArgumentException e) {
-					// was for an inner class, ignore because we load the inner
-					// classes when we load the main class
+					classFile = ClassFile.read(new BufferedInputStream(in));
+				} catch (IOException e) {
+					System.out.println("Could not read " + entryName + " to get methods: " + e.getMessage());
+					return false;
+				} finally {
+					in.close();
 				}
 
+				if (shouldLoadMethods(classFile)) {
+					// the methods are added to the class items in parallel
+					LoadingContext loadClassMethodsContext = getContext().forNewTaskGroup();
+					loadClassMethodsContext.put(Name.CLASS_JAVAITEM, classItem);
+					loadClassMethodsContext.put(Name.CLASS_FILE, classFile);
+					loadClassMethodsContext.addTask(
+							new LoadBinaryClassMethodsTask("LoadBinaryClassMethods", loadClassMethodsContext),
+							Priority.LOADING_METHODS);
+				}
 			}
 
 			// don't stop
@@ -585,34 +494,23 @@ public boolean run(ZipFile zipFile, ZipEntry entry) {
 		}
 
 		/**
-		 * Adds the methods and constructors from the given class to the given
-		 * class item.
+		 * Returns whether the methods of the given class should be loaded.
+		 * Methods are loaded for top level classes and for the member classes
+		 * of top level classes, but not for local or anonymous classes.
+		 * 
+		 * @param classFile
+		 *            The class to check. This value cannot be null.
 		 * 
-		 * @param classItem
-		 *            The class item to add the methods to. This value cannot be
-		 *            null.
-		 * @param type
-		 *            The class to get the methods from. This value cannot be
-		 *            null.
+		 * @return True if the methods should be loaded, false otherwise.
 		 */
-		private void addBinaryMethods(JavaItem classItem, Class<?> type) {
-			for (Method method : type.getDeclaredMethods()) {
-				String name = method.getName();
-				Parameter[] parameters = method.getParameters();
-				Class<?> returnType = method.getReturnType();
-				if (returnType.equals(Void.TYPE)) {
-					returnType = null;
-				}
-				int modifiers = method.getModifiers();
-				addMethod(classItem, name, parameters, returnType, modifiers);
+		private boolean shouldLoadMethods(ClassFile classFile) {
+			String name = classFile.getName();
+			if (!classFile.isNested(name)) {
+				return true;
 			}
 
-			for (Constructor<?> constructor : type.getConstructors()) {
-				String name = classItem.getName();
-				Parameter[] parameters = constructor.getParameters();
-				int modifiers = constructor.getModifiers();
-				addMethod(classItem, name, parameters, null, modifiers);
-			}
+			String declaringClassName = classFile.getDeclaringClassName(name);
+			return declaringClassName != null && !classFile.isNested(declaringClassName);
 		}
 
 		/**
@@ -87,23 +87,27 @@ public Set<String> getOutputConstraints() {
 	public void execute(LoadingContext context) throws Exception {
 		String content = context.get(Name.TEXT_CONTENT);
 
-		CompilationUnit compUnit = getCompilationUnit(content);
+		CompilationUnit compUnit = parseCompilationUnit(content, String.valueOf(getContext()));
 
 		context.put(Name.JAVA_COMPILATION_UNIT, compUnit);
 	}
 
 	/**
-	 * Loads the compilation unit for the given Java source file.
+	 * Parses the given Java source code into a compilation unit.
 	 * 
-	 * @param sourceFile
-	 *            The source file to load. This value cannot be null, and must
-	 *            exist.
+	 * @param content
+	 *            The contents of the Java source file to parse. This value
+	 *            cannot be null.
+	 * @param description
+	 *            The description of where the content came from, which is
+	 *            logged if the content has compile errors. This value cannot
+	 *            be null.
 	 * 
-	 * @return The compilation unit that represents the contents of the file.
-	 *         This value will not be null.
+	 * @return The compilation unit that represents the contents of the file,
+	 *         or null if the content has compile errors.
 	 */
 	@SuppressWarnings("rawtypes")
-	private CompilationUnit getCompilationUnit(String content) {
+	static CompilationUnit parseCompilationUnit(String content, String description) {
 		ASTParser parser = ASTParser.newParser(AST.JLS8);
 		parser.setSource(content.toCharArray());
 		parser.setKind(ASTParser.K_COMPILATION_UNIT);
@@ -126,7 +130,7 @@ private CompilationUnit getCompilationUnit(String content) {
 			if (broken) {
 				List types = compUnit.types();
 				if (types.isEmpty()) {
-					System.out.println("Compile error: " + reason.getMessage() + ", context is " + getContext());
+					System.out.println("Compile error: " + reason.getMessage() + ", context is " + description);
 				} else {
 					System.out.println("Compile error - " + ((TypeDeclaration) types.get(0)).getName() + ": "
 							+ reason.getMessage());
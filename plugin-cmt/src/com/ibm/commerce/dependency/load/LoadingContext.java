@@ -43,6 +43,11 @@ public class LoadingContext extends TaskContext {
 	 */
 	private JavaItemUtil2 util;
 
+	/**
+	 * The cache that shares parsed source files between task groups.
+	 */
+	private CompilationUnitCache compUnitCache;
+
 	/**
 	 * Constructor for this.
 	 * 
@@ -57,13 +62,36 @@ public class LoadingContext extends TaskContext {
 	 *            index. This value cannot be null.
 	 */
 	public LoadingContext(TaskList taskList, JavaItemFactory factory, JavaItemUtil2 util) {
+		this(taskList, factory, util, new CompilationUnitCache());
+	}
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param taskList
+	 *            The task list that may be accessed to add new tasks. This
+	 *            value cannot be null.
+	 * @param factory
+	 *            The factory used to create new items. This value cannot be
+	 *            null.
+	 * @param util
+	 *            The JavaItem utility methods, configured for the current
+	 *            index. This value cannot be null.
+	 * @param compUnitCache
+	 *            The cache that shares parsed source files between task
+	 *            groups. This value cannot be null.
+	 */
+	public LoadingContext(TaskList taskList, JavaItemFactory factory, JavaItemUtil2 util,
+			CompilationUnitCache compUnitCache) {
 		super(taskList);
 
 		Check.notNull(factory, "factory");
 		Check.notNull(util, "util");
+		Check.notNull(compUnitCache, "compUnitCache");
 
 		this.factory = factory;
 		this.util = util;
+		this.compUnitCache = compUnitCache;
 	}
 
 	/**
@@ -95,6 +123,17 @@ public JavaItemUtil2 getUtil() {
 		return util;
 	}
 
+	/**
+	 * Returns the cache that shares parsed source files between task groups.
+	 * The cache is shared by all contexts created with
+	 * {@link #forNewTaskGroup()}.
+	 * 
+	 * @return The compilation unit cache. This value will not be null.
+	 */
+	public CompilationUnitCache getCompilationUnitCache() {
+		return compUnitCache;
+	}
+
 	/**
 	 * Copies this context but without any of the variables or constraint
 	 * information, and returns it. This can be used by a task to create an
@@ -104,7 +143,7 @@ public JavaItemUtil2 getUtil() {
 	 *         constraint information.
 	 */
 	public LoadingContext forNewTaskGroup() {
-		LoadingContext context = new LoadingContext(getTaskList(), factory, util);
+		LoadingContext context = new LoadingContext(getTaskList(), factory, util, compUnitCache);
 		return context;
 	}
 }
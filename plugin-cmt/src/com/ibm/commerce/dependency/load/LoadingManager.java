@@ -45,6 +45,33 @@
  */
 public class LoadingManager {
 
+	/**
+	 * The maximum number of compilation units that are kept between the chains
+	 * that load a file.
+	 */
+	private int maxRetainedCompilationUnits;
+
+	/**
+	 * Constructor for this which keeps up to
+	 * {@link CompilationUnitCache#DEFAULT_MAX_RETAINED} compilation units
+	 * between the chains that load a file.
+	 */
+	public LoadingManager() {
+		this(CompilationUnitCache.DEFAULT_MAX_RETAINED);
+	}
+
+	/**
+	 * Constructor for this.
+	 * 
+	 * @param maxRetainedCompilationUnits
+	 *            The maximum number of compilation units that are kept between
+	 *            the chains that load a file. Files beyond this are parsed
+	 *            again by each chain. This value must be &gt;= 0.
+	 */
+	public LoadingManager(int maxRetainedCompilationUnits) {
+		this.maxRetainedCompilationUnits = maxRetainedCompilationUnits;
+	}
+
 	/**
 	 * Loads the methods for a class.
 	 * 
@@ -114,7 +141,8 @@ public JavaItemFactory loadProjects(JavaItemFactory factory, File workspaceDir,
 
 		TaskList taskList = new TaskList();
 
-		LoadingContext eclipseLoadingContext = new LoadingContext(taskList, factory, util);
+		LoadingContext eclipseLoadingContext = new LoadingContext(taskList, factory, util,
+				new CompilationUnitCache(maxRetainedCompilationUnits));
 		eclipseLoadingContext.put(Name.WORKSPACE_DIR, workspaceDir);
 		eclipseLoadingContext.put(Name.FILTER, filter);
 		eclipseLoadingContext.put(Name.IS_EXTRACTING_API, isExtractingAPI);
@@ -126,7 +154,8 @@ public JavaItemFactory loadProjects(JavaItemFactory factory, File workspaceDir,
 		taskList.addTask(eclipseChain, Priority.TOP_LEVEL);
 
 		if (isExtractingAPI) {
-			LoadingContext jarLoadingContext = new LoadingContext(taskList, factory, util);
+			LoadingContext jarLoadingContext = new LoadingContext(taskList, factory, util,
+					new CompilationUnitCache(maxRetainedCompilationUnits));
 			Set<File> jarDirectories = new HashSet<>();
 			jarDirectories.add(new File(workspaceDir, "../lib"));
 			jarDirectories.add(new File(workspaceDir, "WC"));
@@ -182,7 +211,8 @@ public void loadFiles(JavaItemFactory factory, File workspaceDir, Set<File> java
 
 		TaskList taskList = new TaskList();
 
-		LoadingContext eclipseLoadingContext = new LoadingContext(taskList, factory, util);
+		LoadingContext eclipseLoadingContext = new LoadingContext(taskList, factory, util,
+				new CompilationUnitCache(maxRetainedCompilationUnits));
 		eclipseLoadingContext.put(Name.WORKSPACE_DIR, workspaceDir);
 		eclipseLoadingContext.put(Name.FILTER, null);
 		eclipseLoadingContext.put(Name.IS_EXTRACTING_API, false);
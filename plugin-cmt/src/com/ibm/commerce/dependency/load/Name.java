@@ -36,6 +36,12 @@ public interface Name {
 	 */
 	String JAVA_COMPILATION_UNIT = "JavaCompilationUnit";
 
+	/**
+	 * Variable to indicate that a task chain no longer needs the shared
+	 * compilation unit of its file, of type Boolean.
+	 */
+	String JAVA_COMPILATION_UNIT_RELEASED = "JavaCompilationUnitReleased";
+
 	/**
 	 * Variable to indicate that the methods of a class have been loaded, of
 	 * type Boolean.
@@ -47,6 +53,12 @@ public interface Name {
 	 */
 	String CLASS_JAVAITEM = "ClassJavaItem";
 
+	/**
+	 * Variable for the contents of a .class file which has been read without
+	 * loading the class, of type ClassFile.
+	 */
+	String CLASS_FILE = "ClassFile";
+
 	/**
 	 * Variable for an Eclipse workspace directory, of type File.
 	 */
@@ -22,9 +22,9 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
-
+import java.util.Objects;
 import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.cmt.IntList;
 
 /**
  * This class represents the original version of some part of a Java program.
@@ -41,9 +41,10 @@ public class BaseJavaItem extends AbstractJavaItem {
 
 	/**
 	 * The children of this JavaItem. This list is never null, but will always
-	 * be empty for method JavaItems.
+	 * be empty for method JavaItems. The IDs are stored as ints, so that large
+	 * packages and classes do not box every child ID.
 	 */
-	private List<Integer> children = new CopyOnWriteArrayList<>();
+	private List<Integer> children = new IntList();
 
 	/**
 	 * The outgoing dependencies of this JavaItem. For a project, this list will
@@ -51,7 +52,7 @@ public class BaseJavaItem extends AbstractJavaItem {
 	 * list will contain other classes that are referenced by this class. For a
 	 * method, this list will contain other methods called by this method.
 	 */
-	private List<Integer> dependencies = new CopyOnWriteArrayList<>();
+	private List<Integer> dependencies = new IntList();
 
 	/**
 	 * The incoming dependencies of this JavaItem. Every object in this list has
@@ -59,7 +60,7 @@ public class BaseJavaItem extends AbstractJavaItem {
 	 * {@link #dependencies} every JavaItem knows what it depends on, and what
 	 * depends on it.
 	 */
-	private List<Integer> incoming = new CopyOnWriteArrayList<>();
+	private List<Integer> incoming = new IntList();
 
 	/**
 	 * The name of this item. This value is never null.
@@ -148,11 +149,16 @@ public void setType(JavaItemType type) {
 			throw new NullPointerException("type cannot be null.");
 		}
 
+		JavaItemType oldType = this.type;
 		this.type = type;
 
 		if (type == JavaItemType.METHOD) {
 			children = Collections.emptyList();
 		}
+
+		if (oldType != type) {
+			getIndex().typeChanged(this, oldType);
+		}
 	}
 
 	/**
@@ -232,7 +238,12 @@ public Integer getParentID() {
 
 	@Override
 	public void setParentID(Integer parent) {
+		Integer oldParent = this.parent;
 		this.parent = parent;
+
+		if (!Objects.equals(oldParent, parent)) {
+			getIndex().parentChanged(this, oldParent);
+		}
 	}
 
 	@Override
@@ -20,17 +20,24 @@
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import com.ibm.commerce.cmt.ChangeListener;
 import com.ibm.commerce.cmt.Check;
+import com.ibm.commerce.cmt.LazyCopyList;
 import com.ibm.commerce.cmt.NotifierList;
 import com.ibm.commerce.cmt.NotifierSet;
 
 /**
- * This class represents changes in an item from a base item.
+ * This class represents changes in an item from a base item. Nothing is copied
+ * from the base item when this is created. The children, dependencies and
+ * incoming lists are copied the first time they are modified, and each
+ * attribute is copied the first time it is set, or the first time it is read
+ * if it is a list or set that the caller might modify.
  * 
  * @see BaseJavaItem
  * @author Trent Hoeppner
@@ -51,22 +58,24 @@ public class DeltaJavaItem extends AbstractJavaItem implements ChangeListener {
 	 * The children of this item, which may have items added or removed from the
 	 * base.
 	 */
-	private List<Integer> children;
+	private LazyCopyList<Integer> children;
 
 	/**
 	 * This dependencies of this item, which may have items added or removed
 	 * from the base.
 	 */
-	private List<Integer> dependencies;
+	private LazyCopyList<Integer> dependencies;
 
 	/**
 	 * The incoming dependencies of this item, which may have items added or
 	 * removed from the base.
 	 */
-	private List<Integer> incoming;
+	private LazyCopyList<Integer> incoming;
 
 	/**
-	 * The attributes of this item, which may be different from the base.
+	 * The attributes of this item which have been set or copied from the base.
+	 * Attributes that are not in this map are read from the base. This value
+	 * will be null until the first attribute is set or copied.
 	 */
 	private Map<String, Object> attributes;
 
@@ -88,13 +97,21 @@ public DeltaJavaItem(JavaItem base, JavaItemIndex index) {
 
 		parent = base.getParentID();
 
-		children = new NotifierList<Integer>(new ArrayList<>(), this);
-		dependencies = new NotifierList<Integer>(new ArrayList<>(), this);
-		incoming = new NotifierList<Integer>(new ArrayList<>(), this);
+		children = new LazyCopyList<Integer>(base.getChildrenIDs(), this);
+		dependencies = new LazyCopyList<Integer>(base.getDependenciesIDs(), this);
+		incoming = new LazyCopyList<Integer>(base.getIncomingIDs(), this);
+	}
 
-		// copy data from base to this
-		OverwriteJavaItemVisitor visitor = new OverwriteJavaItemVisitor(this);
-		base.accept(visitor);
+	/**
+	 * Copies all data that is still read from the base item into this, without
+	 * marking this as changed. After this is called, modifying the base item
+	 * will not affect this.
+	 */
+	public void materialize() {
+		children.ensureCopied();
+		dependencies.ensureCopied();
+		incoming.ensureCopied();
+		copyAllAttributes();
 	}
 
 	/**
@@ -125,7 +142,8 @@ public void setType(JavaItemType type) {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Map<String, Object> getAttributes() {
+	public synchronized Map<String, Object> getAttributes() {
+		copyAllAttributes();
 		return attributes;
 	}
 
@@ -134,13 +152,23 @@ public Map<String, Object> getAttributes() {
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
-	public <T> T getAttribute(String name) {
-		T value = null;
-		if (attributes != null) {
-			value = (T) attributes.get(name);
+	public synchronized <T> T getAttribute(String name) {
+		if (attributes != null && attributes.containsKey(name)) {
+			return (T) attributes.get(name);
 		}
 
-		return value;
+		Object value = base.getAttribute(name);
+		if (value instanceof List || value instanceof Set) {
+			// the caller may modify the collection, so it must be our own copy
+			value = copyAttributeValue(value);
+			if (attributes == null) {
+				attributes = new HashMap<>();
+			}
+
+			attributes.put(name, value);
+		}
+
+		return (T) value;
 	}
 
 	/**
@@ -149,18 +177,67 @@ public <T> T getAttribute(String name) {
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public void setAttribute(String name, Object value) {
+		if (value instanceof List) {
+			value = new NotifierList((List) value, this);
+		} else if (value instanceof Set) {
+			value = new NotifierSet((Set) value, this);
+		}
+
+		synchronized (this) {
+			if (attributes == null) {
+				attributes = new HashMap<>();
+			}
+
+			attributes.put(name, value);
+		}
+
+		// notify outside the lock, as the index takes its own lock
+		changed();
+	}
+
+	/**
+	 * Copies all attributes of the base item that have not been set or copied
+	 * yet into this.
+	 */
+	private synchronized void copyAllAttributes() {
+		Map<String, Object> baseAttributes = base.getAttributes();
+		if (baseAttributes == null) {
+			return;
+		}
+
 		if (attributes == null) {
 			attributes = new HashMap<>();
 		}
 
+		for (Map.Entry<String, Object> entry : baseAttributes.entrySet()) {
+			if (!attributes.containsKey(entry.getKey())) {
+				attributes.put(entry.getKey(), copyAttributeValue(entry.getValue()));
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of the given attribute value that notifies this when it
+	 * is modified, if the value is a list or set.
+	 * 
+	 * @param value
+	 *            The value to copy. This value may be null.
+	 * 
+	 * @return The copied list or set, or the given value if it is not a list or
+	 *         set.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object copyAttributeValue(Object value) {
+		Object copy;
 		if (value instanceof List) {
-			value = new NotifierList((List) value, this);
+			copy = new NotifierList(new ArrayList((List) value), this);
 		} else if (value instanceof Set) {
-			value = new NotifierSet((Set) value, this);
+			copy = new NotifierSet(new LinkedHashSet((Set) value), this);
+		} else {
+			copy = value;
 		}
 
-		attributes.put(name, value);
-		changed();
+		return copy;
 	}
 
 	/**
@@ -208,7 +285,12 @@ public Integer getParentID() {
 	 */
 	@Override
 	public void setParentID(Integer parent) {
+		Integer oldParent = this.parent;
 		this.parent = parent;
+
+		if (!Objects.equals(oldParent, parent)) {
+			getIndex().parentChanged(this, oldParent);
+		}
 	}
 
 	/**
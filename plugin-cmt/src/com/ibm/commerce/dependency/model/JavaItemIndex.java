@@ -18,24 +18,25 @@
  *-----------------------------------------------------------------
  */
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.ibm.commerce.cmt.ChangeType;
 import com.ibm.commerce.cmt.Check;
 import com.ibm.commerce.cmt.DeltaList;
+import com.ibm.commerce.cmt.IntList;
 import com.ibm.commerce.cmt.plan.IDGenerator;
-import com.ibm.commerce.dependency.load.Priority;
-import com.ibm.commerce.dependency.task.Task;
-import com.ibm.commerce.dependency.task.TaskContext;
-import com.ibm.commerce.dependency.task.TaskList;
 
 /**
  * This class represents all the objects in an environment for a single version
@@ -58,20 +59,22 @@ public class JavaItemIndex {
 	private static final int NUM_CHARACTERS_FOR_ALPHA_INDEX = 18;
 
 	/**
-	 * Variable for the input JavaItems to copy into DeltaJavaItems.
+	 * The types of items that can be the parent of other items, which are
+	 * indexed by their qualified name.
 	 */
-	private static final String INPUT_ITEMS = "InputItems";
+	private static final Set<JavaItemType> QUALIFIED_TYPES = EnumSet.of(JavaItemType.PROJECT, JavaItemType.PACKAGE,
+			JavaItemType.CLASS);
 
 	/**
-	 * Variable for the JavaItemIndex that will contain the new DeltaJavaItems.
+	 * The character that separates the names of an item and its ancestors in a
+	 * qualified name. Project, package and class names cannot contain it.
 	 */
-	private static final String NEW_JAVA_ITEM_INDEX = "NewIndex";
+	private static final char QUALIFIED_NAME_SEPARATOR = '/';
 
 	/**
-	 * Variable for the output DeltaJavaItems which are based on other
-	 * JavaItems.
+	 * The parent ID used in a {@link LookupKey} for items without a parent.
 	 */
-	private static final String OUTPUT_ITEMS = "OutputItems";
+	private static final int NO_PARENT = -1;
 
 	/**
 	 * The version of a product that this index represents.
@@ -84,6 +87,14 @@ public class JavaItemIndex {
 	 */
 	private JavaItemIndex base;
 
+	/**
+	 * The number of items (including nulls) in the base index when this was
+	 * created. Items with an ID below this number come from the base, and
+	 * items with a higher ID were added to this. This value is 0 if there is
+	 * no base.
+	 */
+	private int baseItemCount;
+
 	/**
 	 * The items in this.
 	 */
@@ -99,6 +110,12 @@ public class JavaItemIndex {
 	 */
 	private Map<JavaItemType, AlphaIndex> typeToAlphaIndexMap;
 
+	/**
+	 * The index to find items by their type, parent and name, or null if it
+	 * has not been built yet.
+	 */
+	private LookupIndex lookupIndex;
+
 	/**
 	 * The generator which is used to create IDs for new items.
 	 */
@@ -111,7 +128,7 @@ public class JavaItemIndex {
 
 	/**
 	 * True if the items in this index are not in a stable state (still being
-	 * copied in the constructor).
+	 * overwritten by {@link #mergeToBase()} from a later index).
 	 */
 	private boolean inFlux;
 
@@ -147,83 +164,15 @@ public JavaItemIndex(String version, JavaItemIndex base) {
 		this.version = version;
 		this.base = base;
 
-		setInFlux(true);
-
-		List<JavaItem> deltaList = new ArrayList<>(base.getItems().size());
-
-		List<TaskContext> contexts = new ArrayList<TaskContext>();
-
-		// map
-		TaskList taskList = new TaskList();
-		Map<Integer, JavaItem> indexToInputMap = new HashMap<>();
-		int i = 0;
-		for (JavaItem item : base.getItems()) {
-			if (item != null) {
-				if (indexToInputMap.size() >= 1000) {
-					indexToInputMap = addTask(taskList, indexToInputMap, contexts);
-				}
-
-				indexToInputMap.put(i, item);
-			}
-
-			deltaList.add(null);
-			i++;
-		}
-
-		// add the remaining tasks
-		addTask(taskList, indexToInputMap, contexts);
-
-		// wait for finish
-		taskList.start();
-		taskList.waitForCompletion();
-
-		// reduce
-		for (TaskContext context : contexts) {
-			Map<Integer, JavaItem> outputItems = context.get(OUTPUT_ITEMS);
-			for (Map.Entry<Integer, JavaItem> entry : outputItems.entrySet()) {
-				Integer index = entry.getKey();
-				JavaItem deltaItem = entry.getValue();
-				deltaList.set(index, deltaItem);
-			}
-		}
-
-		items = new DeltaList<JavaItem>(deltaList);
+		// the delta items are created on first access, so this does not
+		// depend on the size of the base
+		baseItemCount = base.getItemCount();
+		items = new DeltaList<JavaItem>(new LazyDeltaItemList());
 		nonNullSize = base.size();
 
-		setInFlux(false);
-	}
-
-	/**
-	 * Adds a new task to the given task list which will create delta copies of
-	 * the items in the given map.
-	 * 
-	 * @param taskList
-	 *            The list to add the task to. This value cannot be null.
-	 * @param indexToInputMap
-	 *            A mapping from the index of the item in the JavaItemIndex to
-	 *            the item that is to be copied. This value cannot be null, but
-	 *            may be empty.
-	 * @param contexts
-	 *            The list of context objects for tasks that were previously
-	 *            created, to which the new task's context should be added. This
-	 *            value cannot be null, but may be empty.
-	 * 
-	 * @return A new, empty map which can be used in creating the next task for
-	 *         other items to be copied.
-	 */
-	private Map<Integer, JavaItem> addTask(TaskList taskList, Map<Integer, JavaItem> indexToInputMap,
-			List<TaskContext> contexts) {
-		TaskContext context = new TaskContext(taskList);
-		context.put(INPUT_ITEMS, indexToInputMap);
-		context.put(NEW_JAVA_ITEM_INDEX, this);
-
-		CreateDeltaJavaItemTask task = new CreateDeltaJavaItemTask("CreateDeltaJavaItem", context);
-
-		taskList.addTask(task, Priority.TOP_LEVEL);
-		contexts.add(context);
-
-		indexToInputMap = new HashMap<>();
-		return indexToInputMap;
+		// there are no items of its own yet, and the base items that are
+		// moved must be tracked from the start
+		lookupIndex = new LookupIndex();
 	}
 
 	/**
@@ -283,6 +232,21 @@ public List<JavaItem> getItems() {
 		}
 	}
 
+	/**
+	 * Returns the number of items in this, including null items that were
+	 * removed.
+	 * 
+	 * @return The number of items in this. This value will be &gt;= 0.
+	 */
+	private int getItemCount() {
+		itemsLock.readLock().lock();
+		try {
+			return items.size();
+		} finally {
+			itemsLock.readLock().unlock();
+		}
+	}
+
 	/**
 	 * Returns the number of non-null items in this. If any items were removed
 	 * in this index, this number will be smaller than
@@ -315,8 +279,10 @@ public void addItem(JavaItem item) {
 				items.add(item);
 				nonNullSize++;
 			} else {
+				// delta items are found through the base index
 				int id = item.getID();
 				items.set(id, item);
+				return;
 			}
 
 			if (typeToAlphaIndexMap != null) {
@@ -325,6 +291,10 @@ public void addItem(JavaItem item) {
 					index.add(item);
 				}
 			}
+
+			if (lookupIndex != null) {
+				lookupIndex.add(item);
+			}
 		} finally {
 			itemsLock.writeLock().unlock();
 		}
@@ -354,6 +324,10 @@ public void addItemPreserveID(JavaItem item) {
 					index.add(item);
 				}
 			}
+
+			if (lookupIndex != null) {
+				lookupIndex.add(item);
+			}
 		} finally {
 			itemsLock.writeLock().unlock();
 		}
@@ -441,22 +415,30 @@ public JavaItem getItem(int id) {
 	 *         not be found.
 	 */
 	public JavaItem findClass(String packageName, String className) {
-		AlphaIndex index = ensureIndexExists(JavaItemType.CLASS);
-		itemsLock.readLock().lock();
-		try {
-			JavaItem found = null;
-			List<JavaItem> matchingClasses = index.findAllWithSameName(className);
-			for (JavaItem classItem : matchingClasses) {
-				if (classItem.getParent() != null && classItem.getParent().getName().equals(packageName)) {
-					found = classItem;
-					break;
-				}
+		JavaItem found = null;
+		List<JavaItem> matchingClasses = findAllWithSameName(JavaItemType.CLASS, className);
+		for (JavaItem classItem : matchingClasses) {
+			if (classItem.getParent() != null && classItem.getParent().getName().equals(packageName)) {
+				found = classItem;
+				break;
 			}
-
-			return found;
-		} finally {
-			itemsLock.readLock().unlock();
 		}
+
+		return found;
+	}
+
+	/**
+	 * Finds all class items with the given name across all packages.
+	 * 
+	 * @param className
+	 *            The name of the classes to find, without the package. This
+	 *            value cannot be null.
+	 * 
+	 * @return The class items with the given name. This value will not be
+	 *         null, but may be empty.
+	 */
+	public List<JavaItem> findClasses(String className) {
+		return findAllWithSameName(JavaItemType.CLASS, className);
 	}
 
 	/**
@@ -469,15 +451,9 @@ public JavaItem findClass(String packageName, String className) {
 	 *         value will not be null, but may be empty.
 	 */
 	public List<JavaItem> findPackages(String packageName) {
-		AlphaIndex index = ensureIndexExists(JavaItemType.PACKAGE);
-		itemsLock.readLock().lock();
-		try {
-			List<JavaItem> packagesForName = index.findAllWithSameName(packageName);
+		List<JavaItem> packagesForName = findAllWithSameName(JavaItemType.PACKAGE, packageName);
 
-			return packagesForName;
-		} finally {
-			itemsLock.readLock().unlock();
-		}
+		return packagesForName;
 	}
 
 	/**
@@ -490,13 +466,23 @@ public void removeItem(JavaItem item) {
 		itemsLock.writeLock().lock();
 		try {
 			int itemID = item.getID();
+			if (typeToAlphaIndexMap != null && itemID >= baseItemCount) {
+				// items from the base are found through the base index, and
+				// are skipped there once they are null in this
+				AlphaIndex index = typeToAlphaIndexMap.get(item.getType());
+				if (index != null) {
+					index.remove(item);
+				}
+			}
+
+			if (lookupIndex != null) {
+				lookupIndex.remove(item, item.getType(), item.getParentID());
+			}
+
 			items.set(itemID, null);
 			nonNullSize--;
 
 			removeFromDependencies(item);
-			if (typeToAlphaIndexMap != null) {
-				typeToAlphaIndexMap.put(item.getType(), null);
-			}
 		} finally {
 			itemsLock.writeLock().unlock();
 		}
@@ -681,6 +667,9 @@ public void consolidateIDs() {
 				int id = idGen.nextID();
 				item.setID(id);
 			}
+
+			// the lookup index is keyed by the old IDs
+			lookupIndex = null;
 		} finally {
 			itemsLock.writeLock().unlock();
 		}
@@ -705,30 +694,21 @@ public void consolidateIDs() {
 	public JavaItem findMethod(JavaItem parentItem, String name, List<Integer> parameterTypeIDs) {
 		Check.notNull(parameterTypeIDs, "parameterTypeIDs");
 		long startTime = System.currentTimeMillis();
-		AlphaIndex index = ensureIndexExists(JavaItemType.METHOD);
-		itemsLock.readLock().lock();
 		try {
-			List<JavaItem> matchingItems = index.findAllWithSameName(name);
-			JavaItem found = null;
-			for (JavaItem item : matchingItems) {
-				if (item.getName().equals(name) && item.getType() == JavaItemType.METHOD) {
-					List<Integer> existingParameterTypeIDs = item.getAttribute(JavaItem.ATTR_METHOD_PARAM_TYPES);
-					if (existingParameterTypeIDs == null) {
-						existingParameterTypeIDs = Collections.emptyList();
-					}
+			if (!canLookUp(parentItem)) {
+				return findMethodByNames(parentItem, name, parameterTypeIDs);
+			}
 
-					if (existingParameterTypeIDs.equals(parameterTypeIDs)) {
-						if (isNamesMatch(parentItem, item.getParent())) {
-							found = item;
-							break;
-						}
-					}
+			JavaItem found = null;
+			for (JavaItem item : lookUp(parentItem, name, JavaItemType.METHOD)) {
+				if (isParametersMatch(item, parameterTypeIDs)) {
+					found = item;
+					break;
 				}
 			}
 
 			return found;
 		} finally {
-			itemsLock.readLock().unlock();
 			long endTime = System.currentTimeMillis();
 			long diff = endTime - startTime;
 			if (diff > 100) {
@@ -737,6 +717,62 @@ public JavaItem findMethod(JavaItem parentItem, String name, List<Integer> param
 		}
 	}
 
+	/**
+	 * Finds the method with the given parent (matched by name, including all
+	 * ancestors), name, and parameter list, by comparing the names of the
+	 * ancestors of every method with the given name. This is used when the
+	 * parent cannot be looked up by its qualified name.
+	 * 
+	 * @param parentItem
+	 *            The parent item that contains the names of parents of the
+	 *            target item. If null, the target object will not have a
+	 *            parent.
+	 * @param name
+	 *            The name of the method to find. This value cannot be null.
+	 * @param parameterTypeIDs
+	 *            The IDs of the parameters for the method. This value cannot be
+	 *            null, but may be empty.
+	 * 
+	 * @return The item that was found, or null if there is no such item.
+	 */
+	JavaItem findMethodByNames(JavaItem parentItem, String name, List<Integer> parameterTypeIDs) {
+		List<JavaItem> matchingItems = findAllWithSameName(JavaItemType.METHOD, name);
+		JavaItem found = null;
+		for (JavaItem item : matchingItems) {
+			if (item.getName().equals(name) && item.getType() == JavaItemType.METHOD) {
+				if (isParametersMatch(item, parameterTypeIDs)) {
+					if (isNamesMatch(parentItem, item.getParent())) {
+						found = item;
+						break;
+					}
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Returns whether the given method has the given parameter types.
+	 * 
+	 * @param method
+	 *            The method to check. This value cannot be null.
+	 * @param parameterTypeIDs
+	 *            The IDs of the parameters to compare with. This value cannot
+	 *            be null.
+	 * 
+	 * @return True if the method has the same parameter types, false
+	 *         otherwise.
+	 */
+	private boolean isParametersMatch(JavaItem method, List<Integer> parameterTypeIDs) {
+		List<Integer> existingParameterTypeIDs = method.getAttribute(JavaItem.ATTR_METHOD_PARAM_TYPES);
+		if (existingParameterTypeIDs == null) {
+			existingParameterTypeIDs = Collections.emptyList();
+		}
+
+		return existingParameterTypeIDs.equals(parameterTypeIDs);
+	}
+
 	/**
 	 * Finds the item with the given parent (matched by name, including all
 	 * ancestors), name, and type.
@@ -760,23 +796,14 @@ public JavaItem findMethod(JavaItem parentItem, String name, List<Integer> param
 	 */
 	public JavaItem findItem(JavaItem parentItem, String name, JavaItemType type) {
 		long startTime = System.currentTimeMillis();
-		AlphaIndex index = ensureIndexExists(type);
-		itemsLock.readLock().lock();
 		try {
-			List<JavaItem> matchingItems = index.findAllWithSameName(name);
-			JavaItem found = null;
-			for (JavaItem item : matchingItems) {
-				if (item.getName().equals(name) && item.getType() == type) {
-					if (isNamesMatch(parentItem, item.getParent())) {
-						found = item;
-						break;
-					}
-				}
+			if (!canLookUp(parentItem)) {
+				return findItemByNames(parentItem, name, type);
 			}
 
-			return found;
+			List<JavaItem> matchingItems = lookUp(parentItem, name, type);
+			return matchingItems.isEmpty() ? null : matchingItems.get(0);
 		} finally {
-			itemsLock.readLock().unlock();
 			long endTime = System.currentTimeMillis();
 			long diff = endTime - startTime;
 			if (diff > 100) {
@@ -785,6 +812,270 @@ public JavaItem findItem(JavaItem parentItem, String name, JavaItemType type) {
 		}
 	}
 
+	/**
+	 * Finds the item with the given parent (matched by name, including all
+	 * ancestors), name, and type, by comparing the names of the ancestors of
+	 * every item with the given name. This is used when the parent cannot be
+	 * looked up by its qualified name.
+	 * 
+	 * @param parentItem
+	 *            The parent item that contains the names of parents of the
+	 *            target item. If null, the target object will not have a
+	 *            parent.
+	 * @param name
+	 *            The name of the object to find. This value cannot be null.
+	 * @param type
+	 *            The type of the object to find. This value cannot be null.
+	 * 
+	 * @return The item that was found, or null if there is no such item.
+	 */
+	JavaItem findItemByNames(JavaItem parentItem, String name, JavaItemType type) {
+		List<JavaItem> matchingItems = findAllWithSameName(type, name);
+		JavaItem found = null;
+		for (JavaItem item : matchingItems) {
+			if (item.getName().equals(name) && item.getType() == type) {
+				if (isNamesMatch(parentItem, item.getParent())) {
+					found = item;
+					break;
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Returns whether items with the given parent can be found with the lookup
+	 * index. Only projects, packages and classes are indexed by their
+	 * qualified names, so the children of other items must be found by
+	 * comparing names.
+	 * 
+	 * @param parentItem
+	 *            The parent of the items to find. This value may be null.
+	 * 
+	 * @return True if the lookup index can be used, false otherwise.
+	 */
+	private boolean canLookUp(JavaItem parentItem) {
+		return parentItem == null || QUALIFIED_TYPES.contains(parentItem.getType());
+	}
+
+	/**
+	 * Finds all items with the given type and name whose parent has the same
+	 * qualified name as the given parent, in the order they were added.
+	 * 
+	 * @param parentItem
+	 *            The parent item that contains the names of parents of the
+	 *            target items. If null, the target items will not have a
+	 *            parent. Otherwise, it must be a project, package or class.
+	 * @param name
+	 *            The name of the items to find. This value cannot be null.
+	 * @param type
+	 *            The type of the items to find. This value cannot be null.
+	 * 
+	 * @return The matching items, ordered by ID. This value will not be null,
+	 *         but may be empty.
+	 */
+	private List<JavaItem> lookUp(JavaItem parentItem, String name, JavaItemType type) {
+		IntList parentIDs;
+		if (parentItem == null) {
+			parentIDs = new IntList();
+			parentIDs.addInt(NO_PARENT);
+		} else {
+			parentIDs = findIDsByQualifiedName(getQualifiedName(parentItem));
+		}
+
+		IntList ids = new IntList();
+		for (int i = 0; i < parentIDs.size(); i++) {
+			ids.addAll(findIDsByKey(new LookupKey(type, parentIDs.getInt(i), name)));
+		}
+
+		int[] sortedIDs = ids.toIntArray();
+		Arrays.sort(sortedIDs);
+
+		List<JavaItem> found = new ArrayList<>();
+		for (int id : sortedIDs) {
+			JavaItem item = getItem(id);
+			if (item != null && item.getName().equals(name) && item.getType() == type
+					&& isNamesMatch(parentItem, item.getParent())) {
+				found.add(item);
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Finds the IDs of all items in this with the given type, parent ID and
+	 * name. If this has a base, the matching items from the base that have
+	 * not been changed or removed in this are included.
+	 * 
+	 * @param key
+	 *            The type, parent ID and name to find. This value cannot be
+	 *            null.
+	 * 
+	 * @return The IDs of the matching items, in no particular order. This value
+	 *         will not be null, but may be empty.
+	 */
+	private IntList findIDsByKey(LookupKey key) {
+		IntList baseIDs = base != null ? base.findIDsByKey(key) : null;
+
+		LookupIndex index = ensureLookupIndexExists();
+		itemsLock.readLock().lock();
+		try {
+			return index.filter(baseIDs, index.keyToIDsMap.get(key));
+		} finally {
+			itemsLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the IDs of all projects, packages and classes in this with the
+	 * given qualified name. If this has a base, the matching items from the
+	 * base that have not been changed or removed in this are included.
+	 * 
+	 * @param qualifiedName
+	 *            The qualified name of the items to find, as returned by
+	 *            {@link #getQualifiedName(JavaItem)}. This value cannot be
+	 *            null.
+	 * 
+	 * @return The IDs of the matching items, in no particular order. This value
+	 *         will not be null, but may be empty.
+	 */
+	private IntList findIDsByQualifiedName(String qualifiedName) {
+		IntList baseIDs = base != null ? base.findIDsByQualifiedName(qualifiedName) : null;
+
+		LookupIndex index = ensureLookupIndexExists();
+		itemsLock.readLock().lock();
+		try {
+			return index.filter(baseIDs, index.qualifiedNameToIDsMap.get(qualifiedName));
+		} finally {
+			itemsLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the qualified name of the given item, which is made of the names
+	 * of the item and all its ancestors. Two items have the same qualified
+	 * name exactly when their names and the names of all their ancestors are
+	 * the same.
+	 * 
+	 * @param item
+	 *            The item to get the qualified name for. This value cannot be
+	 *            null.
+	 * 
+	 * @return The qualified name of the item. This value will not be null.
+	 */
+	private static String getQualifiedName(JavaItem item) {
+		StringBuilder buf = new StringBuilder(item.getName());
+		JavaItem current = item.getParent();
+		while (current != null) {
+			buf.insert(0, QUALIFIED_NAME_SEPARATOR);
+			buf.insert(0, current.getName());
+			current = current.getParent();
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Ensures that the lookup index has been built for the items in this and
+	 * returns it. Once built, it is kept up to date as items are added,
+	 * removed, or moved to another parent.
+	 * 
+	 * @return The lookup index for this. This value will not be null.
+	 */
+	private LookupIndex ensureLookupIndexExists() {
+		itemsLock.readLock().lock();
+		try {
+			if (lookupIndex != null) {
+				return lookupIndex;
+			}
+		} finally {
+			itemsLock.readLock().unlock();
+		}
+
+		itemsLock.writeLock().lock();
+		try {
+			// another thread may have created it while waiting for the lock
+			if (lookupIndex == null) {
+				LookupIndex index = new LookupIndex();
+
+				// items from the base are found through the base index
+				int size = items.size();
+				for (int i = baseItemCount; i < size; i++) {
+					JavaItem item = items.get(i);
+					if (item != null) {
+						index.add(item);
+					}
+				}
+
+				lookupIndex = index;
+			}
+
+			return lookupIndex;
+		} finally {
+			itemsLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Updates the lookup index after the parent of the given item was changed.
+	 * This is called by the item itself.
+	 * 
+	 * @param item
+	 *            The item whose parent changed. This value cannot be null.
+	 * @param oldParentID
+	 *            The ID of the parent before it was changed. This value may be
+	 *            null if the item had no parent.
+	 */
+	void parentChanged(JavaItem item, Integer oldParentID) {
+		itemsLock.writeLock().lock();
+		try {
+			if (lookupIndex != null && contains(item)) {
+				lookupIndex.remove(item, item.getType(), oldParentID);
+				lookupIndex.add(item);
+				lookupIndex.updateDescendants(item);
+			}
+		} finally {
+			itemsLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Updates the lookup index after the type of the given item was changed.
+	 * This is called by the item itself.
+	 * 
+	 * @param item
+	 *            The item whose type changed. This value cannot be null.
+	 * @param oldType
+	 *            The type before it was changed. This value cannot be null.
+	 */
+	void typeChanged(JavaItem item, JavaItemType oldType) {
+		itemsLock.writeLock().lock();
+		try {
+			if (lookupIndex != null && contains(item)) {
+				lookupIndex.remove(item, oldType, item.getParentID());
+				lookupIndex.add(item);
+			}
+		} finally {
+			itemsLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns whether the given item has been added to this. The caller must
+	 * hold the lock.
+	 * 
+	 * @param item
+	 *            The item to check. This value cannot be null.
+	 * 
+	 * @return True if the item is in this, false if it has not been added yet.
+	 */
+	private boolean contains(JavaItem item) {
+		int id = item.getID();
+		return id >= 0 && id < items.size() && items.get(id) == item;
+	}
+
 	public void mergeToBase() {
 		if (base == null) {
 			return;
@@ -817,7 +1108,21 @@ public void mergeToBase() {
 				OverwriteJavaItemVisitor visitor = new OverwriteJavaItemVisitor(newBaseItem);
 				deltaItem.accept(visitor);
 			} else if (change.getType() == ChangeType.UPDATE) {
+				if (deltaItem == null) {
+					// the item was removed in this index
+					if (base.getItem(index) != null) {
+						base.removeItem(index);
+					}
+					continue;
+				}
+
 				JavaItem baseItem = base.getItem(deltaItem.getID());
+				if (deltaItem instanceof DeltaJavaItem) {
+					// the delta item may still read from the base item, which
+					// is about to be overwritten
+					((DeltaJavaItem) deltaItem).materialize();
+				}
+
 				OverwriteJavaItemVisitor visitor = new OverwriteJavaItemVisitor(baseItem);
 				deltaItem.accept(visitor);
 			} else {
@@ -828,6 +1133,41 @@ public void mergeToBase() {
 		base.setInFlux(false);
 	}
 
+	/**
+	 * Finds all items of the given type with the given name. If this has a
+	 * base, the matching items from the base are returned first, as they are
+	 * in this index, followed by items that were added to this index.
+	 * 
+	 * @param type
+	 *            The type of items to find. This value cannot be null.
+	 * @param name
+	 *            The name of the items to find. This value cannot be null.
+	 * 
+	 * @return The items with the given type and name. This value will not be
+	 *         null, but may be empty.
+	 */
+	private List<JavaItem> findAllWithSameName(JavaItemType type, String name) {
+		List<JavaItem> found = new ArrayList<>();
+		if (base != null) {
+			for (JavaItem baseItem : base.findAllWithSameName(type, name)) {
+				JavaItem item = getItem(baseItem.getID());
+				if (item != null) {
+					found.add(item);
+				}
+			}
+		}
+
+		AlphaIndex index = ensureIndexExists(type);
+		itemsLock.readLock().lock();
+		try {
+			found.addAll(index.findAllWithSameName(name));
+		} finally {
+			itemsLock.readLock().unlock();
+		}
+
+		return found;
+	}
+
 	/**
 	 * Ensures that items of the given type are indexed by name and returns that
 	 * index.
@@ -843,11 +1183,7 @@ private AlphaIndex ensureIndexExists(JavaItemType type) {
 		AlphaIndex index = null;
 		itemsLock.readLock().lock();
 		try {
-			if (typeToAlphaIndexMap == null) {
-				typeToAlphaIndexMap = new HashMap<>();
-			}
-
-			if (type != null) {
+			if (typeToAlphaIndexMap != null && type != null) {
 				index = typeToAlphaIndexMap.get(type);
 			}
 		} finally {
@@ -857,10 +1193,26 @@ private AlphaIndex ensureIndexExists(JavaItemType type) {
 		if (index == null) {
 			itemsLock.writeLock().lock();
 			try {
+				if (typeToAlphaIndexMap == null) {
+					typeToAlphaIndexMap = new HashMap<>();
+				}
+
+				// another thread may have created it while waiting for the
+				// lock
+				if (type != null) {
+					index = typeToAlphaIndexMap.get(type);
+					if (index != null) {
+						return index;
+					}
+				}
+
 				index = new AlphaIndex();
 				typeToAlphaIndexMap.put(type, index);
 
-				for (JavaItem item : items) {
+				// items from the base are found through the base index
+				int size = items.size();
+				for (int i = baseItemCount; i < size; i++) {
+					JavaItem item = items.get(i);
 					if (item == null) {
 						continue;
 					}
@@ -928,68 +1280,45 @@ private boolean isNamesMatch(JavaItem item1, JavaItem item2) {
 	}
 
 	/**
-	 * This task is used to create delta copies of several JavaItems.
+	 * This list presents the items of the base index as {@link DeltaJavaItem
+	 * DeltaJavaItems}. Each delta item is created the first time it is
+	 * requested, and the same delta item is returned on every later request.
+	 * Items which are null in the base are also null in this list.
 	 */
-	public static class CreateDeltaJavaItemTask extends Task<TaskContext> {
-
-		/**
-		 * The required inputs for this task.
-		 */
-		private static final Set<String> INPUTS = new HashSet<>(Arrays.asList(INPUT_ITEMS, NEW_JAVA_ITEM_INDEX));
+	private class LazyDeltaItemList extends AbstractList<JavaItem> {
 
 		/**
-		 * The expected outputs for this task.
+		 * A mapping from item ID to the delta items that have been created so
+		 * far.
 		 */
-		private static final Set<String> OUTPUTS = new HashSet<>(Arrays.asList(OUTPUT_ITEMS));
-
-		/**
-		 * Constructor for this.
-		 * 
-		 * @param name
-		 *            The name of the task. This value cannot be null or empty.
-		 * @param context
-		 *            The context which contains variables for the task. This
-		 *            value cannot be null.
-		 */
-		public CreateDeltaJavaItemTask(String name, TaskContext context) {
-			super(name, context);
-		}
+		private Map<Integer, DeltaJavaItem> idToDeltaItemMap = new ConcurrentHashMap<>();
 
 		/**
 		 * {@inheritDoc}
 		 */
 		@Override
-		public Set<String> getInputConstraints() {
-			return INPUTS;
-		}
+		public JavaItem get(int index) {
+			DeltaJavaItem deltaItem = idToDeltaItemMap.get(index);
+			if (deltaItem == null) {
+				JavaItem baseItem = base.getItem(index);
+				if (baseItem == null) {
+					return null;
+				}
 
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public Set<String> getOutputConstraints() {
-			return OUTPUTS;
+				deltaItem = idToDeltaItemMap.computeIfAbsent(index,
+						id -> new DeltaJavaItem(baseItem, JavaItemIndex.this));
+			}
+
+			return deltaItem;
 		}
 
 		/**
 		 * {@inheritDoc}
 		 */
 		@Override
-		public void execute(TaskContext context) throws Exception {
-			Map<Integer, JavaItem> baseItems = context.get(INPUT_ITEMS);
-			JavaItemIndex newIndex = context.get(NEW_JAVA_ITEM_INDEX);
-
-			Map<Integer, JavaItem> deltaItems = new HashMap<>(baseItems.size());
-			for (Map.Entry<Integer, JavaItem> entry : baseItems.entrySet()) {
-				Integer index = entry.getKey();
-				JavaItem baseItem = entry.getValue();
-				JavaItem deltaItem = new DeltaJavaItem(baseItem, newIndex);
-				deltaItems.put(index, deltaItem);
-			}
-
-			context.put(OUTPUT_ITEMS, deltaItems);
+		public int size() {
+			return baseItemCount;
 		}
-
 	}
 
 	/**
@@ -1029,6 +1358,25 @@ public void add(JavaItem item) {
 			matchingList.add(item);
 		}
 
+		/**
+		 * Removes the given item from this.
+		 * 
+		 * @param item
+		 *            The item to remove. This value cannot be null.
+		 */
+		public void remove(JavaItem item) {
+			Check.notNull(item, "item");
+
+			String firstFew = getFirstFewLetters(item.getName());
+			List<JavaItem> matchingList = firstFewLettersToItemsMap.get(firstFew);
+			if (matchingList != null) {
+				matchingList.remove(item);
+				if (matchingList.isEmpty()) {
+					firstFewLettersToItemsMap.remove(firstFew);
+				}
+			}
+		}
+
 		/**
 		 * Finds all items that have the given name.
 		 * 
@@ -1073,4 +1421,236 @@ private String getFirstFewLetters(String name) {
 			return name.substring(0, actualSize);
 		}
 	}
+
+	/**
+	 * This class indexes items by their type, parent ID and name, and indexes
+	 * projects, packages and classes by their qualified name, so that an item
+	 * can be found without comparing the names of the ancestors of every item
+	 * with the same name. If the index has a base, this only contains the
+	 * items that were added to the index, and the items from the base whose
+	 * parent or ancestors were changed in the index, which are said to be
+	 * overridden. All other items from the base are found through the base.
+	 * <p>
+	 * The caller must hold the lock of the index.
+	 */
+	private class LookupIndex {
+
+		/**
+		 * A mapping from the type, parent ID and name of items to their IDs.
+		 */
+		private Map<LookupKey, IntList> keyToIDsMap = new HashMap<>();
+
+		/**
+		 * A mapping from the qualified name of projects, packages and classes
+		 * to their IDs.
+		 */
+		private Map<String, IntList> qualifiedNameToIDsMap = new HashMap<>();
+
+		/**
+		 * A mapping from the IDs of projects, packages and classes to the
+		 * qualified name they are indexed with.
+		 */
+		private Map<Integer, String> idToQualifiedNameMap = new HashMap<>();
+
+		/**
+		 * The IDs of items from the base which are indexed in this instead of
+		 * the base, because they were changed or removed in the index.
+		 */
+		private Set<Integer> overriddenBaseIDs = new HashSet<>();
+
+		/**
+		 * Adds the given item to this with its current type, parent and name.
+		 * 
+		 * @param item
+		 *            The item to add. This value cannot be null.
+		 */
+		private void add(JavaItem item) {
+			int id = item.getID();
+			if (id < baseItemCount) {
+				overriddenBaseIDs.add(id);
+			}
+
+			LookupKey key = new LookupKey(item.getType(), item.getParentID(), item.getName());
+			keyToIDsMap.computeIfAbsent(key, k -> new IntList()).addInt(id);
+
+			if (QUALIFIED_TYPES.contains(item.getType())) {
+				String qualifiedName = getQualifiedName(item);
+				qualifiedNameToIDsMap.computeIfAbsent(qualifiedName, k -> new IntList()).addInt(id);
+				idToQualifiedNameMap.put(id, qualifiedName);
+			}
+		}
+
+		/**
+		 * Removes the given item from this. If the item is from the base, it
+		 * will be overridden so that it is no longer found through the base.
+		 * 
+		 * @param item
+		 *            The item to remove. This value cannot be null.
+		 * @param type
+		 *            The type that the item was indexed with. This value cannot
+		 *            be null.
+		 * @param parentID
+		 *            The parent ID that the item was indexed with. This value
+		 *            may be null if the item had no parent.
+		 */
+		private void remove(JavaItem item, JavaItemType type, Integer parentID) {
+			int id = item.getID();
+			if (id < baseItemCount && overriddenBaseIDs.add(id)) {
+				// it was only in the base index
+				return;
+			}
+
+			removeID(keyToIDsMap, new LookupKey(type, parentID, item.getName()), id);
+
+			String qualifiedName = idToQualifiedNameMap.remove(id);
+			if (qualifiedName != null) {
+				removeID(qualifiedNameToIDsMap, qualifiedName, id);
+			}
+		}
+
+		/**
+		 * Updates the qualified names of all descendants of the given item,
+		 * after the parent of the item was changed.
+		 * 
+		 * @param item
+		 *            The item whose parent was changed. This value cannot be
+		 *            null.
+		 */
+		private void updateDescendants(JavaItem item) {
+			for (Integer childID : item.getChildrenIDs()) {
+				JavaItem child = items.get(childID);
+				if (child == null || !Objects.equals(child.getParentID(), item.getID())) {
+					continue;
+				}
+
+				if (QUALIFIED_TYPES.contains(child.getType())) {
+					remove(child, child.getType(), child.getParentID());
+					add(child);
+				}
+
+				updateDescendants(child);
+			}
+		}
+
+		/**
+		 * Combines the given IDs from the base with the given IDs from this,
+		 * skipping the base items that are overridden in this.
+		 * 
+		 * @param baseIDs
+		 *            The IDs found in the base. This value may be null if there
+		 *            is no base.
+		 * @param ids
+		 *            The IDs found in this. This value may be null if none were
+		 *            found.
+		 * 
+		 * @return The combined IDs. This value will not be null, but may be
+		 *         empty.
+		 */
+		private IntList filter(IntList baseIDs, IntList ids) {
+			IntList found = new IntList();
+			if (baseIDs != null) {
+				for (int i = 0; i < baseIDs.size(); i++) {
+					int id = baseIDs.getInt(i);
+					if (!overriddenBaseIDs.contains(id) && items.get(id) != null) {
+						found.addInt(id);
+					}
+				}
+			}
+
+			if (ids != null) {
+				found.addAll(ids);
+			}
+
+			return found;
+		}
+
+		/**
+		 * Removes the given ID from the list for the given key in the given
+		 * map, and removes the list if it becomes empty.
+		 * 
+		 * @param map
+		 *            The map to remove the ID from. This value cannot be null.
+		 * @param key
+		 *            The key of the list. This value cannot be null.
+		 * @param id
+		 *            The ID to remove.
+		 */
+		private <K> void removeID(Map<K, IntList> map, K key, int id) {
+			IntList ids = map.get(key);
+			if (ids != null) {
+				int index = ids.indexOfInt(id);
+				if (index >= 0) {
+					ids.removeIntAt(index);
+				}
+
+				if (ids.isEmpty()) {
+					map.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This class is the key of an item in the {@link LookupIndex}.
+	 */
+	private static final class LookupKey {
+
+		/**
+		 * The type of the item.
+		 */
+		private final JavaItemType type;
+
+		/**
+		 * The ID of the parent of the item, or {@link JavaItemIndex#NO_PARENT}
+		 * if it has no parent.
+		 */
+		private final int parentID;
+
+		/**
+		 * The name of the item.
+		 */
+		private final String name;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param type
+		 *            The type of the item. This value cannot be null.
+		 * @param parentID
+		 *            The ID of the parent of the item. This value may be null if
+		 *            the item has no parent.
+		 * @param name
+		 *            The name of the item. This value cannot be null.
+		 */
+		private LookupKey(JavaItemType type, Integer parentID, String name) {
+			this.type = type;
+			this.parentID = parentID != null ? parentID : NO_PARENT;
+			this.name = name;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return (type.hashCode() * 31 + parentID) * 31 + name.hashCode();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof LookupKey)) {
+				return false;
+			}
+
+			LookupKey other = (LookupKey) obj;
+			return type == other.type && parentID == other.parentID && name.equals(other.name);
+		}
+	}
 }
@@ -0,0 +1,390 @@
+package com.ibm.commerce.dependency.model;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.ibm.commerce.cmt.plan.IDGenerator;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the delta behavior of the {@link JavaItemIndex} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class JavaItemIndexTest extends TestCase {
+
+	/**
+	 * True if the time taken should be compared, false if only the results
+	 * should be checked. The times are only reliable on an idle machine, so
+	 * they are compared when the <code>benchmark</code> system property is
+	 * true.
+	 */
+	private static final boolean COMPARE_TIMES = Boolean.getBoolean("benchmark");
+
+	private JavaItemIndex baseIndex;
+
+	private JavaItemFactory baseFactory;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() {
+		baseIndex = new JavaItemIndex("v8");
+		baseIndex.setIDGenerator(new IDGenerator(0));
+		baseFactory = new JavaItemFactory(baseIndex);
+	}
+
+	/**
+	 * Tests that if a delta index is created on a large base, the time taken
+	 * does not depend on the number of items in the base, and that changing
+	 * one item only affects that item. The time is only checked when
+	 * {@link #COMPARE_TIMES} is true.
+	 */
+	public void testConstructorIfLargeBaseExpectCreationCostIndependentOfSize() {
+		JavaItem project = baseFactory.createProject("Project");
+		for (int i = 0; i < 500; i++) {
+			JavaItem packageItem = baseFactory.createPackage(project, "package" + i);
+			for (int j = 0; j < 200; j++) {
+				baseFactory.createClass(packageItem, "Class" + j);
+			}
+		}
+
+		// warm up
+		new JavaItemIndex("v9", baseIndex);
+
+		long startTime = System.nanoTime();
+		JavaItemIndex deltaIndex = null;
+		for (int i = 0; i < 100; i++) {
+			deltaIndex = new JavaItemIndex("v9", baseIndex);
+		}
+		long averageMicros = (System.nanoTime() - startTime) / 100 / 1000;
+
+		if (COMPARE_TIMES) {
+			// copying 100k items one by one takes far longer than this
+			assertTrue("Delta creation took " + averageMicros + " us.", averageMicros < 5000);
+		}
+
+		JavaItem deltaClass = deltaIndex.findClass("package100", "Class100");
+		assertNotNull("Class was not found through the delta.", deltaClass);
+		deltaClass.setAttribute(JavaItem.ATTR_BINARY, Boolean.TRUE);
+
+		JavaItem baseClass = baseIndex.getItem(deltaClass.getID());
+		assertNull("Base was changed before merge.", baseClass.getAttribute(JavaItem.ATTR_BINARY));
+		assertEquals("Delta size is wrong.", baseIndex.size(), deltaIndex.size());
+	}
+
+	/**
+	 * Tests that if items are changed, added and removed in a delta, merging
+	 * the delta applies all the changes to the base and leaves other items
+	 * unchanged.
+	 */
+	@SuppressWarnings("unchecked")
+	public void testMergeToBaseIfItemsChangedAddedAndRemovedExpectBaseUpdated() {
+		JavaItem baseProject = baseFactory.createProject("Project");
+		JavaItem basePackage = baseFactory.createPackage(baseProject, "package");
+		JavaItem baseSuper = baseFactory.createClass(basePackage, "super");
+		JavaItem baseSub = baseFactory.createClass(basePackage, "sub");
+		JavaItem baseOther = baseFactory.createClass(basePackage, "other");
+		baseSub.setAttribute(JavaItem.ATTR_SUPERCLASS, baseSuper.getID());
+		baseSuper.setAttribute(JavaItem.ATTR_SUBCLASSES, new LinkedHashSet<Integer>(Arrays.asList(baseSub.getID())));
+
+		JavaItemIndex deltaIndex = new JavaItemIndex("v9", baseIndex);
+		JavaItemFactory deltaFactory = new JavaItemFactory(deltaIndex);
+
+		JavaItem deltaPackage = deltaIndex.getItem(basePackage.getID());
+		JavaItem deltaNew = deltaFactory.createClass(deltaPackage, "new");
+		JavaItem deltaMethod = deltaFactory.createMethod(deltaNew, "method", Collections.emptyList());
+		deltaIndex.removeItem(baseSub.getID());
+
+		assertEquals("Base children changed before merge.", 3, basePackage.getChildrenIDs().size());
+		assertEquals("Base subclasses changed before merge.", 1,
+				((Set<Integer>) baseSuper.getAttribute(JavaItem.ATTR_SUBCLASSES)).size());
+
+		deltaIndex.mergeToBase();
+
+		assertNull("Removed item is still in base.", baseIndex.getItem(baseSub.getID()));
+		assertEquals("Base subclasses is wrong.", 0,
+				((Set<Integer>) baseSuper.getAttribute(JavaItem.ATTR_SUBCLASSES)).size());
+		assertEquals("Base children is wrong.", Arrays.asList(baseSuper.getID(), baseOther.getID(), deltaNew.getID()),
+				basePackage.getChildrenIDs());
+
+		JavaItem mergedNew = baseIndex.findClass("package", "new");
+		assertNotNull("Added class is not in base.", mergedNew);
+		assertEquals("Added class ID is wrong.", deltaNew.getID(), mergedNew.getID());
+		assertEquals("Added method is not a child.", Arrays.asList(deltaMethod.getID()), mergedNew.getChildrenIDs());
+		assertSame("Unchanged item was replaced.", baseOther, baseIndex.getItem(baseOther.getID()));
+	}
+
+	/**
+	 * Tests that if an item is found through a delta index, the same delta
+	 * item is returned each time, so that changes to it are not lost.
+	 */
+	public void testGetItemIfCalledTwiceExpectSameDeltaItem() {
+		JavaItem baseProject = baseFactory.createProject("Project");
+
+		JavaItemIndex deltaIndex = new JavaItemIndex("v9", baseIndex);
+
+		JavaItem first = deltaIndex.getItem(baseProject.getID());
+		JavaItem second = deltaIndex.findItem(null, "Project", JavaItemType.PROJECT);
+
+		assertTrue("Item is not a delta item.", first instanceof DeltaJavaItem);
+		assertSame("Different delta items were returned.", first, second);
+	}
+
+	/**
+	 * Tests that if random items are added, moved and removed in a base index
+	 * and a delta index, finding items and methods through the lookup index
+	 * gives the same results as comparing the names of all ancestors.
+	 */
+	public void testFindItemIfRandomChangesExpectSameAsComparingNames() {
+		Random random = new Random(7);
+		for (int round = 0; round < 5; round++) {
+			setUp();
+			changeRandomly(baseIndex, random, 300);
+
+			JavaItemIndex deltaIndex = new JavaItemIndex("v9", baseIndex);
+			checkFindSameAsComparingNames(deltaIndex, baseIndex, random);
+			changeRandomly(deltaIndex, random, 300);
+
+			checkFindSameAsComparingNames(baseIndex, baseIndex, random);
+			checkFindSameAsComparingNames(deltaIndex, baseIndex, random);
+		}
+	}
+
+	/**
+	 * Tests that if the number of classes with the same name grows, finding a
+	 * class through the lookup index takes about the same time, while
+	 * comparing names takes longer. Both ways must find every class, and the
+	 * times are only compared when {@link #COMPARE_TIMES} is true.
+	 */
+	public void testFindItemIfManyClassesWithSameNameExpectConstantTime() {
+		JavaItem project = baseFactory.createProject("Project");
+		List<JavaItem> packages = new ArrayList<>();
+		long[] lookupTimes = new long[2];
+		long[] namesTimes = new long[2];
+		int[] sizes = { 20, 1000 };
+		for (int s = 0; s < sizes.length; s++) {
+			for (int i = packages.size(); i < sizes[s]; i++) {
+				JavaItem packageItem = baseFactory.createPackage(project, "package" + i);
+				packages.add(packageItem);
+				for (int j = 0; j < 100; j++) {
+					baseFactory.createClass(packageItem, "Class" + j);
+				}
+			}
+
+			// warm up
+			findAll(packages, true);
+			findAll(packages, false);
+
+			lookupTimes[s] = findAll(packages, true);
+			namesTimes[s] = findAll(packages, false);
+		}
+
+		if (COMPARE_TIMES) {
+			// there are 50 times more classes with each name in the larger
+			// index
+			assertTrue("Lookup time grew from " + lookupTimes[0] + " to " + lookupTimes[1] + " ns.",
+					lookupTimes[1] < lookupTimes[0] * 10 + 1000);
+			assertTrue("Lookup is slower than comparing names.", lookupTimes[1] < namesTimes[1]);
+		}
+	}
+
+	/**
+	 * Finds one class in each of the given packages and returns the average
+	 * time for each find.
+	 * 
+	 * @param packages
+	 *            The packages to find classes in. This value cannot be null.
+	 * @param lookUp
+	 *            True indicates that the lookup index will be used, false
+	 *            indicates that the names will be compared.
+	 * 
+	 * @return The average time for one find, in nanoseconds.
+	 */
+	private long findAll(List<JavaItem> packages, boolean lookUp) {
+		int finds = 2000;
+		long startTime = System.nanoTime();
+		for (int i = 0; i < finds; i++) {
+			JavaItem packageItem = packages.get(i % packages.size());
+			String name = "Class" + (i % 100);
+			JavaItem found;
+			if (lookUp) {
+				found = baseIndex.findItem(packageItem, name, JavaItemType.CLASS);
+			} else {
+				found = baseIndex.findItemByNames(packageItem, name, JavaItemType.CLASS);
+			}
+			assertNotNull("Class was not found.", found);
+		}
+
+		return (System.nanoTime() - startTime) / finds;
+	}
+
+	/**
+	 * Adds, moves and removes random items in the given index. The names are
+	 * chosen from a few names so that many items have the same name.
+	 * 
+	 * @param index
+	 *            The index to change. This value cannot be null.
+	 * @param random
+	 *            The source of random numbers. This value cannot be null.
+	 * @param changes
+	 *            The number of changes to make.
+	 */
+	private void changeRandomly(JavaItemIndex index, Random random, int changes) {
+		JavaItemFactory factory = new JavaItemFactory(index);
+		for (int i = 0; i < changes; i++) {
+			String name = "n" + random.nextInt(4);
+			int operation = random.nextInt(20);
+			if (operation < 2) {
+				factory.createProject(name);
+			} else if (operation < 5) {
+				JavaItem project = random.nextInt(10) == 0 ? null : pick(index, random, JavaItemType.PROJECT);
+				factory.createPackage(project, name);
+			} else if (operation < 10) {
+				JavaItem parent = pick(index, random, random.nextBoolean() ? JavaItemType.PACKAGE : JavaItemType.CLASS);
+				if (parent != null) {
+					factory.createClass(parent, name);
+				}
+			} else if (operation < 13) {
+				JavaItem parent = pick(index, random, JavaItemType.CLASS);
+				if (parent != null) {
+					factory.createMethod(parent, name, randomParameters(index, random));
+				}
+			} else if (operation < 15) {
+				JavaItem parent = pick(index, random, JavaItemType.CLASS);
+				if (parent != null) {
+					factory.createField(parent, name);
+				}
+			} else if (operation < 18) {
+				JavaItemType type = random.nextBoolean() ? JavaItemType.PACKAGE : JavaItemType.CLASS;
+				JavaItem item = pick(index, random, type);
+				JavaItem newParent = pick(index, random,
+						type == JavaItemType.PACKAGE ? JavaItemType.PROJECT : JavaItemType.PACKAGE);
+				if (item != null && newParent != null) {
+					JavaItem oldParent = item.getParent();
+					if (oldParent != null) {
+						oldParent.getChildrenIDs().remove((Integer) item.getID());
+					}
+					item.setParentID(newParent.getID());
+					newParent.getChildrenIDs().add(item.getID());
+				}
+			} else {
+				JavaItemType type = JavaItemType.values()[1 + random.nextInt(2)];
+				JavaItem item = pick(index, random, random.nextBoolean() ? type : JavaItemType.FIELD);
+				if (item != null) {
+					index.removeItem(item);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds random items and methods in the given index, and checks that the
+	 * lookup index gives the same results as comparing names.
+	 * 
+	 * @param index
+	 *            The index to search. This value cannot be null.
+	 * @param parentIndex
+	 *            The index to choose some of the parents from, which may be
+	 *            different from the index that is searched. This value cannot
+	 *            be null.
+	 * @param random
+	 *            The source of random numbers. This value cannot be null.
+	 */
+	private void checkFindSameAsComparingNames(JavaItemIndex index, JavaItemIndex parentIndex, Random random) {
+		for (int i = 0; i < 2000; i++) {
+			JavaItem parent = null;
+			if (random.nextInt(8) != 0) {
+				JavaItemType parentType = JavaItemType.values()[random.nextInt(JavaItemType.values().length)];
+				parent = pick(random.nextBoolean() ? index : parentIndex, random, parentType);
+			}
+
+			String name = "n" + random.nextInt(5);
+			JavaItemType type = JavaItemType.values()[random.nextInt(JavaItemType.values().length)];
+
+			// toString() fails for methods whose parameter types were removed
+			String parentID = parent == null ? "null" : String.valueOf(parent.getID());
+			assertSame("Wrong item for " + parentID + ":" + name + " " + type,
+					index.findItemByNames(parent, name, type), index.findItem(parent, name, type));
+
+			if (parent != null) {
+				List<Integer> parameters = randomParameters(index, random);
+				assertSame("Wrong method for " + parentID + ":" + name + parameters,
+						index.findMethodByNames(parent, name, parameters), index.findMethod(parent, name, parameters));
+			}
+		}
+	}
+
+	/**
+	 * Returns a random item of the given type from the given index.
+	 * 
+	 * @param index
+	 *            The index to choose from. This value cannot be null.
+	 * @param random
+	 *            The source of random numbers. This value cannot be null.
+	 * @param type
+	 *            The type of the item. This value cannot be null.
+	 * 
+	 * @return A random item of the given type, or null if there are none.
+	 */
+	private JavaItem pick(JavaItemIndex index, Random random, JavaItemType type) {
+		List<JavaItem> candidates = new ArrayList<>();
+		for (JavaItem item : index.getItems()) {
+			if (item != null && item.getType() == type) {
+				candidates.add(item);
+			}
+		}
+
+		return candidates.isEmpty() ? null : candidates.get(random.nextInt(candidates.size()));
+	}
+
+	/**
+	 * Returns a random list of parameter type IDs for a method.
+	 * 
+	 * @param index
+	 *            The index to choose the parameter types from. This value
+	 *            cannot be null.
+	 * @param random
+	 *            The source of random numbers. This value cannot be null.
+	 * 
+	 * @return The parameter type IDs. This value will not be null, but may be
+	 *         empty.
+	 */
+	private List<Integer> randomParameters(JavaItemIndex index, Random random) {
+		List<Integer> parameters = new ArrayList<>();
+		int count = random.nextInt(3);
+		for (int i = 0; i < count; i++) {
+			JavaItem parameterType = pick(index, random, JavaItemType.CLASS);
+			if (parameterType != null) {
+				parameters.add(parameterType.getID() % 3);
+			}
+		}
+
+		return parameters;
+	}
+}
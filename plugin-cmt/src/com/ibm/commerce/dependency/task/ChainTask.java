@@ -46,6 +46,12 @@
 	 */
 	private List<Task<C>> chain = new ArrayList<>();
 
+	/**
+	 * The tasks to run after the chain, even if a task in the chain throws an
+	 * error.
+	 */
+	private List<Task<C>> finallyChain = new ArrayList<>();
+
 	/**
 	 * Constructor for this.
 	 * 
@@ -69,6 +75,19 @@ public void addTask(Task<C> task) {
 		chain.add(task);
 	}
 
+	/**
+	 * Adds a task to run after all the tasks in the chain, even if one of
+	 * them throws an error. This is useful to release a resource that an
+	 * earlier task in the chain acquired. The outputs of this task are not
+	 * the outputs of the chain.
+	 * 
+	 * @param task
+	 *            The task to add. This value cannot be null.
+	 */
+	public void addFinallyTask(Task<C> task) {
+		finallyChain.add(task);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -90,8 +109,14 @@ public Set<String> getOutputConstraints() {
 	 */
 	@Override
 	public void execute(C context) throws Exception {
-		for (Task<C> task : chain) {
-			task.run();
+		try {
+			for (Task<C> task : chain) {
+				task.run();
+			}
+		} finally {
+			for (Task<C> task : finallyChain) {
+				task.run();
+			}
 		}
 	}
 
@@ -136,7 +136,8 @@ public C getContext() {
 	/**
 	 * Makes this dependent on the given constraint from the other context. When
 	 * the other context contains the variable, this task will become available
-	 * for execution.
+	 * for execution. This must be called before this task is added to the
+	 * {@link TaskList}.
 	 * 
 	 * @param dependentContext
 	 *            The context that will contain the constraint/variable name.
@@ -209,7 +210,7 @@ final public void run() {
 
 			// assume that none of the constraints were fulfilled
 			if (!successful) {
-				context.getConstraintsBroken().addAll(getOutputConstraints());
+				context.getTaskList().constraintsBroken(context, getOutputConstraints());
 			}
 		} finally {
 			context.getTaskList().doneTask();
@@ -290,6 +291,30 @@ public boolean isContraintMissing() throws ConstraintBrokenException {
 		return !requiredAreFinished;
 	}
 
+	/**
+	 * Returns a copy of the constraints that this depends on from other
+	 * contexts.
+	 * 
+	 * @return A mapping from constraint/variable names to the contexts that
+	 *         must contain them. This value will not be null, but may be
+	 *         empty.
+	 */
+	Map<String, List<C>> getExternalConstraints() {
+		try {
+			mapLock.readLock().lock();
+			Map<String, List<C>> copy = new HashMap<>();
+			if (constraintNameToContextsMap != null) {
+				for (Map.Entry<String, List<C>> entry : constraintNameToContextsMap.entrySet()) {
+					copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+				}
+			}
+
+			return copy;
+		} finally {
+			mapLock.readLock().unlock();
+		}
+	}
+
 	/**
 	 * Returns the external constraints as a string for debugging purposes.
 	 * 
@@ -165,7 +165,8 @@ public <T> T get(String name) {
 	/**
 	 * Puts a variable name and value in this. The variable name is also
 	 * considered a constraint and added to the list of
-	 * {@link #getConstraintsFinished() satisfied constraints}.
+	 * {@link #getConstraintsFinished() satisfied constraints}, and any tasks
+	 * in the task list that were waiting for it are notified.
 	 * 
 	 * @param name
 	 *            The name of the variable. This value cannot be null or empty.
@@ -181,6 +182,7 @@ public void put(String name, Object value) {
 			variableLock.writeLock().unlock();
 		}
 		constraintsFinished.add(name);
+		taskList.constraintFinished(this, name);
 	}
 
 	/**
@@ -18,46 +18,55 @@
  *-----------------------------------------------------------------
  */
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * This class manages {@link Task Tasks} and scheduling them for execution. Two
- * lists are maintained. The first list is the list of unscheduled tasks, and
- * the second list is the list of scheduled tasks. A scheduler thread is always
- * running that simply moves tasks from the unscheduled to the scheduled list.
+ * This class manages {@link Task Tasks} and scheduling them for execution.
+ * Scheduling is event-driven: each task that has not yet been scheduled keeps a
+ * count of the constraints it is still waiting for, and the task is given to
+ * the worker threads the moment that count reaches zero.
  * <p>
- * When a task is first {@link #addTask(Task) added}, it will be put in the
- * unscheduled list. When the scheduler thread is looking for tasks to move, it
- * calls {@link Task#isContraintMissing()}. If it returns true, the task will be
- * passed over. If it returns false, the task will be moved to the scheduled
- * list.
+ * When a task is first {@link #addTask(Task, int) added}, its
+ * {@link Task#getInputConstraints() input constraints} and any
+ * {@link Task#addOtherContextDependency(TaskContext, String) dependencies on
+ * other contexts} are checked once. Every constraint that is not yet finished
+ * is registered as a wait on the context that will contain it. When a
+ * {@link TaskContext#put(String, Object) variable is put} into a context, the
+ * tasks waiting for that variable have their counts reduced, and any task whose
+ * count reaches zero is scheduled. Nothing is polled and no list of tasks is
+ * ever rescanned. Dependencies on other contexts must be added before the task
+ * is added to this.
  * <p>
- * The scheduler thread moves a maximum number of tasks each time. When it
- * reaches the maximum or goes through the whole unscheduled list, it will sleep
- * for a short time to avoid wasting processing time.
+ * Tasks are executed by a number of worker threads. When a task starts
+ * running, it will call {@link #startTask()} and when it finishes it will call
+ * {@link #doneTask()}. This is used to track that the task is running.
  * <p>
- * Tasks are taken from the scheduled list and executed by a number of worker
- * threads. When a task starts running, it will call {@link #startTask()} and
- * when it finishes it will call {@link #doneTask()}. This is used to track that
- * the task is running, even though it is in neither the unscheduled list nor
- * the schedule list.
+ * When no tasks are waiting, ready or running, the task list will
+ * automatically stop. Note that if the last remaining running task
+ * {@link TaskContext#addTask(Task, int) adds a new task} through the context,
+ * it will be added before the running task is considered finished, so the task
+ * list will not stop. If any task fails, and another task is waiting for an
+ * output constraint of the failed task, the task list will be stopped.
  * <p>
- * When both the unscheduled and scheduled lists are empty, and no tasks are
- * running, the scheduler thread will automatically stop the task list. Note
- * that if the last remaining running task {@link TaskContext#addTask(Task) adds
- * a new task} through the context, it will be added to the unscheduled list and
- * scheduled normally, so that the scheduler thread will not stop. If any task
- * fails, the task list will be stopped.
+ * Deadlock detection is exact: if tasks at the current priority are still
+ * waiting for constraints, but no tasks are scheduled or running, then nothing
+ * can ever satisfy those constraints. The waiting tasks will be listed and the
+ * task list will be stopped.
  * <p>
  * A typical code sample is:
  * 
@@ -76,31 +85,25 @@
  * Calling {@link #waitForCompletion()} is not necessary, but allows the calling
  * thread to wait for all tasks to finish, or for one task to fail.
  * <p>
- * When a task is added to this, it is assigned a priority value. The
- * unscheduled list is divided by priorities, so that tasks which have a higher
- * priority value will be moved to the scheduled list before any tasks of lower
+ * When a task is added to this, it is assigned a priority value. Tasks which
+ * have a higher priority value will be scheduled before any tasks of lower
  * priority will be scheduled. If tasks at some priority level are currently
  * being scheduled and a higher priority task is added, that one will
  * immediately take precedence.
  * <p>
  * The implementation of priorities is strict - before switching to any lower
- * priority tasks, there must be no more higher priority tasks in the scheduled
- * or unscheduled list, and there must be no more running tasks. This allows
- * groups of tasks to be executed together, ensuring that no lower priority
- * groups will be executed until all in the current group are complete. This can
- * be used as an alternative to the {@link BarrierTask}.
+ * priority tasks, there must be no more higher priority tasks waiting or ready,
+ * and there must be no more running tasks. This allows groups of tasks to be
+ * executed together, ensuring that no lower priority groups will be executed
+ * until all in the current group are complete. This can be used as an
+ * alternative to the {@link BarrierTask}.
  * 
  * @author Trent Hoeppner
  */
 public class TaskList {
 
 	/**
-	 * The minimum number of worker threads.
-	 */
-	private static final int MIN_THREADS = 4;
-
-	/**
-	 * The maximum number of worker threads.
+	 * The number of worker threads.
 	 */
 	private static final int MAX_THREADS = 8;
 
@@ -111,86 +114,52 @@ public class TaskList {
 	private static final int MAX_MINUTES_TO_WAIT_TO_STOP = 120;
 
 	/**
-	 * The maximum number of tasks in the scheduled list.
-	 */
-	private static final int MAX_TASKS_IN_SCHEDULED_LIST = 1000;
-
-	/**
-	 * The maximum number of tasks to move from the unscheduled list to the
-	 * scheduled list each time.
-	 */
-	private static final int NUM_TASKS_TO_ADD_TO_SCHEDULED_LIST = 1000;
-
-	/**
-	 * The number of milliseconds for the scheduler thread to sleep before again
-	 * moving tasks to the scheduled list.
-	 */
-	private static final int MILLIS_BETWEEN_ADDING_TO_EXECUTE_QUEUE = 50;
-
-	/**
-	 * The percent to change the nextDelay value by when an adjustment is needed
-	 * up or down.
-	 */
-	private static final int DELAY_CHANGE_PERCENT = 20;
-
-	/**
-	 * The minimum number of milliseconds that the nextDelay value can have.
-	 */
-	private static final int DELAY_MIN = 10;
-
-	/**
-	 * The maximum number of milliseconds that the nextDelay value can have.
-	 */
-	private static final int DELAY_MAX = 10000;
-
-	/**
-	 * The minimum number of tasks that must be moved in a loop to maintain the
-	 * current nextDelay value. If the number of tasks moved is below this
-	 * value, the nextDelay will be increased to slow down scheduling.
+	 * The executor that is used to manage the worker threads and the scheduled
+	 * list of tasks.
 	 */
-	private static final int ADDING_TASKS_SWEETSPOT_MIN = 50;
+	private ThreadPoolExecutor executor;
 
 	/**
-	 * The maximum number of tasks that must be moved in a loop to maintain the
-	 * current nextDelay value. If the number of tasks moved is above this
-	 * value, the nextDelay will be decreased to speed up scheduling.
+	 * The current priority level of the tasks to execute.
 	 */
-	private static final int ADDING_TASKS_SWEETSPOT_MAX = 100;
+	private int currentPriority;
 
 	/**
-	 * The executor that is used to manage the worker threads and the scheduled
-	 * list of tasks.
+	 * The tasks for each priority level, where the position in the list
+	 * corresponds to the priority level. This may contain null values where
+	 * there are no tasks at the given priority level.
 	 */
-	private ThreadPoolExecutor executor;
+	private List<PriorityLevel> levels = new ArrayList<>();
 
 	/**
-	 * The list of unscheduled tasks at the current priority.
+	 * A mapping from each context to the constraints in that context which
+	 * tasks are waiting for, and the tasks that are waiting for each
+	 * constraint. Contexts are compared by identity.
 	 */
-	private BlockingQueue<Task<?>> unscheduledTasks = new LinkedBlockingQueue<>();
+	private Map<TaskContext, Map<String, List<PendingTask>>> contextToWaitersMap = new IdentityHashMap<>();
 
 	/**
-	 * The current priority level of the tasks to execute.
+	 * The number of tasks that have been given to the executor but have not
+	 * finished yet.
 	 */
-	private int currentPriority;
+	private int numScheduledTasks;
 
 	/**
-	 * The list of unscheduled lists for each priority level, where the position
-	 * in the list corresponds to the priority level of that unscheduled list.
-	 * This may contain null values where there is no unscheduled list at the
-	 * given priority level.
+	 * True indicates that {@link #start()} has been called, false otherwise.
 	 */
-	private List<BlockingQueue<Task<?>>> prioritizedUnscheduledTasks = new ArrayList<>();
+	private boolean started;
 
 	/**
-	 * A lock to control access to the unscheduled lists.
+	 * True indicates that this has stopped and will not schedule any more
+	 * tasks, false otherwise.
 	 */
-	private ReentrantReadWriteLock unscheduledLock = new ReentrantReadWriteLock();
+	private boolean stopped;
 
 	/**
-	 * The scheduler thread which moves tasks from the unscheduled list to the
-	 * scheduled list.
+	 * A lock to control access to the waiting and ready tasks, and the
+	 * scheduling state.
 	 */
-	private Thread schedulerThread;
+	private ReentrantLock lock = new ReentrantLock();
 
 	/**
 	 * A semaphore which tracks the number of tasks still running.
@@ -202,21 +171,24 @@ public class TaskList {
 	 */
 	public TaskList() {
 		currentPriority = 0;
-		prioritizedUnscheduledTasks.add(unscheduledTasks);
-		executor = new ThreadPoolExecutor(MIN_THREADS, MAX_THREADS, 5, TimeUnit.SECONDS,
-				new ArrayBlockingQueue<>(MAX_TASKS_IN_SCHEDULED_LIST), Executors.defaultThreadFactory(),
-				new ThreadPoolExecutor.CallerRunsPolicy());
+		executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 5, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), Executors.defaultThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
 	}
 
 	/**
-	 * Starts the scheduler thread. If no tasks have been {@link #addTask(Task)
-	 * added} to the unscheduled list at the time this method is called, the
-	 * scheduler thread may detect that there is nothing to do and stop the task
-	 * list immediately.
+	 * Starts scheduling tasks. If no tasks have been {@link #addTask(Task, int)
+	 * added} at the time this method is called, this will detect that there is
+	 * nothing to do and stop the task list immediately.
 	 */
 	public void start() {
-		schedulerThread = new Thread(new Scheduler());
-		schedulerThread.start();
+		try {
+			lock.lock();
+			started = true;
+			schedule();
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -235,51 +207,73 @@ public void waitForCompletion() {
 	}
 
 	/**
-	 * Adds the given task to the list of unscheduled tasks.
+	 * Adds the given task to this. The task will be scheduled as soon as all
+	 * of its constraints are finished, and no higher priority tasks remain.
 	 * 
 	 * @param task
 	 *            The task to add. This value cannot be null.
 	 * @param priority
-	 *            The priority for this task. The scheduler thread will schedule
-	 *            all tasks with a higher priority value before any tasks of a
-	 *            lower priority value. Must be >= 0.
+	 *            The priority for this task. All tasks with a higher priority
+	 *            value will be scheduled before any tasks of a lower priority
+	 *            value. Must be >= 0.
 	 */
 	public void addTask(Task<?> task, int priority) {
 		try {
-			unscheduledLock.writeLock().lock();
-			if (priority == currentPriority) {
-				unscheduledTasks.put(task);
-			} else if (priority < currentPriority) {
-				// no need to switch priority
-				BlockingQueue<Task<?>> lowerPriorityUnscheduledTasks = prioritizedUnscheduledTasks.get(priority);
-				if (lowerPriorityUnscheduledTasks == null) {
-					lowerPriorityUnscheduledTasks = new LinkedBlockingQueue<>();
-					prioritizedUnscheduledTasks.set(priority, lowerPriorityUnscheduledTasks);
-				}
-				lowerPriorityUnscheduledTasks.put(task);
-			} else {
-				// this task is higher priority than we are working on now, we
-				// need to switch priority now
-				while (prioritizedUnscheduledTasks.size() <= priority) {
-					prioritizedUnscheduledTasks.add(null);
+			lock.lock();
+			if (stopped) {
+				System.out.println("Task list is stopped, task " + task + " will not be executed.");
+				return;
+			}
+
+			PendingTask pending = new PendingTask(task, priority);
+			String brokenConstraint = null;
+
+			TaskContext context = task.getContext();
+			for (String constraint : task.getInputConstraints()) {
+				if (!context.getConstraintsFinished().contains(constraint)) {
+					if (context.getConstraintsBroken().contains(constraint)) {
+						brokenConstraint = constraint;
+					}
+					waitFor(pending, context, constraint);
 				}
+			}
 
-				BlockingQueue<Task<?>> higherPriorityUnscheduledTasks = prioritizedUnscheduledTasks.get(priority);
-				if (higherPriorityUnscheduledTasks == null) {
-					higherPriorityUnscheduledTasks = new LinkedBlockingQueue<>();
-					prioritizedUnscheduledTasks.set(priority, higherPriorityUnscheduledTasks);
+			Map<String, ? extends List<? extends TaskContext>> externalConstraints = task.getExternalConstraints();
+			for (Map.Entry<String, ? extends List<? extends TaskContext>> entry : externalConstraints.entrySet()) {
+				String constraint = entry.getKey();
+				for (TaskContext dependentContext : entry.getValue()) {
+					if (!dependentContext.containsVariable(constraint)) {
+						if (dependentContext.getConstraintsBroken().contains(constraint)) {
+							brokenConstraint = constraint;
+						}
+						waitFor(pending, dependentContext, constraint);
+					}
 				}
+			}
 
-				higherPriorityUnscheduledTasks.put(task);
+			PriorityLevel level = getLevel(priority);
+			if (pending.numMissing == 0) {
+				level.ready.add(pending);
+			} else {
+				level.waiting.add(pending);
+			}
 
-				// now switch
+			if (priority > currentPriority) {
+				// this task is higher priority than we are working on now, we
+				// need to switch priority now
 				currentPriority = priority;
-				unscheduledTasks = higherPriorityUnscheduledTasks;
 			}
-		} catch (InterruptedException e) {
-			throw new IllegalStateException("Was interrupted while waiting to add a new task.", e);
+
+			if (brokenConstraint != null) {
+				System.out.println("Constraint " + brokenConstraint + " is broken, task " + task
+						+ " can never complete.");
+				stop();
+				return;
+			}
+
+			schedule();
 		} finally {
-			unscheduledLock.writeLock().unlock();
+			lock.unlock();
 		}
 	}
 
@@ -306,167 +300,307 @@ public void doneTask() {
 	}
 
 	/**
-	 * This class moves tasks from the unscheduled to the scheduled list, and
-	 * detects termination conditions.
+	 * Notifies this that the given constraint has been finished in the given
+	 * context. Any tasks that were waiting only for that constraint will be
+	 * scheduled.
+	 * 
+	 * @param context
+	 *            The context that the constraint was finished in. This value
+	 *            cannot be null.
+	 * @param constraint
+	 *            The constraint/variable name that was finished. This value
+	 *            cannot be null or empty.
 	 */
-	public class Scheduler implements Runnable {
+	void constraintFinished(TaskContext context, String constraint) {
+		try {
+			lock.lock();
+			Map<String, List<PendingTask>> constraintToWaitersMap = contextToWaitersMap.get(context);
+			if (constraintToWaitersMap == null) {
+				return;
+			}
 
-		/**
-		 * The number of loop iterations that have been executed without moving
-		 * any tasks from the unscheduled to the scheduled list. This is used to
-		 * detect deadlock where tasks are waiting for a constraint that will
-		 * never be fulfilled.
-		 */
-		private int loopsWithNoMoves = 0;
+			List<PendingTask> waiters = constraintToWaitersMap.remove(constraint);
+			if (constraintToWaitersMap.isEmpty()) {
+				contextToWaitersMap.remove(context);
+			}
 
-		/**
-		 * The delay between loops, which is increased or decreased in order to
-		 * minimize scheduling overhead.
-		 */
-		private int nextDelay = MILLIS_BETWEEN_ADDING_TO_EXECUTE_QUEUE;
+			if (waiters == null) {
+				return;
+			}
 
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void run() {
-			while (true) {
-				long startTime = System.currentTimeMillis();
-				// detect stopping conditions
-				try {
-					unscheduledLock.readLock().lock();
-					if (numRunningTasks.availablePermits() == 0 && executor.getQueue().size() == 0) {
-						if (unscheduledTasks.size() == 0) {
-							// no tasks waiting and no tasks running
-							// check for lower priority
-							boolean switched = false;
-							for (int i = currentPriority - 1; i >= 0; i--) {
-								BlockingQueue<Task<?>> lowerPriorityUnscheduledTasks = prioritizedUnscheduledTasks
-										.get(i);
-								if (lowerPriorityUnscheduledTasks != null && lowerPriorityUnscheduledTasks.size() > 0) {
-									currentPriority = i;
-									unscheduledTasks = lowerPriorityUnscheduledTasks;
-
-									// reset the delay because the new priority
-									// list may go faster or slower than the
-									// last one
-									nextDelay = MILLIS_BETWEEN_ADDING_TO_EXECUTE_QUEUE;
-									loopsWithNoMoves = 0;
-
-									switched = true;
-									break;
-								}
-							}
-
-							long endTime = System.currentTimeMillis();
-							System.out.println("Finished detecting priority done in " + (endTime - startTime)
-									+ " ms, switched priority = " + switched + ", priority = " + currentPriority);
-							startTime = endTime;
-
-							if (!switched) {
-								// there really are no more tasks
-								// just exit normally
-								executor.shutdown();
-								break;
-							}
-						} else if (loopsWithNoMoves >= 10) {
-							// still have tasks unscheduled, but since none are
-							// running or scheduled, the unscheduled ones will
-							// never have their constraints satisfied
-							// so we are in deadlock
-							executor.shutdown();
-
-							// list the tasks that are in deadlock
-							for (Task<?> task : unscheduledTasks) {
-								System.out.println("task " + task + " deadlocked: needs " + task.getInputConstraints()
-										+ " but only has " + task.getContext()
-										+ ", and also waiting for these external constraints: "
-										+ task.getExternalConstraintsAsString());
-							}
-							break;
-						}
-					}
-				} finally {
-					unscheduledLock.readLock().unlock();
+			for (PendingTask pending : waiters) {
+				pending.numMissing--;
+				if (pending.numMissing == 0) {
+					PriorityLevel level = levels.get(pending.priority);
+					level.waiting.remove(pending);
+					level.ready.add(pending);
 				}
+			}
 
-				// find tasks with no constraints
-				int remainingTasks;
-				List<Task<?>> tasks = new ArrayList<>(NUM_TASKS_TO_ADD_TO_SCHEDULED_LIST);
-				try {
-					unscheduledLock.writeLock().lock();
-					int sizeToAdd = NUM_TASKS_TO_ADD_TO_SCHEDULED_LIST - executor.getQueue().size();
-					int i = 0;
-					Iterator<Task<?>> iterator = unscheduledTasks.iterator();
-					while (iterator.hasNext()) {
-						Task<?> task = iterator.next();
-						if (i >= sizeToAdd) {
-							// reached our limit
-							break;
-						}
+			schedule();
+		} finally {
+			lock.unlock();
+		}
+	}
 
-						try {
-							if (!task.isContraintMissing()) {
-								iterator.remove();
-								tasks.add(task);
-							}
-						} catch (ConstraintBrokenException e) {
-							executor.shutdown();
-							break;
-						}
+	/**
+	 * Notifies this that the given constraints will never be finished in the
+	 * given context, because the task that should have written them failed. If
+	 * any task is waiting for one of the constraints, this will stop.
+	 * 
+	 * @param context
+	 *            The context that the constraints were broken in. This value
+	 *            cannot be null.
+	 * @param constraints
+	 *            The constraint/variable names that were broken. This value
+	 *            cannot be null, but may be empty.
+	 */
+	void constraintsBroken(TaskContext context, Collection<String> constraints) {
+		context.getConstraintsBroken().addAll(constraints);
+		try {
+			lock.lock();
+			Map<String, List<PendingTask>> constraintToWaitersMap = contextToWaitersMap.get(context);
+			if (constraintToWaitersMap == null) {
+				return;
+			}
 
-						i++;
-					}
-					remainingTasks = unscheduledTasks.size();
-				} finally {
-					unscheduledLock.writeLock().unlock();
+			for (String constraint : constraints) {
+				List<PendingTask> waiters = constraintToWaitersMap.get(constraint);
+				if (waiters != null && !waiters.isEmpty()) {
+					System.out.println("Constraint " + constraint + " is broken, tasks " + waiters
+							+ " can never complete.");
+					stop();
+					break;
 				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 
-				for (Task<?> task : tasks) {
-					executor.execute(task);
-				}
+	/**
+	 * Registers that the given task is waiting for the given constraint in the
+	 * given context. The caller must hold {@link #lock}.
+	 * 
+	 * @param pending
+	 *            The task that is waiting. This value cannot be null.
+	 * @param context
+	 *            The context that will contain the constraint. This value
+	 *            cannot be null.
+	 * @param constraint
+	 *            The constraint/variable name to wait for. This value cannot be
+	 *            null or empty.
+	 */
+	private void waitFor(PendingTask pending, TaskContext context, String constraint) {
+		Map<String, List<PendingTask>> constraintToWaitersMap = contextToWaitersMap.get(context);
+		if (constraintToWaitersMap == null) {
+			constraintToWaitersMap = new HashMap<>();
+			contextToWaitersMap.put(context, constraintToWaitersMap);
+		}
 
-				if (tasks.size() > 0) {
-					loopsWithNoMoves = 0;
-
-					if (tasks.size() < ADDING_TASKS_SWEETSPOT_MIN) {
-						// we are adding too few tasks each time, increase
-						// the delay
-						nextDelay = Math.min((int) (nextDelay * (1 + DELAY_CHANGE_PERCENT / 100.0)), DELAY_MAX);
-					} else if (tasks.size() > ADDING_TASKS_SWEETSPOT_MAX) {
-						// we are adding too many tasks each time, reduce
-						// the delay
-						int changePercent = DELAY_CHANGE_PERCENT;
-						if (nextDelay > 1000) {
-							// reduce the delay a lot more when the delay is
-							// very high
-							changePercent *= 2;
-						}
+		List<PendingTask> waiters = constraintToWaitersMap.get(constraint);
+		if (waiters == null) {
+			waiters = new ArrayList<>(2);
+			constraintToWaitersMap.put(constraint, waiters);
+		}
 
-						nextDelay = Math.max((int) (nextDelay / (1 + changePercent / 100.0)), DELAY_MIN);
-					}
+		waiters.add(pending);
+		pending.numMissing++;
+	}
 
-					System.out.println("moved " + tasks.size() + " tasks to the scheduled list, " + remainingTasks
-							+ " at this priority, nextDelay = " + nextDelay);
+	/**
+	 * Returns the tasks at the given priority level, creating them if
+	 * necessary. The caller must hold {@link #lock}.
+	 * 
+	 * @param priority
+	 *            The priority level to get. Must be >= 0.
+	 * 
+	 * @return The tasks at the given priority level. This value will not be
+	 *         null.
+	 */
+	private PriorityLevel getLevel(int priority) {
+		while (levels.size() <= priority) {
+			levels.add(null);
+		}
 
-					if (tasks.size() == 1) {
-						System.out.println("Executing " + tasks.get(0) + " variables = "
-								+ tasks.get(0).getExternalConstraintsAsString());
-					}
-				} else {
-					loopsWithNoMoves++;
+		PriorityLevel level = levels.get(priority);
+		if (level == null) {
+			level = new PriorityLevel();
+			levels.set(priority, level);
+		}
+
+		return level;
+	}
+
+	/**
+	 * Gives all ready tasks at the current priority to the executor, then
+	 * detects whether the priority should be lowered, or whether this should
+	 * stop because all tasks are done or the remaining tasks are deadlocked.
+	 * The caller must hold {@link #lock}.
+	 */
+	private void schedule() {
+		if (!started || stopped) {
+			return;
+		}
+
+		while (true) {
+			PriorityLevel level = currentPriority < levels.size() ? levels.get(currentPriority) : null;
+			if (level != null) {
+				while (!level.ready.isEmpty()) {
+					execute(level.ready.poll());
 				}
+			}
+
+			if (numScheduledTasks > 0) {
+				// running tasks will trigger scheduling again when they finish
+				return;
+			}
+
+			if (level != null && !level.waiting.isEmpty()) {
+				// still have tasks waiting, but since none are running or
+				// scheduled, their constraints will never be satisfied
+				// so we are in deadlock
+				for (PendingTask pending : level.waiting) {
+					Task<?> task = pending.task;
+					System.out.println("task " + task + " deadlocked: needs " + task.getInputConstraints()
+							+ " but only has " + task.getContext()
+							+ ", and also waiting for these external constraints: "
+							+ task.getExternalConstraintsAsString());
+				}
+				stop();
+				return;
+			}
+
+			// no tasks waiting and no tasks running
+			// check for lower priority
+			boolean switched = false;
+			for (int i = currentPriority - 1; i >= 0; i--) {
+				PriorityLevel lowerLevel = i < levels.size() ? levels.get(i) : null;
+				if (lowerLevel != null && (!lowerLevel.ready.isEmpty() || !lowerLevel.waiting.isEmpty())) {
+					currentPriority = i;
+					switched = true;
+					break;
+				}
+			}
+
+			if (!switched) {
+				// there really are no more tasks
+				// just exit normally
+				stop();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gives the given task to the executor, and arranges for scheduling to be
+	 * triggered again when the task finishes. The caller must hold
+	 * {@link #lock}.
+	 * 
+	 * @param pending
+	 *            The task to execute. This value cannot be null.
+	 */
+	private void execute(PendingTask pending) {
+		numScheduledTasks++;
+		executor.execute(new Runnable() {
 
+			@Override
+			public void run() {
 				try {
-					Thread.sleep(nextDelay);
-				} catch (InterruptedException e) {
-					System.out.println("Interrupted while sleeping");
+					pending.task.run();
+				} finally {
+					taskFinished();
 				}
 			}
+		});
+	}
 
-			System.out.println("Scheduler thread stopped.");
+	/**
+	 * Notifies this that a task given to the executor has finished, so that
+	 * the termination conditions can be checked.
+	 */
+	private void taskFinished() {
+		try {
+			lock.lock();
+			numScheduledTasks--;
+			schedule();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops this so that no more tasks will be scheduled. Tasks that were
+	 * already given to the executor will still finish. The caller must hold
+	 * {@link #lock}.
+	 */
+	private void stop() {
+		if (!stopped) {
+			stopped = true;
+			executor.shutdown();
+			System.out.println("Task list stopped.");
 		}
+	}
+
+	/**
+	 * This class holds a task that has been added but not yet scheduled, with
+	 * the number of constraints that it is still waiting for.
+	 */
+	private static class PendingTask {
 
+		/**
+		 * The task to schedule.
+		 */
+		private final Task<?> task;
+
+		/**
+		 * The priority that the task was added with.
+		 */
+		private final int priority;
+
+		/**
+		 * The number of constraints that are not yet finished. When this
+		 * reaches 0, the task is ready to be scheduled.
+		 */
+		private int numMissing;
+
+		/**
+		 * Constructor for this.
+		 * 
+		 * @param task
+		 *            The task to schedule. This value cannot be null.
+		 * @param priority
+		 *            The priority that the task was added with. Must be >= 0.
+		 */
+		private PendingTask(Task<?> task, int priority) {
+			this.task = task;
+			this.priority = priority;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return String.valueOf(task);
+		}
+	}
+
+	/**
+	 * This class holds the tasks at a single priority level.
+	 */
+	private static class PriorityLevel {
+
+		/**
+		 * The tasks that have all their constraints finished, in the order
+		 * they became ready.
+		 */
+		private final Deque<PendingTask> ready = new ArrayDeque<>();
+
+		/**
+		 * The tasks that are still waiting for at least one constraint.
+		 */
+		private final Set<PendingTask> waiting = new LinkedHashSet<>();
 	}
 
 }
@@ -0,0 +1,302 @@
+package com.ibm.commerce.dependency.task;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link TaskList} class.
+ * 
+ * @author Trent Hoeppner
+ */
+public class TaskListTest extends TestCase {
+
+	/**
+	 * The minimum number of milliseconds that the old polling scheduler slept
+	 * between loops. The old scheduler needed at least one loop to schedule
+	 * each level of a chain of dependent tasks.
+	 */
+	private static final int OLD_SCHEDULER_MIN_DELAY = 10;
+
+	/**
+	 * True if the time taken by the scheduler should be checked. Timing
+	 * depends on how busy the machine is, so it is only checked when the
+	 * <code>benchmark</code> system property is true.
+	 */
+	private static final boolean CHECK_TIMING = Boolean.getBoolean("benchmark");
+
+	public void testStartIfNoTasksExpectStopsImmediately() {
+		TaskList taskList = new TaskList();
+		long startTime = System.currentTimeMillis();
+		taskList.start();
+		taskList.waitForCompletion();
+		long diff = System.currentTimeMillis() - startTime;
+
+		if (CHECK_TIMING) {
+			assertTrue("Took too long to stop: " + diff + " ms.", diff < 1000);
+		}
+	}
+
+	public void testAddTaskIfDiamondExpectDependencyOrder() {
+		TaskList taskList = new TaskList();
+		TaskContext context = new TaskContext(taskList);
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		taskList.addTask(new RecordingTask("d", context, order, set("b", "c"), set("d")), 0);
+		taskList.addTask(new RecordingTask("b", context, order, set("a"), set("b")), 0);
+		taskList.addTask(new RecordingTask("c", context, order, set("a"), set("c")), 0);
+		taskList.addTask(new RecordingTask("a", context, order, set(), set("a")), 0);
+
+		taskList.start();
+		taskList.waitForCompletion();
+
+		assertEquals("Number of executed tasks is wrong.", 4, order.size());
+		assertEquals("First task is wrong.", "a", order.get(0));
+		assertEquals("Last task is wrong.", "d", order.get(3));
+		assertTrue("Context is missing d.", context.containsVariable("d"));
+	}
+
+	public void testAddTaskIfOtherContextDependencyExpectWaitsForOtherContext() {
+		TaskList taskList = new TaskList();
+		TaskContext contextA = new TaskContext(taskList);
+		TaskContext contextB = new TaskContext(taskList);
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		RecordingTask task2 = new RecordingTask("b", contextB, order, set(), set("b"));
+		task2.addOtherContextDependency(contextA, "a");
+		taskList.addTask(task2, 0);
+		taskList.addTask(new RecordingTask("a", contextA, order, set(), set("a")), 0);
+
+		taskList.start();
+		taskList.waitForCompletion();
+
+		assertEquals("Order is wrong.", "[a, b]", order.toString());
+	}
+
+	public void testAddTaskIfConstraintNeverWrittenExpectDeadlockDetectedQuickly() {
+		TaskList taskList = new TaskList();
+		TaskContext context = new TaskContext(taskList);
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		taskList.addTask(new RecordingTask("a", context, order, set(), set("a")), 0);
+		taskList.addTask(new RecordingTask("b", context, order, set("a", "never"), set("b")), 0);
+
+		long startTime = System.currentTimeMillis();
+		taskList.start();
+		taskList.waitForCompletion();
+		long diff = System.currentTimeMillis() - startTime;
+
+		assertEquals("Order is wrong.", "[a]", order.toString());
+		if (CHECK_TIMING) {
+			assertTrue("Took too long to detect deadlock: " + diff + " ms.", diff < 1000);
+		}
+	}
+
+	public void testAddTaskIfDependencyFailsExpectDependentNotExecuted() {
+		TaskList taskList = new TaskList();
+		TaskContext context = new TaskContext(taskList);
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		// writes no outputs, so "a" is broken
+		taskList.addTask(new RecordingTask("a", context, order, set(), set("a"), false), 0);
+		taskList.addTask(new RecordingTask("b", context, order, set("a"), set("b")), 0);
+
+		taskList.start();
+		taskList.waitForCompletion();
+
+		assertEquals("Order is wrong.", "[a]", order.toString());
+		assertTrue("a should be broken.", context.getConstraintsBroken().contains("a"));
+	}
+
+	public void testAddTaskIfDifferentPrioritiesExpectHigherPriorityFirst() {
+		TaskList taskList = new TaskList();
+		TaskContext context = new TaskContext(taskList);
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		for (int i = 0; i < 20; i++) {
+			taskList.addTask(new RecordingTask("low" + i, context, order, set(), set("low" + i)), 1);
+		}
+		for (int i = 0; i < 20; i++) {
+			taskList.addTask(new RecordingTask("high" + i, context, order, set(), set("high" + i)), 5);
+		}
+
+		taskList.start();
+		taskList.waitForCompletion();
+
+		assertEquals("Number of executed tasks is wrong.", 40, order.size());
+		for (int i = 0; i < 20; i++) {
+			assertTrue("Task " + i + " should be high priority: " + order, order.get(i).startsWith("high"));
+		}
+	}
+
+	public void testAddTaskIfTaskAddsTaskExpectBothExecuted() {
+		TaskList taskList = new TaskList();
+		TaskContext context = new TaskContext(taskList);
+		List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		RecordingTask child = new RecordingTask("child", context, order, set("parent"), set("child"));
+		taskList.addTask(new RecordingTask("parent", context, order, set(), set("parent")) {
+
+			@Override
+			public void execute(TaskContext context) throws Exception {
+				context.addTask(child, 0);
+				super.execute(context);
+			}
+		}, 0);
+
+		taskList.start();
+		taskList.waitForCompletion();
+
+		assertEquals("Order is wrong.", "[parent, child]", order.toString());
+	}
+
+	/**
+	 * Runs 100 independent chains of 1000 dependent tasks each. The old polling
+	 * scheduler needed at least one sleep of {@link #OLD_SCHEDULER_MIN_DELAY}
+	 * per level of the chains, and could move at most 1000 tasks per loop, so
+	 * it could not finish in less than 10 seconds. The time is only checked
+	 * when {@link #CHECK_TIMING} is true.
+	 */
+	public void testAddTaskIf100kTaskDAGExpectAllExecuted() {
+		int numChains = 100;
+		int chainLength = 1000;
+
+		TaskList taskList = new TaskList();
+		AtomicInteger counter = new AtomicInteger();
+		for (int c = 0; c < numChains; c++) {
+			TaskContext context = new TaskContext(taskList);
+			for (int i = 0; i < chainLength; i++) {
+				Set<String> inputs = i == 0 ? set() : set("step" + (i - 1));
+				taskList.addTask(new CountingTask("chain" + c + "step" + i, context, counter, inputs, set("step" + i)),
+						0);
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		taskList.start();
+		taskList.waitForCompletion();
+		long diff = System.currentTimeMillis() - startTime;
+
+		assertEquals("Number of executed tasks is wrong.", numChains * chainLength, counter.get());
+		if (CHECK_TIMING) {
+			long oldSchedulerMinimum = (long) chainLength * OLD_SCHEDULER_MIN_DELAY;
+			assertTrue("Took " + diff + " ms, but the old scheduler needed at least " + oldSchedulerMinimum + " ms.",
+					diff < oldSchedulerMinimum / 2);
+		}
+	}
+
+	private static Set<String> set(String... names) {
+		Set<String> set = new HashSet<>();
+		Collections.addAll(set, names);
+		return set;
+	}
+
+	/**
+	 * This class records its name when executed, and writes its outputs.
+	 */
+	private static class RecordingTask extends Task<TaskContext> {
+
+		private List<String> order;
+
+		private Set<String> inputs;
+
+		private Set<String> outputs;
+
+		private boolean writeOutputs;
+
+		public RecordingTask(String name, TaskContext context, List<String> order, Set<String> inputs,
+				Set<String> outputs) {
+			this(name, context, order, inputs, outputs, true);
+		}
+
+		public RecordingTask(String name, TaskContext context, List<String> order, Set<String> inputs,
+				Set<String> outputs, boolean writeOutputs) {
+			super(name, context);
+			this.order = order;
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.writeOutputs = writeOutputs;
+		}
+
+		@Override
+		public Set<String> getInputConstraints() {
+			return inputs;
+		}
+
+		@Override
+		public Set<String> getOutputConstraints() {
+			return outputs;
+		}
+
+		@Override
+		public void execute(TaskContext context) throws Exception {
+			order.add(toString());
+			if (writeOutputs) {
+				for (String output : outputs) {
+					context.put(output, true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This class increments a counter when executed, and writes its outputs.
+	 */
+	private static class CountingTask extends Task<TaskContext> {
+
+		private AtomicInteger counter;
+
+		private Set<String> inputs;
+
+		private Set<String> outputs;
+
+		public CountingTask(String name, TaskContext context, AtomicInteger counter, Set<String> inputs,
+				Set<String> outputs) {
+			super(name, context);
+			this.counter = counter;
+			this.inputs = inputs;
+			this.outputs = outputs;
+		}
+
+		@Override
+		public Set<String> getInputConstraints() {
+			return inputs;
+		}
+
+		@Override
+		public Set<String> getOutputConstraints() {
+			return outputs;
+		}
+
+		@Override
+		public void execute(TaskContext context) throws Exception {
+			counter.incrementAndGet();
+			for (String output : outputs) {
+				context.put(output, true);
+			}
+		}
+	}
+}
@@ -263,6 +263,19 @@ public String getClassName() {
 		return className.toString();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation returns the last modified time and the length of
+	 * the {@link #getFileAsFile() file} as a list, so that the stamp changes
+	 * if either of them changes.
+	 */
+	@Override
+	public Object getModificationStamp() {
+		File file = getFileAsFile();
+		return Arrays.asList(file.lastModified(), file.length());
+	}
+
 	public ModelRegistry getModelRegistry() {
 		return registry;
 	}
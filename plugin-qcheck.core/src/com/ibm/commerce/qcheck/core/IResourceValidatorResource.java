@@ -84,4 +84,15 @@ public File getFileAsFile() {
 	public IResource getFileAsResource() {
 		return getResource();
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation returns the modification stamp that Eclipse keeps
+	 * for the resource, which changes each time the resource is saved.
+	 */
+	@Override
+	public Object getModificationStamp() {
+		return Long.valueOf(getResource().getModificationStamp());
+	}
 }
@@ -46,21 +46,18 @@ public enum ModelEnum {
 
 	/**
 	 * Represents that the resource is validated externally. This is a special
-	 * model. If a validator requires an EXTERNAL model, the other models MUST
-	 * be cleaned up after being used for each resource by calling
-	 * {@link ModelRegistry#clearValidator(ValidatorResource)}. This is to avoid
-	 * a memory leak if an external validator is used to analyze hundreds or
-	 * thousands of files at one time.
+	 * model. External validators may analyze hundreds or thousands of files at
+	 * one time, but the {@link ModelRegistry} only keeps the models for a
+	 * limited number of resources, so the other models do not need to be
+	 * cleaned up.
 	 */
 	EXTERNAL("External", null),
 
 	/**
 	 * Represents that the resource is validated in batch. This is a special
-	 * model. If a validator requires an BATCH model, the other models MUST be
-	 * cleaned up after being used for each resource by calling
-	 * {@link ModelRegistry#clearValidator(ValidatorResource)}. This is to avoid
-	 * a memory leak if an external validator is used to analyze hundreds or
-	 * thousands of files at one time.
+	 * model. Batch validators may analyze hundreds or thousands of files at one
+	 * time, but the {@link ModelRegistry} only keeps the models for a limited
+	 * number of resources, so the other models do not need to be cleaned up.
 	 */
 	BATCH("Batch", null);
 
@@ -19,13 +19,24 @@
  */
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ModelRegistry stores the models and resources that use those models in a
  * central location. This allows the models for resources to be retrieved and
  * reused between validators.
  * <p>
+ * Models are kept for a limited number of resources, and the models for the
+ * resources which were used least recently are removed first. The models for
+ * a resource are created again when the
+ * {@link ValidatorResource#getModificationStamp() modification stamp} of the
+ * resource changes, so a resource is parsed once for each change and the
+ * models are shared by all validators. This class is thread-safe, and each
+ * model is only created once even if many threads request it at the same
+ * time.
+ * <p>
  * This class allows for multiple registries and is not a singleton. However, a
  * default registry is provided.
  * 
@@ -33,6 +44,11 @@
  */
 public class ModelRegistry {
 
+	/**
+	 * The number of resources that models are kept for by default.
+	 */
+	public static final int DEFAULT_MAX_RESOURCES = 100;
+
 	/**
 	 * The default instance of this.
 	 */
@@ -42,19 +58,43 @@ public class ModelRegistry {
 	 * A mapping from model names to the factory objects which can generate new
 	 * model instances. Will never be null.
 	 */
-	private Map<String, ModelFactory> modelNameToFactoryMap = new HashMap<String, ModelFactory>();
+	private Map<String, ModelFactory> modelNameToFactoryMap = new ConcurrentHashMap<String, ModelFactory>();
 
 	/**
-	 * A mapping from resource paths to the models for each resource. Will never
-	 * be null.
+	 * A mapping from resource paths to the models for each resource, in order
+	 * from the least recently used to the most recently used. Access must be
+	 * synchronized on this map. Will never be null.
 	 */
-	private Map<String, Map<String, Model>> resourceToModelsMap = new HashMap<String, Map<String, Model>>();
+	private Map<String, ResourceModels> resourceToModelsMap;
 
 	/**
-	 * Constructor for ModelRegistry.
+	 * Constructor for ModelRegistry which keeps models for
+	 * {@link #DEFAULT_MAX_RESOURCES} resources.
 	 */
 	public ModelRegistry() {
-		// do nothing
+		this(DEFAULT_MAX_RESOURCES);
+	}
+
+	/**
+	 * Constructor for ModelRegistry.
+	 *
+	 * @param maxResources
+	 *            The number of resources to keep models for. When models are
+	 *            created for more resources, the models for the least recently
+	 *            used resource are removed. Must be &gt; 0.
+	 */
+	public ModelRegistry(final int maxResources) {
+		if (maxResources <= 0) {
+			throw new IllegalArgumentException("maxResources must be > 0, but was " + maxResources + ".");
+		}
+
+		resourceToModelsMap = new LinkedHashMap<String, ResourceModels>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ResourceModels> eldest) {
+				return size() > maxResources;
+			}
+		};
 	}
 
 	/**
@@ -85,9 +125,10 @@ public void register(String modelName, ModelFactory factory) {
 	 * Returns a model for the resource using the given model name. The model
 	 * factory for the name must already exist.
 	 * <p>
-	 * If the model has already been created, it will be returned. If not, it
-	 * will be created using the model factory. The model factory may also use a
-	 * registry to get required models before returning the desired model.
+	 * If the model has already been created for the current modification stamp
+	 * of the resource, it will be returned. If not, it will be created using
+	 * the model factory. The model factory may also use a registry to get
+	 * required models before returning the desired model.
 	 *
 	 * @param <T>
 	 *            The model type. The model will be cast to this type so the
@@ -107,20 +148,18 @@ public <T extends Model> T getModel(String modelName, ValidatorResource resource
 		Param.notNull(resource, "resource");
 
 		String resourcePath = resource.getFileAsFile().getAbsolutePath();
+		Object modificationStamp = resource.getModificationStamp();
 
-		Map<String, Model> nameToModelForResourceMap = resourceToModelsMap.get(resourcePath);
-		if (nameToModelForResourceMap == null) {
-			nameToModelForResourceMap = new HashMap<String, Model>();
-			resourceToModelsMap.put(resourcePath, nameToModelForResourceMap);
+		ResourceModels models;
+		synchronized (resourceToModelsMap) {
+			models = resourceToModelsMap.get(resourcePath);
+			if (models == null || !models.modificationStamp.equals(modificationStamp)) {
+				models = new ResourceModels(modificationStamp);
+				resourceToModelsMap.put(resourcePath, models);
+			}
 		}
 
-		Model model = nameToModelForResourceMap.get(modelName);
-		if (model == null) {
-			model = getFactory(modelName).createModel(resource);
-			nameToModelForResourceMap.put(modelName, model);
-		}
-
-		return (T) model;
+		return (T) models.getModel(modelName, getFactory(modelName), resource);
 	}
 
 	/**
@@ -143,7 +182,8 @@ public ModelFactory getFactory(String modelName) {
 	}
 
 	/**
-	 * Removes all models for the given resource.
+	 * Removes all models for the given resource. This is not needed to get
+	 * models for a changed resource, but it can be used to free memory.
 	 *
 	 * @param resource
 	 *            The resource that may have models registered. Cannot be null.
@@ -154,7 +194,9 @@ public void clearValidator(ValidatorResource resource) {
 		}
 
 		String resourcePath = resource.getFileAsFile().getAbsolutePath();
-		resourceToModelsMap.remove(resourcePath);
+		synchronized (resourceToModelsMap) {
+			resourceToModelsMap.remove(resourcePath);
+		}
 	}
 
 	/**
@@ -171,4 +213,58 @@ public boolean isRegistered(String name) {
 		return modelNameToFactoryMap.containsKey(name);
 	}
 
+	/**
+	 * ResourceModels holds the models for one version of a resource.
+	 */
+	private static class ResourceModels {
+
+		/**
+		 * The modification stamp of the resource when the models were
+		 * created.
+		 */
+		private final Object modificationStamp;
+
+		/**
+		 * A mapping from model names to the models. Access must be
+		 * synchronized on this. Will never be null.
+		 */
+		private final Map<String, Model> nameToModelMap = new HashMap<String, Model>();
+
+		/**
+		 * Constructor for ResourceModels.
+		 *
+		 * @param modificationStamp
+		 *            The modification stamp of the resource when the models
+		 *            were created.
+		 */
+		private ResourceModels(Object modificationStamp) {
+			this.modificationStamp = modificationStamp;
+		}
+
+		/**
+		 * Returns the model with the given name, creating it if it does not
+		 * exist. The lock is held while the model is created, so that other
+		 * threads wait for it instead of creating it again. Factories that
+		 * get other models for the same resource run in the same thread, so
+		 * they do not block.
+		 *
+		 * @param modelName
+		 *            The name of the model type. Cannot be null or empty.
+		 * @param factory
+		 *            The factory to create the model with. Cannot be null.
+		 * @param resource
+		 *            The resource to create the model from. Cannot be null.
+		 *
+		 * @return The model. Will not be null.
+		 */
+		private synchronized Model getModel(String modelName, ModelFactory factory, ValidatorResource resource) {
+			Model model = nameToModelMap.get(modelName);
+			if (model == null) {
+				model = factory.createModel(resource);
+				nameToModelMap.put(modelName, model);
+			}
+
+			return model;
+		}
+	}
 }
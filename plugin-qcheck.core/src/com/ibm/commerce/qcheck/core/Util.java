@@ -26,6 +26,7 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -39,6 +40,12 @@ public final class Util {
 
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
+	/**
+	 * The maximum number of milliseconds to wait for the output of a process
+	 * to be read after the process ends.
+	 */
+	private static final long OUTPUT_DRAIN_MILLIS = 1000;
+
 	/**
 	 * Constructor for this. Private to prevent instantiation.
 	 */
@@ -266,8 +273,10 @@ public static String runUntilCompletion(String command, File workingDir, boolean
 	 *         but may be empty.
 	 *
 	 * @throws IOException
-	 *             If there was an error executing the command, or the error
-	 *             code was non-zero and <code>exceptionOnError</code> is true.
+	 *             If there was an error executing the command, the current
+	 *             thread was interrupted while waiting (in which case the
+	 *             process is destroyed), or the error code was non-zero and
+	 *             <code>exceptionOnError</code> is true.
 	 */
 	public static String runUntilCompletion(String command, Map<String, String> environmentVariables, File workingDir,
 			boolean exceptionOnError) throws IOException {
@@ -288,27 +297,33 @@ public static String runUntilCompletion(String command, Map<String, String> envi
 			ReadOutputRunnable stdOutRunnable = new ReadOutputRunnable(stdOut, stdOutBuffer);
 			ReadOutputRunnable stdErrRunnable = new ReadOutputRunnable(stdErr, stdErrBuffer);
 
-			Thread stdOutThread = new Thread(stdOutRunnable);
+			// daemon threads, so that a stream which is never closed cannot
+			// keep the VM alive
+			Thread stdOutThread = new Thread(stdOutRunnable, "stdout of " + command);
+			stdOutThread.setDaemon(true);
 			stdOutThread.start();
-			Thread stdErrThread = new Thread(stdErrRunnable);
+			Thread stdErrThread = new Thread(stdErrRunnable, "stderr of " + command);
+			stdErrThread.setDaemon(true);
 			stdErrThread.start();
 
-			while ((stdOutThread.isAlive() || stdErrThread.isAlive()) && isRunning(process)) {
-				try {
-					Thread.sleep(200);
-				} catch (InterruptedException e) {
-					// just keep checking
-				}
-			}
-
-			if (stdOutThread.isAlive()) {
+			try {
+				process.waitFor();
+				stdOutThread.join(OUTPUT_DRAIN_MILLIS);
+				stdErrThread.join(OUTPUT_DRAIN_MILLIS);
+			} catch (InterruptedException e) {
+				// the validation was canceled, and the readers may still hold
+				// the locks of the streams
+				process.destroy();
 				safeTermination = false;
-				stdOutThread.stop();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while running " + command);
 			}
 
-			if (stdErrThread.isAlive()) {
+			// a child of the process may still hold the streams open, in which
+			// case the readers are left to finish when the streams close
+			if (stdOutThread.isAlive() || stdErrThread.isAlive()) {
 				safeTermination = false;
-				stdErrThread.stop();
+				Debug.VALIDATOR.log("Output of ", command, " was not closed after the process ended.");
 			}
 
 			output = stdOutBuffer.toString();
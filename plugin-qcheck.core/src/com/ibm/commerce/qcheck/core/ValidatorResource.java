@@ -103,6 +103,16 @@ public interface ValidatorResource {
 	 */
 	public String getClassName();
 
+	/**
+	 * Returns a value which changes when the contents of this resource
+	 * change. Stamps are compared with {@link Object#equals(Object)}, and
+	 * models which were created for one modification stamp are not reused for
+	 * another.
+	 *
+	 * @return The modification stamp of this resource. Will not be null.
+	 */
+	public Object getModificationStamp();
+
 	public ModelRegistry getModelRegistry();
 
 	public List<ModelEnum> getSupportedModels();
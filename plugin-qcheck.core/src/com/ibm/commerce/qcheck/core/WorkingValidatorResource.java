@@ -19,6 +19,7 @@
  */
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
@@ -34,10 +35,23 @@
  */
 public class WorkingValidatorResource extends BaseValidatorResource<IJavaElement> {
 
+	/**
+	 * The modification stamp for the next instance of this. Stamps count down
+	 * from -2 so that they are different from the stamps of saved files, which
+	 * are positive or {@link org.eclipse.core.resources.IResource#NULL_STAMP}.
+	 */
+	private static final AtomicLong NEXT_MODIFICATION_STAMP = new AtomicLong(-2);
+
 	private String bufferContents;
 
 	private CompilationUnit comp;
 
+	/**
+	 * The stamp for the working memory given to this, which is different for
+	 * each instance.
+	 */
+	private long modificationStamp = NEXT_MODIFICATION_STAMP.getAndDecrement();
+
 	/**
 	 * Constructor for WorkingValidatorResource.
 	 *
@@ -109,6 +123,17 @@ public IResource getFileAsResource() {
 		return null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A new instance of this is created for each change in working memory, so
+	 * each instance has its own stamp.
+	 */
+	@Override
+	public Object getModificationStamp() {
+		return Long.valueOf(modificationStamp);
+	}
+
 	public String getWorkingVersion() {
 		return bufferContents;
 	}
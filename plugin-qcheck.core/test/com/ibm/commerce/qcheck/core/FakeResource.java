@@ -19,6 +19,7 @@
  */
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.core.resources.IResource;
@@ -93,6 +94,14 @@ public String getFilename() {
 		return null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getModificationStamp() {
+		return Arrays.asList(file.lastModified(), file.length());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -19,6 +19,12 @@
  */
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -230,4 +236,205 @@ public void testClearValidatorIfNormalExpectSecondModelNotSameAsFirst() throws E
 		Model output2 = registry.getModel("Hello", resource);
 		assertEquals(model2, output2);
 	}
+
+	/**
+	 * Tests that if the file of a resource changes after a model is requested,
+	 * and then the same model is requested again, it will be a new model.
+	 *
+	 * @throws Exception
+	 *             If an unexpected error occurs.
+	 */
+	public void testGetModelIfFileChangedExpectNewModel() throws Exception {
+		File file = createTempFile(true, false, "junk.txt");
+
+		ModelRegistry registry = new ModelRegistry();
+		CountingFactory factory = new CountingFactory();
+		ValidatorResource resource = new FakeResource(file);
+
+		registry.register("Hello", factory);
+		Model output1 = registry.getModel("Hello", resource);
+		Model output2 = registry.getModel("Hello", resource);
+		file.setLastModified(file.lastModified() + 10000);
+		Model output3 = registry.getModel("Hello", resource);
+
+		assertSame("Model was created again before the file changed.", output1, output2);
+		assertNotSame("Model was not created again after the file changed.", output1, output3);
+		assertEquals("Wrong number of models created.", 2, factory.getCreatedCount());
+	}
+
+	/**
+	 * Tests that if the last modified time of a file increases while its
+	 * length decreases by 31 times as much, and then the same model is
+	 * requested again, it will be a new model.
+	 *
+	 * @throws Exception
+	 *             If an unexpected error occurs.
+	 */
+	public void testGetModelIfTimeAndLengthChangesCancelOutExpectNewModel() throws Exception {
+		File file = createTempFile(true, false, "junk.txt");
+		writeBytes(file, 31 * 1000 + 10);
+		file.setLastModified(file.lastModified() - 100000);
+
+		ModelRegistry registry = new ModelRegistry();
+		CountingFactory factory = new CountingFactory();
+		ValidatorResource resource = new FakeResource(file);
+
+		registry.register("Hello", factory);
+		Model output1 = registry.getModel("Hello", resource);
+		long lastModified = file.lastModified();
+		writeBytes(file, 10);
+		file.setLastModified(lastModified + 1000);
+		Model output2 = registry.getModel("Hello", resource);
+
+		assertNotSame("Model was not created again after the file changed.", output1, output2);
+		assertEquals("Wrong number of models created.", 2, factory.getCreatedCount());
+	}
+
+	/**
+	 * Tests that if models are requested for more resources than the registry
+	 * keeps, the models for the least recently used resource are created
+	 * again, and the others are kept.
+	 *
+	 * @throws Exception
+	 *             If an unexpected error occurs.
+	 */
+	public void testGetModelIfMoreResourcesThanMaxExpectLeastRecentlyUsedRemoved() throws Exception {
+		ValidatorResource resource1 = new FakeResource(createTempFile(true, false, "junk1.txt"));
+		ValidatorResource resource2 = new FakeResource(createTempFile(true, false, "junk2.txt"));
+		ValidatorResource resource3 = new FakeResource(createTempFile(true, false, "junk3.txt"));
+
+		ModelRegistry registry = new ModelRegistry(2);
+		CountingFactory factory = new CountingFactory();
+		registry.register("Hello", factory);
+
+		Model model1 = registry.getModel("Hello", resource1);
+		Model model2 = registry.getModel("Hello", resource2);
+		registry.getModel("Hello", resource1);
+		registry.getModel("Hello", resource3);
+
+		assertSame("Recently used model was removed.", model1, registry.getModel("Hello", resource1));
+		assertNotSame("Least recently used model was kept.", model2, registry.getModel("Hello", resource2));
+		assertEquals("Wrong number of models created.", 4, factory.getCreatedCount());
+	}
+
+	/**
+	 * Tests that if the maximum number of resources is 0, an exception will be
+	 * thrown.
+	 */
+	public void testConstructorIfMaxResourcesZeroExpectException() {
+		try {
+			new ModelRegistry(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+
+	/**
+	 * Tests that if many threads request the same models at the same time,
+	 * each model is only created once and all threads get the same model.
+	 *
+	 * @throws Exception
+	 *             If an unexpected error occurs.
+	 */
+	public void testGetModelIfManyThreadsExpectEachModelCreatedOnce() throws Exception {
+		final int threadCount = 16;
+		final int resourceCount = 4;
+		final List<ValidatorResource> resources = new ArrayList<ValidatorResource>();
+		for (int i = 0; i < resourceCount; i++) {
+			resources.add(new FakeResource(createTempFile(true, false, "junk" + i + ".txt")));
+		}
+
+		final ModelRegistry registry = new ModelRegistry();
+		final CountingFactory factory = new CountingFactory();
+		registry.register("Hello", factory);
+
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final Model[][] outputs = new Model[threadCount][resourceCount];
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < threadCount; i++) {
+			final int threadIndex = i;
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+						for (int j = 0; j < resourceCount; j++) {
+							int resourceIndex = (threadIndex + j) % resourceCount;
+							outputs[threadIndex][resourceIndex] = registry.getModel("Hello",
+									resources.get(resourceIndex));
+						}
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+
+		startLatch.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals("Errors occurred: " + errors, 0, errors.size());
+		assertEquals("Wrong number of models created.", resourceCount, factory.getCreatedCount());
+		for (int i = 0; i < threadCount; i++) {
+			for (int j = 0; j < resourceCount; j++) {
+				assertSame("Thread " + i + " got a different model for resource " + j + ".", outputs[0][j],
+						outputs[i][j]);
+			}
+		}
+	}
+
+	private void writeBytes(File file, int length) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[length]);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * CountingFactory creates a new model each time, slowly enough that other
+	 * threads can request the same model at the same time, and counts the
+	 * models created.
+	 */
+	private static class CountingFactory implements ModelFactory<StringModel> {
+
+		/**
+		 * The number of models created so far.
+		 */
+		private AtomicInteger createdCount = new AtomicInteger();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public StringModel createModel(ValidatorResource resource) {
+			createdCount.incrementAndGet();
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return new StringModel(resource.getFileAsFile().getName());
+		}
+
+		/**
+		 * Returns the number of models created so far.
+		 *
+		 * @return The number of models created. Will be &gt;= 0.
+		 */
+		private int getCreatedCount() {
+			return createdCount.get();
+		}
+	}
 }
@@ -23,10 +23,10 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -51,10 +51,24 @@ public abstract class BaseExternalValidator implements Validator {
 	private static final List<ModelEnum> REQUIRED_MODELS = Arrays.asList(ModelEnum.EXTERNAL);
 
 	/**
-	 * The max count of files to be validated each time.
+	 * The max count of files to be validated each time. This keeps the command
+	 * line within the limits of the operating system.
 	 */
 	private static final int MAX_VALIDATED_PER_RUN = 300;
 
+	/**
+	 * The min count of files to be validated each time, unless fewer are left.
+	 * This limits the number of times that the tool starts up.
+	 */
+	private static final int MIN_VALIDATED_PER_RUN = 10;
+
+	/**
+	 * The number of milliseconds that each run of the tool should take. Runs
+	 * are kept short so that runs in different threads finish at about the
+	 * same time.
+	 */
+	private static final long TARGET_MILLIS_PER_RUN = 30000;
+
 	/**
 	 * The platform-specific line separator, to be used in writing output files.
 	 */
@@ -83,6 +97,12 @@ public abstract class BaseExternalValidator implements Validator {
 	 */
 	private String outputDir;
 
+	/**
+	 * The runner that divides the resources into batches, and runs the tool on
+	 * the batches. This value will never be null.
+	 */
+	private ExternalBatchRunner<ValidatorResource, List<ValidationResult>> batchRunner;
+
 	/**
 	 * The base command but not including the files absolute path to be
 	 * validated. This value will never be null. See {@link #getBaseCommand} for
@@ -129,6 +149,8 @@ public BaseExternalValidator(String validatorName, String validatorDirName) {
 		}
 
 		baseCommand = new StringBuffer();
+		batchRunner = new ExternalBatchRunner<ValidatorResource, List<ValidationResult>>(outputDirFile,
+				MIN_VALIDATED_PER_RUN, MAX_VALIDATED_PER_RUN, TARGET_MILLIS_PER_RUN);
 	}
 
 	/**
@@ -143,7 +165,9 @@ protected String getValidatorDir() {
 
 	/**
 	 * Returns the absolute directory where temporary output files of the
-	 * validator will be stored.
+	 * validator will be stored. Each run of the tool writes its output files
+	 * to a new directory inside this one, which is given to
+	 * {@link Processor#prepareForFileGroup(StringBuffer, File)}.
 	 *
 	 * @return The directory for temporary output files. Will not be null or
 	 *         empty.
@@ -197,46 +221,49 @@ public List<ModelEnum> getRequiredModels() {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public List<ValidationResult> analyze(List<ValidatorResource> resources, ProblemActionFactory actionFactory,
-			IProgressMonitor monitor) throws ValidationException, IOException, OperationCanceledException {
+	public List<ValidationResult> analyze(List<ValidatorResource> resources, final ProblemActionFactory actionFactory,
+			final IProgressMonitor monitor) throws ValidationException, IOException, OperationCanceledException {
 
 		try {
 			monitor.beginTask("Checking Java files with " + getValidatorName(), resources.size());
 
-			File outputPath = new File(getOutputDir());
-			if (!outputPath.exists()) {
-				if (!outputPath.mkdirs()) {
-					throw new IOException("Could not create the directories for " + outputPath);
-				}
-			}
-
-			Processor processor = createProcessor(actionFactory);
-			Map<String, ValidatorResource> nameToResourceMap = new LinkedHashMap<String, ValidatorResource>();
-			for (ValidatorResource resource : resources) {
-				String name = processor.createName(resource);
-				nameToResourceMap.put(name, resource);
-			}
+			Options.ensureLoaded();
+			Integer threads = Options.Attributes.EXTERNAL_TOOL_THREADS.getValue();
 
 			long begin = System.currentTimeMillis();
-			processResources(nameToResourceMap, processor);
-			long afterValidator = System.currentTimeMillis();
+			List<List<ValidationResult>> batchResults;
+			try {
+				batchResults = batchRunner.run(resources, threads,
+						new ExternalBatchRunner.BatchTask<ValidatorResource, List<ValidationResult>>() {
+
+							@Override
+							public List<ValidationResult> run(List<ValidatorResource> batch, File outputDir) {
+								return analyzeBatch(batch, outputDir, actionFactory);
+							}
+
+							@Override
+							public void batchFinished(List<ValidatorResource> batch) {
+								monitor.worked(batch.size());
+							}
+
+							@Override
+							public boolean isCanceled() {
+								return monitor.isCanceled();
+							}
+						});
+			} catch (CancellationException e) {
+				throw new OperationCanceledException(e.getMessage());
+			}
 
 			List<ValidationResult> results = new ArrayList<ValidationResult>();
-			// TODO fix this
-			List<File> outputFiles = processor.findOutputFiles(outputPath);
-			if (outputFiles != null) {
-				if (!outputFiles.isEmpty()) {
-					parseFiles(outputFiles, nameToResourceMap, results, processor);
-				}
+			for (List<ValidationResult> batchResult : batchResults) {
+				results.addAll(batchResult);
 			}
 
-			// Cleanup the temporary output files of validating.
-			deleteOutputFiles(outputPath);
-
 			long over = System.currentTimeMillis();
 
-			Debug.VALIDATOR.log("Validation time for ", getValidatorName(), ": ", afterValidator - begin,
-					" ms, Processing output time: ", over - afterValidator, " ms");
+			Debug.VALIDATOR.log("Validation time for ", getValidatorName(), " in ", threads, " threads: ",
+					over - begin, " ms");
 
 			return results;
 		} finally {
@@ -245,13 +272,66 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 	}
 
 	/**
-	 * Process the resources. This method is used to build the command line
-	 * which is passed to invokeFindBugs.
+	 * Runs the tool on one batch of resources and parses its output. This
+	 * method may be called by several threads at the same time, so it uses a
+	 * new processor for each batch.
 	 *
 	 * @param resources
-	 *            The resources to be validated. Will not be null.
+	 *            The resources to be validated. Cannot be null or empty.
+	 * @param outputDir
+	 *            The directory where the tool writes the output files for this
+	 *            batch. Cannot be null.
+	 * @param actionFactory
+	 *            The factory used to generate actions to take in response to
+	 *            errors. Cannot be null.
+	 *
+	 * @return The problems that were found in the resources. Will not be null.
+	 */
+	private List<ValidationResult> analyzeBatch(List<ValidatorResource> resources, File outputDir,
+			ProblemActionFactory actionFactory) {
+		Processor processor = createProcessor(actionFactory);
+		Map<String, ValidatorResource> nameToResourceMap = new LinkedHashMap<String, ValidatorResource>();
+		for (ValidatorResource resource : resources) {
+			String name = processor.createName(resource);
+			nameToResourceMap.put(name, resource);
+		}
+
+		long begin = System.currentTimeMillis();
+		processResources(nameToResourceMap, processor, outputDir);
+		long afterValidator = System.currentTimeMillis();
+
+		List<ValidationResult> results = new ArrayList<ValidationResult>();
+		List<File> outputFiles = processor.findOutputFiles(outputDir);
+		if (outputFiles != null) {
+			if (!outputFiles.isEmpty()) {
+				parseFiles(outputFiles, nameToResourceMap, results, processor);
+			}
+		}
+
+		long over = System.currentTimeMillis();
+
+		if (Debug.VALIDATOR.isActive()) {
+			Debug.VALIDATOR.log("Batch time for ", getValidatorName(), ": ", afterValidator - begin,
+					" ms, Processing output time: ", over - afterValidator, " ms");
+		}
+
+		return results;
+	}
+
+	/**
+	 * Process the resources of one batch. This method is used to build the
+	 * command line which is passed to {@link #invokeTool(String, Map)}.
+	 *
+	 * @param nameToResourceMap
+	 *            The resources to be validated, by name. Will not be null.
+	 * @param processor
+	 *            The processor for this batch. Will not be null.
+	 * @param outputDir
+	 *            The directory where the tool writes the output files for this
+	 *            batch. Will not be null.
 	 */
-	private void processResources(Map<String, ValidatorResource> nameToResourceMap, Processor processor) {
+	private void processResources(Map<String, ValidatorResource> nameToResourceMap, Processor processor,
+			File outputDir) {
 
 		if (Debug.VALIDATOR.isActive()) {
 			Debug.VALIDATOR.log("Validating file...");
@@ -260,48 +340,29 @@ private void processResources(Map<String, ValidatorResource> nameToResourceMap,
 		// The command to be executed
 		StringBuffer buffer = new StringBuffer();
 
-		int totalLoops = nameToResourceMap.size() / MAX_VALIDATED_PER_RUN;
-		int lastLoop = nameToResourceMap.size() % MAX_VALIDATED_PER_RUN;
-		if (lastLoop == 0) {
-			lastLoop = MAX_VALIDATED_PER_RUN;
-		} else {
-			totalLoops += 1;
-		}
-
 		processor.prepareToProcessAll();
+		processor.prepareForFileGroup(buffer, outputDir);
 
-		Iterator<ValidatorResource> resourceIterator = nameToResourceMap.values().iterator();
+		int totalClasses = 0;
 		int resourceIndex = 0;
-		for (int loopIndex = 0; loopIndex < totalLoops; loopIndex++) {
-			buffer.setLength(0);
-
-			processor.prepareForFileGroup(buffer, loopIndex);
-
-			int timesInLoop = MAX_VALIDATED_PER_RUN;
-			if (loopIndex == totalLoops - 1) {
-				timesInLoop = lastLoop;
+		for (ValidatorResource resource : nameToResourceMap.values()) {
+			boolean isLastResource = resourceIndex == nameToResourceMap.size() - 1;
+			boolean appended = processor.processResource(buffer, resource, isLastResource);
+			if (appended) {
+				totalClasses++;
 			}
 
-			int totalClasses = 0;
-			for (int i = 0; i < timesInLoop; i++) {
-				ValidatorResource resource = resourceIterator.next();
-				boolean appended = processor.processResource(buffer, resource, resourceIndex == timesInLoop - 1);
-				if (appended) {
-					totalClasses++;
-				}
-
-				resourceIndex++;
-			}
-			String command = buffer.toString();
+			resourceIndex++;
+		}
+		String command = buffer.toString();
 
-			buffer.setLength(0);
-			Map<String, String> sourceEnvironment = System.getenv();
-			Map<String, String> environment = new HashMap<String, String>(sourceEnvironment);
-			processor.prepareToInvoke(buffer, environment);
+		buffer.setLength(0);
+		Map<String, String> sourceEnvironment = System.getenv();
+		Map<String, String> environment = new HashMap<String, String>(sourceEnvironment);
+		processor.prepareToInvoke(buffer, environment);
 
-			if (totalClasses > 0) {
-				invokeTool(command, environment);
-			}
+		if (totalClasses > 0) {
+			invokeTool(command, environment);
 		}
 	}
 
@@ -354,30 +415,6 @@ private void parseFiles(List<File> outputFiles, Map<String, ValidatorResource> n
 		}
 	}
 
-	/**
-	 * Delete all of the output files generated last time.
-	 *
-	 * @param outputPath
-	 *            The files in which to be deleted. Will not be null.
-	 *
-	 * @throws IOException
-	 *             If a file could not be deleted.
-	 */
-	private synchronized void deleteOutputFiles(File outputPath) throws IOException {
-		if (outputPath != null) {
-			File[] outputFiles = outputPath.listFiles();
-			if (outputFiles != null) {
-				if (outputFiles.length != 0) {
-					for (File file : outputFiles) {
-						if (!file.delete()) {
-							throw new IOException("Could not delete " + file);
-						}
-					}
-				}
-			}
-		}
-	}
-
 	/**
 	 * An interface for callback methods, used by the algorithm at appropriate
 	 * times.
@@ -385,7 +422,8 @@ private synchronized void deleteOutputFiles(File outputPath) throws IOException
 	protected static interface Processor {
 
 		/**
-		 * Called before processing any resources.
+		 * Called before processing any resources. Each processor is used for
+		 * only one group of files.
 		 */
 		void prepareToProcessAll();
 
@@ -405,14 +443,17 @@ protected static interface Processor {
 		 * command line, the command will fail if it is too long. For this
 		 * reason, a list of files is divided into groups that limit the size of
 		 * the list. Each group will result in one execution of the external
-		 * tool. There may be multiple groups of files.
+		 * tool. There may be multiple groups of files, which may be run at
+		 * the same time.
 		 *
 		 * @param buffer
 		 *            A buffer representing the command line. Cannot be null.
-		 * @param loopIndex
-		 *            The index into the list of groups to run. Must be >= 0.
+		 * @param outputDir
+		 *            The new, empty directory where the tool should write its
+		 *            output files for this group. It is deleted after the
+		 *            output files are processed. Cannot be null.
 		 */
-		void prepareForFileGroup(StringBuffer buffer, int loopIndex);
+		void prepareForFileGroup(StringBuffer buffer, File outputDir);
 
 		/**
 		 * Called to handle a single resource. The resource may be added to the
@@ -440,13 +481,13 @@ protected static interface Processor {
 		void prepareToInvoke(StringBuffer buffer, Map<String, String> environment);
 
 		/**
-		 * Finds and returns the output files that were output from multiple
-		 * runs of the command line.
+		 * Finds and returns the output files that were output from the run of
+		 * the command line for the group of files.
 		 *
 		 * @param outputPath
-		 *            The directory where output files exist. Cannot be null.
-		 * @param filePattern
-		 *            The pattern to use to find files. Cannot be null.
+		 *            The directory where output files exist, which was given
+		 *            to {@link #prepareForFileGroup(StringBuffer, File)}.
+		 *            Cannot be null.
 		 *
 		 * @return The list of output files that were found. Will not be null,
 		 *         but may be empty if none were found.
@@ -36,7 +36,7 @@
 import com.ibm.commerce.cmt.plan.Plan;
 import com.ibm.commerce.cmt.plan.ReplaceInFileStep;
 import com.ibm.commerce.cmt.plan.Step;
-import com.ibm.commerce.dependency.load.APIFileManager;
+import com.ibm.commerce.dependency.load.BinaryAPIFileManager;
 import com.ibm.commerce.dependency.model.JavaItemIndex;
 import com.ibm.commerce.qcheck.core.CompUnitModel;
 import com.ibm.commerce.qcheck.core.Debug;
@@ -157,8 +157,8 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 				File serializedFile = new File(CodeMigrationTool.API_ZIP_FILENAME);
 				System.out.println("serializedFile = " + serializedFile.getAbsolutePath());
 
-				APIFileManager apiFileManager = new APIFileManager();
-				JavaItemIndex index = apiFileManager.loadAPI(serializedFile);
+				BinaryAPIFileManager apiFileManager = new BinaryAPIFileManager();
+				JavaItemIndex index = apiFileManager.loadAPIPreferBinary(serializedFile);
 				tool.initialize(index);
 			}
 
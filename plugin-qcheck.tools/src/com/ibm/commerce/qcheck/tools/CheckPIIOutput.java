@@ -25,13 +25,13 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,6 +47,15 @@
 /**
  * This class represents the output of the CHKPII program. It is designed to
  * parse the XML format.
+ * <p>
+ * The files are indexed by their US English path as they are added. Each
+ * directory and file is a node in a tree, and a second tree holds the same
+ * paths with the names in reverse order, so that {@link #findSimilar(PIIFile)}
+ * can find every stored path that ends the given path by walking the given
+ * path backwards once.
+ * <p>
+ * This class is not thread-safe while files are being added, but any number
+ * of threads may call {@link #findSimilar(PIIFile)} after parsing is finished.
  * 
  * @author Trent Hoeppner
  */
@@ -54,17 +63,40 @@ public class CheckPIIOutput {
 
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
-	private List<PIIFile> files;
+	private static final Pattern NAME_PATTERN = Pattern.compile("([^_]+)_([A-Z]{2})(_([A-Z]{2}))?\\.(.+)");
 
-	private Map<String, Set<Path>> childToPossibleParentsMap = new HashMap<String, Set<Path>>();
+	private static final Pattern DIR_PATTERN = Pattern.compile("(.+)\\\\([A-Z]{2})(_([A-Z]{2}))?\\\\");
 
-	private Map<Path, Set<Path>> parentToChildrenMap = new HashMap<Path, Set<Path>>();
+	/**
+	 * A mapping from each file to itself, used to find the existing file which
+	 * is equal to a new one. This value will never be null.
+	 */
+	private Map<PIIFile, PIIFile> fileMap = new HashMap<PIIFile, PIIFile>();
+
+	/**
+	 * The files in sorted order. This value will be null if files were added
+	 * since it was last sorted.
+	 */
+	private List<PIIFile> sortedFiles;
+
+	/**
+	 * The parent of the top directories of all file paths. This value will
+	 * never be null.
+	 */
+	private Node root = new Node(null, null);
+
+	/**
+	 * The start of the reversed paths, which maps the last name in each path
+	 * to the reversed paths that end with that name. This value will never be
+	 * null.
+	 */
+	private SuffixNode suffixRoot = new SuffixNode();
 
 	/**
 	 * Constructor for this.
 	 */
 	public CheckPIIOutput() {
-		files = new ArrayList<PIIFile>();
+		// do nothing
 	}
 
 	/**
@@ -85,7 +117,9 @@ public void parse(String contents) {
 
 	/**
 	 * Parses the contents of the given stream to generate an output class that
-	 * represents the important parts of the CHKPII output.
+	 * represents the important parts of the CHKPII output. The stream is read
+	 * incrementally, and each file is added to the index as soon as its
+	 * element ends, so the whole report is never held in memory.
 	 * <p>
 	 * This method does not close the given stream when finished.
 	 *
@@ -102,7 +136,6 @@ public void parse(InputStream in) {
 			SAXParser saxParser = factory.newSAXParser();
 
 			saxParser.parse(in, handler);
-			Collections.sort(files);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -127,7 +160,7 @@ public void save(Writer writer) throws IOException {
 		write(buf, "<Report>");
 		write(buf, "<Files>");
 
-		for (PIIFile file : files) {
+		for (PIIFile file : getFiles()) {
 			for (Locale locale : file.getVariants()) {
 				write(buf, "<File>");
 				write(buf, "<Name>", file.getName(locale), "</Name>");
@@ -154,41 +187,45 @@ public void write(StringBuffer buf, String... message) {
 	/**
 	 * Returns the files that have been {@link #parse(String) parsed}.
 	 *
-	 * @return The files that were found in the output from CHKPII. This value
-	 *         will not be null, but may be empty.
+	 * @return The files that were found in the output from CHKPII, in sorted
+	 *         order. This value will not be null, but may be empty.
 	 */
-	public List<PIIFile> getFiles() {
-		return Collections.unmodifiableList(files);
+	public synchronized List<PIIFile> getFiles() {
+		if (sortedFiles == null) {
+			List<PIIFile> files = new ArrayList<PIIFile>(fileMap.values());
+			Collections.sort(files);
+			sortedFiles = Collections.unmodifiableList(files);
+		}
+
+		return sortedFiles;
 	}
 
+	/**
+	 * Adds the given file to this, if an equal file has not been added yet.
+	 *
+	 * @param file
+	 *            The file to add. This value cannot be null.
+	 *
+	 * @return The file that was added before and is equal to the given file,
+	 *         or the given file if there was none. This value will not be
+	 *         null.
+	 */
 	public PIIFile addFile(PIIFile file) {
-		int existingIndex = Collections.binarySearch(files, file);
-		if (existingIndex >= 0) {
-			file = files.get(existingIndex);
-		} else {
-			int insertIndex = -(existingIndex + 1);
-			files.add(insertIndex, file);
-
-			Path path = createPath(file);
-			while (path != null) {
-				Set<Path> possibleParents = childToPossibleParentsMap.get(path.getName());
-				if (possibleParents == null) {
-					possibleParents = new HashSet<Path>();
-					childToPossibleParentsMap.put(path.getName(), possibleParents);
-				}
-
-				possibleParents.add(path.getParent());
+		PIIFile existing = fileMap.get(file);
+		if (existing != null) {
+			return existing;
+		}
 
-				Set<Path> children = parentToChildrenMap.get(path.getParent());
-				if (children == null) {
-					children = new HashSet<Path>();
-					parentToChildrenMap.put(path.getParent(), children);
-				}
+		fileMap.put(file, file);
+		sortedFiles = null;
 
-				children.add(path);
+		Node node = root;
+		for (String name : createPath(file)) {
+			node = node.getOrAddChild(name);
+		}
 
-				path = path.getParent();
-			}
+		if (node.file == null) {
+			node.file = file;
 		}
 
 		return file;
@@ -196,10 +233,6 @@ public PIIFile addFile(PIIFile file) {
 
 	private class Handler extends DefaultHandler {
 
-		private Pattern namePattern = Pattern.compile("([^_]+)_([A-Z]{2})(_([A-Z]{2}))?\\.(.+)");
-
-		private Pattern dirPattern = Pattern.compile("(.+)\\\\([A-Z]{2})(_([A-Z]{2}))?\\\\");
-
 		private boolean inFile = false;
 
 		/**
@@ -238,7 +271,7 @@ public void endElement(String uri, String localName, String qName) throws SAXExc
 				}
 
 				boolean variantInParent;
-				Matcher baseNameMatcher = namePattern.matcher(baseName);
+				Matcher baseNameMatcher = NAME_PATTERN.matcher(baseName);
 				String language = null;
 				String country = null;
 				if (baseNameMatcher.matches()) {
@@ -247,7 +280,7 @@ public void endElement(String uri, String localName, String qName) throws SAXExc
 					baseName = baseNameMatcher.group(1) + "." + baseNameMatcher.group(5);
 					variantInParent = false;
 				} else {
-					Matcher dirMatcher = dirPattern.matcher(dir);
+					Matcher dirMatcher = DIR_PATTERN.matcher(dir);
 					if (dirMatcher.matches()) {
 						language = dirMatcher.group(2).toLowerCase();
 						country = dirMatcher.group(4);
@@ -284,8 +317,7 @@ public void endElement(String uri, String localName, String qName) throws SAXExc
 		@Override
 		public void characters(char[] charData, int startIndex, int length) throws SAXException {
 			if (inFile) {
-				String subString = String.valueOf(charData, startIndex, length);
-				currentContents.append(subString);
+				currentContents.append(charData, startIndex, length);
 			} else {
 				currentContents.setLength(0);
 			}
@@ -306,7 +338,8 @@ public void characters(char[] charData, int startIndex, int length) throws SAXEx
 	 * the given file.
 	 * <p>
 	 * The search is done by using the US English locale to substitute as
-	 * appropriate to find a match.
+	 * appropriate to find a match. The time taken is proportional to the depth
+	 * of the given path, plus the number of files returned.
 	 *
 	 * @param file
 	 *            The file to find a match for. This value cannot be null.
@@ -317,172 +350,153 @@ public void characters(char[] charData, int startIndex, int length) throws SAXEx
 	public PIIFileResults findSimilar(PIIFile file) {
 		Param.notNull(file, "file");
 
-		Path inputPath = createPath(file);
-		Set<Path> possibleParents = childToPossibleParentsMap.get(inputPath.getName());
-		if (possibleParents == null) {
-			possibleParents = new HashSet<Path>();
-		}
-		Object[] returnValues = removeInvalidParents(inputPath, possibleParents);
-		Set<Path> remainingPaths = (Set<Path>) returnValues[0];
-		boolean exactMatch = (Boolean) returnValues[1];
-
-		List<PIIFile> foundFiles = new ArrayList<PIIFile>();
-		for (Path path : remainingPaths) {
-			if (path.isLeaf()) {
-				foundFiles.add(path.getFile());
-			} else {
-				Set<PIIFile> childFiles = path.getChildFiles();
-				foundFiles.addAll(childFiles);
-			}
-		}
-
-		PIIFileResults results = new PIIFileResults(foundFiles, exactMatch);
+		List<String> inputPath = createPath(file);
 
-		return results;
-	}
-
-	private Object[] removeInvalidParents(Path inputPath, Set<Path> possibleParents) {
-		Set<Path> remainingPaths = new HashSet<Path>();
-		for (Path possibleParent : possibleParents) {
-			Path candidateParent = possibleParent;
-			Path requiredParent = inputPath.getParent();
-			boolean found = false;
-			while (requiredParent != null && candidateParent != null) {
-				if (!candidateParent.getName().equals(requiredParent.getName())) {
-					// not a candidate anymore
-					break;
-				} else if (candidateParent.getParent() == null) {
-					// the parents match, and this is the last part of the
-					// candidate path
-					found = true;
-					break;
-				}
-				requiredParent = requiredParent.getParent();
-				candidateParent = candidateParent.getParent();
-			}
-
-			if (found) {
-				remainingPaths.add(possibleParent);
+		// the stored paths which are the same as the end of the input path,
+		// and have at least one parent directory
+		List<Node> matches = new ArrayList<Node>();
+		SuffixNode suffix = suffixRoot;
+		for (int i = inputPath.size() - 1; i >= 0 && suffix != null; i--) {
+			suffix = suffix.getChild(inputPath.get(i));
+			if (suffix != null && suffix.node != null && i < inputPath.size() - 1) {
+				matches.add(suffix.node);
 			}
 		}
 
-		// if we only have one parent path, check if any child of that path is
-		// an exact match
-		boolean exact = false;
-		if (remainingPaths.size() == 1) {
-			Path remaining = remainingPaths.iterator().next();
-			Set<Path> children = parentToChildrenMap.get(remaining);
-			for (Path child : children) {
-				if (child.getName().equals(inputPath.getName())) {
-					// exact match, we can forget about the others in the parent
-					remainingPaths.clear();
-					remainingPaths.add(child);
-					exact = true;
-					break;
-				}
+		// if we only have one parent path, the child with the same name is an
+		// exact match, and we can forget about the others in the parent
+		boolean exactMatch = matches.size() == 1;
+		Set<PIIFile> foundFiles = new TreeSet<PIIFile>();
+		for (Node match : matches) {
+			if (exactMatch) {
+				match.addFiles(foundFiles);
+			} else {
+				match.parent.addFiles(foundFiles);
 			}
 		}
 
-		Object[] returnValues = new Object[] { remainingPaths, exact };
+		PIIFileResults results = new PIIFileResults(new ArrayList<PIIFile>(foundFiles), exactMatch);
 
-		return returnValues;
+		return results;
 	}
 
-	private Path createPath(PIIFile file) {
+	/**
+	 * Returns the names in the US English path of the given file, in upper
+	 * case.
+	 *
+	 * @param file
+	 *            The file to get the path of. This value cannot be null.
+	 *
+	 * @return The names in the path, starting with the top directory and ending
+	 *         with the file name. This value will not be null or empty.
+	 */
+	private List<String> createPath(PIIFile file) {
 		String textPath = file.getDir(Locale.US).toUpperCase() + "\\" + file.getName(Locale.US).toUpperCase();
 		StringTokenizer tokenizer = new StringTokenizer(textPath, "\\/");
-		Path current = null;
+		List<String> path = new ArrayList<String>();
 		while (tokenizer.hasMoreTokens()) {
-			String pathToken = tokenizer.nextToken();
-			current = new Path(pathToken, current);
+			path.add(tokenizer.nextToken());
 		}
 
-		current.file = file;
-
-		return current;
+		return path;
 	}
 
-	private class Path {
+	/**
+	 * Node is a directory or file in the tree of paths.
+	 */
+	private class Node {
 
+		/**
+		 * The name of the directory or file. This value will be null only for
+		 * {@link CheckPIIOutput#root}.
+		 */
 		private String name;
 
-		private Path parent;
+		/**
+		 * The directory that contains this. This value will be null only for
+		 * {@link CheckPIIOutput#root}.
+		 */
+		private Node parent;
+
+		/**
+		 * A mapping from names to the nodes inside this. This value will be
+		 * null if this has no children.
+		 */
+		private Map<String, Node> children;
 
-		// if null, this is not a leaf
+		/**
+		 * The file at this path. If null, this is a directory.
+		 */
 		private PIIFile file;
 
-		public Path(String name, Path parent) {
+		/**
+		 * Constructor for Node.
+		 *
+		 * @param name
+		 *            The name of the directory or file. May be null only for
+		 *            the root.
+		 * @param parent
+		 *            The directory that contains this. May be null only for
+		 *            the root.
+		 */
+		private Node(String name, Node parent) {
 			this.name = name;
 			this.parent = parent;
 		}
 
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + ((name == null) ? 0 : name.hashCode());
-			result = prime * result + ((parent == null) ? 0 : parent.hashCode());
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Path other = (Path) obj;
-			if (name == null) {
-				if (other.name != null)
-					return false;
-			} else if (!name.equals(other.name))
-				return false;
-			if (parent == null) {
-				if (other.parent != null)
-					return false;
-			} else if (!parent.equals(other.parent))
-				return false;
-			return true;
-		}
+		/**
+		 * Returns the child of this with the given name, adding it and its
+		 * reversed path if it does not exist yet.
+		 *
+		 * @param childName
+		 *            The name of the child. Cannot be null.
+		 *
+		 * @return The child with the given name. Will not be null.
+		 */
+		private Node getOrAddChild(String childName) {
+			if (children == null) {
+				children = new HashMap<String, Node>();
+			}
 
-		public boolean isLeaf() {
-			return file != null;
-		}
+			Node child = children.get(childName);
+			if (child == null) {
+				child = new Node(childName, this);
+				children.put(childName, child);
 
-		public Set<PIIFile> getChildFiles() {
-			Set<PIIFile> children = new HashSet<PIIFile>();
-			if (!isLeaf()) {
-				Set<Path> directChildren = parentToChildrenMap.get(this);
-				for (Path directChild : directChildren) {
-					if (directChild.isLeaf()) {
-						children.add(directChild.file);
-					} else {
-						children.addAll(directChild.getChildFiles());
-					}
+				SuffixNode suffix = suffixRoot;
+				for (Node current = child; current != root; current = current.parent) {
+					suffix = suffix.getOrAddChild(current.name);
 				}
+				suffix.node = child;
 			}
 
-			return children;
-		}
-
-		public String getName() {
-			return name;
+			return child;
 		}
 
-		public Path getParent() {
-			return parent;
-		}
-
-		public PIIFile getFile() {
-			return file;
+		/**
+		 * Adds the file at this path, or all the files inside this directory,
+		 * to the given set.
+		 *
+		 * @param files
+		 *            The set to add files to. Cannot be null.
+		 */
+		private void addFiles(Set<PIIFile> files) {
+			if (file != null) {
+				files.add(file);
+			} else if (children != null) {
+				for (Node child : children.values()) {
+					child.addFiles(files);
+				}
+			}
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
 		@Override
 		public String toString() {
 			String string = "";
-			if (parent != null) {
+			if (parent != null && parent.name != null) {
 				string = parent.toString() + "\\";
 			}
 
@@ -491,4 +505,63 @@ public String toString() {
 			return string;
 		}
 	}
+
+	/**
+	 * SuffixNode is a name in the tree of reversed paths. The path from
+	 * {@link CheckPIIOutput#suffixRoot} to a SuffixNode has the names of a path
+	 * in reverse order, starting with the file or directory name.
+	 */
+	private static class SuffixNode {
+
+		/**
+		 * A mapping from names to the next names in reversed paths. This value
+		 * will be null if there are no longer reversed paths.
+		 */
+		private Map<String, SuffixNode> children;
+
+		/**
+		 * The node whose whole path, from the top directory, is the reversed
+		 * path to this. This value will be null if no path starts here.
+		 */
+		private Node node;
+
+		/**
+		 * Returns the child of this with the given name.
+		 *
+		 * @param childName
+		 *            The name of the child. Cannot be null.
+		 *
+		 * @return The child with the given name. Will be null if there is none.
+		 */
+		private SuffixNode getChild(String childName) {
+			if (children == null) {
+				return null;
+			}
+
+			return children.get(childName);
+		}
+
+		/**
+		 * Returns the child of this with the given name, adding it if it does
+		 * not exist yet.
+		 *
+		 * @param childName
+		 *            The name of the child. Cannot be null.
+		 *
+		 * @return The child with the given name. Will not be null.
+		 */
+		private SuffixNode getOrAddChild(String childName) {
+			if (children == null) {
+				children = new HashMap<String, SuffixNode>();
+			}
+
+			SuffixNode child = children.get(childName);
+			if (child == null) {
+				child = new SuffixNode();
+				children.put(childName, child);
+			}
+
+			return child;
+		}
+	}
 }
@@ -44,7 +44,6 @@
 
 import com.ibm.commerce.qcheck.core.Debug;
 import com.ibm.commerce.qcheck.core.ModelEnum;
-import com.ibm.commerce.qcheck.core.ModelRegistry;
 import com.ibm.commerce.qcheck.core.Param;
 import com.ibm.commerce.qcheck.core.ProblemAction;
 import com.ibm.commerce.qcheck.core.ProblemActionFactory;
@@ -74,6 +73,8 @@ public class CheckPIIValidator extends BaseExternalValidator implements Configur
 
 	private static final Pattern NLS_ENCODING_PATTERN = Pattern.compile("NLS_ENCODING\\s*=\\s*(\\w+)");
 
+	private static final Pattern ENCODING_PERCENT_PATTERN = Pattern.compile("([A-Z][A-Z \\(\\)]+)=([\\d]+)%");
+
 	/**
 	 * This error code triggers a check if a new version of
 	 * checkpii.encoding.zip needs to be downloaded.
@@ -82,6 +83,25 @@ public class CheckPIIValidator extends BaseExternalValidator implements Configur
 
 	private Level level;
 
+	/**
+	 * The parsed contents of chkpii.encoding.zip, which are shared by all
+	 * batches until the file changes. This value will be null if the file has
+	 * not been parsed yet.
+	 */
+	private CheckPIIOutput encodingOutput;
+
+	/**
+	 * The time that chkpii.encoding.zip was last modified when
+	 * {@link #encodingOutput} was parsed.
+	 */
+	private long encodingOutputModified;
+
+	/**
+	 * The length of chkpii.encoding.zip when {@link #encodingOutput} was
+	 * parsed.
+	 */
+	private long encodingOutputLength;
+
 	/**
 	 * Constructor for this.
 	 *
@@ -98,10 +118,6 @@ public CheckPIIValidator(Level level) {
 
 		getBaseCommand().append(QUOTE).append(getValidatorDir()).append(File.separator).append("chkpii.exe")
 				.append(QUOTE).append(" ");
-		getBaseCommand().append(QUOTE).append("@").append(getOutputDir()).append(File.separator)
-				.append("piifilelist.txt").append(QUOTE).append(" ");
-		getBaseCommand().append("/c /e /o ");
-		getBaseCommand().append(QUOTE).append(getOutputDir()).append(File.separator).append("output.log").append(QUOTE);
 	}
 
 	/**
@@ -123,9 +139,10 @@ protected Processor createProcessor(ProblemActionFactory actionFactory) {
 	/**
 	 * Downloads the data from the URL defined in
 	 * {@link Options.Attributes#UPDATE_URL}. If the URL is empty, null or
-	 * malformed, downloading will not occur.
+	 * malformed, downloading will not occur. Batches that run at the same time
+	 * download one at a time.
 	 */
-	void download() {
+	synchronized void download() {
 		Options.ensureLoaded();
 		String serverBase = Options.Attributes.UPDATE_URL.getValue();
 		String validatorDirString = getValidatorDir();
@@ -142,6 +159,49 @@ void download() {
 		file.downloadIfOutOfDate();
 	}
 
+	/**
+	 * Returns the parsed contents of chkpii.encoding.zip. The file is only
+	 * parsed again if it has changed since it was last parsed, so batches and
+	 * validation runs share one copy. The returned value must not be modified.
+	 *
+	 * @return The files with known encodings. This value will not be null,
+	 *         but will be empty if the file could not be read.
+	 */
+	synchronized CheckPIIOutput getEncodingOutput() {
+		String validatorDirString = getValidatorDir();
+		File validatorDir = new File(validatorDirString);
+		File encodingZipFile = new File(validatorDir, "chkpii.encoding.zip");
+		long modified = encodingZipFile.lastModified();
+		long length = encodingZipFile.length();
+		if (encodingOutput != null && modified == encodingOutputModified && length == encodingOutputLength) {
+			return encodingOutput;
+		}
+
+		CheckPIIOutput output = new CheckPIIOutput();
+		ZipInputStream in = null;
+		try {
+			in = new ZipInputStream(new BufferedInputStream(new FileInputStream(encodingZipFile)));
+			in.getNextEntry();
+			output.parse(in);
+		} catch (IOException e) {
+			Debug.VALIDATOR.log(e, "Could not read file ", encodingZipFile, ".");
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					Debug.VALIDATOR.log(e, "Could not close file ", encodingZipFile, ".");
+				}
+			}
+		}
+
+		encodingOutput = output;
+		encodingOutputModified = modified;
+		encodingOutputLength = length;
+
+		return encodingOutput;
+	}
+
 	/**
 	 * A processor to handle preparation for running CHKPII and parsing the
 	 * output.
@@ -150,6 +210,10 @@ private final class CheckPIIProcessor implements Processor {
 
 		private BufferedWriter writer;
 
+		private File fileListFile;
+
+		private File outputFile;
+
 		private ProblemActionFactory actionFactory;
 
 		/**
@@ -176,7 +240,6 @@ public String createName(ValidatorResource resource) {
 		 */
 		@Override
 		public List<File> findOutputFiles(File outputPath) {
-			File outputFile = new File(getOutputDir(), "output.log");
 			List<File> outputFiles = new ArrayList<File>();
 			outputFiles.add(outputFile);
 
@@ -187,13 +250,17 @@ public List<File> findOutputFiles(File outputPath) {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public void prepareForFileGroup(StringBuffer buffer, int loopIndex) {
+		public void prepareForFileGroup(StringBuffer buffer, File outputDir) {
+			fileListFile = new File(outputDir, "piifilelist.txt");
+			outputFile = new File(outputDir, "output.log");
 			buffer.append(getBaseCommand());
+			buffer.append(QUOTE).append("@").append(fileListFile).append(QUOTE).append(" ");
+			buffer.append("/c /e /o ");
+			buffer.append(QUOTE).append(outputFile).append(QUOTE);
 			try {
-				writer = new BufferedWriter(new FileWriter(new File(getOutputDir(), "piifilelist.txt")));
+				writer = new BufferedWriter(new FileWriter(fileListFile));
 			} catch (IOException e) {
-				Debug.VALIDATOR.log(e, "Could not open file ", new File(getOutputDir(), "piifilelist.txt"),
-						" for writing.");
+				Debug.VALIDATOR.log(e, "Could not open file ", fileListFile, " for writing.");
 			}
 		}
 
@@ -206,8 +273,7 @@ public void prepareToInvoke(StringBuffer buffer, Map<String, String> environment
 				try {
 					writer.close();
 				} catch (IOException e) {
-					Debug.VALIDATOR.log(e, "Could not close file ", new File(getOutputDir(), "piifilelist.txt"),
-							" after writing.");
+					Debug.VALIDATOR.log(e, "Could not close file ", fileListFile, " after writing.");
 				}
 			}
 
@@ -233,8 +299,7 @@ public void processOutputFile(Map<String, ValidatorResource> nameToResourceMap,
 			Map<ValidatorResource, List<String>> resourceToLinesMap = createResourceToLinesMap(nameToResourceMap,
 					outputFile, shortenedToFullMap);
 
-			boolean downloadTriggered = false;
-			CheckPIIOutput output = new CheckPIIOutput();
+			CheckPIIOutput output = null;
 
 			Set<ValidatorResource> resourcesMissingEncoding = new HashSet<ValidatorResource>();
 			for (ValidatorResource resource : resourceToLinesMap.keySet()) {
@@ -258,7 +323,7 @@ public void processOutputFile(Map<String, ValidatorResource> nameToResourceMap,
 
 						resourcesMissingEncoding.add(resource);
 
-						downloadTriggered = ensureOutputParsed(downloadTriggered, output);
+						output = ensureOutputParsed(output);
 
 						PIIFile resourceAsPII = createPIIFile(resource);
 						PIIFileResults searchResults = output.findSimilar(resourceAsPII);
@@ -345,7 +410,7 @@ public void processOutputFile(Map<String, ValidatorResource> nameToResourceMap,
 						String actualEncoding = matcher.group(1);
 
 						// find the expected encoding
-						downloadTriggered = ensureOutputParsed(downloadTriggered, output);
+						output = ensureOutputParsed(output);
 
 						PIIFile resourceAsPII = createPIIFile(resource);
 						PIIFileResults searchResults = output.findSimilar(resourceAsPII);
@@ -416,8 +481,6 @@ public void processOutputFile(Map<String, ValidatorResource> nameToResourceMap,
 						}
 					}
 				}
-
-				ModelRegistry.getDefault().clearValidator(resource);
 			}
 		}
 
@@ -446,33 +509,12 @@ private PIIFile createPIIFile(ValidatorResource resource) {
 			return resourceAsPII;
 		}
 
-		private boolean ensureOutputParsed(boolean downloadTriggered, CheckPIIOutput output) {
-			if (!downloadTriggered) {
+		private CheckPIIOutput ensureOutputParsed(CheckPIIOutput output) {
+			if (output == null) {
 				download();
-				downloadTriggered = true;
-
-				// check the encodings
-				String validatorDirString = getValidatorDir();
-				File validatorDir = new File(validatorDirString);
-				File encodingZipFile = new File(validatorDir, "chkpii.encoding.zip");
-				ZipInputStream in = null;
-				try {
-					in = new ZipInputStream(new BufferedInputStream(new FileInputStream(encodingZipFile)));
-					in.getNextEntry();
-					output.parse(in);
-				} catch (IOException e) {
-					Debug.VALIDATOR.log(e, "Could not read file ", encodingZipFile, ".");
-				} finally {
-					if (in != null) {
-						try {
-							in.close();
-						} catch (IOException e) {
-							Debug.VALIDATOR.log(e, "Could not close file ", encodingZipFile, ".");
-						}
-					}
-				}
+				output = getEncodingOutput();
 			}
-			return downloadTriggered;
+			return output;
 		}
 
 		private CheckPIIEncoding findBestAndAllEncodings(PIIFile existingPII, Set<String> allEncodings) {
@@ -510,7 +552,6 @@ private String findBestCodePageForUncertain(String codePageText) {
 			String codePage;
 			String bestCodePage = null;
 			Integer bestPercent = null;
-			Pattern ENCODING_PERCENT_PATTERN = Pattern.compile("([A-Z][A-Z \\(\\)]+)=([\\d]+)%");
 			Matcher matcher = ENCODING_PERCENT_PATTERN.matcher(codePageText);
 			while (matcher.find()) {
 				String currCodePage = matcher.group(1);
@@ -674,7 +715,7 @@ public boolean processResource(StringBuffer buffer, ValidatorResource resource,
 				}
 				success = true;
 			} catch (IOException e) {
-				Debug.VALIDATOR.log(e, "Could not write to file ", new File(getOutputDir(), "piifilelist.txt"), ".");
+				Debug.VALIDATOR.log(e, "Could not write to file ", fileListFile, ".");
 			}
 
 			return success;
@@ -64,7 +64,7 @@ public CheckPIIValidatorFactory() {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Validator getValidatorInstance(ValidatorResource resource, Level level) {
+	public synchronized Validator getValidatorInstance(ValidatorResource resource, Level level) {
 		Param.notNull(resource, "resource");
 		Param.notNull(level, "level");
 
@@ -99,7 +99,7 @@ private Validator getValidatorForLevel(Level level) {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public boolean hasCreated(Validator validator) {
+	public synchronized boolean hasCreated(Validator validator) {
 		Param.notNull(validator, "validator");
 
 		return levelToValidatorMap.containsValue(validator);
@@ -31,7 +31,6 @@
 
 import com.ibm.commerce.qcheck.core.Debug;
 import com.ibm.commerce.qcheck.core.ModelEnum;
-import com.ibm.commerce.qcheck.core.ModelRegistry;
 import com.ibm.commerce.qcheck.core.ProblemActionFactory;
 import com.ibm.commerce.qcheck.core.ValidationResult;
 import com.ibm.commerce.qcheck.core.ValidatorResource;
@@ -54,7 +53,7 @@ public CheckstyleValidator() {
 		getBaseCommand().append(" -c  ").append(QUOTE).append(getValidatorDir()).append(File.separator)
 				.append("checks.xml").append(QUOTE);
 		getBaseCommand().append(" -f xml ");
-		getBaseCommand().append(" -o ").append(QUOTE).append(getOutputDir()).append(File.separator);
+		getBaseCommand().append(" -o ");
 	}
 
 	/**
@@ -89,8 +88,6 @@ private void processErrorMessages(List<XMLNode> errorList, ValidatorResource res
 					length, startPosition, getValidatorName());
 			results.add(result);
 		}
-
-		ModelRegistry.getDefault().clearValidator(resource);
 	}
 
 	/**
@@ -128,8 +125,9 @@ public List<File> findOutputFiles(File outputPath) {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public void prepareForFileGroup(StringBuffer buffer, int loopIndex) {
-			buffer.append(getBaseCommand()).append(loopIndex).append(".xml").append(QUOTE).append(SPACE_CHAR);
+		public void prepareForFileGroup(StringBuffer buffer, File outputDir) {
+			buffer.append(getBaseCommand()).append(QUOTE).append(new File(outputDir, "checkstyle.xml")).append(QUOTE)
+					.append(SPACE_CHAR);
 		}
 
 		/**
@@ -21,16 +21,22 @@
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import javax.xml.XMLConstants;
@@ -53,7 +59,6 @@
 import org.xml.sax.SAXException;
 
 import com.ibm.commerce.qcheck.core.Debug;
-import com.ibm.commerce.qcheck.core.ModelRegistry;
 import com.ibm.commerce.qcheck.core.Validator;
 import com.ibm.commerce.qcheck.core.ValidatorResource;
 import com.ibm.commerce.qcheck.core.WatchedFile;
@@ -80,9 +85,12 @@
  * the file is validated (although many files can map to the same
  * configuration).
  * <p>
- * The configuration data is loaded from an XML file using JAXB. When that file
- * is updated, the configuration and cache will be reset the next time the
- * {@link #getValidators(List, TimeEnum)} method is called.
+ * The configuration data is loaded from XML files using JAXB. All the files
+ * are compiled into one immutable {@link ConfigSnapshot snapshot}, which is
+ * shared by all threads without locking. When a file is updated, a new
+ * snapshot is compiled and replaces the old one the next time the
+ * {@link #getValidators(List, TimeEnum)} method is called. Threads that are
+ * still using the old snapshot are not affected.
  * 
  * @author Trent Hoeppner
  */
@@ -94,42 +102,31 @@ public class ConfigurationManager {
 	private static final String EXTENSION_POINT_NAME = "com.ibm.commerce.qcheck.tools.validators";
 
 	/**
-	 * A mapping from validator names to the ValidatorFactory objects that those
-	 * names represent. Names are arbitrary and defined in the <code>name</code>
-	 * attribute of the <code>validator</code> element (child of the
-	 * <code>setup</code> element).
-	 * <p>
-	 * If two configuration files have the same name for a factory, the
-	 * definition in the later list will be ignored. This value will never be
-	 * null.
+	 * The characters that have a special meaning in a regular expression. A
+	 * configuration name without any of these characters can only match
+	 * itself.
 	 */
-	private Map<String, ValidatorFactory> validatorNameToValidatorFactoryMap = new HashMap<String, ValidatorFactory>();
+	private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\.\\[\\]{}()*+?^$|]");
 
 	/**
-	 * A mapping from ValidatorFactory objects to the levels that are configured
-	 * for those factories. This value will never be null.
+	 * The JAXB context for the configuration classes. The context is
+	 * thread-safe and expensive to create, so it is created once and shared by
+	 * all instances. This value will be null until the first configuration file
+	 * is loaded.
 	 */
-	private Map<ValidatorFactory, List<Level>> validatorFactoryToLevelsMap = new HashMap<ValidatorFactory, List<Level>>();
+	private static JAXBContext jaxbContext;
 
 	/**
-	 * A mapping from the resource paths to ConfigGroups that can return
-	 * Validators for those resources. The resource path is obtained by
-	 * combining the {@link ValidatorResource#getBaseDir() base directory} and
-	 * the {@link ValidatorResource#getPathFilename() relative filename}.
-	 * Resources that require exactly the same Validators and configurations for
-	 * those Validators will point to the same ConfigGroups. In this way, this
-	 * map serves as a cache of validators for each resource. This value will
-	 * never be null.
+	 * The schema that configuration files are validated against. This value
+	 * will be null if the schema has not been loaded yet, or could not be
+	 * loaded.
 	 */
-	private Map<String, ConfigGroup> resourceToConfigGroupMap = new HashMap<String, ConfigGroup>();
+	private static Schema schema;
 
 	/**
-	 * A mapping from regular expressions in String form to Pattern objects
-	 * which represent those expressions. This is used to avoid recreating
-	 * Pattern objects from regular expressions in the configuration files. This
-	 * value will never be null.
+	 * True if an attempt was made to load {@link #schema}, false otherwise.
 	 */
-	private Map<String, Pattern> globToPatternMap = new HashMap<String, Pattern>();
+	private static boolean schemaLoaded;
 
 	/**
 	 * The name of the user on whose behalf this configuration is working. In
@@ -145,6 +142,13 @@ public class ConfigurationManager {
 	 */
 	private List<ConfigFile> configFiles;
 
+	/**
+	 * The configuration compiled from the latest contents of
+	 * {@link #configFiles}. This value will be null until the configuration is
+	 * first loaded by {@link #ensureLatestConfigLoaded()}.
+	 */
+	private volatile ConfigSnapshot snapshot;
+
 	/**
 	 * Constructor for ConfigurationManager. The order of the files given is
 	 * significant. If a validator is defined in an earlier configuration file
@@ -286,34 +290,7 @@ public ConfigurationManager(String newUser, URL... newConfigURLs) {
 	 *         the lists of resources will not be null or empty.
 	 */
 	public Map<Validator, List<ValidatorResource>> getValidators(List<ValidatorResource> resources, TimeEnum time) {
-
-		if (Debug.CONFIG.isActive()) {
-			Debug.CONFIG.log("resourceToConfigGroupMap: ", resourceToConfigGroupMap.size(), ", globToPatternMap: ",
-					globToPatternMap.size(), ", configFiles: ", configFiles.size(), ", validatorFactoryToLevelsMap: ",
-					validatorFactoryToLevelsMap.size(), ", validatorNameToValidatorFactoryMap: ",
-					validatorNameToValidatorFactoryMap.size());
-		}
-
-		ensureLatestConfigLoaded();
-
-		Map<Validator, List<ValidatorResource>> validatorToResourcesMap = new HashMap<Validator, List<ValidatorResource>>();
-		for (ValidatorResource resource : resources) {
-			// ConfigGroup configGroup = findConfigGroup(resource);
-			// addResourceToValidators(validatorToResourcesMap, resource,
-			// configGroup, time);
-			addResourceToValidators(validatorToResourcesMap, resource);
-
-			// TODO a bit hacky to have to clean here
-			ModelRegistry.getDefault().clearValidator(resource);
-		}
-
-		if (Debug.CONFIG.isActive()) {
-			for (Validator validator : validatorToResourcesMap.keySet()) {
-				Debug.CONFIG.log("added validator ", validator.getClass().getName());
-			}
-		}
-
-		return validatorToResourcesMap;
+		return getValidators(resources, time, ensureLatestConfigLoaded());
 	}
 
 	/**
@@ -341,13 +318,14 @@ public Map<Validator, List<ValidatorResource>> getValidators(List<ValidatorResou
 	 */
 	public Map<Validator, List<ValidatorResource>> getValidators(List<ValidatorResource> resources, TimeEnum time,
 			List<String> configValidatorNames) {
-		Map<Validator, List<ValidatorResource>> validatorToResourcesMap = getValidators(resources, time);
+		ConfigSnapshot current = ensureLatestConfigLoaded();
+		Map<Validator, List<ValidatorResource>> validatorToResourcesMap = getValidators(resources, time, current);
 
 		// filter out the validators that are not in the given list
 		Iterator<Validator> validatorIterator = validatorToResourcesMap.keySet().iterator();
 		while (validatorIterator.hasNext()) {
 			Validator validator = validatorIterator.next();
-			String validatorName = findValidatorName(validator);
+			String validatorName = current.findValidatorName(validator);
 			if (!configValidatorNames.contains(validatorName)) {
 				validatorIterator.remove();
 			}
@@ -357,26 +335,45 @@ public Map<Validator, List<ValidatorResource>> getValidators(List<ValidatorResou
 	}
 
 	/**
-	 * Returns the name of the given validator as it exists in the configuration
-	 * file.
+	 * Returns the Validators that can be applied to the given list of
+	 * resources, according to the given configuration. See
+	 * {@link #getValidators(List, TimeEnum)} for details.
 	 *
-	 * @param validator
-	 *            The validator to get the name for. Cannot be null.
+	 * @param resources
+	 *            The resources that need to be validated. Cannot be null.
+	 * @param time
+	 *            The circumstances under which the validation occurs. Cannot be
+	 *            null.
+	 * @param current
+	 *            The configuration to find Validators in. Cannot be null.
 	 *
-	 * @return The name of the validator as it appears in the <code>namek</code>
-	 *         attribute of the <code>validatord</code> element in the
-	 *         configuration file. This value will not be null or empty.
+	 * @return A mapping from Validators to lists of resources for each
+	 *         Validator. Will not be null, and there will be no null keys, and
+	 *         the lists of resources will not be null or empty.
 	 */
-	private String findValidatorName(Validator validator) {
-		String validatorName = null;
-		for (String potentialName : validatorNameToValidatorFactoryMap.keySet()) {
-			ValidatorFactory factory = validatorNameToValidatorFactoryMap.get(potentialName);
-			if (factory.hasCreated(validator)) {
-				validatorName = potentialName;
-				break;
+	private Map<Validator, List<ValidatorResource>> getValidators(List<ValidatorResource> resources, TimeEnum time,
+			ConfigSnapshot current) {
+
+		if (Debug.CONFIG.isActive()) {
+			Debug.CONFIG.log("resourceToConfigGroupMap: ", current.resourceToConfigGroupMap.size(),
+					", scopeConfigsToConfigGroupMap: ", current.scopeConfigsToConfigGroupMap.size(),
+					", configFiles: ", configFiles.size(), ", validatorNameToValidatorFactoryMap: ",
+					current.validatorNameToValidatorFactoryMap.size());
+		}
+
+		Map<Validator, List<ValidatorResource>> validatorToResourcesMap = new HashMap<Validator, List<ValidatorResource>>();
+		for (ValidatorResource resource : resources) {
+			ConfigGroup configGroup = current.findConfigGroup(resource);
+			addResourceToValidators(validatorToResourcesMap, resource, configGroup, time);
+		}
+
+		if (Debug.CONFIG.isActive()) {
+			for (Validator validator : validatorToResourcesMap.keySet()) {
+				Debug.CONFIG.log("added validator ", validator.getClass().getName());
 			}
 		}
-		return validatorName;
+
+		return validatorToResourcesMap;
 	}
 
 	/**
@@ -418,61 +415,48 @@ private void addResourceToValidators(Map<Validator, List<ValidatorResource>> val
 	}
 
 	/**
-	 * Adds the given resource to all valid Validators in the given map. This
-	 * ignores the config for time and scope and instead assumes a default level
-	 * of {@link LevelEnum#NORMAL}. This is done for performance reasons. See
-	 * {@link #getValidators(List, TimeEnum)} for details.
+	 * Returns the validators for the given <code>resource</code>. This method
+	 * ignores the configured time and scope for resources, and just assumes a
+	 * {@link LevelEnum#NORMAL} level.
 	 *
-	 * @param validatorToResourcesMap
-	 *            The mapping from Validators to lists of resources that should
-	 *            be validated by those Validators. Cannot be null.
 	 * @param resource
-	 *            The resource to find Validators for. Cannot be null.
+	 *            The resource to validate. Cannot be null.
+	 *
+	 * @return The validators that can be used for the given
+	 *         <code>resource</code>. Will not be null, but may be empty if no
+	 *         validators are configured.
 	 */
-	private void addResourceToValidators(Map<Validator, List<ValidatorResource>> validatorToResourcesMap,
-			ValidatorResource resource) {
-		List<Validator> validators = getValidators(resource);
-		for (Validator validator : validators) {
-			if (Debug.CONFIG.isActive()) {
-				Debug.CONFIG.log("found that validator ", validator.getClass().getName(), " applies for resource ",
-						resource.getFilename());
-			}
-
-			List<ValidatorResource> resourcesForValidator = validatorToResourcesMap.get(validator);
-			if (resourcesForValidator == null) {
-				resourcesForValidator = new ArrayList<ValidatorResource>();
-				validatorToResourcesMap.put(validator, resourcesForValidator);
-			}
-			resourcesForValidator.add(resource);
-		}
+	public List<Validator> getValidators(ValidatorResource resource) {
+		return getValidators(resource, ensureLatestConfigLoaded().normalFactoryLevels);
 	}
 
 	/**
-	 * Returns the validators for the given <code>resource</code>. This method
-	 * ignores the configured and scope for resources, and just assumes a
-	 * {@link LevelEnum#NORMAL} level. This is done for performance reasons to
-	 * reduce the overhead of finding configs on a full build (finding configs
-	 * causes the whole Commerce toolkit workspace to take 2-3 hours to
-	 * validate).
+	 * Returns the validators that the given factories create for the given
+	 * resource. If a factory's
+	 * {@link ValidatorFactory#canValidate(ValidatorResource, Level)
+	 * canValidate(ValidatorResource, Level)} method returns false for the
+	 * resource, the factory will not be used to produce a validator.
 	 *
 	 * @param resource
 	 *            The resource to validate. Cannot be null.
+	 * @param factoryLevels
+	 *            The factories to try, each with the level to create validators
+	 *            at. Cannot be null.
 	 *
 	 * @return The validators that can be used for the given
-	 *         <code>resource</code> at the given <code>time</code>. Will not be
-	 *         null, but may be empty if no validators are configured.
+	 *         <code>resource</code>. Will not be null, but may be empty.
 	 */
-	public List<Validator> getValidators(ValidatorResource resource) {
+	private List<Validator> getValidators(ValidatorResource resource, List<FactoryLevel> factoryLevels) {
 		List<Validator> validators = new ArrayList<Validator>();
-		for (ValidatorFactory factory : validatorFactoryToLevelsMap.keySet()) {
+		for (FactoryLevel factoryLevel : factoryLevels) {
+			ValidatorFactory factory = factoryLevel.factory;
 			if (Debug.CONFIG.isActive()) {
 				Debug.CONFIG.log("checking if factory ", factory.getClass().getName(), " can validate ",
 						resource.getFilename());
 			}
 
-			Level levelData = getLevel(factory, LevelEnum.NORMAL);
-			if (factory.canValidate(resource, levelData)) {
-				Validator validator = factory.getValidatorInstance(resource, levelData);
+			if (factory.canValidate(resource, factoryLevel.levelData)) {
+				Validator validator = factory.getValidatorInstance(resource, factoryLevel.levelData);
 				validators.add(validator);
 				if (Debug.CONFIG.isActive()) {
 					Debug.CONFIG.log("  it can");
@@ -488,141 +472,137 @@ public List<Validator> getValidators(ValidatorResource resource) {
 	}
 
 	/**
-	 * Returns the configuration that applies specifically to the given
-	 * resource. This configuration will be cached and associated with the
-	 * resource so that future searches are faster. If a configuration already
-	 * exists which can be applied to the resource, it will be used instead of
-	 * creating a new one.
-	 *
-	 * @param resource
-	 *            The resource to find the configuration of. Cannot be null.
+	 * Returns the configuration compiled from the latest contents of the
+	 * configuration files. If there is no configuration yet, or a file has
+	 * changed since the configuration was compiled, a new configuration will be
+	 * compiled and the factories of the old one will be cleaned up.
+	 * <p>
+	 * Only one thread at a time can compile a configuration. Threads that find
+	 * that the configuration is up-to-date do not wait.
 	 *
-	 * @return The configuration that can be used. Will not be null.
+	 * @return The latest configuration. Will not be null.
 	 */
-	private ConfigGroup findConfigGroup(ValidatorResource resource) {
-		String resourcePath = resource.getBaseDir() + resource.getPathFilename();
-		ConfigGroup configGroup = resourceToConfigGroupMap.get(resourcePath);
-		if (configGroup == null) {
-			configGroup = new ConfigGroup(resource);
-
-			// try to find an existing instance so we can reuse the validators
-			for (ConfigGroup possibleMatch : resourceToConfigGroupMap.values()) {
-				if (configGroup.equals(possibleMatch)) {
-					configGroup = possibleMatch;
-					break;
+	private ConfigSnapshot ensureLatestConfigLoaded() {
+		ConfigSnapshot current = snapshot;
+		if (current != null && !configFilesChanged()) {
+			return current;
+		}
+
+		synchronized (this) {
+			current = snapshot;
+			if (current == null || configFilesChanged()) {
+				if (Debug.CONFIG.isActive()) {
+					Debug.CONFIG.log("Compiling ConfigurationManager configuration.");
+				}
+
+				for (ConfigFile configFile : configFiles) {
+					configFile.ensureLatestLoaded();
 				}
-			}
 
-			resourceToConfigGroupMap.put(resourcePath, configGroup);
+				ConfigSnapshot old = current;
+				current = new ConfigSnapshot();
+				snapshot = current;
+				if (old != null) {
+					old.cleanup();
+				}
+			}
 		}
 
-		return configGroup;
+		return current;
 	}
 
 	/**
-	 * Checks that the configuration files are all up-to-date with the
-	 * configurations loaded in memory. If there are no configurations in memory
-	 * or the configurations in the files have changed, the configurations in
-	 * memory will be released to the garbage collector (if they exist) and the
-	 * new configurations will be loaded.
+	 * Returns whether any configuration file has changed since it was last
+	 * loaded.
+	 *
+	 * @return True if a file has changed or has not been loaded, false
+	 *         otherwise.
 	 */
-	private void ensureLatestConfigLoaded() {
-		boolean changed = false;
+	private boolean configFilesChanged() {
 		for (ConfigFile configFile : configFiles) {
 			if (configFile.changed()) {
-				cleanCaches();
-				changed = true;
-				break;
+				return true;
 			}
 		}
 
-		if (changed) {
-			for (ConfigFile configFile : configFiles) {
-				configFile.ensureLatestLoaded();
-			}
-		}
+		return false;
 	}
 
 	/**
-	 * Returns the level details for the given factory and level.
+	 * Returns a new unmarshaller for configuration files. The JAXB context and
+	 * the schema are created the first time this is called, and reused after
+	 * that.
 	 *
-	 * @param validatorFactory
-	 *            The factory that has levels configured for it. Cannot be null.
-	 * @param level
-	 *            The level of the level detail to get. Cannot be null.
+	 * @return The unmarshaller, which validates against the schema if the
+	 *         schema could be loaded. Will not be null.
 	 *
-	 * @return The level details, which include the level and any data
-	 *         associated with that level for the given factory. Will be null if
-	 *         no level details exist.
+	 * @throws JAXBException
+	 *             If the JAXB context or the unmarshaller could not be
+	 *             created.
 	 */
-	private Level getLevel(ValidatorFactory validatorFactory, LevelEnum level) {
-		List<Level> levels = validatorFactoryToLevelsMap.get(validatorFactory);
-		Level levelData = null;
-		for (Level possibleLevelData : levels) {
-			if (possibleLevelData.getValue() == level) {
-				levelData = possibleLevelData;
-				break;
-			}
+	private static synchronized Unmarshaller createUnmarshaller() throws JAXBException {
+		if (jaxbContext == null) {
+			jaxbContext = JAXBContext.newInstance(ObjectFactory.class.getPackage().getName());
 		}
 
-		return levelData;
-	}
-
-	/**
-	 * Finds the first <code>config</code> element in each configuration file
-	 * that matches the given scope and name. Since scope names are specified
-	 * using regular expressions, there may be more than one match for the given
-	 * name, but only the first match will be returned. This means that
-	 * <code>config</code> elements that have the same scope that occur first in
-	 * a file have a higher precedence than <code>config</code> elements that
-	 * occur later in the file.
-	 *
-	 * @param scope
-	 *            The indicator of which object is used for the name. Cannot be
-	 *            null.
-	 * @param name
-	 *            The name that will be matched against the scope to determine a
-	 *            match. Cannot be null, but may be empty.
-	 *
-	 * @return The first configuration object in each configuration file that
-	 *         match the given scope and name. The order of the objects will
-	 *         follow the order of the configuration files. However, if a
-	 *         configuration file had no matching objects, these will be skipped
-	 *         in the list. Will not be null, but may be empty if no matching
-	 *         configurations exist in any configuration file.
-	 */
-	private List<Config> findFirstConfigs(ScopeEnum scope, String name) {
-		List<Config> configs = new ArrayList<Config>();
-		for (ConfigFile file : configFiles) {
+		if (!schemaLoaded) {
+			schemaLoaded = true;
+			SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+			try {
+				Bundle bundle = Activator.getDefault().getBundle();
+				URL xsdURL = FileLocator.find(bundle, new Path("data\\validatorconfig.xsd"), null);
 
-			Config realConfig = file.findFirstConfig(scope, name);
-			if (realConfig != null) {
-				configs.add(realConfig);
+				schema = sf.newSchema(xsdURL);
+			} catch (SAXException e1) {
+				Debug.CONFIG.log(e1);
 			}
 		}
 
-		return configs;
+		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+		if (schema != null) {
+			unmarshaller.setSchema(schema);
+		}
+
+		return unmarshaller;
 	}
 
 	/**
-	 * Returns the object which represents the given regular expression. If the
-	 * object is not cached, a new one will be created and cached.
+	 * Returns the name for the given scope that is assigned to the given
+	 * resource. For example, the name for the {@link ScopeEnum#FILE} scope is
+	 * the resource's filename.
 	 *
-	 * @param regex
-	 *            The regular expression to get the pattern object for. Cannot
-	 *            be null or empty.
+	 * @param resource
+	 *            The resource to get the name for. Cannot be null.
+	 * @param scope
+	 *            The scope to get the name for this resource. Cannot be null.
 	 *
-	 * @return An object which represents the given regular expression. Will not
-	 *         be null.
+	 * @return The name for this resource in the given scope. Will not be null
+	 *         but may be empty.
 	 */
-	private Pattern getPattern(String regex) {
-		Pattern pattern = globToPatternMap.get(regex);
-		if (pattern == null) {
-			pattern = Pattern.compile(regex);
-			globToPatternMap.put(regex, pattern);
+	private String getScopeName(ValidatorResource resource, ScopeEnum scope) {
+		String name;
+		switch (scope) {
+		case GLOBAL:
+			name = "";
+			break;
+		case COMPONENT:
+			name = ""; // TODO implement mapping of resources to value
+			break;
+		case CLASS:
+			name = resource.getClassName();
+			break;
+		case FILE:
+			name = resource.getBaseDir() + File.separator + resource.getPathFilename();
+			break;
+		case USER:
+			name = user;
+			break;
+		default:
+			name = "";
+			break;
 		}
 
-		return pattern;
+		return name;
 	}
 
 	/**
@@ -664,28 +644,6 @@ Map<ValidatorFactory, LevelEnum> findValidators(Config config, TimeEnum time,
 		return globalValidatorFactories;
 	}
 
-	/**
-	 * Removes data from class caches so that new configurations may be loaded.
-	 */
-	private void cleanCaches() {
-		if (Debug.CONFIG.isActive()) {
-			Debug.CONFIG.log("Cleaning ConfigurationManager caches.");
-		}
-
-		for (ValidatorFactory factory : validatorNameToValidatorFactoryMap.values()) {
-			factory.cleanup();
-		}
-
-		validatorNameToValidatorFactoryMap.clear();
-		validatorFactoryToLevelsMap.clear();
-		resourceToConfigGroupMap.clear();
-		globToPatternMap.clear();
-
-		for (ConfigFile configFile : configFiles) {
-			configFile.setLoadedObject(null);
-		}
-	}
-
 	/**
 	 * Returns the factory that corresponds to the given definition from the
 	 * configuration file. If the configuration specifies a factory class, it
@@ -787,243 +745,476 @@ ValidatorFactory findFactoryInExtensions(String validatorName, IExtensionPoint e
 	}
 
 	/**
-	 * ConfigGroup represents a configuration that may be used by one or more
-	 * files. The purpose is to cache the lookup of {@link ValidationFactory}
-	 * objects to improve performance when validating small and large numbers of
-	 * files.
-	 * <p>
-	 * Each file will map to a group of validators, and there will naturally be
-	 * several files for the same group of validators. This class is meant to
-	 * represent that group.
+	 * ConfigSnapshot is the configuration compiled from the contents of all
+	 * the configuration files at one point in time. Once created, the
+	 * configuration does not change, so it can be used by many threads at the
+	 * same time. The only mutable parts are the caches of {@link ConfigGroup
+	 * ConfigGroups}, which are concurrent maps.
 	 */
-	private class ConfigGroup {
+	private class ConfigSnapshot {
 
 		/**
-		 * A mapping from scopes to configurations for this scope. When this is
-		 * first created, this map will be populated with information for a
-		 * single validator resource.
+		 * A mapping from validator names to the ValidatorFactory objects that
+		 * those names represent. Names are arbitrary and defined in the
+		 * <code>name</code> attribute of the <code>validator</code> element
+		 * (child of the <code>setup</code> element).
 		 * <p>
-		 * This map is used as the basis of comparison to other ConfigGroups.
-		 * When a new resource is found, a ConfigGroup is first created for it
-		 * and compared to other ConfigGroups in
-		 * {@link ConfigurationManager#resourceToConfigGroupMap}. For this
-		 * reason, performance of creation and comparisons should be good.
-		 * <p>
-		 * The map is ordered by {@link ScopeEnum} because we process scopes in
-		 * order from general to specific. This value will never be null.
+		 * If two configuration files have the same name for a factory, the
+		 * definition in the later list will be ignored. This value will never
+		 * be null.
 		 */
-		private Map<ScopeEnum, List<Config>> scopeToConfigMap = new TreeMap<ScopeEnum, List<Config>>(
-				new ScopeComparator());
+		private Map<String, ValidatorFactory> validatorNameToValidatorFactoryMap;
 
 		/**
-		 * A mapping from times to factories for those times. Each factory is
-		 * also associated with a level. This map is the cache of factories that
-		 * can be used for a given file. This value will never be null.
+		 * A mapping from ValidatorFactory objects to the levels that are
+		 * configured for those factories. This value will never be null.
 		 */
-		private Map<TimeEnum, Map<ValidatorFactory, LevelEnum>> timeToFactoryToLevelMap;
+		private Map<ValidatorFactory, List<Level>> validatorFactoryToLevelsMap;
 
 		/**
-		 * Constructor for ConfigGroup.
-		 *
-		 * @param resource
-		 *            The resource that is used to construct this configuration
-		 *            group. The resource itself is not kept. Cannot be null.
+		 * Each factory with its {@link LevelEnum#NORMAL} level details, in the
+		 * order the factories were defined. This value will never be null.
+		 */
+		private List<FactoryLevel> normalFactoryLevels = new ArrayList<FactoryLevel>();
+
+		/**
+		 * The <code>config</code> elements of each configuration file that was
+		 * loaded, indexed by scope. The order follows the order of the
+		 * configuration files. This value will never be null.
 		 */
-		private ConfigGroup(ValidatorResource resource) {
-			for (ScopeEnum scope : ScopeEnum.values()) {
-				String name = getScopeName(resource, scope);
-				List<Config> configs = findFirstConfigs(scope, name);
-				scopeToConfigMap.put(scope, configs);
+		private List<Map<ScopeEnum, ScopeIndex>> fileScopeIndexes = new ArrayList<Map<ScopeEnum, ScopeIndex>>();
+
+		/**
+		 * A mapping from the resource paths to ConfigGroups that can return
+		 * Validators for those resources. The resource path is obtained by
+		 * combining the {@link ValidatorResource#getBaseDir() base directory}
+		 * and the {@link ValidatorResource#getPathFilename() relative
+		 * filename}. This map serves as a cache of validators for each
+		 * resource. This value will never be null.
+		 */
+		private ConcurrentMap<String, ConfigGroup> resourceToConfigGroupMap;
+
+		/**
+		 * A mapping from the configurations that apply to a resource in each
+		 * scope to the ConfigGroup for those configurations. Resources that
+		 * require exactly the same Validators and configurations for those
+		 * Validators will point to the same ConfigGroup. This value will never
+		 * be null.
+		 */
+		private ConcurrentMap<Map<ScopeEnum, List<Config>>, ConfigGroup> scopeConfigsToConfigGroupMap;
+
+		/**
+		 * Constructor for ConfigSnapshot. The configuration files must already
+		 * be loaded. The factories for the validators in the files will be
+		 * created and initialized. When loading definitions for validators, if
+		 * a validator with a name has already been loaded from an earlier file,
+		 * the later definition will be ignored.
+		 */
+		private ConfigSnapshot() {
+			validatorNameToValidatorFactoryMap = new LinkedHashMap<String, ValidatorFactory>();
+			validatorFactoryToLevelsMap = new LinkedHashMap<ValidatorFactory, List<Level>>();
+			resourceToConfigGroupMap = new ConcurrentHashMap<String, ConfigGroup>();
+			scopeConfigsToConfigGroupMap = new ConcurrentHashMap<Map<ScopeEnum, List<Config>>, ConfigGroup>();
+
+			for (ConfigFile configFile : configFiles) {
+				Setup setup = configFile.getLoadedObject();
+				if (setup == null) {
+					continue;
+				}
+
+				for (ValidatorDef validatorDef : setup.getValidator()) {
+					if (validatorNameToValidatorFactoryMap.containsKey(validatorDef.getName())) {
+						// do not replace factories that were setup in previous
+						// configuration files
+						continue;
+					}
+
+					ValidatorFactory factory = getFactoryForValidatorName(validatorDef);
+					if (factory != null) {
+						try {
+							validatorNameToValidatorFactoryMap.put(validatorDef.getName(), factory);
+							factory.init();
+							validatorFactoryToLevelsMap.put(factory, validatorDef.getLevel());
+						} catch (IllegalArgumentException e) {
+							Debug.CONFIG.log(e);
+						}
+					}
+				}
+
+				Map<ScopeEnum, ScopeIndex> scopeIndexes = new EnumMap<ScopeEnum, ScopeIndex>(ScopeEnum.class);
+				for (ScopeEnum scope : ScopeEnum.values()) {
+					scopeIndexes.put(scope, new ScopeIndex());
+				}
+
+				for (Config config : setup.getConfig()) {
+					if (config.getScope() != null && config.getName() != null) {
+						scopeIndexes.get(config.getScope()).add(config);
+					}
+				}
+
+				fileScopeIndexes.add(scopeIndexes);
+			}
+
+			for (ValidatorFactory factory : validatorFactoryToLevelsMap.keySet()) {
+				normalFactoryLevels.add(new FactoryLevel(factory, getLevel(factory, LevelEnum.NORMAL)));
 			}
 		}
 
 		/**
-		 * Gets the name for the given scope that is assigned to this resource.
-		 * For example, the name for the {@link ScopeEnum#FILE} scope is the
-		 * resource's filename.
+		 * Returns the configuration that applies specifically to the given
+		 * resource. This configuration will be cached and associated with the
+		 * resource so that future searches are faster. If a configuration
+		 * already exists which can be applied to the resource, it will be used
+		 * instead of creating a new one.
 		 *
 		 * @param resource
-		 *            The resource to get the name for. Cannot be null.
-		 * @param scope
-		 *            The scope to get the name for this resource. Cannot be
-		 *            null.
+		 *            The resource to find the configuration of. Cannot be null.
 		 *
-		 * @return The name for this resource in the given scope. Will not be
-		 *         null but may be empty.
+		 * @return The configuration that can be used. Will not be null.
 		 */
-		private String getScopeName(ValidatorResource resource, ScopeEnum scope) {
-			String name;
-			switch (scope) {
-			case GLOBAL:
-				name = "";
-				break;
-			case COMPONENT:
-				name = ""; // TODO implement mapping of resources to value
-				break;
-			case CLASS:
-				name = resource.getClassName();
-				break;
-			case FILE:
-				name = resource.getBaseDir() + File.separator + resource.getPathFilename();
-				break;
-			case USER:
-				name = user;
-				break;
-			default:
-				name = "";
-				break;
+		private ConfigGroup findConfigGroup(ValidatorResource resource) {
+			String resourcePath = resource.getBaseDir() + resource.getPathFilename();
+			ConfigGroup configGroup = resourceToConfigGroupMap.get(resourcePath);
+			if (configGroup == null) {
+				Map<ScopeEnum, List<Config>> scopeToConfigMap = new TreeMap<ScopeEnum, List<Config>>(
+						new ScopeComparator());
+				for (ScopeEnum scope : ScopeEnum.values()) {
+					scopeToConfigMap.put(scope, findFirstConfigs(scope, getScopeName(resource, scope)));
+				}
+
+				// reuse an existing instance so we can reuse the validators
+				configGroup = scopeConfigsToConfigGroupMap.get(scopeToConfigMap);
+				if (configGroup == null) {
+					ConfigGroup newConfigGroup = new ConfigGroup(this, scopeToConfigMap);
+					configGroup = scopeConfigsToConfigGroupMap.putIfAbsent(scopeToConfigMap, newConfigGroup);
+					if (configGroup == null) {
+						configGroup = newConfigGroup;
+					}
+				}
+
+				resourceToConfigGroupMap.put(resourcePath, configGroup);
 			}
 
-			return name;
+			return configGroup;
 		}
 
 		/**
-		 * Returns the factories in this that are configured for the given time.
-		 * Each factory is associated with its configured level in the returned
-		 * map. See {@link ConfigurationManager#getValidators(List, TimeEnum)}
-		 * for an explanation of how configurations are overridden.
+		 * Finds the first <code>config</code> element in each configuration
+		 * file that matches the given scope and name. Since scope names are
+		 * specified using regular expressions, there may be more than one match
+		 * for the given name, but only the first match will be returned. This
+		 * means that <code>config</code> elements that have the same scope that
+		 * occur first in a file have a higher precedence than
+		 * <code>config</code> elements that occur later in the file.
 		 *
-		 * @param time
-		 *            The circumstances under which the validators will be used.
-		 *            Cannot be null.
+		 * @param scope
+		 *            The indicator of which object is used for the name. Cannot
+		 *            be null.
+		 * @param name
+		 *            The name that will be matched against the scope to
+		 *            determine a match. May be null or empty.
 		 *
-		 * @return A mapping of validators to configured levels. Will not be
-		 *         null.
+		 * @return The first configuration object in each configuration file
+		 *         that match the given scope and name. The order of the objects
+		 *         will follow the order of the configuration files. However, if
+		 *         a configuration file had no matching objects, these will be
+		 *         skipped in the list. Will not be null, but may be empty if no
+		 *         matching configurations exist in any configuration file.
 		 */
-		private Map<ValidatorFactory, LevelEnum> getFactoryToLevelMap(TimeEnum time) {
-
-			// lazily create this map because some ConfigGroups are thrown away
-			if (timeToFactoryToLevelMap == null) {
-				timeToFactoryToLevelMap = new HashMap<TimeEnum, Map<ValidatorFactory, LevelEnum>>();
+		private List<Config> findFirstConfigs(ScopeEnum scope, String name) {
+			List<Config> configs = new ArrayList<Config>();
+			if (name == null) {
+				return configs;
 			}
 
-			Map<ValidatorFactory, LevelEnum> factoryToLevelMap = timeToFactoryToLevelMap.get(time);
-			if (factoryToLevelMap == null) {
-				factoryToLevelMap = new HashMap<ValidatorFactory, LevelEnum>();
-				timeToFactoryToLevelMap.put(time, factoryToLevelMap);
-				for (ScopeEnum scope : scopeToConfigMap.keySet()) {
-					List<Config> configs = scopeToConfigMap.get(scope);
-					for (Config config : configs) {
-						Map<ValidatorFactory, LevelEnum> factories = findValidators(config, time,
-								validatorNameToValidatorFactoryMap);
-						for (ValidatorFactory factory : factories.keySet()) {
-							LevelEnum newLevel = factories.get(factory);
-							LevelEnum oldLevel = factoryToLevelMap.get(factory);
-							if (oldLevel == null && newLevel != LevelEnum.NONE
-									|| oldLevel != null && newLevel.ordinal() > oldLevel.ordinal()) {
-								factoryToLevelMap.put(factory, newLevel);
-							} else if ((time == TimeEnum.ASYOUTYPE || time == TimeEnum.FULLTOOLKITBUILD
-									|| time == TimeEnum.INCREMENTALTOOLKITBUILD) && newLevel == LevelEnum.NONE) {
-								factoryToLevelMap.remove(factory);
-							}
-						}
-					}
+			for (Map<ScopeEnum, ScopeIndex> scopeIndexes : fileScopeIndexes) {
+				Config realConfig = scopeIndexes.get(scope).findFirst(name);
+				if (realConfig != null) {
+					configs.add(realConfig);
 				}
 			}
 
-			return factoryToLevelMap;
+			return configs;
 		}
 
 		/**
-		 * Returns the validators for the given <code>resource</code> and
-		 * <code>time</code>. The configured {@link ValidatorFactory factories}
-		 * will be retrieved, but if a factory's
-		 * {@link ValidatorFactory#canValidate(ValidatorResource)
-		 * canValidate(ValidatorResource)} method returns false for the given
-		 * resource, the factory will not be used to produce a validator.
+		 * Returns the level details for the given factory and level.
 		 *
-		 * @param resource
-		 *            The resource to validate. Cannot be null.
-		 * @param time
-		 *            The circumstances under which the resource will be
-		 *            evaluated. Cannot be null.
+		 * @param validatorFactory
+		 *            The factory that has levels configured for it. Cannot be
+		 *            null.
+		 * @param level
+		 *            The level of the level detail to get. Cannot be null.
 		 *
-		 * @return The validators that can be used for the given
-		 *         <code>resource</code> at the given <code>time</code>. Will
-		 *         not be null, but may be empty if no validators are
-		 *         configured.
+		 * @return The level details, which include the level and any data
+		 *         associated with that level for the given factory. Will be
+		 *         null if no level details exist.
 		 */
-		public synchronized List<Validator> getValidators(ValidatorResource resource, TimeEnum time) {
-			List<Validator> validators = new ArrayList<Validator>();
-			Map<ValidatorFactory, LevelEnum> factoryToLevelMapLocal = getFactoryToLevelMap(time);
-			for (ValidatorFactory factory : factoryToLevelMapLocal.keySet()) {
-				if (Debug.CONFIG.isActive()) {
-					Debug.CONFIG.log("checking if factory ", factory.getClass().getName(), " can validate ",
-							resource.getFilename());
-				}
-
-				LevelEnum level = factoryToLevelMapLocal.get(factory);
-				Level levelData = getLevel(factory, level);
-				if (factory.canValidate(resource, levelData)) {
-					Validator validator = factory.getValidatorInstance(resource, levelData);
-					validators.add(validator);
-					if (Debug.CONFIG.isActive()) {
-						Debug.CONFIG.log("  it can");
-					}
-				} else {
-					if (Debug.CONFIG.isActive()) {
-						Debug.CONFIG.log("  it can't");
-					}
+		private Level getLevel(ValidatorFactory validatorFactory, LevelEnum level) {
+			List<Level> levels = validatorFactoryToLevelsMap.get(validatorFactory);
+			Level levelData = null;
+			for (Level possibleLevelData : levels) {
+				if (possibleLevelData.getValue() == level) {
+					levelData = possibleLevelData;
+					break;
 				}
 			}
 
-			return validators;
+			return levelData;
 		}
 
 		/**
-		 * {@inheritDoc}
+		 * Returns the name of the given validator as it exists in the
+		 * configuration file.
+		 *
+		 * @param validator
+		 *            The validator to get the name for. Cannot be null.
+		 *
+		 * @return The name of the validator as it appears in the
+		 *         <code>name</code> attribute of the <code>validator</code>
+		 *         element in the configuration file. This value will not be
+		 *         null or empty.
 		 */
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + getOuterType().hashCode();
-			result = prime * result + ((scopeToConfigMap == null) ? 0 : scopeToConfigMap.hashCode());
-			return result;
+		private String findValidatorName(Validator validator) {
+			String validatorName = null;
+			for (String potentialName : validatorNameToValidatorFactoryMap.keySet()) {
+				ValidatorFactory factory = validatorNameToValidatorFactoryMap.get(potentialName);
+				if (factory.hasCreated(validator)) {
+					validatorName = potentialName;
+					break;
+				}
+			}
+			return validatorName;
 		}
 
 		/**
-		 * {@inheritDoc}
+		 * Cleans up the factories in this after this has been replaced by a
+		 * newer configuration.
 		 */
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
+		private void cleanup() {
+			if (Debug.CONFIG.isActive()) {
+				Debug.CONFIG.log("Cleaning ConfigurationManager caches.");
 			}
 
-			if (obj == null) {
-				return false;
+			for (ValidatorFactory factory : validatorNameToValidatorFactoryMap.values()) {
+				factory.cleanup();
 			}
+		}
+	}
+
+	/**
+	 * ScopeIndex contains the <code>config</code> elements of one scope in one
+	 * configuration file, in the order they appear in the file. Names without
+	 * regular expression characters are kept in a map, so that only the
+	 * regular expressions that occur before them need to be tried.
+	 */
+	private static class ScopeIndex {
+
+		/**
+		 * The <code>config</code> elements, in file order. This value will
+		 * never be null.
+		 */
+		private List<Config> configs = new ArrayList<Config>();
+
+		/**
+		 * The compiled name of each element in {@link #configs}, in the same
+		 * order. An element is null if the name is a plain name, which can
+		 * only match itself. This value will never be null.
+		 */
+		private List<Pattern> patterns = new ArrayList<Pattern>();
 
-			if (getClass() != obj.getClass()) {
-				return false;
+		/**
+		 * A mapping from each plain name to the index of the first element in
+		 * {@link #configs} with that name. This value will never be null.
+		 */
+		private Map<String, Integer> plainNameToIndexMap = new HashMap<String, Integer>();
+
+		/**
+		 * Adds the given configuration to the end of this.
+		 *
+		 * @param config
+		 *            The configuration to add. Cannot be null.
+		 */
+		private void add(Config config) {
+			String name = config.getName();
+			if (REGEX_METACHARACTERS.matcher(name).find()) {
+				patterns.add(Pattern.compile(name));
+			} else {
+				patterns.add(null);
+				if (!plainNameToIndexMap.containsKey(name)) {
+					plainNameToIndexMap.put(name, Integer.valueOf(configs.size()));
+				}
 			}
 
-			ConfigGroup other = (ConfigGroup) obj;
-			if (!getOuterType().equals(other.getOuterType())) {
-				return false;
+			configs.add(config);
+		}
+
+		/**
+		 * Returns the first configuration in this whose name matches the given
+		 * name.
+		 *
+		 * @param name
+		 *            The name to match. Cannot be null, but may be empty.
+		 *
+		 * @return The first matching configuration, or null if there is none.
+		 */
+		private Config findFirst(String name) {
+			Integer plainIndex = plainNameToIndexMap.get(name);
+			int end = plainIndex == null ? configs.size() : plainIndex.intValue();
+			for (int i = 0; i < end; i++) {
+				Pattern pattern = patterns.get(i);
+				if (pattern != null && pattern.matcher(name).matches()) {
+					return configs.get(i);
+				}
 			}
 
-			if (scopeToConfigMap == null) {
-				if (other.scopeToConfigMap != null) {
-					return false;
+			return plainIndex == null ? null : configs.get(plainIndex.intValue());
+		}
+	}
+
+	/**
+	 * FactoryLevel is a factory together with the level details that it
+	 * creates validators at.
+	 */
+	private static class FactoryLevel {
+
+		/**
+		 * The factory. This value will never be null.
+		 */
+		private ValidatorFactory factory;
+
+		/**
+		 * The level details for {@link #factory}. This value may be null if the
+		 * level is not defined for the factory.
+		 */
+		private Level levelData;
+
+		/**
+		 * Constructor for FactoryLevel.
+		 *
+		 * @param newFactory
+		 *            The factory. Cannot be null.
+		 * @param newLevelData
+		 *            The level details for the factory. May be null.
+		 */
+		private FactoryLevel(ValidatorFactory newFactory, Level newLevelData) {
+			this.factory = newFactory;
+			this.levelData = newLevelData;
+		}
+	}
+
+	/**
+	 * ConfigGroup represents a configuration that may be used by one or more
+	 * files. The purpose is to cache the lookup of {@link ValidatorFactory}
+	 * objects to improve performance when validating small and large numbers of
+	 * files.
+	 * <p>
+	 * Each file will map to a group of validators, and there will naturally be
+	 * several files for the same group of validators. This class is meant to
+	 * represent that group. The factories for every time are computed when the
+	 * group is created, so a group never changes and does not need locking.
+	 */
+	private class ConfigGroup {
+
+		/**
+		 * A mapping from times to the factories for those times, each with its
+		 * configured level details. This value will never be null.
+		 */
+		private Map<TimeEnum, List<FactoryLevel>> timeToFactoryLevelsMap = new EnumMap<TimeEnum, List<FactoryLevel>>(
+				TimeEnum.class);
+
+		/**
+		 * Constructor for ConfigGroup.
+		 *
+		 * @param snapshot
+		 *            The configuration that contains the factories. Cannot be
+		 *            null.
+		 * @param scopeToConfigMap
+		 *            A mapping from scopes to the configurations for a resource
+		 *            in that scope, ordered from general to specific. Cannot be
+		 *            null.
+		 */
+		private ConfigGroup(ConfigSnapshot snapshot, Map<ScopeEnum, List<Config>> scopeToConfigMap) {
+			for (TimeEnum time : TimeEnum.values()) {
+				Map<ValidatorFactory, LevelEnum> factoryToLevelMap = getFactoryToLevelMap(snapshot, scopeToConfigMap,
+						time);
+				List<FactoryLevel> factoryLevels = new ArrayList<FactoryLevel>();
+				for (ValidatorFactory factory : factoryToLevelMap.keySet()) {
+					LevelEnum level = factoryToLevelMap.get(factory);
+					factoryLevels.add(new FactoryLevel(factory, snapshot.getLevel(factory, level)));
 				}
-			} else if (!scopeToConfigMap.equals(other.scopeToConfigMap)) {
-				return false;
+
+				timeToFactoryLevelsMap.put(time, Collections.unmodifiableList(factoryLevels));
 			}
-			return true;
 		}
 
 		/**
-		 * Returns the outer type of this, so that the parent instance can be
-		 * used in {@link #equals(Object)} and {@link #hashCode()}.
+		 * Returns the factories that are configured for the given time. Each
+		 * factory is associated with its configured level in the returned
+		 * map. See {@link ConfigurationManager#getValidators(List, TimeEnum)}
+		 * for an explanation of how configurations are overridden.
+		 *
+		 * @param snapshot
+		 *            The configuration that contains the factories. Cannot be
+		 *            null.
+		 * @param scopeToConfigMap
+		 *            A mapping from scopes to the configurations for a resource
+		 *            in that scope, ordered from general to specific. Cannot be
+		 *            null.
+		 * @param time
+		 *            The circumstances under which the validators will be used.
+		 *            Cannot be null.
 		 *
-		 * @return The parent instance of this. Will not be null.
+		 * @return A mapping of validators to configured levels. Will not be
+		 *         null.
 		 */
-		private ConfigurationManager getOuterType() {
-			return ConfigurationManager.this;
+		private Map<ValidatorFactory, LevelEnum> getFactoryToLevelMap(ConfigSnapshot snapshot,
+				Map<ScopeEnum, List<Config>> scopeToConfigMap, TimeEnum time) {
+			Map<ValidatorFactory, LevelEnum> factoryToLevelMap = new LinkedHashMap<ValidatorFactory, LevelEnum>();
+			for (ScopeEnum scope : scopeToConfigMap.keySet()) {
+				List<Config> configs = scopeToConfigMap.get(scope);
+				for (Config config : configs) {
+					Map<ValidatorFactory, LevelEnum> factories = findValidators(config, time,
+							snapshot.validatorNameToValidatorFactoryMap);
+					for (ValidatorFactory factory : factories.keySet()) {
+						LevelEnum newLevel = factories.get(factory);
+						LevelEnum oldLevel = factoryToLevelMap.get(factory);
+						if (oldLevel == null && newLevel != LevelEnum.NONE
+								|| oldLevel != null && newLevel.ordinal() > oldLevel.ordinal()) {
+							factoryToLevelMap.put(factory, newLevel);
+						} else if ((time == TimeEnum.ASYOUTYPE || time == TimeEnum.FULLTOOLKITBUILD
+								|| time == TimeEnum.INCREMENTALTOOLKITBUILD) && newLevel == LevelEnum.NONE) {
+							factoryToLevelMap.remove(factory);
+						}
+					}
+				}
+			}
+
+			return factoryToLevelMap;
 		}
 
+		/**
+		 * Returns the validators for the given <code>resource</code> and
+		 * <code>time</code>. The configured {@link ValidatorFactory factories}
+		 * will be retrieved, but if a factory's
+		 * {@link ValidatorFactory#canValidate(ValidatorResource, Level)
+		 * canValidate(ValidatorResource, Level)} method returns false for the
+		 * given resource, the factory will not be used to produce a validator.
+		 *
+		 * @param resource
+		 *            The resource to validate. Cannot be null.
+		 * @param time
+		 *            The circumstances under which the resource will be
+		 *            evaluated. Cannot be null.
+		 *
+		 * @return The validators that can be used for the given
+		 *         <code>resource</code> at the given <code>time</code>. Will
+		 *         not be null, but may be empty if no validators are
+		 *         configured.
+		 */
+		public List<Validator> getValidators(ValidatorResource resource, TimeEnum time) {
+			return ConfigurationManager.this.getValidators(resource, timeToFactoryLevelsMap.get(time));
+		}
 	}
 
 	/**
@@ -1056,9 +1247,9 @@ private ConfigFile(URL newURL) {
 		}
 
 		/**
-		 * Loads the configuration from the file. When loading definitions for
-		 * validators, if a validator with a name has already been loaded, that
-		 * valiator's definition will not be overwritten by this method.
+		 * Loads the configuration from the file. The factories for the
+		 * validators are created later, when the configuration is compiled
+		 * into a {@link ConfigSnapshot}.
 		 */
 		public void syncWithSystem() {
 			if (Debug.CONFIG.isActive()) {
@@ -1066,44 +1257,16 @@ public void syncWithSystem() {
 			}
 
 			try {
-				JAXBContext jc = JAXBContext.newInstance(ObjectFactory.class.getPackage().getName());
-				Unmarshaller unmarshaller = jc.createUnmarshaller();
-				SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+				Unmarshaller unmarshaller = createUnmarshaller();
+				InputStream in = openInputStream();
 				try {
-					Bundle bundle = Activator.getDefault().getBundle();
-					URL xsdURL = FileLocator.find(bundle, new Path("data\\validatorconfig.xsd"), null);
-
-					Schema schema = sf.newSchema(xsdURL);
-					unmarshaller.setSchema(schema);
-				} catch (SAXException e1) {
-					Debug.CONFIG.log(e1);
+					StreamSource source = new StreamSource(in);
+					Class<Setup> setupClass = Setup.class;
+					JAXBElement<Setup> unmarshalledRoot = unmarshaller.unmarshal(source, setupClass);
+					setLoadedObject(unmarshalledRoot.getValue());
+				} finally {
+					in.close();
 				}
-
-				StreamSource source = new StreamSource(openInputStream());
-				Class<Setup> setupClass = Setup.class;
-				JAXBElement<Setup> unmarshalledRoot = unmarshaller.unmarshal(source, setupClass);
-				Setup setup = unmarshalledRoot.getValue();
-				setLoadedObject(setup);
-
-				for (ValidatorDef validatorDef : setup.getValidator()) {
-					if (validatorNameToValidatorFactoryMap.containsKey(validatorDef.getName())) {
-						// do not replace factories that were setup in previous
-						// configuration files
-						continue;
-					}
-
-					ValidatorFactory factory = getFactoryForValidatorName(validatorDef);
-					if (factory != null) {
-						try {
-							validatorNameToValidatorFactoryMap.put(validatorDef.getName(), factory);
-							factory.init();
-							validatorFactoryToLevelsMap.put(factory, validatorDef.getLevel());
-						} catch (IllegalArgumentException e) {
-							Debug.CONFIG.log(e);
-						}
-					}
-				}
-
 			} catch (JAXBException e) {
 				Debug.CONFIG.log(e);
 			} catch (FileNotFoundException e) {
@@ -1117,43 +1280,6 @@ public void syncWithSystem() {
 				Debug.CONFIG.log(e);
 			}
 		}
-
-		/**
-		 * Finds the first configuration that matches the given scope and name.
-		 * Since scope names are specified using regular expressions, there may
-		 * be more than one match for the given name, but only the first match
-		 * will be returned. This means that configurations that with the same
-		 * scope that occur first in the file have a higher precedence than
-		 * configurations that occur later in the file.
-		 *
-		 * @param scope
-		 *            The indicator of which object is used for the name. Cannot
-		 *            be null.
-		 * @param name
-		 *            The name that will be matched against the scope to
-		 *            determine a match. Cannot be null, but may be empty.
-		 *
-		 * @return The configuration object for the given scope and name. Will
-		 *         be null if no such configuration exists.
-		 */
-		private Config findFirstConfig(ScopeEnum scope, String name) {
-			Config realConfig = null;
-
-			if (getLoadedObject() != null) {
-				// the setup was loaded
-				for (Config config : getLoadedObject().getConfig()) {
-					if (config.getScope() == scope) {
-						Pattern pattern = getPattern(config.getName());
-						if (pattern.matcher(name).matches()) {
-							realConfig = config;
-							break;
-						}
-					}
-				}
-			}
-
-			return realConfig;
-		}
 	}
 
 	/**
@@ -0,0 +1,503 @@
+package com.ibm.commerce.qcheck.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.commerce.qcheck.core.Debug;
+import com.ibm.commerce.qcheck.core.Param;
+
+/**
+ * ExternalBatchRunner divides a list of items into batches and runs an
+ * external tool on the batches, possibly several at the same time. Each batch
+ * gets its own new directory for output files, which is deleted after the
+ * batch is finished, so that batches cannot overwrite each other's output.
+ * <p>
+ * The size of each batch depends on how long the previous batches took for
+ * each item, so that each batch takes about the target time, but stays within
+ * the minimum and maximum size. When there are not enough items left to keep
+ * all threads busy with batches of that size, the remaining items are divided
+ * between the threads instead.
+ * <p>
+ * This class is thread-safe. The cost that is measured in one run is used to
+ * size the batches of the next run.
+ *
+ * @param <T>
+ *            The type of items to run the tool on.
+ * @param <R>
+ *            The type of result from each batch.
+ *
+ * @author Trent Hoeppner
+ */
+public class ExternalBatchRunner<T, R> {
+
+	/**
+	 * The number of milliseconds between checks for cancellation while
+	 * waiting for batches to finish.
+	 */
+	private static final long CANCEL_CHECK_MILLIS = 100;
+
+	/**
+	 * The maximum number of milliseconds to wait for interrupted batches to
+	 * stop their tools and delete their output directories.
+	 */
+	private static final long STOP_WAIT_MILLIS = 10000;
+
+	/**
+	 * The directory in which the output directories of batches are created.
+	 * This value will never be null.
+	 */
+	private File outputRoot;
+
+	/**
+	 * The smallest number of items in a batch, unless fewer items are left.
+	 * This value will always be &gt; 0.
+	 */
+	private int minBatchSize;
+
+	/**
+	 * The largest number of items in a batch. This value will always be &gt;=
+	 * {@link #minBatchSize}.
+	 */
+	private int maxBatchSize;
+
+	/**
+	 * The number of milliseconds that each batch should take. This value will
+	 * always be &gt; 0.
+	 */
+	private long targetBatchMillis;
+
+	/**
+	 * The number of items in all the batches that have finished. This value
+	 * will always be &gt;= 0.
+	 */
+	private long measuredItems;
+
+	/**
+	 * The number of milliseconds that all the batches that have finished took.
+	 * This value will always be &gt;= 0.
+	 */
+	private long measuredMillis;
+
+	/**
+	 * Constructor for ExternalBatchRunner.
+	 *
+	 * @param outputRoot
+	 *            The directory in which the output directories of batches are
+	 *            created. It will be created if it does not exist. Cannot be
+	 *            null.
+	 * @param minBatchSize
+	 *            The smallest number of items in a batch, unless fewer items
+	 *            are left. Must be &gt; 0.
+	 * @param maxBatchSize
+	 *            The largest number of items in a batch, such as the most
+	 *            files that fit on the command line of the tool. Must be &gt;=
+	 *            <code>minBatchSize</code>.
+	 * @param targetBatchMillis
+	 *            The number of milliseconds that each batch should take. Must
+	 *            be &gt; 0.
+	 */
+	public ExternalBatchRunner(File outputRoot, int minBatchSize, int maxBatchSize, long targetBatchMillis) {
+		Param.notNull(outputRoot, "outputRoot");
+		if (minBatchSize <= 0) {
+			throw new IllegalArgumentException("minBatchSize must be > 0, but was " + minBatchSize + ".");
+		}
+
+		if (maxBatchSize < minBatchSize) {
+			throw new IllegalArgumentException(
+					"maxBatchSize must be >= " + minBatchSize + ", but was " + maxBatchSize + ".");
+		}
+
+		if (targetBatchMillis <= 0) {
+			throw new IllegalArgumentException("targetBatchMillis must be > 0, but was " + targetBatchMillis + ".");
+		}
+
+		this.outputRoot = outputRoot;
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		this.targetBatchMillis = targetBatchMillis;
+	}
+
+	/**
+	 * Runs the given task on batches of the given items, and waits for all the
+	 * batches to finish. The task is told about each batch that finishes in
+	 * the thread that called this method.
+	 *
+	 * @param items
+	 *            The items to run the task on. Cannot be null, but may be
+	 *            empty.
+	 * @param threads
+	 *            The number of batches that may run at the same time. Must be
+	 *            &gt; 0.
+	 * @param task
+	 *            The task to run on each batch. Cannot be null.
+	 *
+	 * @return The results of the batches, in the same order as the items. Will
+	 *         not be null, but may be empty.
+	 *
+	 * @throws IOException
+	 *             If a batch failed, or the output directory for a batch could
+	 *             not be created.
+	 * @throws CancellationException
+	 *             If the task was canceled or the current thread was
+	 *             interrupted before all batches finished. Batches that are
+	 *             running at that time are interrupted, and this method waits
+	 *             for them to stop.
+	 */
+	public List<R> run(List<T> items, int threads, BatchTask<T, R> task)
+			throws IOException, CancellationException {
+		Param.notNull(items, "items");
+		Param.notNull(task, "task");
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be > 0, but was " + threads + ".");
+		}
+
+		if (!outputRoot.exists() && !outputRoot.mkdirs() && !outputRoot.isDirectory()) {
+			throw new IOException("Could not create the directories for " + outputRoot);
+		}
+
+		List<Future<R>> futures = new ArrayList<Future<R>>();
+		Map<Future<R>, List<T>> futureToItems = new HashMap<Future<R>, List<T>>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CompletionService<R> completionService = new ExecutorCompletionService<R>(executor);
+			int start = 0;
+			int running = 0;
+			while (start < items.size() || running > 0) {
+				while (running < threads && start < items.size()) {
+					checkCanceled(task);
+					int end = start + getBatchSize(items.size() - start, threads - running);
+					List<T> batchItems = items.subList(start, end);
+					Future<R> future = completionService.submit(new Batch(batchItems, task));
+					futures.add(future);
+					futureToItems.put(future, batchItems);
+					start = end;
+					running++;
+				}
+
+				Future<R> finished = waitForBatch(completionService, task);
+				running--;
+				getResult(finished);
+				task.batchFinished(futureToItems.get(finished));
+			}
+
+			List<R> results = new ArrayList<R>();
+			for (Future<R> future : futures) {
+				results.add(getResult(future));
+			}
+
+			return results;
+		} finally {
+			stop(executor);
+		}
+	}
+
+	/**
+	 * Stops the given executor, interrupting batches that are still running,
+	 * and waits for them to stop.
+	 *
+	 * @param executor
+	 *            The executor to stop. Cannot be null.
+	 */
+	private void stop(ExecutorService executor) {
+		executor.shutdownNow();
+		try {
+			if (!executor.awaitTermination(STOP_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+				Debug.VALIDATOR.log("External tool batches did not stop after ", STOP_WAIT_MILLIS, " ms.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of items for the next batch.
+	 *
+	 * @param remaining
+	 *            The number of items that are not in a batch yet. Must be
+	 *            &gt; 0.
+	 * @param freeThreads
+	 *            The number of threads that are not running a batch. Must be
+	 *            &gt; 0.
+	 *
+	 * @return The number of items in the next batch. Will be &gt; 0 and &lt;=
+	 *         <code>remaining</code>.
+	 */
+	synchronized int getBatchSize(int remaining, int freeThreads) {
+		long size = maxBatchSize;
+		if (measuredItems > 0 && measuredMillis > 0) {
+			size = targetBatchMillis * measuredItems / measuredMillis;
+		}
+
+		// divide the last items between the threads
+		int share = (remaining + freeThreads - 1) / freeThreads;
+		size = Math.min(size, share);
+
+		size = Math.max(minBatchSize, Math.min(maxBatchSize, size));
+		return (int) Math.min(size, remaining);
+	}
+
+	/**
+	 * Adds the cost of a finished batch to the cost measured so far.
+	 *
+	 * @param items
+	 *            The number of items in the batch. Must be &gt; 0.
+	 * @param millis
+	 *            The number of milliseconds that the batch took. Must be &gt;=
+	 *            0.
+	 */
+	synchronized void addMeasurement(int items, long millis) {
+		measuredItems += items;
+		measuredMillis += millis;
+	}
+
+	/**
+	 * Waits for the next batch to finish, checking the task for cancellation
+	 * while waiting.
+	 *
+	 * @param completionService
+	 *            The service that runs the batches. Cannot be null.
+	 * @param task
+	 *            The task that may be canceled. Cannot be null.
+	 *
+	 * @return The batch that finished. Will not be null.
+	 *
+	 * @throws CancellationException
+	 *             If the task was canceled or the current thread was
+	 *             interrupted while waiting.
+	 */
+	private Future<R> waitForBatch(CompletionService<R> completionService, BatchTask<T, R> task)
+			throws CancellationException {
+		try {
+			Future<R> finished = completionService.poll(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+			while (finished == null) {
+				checkCanceled(task);
+				finished = completionService.poll(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+			}
+
+			return finished;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for external tools.");
+		}
+	}
+
+	/**
+	 * Returns the result of the given finished batch.
+	 *
+	 * @param future
+	 *            The batch to get the result of. Cannot be null, and must be
+	 *            finished.
+	 *
+	 * @return The result of the batch. May be null if the task returned null.
+	 *
+	 * @throws IOException
+	 *             If the batch failed.
+	 * @throws CancellationException
+	 *             If the current thread was interrupted.
+	 */
+	private R getResult(Future<R> future) throws IOException, CancellationException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for external tools.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new IOException("An external tool batch failed.", cause);
+		}
+	}
+
+	/**
+	 * Throws an exception if the given task was canceled.
+	 *
+	 * @param task
+	 *            The task to check. Cannot be null.
+	 *
+	 * @throws CancellationException
+	 *             If the task was canceled.
+	 */
+	private void checkCanceled(BatchTask<T, R> task) throws CancellationException {
+		if (task.isCanceled()) {
+			throw new CancellationException("The current action has been cancelled.");
+		}
+	}
+
+	/**
+	 * Creates a new, empty directory for the output of one batch.
+	 *
+	 * @return The new directory. Will not be null.
+	 *
+	 * @throws IOException
+	 *             If the directory could not be created.
+	 */
+	private File createOutputDir() throws IOException {
+		File outputDir = File.createTempFile("batch", "", outputRoot);
+		if (!outputDir.delete() || !outputDir.mkdir()) {
+			throw new IOException("Could not create the directory " + outputDir);
+		}
+
+		return outputDir;
+	}
+
+	/**
+	 * Deletes the given directory and everything in it.
+	 *
+	 * @param dir
+	 *            The directory to delete. Cannot be null.
+	 *
+	 * @throws IOException
+	 *             If a file could not be deleted.
+	 */
+	private void delete(File dir) throws IOException {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				delete(file);
+			}
+		}
+
+		if (!dir.delete() && dir.exists()) {
+			throw new IOException("Could not delete " + dir);
+		}
+	}
+
+	/**
+	 * Batch runs the task on some of the items in a pool thread.
+	 */
+	private final class Batch implements Callable<R> {
+
+		/**
+		 * The items in this batch. This value will never be null or empty.
+		 */
+		private List<T> items;
+
+		/**
+		 * The task to run on the items. This value will never be null.
+		 */
+		private BatchTask<T, R> task;
+
+		/**
+		 * Constructor for Batch.
+		 *
+		 * @param items
+		 *            The items in this batch. Cannot be null or empty.
+		 * @param task
+		 *            The task to run on the items. Cannot be null.
+		 */
+		private Batch(List<T> items, BatchTask<T, R> task) {
+			this.items = items;
+			this.task = task;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public R call() throws IOException {
+			File outputDir = createOutputDir();
+			try {
+				long begin = System.currentTimeMillis();
+				R result = task.run(items, outputDir);
+				long millis = System.currentTimeMillis() - begin;
+				addMeasurement(items.size(), millis);
+
+				if (Debug.VALIDATOR.isActive()) {
+					Debug.VALIDATOR.log("Ran batch of ", items.size(), " in ", millis, " ms in ", outputDir);
+				}
+
+				return result;
+			} finally {
+				delete(outputDir);
+			}
+		}
+	}
+
+	/**
+	 * BatchTask runs an external tool on one batch of items.
+	 *
+	 * @param <T>
+	 *            The type of items to run the tool on.
+	 * @param <R>
+	 *            The type of result from each batch.
+	 */
+	public static interface BatchTask<T, R> {
+
+		/**
+		 * Runs the tool on the given items and processes its output. This
+		 * method may be called by several threads at the same time.
+		 *
+		 * @param items
+		 *            The items in the batch. Cannot be null or empty.
+		 * @param outputDir
+		 *            The new, empty directory where the tool should write its
+		 *            output files. It will be deleted after this method
+		 *            returns. Cannot be null.
+		 *
+		 * @return The result of the batch. May be null.
+		 *
+		 * @throws IOException
+		 *             If the tool could not be run or its output could not be
+		 *             read.
+		 */
+		R run(List<T> items, File outputDir) throws IOException;
+
+		/**
+		 * Called when the tool has finished a batch without an error. Unlike
+		 * {@link #run(List, File)}, this method is always called by the thread
+		 * that started the run, so it may report progress to objects that are
+		 * not thread-safe.
+		 *
+		 * @param items
+		 *            The items in the batch that finished. Cannot be null or
+		 *            empty.
+		 */
+		void batchFinished(List<T> items);
+
+		/**
+		 * Returns whether the run was canceled, in which case no more
+		 * batches will be started.
+		 *
+		 * @return True if the run was canceled, false otherwise.
+		 */
+		boolean isCanceled();
+	}
+}
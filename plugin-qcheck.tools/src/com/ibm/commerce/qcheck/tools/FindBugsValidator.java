@@ -22,7 +22,6 @@
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -30,7 +29,7 @@
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -45,7 +44,6 @@
 import com.ibm.commerce.qcheck.core.Debug;
 import com.ibm.commerce.qcheck.core.EclipseUtil;
 import com.ibm.commerce.qcheck.core.ModelEnum;
-import com.ibm.commerce.qcheck.core.ModelRegistry;
 import com.ibm.commerce.qcheck.core.ProblemActionFactory;
 import com.ibm.commerce.qcheck.core.ValidationResult;
 import com.ibm.commerce.qcheck.core.ValidatorResource;
@@ -76,9 +74,6 @@ public FindBugsValidator() {
 		getBaseCommand().append(" -xml:withMessages");
 		getBaseCommand().append(" -exclude ").append(QUOTE).append(getValidatorDir()).append(File.separator)
 				.append("exclude.xml").append(QUOTE);
-		getBaseCommand().append(" -project ").append(QUOTE).append(getOutputDir()).append(File.separator)
-				.append("findbugsproject.fbp\"");
-		getBaseCommand().append(" -output ").append(QUOTE).append(getOutputDir()).append(File.separator);
 	}
 
 	/**
@@ -88,12 +83,14 @@ public FindBugsValidator() {
 	 *
 	 * @param buffer
 	 *            The buffer to use for creating the file. Cannot be null.
+	 * @param projectFile
+	 *            The file to write the project to. Cannot be null.
 	 * @param classDirs
 	 *            The set of class directories which contain classes that we
 	 *            want to analyze. Cannot be null. If empty, this may result in
 	 *            an error from FindBugs when run.
 	 */
-	private void createFindBugsProjectTempFile(StringBuffer buffer, Set<File> classDirs) {
+	private void createFindBugsProjectTempFile(StringBuffer buffer, File projectFile, Set<File> classDirs) {
 		buffer.append("<Project projectName=\"QCheck FindBugs Project\">").append(LINE_SEPARATOR);
 
 		// find the auxiliary directories
@@ -117,7 +114,6 @@ private void createFindBugsProjectTempFile(StringBuffer buffer, Set<File> classD
 					buffer.toString());
 		}
 
-		File projectFile = new File(getOutputDir(), "findbugsproject.fbp");
 		BufferedWriter writer = null;
 		try {
 			writer = new BufferedWriter(
@@ -333,8 +329,6 @@ private ValidationResult createErrorMessage(ValidatorResource resource, int star
 		ValidationResult result = new ValidationResult(fullMessage, resource, Collections.EMPTY_LIST, startLine, column,
 				length, startPosition, getValidatorName());
 
-		ModelRegistry.getDefault().clearValidator(resource);
-
 		return result;
 	}
 
@@ -355,6 +349,10 @@ private final class FindBugsProcessor implements Processor {
 
 		private Set<File> classDirs;
 
+		private File projectFile;
+
+		private File outputFile;
+
 		/**
 		 * Constructor for this.
 		 */
@@ -366,8 +364,12 @@ private FindBugsProcessor() {
 		 * {@inheritDoc}
 		 */
 		@Override
-		public void prepareForFileGroup(StringBuffer buffer, int loopIndex) {
-			buffer.append(getBaseCommand()).append(loopIndex).append(".xml").append(QUOTE).append(" -onlyAnalyze ");
+		public void prepareForFileGroup(StringBuffer buffer, File outputDir) {
+			projectFile = new File(outputDir, "findbugsproject.fbp");
+			outputFile = new File(outputDir, "findbugs.xml");
+			buffer.append(getBaseCommand());
+			buffer.append(" -project ").append(QUOTE).append(projectFile).append(QUOTE);
+			buffer.append(" -output ").append(QUOTE).append(outputFile).append(QUOTE).append(" -onlyAnalyze ");
 
 			classDirs = new HashSet<File>();
 		}
@@ -401,7 +403,7 @@ public boolean processResource(StringBuffer buffer, ValidatorResource resource,
 		 */
 		@Override
 		public void prepareToInvoke(StringBuffer buffer, Map<String, String> environment) {
-			createFindBugsProjectTempFile(buffer, classDirs);
+			createFindBugsProjectTempFile(buffer, projectFile, classDirs);
 		}
 
 		/**
@@ -409,17 +411,12 @@ public void prepareToInvoke(StringBuffer buffer, Map<String, String> environment
 		 */
 		@Override
 		public List<File> findOutputFiles(File outputPath) {
-			final Pattern filePattern = Pattern.compile("\\d+\\.xml");
-			File[] outputFiles = outputPath.listFiles(new FileFilter() {
-
-				@Override
-				public boolean accept(File pathname) {
-					return filePattern.matcher(pathname.getName()).matches();
-				}
-
-			});
+			List<File> outputFiles = new ArrayList<File>();
+			if (outputFile.exists()) {
+				outputFiles.add(outputFile);
+			}
 
-			return Arrays.asList(outputFiles);
+			return outputFiles;
 		}
 
 		/**
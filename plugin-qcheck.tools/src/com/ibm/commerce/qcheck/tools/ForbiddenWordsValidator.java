@@ -19,8 +19,8 @@
  */
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.ArrayList;
@@ -29,8 +29,6 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.TreeMap;
 
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -40,6 +38,7 @@
 import org.eclipse.jdt.core.dom.Javadoc;
 import org.osgi.framework.Bundle;
 
+import com.ibm.commerce.qcheck.core.Debug;
 import com.ibm.commerce.qcheck.core.EclipseUtil;
 import com.ibm.commerce.qcheck.core.ModelEnum;
 import com.ibm.commerce.qcheck.core.ProblemActionFactory;
@@ -47,6 +46,7 @@
 import com.ibm.commerce.qcheck.core.ValidationResult;
 import com.ibm.commerce.qcheck.core.Validator;
 import com.ibm.commerce.qcheck.core.ValidatorResource;
+import com.ibm.commerce.qcheck.core.WatchedFile;
 import com.ibm.commerce.qcheck.core.comment.Comment;
 import com.ibm.commerce.qcheck.core.comment.CommentDescription;
 import com.ibm.commerce.qcheck.core.comment.Tag;
@@ -62,6 +62,24 @@ public class ForbiddenWordsValidator implements Validator {
 
 	private static final List<ModelEnum> REQUIRED_MODELS = Arrays.asList(ModelEnum.STRING, ModelEnum.COMP_UNIT);
 
+	/**
+	 * The file with the forbidden phrases. This value will be null until the
+	 * terms are first needed.
+	 */
+	private TermsFile termsFile;
+
+	/**
+	 * The file with the exceptions to the forbidden phrases. This value will
+	 * be null until the terms are first needed.
+	 */
+	private TermsFile exceptionsFile;
+
+	/**
+	 * The terms compiled from {@link #termsFile} and {@link #exceptionsFile}.
+	 * This value will be null until the terms are first needed.
+	 */
+	private Terms compiledTerms;
+
 	/**
 	 * Constructor for this.
 	 */
@@ -90,8 +108,7 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 			monitor.beginTask("Checking for IBM forbidden words", resources.size());
 
 			// load the forbidden words
-			Terms terms = loadTerms("data/findTerms.txt");
-			Terms exceptionTerms = loadTerms("data/exceptions.txt");
+			Terms terms = getTerms();
 
 			// get the results
 			for (ValidatorResource resource : resources) {
@@ -122,29 +139,19 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 						EclipseUtil.getDefault().checkCanceled(monitor);
 
 						String text = description.getHumanReadableString().toLowerCase(Locale.ENGLISH);
-						for (int i = 0; i < text.length(); i++) {
-
-							if ((i == 0 || !isWordCharacter(text, i - 1)) && isWordCharacter(text, i)) {
-								Term term = terms.findTerm(text, i);
-								if (term != null) {
-									Term exception = exceptionTerms.findTerm(text, i);
-									if (exception == null) {
-										// we have a forbidden term
-										int startingPosition = description.findInComment(i);
-
-										int column = compilationUnit.getColumnNumber(startingPosition);
-										int lineNumber = compilationUnit.getLineNumber(startingPosition) - 1;
-
-										ValidationResult result = new ValidationResult(
-												"This word or phrase is on IBM's list of words "
-														+ "that should never be used.",
-												resource, Collections.EMPTY_LIST, lineNumber, column,
-												term.phrase.length(), startingPosition, "Forbidden");
-
-										results.add(result);
-									}
-								}
-							}
+						for (PhraseMatcher.Match match : terms.findForbidden(text)) {
+							// we have a forbidden term
+							int startingPosition = description.findInComment(match.getStart());
+
+							int column = compilationUnit.getColumnNumber(startingPosition);
+							int lineNumber = compilationUnit.getLineNumber(startingPosition) - 1;
+
+							ValidationResult result = new ValidationResult(
+									"This word or phrase is on IBM's list of words that should never be used.",
+									resource, Collections.EMPTY_LIST, lineNumber, column, match.getLength(),
+									startingPosition, "Forbidden");
+
+							results.add(result);
 						}
 					}
 				}
@@ -159,242 +166,170 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 	}
 
 	/**
-	 * Loads the terms from the given file.
-	 *
-	 * @param filename
-	 *            The path name of the file with terms, relative to the root
-	 *            folder. Cannot be null or empty.
+	 * Returns the forbidden terms and exceptions, loading them if they have
+	 * not been loaded yet or the files have changed since they were loaded.
 	 *
-	 * @return The object which contains all the terms in the given file. Will
-	 *         not be null.
+	 * @return The compiled terms. Will not be null.
 	 *
 	 * @throws IOException
-	 *             If the file does not exist or there was an error reading the
-	 *             file.
+	 *             If a file does not exist or there was an error reading it.
 	 */
-	private Terms loadTerms(String filename) throws IOException {
-		Bundle bundle = Activator.getDefault().getBundle();
-		URL termsURL = FileLocator.find(bundle, new Path(filename), null);
-		InputStream termsIn = termsURL.openStream();
-		BufferedReader reader = new BufferedReader(new InputStreamReader(termsIn, "UTF-8"));
+	private synchronized Terms getTerms() throws IOException {
+		if (termsFile == null) {
+			termsFile = new TermsFile(findFile("data/findTerms.txt"));
+			exceptionsFile = new TermsFile(findFile("data/exceptions.txt"));
+		}
 
-		Terms terms = new Terms();
-		try {
-			String line = reader.readLine();
-			while (line != null) {
-				String phrase = line.substring(2).toLowerCase(Locale.ENGLISH);
-				Term term = new Term(phrase, null);
-				terms.addTerm(term);
-				line = reader.readLine();
-			}
-		} finally {
-			reader.close();
+		boolean changed = termsFile.changed() || exceptionsFile.changed();
+		termsFile.ensureLatestLoaded();
+		exceptionsFile.ensureLatestLoaded();
+		if (termsFile.getLoadedObject() == null) {
+			throw new IOException("Could not load " + termsFile.getName());
+		}
+
+		if (exceptionsFile.getLoadedObject() == null) {
+			throw new IOException("Could not load " + exceptionsFile.getName());
+		}
+
+		if (changed || compiledTerms == null) {
+			compiledTerms = new Terms(termsFile.getLoadedObject(), exceptionsFile.getLoadedObject());
 		}
-		return terms;
+
+		return compiledTerms;
 	}
 
 	/**
-	 * Returns whether the given character is part of a normal word.
+	 * Returns the URL of the given file in this plug-in.
+	 *
+	 * @param filename
+	 *            The path name of the file, relative to the root folder.
+	 *            Cannot be null or empty.
 	 *
-	 * @param text
-	 *            The text that contains the character. Cannot be null, but may
-	 *            be empty.
-	 * @param index
-	 *            The 0-based index into <code>text</code> where the character
-	 *            is located. Must be &gt;= 0.
+	 * @return The URL of the file. Will not be null.
 	 *
-	 * @return True if the character can be part of a word, false otherwise.
+	 * @throws IOException
+	 *             If the file does not exist.
 	 */
-	private boolean isWordCharacter(String text, int index) {
-		char c = text.charAt(index);
-		boolean wordChar = Character.isJavaIdentifierPart(c);
+	private URL findFile(String filename) throws IOException {
+		Bundle bundle = Activator.getDefault().getBundle();
+		URL url = FileLocator.find(bundle, new Path(filename), null);
+		if (url == null) {
+			throw new FileNotFoundException(filename);
+		}
 
-		return wordChar;
+		return FileLocator.toFileURL(url);
 	}
 
 	/**
-	 * Terms represents a phrase list which can be used for forbidden phrases or
-	 * exceptions. It provides methods to find phrases in this within a piece of
-	 * text.
+	 * Terms contains the forbidden phrases and the exceptions to them, compiled
+	 * into one {@link PhraseMatcher} so that both can be found in a single pass
+	 * over a piece of text.
 	 */
-	private class Terms {
+	private static class Terms {
 
 		/**
-		 * The list of words. This value will never be null.
+		 * The matcher for the exceptions followed by the forbidden phrases.
+		 * Since the exceptions come first, an exception always takes
+		 * precedence over a forbidden phrase at the same index. This value
+		 * will never be null.
 		 */
-		private List<Term> terms = new ArrayList<Term>();
+		private PhraseMatcher matcher;
 
 		/**
-		 * A mapping from the first word in a term to all the terms that have
-		 * that first word. This value will never be null.
+		 * The number of exceptions. Phrases in {@link #matcher} with this index
+		 * or higher are forbidden.
 		 */
-		private Map<String, List<Term>> firstWordToTermsMap = new TreeMap<String, List<Term>>();
+		private int exceptionCount;
 
 		/**
 		 * Constructor for Terms.
-		 */
-		private Terms() {
-			// do nothing
-		}
-
-		/**
-		 * Adds the given word or phrase to this.
 		 *
-		 * @param term
-		 *            The word or phrase to add. Cannot be null.
+		 * @param forbidden
+		 *            The forbidden phrases, in lower case. Cannot be null.
+		 * @param exceptions
+		 *            The phrases that override the forbidden phrases, in lower
+		 *            case. Cannot be null.
 		 */
-		public void addTerm(Term term) {
-			terms.add(term);
-
-			// add it to the first word index for faster searching
-			String currentPhrase = term.phrase;
-			String firstWord = findFirstWord(currentPhrase, 0);
-
-			List<Term> firstWordTerms = getTermsForFirstWord(firstWord);
-			firstWordTerms.add(term);
+		private Terms(List<String> forbidden, List<String> exceptions) {
+			List<String> phrases = new ArrayList<String>(exceptions);
+			phrases.addAll(forbidden);
+			this.matcher = new PhraseMatcher(phrases);
+			this.exceptionCount = exceptions.size();
 		}
 
 		/**
-		 * Finds the first word at or after the given index in the given text.
+		 * Finds the forbidden phrases in the given text. At each index, only
+		 * the first forbidden phrase in the file is returned, and nothing is
+		 * returned if an exception also starts there.
 		 *
 		 * @param text
-		 *            The text to search. Cannot be null, but may be empty.
-		 * @param startIndex
-		 *            The 0-based index into <code>text</code> to start
-		 *            searching from. Must be >= 0.
+		 *            The text to search, in lower case. Cannot be null, but may
+		 *            be empty.
 		 *
-		 * @return The value that was found. This value will be the same as
-		 *         <code>text</code> if there is no word after the given index.
-		 *         May be empty if the original text was empty. Will not be
-		 *         null.
+		 * @return The forbidden phrases in the order they appear in the text.
+		 *         Will not be null, but may be empty.
 		 */
-		private String findFirstWord(String text, int startIndex) {
-			int phraseLength = text.length();
-
-			int firstWhiteSpaceIndex = phraseLength;
-			for (int i = startIndex; i < phraseLength; i++) {
-				if (!isWordCharacter(text, i)) {
-					firstWhiteSpaceIndex = i;
-					break;
+		private List<PhraseMatcher.Match> findForbidden(String text) {
+			List<PhraseMatcher.Match> forbidden = new ArrayList<PhraseMatcher.Match>();
+			for (PhraseMatcher.Match match : matcher.findFirst(text)) {
+				if (match.getPhraseIndex() >= exceptionCount) {
+					forbidden.add(match);
 				}
 			}
 
-			String firstWord = text.substring(startIndex, firstWhiteSpaceIndex);
-
-			return firstWord;
-		}
-
-		/**
-		 * Returns the list of phrases that have the given string as the first
-		 * word.
-		 *
-		 * @param firstWord
-		 *            The word that should appear first in all phrases after.
-		 *            All characters in the string should return true for
-		 *            {@link #isWordCharacter(String, int)}. Cannot be null or
-		 *            empty.
-		 *
-		 * @return The list of phrases. Will not be null, and every phrase will
-		 *         contain the given string as a first word. This value will be
-		 *         empty if no phrases from this could be found.
-		 */
-		private List<Term> getTermsForFirstWord(String firstWord) {
-			List<Term> termsForFirstWord = firstWordToTermsMap.get(firstWord);
-			if (termsForFirstWord == null) {
-				termsForFirstWord = new ArrayList<Term>();
-				firstWordToTermsMap.put(firstWord, termsForFirstWord);
-			}
-
-			return termsForFirstWord;
-		}
-
-		/**
-		 * Finds the phrase for the word starting at the given index in the
-		 * given text.
-		 *
-		 * @param text
-		 *            The text that may have a phrase in this. Cannot be null,
-		 *            but may be empty.
-		 * @param firstWordIndex
-		 *            The 0-based index into the given text. Cannot be null or
-		 *            empty.
-		 *
-		 * @return The phrase from this that starts at the given index. Will be
-		 *         null if no phrase could be found.
-		 */
-		public Term findTerm(String text, int firstWordIndex) {
-			String firstWord = findFirstWord(text, firstWordIndex);
-			List<Term> termsForFirstWord = firstWordToTermsMap.get(firstWord);
-
-			Term term = null;
-			if (termsForFirstWord != null) {
-				for (Term possibleTerm : termsForFirstWord) {
-					if (text.startsWith(possibleTerm.phrase, firstWordIndex)) {
-						term = possibleTerm;
-						break;
-					}
-				}
-			}
-
-			return term;
+			return forbidden;
 		}
 	}
 
 	/**
-	 * Term represents a word or phrase, that may be forbidden or an exception
-	 * to a forbidden phrase.
+	 * TermsFile is a file that contains one phrase per line, where the first
+	 * two characters of each line are not part of the phrase.
 	 */
-	private class Term implements Comparable<String> {
-
-		/**
-		 * The full phrase. This value will never be null or empty.
-		 */
-		private String phrase;
-
-		/**
-		 * The explanation of why the phrase is forbidden. Only used if this is
-		 * a forbidden phrase. This value will never be empty. This value will
-		 * be null when there is no explanation or the phrase is an exception.
-		 */
-		private String explanation;
+	private static class TermsFile extends WatchedFile<List<String>> {
 
 		/**
-		 * Any suggestions that can be substituted for the given phrase. Only
-		 * used if this is a forbidden phrase. This value will never be null.
-		 */
-		private List<String> suggestions = new ArrayList<String>();
-
-		/**
-		 * Constructor for this.
+		 * Constructor for TermsFile.
 		 *
-		 * @param newPhrase
-		 *            The word or phrase. Cannot be null or empty.
-		 * @param newExplanation
-		 *            The explanation for why the phrase is forbidden. Cannot be
-		 *            empty. May be null if there is no explanation or the
-		 *            phrase is an exception.
+		 * @param newURL
+		 *            The URL of the file. Cannot be null.
 		 */
-		private Term(String newPhrase, String newExplanation) {
-			this.phrase = newPhrase;
-			this.explanation = newExplanation;
+		private TermsFile(URL newURL) {
+			super(newURL);
 		}
 
 		/**
-		 * Adds the given suggestion to this.
+		 * Returns the name of the file, for error messages.
 		 *
-		 * @param suggestion
-		 *            The suggestion to add. Cannot be null or empty.
+		 * @return The name of the file. Will not be null or empty.
 		 */
-		public void addSuggestion(String suggestion) {
-			suggestions.add(suggestion);
+		@Override
+		protected String getName() {
+			return super.getName();
 		}
 
 		/**
-		 * {@inheritDoc}
+		 * Loads the phrases from the file, in lower case.
 		 */
 		@Override
-		public int compareTo(String o) {
-			return phrase.compareTo(o);
+		protected void syncWithSystem() {
+			List<String> phrases = new ArrayList<String>();
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(openInputStream(), "UTF-8"));
+				try {
+					String line = reader.readLine();
+					while (line != null) {
+						phrases.add(line.substring(2).toLowerCase(Locale.ENGLISH));
+						line = reader.readLine();
+					}
+				} finally {
+					reader.close();
+				}
+
+				setLoadedObject(phrases);
+			} catch (IOException e) {
+				Debug.VALIDATOR.log(e, "Terms file " + getName() + " could not be read.");
+				setLoadedObject(null);
+			}
 		}
 	}
 }
@@ -74,7 +74,7 @@ public JavaDocValidatorFactory() {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Validator getValidatorInstance(ValidatorResource resource, Level level) {
+	public synchronized Validator getValidatorInstance(ValidatorResource resource, Level level) {
 		JavaDocValidator validatorToUse;
 		File file = resource.getFileAsFile();
 		if (file.getName().toLowerCase(Locale.ENGLISH).endsWith(".java")) {
@@ -95,7 +95,7 @@ public Validator getValidatorInstance(ValidatorResource resource, Level level) {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public boolean hasCreated(Validator validator) {
+	public synchronized boolean hasCreated(Validator validator) {
 		boolean fromThis = false;
 		for (JavaDocValidator rsarValidator : levelToValidatorMap.values()) {
 			if (validator.equals(rsarValidator)) {
@@ -133,6 +133,31 @@ Boolean parse(String value) {
 			Boolean parse(String value) {
 				return Boolean.valueOf(value);
 			}
+		},
+
+		/**
+		 * An Integer option which indicates the number of threads that
+		 * validators run in. If 1, validators run one at a time in the thread
+		 * that started validation.
+		 */
+		VALIDATOR_THREADS("validatorThreads") {
+
+			@Override
+			Integer parse(String value) {
+				return parseThreadCount(value);
+			}
+		},
+
+		/**
+		 * An Integer option which indicates the number of batches that each
+		 * external tool validator may run at the same time.
+		 */
+		EXTERNAL_TOOL_THREADS("externalToolThreads") {
+
+			@Override
+			Integer parse(String value) {
+				return parseThreadCount(value);
+			}
 		};
 
 		/**
@@ -205,6 +230,31 @@ public <T> void setValue(T value) {
 		 *         May be null.
 		 */
 		abstract <T> T parse(String value);
+
+		/**
+		 * Converts the given string into a number of threads.
+		 *
+		 * @param value
+		 *            The string form of the number of threads. May be null or
+		 *            empty.
+		 *
+		 * @return The number of threads, or 1 if the value is not a number
+		 *         &gt; 0. Will be &gt; 0.
+		 */
+		private static Integer parseThreadCount(String value) {
+			int result;
+			try {
+				result = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				result = 1;
+			}
+
+			if (result <= 0) {
+				result = 1;
+			}
+
+			return result;
+		}
 	}
 
 	/**
@@ -40,10 +40,24 @@ public class PIIFile implements Comparable<PIIFile> {
 
 	private final static Pattern dirPattern = Pattern.compile("(.+)\\\\([A-Za-z]{2})(_([A-Za-z]{2}))?\\\\");
 
+	private final static Pattern extensionPattern = Pattern.compile("^([^\\.]+)\\.(.+)$");
+
 	private String dir;
 
 	private String baseName;
 
+	/**
+	 * The lower case form of {@link #dir}, which is compared when files are
+	 * looked up or sorted.
+	 */
+	private String lowerDir;
+
+	/**
+	 * The lower case form of {@link #baseName}, which is compared when files
+	 * are looked up or sorted.
+	 */
+	private String lowerBaseName;
+
 	private boolean variantInParentDir;
 
 	private Map<Locale, Map<String, String>> variantToPropertiesMap;
@@ -54,6 +68,8 @@ public PIIFile(String dir, String baseName, boolean variantInParentDir) {
 
 		this.dir = dir;
 		this.baseName = baseName;
+		this.lowerDir = dir.toLowerCase();
+		this.lowerBaseName = baseName.toLowerCase();
 		this.variantInParentDir = variantInParentDir;
 		variantToPropertiesMap = new LinkedHashMap<Locale, Map<String, String>>();
 	}
@@ -102,8 +118,8 @@ public static PIIFile create(String dir, String baseName) {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		String thisBaseName = baseName.toLowerCase();
-		String thisDir = dir.toLowerCase();
+		String thisBaseName = lowerBaseName;
+		String thisDir = lowerDir;
 		result = prime * result + ((thisBaseName == null) ? 0 : thisBaseName.hashCode());
 		result = prime * result + ((thisDir == null) ? 0 : thisDir.hashCode());
 		result = prime * result + (variantInParentDir ? 1231 : 1237);
@@ -128,8 +144,8 @@ public boolean equals(Object obj) {
 		}
 
 		PIIFile other = (PIIFile) obj;
-		String thisBaseName = baseName.toLowerCase();
-		String otherBaseName = other.baseName.toLowerCase();
+		String thisBaseName = lowerBaseName;
+		String otherBaseName = other.lowerBaseName;
 		if (thisBaseName == null) {
 			if (otherBaseName != null) {
 				return false;
@@ -138,8 +154,8 @@ public boolean equals(Object obj) {
 			return false;
 		}
 
-		String thisDir = dir.toLowerCase();
-		String otherDir = other.dir.toLowerCase();
+		String thisDir = lowerDir;
+		String otherDir = other.lowerDir;
 		if (thisDir == null) {
 			if (otherDir != null) {
 				return false;
@@ -160,15 +176,15 @@ public boolean equals(Object obj) {
 	 */
 	@Override
 	public int compareTo(PIIFile o) {
-		String thisDir = dir.toLowerCase();
-		String otherDir = o.dir.toLowerCase();
+		String thisDir = lowerDir;
+		String otherDir = o.lowerDir;
 		int result = thisDir.compareTo(otherDir);
 		if (result != 0) {
 			return result;
 		}
 
-		String thisBaseName = baseName.toLowerCase();
-		String otherBaseName = o.baseName.toLowerCase();
+		String thisBaseName = lowerBaseName;
+		String otherBaseName = o.lowerBaseName;
 		result = thisBaseName.compareTo(otherBaseName);
 		if (result != 0) {
 			return result;
@@ -238,8 +254,7 @@ public String getDir(Locale locale) {
 	public String getName(Locale locale) {
 		String variantName = getBaseName();
 		if (!variantInParentDir) {
-			Pattern pattern = Pattern.compile("^([^\\.]+)\\.(.+)$");
-			Matcher matcher = pattern.matcher(variantName);
+			Matcher matcher = extensionPattern.matcher(variantName);
 			if (!matcher.matches()) {
 				throw new IllegalStateException("Could not find where to insert the locale in " + variantName + ".");
 			}
@@ -248,7 +263,7 @@ public String getName(Locale locale) {
 			if (!locale.getCountry().isEmpty()) {
 				localeString += "_" + locale.getCountry();
 			}
-			variantName = matcher.replaceFirst("$1" + localeString.toUpperCase() + ".$2");
+			variantName = matcher.group(1) + localeString.toUpperCase() + "." + matcher.group(2);
 		}
 		return variantName;
 	}
@@ -350,8 +365,8 @@ public Set<String> getProperties(Locale locale) {
 	@Override
 	public String toString() {
 		String string = dir;
-		if (dir.endsWith("\\")) {
-			dir = dir.substring(0, dir.length() - 1);
+		if (string.endsWith("\\")) {
+			string = string.substring(0, string.length() - 1);
 		}
 
 		return string + '\\' + baseName;
@@ -0,0 +1,474 @@
+package com.ibm.commerce.qcheck.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.ibm.commerce.qcheck.core.Param;
+
+/**
+ * PhraseMatcher finds all occurrences of a list of phrases in a text in a
+ * single pass, using an Aho-Corasick automaton. Matching is case-sensitive.
+ * <p>
+ * A phrase only matches where a word starts in the text, and the first word of
+ * the phrase must be the whole word in the text. The rest of the phrase only
+ * needs to match a prefix of the text that follows, so "white list" matches
+ * "white lists" but "white" does not match "whitelist". A word is a sequence of
+ * characters for which {@link Character#isJavaIdentifierPart(char)} is true.
+ * Phrases that do not start with a word character never match.
+ * <p>
+ * Since a match can only start where a word starts, the automaton only tracks
+ * suffixes of the text that start at a word start. This keeps it from
+ * following partial matches inside words, which would never be reported.
+ * <p>
+ * Instances of this are immutable, so they can be shared between threads.
+ *
+ * @author Trent Hoeppner
+ */
+public class PhraseMatcher {
+
+	/**
+	 * The index of the root node of the automaton.
+	 */
+	private static final int ROOT = 0;
+
+	/**
+	 * The number of characters for which the children of the root are kept in
+	 * a table, since almost every character of the text is looked up there.
+	 */
+	private static final int ROOT_TABLE_SIZE = 128;
+
+	/**
+	 * The phrases to find, in the order they were given. This value will never
+	 * be null.
+	 */
+	private List<String> phrases;
+
+	/**
+	 * The length of the first word of each phrase, indexed by phrase. This
+	 * value will never be null.
+	 */
+	private int[] firstWordLengths;
+
+	/**
+	 * The length of each phrase, indexed by phrase. This value will never be
+	 * null.
+	 */
+	private int[] phraseLengths;
+
+	/**
+	 * The index in {@link #edgeChars} and {@link #edgeTargets} of the first
+	 * edge from each node to its children, indexed by node. The edges of a
+	 * node end where the edges of the next node start, so there is one more
+	 * element than there are nodes. This value will never be null.
+	 */
+	private int[] firstEdges;
+
+	/**
+	 * The characters on the edges of all nodes. The characters of each node's
+	 * edges are sorted. This value will never be null.
+	 */
+	private char[] edgeChars;
+
+	/**
+	 * The child that each edge leads to, in the same order as
+	 * {@link #edgeChars}. This value will never be null.
+	 */
+	private int[] edgeTargets;
+
+	/**
+	 * The node for the longest proper suffix of each node's path that is also
+	 * a path from the root and starts after a non-word character in the path,
+	 * indexed by node. This value will never be null.
+	 */
+	private int[] failures;
+
+	/**
+	 * The lowest index of a phrase that ends at each node, or -1 if no phrase
+	 * ends there, indexed by node. This value will never be null.
+	 */
+	private int[] outputs;
+
+	/**
+	 * The nearest node on the failure chain of each node which has an output,
+	 * or -1 if there is none, indexed by node. This value will never be null.
+	 */
+	private int[] nextOutputs;
+
+	/**
+	 * The children of the root for characters less than
+	 * {@link #ROOT_TABLE_SIZE}, or -1 where there is no child, indexed by
+	 * character. This value will never be null.
+	 */
+	private int[] rootTable;
+
+	/**
+	 * Constructor for PhraseMatcher.
+	 *
+	 * @param newPhrases
+	 *            The phrases to find. Cannot be null, but may be empty. If a
+	 *            phrase appears more than once, matches will have the index of
+	 *            the first one.
+	 */
+	public PhraseMatcher(List<String> newPhrases) {
+		Param.notNull(newPhrases, "newPhrases");
+
+		this.phrases = new ArrayList<String>(newPhrases);
+		this.firstWordLengths = new int[phrases.size()];
+		this.phraseLengths = new int[phrases.size()];
+
+		List<Map<Character, Integer>> nodeEdges = new ArrayList<Map<Character, Integer>>();
+		List<Integer> nodeOutputs = new ArrayList<Integer>();
+		nodeEdges.add(new TreeMap<Character, Integer>());
+		nodeOutputs.add(Integer.valueOf(-1));
+
+		for (int phraseIndex = 0; phraseIndex < phrases.size(); phraseIndex++) {
+			String phrase = phrases.get(phraseIndex);
+			phraseLengths[phraseIndex] = phrase.length();
+			firstWordLengths[phraseIndex] = findFirstWordLength(phrase);
+			if (firstWordLengths[phraseIndex] == 0) {
+				// it can never match, so leave it out of the automaton
+				continue;
+			}
+
+			int node = ROOT;
+			for (int i = 0; i < phrase.length(); i++) {
+				Character c = Character.valueOf(phrase.charAt(i));
+				Integer child = nodeEdges.get(node).get(c);
+				if (child == null) {
+					child = Integer.valueOf(nodeEdges.size());
+					nodeEdges.add(new TreeMap<Character, Integer>());
+					nodeOutputs.add(Integer.valueOf(-1));
+					nodeEdges.get(node).put(c, child);
+				}
+
+				node = child.intValue();
+			}
+
+			if (nodeOutputs.get(node).intValue() < 0) {
+				nodeOutputs.set(node, Integer.valueOf(phraseIndex));
+			}
+		}
+
+		int nodeCount = nodeEdges.size();
+		firstEdges = new int[nodeCount + 1];
+		edgeChars = new char[nodeCount - 1];
+		edgeTargets = new int[nodeCount - 1];
+		outputs = new int[nodeCount];
+		char[] lastChars = new char[nodeCount];
+		int edgeIndex = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			firstEdges[node] = edgeIndex;
+			for (Map.Entry<Character, Integer> entry : nodeEdges.get(node).entrySet()) {
+				edgeChars[edgeIndex] = entry.getKey().charValue();
+				edgeTargets[edgeIndex] = entry.getValue().intValue();
+				lastChars[edgeTargets[edgeIndex]] = edgeChars[edgeIndex];
+				edgeIndex++;
+			}
+
+			outputs[node] = nodeOutputs.get(node).intValue();
+		}
+		firstEdges[nodeCount] = edgeIndex;
+
+		rootTable = new int[ROOT_TABLE_SIZE];
+		Arrays.fill(rootTable, -1);
+		for (int rootEdge = firstEdges[ROOT]; rootEdge < firstEdges[ROOT + 1]; rootEdge++) {
+			if (edgeChars[rootEdge] < ROOT_TABLE_SIZE) {
+				rootTable[edgeChars[rootEdge]] = edgeTargets[rootEdge];
+			}
+		}
+
+		linkFailures(lastChars);
+	}
+
+	/**
+	 * Computes the failure and output links of all nodes, in breadth-first
+	 * order so that the links of shorter paths are known first.
+	 *
+	 * @param lastChars
+	 *            The last character in the path of each node, indexed by
+	 *            node. Cannot be null.
+	 */
+	private void linkFailures(char[] lastChars) {
+		int nodeCount = outputs.length;
+		failures = new int[nodeCount];
+		nextOutputs = new int[nodeCount];
+		nextOutputs[ROOT] = -1;
+
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for (int rootEdge = firstEdges[ROOT]; rootEdge < firstEdges[ROOT + 1]; rootEdge++) {
+			int child = edgeTargets[rootEdge];
+			failures[child] = ROOT;
+			nextOutputs[child] = -1;
+			queue.add(Integer.valueOf(child));
+		}
+
+		while (!queue.isEmpty()) {
+			int node = queue.removeFirst().intValue();
+			for (int edgeIndex = firstEdges[node]; edgeIndex < firstEdges[node + 1]; edgeIndex++) {
+				char c = edgeChars[edgeIndex];
+				int child = edgeTargets[edgeIndex];
+
+				int next = -1;
+				for (int failure = failures[node]; next < 0 && failure != ROOT; failure = failures[failure]) {
+					next = findChild(failure, c);
+				}
+
+				if (next < 0 && !Character.isJavaIdentifierPart(lastChars[node])) {
+					// a new word can start at the last character
+					next = findChild(ROOT, c);
+				}
+
+				failures[child] = next < 0 ? ROOT : next;
+				nextOutputs[child] = outputs[failures[child]] >= 0 ? failures[child] : nextOutputs[failures[child]];
+				queue.add(Integer.valueOf(child));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of phrases in this.
+	 *
+	 * @return The number of phrases given to the constructor. Will be &gt;= 0.
+	 */
+	public int getPhraseCount() {
+		return phrases.size();
+	}
+
+	/**
+	 * Returns the phrase with the given index.
+	 *
+	 * @param phraseIndex
+	 *            The 0-based index of the phrase, in the order given to the
+	 *            constructor. Must be &gt;= 0 and less than
+	 *            {@link #getPhraseCount()}.
+	 *
+	 * @return The phrase. Will not be null.
+	 */
+	public String getPhrase(int phraseIndex) {
+		return phrases.get(phraseIndex);
+	}
+
+	/**
+	 * Finds the phrases in the given text. Where more than one phrase starts
+	 * at the same index, only the one with the lowest index is returned.
+	 *
+	 * @param text
+	 *            The text to search. Cannot be null, but may be empty.
+	 *
+	 * @return The matches, sorted by start index. Will not be null, but may be
+	 *         empty.
+	 */
+	public List<Match> findFirst(String text) {
+		Param.notNull(text, "text");
+
+		int[] firstPhraseAtStart = null;
+		int matchCount = 0;
+		int node = ROOT;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			int next = findChild(node, c);
+			while (next < 0 && node != ROOT) {
+				node = failures[node];
+				next = findChild(node, c);
+			}
+
+			if (node == ROOT && i > 0 && Character.isJavaIdentifierPart(text.charAt(i - 1))) {
+				// a word does not start here, so no phrase can start here
+				next = -1;
+			}
+
+			node = next < 0 ? ROOT : next;
+
+			int outputNode = outputs[node] >= 0 ? node : nextOutputs[node];
+			while (outputNode >= 0) {
+				int phraseIndex = outputs[outputNode];
+				int start = i + 1 - phraseLengths[phraseIndex];
+				if (isMatch(text, start, phraseIndex)) {
+					if (firstPhraseAtStart == null) {
+						firstPhraseAtStart = new int[text.length()];
+						Arrays.fill(firstPhraseAtStart, -1);
+					}
+
+					if (firstPhraseAtStart[start] < 0) {
+						firstPhraseAtStart[start] = phraseIndex;
+						matchCount++;
+					} else if (phraseIndex < firstPhraseAtStart[start]) {
+						firstPhraseAtStart[start] = phraseIndex;
+					}
+				}
+
+				outputNode = nextOutputs[outputNode];
+			}
+		}
+
+		List<Match> matches = new ArrayList<Match>(matchCount);
+		for (int start = 0; matchCount > 0 && start < text.length(); start++) {
+			int phraseIndex = firstPhraseAtStart[start];
+			if (phraseIndex >= 0) {
+				matches.add(new Match(start, phraseIndex, phraseLengths[phraseIndex]));
+				matchCount--;
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Returns whether a phrase that occurs in the text at the given word start
+	 * satisfies the word boundary rules.
+	 *
+	 * @param text
+	 *            The text that contains the phrase. Cannot be null.
+	 * @param start
+	 *            The 0-based index into <code>text</code> where the phrase
+	 *            starts, which must be the start of a word. Must be &gt;= 0.
+	 * @param phraseIndex
+	 *            The index of the phrase. Must be &gt;= 0.
+	 *
+	 * @return True if the first word of the phrase is the whole word in the
+	 *         text, false otherwise.
+	 */
+	private boolean isMatch(String text, int start, int phraseIndex) {
+		int firstWordEnd = start + firstWordLengths[phraseIndex];
+		return firstWordEnd == text.length() || !Character.isJavaIdentifierPart(text.charAt(firstWordEnd));
+	}
+
+	/**
+	 * Returns the child of the given node on the edge with the given
+	 * character.
+	 *
+	 * @param node
+	 *            The node. Must be &gt;= 0.
+	 * @param c
+	 *            The character on the edge.
+	 *
+	 * @return The child node, or -1 if there is no such edge.
+	 */
+	private int findChild(int node, char c) {
+		if (node == ROOT && c < ROOT_TABLE_SIZE) {
+			return rootTable[c];
+		}
+
+		int low = firstEdges[node];
+		int high = firstEdges[node + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (edgeChars[middle] < c) {
+				low = middle + 1;
+			} else if (edgeChars[middle] > c) {
+				high = middle - 1;
+			} else {
+				return edgeTargets[middle];
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the length of the first word in the given phrase.
+	 *
+	 * @param phrase
+	 *            The phrase. Cannot be null, but may be empty.
+	 *
+	 * @return The number of word characters at the start of the phrase. Will
+	 *         be 0 if the phrase is empty or starts with a non-word character.
+	 */
+	private static int findFirstWordLength(String phrase) {
+		int length = 0;
+		while (length < phrase.length() && Character.isJavaIdentifierPart(phrase.charAt(length))) {
+			length++;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Match represents one occurrence of a phrase in a text.
+	 */
+	public static class Match {
+
+		/**
+		 * The 0-based index into the text where the phrase starts.
+		 */
+		private int start;
+
+		/**
+		 * The index of the phrase, in the order given to the
+		 * {@link PhraseMatcher}.
+		 */
+		private int phraseIndex;
+
+		/**
+		 * The number of characters in the phrase.
+		 */
+		private int length;
+
+		/**
+		 * Constructor for Match.
+		 *
+		 * @param newStart
+		 *            The 0-based index into the text where the phrase starts.
+		 *            Must be &gt;= 0.
+		 * @param newPhraseIndex
+		 *            The index of the phrase. Must be &gt;= 0.
+		 * @param newLength
+		 *            The number of characters in the phrase. Must be &gt; 0.
+		 */
+		private Match(int newStart, int newPhraseIndex, int newLength) {
+			this.start = newStart;
+			this.phraseIndex = newPhraseIndex;
+			this.length = newLength;
+		}
+
+		/**
+		 * Returns the index into the text where the phrase starts.
+		 *
+		 * @return The 0-based index. Will be &gt;= 0.
+		 */
+		public int getStart() {
+			return start;
+		}
+
+		/**
+		 * Returns the index of the phrase that was found.
+		 *
+		 * @return The index of the phrase, in the order given to the
+		 *         {@link PhraseMatcher}. Will be &gt;= 0.
+		 */
+		public int getPhraseIndex() {
+			return phraseIndex;
+		}
+
+		/**
+		 * Returns the length of the phrase that was found.
+		 *
+		 * @return The number of characters in the phrase. Will be &gt; 0.
+		 */
+		public int getLength() {
+			return length;
+		}
+	}
+}
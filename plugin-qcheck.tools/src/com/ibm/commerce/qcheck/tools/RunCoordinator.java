@@ -0,0 +1,278 @@
+package com.ibm.commerce.qcheck.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.ibm.commerce.qcheck.core.ModelEnum;
+import com.ibm.commerce.qcheck.core.ValidatorResource;
+import com.ibm.commerce.qcheck.tools.config.TimeEnum;
+
+/**
+ * RunCoordinator decides which validation runs take precedence over others.
+ * Each run is identified by its progress monitor, which is also the
+ * cancellation token for the validators in the run. The runs with lower
+ * precedence are canceled:
+ * <ul>
+ * <li>asyoutype can be interrupted by toolkit builds and manual runs, and by
+ * newer asyoutype runs.
+ * <li>incremental toolkit builds can be interrupted by full toolkit builds and
+ * manual runs, and by newer incremental toolkit builds.
+ * <li>full toolkit builds can be interrupted by manual runs, and by newer full
+ * toolkit builds.
+ * <li>manual runs cannot be interrupted.
+ * </ul>
+ * <p>
+ * Toolkit builds and manual runs also run validators that asyoutype does not,
+ * so asyoutype must not replace their markers. When one of them completes, the
+ * contents that it validated are remembered, and an asyoutype run which starts
+ * later for the same contents is canceled at once. An asyoutype run for
+ * changed contents runs normally.
+ *
+ * @author Trent Hoeppner
+ */
+public class RunCoordinator {
+
+	/**
+	 * A map from monitors (which represent Threads running validators) to
+	 * situations in which the monitors are being run. This value will never be
+	 * null.
+	 */
+	private Map<IProgressMonitor, TimeEnum> workingMonitors = new HashMap<IProgressMonitor, TimeEnum>();
+
+	/**
+	 * The charset used to turn contents into bytes for the digest.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * A map from resource paths to the SHA-256 digest of the contents that
+	 * were last validated by a completed toolkit build or manual run. A
+	 * digest is used instead of a hash code, since contents with the same
+	 * hash code would cancel an asyoutype run that is needed. This value will
+	 * never be null.
+	 */
+	private Map<String, String> pathToValidatedDigestMap = new HashMap<String, String>();
+
+	/**
+	 * Constructor for RunCoordinator.
+	 */
+	public RunCoordinator() {
+		// do nothing
+	}
+
+	/**
+	 * Registers a new run, and cancels the runs with lower precedence. The new
+	 * run itself will be canceled if a running run has higher precedence, or
+	 * if it is an asyoutype run for contents that a completed run already
+	 * validated.
+	 *
+	 * @param resources
+	 *            The resources that the run validates. Cannot be null.
+	 * @param time
+	 *            The circumstances under which the validation occurs. Must be
+	 *            one of ASYOUTYPE, INCREMENTALTOOLKITBUILD, FULLTOOLKITBUILD or
+	 *            MANUAL.
+	 * @param monitor
+	 *            The monitor which identifies the run and is used to cancel it.
+	 *            Cannot be null.
+	 */
+	public void start(List<ValidatorResource> resources, TimeEnum time, IProgressMonitor monitor) {
+		List<String> paths = null;
+		List<String> digests = null;
+		if (time == TimeEnum.ASYOUTYPE) {
+			paths = getPaths(resources);
+			digests = getContentDigests(resources);
+		}
+
+		synchronized (this) {
+			for (IProgressMonitor otherMonitor : workingMonitors.keySet()) {
+				TimeEnum otherTime = workingMonitors.get(otherMonitor);
+
+				switch (time) {
+				case ASYOUTYPE:
+					if (otherTime == TimeEnum.ASYOUTYPE) {
+						// this one has more current changes than another
+						// one that started running earlier, so cancel the
+						// other one
+						otherMonitor.setCanceled(true);
+					} else if (otherTime == TimeEnum.FULLTOOLKITBUILD || otherTime == TimeEnum.INCREMENTALTOOLKITBUILD
+							|| otherTime == TimeEnum.MANUAL) {
+						monitor.setCanceled(true);
+					}
+					break;
+				case INCREMENTALTOOLKITBUILD:
+					if (otherTime == TimeEnum.ASYOUTYPE || otherTime == TimeEnum.INCREMENTALTOOLKITBUILD) {
+						otherMonitor.setCanceled(true);
+					} else if (otherTime == TimeEnum.FULLTOOLKITBUILD || otherTime == TimeEnum.MANUAL) {
+						monitor.setCanceled(true);
+					}
+					break;
+				case FULLTOOLKITBUILD:
+					if (otherTime == TimeEnum.ASYOUTYPE || otherTime == TimeEnum.INCREMENTALTOOLKITBUILD
+							|| otherTime == TimeEnum.FULLTOOLKITBUILD) {
+						otherMonitor.setCanceled(true);
+					} else if (otherTime == TimeEnum.MANUAL) {
+						monitor.setCanceled(true);
+					}
+					break;
+				case MANUAL:
+					if (otherTime == TimeEnum.ASYOUTYPE || otherTime == TimeEnum.FULLTOOLKITBUILD
+							|| otherTime == TimeEnum.INCREMENTALTOOLKITBUILD) {
+						otherMonitor.setCanceled(true);
+					}
+					break;
+				default:
+					throw new IllegalArgumentException("Invalid time parameter: " + time);
+				}
+			}
+
+			if (time == TimeEnum.ASYOUTYPE && isAllValidated(paths, digests)) {
+				monitor.setCanceled(true);
+			}
+
+			workingMonitors.put(monitor, time);
+		}
+	}
+
+	/**
+	 * Unregisters a run. If the run completed, the contents that it validated
+	 * are remembered for later asyoutype runs.
+	 *
+	 * @param resources
+	 *            The resources that the run validated. Cannot be null.
+	 * @param monitor
+	 *            The monitor which was given to {@link #start}. Cannot be
+	 *            null.
+	 * @param completed
+	 *            True if all validators finished, false if the run was
+	 *            canceled or failed.
+	 */
+	public void finish(List<ValidatorResource> resources, IProgressMonitor monitor, boolean completed) {
+		TimeEnum time;
+		synchronized (this) {
+			time = workingMonitors.remove(monitor);
+		}
+
+		if (time == null || !completed) {
+			return;
+		}
+
+		List<String> paths = getPaths(resources);
+		List<String> digests = null;
+		if (time != TimeEnum.ASYOUTYPE) {
+			digests = getContentDigests(resources);
+		}
+
+		synchronized (this) {
+			for (int i = 0; i < paths.size(); i++) {
+				if (digests != null) {
+					pathToValidatedDigestMap.put(paths.get(i), digests.get(i));
+				} else {
+					// the asyoutype markers replaced the others
+					pathToValidatedDigestMap.remove(paths.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the given contents were all validated by a completed run.
+	 *
+	 * @param paths
+	 *            The paths of the resources. Cannot be null.
+	 * @param digests
+	 *            The digests of the contents of the resources, in the same
+	 *            order as the paths. Cannot be null.
+	 *
+	 * @return True if all contents were validated, false otherwise.
+	 */
+	private boolean isAllValidated(List<String> paths, List<String> digests) {
+		if (paths.isEmpty()) {
+			return false;
+		}
+
+		for (int i = 0; i < paths.size(); i++) {
+			String digest = digests.get(i);
+			if (digest == null || !digest.equals(pathToValidatedDigestMap.get(paths.get(i)))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the paths of the given resources.
+	 *
+	 * @param resources
+	 *            The resources. Cannot be null.
+	 *
+	 * @return The absolute paths. Will not be null.
+	 */
+	private List<String> getPaths(List<ValidatorResource> resources) {
+		List<String> paths = new ArrayList<String>();
+		for (ValidatorResource resource : resources) {
+			paths.add(resource.getFileAsFile().getAbsolutePath());
+		}
+
+		return paths;
+	}
+
+	/**
+	 * Returns the SHA-256 digests of the contents of the given resources. For
+	 * working copies, this is the contents in the editor.
+	 *
+	 * @param resources
+	 *            The resources. Cannot be null.
+	 *
+	 * @return The digests in hexadecimal, in the same order as the resources.
+	 *         An element is null if the contents of that resource could not be
+	 *         read. Will not be null.
+	 */
+	private List<String> getContentDigests(List<ValidatorResource> resources) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every Java platform must support SHA-256.", e);
+		}
+
+		List<String> digests = new ArrayList<String>();
+		for (ValidatorResource resource : resources) {
+			String contents = ModelEnum.STRING.getData(resource);
+			if (contents == null) {
+				digests.add(null);
+			} else {
+				digests.add(new BigInteger(1, digest.digest(contents.getBytes(UTF_8))).toString(16));
+			}
+		}
+
+		return digests;
+	}
+}
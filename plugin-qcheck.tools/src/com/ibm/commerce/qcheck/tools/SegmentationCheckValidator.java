@@ -76,7 +76,7 @@ public List<File> findOutputFiles(File outputPath) {
 		}
 
 		@Override
-		public void prepareForFileGroup(StringBuffer buffer, int loopIndex) {
+		public void prepareForFileGroup(StringBuffer buffer, File outputDir) {
 			// TODO Auto-generated method stub
 
 		}
@@ -0,0 +1,285 @@
+package com.ibm.commerce.qcheck.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ibm.commerce.qcheck.core.Param;
+
+/**
+ * SpellChecker finds the misspelled words in text using a
+ * {@link SpellingDictionary}. It follows the default settings of the Eclipse
+ * spell-checker, so it ignores single letters, words with digits, words in
+ * upper case, words with mixed case, and URLs.
+ * <p>
+ * Each instance remembers the words that it already checked, so one instance
+ * should be used for each validation run. Instances are not thread-safe, but
+ * any number of them may share the same dictionary.
+ *
+ * @author Trent Hoeppner
+ */
+public class SpellChecker {
+
+	/**
+	 * The maximum number of suggestions for each misspelled word.
+	 */
+	private static final int MAX_SUGGESTIONS = 10;
+
+	/**
+	 * The pattern for URLs, which are not checked.
+	 */
+	private static final Pattern URL_PATTERN = Pattern.compile("(?i)\\b(?:[a-z][a-z0-9+.-]*://|www\\.)\\S+");
+
+	/**
+	 * The dictionary with the correctly spelled words. This value will never
+	 * be null.
+	 */
+	private SpellingDictionary dictionary;
+
+	/**
+	 * A mapping from words that were already checked to their suggestions. If
+	 * a word is spelled correctly, it maps to null. This value will never be
+	 * null.
+	 */
+	private Map<String, List<String>> checkedWordToSuggestionsMap = new HashMap<String, List<String>>();
+
+	/**
+	 * Constructor for SpellChecker.
+	 *
+	 * @param newDictionary
+	 *            The dictionary with the correctly spelled words. Cannot be
+	 *            null.
+	 */
+	public SpellChecker(SpellingDictionary newDictionary) {
+		Param.notNull(newDictionary, "newDictionary");
+
+		this.dictionary = newDictionary;
+	}
+
+	/**
+	 * Finds the misspelled words in the given text.
+	 *
+	 * @param text
+	 *            The text to check. Cannot be null, but may be empty.
+	 *
+	 * @return The misspelled words, in the order they appear in the text. Will
+	 *         not be null, but may be empty.
+	 */
+	public List<Misspelling> check(String text) {
+		Param.notNull(text, "text");
+
+		List<Misspelling> misspellings = new ArrayList<Misspelling>();
+		Matcher urlMatcher = URL_PATTERN.matcher(text);
+		boolean moreURLs = urlMatcher.find();
+		int i = 0;
+		while (i < text.length()) {
+			if (!Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+				continue;
+			}
+
+			int start = i;
+			while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || isInnerApostrophe(text, i))) {
+				i++;
+			}
+
+			while (moreURLs && urlMatcher.end() <= start) {
+				moreURLs = urlMatcher.find();
+			}
+
+			if (moreURLs && urlMatcher.start() <= start) {
+				// URLs are not checked
+				continue;
+			}
+
+			String word = text.substring(start, i);
+			if (word.endsWith("'s")) {
+				word = word.substring(0, word.length() - 2);
+			}
+
+			if (isIgnored(word)) {
+				continue;
+			}
+
+			List<String> suggestions = getSuggestions(word);
+			if (suggestions != null) {
+				misspellings.add(new Misspelling(start, word, suggestions));
+			}
+		}
+
+		return misspellings;
+	}
+
+	/**
+	 * Returns the suggestions for the given word, or null if the word is
+	 * spelled correctly.
+	 *
+	 * @param word
+	 *            The word to check. Cannot be null or empty.
+	 *
+	 * @return The suggestions for the word. Will be null if the word is spelled
+	 *         correctly, and may be empty if there are no suggestions.
+	 */
+	private List<String> getSuggestions(String word) {
+		if (checkedWordToSuggestionsMap.containsKey(word)) {
+			return checkedWordToSuggestionsMap.get(word);
+		}
+
+		List<String> suggestions = null;
+		if (!dictionary.contains(word)) {
+			suggestions = Collections.unmodifiableList(dictionary.suggest(word, MAX_SUGGESTIONS));
+		}
+
+		checkedWordToSuggestionsMap.put(word, suggestions);
+		return suggestions;
+	}
+
+	/**
+	 * Returns whether the character at the given index is an apostrophe
+	 * between two letters.
+	 *
+	 * @param text
+	 *            The text that contains the character. Cannot be null.
+	 * @param index
+	 *            The 0-based index into <code>text</code>. Must be &gt;= 0.
+	 *
+	 * @return True if the character is an apostrophe inside a word, false
+	 *         otherwise.
+	 */
+	private boolean isInnerApostrophe(String text, int index) {
+		return text.charAt(index) == '\'' && index > 0 && index + 1 < text.length()
+				&& Character.isLetter(text.charAt(index - 1)) && Character.isLetter(text.charAt(index + 1));
+	}
+
+	/**
+	 * Returns whether the given word should not be checked.
+	 *
+	 * @param word
+	 *            The word. Cannot be null.
+	 *
+	 * @return True if the word is a single letter, has digits, or has upper
+	 *         case letters after the first letter, false otherwise.
+	 */
+	private boolean isIgnored(String word) {
+		if (word.length() <= 1) {
+			return true;
+		}
+
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (Character.isDigit(c) || (i > 0 && Character.isUpperCase(c))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Misspelling represents a word that is not in the dictionary.
+	 */
+	public static class Misspelling {
+
+		/**
+		 * The 0-based index into the text where the word starts.
+		 */
+		private int offset;
+
+		/**
+		 * The misspelled word. This value will never be null or empty.
+		 */
+		private String word;
+
+		/**
+		 * The words that could replace the misspelled word. This value will
+		 * never be null.
+		 */
+		private List<String> suggestions;
+
+		/**
+		 * Constructor for Misspelling.
+		 *
+		 * @param newOffset
+		 *            The 0-based index into the text where the word starts.
+		 *            Must be &gt;= 0.
+		 * @param newWord
+		 *            The misspelled word. Cannot be null or empty.
+		 * @param newSuggestions
+		 *            The words that could replace the misspelled word. Cannot
+		 *            be null.
+		 */
+		private Misspelling(int newOffset, String newWord, List<String> newSuggestions) {
+			this.offset = newOffset;
+			this.word = newWord;
+			this.suggestions = newSuggestions;
+		}
+
+		/**
+		 * Returns the index into the text where the word starts.
+		 *
+		 * @return The 0-based index. Will be &gt;= 0.
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Returns the length of the misspelled word.
+		 *
+		 * @return The number of characters in the word. Will be &gt; 0.
+		 */
+		public int getLength() {
+			return word.length();
+		}
+
+		/**
+		 * Returns the misspelled word.
+		 *
+		 * @return The word. Will not be null or empty.
+		 */
+		public String getWord() {
+			return word;
+		}
+
+		/**
+		 * Returns the words that could replace the misspelled word.
+		 *
+		 * @return The suggestions, best first. Will not be null, but may be
+		 *         empty.
+		 */
+		public List<String> getSuggestions() {
+			return suggestions;
+		}
+
+		/**
+		 * Returns a message that describes the problem.
+		 *
+		 * @return The message. Will not be null or empty.
+		 */
+		public String getMessage() {
+			return "The word '" + word + "' is not correctly spelled";
+		}
+	}
+}
@@ -0,0 +1,415 @@
+package com.ibm.commerce.qcheck.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.ibm.commerce.qcheck.core.Param;
+
+/**
+ * SpellingDictionary is a list of correctly spelled words which can suggest
+ * corrections for misspelled words. It does not depend on Eclipse, so it can be
+ * used without a workbench.
+ * <p>
+ * The words are kept in a sorted array. Suggestions are found with a
+ * SymSpell-style deletion index: every word, and every string that can be made
+ * by deleting one character from a word, is stored as a hash together with the
+ * index of the word. To find suggestions, the strings that can be made by
+ * deleting up to two characters from the misspelled word are looked up, and
+ * each candidate is checked by computing its edit distance. This finds words
+ * that differ by one insertion, deletion, substitution or transposition, and
+ * most words that differ by two.
+ * <p>
+ * Instances of this are immutable, so they can be shared between threads.
+ *
+ * @author Trent Hoeppner
+ */
+public class SpellingDictionary {
+
+	/**
+	 * The largest edit distance between a misspelled word and a suggestion.
+	 */
+	private static final int MAX_EDIT_DISTANCE = 2;
+
+	/**
+	 * The number of bits to shift a hash to make room for a word index.
+	 */
+	private static final int HASH_SHIFT = 32;
+
+	/**
+	 * The mask for the word index in an entry of {@link #deletions}.
+	 */
+	private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+	/**
+	 * The correctly spelled words, sorted. This value will never be null.
+	 */
+	private String[] words;
+
+	/**
+	 * The lower case form of each word in {@link #words}, in the same order.
+	 * This value will never be null.
+	 */
+	private String[] lowerCaseWords;
+
+	/**
+	 * The deletion index. Each entry has the hash of a lower case word, or of
+	 * the word with one character deleted, in the high 32 bits, and the index
+	 * of the word in the low 32 bits. The entries are sorted. This value will
+	 * never be null.
+	 */
+	private long[] deletions;
+
+	/**
+	 * Constructor for SpellingDictionary.
+	 *
+	 * @param newWords
+	 *            The correctly spelled words. Cannot be null, but may be
+	 *            empty. Empty and duplicate words are ignored.
+	 */
+	public SpellingDictionary(Collection<String> newWords) {
+		Param.notNull(newWords, "newWords");
+
+		Set<String> sortedWords = new TreeSet<String>();
+		for (String word : newWords) {
+			String trimmed = word.trim();
+			if (!trimmed.isEmpty()) {
+				sortedWords.add(trimmed);
+			}
+		}
+
+		words = sortedWords.toArray(new String[sortedWords.size()]);
+		lowerCaseWords = new String[words.length];
+		List<Long> entries = new ArrayList<Long>();
+		for (int i = 0; i < words.length; i++) {
+			lowerCaseWords[i] = words[i].toLowerCase(Locale.ENGLISH);
+			Set<String> variants = new HashSet<String>();
+			variants.add(lowerCaseWords[i]);
+			addDeletions(lowerCaseWords[i], variants);
+			for (String variant : variants) {
+				entries.add(Long.valueOf(toEntry(variant.hashCode(), i)));
+			}
+		}
+
+		deletions = new long[entries.size()];
+		for (int i = 0; i < deletions.length; i++) {
+			deletions[i] = entries.get(i).longValue();
+		}
+
+		Arrays.sort(deletions);
+	}
+
+	/**
+	 * Returns the number of words in this.
+	 *
+	 * @return The number of distinct words. Will be &gt;= 0.
+	 */
+	public int size() {
+		return words.length;
+	}
+
+	/**
+	 * Returns whether the given word is spelled correctly. A word that starts
+	 * with an upper case letter followed by lower case letters is also correct
+	 * if its lower case form is in this.
+	 *
+	 * @param word
+	 *            The word to check. Cannot be null.
+	 *
+	 * @return True if the word is in this, false otherwise.
+	 */
+	public boolean contains(String word) {
+		Param.notNull(word, "word");
+
+		if (Arrays.binarySearch(words, word) >= 0) {
+			return true;
+		}
+
+		return isCapitalized(word) && Arrays.binarySearch(words, word.toLowerCase(Locale.ENGLISH)) >= 0;
+	}
+
+	/**
+	 * Returns the words in this which are closest to the given word. If the
+	 * given word is capitalized, the suggestions will be too.
+	 *
+	 * @param word
+	 *            The misspelled word. Cannot be null.
+	 * @param maxSuggestions
+	 *            The maximum number of suggestions to return. Must be &gt;= 0.
+	 *
+	 * @return The suggestions, ordered by edit distance, then by the number of
+	 *         letters that are not shared with the given word, and then
+	 *         alphabetically. Will not be null, but may be empty.
+	 */
+	public List<String> suggest(String word, int maxSuggestions) {
+		Param.notNull(word, "word");
+
+		final String lowerCaseWord = word.toLowerCase(Locale.ENGLISH);
+		Set<String> variants = new HashSet<String>();
+		variants.add(lowerCaseWord);
+		Set<String> previousVariants = variants;
+		for (int distance = 1; distance <= MAX_EDIT_DISTANCE; distance++) {
+			Set<String> nextVariants = new HashSet<String>();
+			for (String variant : previousVariants) {
+				addDeletions(variant, nextVariants);
+			}
+			variants.addAll(nextVariants);
+			previousVariants = nextVariants;
+		}
+
+		Set<Integer> candidates = new HashSet<Integer>();
+		for (String variant : variants) {
+			addCandidates(variant.hashCode(), candidates);
+		}
+
+		final List<String> suggestions = new ArrayList<String>();
+		final List<Integer> distances = new ArrayList<Integer>();
+		final List<Integer> letterDifferences = new ArrayList<Integer>();
+		for (Integer candidate : candidates) {
+			String candidateWord = words[candidate.intValue()];
+			String lowerCaseCandidate = lowerCaseWords[candidate.intValue()];
+			int distance = editDistance(lowerCaseWord, lowerCaseCandidate);
+			if (distance <= MAX_EDIT_DISTANCE && !candidateWord.equals(word)) {
+				suggestions.add(candidateWord);
+				distances.add(Integer.valueOf(distance));
+				letterDifferences.add(Integer.valueOf(letterDifference(lowerCaseWord, lowerCaseCandidate)));
+			}
+		}
+
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < suggestions.size(); i++) {
+			order.add(Integer.valueOf(i));
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				int result = distances.get(i1.intValue()).compareTo(distances.get(i2.intValue()));
+				if (result == 0) {
+					result = letterDifferences.get(i1.intValue()).compareTo(letterDifferences.get(i2.intValue()));
+				}
+				if (result == 0) {
+					result = suggestions.get(i1.intValue()).compareTo(suggestions.get(i2.intValue()));
+				}
+
+				return result;
+			}
+		});
+
+		List<String> sortedSuggestions = new ArrayList<String>();
+		for (int i = 0; i < order.size() && sortedSuggestions.size() < maxSuggestions; i++) {
+			String suggestion = suggestions.get(order.get(i).intValue());
+			if (isCapitalized(word) && Character.isLowerCase(suggestion.charAt(0))) {
+				suggestion = Character.toUpperCase(suggestion.charAt(0)) + suggestion.substring(1);
+			}
+
+			if (!sortedSuggestions.contains(suggestion)) {
+				sortedSuggestions.add(suggestion);
+			}
+		}
+
+		return sortedSuggestions;
+	}
+
+	/**
+	 * Adds the indexes of all words which have a variant with the given hash.
+	 *
+	 * @param hash
+	 *            The hash of a variant of the misspelled word.
+	 * @param candidates
+	 *            The set to add the word indexes to. Cannot be null.
+	 */
+	private void addCandidates(int hash, Set<Integer> candidates) {
+		int i = Arrays.binarySearch(deletions, toEntry(hash, 0));
+		if (i < 0) {
+			i = -i - 1;
+		}
+
+		while (i < deletions.length && (int) (deletions[i] >> HASH_SHIFT) == hash) {
+			candidates.add(Integer.valueOf((int) (deletions[i] & INDEX_MASK)));
+			i++;
+		}
+	}
+
+	/**
+	 * Reads words from the given stream, one word per line, and adds them to
+	 * the given collection. The stream is closed afterwards.
+	 *
+	 * @param in
+	 *            The stream to read from, encoded in UTF-8. Cannot be null.
+	 * @param words
+	 *            The collection to add to. Cannot be null.
+	 *
+	 * @throws IOException
+	 *             If there was an error reading from the stream.
+	 */
+	public static void readWords(InputStream in, Collection<String> words) throws IOException {
+		Param.notNull(in, "in");
+		Param.notNull(words, "words");
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		try {
+			String line = reader.readLine();
+			while (line != null) {
+				if (!line.trim().isEmpty()) {
+					words.add(line.trim());
+				}
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Adds every string that can be made by deleting one character from the
+	 * given word.
+	 *
+	 * @param word
+	 *            The word to delete from. Cannot be null.
+	 * @param variants
+	 *            The set to add the strings to. Cannot be null.
+	 */
+	private static void addDeletions(String word, Set<String> variants) {
+		for (int i = 0; i < word.length(); i++) {
+			variants.add(word.substring(0, i) + word.substring(i + 1));
+		}
+	}
+
+	/**
+	 * Returns the entry in the deletion index for the given hash and word.
+	 *
+	 * @param hash
+	 *            The hash of the variant.
+	 * @param wordIndex
+	 *            The index of the word. Must be &gt;= 0.
+	 *
+	 * @return The entry, which sorts by hash and then by word index.
+	 */
+	private static long toEntry(int hash, int wordIndex) {
+		return ((long) hash << HASH_SHIFT) | (wordIndex & INDEX_MASK);
+	}
+
+	/**
+	 * Returns whether the given word starts with an upper case letter and has
+	 * no other upper case letters.
+	 *
+	 * @param word
+	 *            The word to check. Cannot be null.
+	 *
+	 * @return True if the word is capitalized, false otherwise.
+	 */
+	private static boolean isCapitalized(String word) {
+		if (word.isEmpty() || !Character.isUpperCase(word.charAt(0))) {
+			return false;
+		}
+
+		for (int i = 1; i < word.length(); i++) {
+			if (Character.isUpperCase(word.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of letters in either string that are not matched by
+	 * the same letter in the other string, regardless of order. This is 0 when
+	 * one string is a rearrangement of the other, so a word with swapped
+	 * letters is preferred over a word with a different letter.
+	 *
+	 * @param s1
+	 *            The first string. Cannot be null.
+	 * @param s2
+	 *            The second string. Cannot be null.
+	 *
+	 * @return The number of unmatched letters. Will be &gt;= 0.
+	 */
+	private static int letterDifference(String s1, String s2) {
+		char[] chars1 = s1.toCharArray();
+		char[] chars2 = s2.toCharArray();
+		Arrays.sort(chars1);
+		Arrays.sort(chars2);
+
+		int matched = 0;
+		int i = 0;
+		int j = 0;
+		while (i < chars1.length && j < chars2.length) {
+			if (chars1[i] == chars2[j]) {
+				matched++;
+				i++;
+				j++;
+			} else if (chars1[i] < chars2[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+
+		return chars1.length + chars2.length - 2 * matched;
+	}
+
+	/**
+	 * Returns the number of insertions, deletions, substitutions and
+	 * transpositions of adjacent characters needed to change one string into
+	 * another.
+	 *
+	 * @param s1
+	 *            The first string. Cannot be null.
+	 * @param s2
+	 *            The second string. Cannot be null.
+	 *
+	 * @return The edit distance. Will be &gt;= 0.
+	 */
+	private static int editDistance(String s1, String s2) {
+		int[][] d = new int[s1.length() + 1][s2.length() + 1];
+		for (int i = 0; i <= s1.length(); i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= s2.length(); j++) {
+			d[0][j] = j;
+		}
+
+		for (int i = 1; i <= s1.length(); i++) {
+			for (int j = 1; j <= s2.length(); j++) {
+				int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && s1.charAt(i - 1) == s2.charAt(j - 2) && s1.charAt(i - 2) == s2.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+
+		return d[s1.length()][s2.length()];
+	}
+}
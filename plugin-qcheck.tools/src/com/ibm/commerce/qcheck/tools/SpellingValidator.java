@@ -19,44 +19,29 @@
  */
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
+import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
-import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Javadoc;
-import org.eclipse.jdt.internal.ui.JavaPlugin;
-import org.eclipse.jdt.internal.ui.text.spelling.WordCorrectionProposal;
-import org.eclipse.jface.preference.IPreferenceStore;
-import org.eclipse.jface.text.Document;
-import org.eclipse.jface.text.contentassist.ICompletionProposal;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.ui.editors.text.EditorsUI;
-import org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector;
-import org.eclipse.ui.texteditor.spelling.SpellingContext;
-import org.eclipse.ui.texteditor.spelling.SpellingProblem;
-import org.eclipse.ui.texteditor.spelling.SpellingService;
+import org.osgi.framework.Bundle;
 
 import com.ibm.commerce.qcheck.core.Debug;
 import com.ibm.commerce.qcheck.core.EclipseUtil;
@@ -78,25 +63,33 @@
  * SpellingValidator is used to check spelling of words in Java doc comments.
  * Other comments will be ignored.
  * <p>
- * This uses the built-in eclipse spell-check feature.
+ * The words are checked with a {@link SpellingDictionary} that contains the
+ * English dictionary that comes with the Eclipse Java tools, the technical
+ * words in this plug-in, and the words in the base and user dictionary files.
+ * The dictionary is loaded once and reloaded only when a dictionary file
+ * changes. It does not use the Eclipse spelling service, so it does not need
+ * the workbench, and any number of threads can check spelling at the same
+ * time.
  * 
  * @author Trent Hoeppner
  */
-@SuppressWarnings("restriction")
 public class SpellingValidator implements Validator {
 
 	/**
-	 * A single quote mark.
+	 * The ID of the plug-in that contains the default dictionary.
 	 */
-	private static final char SINGLEQUOTES = '\'';
+	private static final String JDT_UI_PLUGIN_ID = "org.eclipse.jdt.ui";
 
 	/**
-	 * This object is used to ensure that only one thread at a time can run the
-	 * spelling validator. This prevents one thread from enabling and disabling
-	 * preferences while another thread is validating spelling and expecting the
-	 * spelling to be enabled.
+	 * The path of the default dictionary in the {@link #JDT_UI_PLUGIN_ID}
+	 * plug-in.
 	 */
-	private static final Semaphore SPELLING_SEMAPHORE = new Semaphore(1);
+	private static final String DEFAULT_DICTIONARY_PATH = "dictionaries/en_US.dictionary";
+
+	/**
+	 * The path of the dictionary of technical words in this plug-in.
+	 */
+	private static final String PLUGIN_DICTIONARY_PATH = "data/userdict.txt";
 
 	private static final List<ModelEnum> REQUIRED_MODELS = Arrays.asList(ModelEnum.STRING, ModelEnum.COMP_UNIT);
 
@@ -117,6 +110,13 @@ public List<ModelEnum> getRequiredModels() {
 
 	private PersonalDictionaryFile baseDictWatchedFile;
 
+	/**
+	 * The dictionary with all the words from the dictionary files. This value
+	 * will be null until the dictionary is first loaded by
+	 * {@link #getDictionary()}.
+	 */
+	private SpellingDictionary dictionary;
+
 	/**
 	 * Constructor for SpellingValidator.
 	 */
@@ -156,44 +156,10 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 			IProgressMonitor monitor) throws ValidationException, IOException, OperationCanceledException {
 
 		List<ValidationResult> results = new ArrayList<ValidationResult>();
-		boolean preferencesSet = false;
 		try {
-			try {
-				SPELLING_SEMAPHORE.acquire();
-			} catch (InterruptedException e1) {
-				if (Debug.FRAMEWORK.isActive()) {
-					Debug.FRAMEWORK.log(e1);
-				}
-
-				throw new OperationCanceledException("Acquire interrupted.");
-			}
-			monitor.beginTask("Check spelling errors", 2 + resources.size());
-
-			userDictWatchedFile.ensureLatestLoaded();
-			if (userDictWatchedFile.changed()) {
-				// copy the contents of the user dict into the base dict
-				Set<String> words = new LinkedHashSet<String>();
-				userDictWatchedFile.loadWords(words);
-				baseDictWatchedFile.ensureLatestLoaded();
-				if (baseDictWatchedFile.getLoadedObject().booleanValue()) {
-					baseDictWatchedFile.loadWords(words);
-				}
-
-				baseDictWatchedFile.writeWords(words);
-			}
-
-			baseDictWatchedFile.ensureLatestLoaded();
-			if (baseDictWatchedFile.getLoadedObject().booleanValue()) {
-				setSpellCheckerPreferences(true, userDictWatchedFile.getFilename());
-				preferencesSet = true;
-			}
+			monitor.beginTask("Check spelling errors", 1 + resources.size());
 
-			SpellingContext context = new SpellingContext();
-			SpellingService spellingService = EditorsUI.getSpellingService();
-
-			IContentType textContentType = Platform.getContentTypeManager()
-					.getContentType("org.eclipse.core.runtime.text");
-			context.setContentType(textContentType);
+			SpellChecker checker = new SpellChecker(getDictionary());
 			monitor.worked(1);
 
 			// validate files
@@ -222,11 +188,8 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 						EclipseUtil.getDefault().checkCanceled(monitor);
 
 						String comment = description.getHumanReadableString();
-						Document document = new Document(comment);
-						SpellingProblemCollector collector = new SpellingProblemCollector();
-						spellingService.check(document, context, collector, null);
-						for (SpellingProblem problem : collector.getProblems()) {
-							reportSpellingProblem(results, resource, description, problem, actionFactory);
+						for (SpellChecker.Misspelling misspelling : checker.check(comment)) {
+							reportSpellingProblem(results, resource, description, misspelling, actionFactory);
 						}
 					}
 				}
@@ -234,19 +197,74 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 				monitor.worked(1);
 			}
 		} finally {
-			try {
-				if (preferencesSet) {
-					setSpellCheckerPreferences(false, null);
-				}
+			monitor.done();
+		}
 
-				monitor.worked(1);
-				monitor.done();
-			} finally {
-				SPELLING_SEMAPHORE.release();
+		return results;
+	}
+
+	/**
+	 * Returns the dictionary to check spelling with, loading it if it has not
+	 * been loaded yet or a personal dictionary file has changed since it was
+	 * loaded.
+	 *
+	 * @return The dictionary. Will not be null.
+	 *
+	 * @throws IOException
+	 *             If the default dictionary or the dictionary in this plug-in
+	 *             does not exist or could not be read.
+	 */
+	private synchronized SpellingDictionary getDictionary() throws IOException {
+		boolean changed = userDictWatchedFile.changed() || baseDictWatchedFile.changed();
+		userDictWatchedFile.ensureLatestLoaded();
+		baseDictWatchedFile.ensureLatestLoaded();
+		if (changed || dictionary == null) {
+			List<String> words = new ArrayList<String>();
+			Bundle jdtBundle = Platform.getBundle(JDT_UI_PLUGIN_ID);
+			if (jdtBundle == null) {
+				throw new FileNotFoundException(JDT_UI_PLUGIN_ID + "/" + DEFAULT_DICTIONARY_PATH);
+			}
+			SpellingDictionary.readWords(openFile(jdtBundle, DEFAULT_DICTIONARY_PATH), words);
+			SpellingDictionary.readWords(openFile(Activator.getDefault().getBundle(), PLUGIN_DICTIONARY_PATH), words);
+
+			if (baseDictWatchedFile.getLoadedObject().booleanValue()) {
+				baseDictWatchedFile.loadWords(words);
+			}
+
+			if (userDictWatchedFile.getLoadedObject().booleanValue()) {
+				userDictWatchedFile.loadWords(words);
+			}
+
+			dictionary = new SpellingDictionary(words);
+			if (Debug.CONFIG.isActive()) {
+				Debug.CONFIG.log("Loaded spelling dictionary with " + dictionary.size() + " words.");
 			}
 		}
 
-		return results;
+		return dictionary;
+	}
+
+	/**
+	 * Opens the given file in the given plug-in.
+	 *
+	 * @param bundle
+	 *            The plug-in that contains the file. Cannot be null.
+	 * @param filename
+	 *            The path name of the file, relative to the root folder of the
+	 *            plug-in. Cannot be null or empty.
+	 *
+	 * @return The stream to read the file from. Will not be null.
+	 *
+	 * @throws IOException
+	 *             If the file does not exist or could not be opened.
+	 */
+	private InputStream openFile(Bundle bundle, String filename) throws IOException {
+		URL url = FileLocator.find(bundle, new Path(filename), null);
+		if (url == null) {
+			throw new FileNotFoundException(bundle.getSymbolicName() + "/" + filename);
+		}
+
+		return url.openStream();
 	}
 
 	/**
@@ -261,15 +279,15 @@ public List<ValidationResult> analyze(List<ValidatorResource> resources, Problem
 	 *            The file that contains the spelling error. Cannot be null.
 	 * @param description
 	 *            The description in which the error exists. Cannot be null.
-	 * @param problem
-	 *            The problem as reported by the Eclipse spell checker. Cannot
+	 * @param misspelling
+	 *            The misspelled word as reported by the spell checker. Cannot
 	 *            be null.
 	 */
 	private void reportSpellingProblem(List<ValidationResult> results, ValidatorResource resource,
-			CommentDescription description, SpellingProblem problem, ProblemActionFactory actionFactory) {
+			CommentDescription description, SpellChecker.Misspelling misspelling, ProblemActionFactory actionFactory) {
 
-		int offset = problem.getOffset();
-		int length = problem.getLength();
+		int offset = misspelling.getOffset();
+		int length = misspelling.getLength();
 
 		boolean exempt = true;
 		HumanFragmentView view = new HumanFragmentView(offset, length, description);
@@ -286,16 +304,7 @@ private void reportSpellingProblem(List<ValidationResult> results, ValidatorReso
 			CompilationUnit comp = ModelEnum.COMP_UNIT.getData(resource);
 
 			List<ProblemAction> suggestions = new ArrayList<ProblemAction>();
-			for (ICompletionProposal proposal : problem.getProposals()) {
-				if (!(proposal instanceof WordCorrectionProposal)) {
-					continue;
-				}
-				String replacement = proposal.getDisplayString();
-				int i = replacement.indexOf(SINGLEQUOTES);
-				if (i != -1) {
-					replacement = replacement.substring(i + 1, replacement.length() - 1);
-				}
-
+			for (String replacement : misspelling.getSuggestions()) {
 				HumanFragmentView replaceView = new HumanFragmentView(offset, length, description);
 				replaceView.handleDiff(replacement);
 
@@ -319,117 +328,12 @@ private void reportSpellingProblem(List<ValidationResult> results, ValidatorReso
 			int sourceLine = comp.getLineNumber(startPositionOfErrorWord) - 1;
 			int sourceColumn = comp.getColumnNumber(startPositionOfErrorWord);
 
-			ValidationResult result = new ValidationResult(problem.getMessage(), resource, suggestions, sourceLine,
-					sourceColumn, textToReplace.length(), startPositionOfErrorWord, "Spelling");
+			ValidationResult result = new ValidationResult(misspelling.getMessage(), resource, suggestions,
+					sourceLine, sourceColumn, textToReplace.length(), startPositionOfErrorWord, "Spelling");
 			results.add(result);
 		}
 	}
 
-	/**
-	 * Set two preferences of the Eclipse spell-checker:
-	 * <ul>
-	 * <li>Turn the Eclipse spell-checker on or off.
-	 * <li>Set the user dictionary. The words in this dictionary are added to
-	 * the default Eclipse dictionary.
-	 * </ul>
-	 *
-	 * @param active
-	 *            True if the spell-checker should be turned on, false if it
-	 *            should be turned off.
-	 * @param userDictFile
-	 *            The path of the user dictionary file. If null or empty, or
-	 *            <code>active</code> is false, the dictionary will be turned
-	 *            off.
-	 */
-	private void setSpellCheckerPreferences(final boolean active, final String userDictFile) {
-		final CountDownLatch latch = new CountDownLatch(1);
-		Runnable updatePreferencesRunnable = new Runnable() {
-
-			public void run() {
-				IPreferenceStore preferenceStore = EditorsUI.getPreferenceStore();
-				IPreferenceStore store = JavaPlugin.getDefault().getPreferenceStore();
-				String filenameToSet;
-				if (active && userDictFile != null && !userDictFile.trim().isEmpty()) {
-					filenameToSet = userDictFile;
-				} else {
-					filenameToSet = "";
-				}
-				store.setValue("spelling_user_dictionary", filenameToSet);
-				preferenceStore.setValue("spellingEnabled", active);
-
-				latch.countDown();
-			}
-		};
-
-		if (Display.getDefault().getThread().equals(Thread.currentThread())) {
-			// this thread is the GUI thread
-			updatePreferencesRunnable.run();
-		} else {
-			// we need to change preferences on the GUI thread
-			Display.getDefault().asyncExec(updatePreferencesRunnable);
-
-			boolean stillHaveTime;
-			try {
-				stillHaveTime = latch.await(5, TimeUnit.SECONDS);
-			} catch (InterruptedException e) {
-				throw new OperationCanceledException(
-						"Thread interrupted on spelling validator, aborting this validation run.");
-			}
-
-			if (!stillHaveTime) {
-				throw new OperationCanceledException("Timeout on spelling validator, aborting this validation run.");
-			}
-		}
-	}
-
-	/**
-	 * SpellingProblemCollector collects spelling problems from the eclipse
-	 * spell-checker.
-	 */
-	private class SpellingProblemCollector implements ISpellingProblemCollector {
-
-		/**
-		 * The list of problems collected so far. See {@link #getProblems} for
-		 * details.
-		 */
-		private List<SpellingProblem> problems = new ArrayList<SpellingProblem>();
-
-		/**
-		 * Adds the given spelling problem to the list.
-		 *
-		 * @param spellingProblem
-		 *            The problem to add. Cannot be null.
-		 */
-		@Override
-		public void accept(SpellingProblem spellingProblem) {
-			problems.add(spellingProblem);
-		}
-
-		/**
-		 * Notifies this that spelling is about to begin.
-		 */
-		@Override
-		public void beginCollecting() {
-		}
-
-		/**
-		 * Notifies this that spelling has ended.
-		 */
-		@Override
-		public void endCollecting() {
-		}
-
-		/**
-		 * Returns the list of spelling problems collected. This method should
-		 * be called after the spell-check has been completed.
-		 *
-		 * @return The list of spelling problems found. Will not be null.
-		 */
-		public List<SpellingProblem> getProblems() {
-			return problems;
-		}
-	}
-
 	/**
 	 * PersonalDictionaryFile is used to watch the dictionary file. The loaded
 	 * object is true if the file exists and can be opened, false otherwise.
@@ -480,20 +384,20 @@ protected void syncWithSystem() {
 		}
 
 		/**
-		 * Loads the words in this file and adds them to the given set.
+		 * Loads the words in this file and adds them to the given collection.
 		 *
 		 * @param words
-		 *            The set of words to add to. Cannot be null, but may be
-		 *            empty.
+		 *            The collection of words to add to. Cannot be null, but may
+		 *            be empty.
 		 */
-		private void loadWords(Set<String> words) {
+		private void loadWords(Collection<String> words) {
 			BufferedReader reader = null;
 			try {
 				reader = new BufferedReader(new InputStreamReader(openInputStream()));
 				String line = reader.readLine();
 				while (line != null) {
 					if (!line.trim().isEmpty()) {
-						words.add(line);
+						words.add(line.trim());
 					}
 					line = reader.readLine();
 				}
@@ -509,34 +413,5 @@ private void loadWords(Set<String> words) {
 				}
 			}
 		}
-
-		/**
-		 * Writes the given words to the file represented by this. The existing
-		 * file will be overwritten.
-		 *
-		 * @param words
-		 *            The set of words to write to the file. Cannot be null, but
-		 *            may be empty.
-		 */
-		private void writeWords(Set<String> words) {
-			BufferedWriter writer = null;
-			try {
-				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getFilename())));
-				for (String word : words) {
-					writer.write(word);
-					writer.newLine();
-				}
-			} catch (IOException e) {
-				Debug.FRAMEWORK.log(e);
-			} finally {
-				if (writer != null) {
-					try {
-						writer.close();
-					} catch (IOException e) {
-						Debug.FRAMEWORK.log(e);
-					}
-				}
-			}
-		}
 	}
 }
@@ -0,0 +1,401 @@
+package com.ibm.commerce.qcheck.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import com.ibm.commerce.qcheck.core.Debug;
+import com.ibm.commerce.qcheck.core.ProblemActionFactory;
+import com.ibm.commerce.qcheck.core.ValidationResult;
+import com.ibm.commerce.qcheck.core.Validator;
+import com.ibm.commerce.qcheck.core.ValidatorResource;
+
+/**
+ * ValidatorExecutor runs validators on resources, either one at a time in the
+ * calling thread, or in parallel with a pool of threads.
+ * <p>
+ * Validators that need {@link com.ibm.commerce.qcheck.core.ModelEnum#EXTERNAL
+ * EXTERNAL} or {@link com.ibm.commerce.qcheck.core.ModelEnum#BATCH BATCH}
+ * models analyze all their resources at once, and the other validators analyze
+ * one resource at a time. External validators divide their resources into runs
+ * of the tool themselves (see {@link BaseExternalValidator}). When run in
+ * parallel, each external or batch validator analyzes its resources in its own
+ * task, and all the other validators for one resource run in one task, so that
+ * independent resources are validated at the same time.
+ * <p>
+ * In both cases the results are in the same order, the monitor advances by
+ * one unit as each analysis finishes, and cancellation of the monitor stops
+ * the run before the next analysis starts.
+ *
+ * @author Trent Hoeppner
+ */
+public class ValidatorExecutor {
+
+	/**
+	 * The number of milliseconds between checks for cancellation while
+	 * waiting for tasks to finish.
+	 */
+	private static final long CANCEL_CHECK_MILLIS = 100;
+
+	/**
+	 * The number of threads to run validators in. If 1, validators are run in
+	 * the calling thread.
+	 */
+	private int threads;
+
+	/**
+	 * Constructor for ValidatorExecutor.
+	 *
+	 * @param threads
+	 *            The number of threads to run validators in. If 1, validators
+	 *            are run in the calling thread. Must be &gt; 0.
+	 */
+	public ValidatorExecutor(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be > 0, but was " + threads + ".");
+		}
+
+		this.threads = threads;
+	}
+
+	/**
+	 * Runs the given validators and returns the results.
+	 *
+	 * @param externalValidatorToResourcesMap
+	 *            A mapping from validators that need EXTERNAL models to the
+	 *            resources that they validate. Cannot be null.
+	 * @param batchValidatorToResourcesMap
+	 *            A mapping from validators that need BATCH models to the
+	 *            resources that they validate. Cannot be null.
+	 * @param resourceToNonExternalValidatorsMap
+	 *            A mapping from resources to the other validators which
+	 *            validate them. Cannot be null.
+	 * @param actionFactory
+	 *            The factory to generate actions to resolve the problems
+	 *            found. Cannot be null.
+	 * @param monitor
+	 *            The progress monitor that is used to track progress and
+	 *            cancel validation. Cannot be null.
+	 *
+	 * @return The results of all validators, in the same order for any number
+	 *         of threads. Will not be null.
+	 *
+	 * @throws OperationCanceledException
+	 *             If the monitor was canceled before all validators finished.
+	 */
+	public List<ValidationResult> execute(Map<Validator, List<ValidatorResource>> externalValidatorToResourcesMap,
+			Map<Validator, List<ValidatorResource>> batchValidatorToResourcesMap,
+			Map<ValidatorResource, List<Validator>> resourceToNonExternalValidatorsMap,
+			ProblemActionFactory actionFactory, IProgressMonitor monitor) throws OperationCanceledException {
+
+		// all analyses in the order of the serial run
+		List<Analysis> analyses = new ArrayList<Analysis>();
+		List<List<Analysis>> tasks = new ArrayList<List<Analysis>>();
+
+		for (Entry<Validator, List<ValidatorResource>> entry : externalValidatorToResourcesMap.entrySet()) {
+			List<Analysis> task = Collections.singletonList(new Analysis(entry.getKey(), entry.getValue()));
+			analyses.addAll(task);
+			tasks.add(task);
+		}
+
+		for (Entry<Validator, List<ValidatorResource>> entry : batchValidatorToResourcesMap.entrySet()) {
+			List<Analysis> task = Collections.singletonList(new Analysis(entry.getKey(), entry.getValue()));
+			analyses.addAll(task);
+			tasks.add(task);
+		}
+
+		for (Entry<ValidatorResource, List<Validator>> entry : resourceToNonExternalValidatorsMap.entrySet()) {
+			List<Analysis> task = new ArrayList<Analysis>();
+			for (Validator validator : entry.getValue()) {
+				Analysis analysis = new Analysis(validator, Arrays.asList(entry.getKey()));
+				analyses.add(analysis);
+				task.add(analysis);
+			}
+			tasks.add(task);
+		}
+
+		if (threads == 1) {
+			for (Analysis analysis : analyses) {
+				checkCanceled(monitor);
+				analysis.run(actionFactory, new SubProgressMonitor(monitor, 1));
+			}
+		} else {
+			runInParallel(tasks, actionFactory, monitor);
+		}
+
+		List<ValidationResult> allResults = new ArrayList<ValidationResult>();
+		for (Analysis analysis : analyses) {
+			allResults.addAll(analysis.results);
+		}
+
+		return allResults;
+	}
+
+	/**
+	 * Runs the given tasks in a pool of threads and waits for them to finish.
+	 * Progress is reported to the monitor in the calling thread, one unit for
+	 * each analysis that finishes.
+	 *
+	 * @param tasks
+	 *            The tasks to run. Each task runs its analyses in order.
+	 *            Cannot be null.
+	 * @param actionFactory
+	 *            The factory to generate actions to resolve the problems
+	 *            found. Cannot be null.
+	 * @param monitor
+	 *            The progress monitor that is used to track progress and
+	 *            cancel validation. Cannot be null.
+	 *
+	 * @throws OperationCanceledException
+	 *             If the monitor was canceled before all tasks finished.
+	 */
+	private void runInParallel(List<List<Analysis>> tasks, final ProblemActionFactory actionFactory,
+			final IProgressMonitor monitor) throws OperationCanceledException {
+		final AtomicInteger finishedCount = new AtomicInteger();
+		int reportedCount = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (final List<Analysis> task : tasks) {
+				if (task.isEmpty()) {
+					continue;
+				}
+
+				futures.add(executor.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						for (Analysis analysis : task) {
+							if (monitor.isCanceled()) {
+								return;
+							}
+
+							analysis.run(actionFactory, new CancelOnlyMonitor(monitor));
+							finishedCount.incrementAndGet();
+						}
+					}
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				reportedCount = waitFor(future, monitor, finishedCount, reportedCount);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		checkCanceled(monitor);
+	}
+
+	/**
+	 * Waits for the given task to finish, reporting the analyses that finish
+	 * and checking the monitor for cancellation while waiting.
+	 *
+	 * @param future
+	 *            The task to wait for. Cannot be null.
+	 * @param monitor
+	 *            The progress monitor that is used to track progress and
+	 *            cancel validation. Cannot be null.
+	 * @param finishedCount
+	 *            The number of analyses that have finished in all tasks.
+	 *            Cannot be null.
+	 * @param reportedCount
+	 *            The number of finished analyses that were already reported
+	 *            to the monitor. Must be &gt;= 0.
+	 *
+	 * @return The number of finished analyses that were reported to the
+	 *         monitor after waiting. Will be &gt;= reportedCount.
+	 *
+	 * @throws OperationCanceledException
+	 *             If the monitor was canceled or the thread was interrupted
+	 *             while waiting.
+	 */
+	private int waitFor(Future<?> future, IProgressMonitor monitor, AtomicInteger finishedCount, int reportedCount)
+			throws OperationCanceledException {
+		while (true) {
+			try {
+				future.get(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+				return reportWorked(monitor, finishedCount, reportedCount);
+			} catch (TimeoutException e) {
+				reportedCount = reportWorked(monitor, finishedCount, reportedCount);
+				checkCanceled(monitor);
+			} catch (InterruptedException e) {
+				monitor.setCanceled(true);
+				throw new OperationCanceledException("Interrupted while waiting for validators.");
+			} catch (ExecutionException e) {
+				Debug.FRAMEWORK.log(e.getCause());
+				return reportWorked(monitor, finishedCount, reportedCount);
+			}
+		}
+	}
+
+	/**
+	 * Tells the monitor about the analyses that finished since the last call.
+	 *
+	 * @param monitor
+	 *            The progress monitor to report to. Cannot be null.
+	 * @param finishedCount
+	 *            The number of analyses that have finished in all tasks.
+	 *            Cannot be null.
+	 * @param reportedCount
+	 *            The number of finished analyses that were already reported
+	 *            to the monitor. Must be &gt;= 0.
+	 *
+	 * @return The number of finished analyses that have been reported to the
+	 *         monitor. Will be &gt;= reportedCount.
+	 */
+	private int reportWorked(IProgressMonitor monitor, AtomicInteger finishedCount, int reportedCount) {
+		int finished = finishedCount.get();
+		if (finished > reportedCount) {
+			monitor.worked(finished - reportedCount);
+		}
+
+		return Math.max(finished, reportedCount);
+	}
+
+	/**
+	 * Throws an exception if the given monitor was canceled.
+	 *
+	 * @param monitor
+	 *            The monitor to check. Cannot be null.
+	 *
+	 * @throws OperationCanceledException
+	 *             If the monitor was canceled.
+	 */
+	private void checkCanceled(IProgressMonitor monitor) throws OperationCanceledException {
+		if (monitor.isCanceled()) {
+			throw new OperationCanceledException("The current action has been cancelled.");
+		}
+	}
+
+	/**
+	 * Analysis is one call of a validator on some resources, and its results.
+	 */
+	private static class Analysis {
+
+		/**
+		 * The validator to run. This value will never be null.
+		 */
+		private Validator validator;
+
+		/**
+		 * The resources to validate. This value will never be null.
+		 */
+		private List<ValidatorResource> resources;
+
+		/**
+		 * The results of the validator. This value will be empty until
+		 * {@link #run(ProblemActionFactory, IProgressMonitor)} is called.
+		 */
+		private List<ValidationResult> results = Collections.emptyList();
+
+		/**
+		 * Constructor for Analysis.
+		 *
+		 * @param validator
+		 *            The validator to run. Cannot be null.
+		 * @param resources
+		 *            The resources to validate. Cannot be null.
+		 */
+		private Analysis(Validator validator, List<ValidatorResource> resources) {
+			this.validator = validator;
+			this.resources = resources;
+		}
+
+		/**
+		 * Runs the validator and keeps the results. Errors from the validator
+		 * are logged, so that the other validators can still run.
+		 *
+		 * @param actionFactory
+		 *            The factory to generate actions to resolve the problems
+		 *            found. Cannot be null.
+		 * @param monitor
+		 *            The monitor to give to the validator. Cannot be null.
+		 */
+		private void run(ProblemActionFactory actionFactory, IProgressMonitor monitor) {
+			if (Debug.FRAMEWORK.isActive()) {
+				Debug.FRAMEWORK.log("Analyzing ", resources.size(), " files with ", validator);
+			}
+
+			try {
+				results = validator.analyze(resources, actionFactory, monitor);
+			} catch (Exception e) {
+				Debug.FRAMEWORK.log(e);
+			}
+		}
+
+	}
+
+	/**
+	 * CancelOnlyMonitor is given to validators which run in parallel. It
+	 * ignores progress within a validator, which cannot be reported in order
+	 * from many threads, and passes cancellation to and from the monitor of
+	 * the whole run. The executor reports each finished analysis instead.
+	 */
+	private static class CancelOnlyMonitor extends NullProgressMonitor {
+
+		/**
+		 * The monitor of the whole run. This value will never be null.
+		 */
+		private IProgressMonitor runMonitor;
+
+		/**
+		 * Constructor for CancelOnlyMonitor.
+		 *
+		 * @param runMonitor
+		 *            The monitor of the whole run. Cannot be null.
+		 */
+		private CancelOnlyMonitor(IProgressMonitor runMonitor) {
+			this.runMonitor = runMonitor;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCanceled() {
+			return runMonitor.isCanceled();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void setCanceled(boolean canceled) {
+			runMonitor.setCanceled(canceled);
+		}
+	}
+}
@@ -22,7 +22,6 @@
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -33,13 +32,11 @@
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.core.runtime.SubProgressMonitor;
 import org.osgi.framework.Bundle;
 
 import com.ibm.commerce.qcheck.core.Debug;
 import com.ibm.commerce.qcheck.core.EclipseUtil;
 import com.ibm.commerce.qcheck.core.ModelEnum;
-import com.ibm.commerce.qcheck.core.ModelRegistry;
 import com.ibm.commerce.qcheck.core.ProblemActionFactory;
 import com.ibm.commerce.qcheck.core.ValidationException;
 import com.ibm.commerce.qcheck.core.ValidationResult;
@@ -63,12 +60,11 @@ public class ValidatorRunner {
 	private static ConfigurationManager configManager = null;
 
 	/**
-	 * A map from monitors (which represent Threads running validators) to
-	 * situations in which the monitors are being run. This is used to track
-	 * which validation runs should take precedence over others. The ones with
-	 * lower precedence will be canceled. This value will never be null.
+	 * The object which tracks which validation runs should take precedence
+	 * over others. The ones with lower precedence will be canceled. This value
+	 * will never be null.
 	 */
-	private static Map<IProgressMonitor, TimeEnum> workingMonitors = new HashMap<IProgressMonitor, TimeEnum>();
+	private static RunCoordinator coordinator = new RunCoordinator();
 
 	/**
 	 * Constructor for ValidatorRunner. Private to prevent instantiation.
@@ -150,56 +146,10 @@ public static List<ValidationResult> runValidators(List<ValidatorResource> resou
 
 		EclipseUtil.getDefault().reloadDebugConfig();
 
-		// we let the validators interrupt each other:
-		// asyoutype can be interrupted by toolkitbuild and manual
-		// toolkit can be interrupted by manual
-		// manual cannot be interrupted
-		synchronized (workingMonitors) {
-			for (IProgressMonitor otherMonitor : workingMonitors.keySet()) {
-				TimeEnum otherTime = workingMonitors.get(otherMonitor);
-
-				switch (time) {
-				case ASYOUTYPE:
-					if (otherTime == TimeEnum.ASYOUTYPE) {
-						// this one has more current changes than another
-						// one that started running earlier, so cancel the
-						// other one
-						otherMonitor.setCanceled(true);
-					} else if (otherTime == TimeEnum.FULLTOOLKITBUILD || otherTime == TimeEnum.INCREMENTALTOOLKITBUILD
-							|| otherTime == TimeEnum.MANUAL) {
-						monitor.setCanceled(true);
-					}
-					break;
-				case INCREMENTALTOOLKITBUILD:
-					if (otherTime == TimeEnum.ASYOUTYPE || otherTime == TimeEnum.INCREMENTALTOOLKITBUILD) {
-						otherMonitor.setCanceled(true);
-					} else if (otherTime == TimeEnum.FULLTOOLKITBUILD || otherTime == TimeEnum.MANUAL) {
-						monitor.setCanceled(true);
-					}
-					break;
-				case FULLTOOLKITBUILD:
-					if (otherTime == TimeEnum.ASYOUTYPE || otherTime == TimeEnum.INCREMENTALTOOLKITBUILD
-							|| otherTime == TimeEnum.FULLTOOLKITBUILD) {
-						otherMonitor.setCanceled(true);
-					} else if (otherTime == TimeEnum.MANUAL) {
-						monitor.setCanceled(true);
-					}
-					break;
-				case MANUAL:
-					if (otherTime == TimeEnum.ASYOUTYPE || otherTime == TimeEnum.FULLTOOLKITBUILD
-							|| otherTime == TimeEnum.INCREMENTALTOOLKITBUILD) {
-						otherMonitor.setCanceled(true);
-					}
-					break;
-				default:
-					throw new IllegalArgumentException("Invalid time parameter: " + time);
-				}
-			}
-
-			workingMonitors.put(monitor, time);
-		}
+		coordinator.start(resources, time, monitor);
 
 		List<ValidationResult> allResults = new ArrayList<ValidationResult>();
+		boolean completed = false;
 		try {
 			monitor.beginTask("Running Commerce validators", 1);
 
@@ -212,9 +162,9 @@ public static List<ValidationResult> runValidators(List<ValidatorResource> resou
 			while (resourceIterator.hasNext()) {
 				ValidatorResource resource = resourceIterator.next();
 
-				// TODO - hacky - load some common variables then uncache it
+				// load some common variables, the models stay cached for the
+				// validators
 				resource.getBaseDir();
-				ModelRegistry.getDefault().clearValidator(resource);
 			}
 
 			initConfigurationManager();
@@ -282,95 +232,19 @@ public static List<ValidationResult> runValidators(List<ValidatorResource> resou
 				}
 			}
 
+			Integer threads = Options.Attributes.VALIDATOR_THREADS.getValue();
 			if (Debug.FRAMEWORK.isActive()) {
-				Debug.FRAMEWORK.log("running external validators");
-			}
-
-			for (Validator validator : externalValidatorToResourcesMap.keySet()) {
-				List<ValidatorResource> resourcesToValidate = validatorToResourceMap.get(validator);
-				int start = 0;
-				int end = Math.min(start + 300, resourcesToValidate.size());
-				while (end - start > 0) {
-					EclipseUtil.getDefault().checkCanceled(monitor);
-
-					if (Debug.FRAMEWORK.isActive()) {
-						Debug.FRAMEWORK.log("Analyzing ", end - start, " files.");
-					}
-
-					List<ValidatorResource> resourcesChunk = resourcesToValidate.subList(start, end);
-
-					try {
-						List<ValidationResult> results = validator.analyze(resourcesChunk, actionFactory,
-								new SubProgressMonitor(monitor, 1));
-						allResults.addAll(results);
-					} catch (Exception e) {
-						Debug.FRAMEWORK.log(e);
-					}
-
-					start = end;
-					end = Math.min(start + 300, resourcesToValidate.size());
-				}
-
-			}
-
-			if (Debug.FRAMEWORK.isActive()) {
-				Debug.FRAMEWORK.log("running batch validators");
-			}
-
-			for (Validator validator : batchValidatorToResourcesMap.keySet()) {
-				List<ValidatorResource> resourcesToValidate = validatorToResourceMap.get(validator);
-				EclipseUtil.getDefault().checkCanceled(monitor);
-
-				if (Debug.FRAMEWORK.isActive()) {
-					Debug.FRAMEWORK.log("Analyzing ", resourcesToValidate.size(), " files.");
-				}
-
-				try {
-					List<ValidationResult> results = validator.analyze(resourcesToValidate, actionFactory,
-							new SubProgressMonitor(monitor, 1));
-					allResults.addAll(results);
-				} catch (Exception e) {
-					Debug.FRAMEWORK.log(e);
-				}
-			}
-
-			if (Debug.FRAMEWORK.isActive()) {
-				Debug.FRAMEWORK.log("running non-external validators");
+				Debug.FRAMEWORK.log("running validators in ", threads, " threads");
 			}
 
-			for (ValidatorResource resource : resourceToNonExternalValidatorsMap.keySet()) {
-				List<Validator> validatorsToRun = resourceToNonExternalValidatorsMap.get(resource);
-
-				for (Validator validator : validatorsToRun) {
-					EclipseUtil.getDefault().checkCanceled(monitor);
-
-					try {
-						List<ValidationResult> results = validator.analyze(Arrays.asList(resource), actionFactory,
-								new SubProgressMonitor(monitor, 1));
-						allResults.addAll(results);
-					} catch (Exception e) {
-						Debug.FRAMEWORK.log(e);
-					}
-
-					// don't keep models in memory
-					ModelRegistry.getDefault().clearValidator(resource);
-				}
-			}
+			ValidatorExecutor executor = new ValidatorExecutor(threads);
+			allResults.addAll(executor.execute(externalValidatorToResourcesMap, batchValidatorToResourcesMap,
+					resourceToNonExternalValidatorsMap, actionFactory, monitor));
 
-			// sleep for a small time, so that if toolkitbuild happens before
-			// asyoutype, the toolkitbuild will still be there when asyoutype
-			// starts and the asyoutype won't overwrite the toolkitbuild markers
-			try {
-				Thread.currentThread().sleep(1200);
-			} catch (InterruptedException e) {
-				Debug.FRAMEWORK.log(e);
-			}
+			completed = true;
 		} finally {
 			monitor.done();
-
-			synchronized (workingMonitors) {
-				workingMonitors.remove(monitor);
-			}
+			coordinator.finish(resources, monitor, completed);
 		}
 
 		return allResults;
@@ -18,14 +18,19 @@
  *-----------------------------------------------------------------
  */
 
+import java.io.ByteArrayInputStream;
 import java.io.StringBufferInputStream;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import com.ibm.commerce.qcheck.core.FileCreatingTestCase;
 import com.ibm.commerce.qcheck.tools.CheckPIIOutput;
 import com.ibm.commerce.qcheck.tools.PIIFile;
+import com.ibm.commerce.qcheck.tools.PIIFileResults;
 
 /**
  * This class tests the {@link CheckPIIOutput} class.
@@ -44,6 +49,30 @@ public class CheckPIIOutputTest extends FileCreatingTestCase {
 
 	private static final String CONTENTS_END = "</Files>" + "</Report>";
 
+	/**
+	 * The number of files in the synthetic report used for timing.
+	 */
+	private static final int SYNTHETIC_FILE_COUNT = 100000;
+
+	/**
+	 * The number of files in the synthetic report which are found by scanning
+	 * every file, to compare with {@link CheckPIIOutput#findSimilar(PIIFile)}.
+	 */
+	private static final int SCANNED_FILE_COUNT = 100;
+
+	/**
+	 * The longest time that parsing the synthetic report may take when
+	 * benchmarking.
+	 */
+	private static final int MAX_PARSE_SECONDS = 10;
+
+	/**
+	 * True if finding files in the synthetic report should be timed. Timing
+	 * is only reliable on a quiet machine, so it is done when the
+	 * <code>benchmark</code> system property is true.
+	 */
+	private static final boolean COMPARE_SPEED = Boolean.getBoolean("benchmark");
+
 	private CheckPIIOutput output;
 
 	/**
@@ -339,6 +368,107 @@ public void testFindSimilarIf2OutputFilesAllCommon1HasExactMatchExpect1FileInLis
 		assertEquals("File 0 is wrong.", file2, similarFiles.get(0));
 	}
 
+	/**
+	 * Tests that if the end of the given path matches 2 output paths, the
+	 * match will not be exact and all the files in the parent of each matched
+	 * path will be in the list.
+	 */
+	public void testFindSimilarIf2OutputPathsMatchEndExpectAllFilesInParentsInList() {
+		PIIFile file1 = new PIIFile("dir2\\dir3", "name1.properties", false);
+		output.addFile(file1);
+		PIIFile file2 = new PIIFile("dir2\\dir3", "name2.properties", false);
+		output.addFile(file2);
+		PIIFile file3 = new PIIFile("dir1\\dir2\\dir3", "name1.properties", false);
+		output.addFile(file3);
+		PIIFile file4 = new PIIFile("dir4", "name1.properties", false);
+		output.addFile(file4);
+
+		PIIFileResults results = output.findSimilar(new PIIFile("dir1\\dir2\\dir3", "name1.properties", false));
+		assertFalse("Match is exact.", results.isExactMatch());
+		assertEquals("Similar files are wrong.", Arrays.asList(file3, file1, file2), results.getResults());
+	}
+
+	/**
+	 * Tests that if a report with many files is parsed, where the same file
+	 * names are used in many directories, each file can be found again as an
+	 * exact match. When benchmarking, also tests that parsing is fast, and
+	 * that finding files is faster than scanning every file in the report.
+	 *
+	 * @throws Exception
+	 *             If an unexpected error occurs.
+	 */
+	public void testFindSimilarIfSyntheticReportExpectEachFileExactMatch() throws Exception {
+		StringBuilder contents = new StringBuilder(CONTENTS_START);
+		for (int i = 0; i < SYNTHETIC_FILE_COUNT; i++) {
+			contents.append("<File><Name>FILE").append(i % 50).append("_DE.PROPERTIES</Name>");
+			contents.append("<Dir>COMPONENTS\\COMP").append(i / 2000).append("\\PKG").append(i / 50);
+			contents.append("\\PROPERTIES\\</Dir>");
+			contents.append("<FileType>JAVA2-PRB</FileType><CodePage>ANY</CodePage></File>");
+		}
+		contents.append(CONTENTS_END);
+		byte[] bytes = contents.toString().getBytes("UTF-8");
+
+		long begin = System.nanoTime();
+		output.parse(new ByteArrayInputStream(bytes));
+		long parseNanos = System.nanoTime() - begin;
+
+		List<PIIFile> files = output.getFiles();
+		assertEquals("Number of files is wrong.", SYNTHETIC_FILE_COUNT, files.size());
+
+		for (PIIFile file : files) {
+			PIIFileResults results = output.findSimilar(file);
+			assertTrue("Match is not exact for " + file + ".", results.isExactMatch());
+			assertEquals("Similar files are wrong.", Arrays.asList(file), results.getResults());
+		}
+
+		if (COMPARE_SPEED) {
+			assertTrue("Parsing took too long: " + parseNanos / 1000000 + " ms",
+					parseNanos < TimeUnit.SECONDS.toNanos(MAX_PARSE_SECONDS));
+
+			int step = SYNTHETIC_FILE_COUNT / SCANNED_FILE_COUNT;
+			begin = System.nanoTime();
+			for (int i = 0; i < SYNTHETIC_FILE_COUNT; i += step) {
+				PIIFile file = files.get(i);
+				assertEquals("Scanned files are wrong.", Arrays.asList(file), findByScan(files, file));
+			}
+			long scanNanos = System.nanoTime() - begin;
+
+			begin = System.nanoTime();
+			for (int i = 0; i < SYNTHETIC_FILE_COUNT; i += step) {
+				output.findSimilar(files.get(i));
+			}
+			long findNanos = System.nanoTime() - begin;
+
+			assertTrue("findSimilar took " + findNanos + " ns, scanning took " + scanNanos + " ns.",
+					findNanos < scanNanos);
+		}
+	}
+
+	/**
+	 * Finds the files with the same US English path as the given file, by
+	 * comparing the path of every file.
+	 *
+	 * @param files
+	 *            The files to search. Cannot be null.
+	 * @param file
+	 *            The file to find. Cannot be null.
+	 *
+	 * @return The files with the same path. Will not be null.
+	 */
+	private List<PIIFile> findByScan(List<PIIFile> files, PIIFile file) {
+		String dir = file.getDir(Locale.US);
+		String name = file.getName(Locale.US);
+		List<PIIFile> found = new ArrayList<PIIFile>();
+		for (PIIFile candidate : files) {
+			if (candidate.getName(Locale.US).equalsIgnoreCase(name)
+					&& candidate.getDir(Locale.US).equalsIgnoreCase(dir)) {
+				found.add(candidate);
+			}
+		}
+
+		return found;
+	}
+
 	/**
 	 * Tests that if the object is empty, some basic tags will be written.
 	 *
@@ -0,0 +1,438 @@
+package com.ibm.commerce.validation.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.commerce.qcheck.core.Util;
+import com.ibm.commerce.qcheck.tools.ExternalBatchRunner;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link ExternalBatchRunner} class, using
+ * {@link FakeExternalTool} as the external tool.
+ *
+ * @author Trent Hoeppner
+ */
+public class ExternalBatchRunnerTest extends TestCase {
+
+	/**
+	 * The number of files given to the fake tool.
+	 */
+	private static final int FILE_COUNT = 80;
+
+	/**
+	 * The number of milliseconds that the fake tool takes for each file.
+	 */
+	private static final int MILLIS_PER_FILE = 25;
+
+	/**
+	 * The number of batches that run at the same time in the parallel runs.
+	 */
+	private static final int THREAD_COUNT = 4;
+
+	/**
+	 * The longest time that a batch waits for the other batches to start.
+	 */
+	private static final int WAIT_SECONDS = 60;
+
+	/**
+	 * True if a run in several threads should be compared with a run in one
+	 * thread. Only a quiet machine gives a fair comparison, so it is made when
+	 * the <code>benchmark</code> system property is true.
+	 */
+	private static final boolean COMPARE_SPEED = Boolean.getBoolean("benchmark");
+
+	/**
+	 * The directory in which the output directories of batches are created.
+	 */
+	private File outputRoot;
+
+	/**
+	 * The names of the files given to the fake tool.
+	 */
+	private List<String> files;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		outputRoot = File.createTempFile("batchRunnerTest", "");
+		assertTrue("Could not delete " + outputRoot, outputRoot.delete());
+
+		files = new ArrayList<String>();
+		for (int i = 0; i < FILE_COUNT; i++) {
+			files.add("File" + i + ".properties");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		File[] children = outputRoot.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				child.delete();
+			}
+		}
+
+		outputRoot.delete();
+	}
+
+	/**
+	 * Tests that if the fake tool is run in one thread or in several threads,
+	 * every file will be checked once and the results will be in the same
+	 * order as the files.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunIfSeveralThreadsExpectSameResultsAsOneThread() throws Exception {
+		List<String> expected = new ArrayList<String>();
+		for (String file : files) {
+			expected.add(file + " " + file.length());
+		}
+
+		List<String> serialResults = flatten(createRunner().run(files, 1, new ToolTask()));
+		List<String> parallelResults = flatten(createRunner().run(files, THREAD_COUNT, new ToolTask()));
+
+		assertEquals("Wrong serial results.", expected, serialResults);
+		assertEquals("Wrong parallel results.", expected, parallelResults);
+	}
+
+	/**
+	 * Tests that if batches run at the same time, each one will get its own
+	 * new, empty output directory, which will be deleted afterwards.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunIfSeveralThreadsExpectSeparateOutputDirs() throws Exception {
+		ToolTask task = new ToolTask();
+
+		List<List<String>> results = createRunner().run(files, THREAD_COUNT, task);
+
+		assertTrue("Too few batches: " + results.size(), results.size() >= THREAD_COUNT);
+		assertEquals("Wrong number of output dirs.", results.size(), task.outputDirs.size());
+		assertEquals("Output dirs were shared.", results.size(), new HashSet<File>(task.outputDirs).size());
+		assertEquals("Some output dirs were not empty.", 0, task.nonEmptyDirCount.get());
+		for (File outputDir : task.outputDirs) {
+			assertEquals("Wrong parent.", outputRoot, outputDir.getParentFile());
+			assertFalse("Output dir was not deleted: " + outputDir, outputDir.exists());
+		}
+	}
+
+	/**
+	 * Tests that if several threads are given, that many batches will run at
+	 * the same time. When benchmarking, also tests that batches of the fake
+	 * tool run in several threads take less time than in one thread.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunIfSeveralThreadsExpectBatchesAtSameTime() throws Exception {
+		final CountDownLatch allStarted = new CountDownLatch(THREAD_COUNT);
+		final AtomicInteger timedOutCount = new AtomicInteger();
+		SleepTask task = new SleepTask() {
+
+			@Override
+			public List<String> run(List<String> items, File outputDir) throws IOException {
+				allStarted.countDown();
+				try {
+					if (!allStarted.await(WAIT_SECONDS, TimeUnit.SECONDS)) {
+						timedOutCount.incrementAndGet();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				return items;
+			}
+		};
+
+		createRunner().run(files, THREAD_COUNT, task);
+
+		assertEquals("Some batches did not run at the same time.", 0, timedOutCount.get());
+
+		if (COMPARE_SPEED) {
+			// warm up
+			createRunner().run(files.subList(0, THREAD_COUNT), THREAD_COUNT, new ToolTask());
+
+			long begin = System.nanoTime();
+			createRunner().run(files, 1, new ToolTask());
+			long serialNanos = System.nanoTime() - begin;
+
+			begin = System.nanoTime();
+			createRunner().run(files, THREAD_COUNT, new ToolTask());
+			long parallelNanos = System.nanoTime() - begin;
+
+			assertTrue("Parallel run was not faster: " + parallelNanos + " ns vs. " + serialNanos + " ns.",
+					parallelNanos < serialNanos * 3 / 4);
+		}
+	}
+
+	/**
+	 * Tests that if a previous run found that each item takes a long time, the
+	 * next run will use batches that take about the target time.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunIfSlowItemsMeasuredExpectSmallerBatches() throws Exception {
+		ExternalBatchRunner<String, List<String>> runner = new ExternalBatchRunner<String, List<String>>(outputRoot,
+				1, 100, 10L * MILLIS_PER_FILE);
+		SleepTask task = new SleepTask();
+
+		runner.run(files.subList(0, 40), 1, task);
+		assertEquals("Wrong first batch sizes.", Collections.singletonList(40), task.batchSizes);
+
+		task.batchSizes.clear();
+		runner.run(files.subList(0, 40), 1, task);
+		assertTrue("Too few batches: " + task.batchSizes, task.batchSizes.size() >= 4);
+		for (int batchSize : task.batchSizes) {
+			assertTrue("Batch too big: " + task.batchSizes, batchSize <= 10);
+		}
+	}
+
+	/**
+	 * Tests that if batches run in several threads, the task will be told
+	 * about each finished batch in the thread that started the run.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunIfSeveralThreadsExpectBatchFinishedInCallingThread() throws Exception {
+		final Thread callingThread = Thread.currentThread();
+		final List<String> finishedItems = new ArrayList<String>();
+		final AtomicInteger otherThreadCount = new AtomicInteger();
+		SleepTask task = new SleepTask() {
+
+			@Override
+			public void batchFinished(List<String> items) {
+				if (Thread.currentThread() != callingThread) {
+					otherThreadCount.incrementAndGet();
+				}
+
+				finishedItems.addAll(items);
+			}
+		};
+
+		createRunner().run(files, THREAD_COUNT, task);
+
+		assertEquals("Some batches finished in other threads.", 0, otherThreadCount.get());
+		assertEquals("Wrong finished items.", new HashSet<String>(files), new HashSet<String>(finishedItems));
+		assertEquals("Some items finished twice.", files.size(), finishedItems.size());
+	}
+
+	/**
+	 * Tests that if the run is canceled, no more batches will be started and
+	 * the output directories will be deleted.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunIfCanceledExpectCancellationException() throws Exception {
+		ExternalBatchRunner<String, List<String>> runner = new ExternalBatchRunner<String, List<String>>(outputRoot,
+				1, 10, 1000);
+		SleepTask task = new SleepTask() {
+
+			@Override
+			public boolean isCanceled() {
+				return !batchSizes.isEmpty();
+			}
+		};
+
+		try {
+			runner.run(files, 1, task);
+			fail("The run was not canceled.");
+		} catch (CancellationException e) {
+			// expected
+		}
+
+		assertEquals("Wrong number of batches.", 1, task.batchSizes.size());
+		assertEquals("Output dirs were not deleted.", 0, outputRoot.listFiles().length);
+	}
+
+	/**
+	 * Tests that if a batch fails, the run will throw the exception of the
+	 * batch.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunIfBatchFailsExpectIOException() throws Exception {
+		ExternalBatchRunner<String, List<String>> runner = createRunner();
+		SleepTask task = new SleepTask() {
+
+			@Override
+			public List<String> run(List<String> items, File outputDir) throws IOException {
+				throw new IOException("The tool failed.");
+			}
+		};
+
+		try {
+			runner.run(files, THREAD_COUNT, task);
+			fail("No exception was thrown.");
+		} catch (IOException e) {
+			assertEquals("Wrong exception.", "The tool failed.", e.getMessage());
+		}
+	}
+
+	private ExternalBatchRunner<String, List<String>> createRunner() {
+		return new ExternalBatchRunner<String, List<String>>(outputRoot, 1, 20, 60000);
+	}
+
+	private List<String> flatten(List<List<String>> batchResults) {
+		List<String> all = new ArrayList<String>();
+		for (List<String> batchResult : batchResults) {
+			all.addAll(batchResult);
+		}
+
+		return all;
+	}
+
+	/**
+	 * ToolTask runs {@link FakeExternalTool} in a new process for each batch,
+	 * and returns the lines of its output file.
+	 */
+	private class ToolTask implements ExternalBatchRunner.BatchTask<String, List<String>> {
+
+		/**
+		 * The output directories that were given to batches.
+		 */
+		private List<File> outputDirs = Collections.synchronizedList(new ArrayList<File>());
+
+		/**
+		 * The number of output directories that had files in them before the
+		 * tool ran.
+		 */
+		private AtomicInteger nonEmptyDirCount = new AtomicInteger();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<String> run(List<String> items, File outputDir) throws IOException {
+			outputDirs.add(outputDir);
+			if (outputDir.list().length > 0) {
+				nonEmptyDirCount.incrementAndGet();
+			}
+
+			File outputFile = new File(outputDir, "output.log");
+			StringBuilder command = new StringBuilder();
+			command.append(new File(new File(System.getProperty("java.home"), "bin"), "java"));
+			command.append(" -cp ").append(System.getProperty("java.class.path"));
+			command.append(" ").append(FakeExternalTool.class.getName());
+			command.append(" ").append(outputFile).append(" ").append(MILLIS_PER_FILE);
+			for (String item : items) {
+				command.append(" ").append(item);
+			}
+
+			Util.runUntilCompletion(command.toString(), outputDir);
+
+			List<String> lines = new ArrayList<String>();
+			BufferedReader reader = new BufferedReader(new FileReader(outputFile));
+			try {
+				String line = reader.readLine();
+				while (line != null) {
+					lines.add(line);
+					line = reader.readLine();
+				}
+			} finally {
+				reader.close();
+			}
+
+			return lines;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void batchFinished(List<String> items) {
+			// do nothing
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCanceled() {
+			return false;
+		}
+	}
+
+	/**
+	 * SleepTask takes {@link #MILLIS_PER_FILE} for each item in the current
+	 * thread, and records the size of each batch.
+	 */
+	private static class SleepTask implements ExternalBatchRunner.BatchTask<String, List<String>> {
+
+		/**
+		 * The number of items in each batch, in the order they ran.
+		 */
+		protected List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<String> run(List<String> items, File outputDir) throws IOException {
+			batchSizes.add(items.size());
+			try {
+				Thread.sleep((long) MILLIS_PER_FILE * items.size());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return items;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void batchFinished(List<String> items) {
+			// do nothing
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCanceled() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.ibm.commerce.validation.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * FakeExternalTool stands in for an external tool such as CHKPII in tests.
+ * It is run in its own process with the output file, the number of
+ * milliseconds to take for each file, and the names of the files to check. For
+ * each file it writes one line to the output file with the name and the length
+ * of the name, and writes a message to standard output and standard error.
+ *
+ * @author Trent Hoeppner
+ */
+public class FakeExternalTool {
+
+	/**
+	 * Constructor for this. Private to prevent instantiation.
+	 */
+	private FakeExternalTool() {
+		// do nothing
+	}
+
+	/**
+	 * Checks the files named on the command line.
+	 *
+	 * @param args
+	 *            The output file, the milliseconds for each file, and the
+	 *            names of the files. Cannot be null.
+	 *
+	 * @throws Exception
+	 *             If the output file could not be written.
+	 */
+	public static void main(String[] args) throws Exception {
+		File outputFile = new File(args[0]);
+		long millisPerFile = Long.parseLong(args[1]);
+
+		BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
+		try {
+			for (int i = 2; i < args.length; i++) {
+				Thread.sleep(millisPerFile);
+				writer.write(args[i] + " " + args[i].length());
+				writer.newLine();
+				System.out.println("Checked " + args[i]);
+				System.err.println("No problems in " + args[i]);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package com.ibm.commerce.validation.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ibm.commerce.qcheck.tools.PhraseMatcher;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link PhraseMatcher} class.
+ *
+ * @author Trent Hoeppner
+ */
+public class PhraseMatcherTest extends TestCase {
+
+	/**
+	 * The pattern for a Javadoc comment in a Java file.
+	 */
+	private static final Pattern JAVADOC_PATTERN = Pattern.compile("/\\*\\*(.*?)\\*/", Pattern.DOTALL);
+
+	/**
+	 * The number of phrases for the large phrase list.
+	 */
+	private static final int LARGE_PHRASE_COUNT = 10000;
+
+	/**
+	 * The number of times to run each implementation before timing it.
+	 */
+	private static final int WARM_UP_ROUNDS = 10;
+
+	/**
+	 * True if the speed of the matcher should be compared with the first word
+	 * index. The comparison only means something on a quiet machine, so it
+	 * is made when the <code>benchmark</code> system property is true.
+	 */
+	private static final boolean COMPARE_SPEED = Boolean.getBoolean("benchmark");
+
+	/**
+	 * Tests that if the first word of a phrase is only the start of a word in
+	 * the text, there will be no match.
+	 */
+	public void testFindFirstIfFirstWordIsPartOfLongerWordExpectNoMatch() {
+		PhraseMatcher matcher = new PhraseMatcher(Arrays.asList("white"));
+
+		List<PhraseMatcher.Match> matches = matcher.findFirst("a whitelist");
+
+		assertEquals("Wrong number of matches.", 0, matches.size());
+	}
+
+	/**
+	 * Tests that if a phrase is only the start of the text after its first
+	 * word, there will be a match.
+	 */
+	public void testFindFirstIfPhraseIsPrefixAfterFirstWordExpectMatch() {
+		PhraseMatcher matcher = new PhraseMatcher(Arrays.asList("white list"));
+
+		List<PhraseMatcher.Match> matches = matcher.findFirst("the white lists");
+
+		assertEquals("Wrong number of matches.", 1, matches.size());
+		assertEquals("Wrong start.", 4, matches.get(0).getStart());
+		assertEquals("Wrong length.", 10, matches.get(0).getLength());
+	}
+
+	/**
+	 * Tests that if a phrase starts in the middle of a word, there will be no
+	 * match.
+	 */
+	public void testFindFirstIfPhraseStartsInsideWordExpectNoMatch() {
+		PhraseMatcher matcher = new PhraseMatcher(Arrays.asList("list"));
+
+		List<PhraseMatcher.Match> matches = matcher.findFirst("whitelist my_list list");
+
+		assertEquals("Wrong number of matches.", 1, matches.size());
+		assertEquals("Wrong start.", 18, matches.get(0).getStart());
+	}
+
+	/**
+	 * Tests that if phrases overlap, the phrase with the lowest index at each
+	 * start is found.
+	 */
+	public void testFindFirstIfPhrasesOverlapExpectLowestIndexAtEachStart() {
+		PhraseMatcher matcher = new PhraseMatcher(Arrays.asList("back up to", "back", "up to", "back up"));
+
+		List<PhraseMatcher.Match> matches = matcher.findFirst("back up to date");
+
+		assertEquals("Wrong number of matches.", 2, matches.size());
+		assertEquals("Wrong first start.", 0, matches.get(0).getStart());
+		assertEquals("Wrong first phrase.", 0, matches.get(0).getPhraseIndex());
+		assertEquals("Wrong second start.", 5, matches.get(1).getStart());
+		assertEquals("Wrong second phrase.", 2, matches.get(1).getPhraseIndex());
+	}
+
+	/**
+	 * Tests that if a phrase starts with a non-word character, it never
+	 * matches.
+	 */
+	public void testFindFirstIfPhraseStartsWithNonWordCharacterExpectNoMatch() {
+		PhraseMatcher matcher = new PhraseMatcher(Arrays.asList(".zip file", ""));
+
+		List<PhraseMatcher.Match> matches = matcher.findFirst("a .zip file");
+
+		assertEquals("Wrong number of matches.", 0, matches.size());
+	}
+
+	/**
+	 * Tests that if the forbidden terms are searched for in the Javadoc of
+	 * this plug-in, the first phrase found at each index is the same as the
+	 * one found by searching by the first word of each phrase.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testFindFirstIfJavadocCorpusExpectSameAsFirstWordIndex() throws Exception {
+		List<String> phrases = loadTerms(new File("data/findTerms.txt"));
+		List<List<String>> files = new ArrayList<List<String>>();
+		loadJavadoc(new File("src"), files);
+		loadJavadoc(new File("testData"), files);
+		List<String> corpus = flatten(files);
+
+		PhraseMatcher matcher = new PhraseMatcher(phrases);
+		FirstWordIndex index = new FirstWordIndex(phrases);
+		int count = 0;
+		for (String text : corpus) {
+			List<int[]> expected = index.findFirst(text);
+			assertEquals("Matches are different for: " + text, toString(expected), toString(findFirst(matcher, text)));
+			count += expected.size();
+		}
+
+		assertTrue("No forbidden terms were found in the corpus.", count > 0);
+	}
+
+	/**
+	 * Tests that if there are 10,000 phrases, the first phrase found at each
+	 * index is the same as the one found by searching by the first word of each
+	 * phrase. When benchmarking, also tests that compiling the phrases once and
+	 * searching every file is faster than building the first word index for
+	 * each file, as the validator used to do.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testFindFirstIfTenThousandPhrasesExpectSameAsIndexPerFile() throws Exception {
+		List<List<String>> files = new ArrayList<List<String>>();
+		loadJavadoc(new File("src"), files);
+		List<String> words = new ArrayList<String>();
+		for (String text : flatten(files)) {
+			words.addAll(Arrays.asList(text.split("[^a-z0-9_]+")));
+		}
+
+		Random random = new Random(2018);
+		List<String> phrases = new ArrayList<String>();
+		for (int i = 0; i < LARGE_PHRASE_COUNT; i++) {
+			StringBuilder phrase = new StringBuilder(words.get(random.nextInt(words.size())));
+			int extraWords = random.nextInt(3);
+			for (int j = 0; j < extraWords; j++) {
+				phrase.append(' ').append(words.get(random.nextInt(words.size())));
+			}
+			phrases.add(phrase.toString());
+		}
+
+		List<String> expected = findWithIndexPerFile(phrases, files);
+		List<String> actual = findWithMatcher(phrases, files);
+		assertEquals("Matches are different.", expected, actual);
+
+		if (COMPARE_SPEED) {
+			for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+				findWithIndexPerFile(phrases, files);
+				findWithMatcher(phrases, files);
+			}
+
+			long beforeIndex = System.nanoTime();
+			findWithIndexPerFile(phrases, files);
+			long indexTime = System.nanoTime() - beforeIndex;
+
+			long beforeMatcher = System.nanoTime();
+			findWithMatcher(phrases, files);
+			long matcherTime = System.nanoTime() - beforeMatcher;
+
+			assertTrue("PhraseMatcher took " + matcherTime + " ns, first word index took " + indexTime + " ns.",
+					matcherTime < indexTime);
+		}
+	}
+
+	private List<String> findWithIndexPerFile(List<String> phrases, List<List<String>> files) {
+		List<String> results = new ArrayList<String>();
+		for (List<String> file : files) {
+			FirstWordIndex index = new FirstWordIndex(phrases);
+			for (String text : file) {
+				results.add(toString(index.findFirst(text)));
+			}
+		}
+
+		return results;
+	}
+
+	private List<String> findWithMatcher(List<String> phrases, List<List<String>> files) {
+		PhraseMatcher matcher = new PhraseMatcher(phrases);
+		List<String> results = new ArrayList<String>();
+		for (List<String> file : files) {
+			for (String text : file) {
+				results.add(toString(findFirst(matcher, text)));
+			}
+		}
+
+		return results;
+	}
+
+	private List<int[]> findFirst(PhraseMatcher matcher, String text) {
+		List<int[]> first = new ArrayList<int[]>();
+		for (PhraseMatcher.Match match : matcher.findFirst(text)) {
+			first.add(new int[] { match.getStart(), match.getPhraseIndex() });
+		}
+
+		return first;
+	}
+
+	private String toString(List<int[]> matches) {
+		StringBuilder builder = new StringBuilder();
+		for (int[] match : matches) {
+			builder.append(match[0]).append(':').append(match[1]).append(' ');
+		}
+
+		return builder.toString();
+	}
+
+	private List<String> loadTerms(File file) throws IOException {
+		List<String> terms = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line = reader.readLine();
+			while (line != null) {
+				terms.add(line.substring(2).toLowerCase(Locale.ENGLISH));
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+		}
+
+		return terms;
+	}
+
+	private void loadJavadoc(File dir, List<List<String>> files) throws IOException {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+
+		for (File child : children) {
+			if (child.isDirectory()) {
+				loadJavadoc(child, files);
+			} else if (child.getName().endsWith(".java")) {
+				List<String> comments = new ArrayList<String>();
+				Matcher javadocMatcher = JAVADOC_PATTERN.matcher(read(child));
+				while (javadocMatcher.find()) {
+					String comment = javadocMatcher.group(1).replaceAll("(?m)^\\s*\\*", "");
+					comments.add(comment.trim().toLowerCase(Locale.ENGLISH));
+				}
+				files.add(comments);
+			}
+		}
+	}
+
+	private List<String> flatten(List<List<String>> files) {
+		List<String> comments = new ArrayList<String>();
+		for (List<String> file : files) {
+			comments.addAll(file);
+		}
+
+		return comments;
+	}
+
+	private String read(File file) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			char[] buffer = new char[4096];
+			int charsRead = reader.read(buffer);
+			while (charsRead >= 0) {
+				builder.append(buffer, 0, charsRead);
+				charsRead = reader.read(buffer);
+			}
+		} finally {
+			reader.close();
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * FirstWordIndex finds phrases by looking up the word at each word start
+	 * in a map from first words to phrases, and then checking each phrase with
+	 * that first word. This is how forbidden words were found before
+	 * {@link PhraseMatcher}.
+	 */
+	private static class FirstWordIndex {
+
+		/**
+		 * The phrases to find.
+		 */
+		private List<String> phrases;
+
+		/**
+		 * A mapping from the first word in a phrase to the indexes of all the
+		 * phrases that have that first word.
+		 */
+		private Map<String, List<Integer>> firstWordToPhrasesMap = new TreeMap<String, List<Integer>>();
+
+		/**
+		 * Constructor for FirstWordIndex.
+		 *
+		 * @param newPhrases
+		 *            The phrases to find. Cannot be null.
+		 */
+		private FirstWordIndex(List<String> newPhrases) {
+			this.phrases = newPhrases;
+			for (int i = 0; i < phrases.size(); i++) {
+				String firstWord = findFirstWord(phrases.get(i), 0);
+				List<Integer> phrasesForFirstWord = firstWordToPhrasesMap.get(firstWord);
+				if (phrasesForFirstWord == null) {
+					phrasesForFirstWord = new ArrayList<Integer>();
+					firstWordToPhrasesMap.put(firstWord, phrasesForFirstWord);
+				}
+				phrasesForFirstWord.add(Integer.valueOf(i));
+			}
+		}
+
+		private List<int[]> findFirst(String text) {
+			List<int[]> matches = new ArrayList<int[]>();
+			for (int i = 0; i < text.length(); i++) {
+				if ((i == 0 || !isWordCharacter(text, i - 1)) && isWordCharacter(text, i)) {
+					List<Integer> phrasesForFirstWord = firstWordToPhrasesMap.get(findFirstWord(text, i));
+					if (phrasesForFirstWord != null) {
+						for (Integer phraseIndex : phrasesForFirstWord) {
+							if (text.startsWith(phrases.get(phraseIndex.intValue()), i)) {
+								matches.add(new int[] { i, phraseIndex.intValue() });
+								break;
+							}
+						}
+					}
+				}
+			}
+
+			return matches;
+		}
+
+		private String findFirstWord(String text, int startIndex) {
+			int end = startIndex;
+			while (end < text.length() && isWordCharacter(text, end)) {
+				end++;
+			}
+
+			return text.substring(startIndex, end);
+		}
+
+		private boolean isWordCharacter(String text, int index) {
+			return Character.isJavaIdentifierPart(text.charAt(index));
+		}
+	}
+}
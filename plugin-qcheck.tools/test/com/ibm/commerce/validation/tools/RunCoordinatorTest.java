@@ -0,0 +1,224 @@
+package com.ibm.commerce.validation.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import com.ibm.commerce.qcheck.core.FakeResource;
+import com.ibm.commerce.qcheck.core.ValidatorResource;
+import com.ibm.commerce.qcheck.tools.RunCoordinator;
+import com.ibm.commerce.qcheck.tools.config.TimeEnum;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link RunCoordinator} class.
+ *
+ * @author Trent Hoeppner
+ */
+public class RunCoordinatorTest extends TestCase {
+
+	/**
+	 * The file that the resource represents.
+	 */
+	private File file;
+
+	/**
+	 * The resources to validate.
+	 */
+	private List<ValidatorResource> resources;
+
+	/**
+	 * The coordinator being tested.
+	 */
+	private RunCoordinator coordinator;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("RunCoordinatorTest", ".java");
+		write("public class A {\n}\n");
+		resources = Collections.<ValidatorResource> singletonList(new FakeResource(file));
+		coordinator = new RunCoordinator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	/**
+	 * Tests that if an asyoutype run starts after a build completed for the
+	 * same contents, the asyoutype run will be canceled.
+	 */
+	public void testStartIfAsYouTypeAfterBuildOfSameContentsExpectCanceled() {
+		runToCompletion(TimeEnum.INCREMENTALTOOLKITBUILD);
+
+		IProgressMonitor monitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.ASYOUTYPE, monitor);
+
+		assertTrue("Asyoutype was not canceled.", monitor.isCanceled());
+	}
+
+	/**
+	 * Tests that if an asyoutype run starts after a build completed, but the
+	 * contents changed since then, the asyoutype run will not be canceled.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testStartIfAsYouTypeAfterBuildOfChangedContentsExpectNotCanceled() throws Exception {
+		runToCompletion(TimeEnum.FULLTOOLKITBUILD);
+		write("public class A {\n\tint i;\n}\n");
+
+		IProgressMonitor monitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.ASYOUTYPE, monitor);
+
+		assertFalse("Asyoutype was canceled.", monitor.isCanceled());
+	}
+
+	/**
+	 * Tests that if an asyoutype run starts after a build completed, and the
+	 * contents changed to contents with the same hash code, the asyoutype run
+	 * will not be canceled.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testStartIfAsYouTypeAfterBuildOfContentsWithSameHashCodeExpectNotCanceled() throws Exception {
+		String builtContents = "public class Aa {\n}\n";
+		String changedContents = "public class BB {\n}\n";
+		assertEquals("Hash codes are different.", builtContents.hashCode(), changedContents.hashCode());
+
+		write(builtContents);
+		runToCompletion(TimeEnum.INCREMENTALTOOLKITBUILD);
+		write(changedContents);
+		assertTrue("Could not set the time.", file.setLastModified(file.lastModified() + 2000));
+
+		IProgressMonitor monitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.ASYOUTYPE, monitor);
+
+		assertFalse("Asyoutype was canceled.", monitor.isCanceled());
+	}
+
+	/**
+	 * Tests that if an asyoutype run starts after a build was canceled, the
+	 * asyoutype run will not be canceled.
+	 */
+	public void testStartIfAsYouTypeAfterCanceledBuildExpectNotCanceled() {
+		IProgressMonitor buildMonitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.FULLTOOLKITBUILD, buildMonitor);
+		coordinator.finish(resources, buildMonitor, false);
+
+		IProgressMonitor monitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.ASYOUTYPE, monitor);
+
+		assertFalse("Asyoutype was canceled.", monitor.isCanceled());
+	}
+
+	/**
+	 * Tests that if a build starts while an asyoutype run is running, the
+	 * asyoutype run will be canceled and the build will not.
+	 */
+	public void testStartIfBuildDuringAsYouTypeExpectAsYouTypeCanceled() {
+		IProgressMonitor asYouTypeMonitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.ASYOUTYPE, asYouTypeMonitor);
+
+		IProgressMonitor buildMonitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.INCREMENTALTOOLKITBUILD, buildMonitor);
+
+		assertTrue("Asyoutype was not canceled.", asYouTypeMonitor.isCanceled());
+		assertFalse("Build was canceled.", buildMonitor.isCanceled());
+	}
+
+	/**
+	 * Tests that if an asyoutype run starts while a manual run is running, the
+	 * asyoutype run will be canceled and the manual run will not.
+	 */
+	public void testStartIfAsYouTypeDuringManualExpectAsYouTypeCanceled() {
+		IProgressMonitor manualMonitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.MANUAL, manualMonitor);
+
+		IProgressMonitor asYouTypeMonitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.ASYOUTYPE, asYouTypeMonitor);
+
+		assertTrue("Asyoutype was not canceled.", asYouTypeMonitor.isCanceled());
+		assertFalse("Manual was canceled.", manualMonitor.isCanceled());
+	}
+
+	/**
+	 * Tests that if an asyoutype run completes after a manual run, a later
+	 * asyoutype run for the contents that the manual run validated will not be
+	 * canceled, since the asyoutype markers replaced the manual markers.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testStartIfAsYouTypeAfterCompletedAsYouTypeExpectNotCanceled() throws Exception {
+		runToCompletion(TimeEnum.MANUAL);
+		write("public class A {\n\tint i;\n}\n");
+		runToCompletion(TimeEnum.ASYOUTYPE);
+		write("public class A {\n}\n");
+
+		IProgressMonitor monitor = new NullProgressMonitor();
+		coordinator.start(resources, TimeEnum.ASYOUTYPE, monitor);
+
+		assertFalse("Asyoutype was canceled.", monitor.isCanceled());
+	}
+
+	/**
+	 * Tests that if a run completes, finishing it does not wait for any other
+	 * run to start.
+	 */
+	public void testFinishIfCompletedExpectNoDelay() {
+		long startTime = System.currentTimeMillis();
+		runToCompletion(TimeEnum.INCREMENTALTOOLKITBUILD);
+		long duration = System.currentTimeMillis() - startTime;
+
+		assertTrue("Run took too long: " + duration + " ms", duration < 100);
+	}
+
+	private void runToCompletion(TimeEnum time) {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		coordinator.start(resources, time, monitor);
+		coordinator.finish(resources, monitor, true);
+	}
+
+	private void write(String contents) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(contents.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.ibm.commerce.validation.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ibm.commerce.qcheck.tools.SpellChecker;
+import com.ibm.commerce.qcheck.tools.SpellingDictionary;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link SpellChecker} and {@link SpellingDictionary}
+ * classes.
+ *
+ * @author Trent Hoeppner
+ */
+public class SpellCheckerTest extends TestCase {
+
+	/**
+	 * The number of threads that check the corpus at the same time.
+	 */
+	private static final int THREAD_COUNT = 8;
+
+	/**
+	 * The dictionary made from the fixture word list and the technical words
+	 * in this plug-in.
+	 */
+	private SpellingDictionary dictionary;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		List<String> words = new ArrayList<String>();
+		SpellingDictionary.readWords(new FileInputStream("testData/spellingDictionary.txt"), words);
+		SpellingDictionary.readWords(new FileInputStream("data/userdict.txt"), words);
+		dictionary = new SpellingDictionary(words);
+	}
+
+	/**
+	 * Tests that if the fixture corpus is checked, exactly the misspelled
+	 * words will be found at the right offsets.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCheckIfCorpusExpectMisspellingsFound() throws Exception {
+		String text = read(new File("testData/spellingCorpus.txt"));
+
+		List<SpellChecker.Misspelling> misspellings = new SpellChecker(dictionary).check(text);
+
+		List<String> words = new ArrayList<String>();
+		for (SpellChecker.Misspelling misspelling : misspellings) {
+			words.add(misspelling.getWord());
+			assertEquals("Wrong offset for " + misspelling.getWord() + ".", misspelling.getWord(),
+					text.substring(misspelling.getOffset(), misspelling.getOffset() + misspelling.getLength()));
+		}
+		assertEquals("Wrong misspellings.", Arrays.asList("Teh", "usualy", "recieve", "exmaple"), words);
+	}
+
+	/**
+	 * Tests that if the fixture corpus is checked, each misspelled word will
+	 * have the intended word as its first suggestion.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCheckIfCorpusExpectBestSuggestionsFirst() throws Exception {
+		String text = read(new File("testData/spellingCorpus.txt"));
+
+		List<SpellChecker.Misspelling> misspellings = new SpellChecker(dictionary).check(text);
+
+		List<String> firstSuggestions = new ArrayList<String>();
+		for (SpellChecker.Misspelling misspelling : misspellings) {
+			firstSuggestions.add(misspelling.getSuggestions().get(0));
+		}
+		assertEquals("Wrong suggestions.", Arrays.asList("The", "usually", "receive", "example"), firstSuggestions);
+	}
+
+	/**
+	 * Tests that if a word has two letters swapped, the word with the letters
+	 * in the right order will be suggested before words with a different
+	 * letter.
+	 */
+	public void testSuggestIfTransposedLettersExpectSwappedWordFirst() {
+		List<String> suggestions = dictionary.suggest("teh", 10);
+
+		assertEquals("Wrong suggestions.", Arrays.asList("the", "tea", "ten", "be", "to"), suggestions);
+	}
+
+	/**
+	 * Tests that if a word is two edits away from a dictionary word, that word
+	 * will be suggested.
+	 */
+	public void testSuggestIfTwoEditsAwayExpectSuggested() {
+		List<String> suggestions = dictionary.suggest("recieved", 10);
+
+		assertTrue("Missing suggestion in " + suggestions, suggestions.contains("received"));
+		assertTrue("Missing suggestion in " + suggestions, suggestions.contains("receive"));
+	}
+
+	/**
+	 * Tests that if no word is close to the misspelled word, there will be no
+	 * suggestions.
+	 */
+	public void testSuggestIfNoCloseWordExpectEmpty() {
+		List<String> suggestions = dictionary.suggest("xylophonic", 10);
+
+		assertEquals("Wrong number of suggestions.", 0, suggestions.size());
+	}
+
+	/**
+	 * Tests that if a word in the dictionary is capitalized, it is spelled
+	 * correctly.
+	 */
+	public void testContainsIfCapitalizedExpectTrue() {
+		assertTrue("Capitalized word not found.", dictionary.contains("Resource"));
+		assertFalse("Upper case word found.", dictionary.contains("RESOURCE"));
+	}
+
+	/**
+	 * Tests that if the text has URLs, single letters, or words with digits or
+	 * upper case letters after the first, they will not be checked.
+	 */
+	public void testCheckIfIgnoredTokensExpectNoMisspellings() {
+		String text = "see https://www.exmaple.com/teh?q=recieve or www.teh.org, getTeh, TEH, teh2, 2teh and x";
+
+		List<SpellChecker.Misspelling> misspellings = new SpellChecker(dictionary).check(text);
+
+		assertEquals("Wrong number of misspellings.", 0, misspellings.size());
+	}
+
+	/**
+	 * Tests that if a misspelled word is possessive, the word without the
+	 * <code>'s</code> will be reported.
+	 */
+	public void testCheckIfPossessiveExpectWordWithoutApostrophe() {
+		List<SpellChecker.Misspelling> misspellings = new SpellChecker(dictionary).check("the exmaple's name");
+
+		assertEquals("Wrong number of misspellings.", 1, misspellings.size());
+		assertEquals("Wrong word.", "exmaple", misspellings.get(0).getWord());
+		assertEquals("Wrong offset.", 4, misspellings.get(0).getOffset());
+	}
+
+	/**
+	 * Tests that if a misspelled word appears more than once, each occurrence
+	 * will be reported with the same suggestions.
+	 */
+	public void testCheckIfRepeatedWordExpectEachReported() {
+		List<SpellChecker.Misspelling> misspellings = new SpellChecker(dictionary).check("teh name and teh word");
+
+		assertEquals("Wrong number of misspellings.", 2, misspellings.size());
+		assertEquals("Wrong first offset.", 0, misspellings.get(0).getOffset());
+		assertEquals("Wrong second offset.", 13, misspellings.get(1).getOffset());
+		assertEquals("Different suggestions.", misspellings.get(0).getSuggestions(),
+				misspellings.get(1).getSuggestions());
+	}
+
+	/**
+	 * Tests that if many threads check the corpus with the same dictionary at
+	 * the same time, they will all find the same misspellings as one thread.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testCheckIfConcurrentExpectSameResults() throws Exception {
+		final String text = read(new File("testData/spellingCorpus.txt"));
+		final List<String> expected = describe(new SpellChecker(dictionary).check(text));
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+			for (int i = 0; i < THREAD_COUNT * 4; i++) {
+				futures.add(executor.submit(new Callable<List<String>>() {
+
+					@Override
+					public List<String> call() {
+						return describe(new SpellChecker(dictionary).check(text));
+					}
+				}));
+			}
+
+			for (Future<List<String>> future : futures) {
+				assertEquals("Different results.", expected, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private List<String> describe(List<SpellChecker.Misspelling> misspellings) {
+		List<String> descriptions = new ArrayList<String>();
+		for (SpellChecker.Misspelling misspelling : misspellings) {
+			descriptions.add(misspelling.getOffset() + ":" + misspelling.getWord() + misspelling.getSuggestions());
+		}
+
+		return descriptions;
+	}
+
+	private String read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			Reader reader = new InputStreamReader(in, "UTF-8");
+			StringBuilder builder = new StringBuilder();
+			char[] buffer = new char[4096];
+			int count = reader.read(buffer);
+			while (count != -1) {
+				builder.append(buffer, 0, count);
+				count = reader.read(buffer);
+			}
+
+			return builder.toString();
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package com.ibm.commerce.validation.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.ibm.commerce.qcheck.core.FakeResource;
+import com.ibm.commerce.qcheck.core.ModelEnum;
+import com.ibm.commerce.qcheck.core.ProblemAction;
+import com.ibm.commerce.qcheck.core.ProblemActionFactory;
+import com.ibm.commerce.qcheck.core.ValidationResult;
+import com.ibm.commerce.qcheck.core.Validator;
+import com.ibm.commerce.qcheck.core.ValidatorResource;
+import com.ibm.commerce.qcheck.tools.ValidatorExecutor;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests the {@link ValidatorExecutor} class.
+ *
+ * @author Trent Hoeppner
+ */
+public class ValidatorExecutorTest extends TestCase {
+
+	/**
+	 * The number of resources to validate.
+	 */
+	private static final int NUM_RESOURCES = 40;
+
+	/**
+	 * The resources to validate.
+	 */
+	private List<ValidatorResource> resources;
+
+	/**
+	 * A mapping from external validators to the resources they validate.
+	 */
+	private Map<Validator, List<ValidatorResource>> externalMap;
+
+	/**
+	 * A mapping from batch validators to the resources they validate.
+	 */
+	private Map<Validator, List<ValidatorResource>> batchMap;
+
+	/**
+	 * A mapping from resources to the other validators that validate them.
+	 */
+	private Map<ValidatorResource, List<Validator>> resourceMap;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		resources = new ArrayList<ValidatorResource>();
+		for (int i = 0; i < NUM_RESOURCES; i++) {
+			resources.add(new FakeResource(new File("Resource" + i + ".java")));
+		}
+
+		externalMap = new LinkedHashMap<Validator, List<ValidatorResource>>();
+		externalMap.put(new FakeValidator("external"), resources);
+		batchMap = new LinkedHashMap<Validator, List<ValidatorResource>>();
+		batchMap.put(new FakeValidator("batch"), resources.subList(0, NUM_RESOURCES / 2));
+
+		List<Validator> validators = Arrays.<Validator> asList(new FakeValidator("first"), new FakeValidator("middle"),
+				new FakeValidator("second"));
+		resourceMap = new LinkedHashMap<ValidatorResource, List<Validator>>();
+		for (ValidatorResource resource : resources) {
+			resourceMap.put(resource, validators);
+		}
+	}
+
+	/**
+	 * Tests that if the number of threads is 0, an exception will be thrown.
+	 */
+	public void testConstructorIfNoThreadsExpectException() {
+		try {
+			new ValidatorExecutor(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+
+	/**
+	 * Tests that if validators are run in many threads, the results are the
+	 * same as when they are run in one thread.
+	 */
+	public void testExecuteIfManyThreadsExpectSameResultsAsOneThread() {
+		List<ValidationResult> serialResults = new ValidatorExecutor(1).execute(externalMap, batchMap, resourceMap,
+				new NullActionFactory(), new NullProgressMonitor());
+		List<ValidationResult> parallelResults = new ValidatorExecutor(4).execute(externalMap, batchMap,
+				resourceMap, new NullActionFactory(), new NullProgressMonitor());
+
+		int expectedCount = NUM_RESOURCES + NUM_RESOURCES / 2 + NUM_RESOURCES * 3;
+		assertEquals("Wrong number of results.", expectedCount, serialResults.size());
+		assertEquals("Results are different.", describe(serialResults), describe(parallelResults));
+	}
+
+	/**
+	 * Tests that if the monitor is canceled while validators are running in
+	 * many threads, an exception is thrown and the remaining validators are
+	 * not run.
+	 */
+	public void testExecuteIfCanceledExpectException() {
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		final AtomicInteger calls = new AtomicInteger();
+		Validator cancelingValidator = new FakeValidator("canceling") {
+
+			@Override
+			public List<ValidationResult> analyze(List<ValidatorResource> resourcesToValidate,
+					ProblemActionFactory actionFactory, IProgressMonitor validatorMonitor) {
+				if (calls.incrementAndGet() == 5) {
+					validatorMonitor.setCanceled(true);
+				}
+
+				return super.analyze(resourcesToValidate, actionFactory, validatorMonitor);
+			}
+		};
+
+		Map<ValidatorResource, List<Validator>> cancelMap = new LinkedHashMap<ValidatorResource, List<Validator>>();
+		for (ValidatorResource resource : resources) {
+			cancelMap.put(resource, Collections.singletonList(cancelingValidator));
+		}
+
+		Map<Validator, List<ValidatorResource>> emptyMap = Collections.emptyMap();
+		try {
+			new ValidatorExecutor(2).execute(emptyMap, emptyMap, cancelMap, new NullActionFactory(), monitor);
+			fail("OperationCanceledException was not thrown.");
+		} catch (OperationCanceledException e) {
+			// success
+		}
+
+		assertTrue("Monitor was not canceled.", monitor.isCanceled());
+		assertTrue("Too many validators ran after canceling: " + calls.get(), calls.get() < NUM_RESOURCES);
+	}
+
+	/**
+	 * Tests that if validators run in many threads, the monitor is advanced
+	 * once for each analysis, only in the calling thread.
+	 */
+	public void testExecuteIfManyThreadsExpectMonitorAdvancedForEachAnalysis() {
+		WorkCountingMonitor monitor = new WorkCountingMonitor();
+		new ValidatorExecutor(4).execute(externalMap, batchMap, resourceMap, new NullActionFactory(), monitor);
+
+		assertEquals("Wrong amount of work.", 2 + NUM_RESOURCES * 3, monitor.work.get());
+		assertFalse("Work was reported from another thread.", monitor.otherThread);
+	}
+
+	private List<String> describe(List<ValidationResult> results) {
+		List<String> descriptions = new ArrayList<String>();
+		for (ValidationResult result : results) {
+			descriptions.add(result.getMessage() + " " + result.getResource().getFileAsFile());
+		}
+
+		return descriptions;
+	}
+
+	/**
+	 * FakeValidator returns one result for each resource.
+	 */
+	private static class FakeValidator implements Validator {
+
+		/**
+		 * The name of this, which is the message of each result.
+		 */
+		private String name;
+
+		/**
+		 * Constructor for FakeValidator.
+		 *
+		 * @param name
+		 *            The name of this. Cannot be null.
+		 */
+		private FakeValidator(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<ValidationResult> analyze(List<ValidatorResource> resourcesToValidate,
+				ProblemActionFactory actionFactory, IProgressMonitor monitor) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			List<ValidationResult> results = new ArrayList<ValidationResult>();
+			for (ValidatorResource resource : resourcesToValidate) {
+				results.add(new ValidationResult(name, resource, Collections.<ProblemAction> emptyList(), 1, 0, 0, 0,
+						name));
+			}
+
+			return results;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<ModelEnum> getRequiredModels() {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * WorkCountingMonitor adds up the work reported to it, and records whether
+	 * any work was reported from a thread other than the one that created it.
+	 */
+	private static class WorkCountingMonitor extends NullProgressMonitor {
+
+		/**
+		 * The thread that created this.
+		 */
+		private final Thread owner = Thread.currentThread();
+
+		/**
+		 * The work reported so far.
+		 */
+		private final AtomicInteger work = new AtomicInteger();
+
+		/**
+		 * True if work was reported from a thread other than {@link #owner}.
+		 */
+		private volatile boolean otherThread;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void worked(int amount) {
+			if (Thread.currentThread() != owner) {
+				otherThread = true;
+			}
+
+			work.addAndGet(amount);
+		}
+	}
+
+	/**
+	 * NullActionFactory creates no actions.
+	 */
+	private static class NullActionFactory implements ProblemActionFactory {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public ProblemAction buildLink(URL url) {
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public ProblemAction buildReplace(ValidatorResource resource, int startPosition, int endPosition,
+				String replacement) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.ibm.commerce.qcheck.tools;
+
+/*
+ *-----------------------------------------------------------------
+ * Copyright 2018 Trent Hoeppner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *-----------------------------------------------------------------
+ */
+
+import java.io.File;
+import java.util.HashMap;
+
+import com.ibm.commerce.qcheck.core.FileCreatingTestCase;
+import com.ibm.commerce.qcheck.tools.config.Level;
+
+/**
+ * BaseExternalValidatorTest tests that the processors of the
+ * {@link BaseExternalValidator} subclasses build command lines which use the
+ * output directory of the batch.
+ *
+ * @author Trent Hoeppner
+ */
+public class BaseExternalValidatorTest extends FileCreatingTestCase {
+
+	/**
+	 * The output directory of the first batch. This value is not null after
+	 * {@link #setUp()} is called.
+	 */
+	private File firstBatchDir;
+
+	/**
+	 * The output directory of the second batch. This value is not null after
+	 * {@link #setUp()} is called.
+	 */
+	private File secondBatchDir;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		File testInstallDir = createTempDirWhichDeletesAllChildren("fakeEclipseDir");
+		System.setProperty("osgi.install.area", testInstallDir.getAbsolutePath() + File.separator);
+
+		firstBatchDir = createTempDirWhichDeletesAllChildren("batch1");
+		secondBatchDir = createTempDirWhichDeletesAllChildren("batch2");
+	}
+
+	/**
+	 * Tests that if a CHKPII command is built for a batch, the file list and
+	 * output file will be in the output directory of the batch.
+	 */
+	public void testPrepareForFileGroupIfCheckPIIExpectBatchOutputDir() {
+		BaseExternalValidator validator = new CheckPIIValidator(new Level());
+
+		String first = buildCommand(validator, firstBatchDir);
+		String second = buildCommand(validator, secondBatchDir);
+
+		assertContains(first, new File(firstBatchDir, "piifilelist.txt"));
+		assertContains(first, new File(firstBatchDir, "output.log"));
+		assertContains(second, new File(secondBatchDir, "piifilelist.txt"));
+		assertContains(second, new File(secondBatchDir, "output.log"));
+		assertNotContains(first, validator.getOutputDir());
+	}
+
+	/**
+	 * Tests that if a Checkstyle command is built for a batch, the output file
+	 * will be in the output directory of the batch.
+	 */
+	public void testPrepareForFileGroupIfCheckstyleExpectBatchOutputDir() {
+		BaseExternalValidator validator = new CheckstyleValidator();
+
+		String first = buildCommand(validator, firstBatchDir);
+		String second = buildCommand(validator, secondBatchDir);
+
+		assertContains(first, new File(firstBatchDir, "checkstyle.xml"));
+		assertContains(second, new File(secondBatchDir, "checkstyle.xml"));
+		assertNotContains(first, validator.getOutputDir());
+	}
+
+	/**
+	 * Tests that if a FindBugs command is built for a batch, the project file
+	 * and output file will be in the output directory of the batch.
+	 */
+	public void testPrepareForFileGroupIfFindBugsExpectBatchOutputDir() {
+		BaseExternalValidator validator = new FindBugsValidator();
+
+		String first = buildCommand(validator, firstBatchDir);
+		String second = buildCommand(validator, secondBatchDir);
+
+		assertContains(first, new File(firstBatchDir, "findbugsproject.fbp"));
+		assertContains(first, new File(firstBatchDir, "findbugs.xml"));
+		assertContains(second, new File(secondBatchDir, "findbugsproject.fbp"));
+		assertContains(second, new File(secondBatchDir, "findbugs.xml"));
+		assertNotContains(first, validator.getOutputDir());
+	}
+
+	/**
+	 * Builds the command line that the given validator would run for a batch
+	 * with the given output directory.
+	 *
+	 * @param validator
+	 *            The validator to build the command for. Cannot be null.
+	 * @param outputDir
+	 *            The output directory of the batch. Cannot be null.
+	 *
+	 * @return The command line, without any resources. Will not be null.
+	 */
+	private String buildCommand(BaseExternalValidator validator, File outputDir) {
+		BaseExternalValidator.Processor processor = validator.createProcessor(new FakeProblemActionFactory());
+		StringBuffer buffer = new StringBuffer();
+		processor.prepareToProcessAll();
+		processor.prepareForFileGroup(buffer, outputDir);
+		String command = buffer.toString();
+
+		buffer.setLength(0);
+		processor.prepareToInvoke(buffer, new HashMap<String, String>());
+
+		return command;
+	}
+
+	/**
+	 * Checks that the given command contains the given file.
+	 *
+	 * @param command
+	 *            The command to check. Cannot be null.
+	 * @param file
+	 *            The file that should be in the command. Cannot be null.
+	 */
+	private void assertContains(String command, File file) {
+		assertTrue("Command does not contain " + file + ": " + command, command.contains(file.toString()));
+	}
+
+	/**
+	 * Checks that the given command does not contain the given path.
+	 *
+	 * @param command
+	 *            The command to check. Cannot be null.
+	 * @param path
+	 *            The path that should not be in the command. Cannot be null.
+	 */
+	private void assertNotContains(String command, String path) {
+		assertFalse("Command contains " + path + ": " + command, command.contains(path));
+	}
+}
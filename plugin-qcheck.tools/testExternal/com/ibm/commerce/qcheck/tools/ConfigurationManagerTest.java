@@ -19,13 +19,23 @@
  */
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
@@ -35,6 +45,7 @@
 import org.eclipse.core.runtime.InvalidRegistryObjectException;
 
 import com.ibm.commerce.qcheck.core.ExternalValidatorResource;
+import com.ibm.commerce.qcheck.core.FakeResource;
 import com.ibm.commerce.qcheck.core.Validator;
 import com.ibm.commerce.qcheck.core.ValidatorResource;
 import com.ibm.commerce.qcheck.tools.config.Config;
@@ -67,6 +78,35 @@ public class ConfigurationManagerTest extends TestCase {
 	 */
 	private static final int NUM_TEST_FILES = 18;
 
+	/**
+	 * The number of resources to select validators for in the performance
+	 * test.
+	 */
+	private static final int LARGE_RESOURCE_COUNT = 50000;
+
+	/**
+	 * The longest time that selecting validators for
+	 * {@link #LARGE_RESOURCE_COUNT} resources may take when benchmarking.
+	 */
+	private static final int MAX_SELECTION_SECONDS = 10;
+
+	/**
+	 * True if the time taken to select validators should be checked. A loaded
+	 * build machine can take any amount of time, so the limit is only checked
+	 * when the <code>benchmark</code> system property is true.
+	 */
+	private static final boolean CHECK_SELECTION_TIME = Boolean.getBoolean("benchmark");
+
+	/**
+	 * The number of threads that select validators at the same time.
+	 */
+	private static final int THREAD_COUNT = 8;
+
+	/**
+	 * The number of resources that each thread selects validators for.
+	 */
+	private static final int THREAD_RESOURCE_COUNT = 500;
+
 	/**
 	 * Tests that validators can be found for a single validator configuration,
 	 * and a single {@link LevelEnum level}.
@@ -646,6 +686,160 @@ public void testFindValidatorsIfValidatorNameHasNoFactoryExpectFactoryNotInList(
 		assertEquals("factoryToEnumMap is not empty", 0, factoryToEnumMap.size());
 	}
 
+	/**
+	 * Tests that if validators are selected for a large number of resources,
+	 * each resource gets the configured validator, and selecting again for the
+	 * same resources gives the same validators. When benchmarking, also tests
+	 * that the first selection takes less than {@link #MAX_SELECTION_SECONDS}.
+	 *
+	 * @throws Exception
+	 *             If an unexpected error occurs.
+	 */
+	public void testGetValidatorsIfManyResourcesExpectEachResourceSelected() throws Exception {
+		ConfigurationManager manager = new ConfigurationManager("trenth",
+				new File("testData\\singleConfigAndValidatorConfig.xml"));
+		List<ValidatorResource> resources = createResources(LARGE_RESOURCE_COUNT);
+
+		// load the configuration before timing
+		manager.getValidators(resources.subList(0, 1), TimeEnum.ASYOUTYPE);
+
+		long startTime = System.nanoTime();
+		Map<Validator, List<ValidatorResource>> firstValidatorToResources = manager.getValidators(resources,
+				TimeEnum.ASYOUTYPE);
+		long firstTime = System.nanoTime() - startTime;
+
+		Map<Validator, List<ValidatorResource>> secondValidatorToResources = manager.getValidators(resources,
+				TimeEnum.ASYOUTYPE);
+
+		assertEquals("Wrong number of validators.", 1, firstValidatorToResources.size());
+		assertEquals("Wrong resources.", resources, firstValidatorToResources.values().iterator().next());
+		assertEquals("Different results.", firstValidatorToResources, secondValidatorToResources);
+		if (CHECK_SELECTION_TIME) {
+			assertTrue("Selection took too long: " + firstTime / 1000000 + " ms",
+					firstTime < TimeUnit.SECONDS.toNanos(MAX_SELECTION_SECONDS));
+		}
+	}
+
+	/**
+	 * Tests that if many threads select validators while the configuration
+	 * file keeps changing, every thread gets the configured validators.
+	 *
+	 * @throws Exception
+	 *             If an unexpected error occurs.
+	 */
+	public void testGetValidatorsIfConcurrentWithConfigChangesExpectSameValidators() throws Exception {
+		final File configFile = File.createTempFile("ConfigurationManagerTest", ".xml");
+		try {
+			copy(new File("testData\\multipleConfigsAndValidatorsConfig.xml"), configFile);
+			final ConfigurationManager manager = new ConfigurationManager("trenth", configFile);
+			final List<ValidatorResource> resources = createResources(THREAD_RESOURCE_COUNT);
+			final List<String> expected = describe(manager.getValidators(resources, TimeEnum.ASYOUTYPE));
+
+			ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+			try {
+				List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+				for (int i = 0; i < THREAD_COUNT * 10; i++) {
+					futures.add(executor.submit(new Callable<List<String>>() {
+
+						@Override
+						public List<String> call() {
+							return describe(manager.getValidators(resources, TimeEnum.ASYOUTYPE));
+						}
+					}));
+
+					// force the configuration to be reloaded
+					configFile.setLastModified(configFile.lastModified() + 1000);
+				}
+
+				for (Future<List<String>> future : futures) {
+					assertEquals("Different validators.", expected, future.get());
+				}
+			} finally {
+				executor.shutdown();
+			}
+		} finally {
+			configFile.delete();
+		}
+	}
+
+	/**
+	 * Returns resources for different files in many packages, with class names
+	 * that match the class and file scopes in the test configuration files.
+	 *
+	 * @param count
+	 *            The number of resources to create. Must be &gt;= 0.
+	 *
+	 * @return The resources. Will not be null.
+	 */
+	private List<ValidatorResource> createResources(int count) {
+		File baseDir = new File("testData");
+		List<ValidatorResource> resources = new ArrayList<ValidatorResource>();
+		for (int i = 0; i < count; i++) {
+			String className = String.format("TestClass%02d", Integer.valueOf(i % NUM_TEST_FILES + 1));
+			String pathFilename = "com\\ibm\\commerce\\package" + i / 100 + "\\" + className + ".java";
+			resources.add(new PathResource(baseDir, pathFilename, className));
+		}
+
+		return resources;
+	}
+
+	/**
+	 * Returns a description of the given validator map that does not depend on
+	 * the validator instances, so that maps from different configuration loads
+	 * can be compared.
+	 *
+	 * @param validatorToResources
+	 *            The map to describe. Cannot be null.
+	 *
+	 * @return The class name of each validator and the number of resources for
+	 *         it, sorted. Will not be null.
+	 */
+	private List<String> describe(Map<Validator, List<ValidatorResource>> validatorToResources) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Validator validator : validatorToResources.keySet()) {
+			String level = "";
+			if (validator instanceof ConfigurableValidator) {
+				level = ((ConfigurableValidator) validator).getLevel().getValue().toString();
+			}
+			descriptions.add(validator.getClass().getName() + " " + level + " "
+					+ validatorToResources.get(validator).size());
+		}
+		Collections.sort(descriptions);
+
+		return descriptions;
+	}
+
+	/**
+	 * Copies the contents of one file to another.
+	 *
+	 * @param source
+	 *            The file to copy. Cannot be null, and must exist.
+	 * @param destination
+	 *            The file to copy to, which is replaced if it exists. Cannot be
+	 *            null.
+	 *
+	 * @throws IOException
+	 *             If there was an error reading or writing either file.
+	 */
+	private void copy(File source, File destination) throws IOException {
+		InputStream in = new FileInputStream(source);
+		try {
+			OutputStream out = new FileOutputStream(destination);
+			try {
+				byte[] buffer = new byte[4096];
+				int count = in.read(buffer);
+				while (count != -1) {
+					out.write(buffer, 0, count);
+					count = in.read(buffer);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
 	/**
 	 * Checks that the given validator map contains the expected values.
 	 *
@@ -1104,4 +1298,63 @@ public String getValue(String arg0) throws InvalidRegistryObjectException {
 		}
 
 	}
+
+	/**
+	 * PathResource is a resource with a given path and class name, which does
+	 * not need the file to exist.
+	 */
+	private static class PathResource extends FakeResource {
+
+		/**
+		 * The path of the file relative to the base directory.
+		 */
+		private String pathFilename;
+
+		/**
+		 * The name of the class in the file.
+		 */
+		private String className;
+
+		/**
+		 * Constructor for PathResource.
+		 *
+		 * @param baseDir
+		 *            The base directory. Cannot be null.
+		 * @param newPathFilename
+		 *            The path of the file relative to the base directory.
+		 *            Cannot be null or empty.
+		 * @param newClassName
+		 *            The name of the class in the file. Cannot be null or
+		 *            empty.
+		 */
+		private PathResource(File baseDir, String newPathFilename, String newClassName) {
+			super(baseDir, new File(baseDir, newPathFilename));
+			this.pathFilename = newPathFilename;
+			this.className = newClassName;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String getPathFilename() {
+			return pathFilename;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String getFilename() {
+			return className + ".java";
+		}
+	}
 }
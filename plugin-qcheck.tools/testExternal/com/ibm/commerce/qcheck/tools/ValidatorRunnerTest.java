@@ -21,15 +21,25 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 
 import com.ibm.commerce.qcheck.core.ExternalValidatorResource;
 import com.ibm.commerce.qcheck.core.ValidationException;
+import com.ibm.commerce.qcheck.core.ValidationResult;
 import com.ibm.commerce.qcheck.core.ValidatorResource;
 import com.ibm.commerce.qcheck.tools.config.TimeEnum;
 
@@ -47,6 +57,26 @@ public class ValidatorRunnerTest extends TestCase {
 	 */
 	private static final int NUM_THREADS = 10;
 
+	/**
+	 * The number of seconds that a run may take before it is considered to
+	 * be stuck. This is far longer than a run should take, so that a slow
+	 * machine does not fail the test, but a run that waits for something that
+	 * never happens does.
+	 */
+	private static final int STUCK_SECONDS = 60;
+
+	/**
+	 * The longest time that a run of one validator on a trivial resource may
+	 * take. This is half of the fixed sleep that each run used to end with.
+	 */
+	private static final long MAX_RUN_MILLIS = 600;
+
+	/**
+	 * The name of the validator that is run on a trivial resource. It runs in
+	 * the plug-in, so the run does not wait for an external tool.
+	 */
+	private static final String VALIDATOR_NAME = "JavaDoc";
+
 	/**
 	 * The total number of threads that were canceled.
 	 */
@@ -110,6 +140,107 @@ public void run() {
 		System.out.println("Finished with " + getNumCanceled() + " canceled.");
 	}
 
+	/**
+	 * Tests that if a validator is run on a trivial resource, the run
+	 * completes without being canceled and without waiting, and the
+	 * completion is recorded at once, so that an asyoutype run for the same
+	 * contents is canceled.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunValidatorsIfTrivialResourceExpectCompletedWithoutWaiting() throws Exception {
+		List<String> validatorNames = Collections.singletonList(VALIDATOR_NAME);
+
+		// load the configuration and the models before timing
+		runInOtherThread(TimeEnum.MANUAL, validatorNames, new NullProgressMonitor());
+
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		long begin = System.nanoTime();
+		runInOtherThread(TimeEnum.MANUAL, validatorNames, monitor);
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+		assertFalse("Run was canceled.", monitor.isCanceled());
+		assertTrue("Run took " + millis + " ms.", millis < MAX_RUN_MILLIS);
+
+		try {
+			runInOtherThread(TimeEnum.ASYOUTYPE, validatorNames, new NullProgressMonitor());
+			fail("The completed run was not recorded.");
+		} catch (ExecutionException e) {
+			assertTrue("Wrong exception: " + e.getCause(), e.getCause() instanceof OperationCanceledException);
+		}
+	}
+
+	/**
+	 * Tests that if the monitor is canceled as soon as a run starts, the run
+	 * stops with an exception instead of running the validators.
+	 *
+	 * @throws Exception
+	 *             If an error occurs during the test.
+	 */
+	public void testRunValidatorsIfCanceledExpectStoppedPromptly() throws Exception {
+		IProgressMonitor monitor = new NullProgressMonitor() {
+
+			@Override
+			public void beginTask(String name, int totalWork) {
+				setCanceled(true);
+			}
+		};
+
+		try {
+			runInOtherThread(TimeEnum.MANUAL, null, monitor);
+			fail("OperationCanceledException was not thrown.");
+		} catch (ExecutionException e) {
+			assertTrue("Wrong exception: " + e.getCause(), e.getCause() instanceof OperationCanceledException);
+		}
+	}
+
+	/**
+	 * Runs the validators on a trivial resource in another thread, and fails
+	 * if the run does not finish within {@link #STUCK_SECONDS}.
+	 *
+	 * @param time
+	 *            The circumstances under which the validation occurs. Cannot
+	 *            be null.
+	 * @param validatorNames
+	 *            The names of the validators to run, or null to run all of
+	 *            them.
+	 * @param monitor
+	 *            The monitor for the run. Cannot be null.
+	 *
+	 * @return The results of the run. Will not be null.
+	 *
+	 * @throws ExecutionException
+	 *             If the run threw an exception.
+	 * @throws Exception
+	 *             If the run could not be started or waited for.
+	 */
+	private List<ValidationResult> runInOtherThread(final TimeEnum time, final List<String> validatorNames,
+			final IProgressMonitor monitor) throws Exception {
+		final ValidatorResource resource = new ExternalValidatorResource(new File("testData\\TestClass01.java"));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<ValidationResult>> future = executor.submit(new Callable<List<ValidationResult>>() {
+
+				@Override
+				public List<ValidationResult> call() throws Exception {
+					return ValidatorRunner.runValidators(Collections.singletonList(resource), time, validatorNames,
+							new FakeProblemActionFactory(), monitor);
+				}
+			});
+
+			try {
+				return future.get(STUCK_SECONDS, TimeUnit.SECONDS);
+			} catch (TimeoutException e) {
+				future.cancel(true);
+				fail("Run did not finish in " + STUCK_SECONDS + " seconds.");
+				return null;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	/**
 	 * BarrierObeyingValidatorRunner is made to start the ValidatorRunner, but
 	 * only after waiting until all threads are ready, enforced by a barrier.